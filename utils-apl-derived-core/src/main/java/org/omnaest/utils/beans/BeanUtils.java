@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -28,6 +29,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.omnaest.utils.beans.adapter.PropertynameMapToTypeAdapter;
@@ -37,6 +40,9 @@ import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter.BeanConvers
 import org.omnaest.utils.beans.result.BeanMethodInformation;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor;
 import org.omnaest.utils.beans.result.BeanPropertyAccessors;
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
 import org.omnaest.utils.reflection.ReflectionUtils;
 import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.element.converter.ElementConverter;
@@ -52,6 +58,71 @@ import org.omnaest.utils.tuple.Tuple2;
  */
 public class BeanUtils
 {
+  /* ********************************************** Constants ********************************************** */
+  private static final DerivedMetadataFactory<BeanMetadata> BEAN_METADATA_FACTORY = new DerivedMetadataFactory<BeanMetadata>()
+                                                                                  {
+                                                                                    @Override
+                                                                                    public BeanMetadata newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                    {
+                                                                                      return new BeanMetadata( classMetadata );
+                                                                                    }
+                                                                                  };
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Immutable Java Bean metadata of a single type which is held by the {@link ClassMetadataRegistry}
+   * 
+   * @author Omnaest
+   */
+  private static class BeanMetadata
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Map<String, BeanPropertyAccessor<Object>>          propertyNameToBeanPropertyAccessorMap;
+    private final Map<String, Set<BeanMethodInformation>>            propertyNameToBeanMethodInformationMap;
+    private final Map<String, BeanMethodInformation>                 methodNameToBeanMethodInformationMap;
+    private final Set<BeanMethodInformation>                         beanMethodInformationSet;
+    private final ConcurrentMap<String, BeanPropertyAccessor<Object>> propertyNameToSingleBeanPropertyAccessorMap = new ConcurrentHashMap<String, BeanPropertyAccessor<Object>>();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    @SuppressWarnings("unchecked")
+    public BeanMetadata( ClassMetadata classMetadata )
+    {
+      //
+      super();
+      
+      //
+      final Class<Object> type = (Class<Object>) classMetadata.getType();
+      final Method[] methods = classMetadata.getMethodList().toArray( new Method[0] );
+      
+      //
+      this.propertyNameToBeanPropertyAccessorMap = Collections.unmodifiableMap( BeanUtils.newPropertyNameToBeanPropertyAccessorMap(
+                                                                                                                                  type,
+                                                                                                                                  classMetadata ) );
+      
+      //
+      final Map<String, Set<BeanMethodInformation>> propertyNameToBeanMethodInformationMap = BeanUtils.propertyNameToBeanMethodInformationMap( methods );
+      for ( Map.Entry<String, Set<BeanMethodInformation>> entry : propertyNameToBeanMethodInformationMap.entrySet() )
+      {
+        entry.setValue( Collections.unmodifiableSet( entry.getValue() ) );
+      }
+      this.propertyNameToBeanMethodInformationMap = Collections.unmodifiableMap( propertyNameToBeanMethodInformationMap );
+      
+      //
+      this.methodNameToBeanMethodInformationMap = Collections.unmodifiableMap( BeanUtils.methodNameToBeanMethodInformationMap( methods ) );
+      
+      //
+      final Set<BeanMethodInformation> beanMethodInformationSet = new HashSet<BeanMethodInformation>();
+      for ( Method method : methods )
+      {
+        beanMethodInformationSet.add( BeanUtils.beanMethodInformation( method ) );
+      }
+      this.beanMethodInformationSet = Collections.unmodifiableSet( beanMethodInformationSet );
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
   
   /**
    * Returns a new {@link Map} instance which contains the property names as keys and the values of the properties as map values.
@@ -110,7 +181,7 @@ public class BeanUtils
     if ( beanClass != null )
     {
       //
-      Map<String, BeanPropertyAccessor<B>> fieldnameToBeanPropertyAccessorMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass );
+      Map<String, BeanPropertyAccessor<B>> fieldnameToBeanPropertyAccessorMap = BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( beanClass );
       
       //
       retset.addAll( fieldnameToBeanPropertyAccessorMap.values() );
@@ -242,7 +313,7 @@ public class BeanUtils
     Map<String, Set<Annotation>> retmap = new HashMap<String, Set<Annotation>>();
     
     //
-    Map<String, BeanPropertyAccessor<B>> propertyNameToBeanPropertyAccessorMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass );
+    Map<String, BeanPropertyAccessor<B>> propertyNameToBeanPropertyAccessorMap = BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( beanClass );
     for ( String propertyName : propertyNameToBeanPropertyAccessorMap.keySet() )
     {
       //
@@ -370,7 +441,7 @@ public class BeanUtils
       Class<B> beanClass = (Class<B>) bean.getClass();
       
       //      
-      Map<String, BeanPropertyAccessor<B>> propertynameToBeanPropertyAccessorMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass );
+      Map<String, BeanPropertyAccessor<B>> propertynameToBeanPropertyAccessorMap = BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( beanClass );
       if ( propertynameToBeanPropertyAccessorMap != null )
       {
         for ( String propertyName : propertynameToBeanPropertyAccessorMap.keySet() )
@@ -548,48 +619,75 @@ public class BeanUtils
    * @param beanClass
    * @return
    */
-  @SuppressWarnings("unchecked")
   public static <B> Map<String, BeanPropertyAccessor<B>> propertyNameToBeanPropertyAccessorMap( Class<B> beanClass )
+  {
+    return new LinkedHashMap<String, BeanPropertyAccessor<B>>( BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( beanClass ) );
+  }
+  
+  /**
+   * Returns the unmodifiable {@link Map} of the {@link BeanMetadata} which is determined only once for each type
+   * 
+   * @see #propertyNameToBeanPropertyAccessorMap(Class)
+   * @param beanClass
+   * @return
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <B> Map<String, BeanPropertyAccessor<B>> cachedPropertyNameToBeanPropertyAccessorMap( Class<B> beanClass )
+  {
+    return beanClass != null ? (Map) beanMetadata( beanClass ).propertyNameToBeanPropertyAccessorMap
+                            : Collections.<String, BeanPropertyAccessor<B>> emptyMap();
+  }
+  
+  private static BeanMetadata beanMetadata( Class<?> type )
+  {
+    return ClassMetadataRegistry.classMetadata( type ).derivedMetadata( BEAN_METADATA_FACTORY );
+  }
+  
+  @SuppressWarnings("unchecked")
+  private static <B> Map<String, BeanPropertyAccessor<B>> newPropertyNameToBeanPropertyAccessorMap( Class<B> beanClass,
+                                                                                                   ClassMetadata classMetadata )
   {
     //
     Map<String, BeanPropertyAccessor<B>> retmap = new HashMap<String, BeanPropertyAccessor<B>>();
     
     //
-    if ( beanClass != null )
+    try
     {
       //
-      try
+      MapElementMergeOperation<String, BeanPropertyAccessor<B>> mapElementMergeOperation = new MapElementMergeOperation<String, BeanPropertyAccessor<B>>()
       {
-        //
-        MapElementMergeOperation<String, BeanPropertyAccessor<B>> mapElementMergeOperation = new MapElementMergeOperation<String, BeanPropertyAccessor<B>>()
+        @Override
+        public void merge( String key, BeanPropertyAccessor<B> value, Map<String, BeanPropertyAccessor<B>> mergedMap )
         {
-          @Override
-          public void merge( String key, BeanPropertyAccessor<B> value, Map<String, BeanPropertyAccessor<B>> mergedMap )
+          //
+          if ( mergedMap.containsKey( key ) )
           {
-            //
-            if ( mergedMap.containsKey( key ) )
-            {
-              BeanPropertyAccessor<B> beanPropertyAccessor = mergedMap.get( key );
-              BeanPropertyAccessor<B> beanPropertyAccessorMerged = BeanPropertyAccessor.merge( beanPropertyAccessor, value );
-              mergedMap.put( key, beanPropertyAccessorMerged );
-            }
-            else
-            {
-              mergedMap.put( key, value );
-            }
+            BeanPropertyAccessor<B> beanPropertyAccessor = mergedMap.get( key );
+            BeanPropertyAccessor<B> beanPropertyAccessorMerged = BeanPropertyAccessor.merge( beanPropertyAccessor, value );
+            mergedMap.put( key, beanPropertyAccessorMerged );
           }
-        };
-        
-        retmap = MapUtils.mergeAll( mapElementMergeOperation,
-                                    BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, beanClass.getDeclaredFields() ),
-                                    BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, beanClass.getDeclaredMethods() ),
-                                    BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, beanClass.getFields() ),
-                                    BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, beanClass.getMethods() ) );
-        
-      }
-      catch ( Exception e )
-      {
-      }
+          else
+          {
+            mergedMap.put( key, value );
+          }
+        }
+      };
+      
+      retmap = MapUtils.mergeAll( mapElementMergeOperation,
+                                  BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass,
+                                                                                   classMetadata.getDeclaredFieldList()
+                                                                                                .toArray( new Field[0] ) ),
+                                  BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass,
+                                                                                   classMetadata.getDeclaredMethodList()
+                                                                                                .toArray( new Method[0] ) ),
+                                  BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, classMetadata.getFieldList()
+                                                                                                           .toArray( new Field[0] ) ),
+                                  BeanUtils.propertyNameToBeanPropertyAccessorMap( beanClass, classMetadata.getMethodList()
+                                                                                                           .toArray( new Method[0] ) ) );
+      
+    }
+    catch ( Exception e )
+    {
     }
     
     //
@@ -606,6 +704,7 @@ public class BeanUtils
    * @param propertyName
    * @return
    */
+  @SuppressWarnings("unchecked")
   public static <B> BeanPropertyAccessor<B> beanPropertyAccessor( Class<B> beanClass, String propertyName )
   {
     //
@@ -613,13 +712,37 @@ public class BeanUtils
     
     //
     if ( beanClass != null && propertyName != null )
+    {
+      //
+      final ConcurrentMap<String, BeanPropertyAccessor<Object>> propertyNameToSingleBeanPropertyAccessorMap = beanMetadata( beanClass ).propertyNameToSingleBeanPropertyAccessorMap;
+      retval = (BeanPropertyAccessor<B>) (Object) propertyNameToSingleBeanPropertyAccessorMap.get( propertyName );
+      if ( retval == null )
+      {
+        //
+        retval = BeanUtils.newBeanPropertyAccessor( beanClass, propertyName );
+        if ( retval != null )
+        {
+          propertyNameToSingleBeanPropertyAccessorMap.putIfAbsent( propertyName, (BeanPropertyAccessor<Object>) (Object) retval );
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  private static <B> BeanPropertyAccessor<B> newBeanPropertyAccessor( Class<B> beanClass, String propertyName )
+  {
+    //
+    BeanPropertyAccessor<B> retval = null;
+    
+    //
     {
       //
       try
       {
         //
-        Set<BeanMethodInformation> beanMethodInformationSet = BeanUtils.propertyNameToBeanMethodInformationMap( beanClass )
-                                                                       .get( propertyName );
+        Set<BeanMethodInformation> beanMethodInformationSet = beanMetadata( beanClass ).propertyNameToBeanMethodInformationMap.get( propertyName );
         
         //     
         Method methodGetter = null;
@@ -744,10 +867,7 @@ public class BeanUtils
     //
     if ( clazz != null )
     {
-      for ( Method method : clazz.getMethods() )
-      {
-        retset.add( BeanUtils.beanMethodInformation( method ) );
-      }
+      retset.addAll( beanMetadata( clazz ).beanMethodInformationSet );
     }
     
     //
@@ -769,7 +889,12 @@ public class BeanUtils
     //
     if ( clazz != null )
     {
-      retmap = BeanUtils.propertyNameToBeanMethodInformationMap( clazz.getMethods() );
+      //
+      retmap = new HashMap<String, Set<BeanMethodInformation>>();
+      for ( Map.Entry<String, Set<BeanMethodInformation>> entry : beanMetadata( clazz ).propertyNameToBeanMethodInformationMap.entrySet() )
+      {
+        retmap.put( entry.getKey(), new HashSet<BeanMethodInformation>( entry.getValue() ) );
+      }
     }
     else
     {
@@ -795,7 +920,7 @@ public class BeanUtils
     //
     if ( type != null )
     {
-      retmap = BeanUtils.methodNameToBeanMethodInformationMap( type.getMethods() );
+      retmap = new HashMap<String, BeanMethodInformation>( beanMetadata( type ).methodNameToBeanMethodInformationMap );
     }
     else
     {
@@ -1030,8 +1155,8 @@ public class BeanUtils
     if ( beanSource != null && beanDestination != null )
     {
       //
-      final Map<String, BeanPropertyAccessor<S>> fieldnameToBeanPropertyAccessorSourceMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( (Class<S>) beanSource.getClass() );
-      final Map<String, BeanPropertyAccessor<D>> fieldnameToBeanPropertyAccessorDestinationMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( (Class<D>) beanDestination.getClass() );
+      final Map<String, BeanPropertyAccessor<S>> fieldnameToBeanPropertyAccessorSourceMap = BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( (Class<S>) beanSource.getClass() );
+      final Map<String, BeanPropertyAccessor<D>> fieldnameToBeanPropertyAccessorDestinationMap = BeanUtils.cachedPropertyNameToBeanPropertyAccessorMap( (Class<D>) beanDestination.getClass() );
       
       //
       final List<Tuple2<BeanPropertyAccessor<S>, BeanPropertyAccessor<D>>> joinTupleList = ListUtils.valueOf( MapUtils.innerJoinMapByKey( fieldnameToBeanPropertyAccessorSourceMap,
@@ -1089,7 +1214,7 @@ public class BeanUtils
     if ( type != null )
     {
       //
-      final Map<String, Set<BeanMethodInformation>> fieldnameToBeanMethodInformationMap = BeanUtils.propertyNameToBeanMethodInformationMap( type );
+      final Map<String, Set<BeanMethodInformation>> fieldnameToBeanMethodInformationMap = beanMetadata( type ).propertyNameToBeanMethodInformationMap;
       propertyNameSet.addAll( fieldnameToBeanMethodInformationMap.keySet() );
       propertyNameSet.remove( null );
       propertyNameSet.remove( "class" );
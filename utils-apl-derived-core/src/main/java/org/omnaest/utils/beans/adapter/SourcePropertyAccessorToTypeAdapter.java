@@ -21,10 +21,13 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.omnaest.utils.assertion.Assert;
@@ -39,6 +42,7 @@ import org.omnaest.utils.beans.adapter.source.SourcePropertyAccessorDecoratorDef
 import org.omnaest.utils.beans.adapter.source.SourcePropertyAccessorDecoratorPropertyAccessOption;
 import org.omnaest.utils.beans.adapter.source.SourcePropertyAccessorDecoratorPropertyNameTemplate;
 import org.omnaest.utils.beans.autowired.AutowiredContainer;
+import org.omnaest.utils.beans.autowired.AutowiredContainerDecorator;
 import org.omnaest.utils.beans.autowired.ClassMapToAutowiredContainerAdapter;
 import org.omnaest.utils.beans.result.BeanMethodInformation;
 import org.omnaest.utils.proxy.StubCreator;
@@ -122,10 +126,7 @@ public class SourcePropertyAccessorToTypeAdapter<T> implements Serializable
     /* ********************************************** Constants ********************************************** */
     private static final long                        serialVersionUID  = 9056642721076392704L;
     /* ********************************************** Variables / State ********************************************** */
-    private final List<Annotation>                   declaredAnnotationListOfType;
-    private final Map<Method, Set<Annotation>>       declaredMethodToAnnotationSetMap;
-    private final Map<String, Set<Annotation>>       propertyNameToBeanPropertyAnnotationSetMap;
-    private final Map<String, BeanMethodInformation> methodNameToBeanMethodInformationMap;
+    private final PreparedMethodTable                preparedMethodTable;
     
     private final Class<T>                           type;
     private final Configuration                      configuration;
@@ -159,10 +160,9 @@ public class SourcePropertyAccessorToTypeAdapter<T> implements Serializable
                         Configuration configuration )
     {
       super();
-      this.declaredAnnotationListOfType = declaredAnnotationListOfType;
-      this.declaredMethodToAnnotationSetMap = declaredMethodToAnnotationSetMap;
-      this.propertyNameToBeanPropertyAnnotationSetMap = propertyNameToBeanPropertyAnnotationSetMap;
-      this.methodNameToBeanMethodInformationMap = methodNameToBeanMethodInformationMap;
+      this.preparedMethodTable = new PreparedMethodTable( declaredAnnotationListOfType, declaredMethodToAnnotationSetMap,
+                                                          propertyNameToBeanPropertyAnnotationSetMap,
+                                                          methodNameToBeanMethodInformationMap );
       this.type = type;
       this.configuration = configuration;
     }
@@ -225,12 +225,8 @@ public class SourcePropertyAccessorToTypeAdapter<T> implements Serializable
         }
         
         //       
-        MethodInvocationHandler methodInvocationHandler = new ClassAdapterMethodInvocationHandler(
-                                                                                                   sourcePropertyAccessor,
-                                                                                                   this.declaredAnnotationListOfType,
-                                                                                                   this.declaredMethodToAnnotationSetMap,
-                                                                                                   this.propertyNameToBeanPropertyAnnotationSetMap,
-                                                                                                   this.methodNameToBeanMethodInformationMap );
+        MethodInvocationHandler methodInvocationHandler = new ClassAdapterMethodInvocationHandler( sourcePropertyAccessor,
+                                                                                                   this.preparedMethodTable );
         
         //
         methodInvocationHandlerDecorators = org.omnaest.utils.structure.array.ArrayUtils.merge( this.configuration.getMethodInvocationHandlerDecorators(),
@@ -260,50 +256,349 @@ public class SourcePropertyAccessorToTypeAdapter<T> implements Serializable
   }
   
   /**
+   * Immutable information about a single {@link Method} of the adapted type, which is resolved only once. This includes the
+   * property name, the kind of accessor, the return and parameter types and the {@link Annotation} containers. A
+   * {@link Method} which is no bean property accessor is neither getter nor setter.
+   * 
+   * @see PreparedMethodTable
    * @author Omnaest
    */
-  private static class ClassAdapterMethodInvocationHandler implements MethodInvocationHandler, Serializable
+  private static class PreparedMethod implements Serializable
   {
     /* ********************************************** Constants ********************************************** */
-    private static final long                        serialVersionUID       = 7923602793508877717L;
-    /* ********************************************** Variables / State ********************************************** */
-    private SourcePropertyAccessor                   sourcePropertyAccessor = null;
+    private static final long                      serialVersionUID = -3236412606384925706L;
+    private static final Object[]                  NO_ARGUMENTS     = new Object[0];
+    /* ********************************************** Variables ********************************************** */
+    private final String                           propertyName;
+    private final boolean                          isGetter;
+    private final boolean                          isGetterWithAdditionalArguments;
+    private final boolean                          isSetter;
+    private final boolean                          isSetterWithAdditionalArguments;
+    
+    private final Class<?>                         returnType;
+    private final ParameterizedType                genericReturnType;
+    private final Class<?>                         parameterType;
+    private final ParameterizedType                genericParameterType;
+    
+    private final AutowiredContainer<Annotation>   propertyAnnotationAutowiredContainer;
+    private final AutowiredContainer<Annotation>   classAnnotationAutowiredContainer;
+    private final PropertyMetaInformation          getterPropertyMetaInformation;
+    private final PropertyMetaInformation          setterPropertyMetaInformation;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see PreparedMethod
+     * @param invokedMethod
+     *          {@link Method}
+     * @param beanMethodInformation
+     *          {@link BeanMethodInformation} or null if the invoked {@link Method} is no bean property accessor
+     * @param propertyAnnotationAutowiredContainer
+     * @param classAnnotationAutowiredContainer
+     */
+    public PreparedMethod( Method invokedMethod, BeanMethodInformation beanMethodInformation,
+                           AutowiredContainer<Annotation> propertyAnnotationAutowiredContainer,
+                           AutowiredContainer<Annotation> classAnnotationAutowiredContainer )
+    {
+      super();
+      
+      //
+      final boolean isBeanMethod = beanMethodInformation != null;
+      this.propertyName = isBeanMethod ? beanMethodInformation.getPropertyName() : null;
+      this.isGetter = isBeanMethod && beanMethodInformation.isGetter();
+      this.isGetterWithAdditionalArguments = isBeanMethod && beanMethodInformation.isGetterWithAdditionalArguments();
+      this.isSetter = isBeanMethod && beanMethodInformation.isSetter();
+      this.isSetterWithAdditionalArguments = isBeanMethod && beanMethodInformation.isSetterWithAdditionalArguments();
+      this.propertyAnnotationAutowiredContainer = propertyAnnotationAutowiredContainer;
+      this.classAnnotationAutowiredContainer = classAnnotationAutowiredContainer;
+      
+      //
+      final Method method = isBeanMethod ? beanMethodInformation.getMethod() : invokedMethod;
+      this.returnType = method.getReturnType();
+      final Type genericReturnType = method.getGenericReturnType();
+      this.genericReturnType = (ParameterizedType) ( genericReturnType instanceof ParameterizedType ? genericReturnType : null );
+      
+      final Class<?>[] targetParameterTypes = method.getParameterTypes();
+      this.parameterType = targetParameterTypes != null && targetParameterTypes.length >= 1 ? targetParameterTypes[0] : null;
+      
+      final Type[] genericParameterTypes = method.getGenericParameterTypes();
+      this.genericParameterType = (ParameterizedType) ( genericParameterTypes != null && genericParameterTypes.length >= 1
+                                                        && genericParameterTypes[0] instanceof ParameterizedType ? genericParameterTypes[0]
+                                                                                                                : null );
+      
+      //
+      this.getterPropertyMetaInformation = new PropertyMetaInformation( NO_ARGUMENTS, this.genericReturnType,
+                                                                        propertyAnnotationAutowiredContainer,
+                                                                        classAnnotationAutowiredContainer );
+      this.setterPropertyMetaInformation = new PropertyMetaInformation( NO_ARGUMENTS, this.genericParameterType,
+                                                                        propertyAnnotationAutowiredContainer,
+                                                                        classAnnotationAutowiredContainer );
+    }
     
-    private final List<Annotation>                   declaredAnnotationListOfType;
-    private final Map<Method, Set<Annotation>>       declaredMethodToAnnotationSetMap;
-    private final Map<String, Set<Annotation>>       propertyNameToBeanPropertyAnnotationSetMap;
-    private final Map<String, BeanMethodInformation> methodNameToBeanMethodInformationMap;
+    /**
+     * Returns the shared {@link PropertyMetaInformation} for a getter invocation. Only invocations with additional arguments
+     * need a new instance.
+     * 
+     * @param args
+     * @return
+     */
+    public PropertyMetaInformation newGetterPropertyMetaInformation( Object[] args )
+    {
+      return args.length == 0 ? this.getterPropertyMetaInformation
+                             : new PropertyMetaInformation( Arrays.copyOf( args, args.length ), this.genericReturnType,
+                                                            this.propertyAnnotationAutowiredContainer,
+                                                            this.classAnnotationAutowiredContainer );
+    }
+    
+    /**
+     * Returns the shared {@link PropertyMetaInformation} for a setter invocation. Only invocations with additional arguments
+     * need a new instance.
+     * 
+     * @param args
+     * @return
+     */
+    public PropertyMetaInformation newSetterPropertyMetaInformation( Object[] args )
+    {
+      return args.length <= 1 ? this.setterPropertyMetaInformation
+                             : new PropertyMetaInformation( Arrays.copyOfRange( args, 1, args.length ),
+                                                            this.genericParameterType,
+                                                            this.propertyAnnotationAutowiredContainer,
+                                                            this.classAnnotationAutowiredContainer );
+    }
+    
+    public boolean isGetter( Object[] args )
+    {
+      return ( this.isGetter && args.length == 0 ) || ( this.isGetterWithAdditionalArguments && args.length >= 1 );
+    }
+    
+    public boolean isSetter( Object[] args )
+    {
+      return ( this.isSetter && args.length == 1 ) || ( this.isSetterWithAdditionalArguments && args.length >= 2 );
+    }
+    
+    public String getPropertyName()
+    {
+      return this.propertyName;
+    }
+    
+    public Class<?> getReturnType()
+    {
+      return this.returnType;
+    }
+    
+    public Class<?> getParameterType()
+    {
+      return this.parameterType;
+    }
+    
+  }
+  
+  /**
+   * {@link AutowiredContainerDecorator} for an unmodifiable {@link AutowiredContainer} of {@link Annotation}s which remembers the
+   * result of any {@link #getValue(Class)} lookup. The remembered results are transient and collected again after
+   * deserialization.
+   * 
+   * @see PreparedMethod
+   * @author Omnaest
+   */
+  private static class PreparedAnnotationAutowiredContainer extends AutowiredContainerDecorator<Annotation>
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final long                     serialVersionUID = -5630870651185950384L;
+    private static final Object                   NO_VALUE         = new Object();
+    /* ********************************************** Variables ********************************************** */
+    private transient volatile ConcurrentMap<Class<?>, Object> typeToValueMap = null;
     
     /* ********************************************** Methods ********************************************** */
     
     /**
-     * @see ClassAdapterMethodInvocationHandler
-     * @param sourcePropertyAccessor
+     * @see PreparedAnnotationAutowiredContainer
+     * @param annotationMap
+     *          {@link Map} which is not modified afterwards
+     */
+    public PreparedAnnotationAutowiredContainer( Map<Class<? extends Annotation>, Annotation> annotationMap )
+    {
+      super( ClassMapToAutowiredContainerAdapter.newInstance( Collections.unmodifiableMap( annotationMap ) ) );
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public <O extends Annotation> O getValue( Class<? extends O> type )
+    {
+      //
+      final ConcurrentMap<Class<?>, Object> typeToValueMap = this.resolveTypeToValueMap();
+      Object retval = type != null ? typeToValueMap.get( type ) : null;
+      if ( retval == null && type != null )
+      {
+        //
+        final Object value = this.autowiredContainer.getValue( type );
+        retval = value != null ? value : NO_VALUE;
+        typeToValueMap.putIfAbsent( type, retval );
+      }
+      
+      //
+      return retval != NO_VALUE ? (O) retval : null;
+    }
+    
+    /**
+     * @return the {@link Map} of the remembered lookup results, which is created lazily since it is transient
+     */
+    private ConcurrentMap<Class<?>, Object> resolveTypeToValueMap()
+    {
+      ConcurrentMap<Class<?>, Object> retmap = this.typeToValueMap;
+      if ( retmap == null )
+      {
+        retmap = new ConcurrentHashMap<Class<?>, Object>();
+        this.typeToValueMap = retmap;
+      }
+      return retmap;
+    }
+  }
+  
+  /**
+   * Resolves the {@link PreparedMethod} for any invoked {@link Method} only once and shares it between all the adapter
+   * instances of a single {@link Builder}. This avoids building the {@link Annotation} containers and reflecting the types of
+   * the {@link Method} on every invocation.
+   * 
+   * @author Omnaest
+   */
+  private static class PreparedMethodTable implements Serializable
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final long                                 serialVersionUID          = 4395467373404788297L;
+    /* ********************************************** Variables ********************************************** */
+    private final List<Annotation>                            declaredAnnotationListOfType;
+    private final Map<Method, Set<Annotation>>                declaredMethodToAnnotationSetMap;
+    private final Map<String, Set<Annotation>>                propertyNameToBeanPropertyAnnotationSetMap;
+    private final Map<String, BeanMethodInformation>          methodNameToBeanMethodInformationMap;
+    
+    private final ConcurrentMap<Method, PreparedMethod>       methodToPreparedMethodMap = new ConcurrentHashMap<Method, PreparedMethod>();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see PreparedMethodTable
      * @param declaredAnnotationListOfType
      * @param declaredMethodToAnnotationSetMap
      * @param propertyNameToBeanPropertyAnnotationSetMap
      * @param methodNameToBeanMethodInformationMap
      */
-    public ClassAdapterMethodInvocationHandler( SourcePropertyAccessor sourcePropertyAccessor,
-                                                List<Annotation> declaredAnnotationListOfType,
-                                                Map<Method, Set<Annotation>> declaredMethodToAnnotationSetMap,
-                                                Map<String, Set<Annotation>> propertyNameToBeanPropertyAnnotationSetMap,
-                                                Map<String, BeanMethodInformation> methodNameToBeanMethodInformationMap )
+    public PreparedMethodTable( List<Annotation> declaredAnnotationListOfType,
+                                Map<Method, Set<Annotation>> declaredMethodToAnnotationSetMap,
+                                Map<String, Set<Annotation>> propertyNameToBeanPropertyAnnotationSetMap,
+                                Map<String, BeanMethodInformation> methodNameToBeanMethodInformationMap )
     {
       super();
-      this.sourcePropertyAccessor = sourcePropertyAccessor;
       this.declaredAnnotationListOfType = declaredAnnotationListOfType;
       this.declaredMethodToAnnotationSetMap = declaredMethodToAnnotationSetMap;
       this.propertyNameToBeanPropertyAnnotationSetMap = propertyNameToBeanPropertyAnnotationSetMap;
       this.methodNameToBeanMethodInformationMap = methodNameToBeanMethodInformationMap;
     }
     
+    /**
+     * Returns the {@link PreparedMethod} for the given {@link Method}
+     * 
+     * @param method
+     *          {@link Method}
+     * @return {@link PreparedMethod}
+     */
+    public PreparedMethod getPreparedMethod( Method method )
+    {
+      //
+      PreparedMethod retval = this.methodToPreparedMethodMap.get( method );
+      if ( retval == null )
+      {
+        //
+        retval = this.newPreparedMethod( method );
+        
+        //
+        final PreparedMethod preparedMethodPrevious = this.methodToPreparedMethodMap.putIfAbsent( method, retval );
+        if ( preparedMethodPrevious != null )
+        {
+          retval = preparedMethodPrevious;
+        }
+      }
+      
+      //
+      return retval;
+    }
+    
+    /**
+     * @param method
+     * @return new {@link PreparedMethod}
+     */
+    private PreparedMethod newPreparedMethod( Method method )
+    {
+      //
+      PreparedMethod retval = null;
+      
+      //
+      final BeanMethodInformation beanMethodInformation = this.methodNameToBeanMethodInformationMap != null ? this.methodNameToBeanMethodInformationMap.get( method.getName() )
+                                                                                                           : null;
+      if ( beanMethodInformation != null )
+      {
+        //
+        final Map<Class<? extends Annotation>, Annotation> propertyAnnotationMap = new LinkedHashMap<Class<? extends Annotation>, Annotation>();
+        final Map<Class<? extends Annotation>, Annotation> classAnnotationMap = new LinkedHashMap<Class<? extends Annotation>, Annotation>();
+        
+        //
+        ClassMapToAutowiredContainerAdapter.newInstance( classAnnotationMap ).putAll( this.declaredAnnotationListOfType );
+        ClassMapToAutowiredContainerAdapter.newInstance( propertyAnnotationMap )
+                                           .putAll( this.propertyNameToBeanPropertyAnnotationSetMap.get( beanMethodInformation.getPropertyName() ) )
+                                           .putAll( this.declaredMethodToAnnotationSetMap.get( method ) );
+        
+        //
+        retval = new PreparedMethod( method, beanMethodInformation,
+                                     new PreparedAnnotationAutowiredContainer( propertyAnnotationMap ),
+                                     new PreparedAnnotationAutowiredContainer( classAnnotationMap ) );
+      }
+      else
+      {
+        //
+        final AutowiredContainer<Annotation> propertyAnnotationAutowiredContainer = null;
+        final AutowiredContainer<Annotation> classAnnotationAutowiredContainer = null;
+        retval = new PreparedMethod( method, beanMethodInformation, propertyAnnotationAutowiredContainer,
+                                     classAnnotationAutowiredContainer );
+      }
+      
+      //
+      return retval;
+    }
+  }
+  
+  /**
+   * @author Omnaest
+   */
+  private static class ClassAdapterMethodInvocationHandler implements MethodInvocationHandler, Serializable
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final long         serialVersionUID       = 7923602793508877717L;
+    /* ********************************************** Variables / State ********************************************** */
+    private SourcePropertyAccessor    sourcePropertyAccessor = null;
+    
+    private final PreparedMethodTable preparedMethodTable;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see ClassAdapterMethodInvocationHandler
+     * @param sourcePropertyAccessor
+     * @param preparedMethodTable
+     *          {@link PreparedMethodTable}
+     */
+    public ClassAdapterMethodInvocationHandler( SourcePropertyAccessor sourcePropertyAccessor,
+                                                PreparedMethodTable preparedMethodTable )
+    {
+      super();
+      this.sourcePropertyAccessor = sourcePropertyAccessor;
+      this.preparedMethodTable = preparedMethodTable;
+    }
+    
     @Override
     public Object handle( MethodCallCapture methodCallCapture ) throws Throwable
     {
       //
       final Method method = methodCallCapture.getMethod();
-      final String methodName = methodCallCapture.getMethodName();
       final Object[] args = methodCallCapture.getArguments();
       
       //
@@ -313,81 +608,26 @@ public class SourcePropertyAccessorToTypeAdapter<T> implements Serializable
       try
       {
         //        
-        BeanMethodInformation beanMethodInformation = this.methodNameToBeanMethodInformationMap.get( methodName );
-        if ( beanMethodInformation != null )
+        final PreparedMethod preparedMethod = this.preparedMethodTable.getPreparedMethod( method );
+        if ( this.sourcePropertyAccessor != null )
         {
           //
-          final String referencedFieldName = beanMethodInformation.getPropertyName();
-          
-          //          
-          boolean isGetter = beanMethodInformation.isGetter() && args.length == 0;
-          boolean isGetterWithAddtionalArguments = beanMethodInformation.isGetterWithAdditionalArguments() && args.length >= 1;
-          boolean isSetter = beanMethodInformation.isSetter() && args.length == 1;
-          boolean isSetterWithAdditionalArguments = beanMethodInformation.isSetterWithAdditionalArguments() && args.length >= 2;
-          boolean isPropertyAccessorNotNull = this.sourcePropertyAccessor != null;
-          
-          //          
-          if ( isPropertyAccessorNotNull )
+          final String propertyName = preparedMethod.getPropertyName();
+          if ( preparedMethod.isGetter( args ) )
           {
             //
-            AutowiredContainer<Annotation> propertyAnnotationAutowiredContainer = ClassMapToAutowiredContainerAdapter.newInstance( new LinkedHashMap<Class<? extends Annotation>, Annotation>() );
-            AutowiredContainer<Annotation> classAnnotationAutowiredContainer = ClassMapToAutowiredContainerAdapter.newInstance( new LinkedHashMap<Class<? extends Annotation>, Annotation>() );
-            
+            final PropertyMetaInformation propertyMetaInformation = preparedMethod.newGetterPropertyMetaInformation( args );
+            retval = this.sourcePropertyAccessor.getValue( propertyName, preparedMethod.getReturnType(), propertyMetaInformation );
+          }
+          else if ( preparedMethod.isSetter( args ) )
+          {
             //
-            classAnnotationAutowiredContainer.putAll( this.declaredAnnotationListOfType );
-            propertyAnnotationAutowiredContainer.putAll( this.propertyNameToBeanPropertyAnnotationSetMap.get( referencedFieldName ) );
-            propertyAnnotationAutowiredContainer.putAll( this.declaredMethodToAnnotationSetMap.get( method ) );
+            final Object value = args[0];
+            final PropertyMetaInformation propertyMetaInformation = preparedMethod.newSetterPropertyMetaInformation( args );
+            this.sourcePropertyAccessor.setValue( propertyName, value, preparedMethod.getParameterType(), propertyMetaInformation );
             
             //
-            if ( isGetter || isGetterWithAddtionalArguments )
-            {
-              //
-              final Class<?> returnType = beanMethodInformation.getMethod().getReturnType();
-              final Type genericReturnType = beanMethodInformation.getMethod().getGenericReturnType();
-              final ParameterizedType genericType = (ParameterizedType) ( genericReturnType instanceof ParameterizedType ? genericReturnType
-                                                                                                                        : null );
-              
-              //
-              Object[] additionalArguments = isGetterWithAddtionalArguments ? Arrays.copyOf( args, args.length ) : new Object[0];
-              PropertyMetaInformation propertyMetaInformation = new PropertyMetaInformation(
-                                                                                             additionalArguments,
-                                                                                             genericType,
-                                                                                             propertyAnnotationAutowiredContainer,
-                                                                                             classAnnotationAutowiredContainer );
-              
-              //              
-              retval = this.sourcePropertyAccessor.getValue( referencedFieldName, returnType, propertyMetaInformation );
-            }
-            else if ( isSetter || isSetterWithAdditionalArguments )
-            {
-              //
-              String propertyName = referencedFieldName;
-              Object value = args[0];
-              
-              final Class<?>[] targetParameterTypes = beanMethodInformation.getMethod().getParameterTypes();
-              final Class<?> parameterType = targetParameterTypes != null && targetParameterTypes.length >= 1 ? targetParameterTypes[0]
-                                                                                                             : null;
-              
-              final Type[] genericParameterTypes = beanMethodInformation.getMethod().getGenericParameterTypes();
-              final ParameterizedType genericParameterType = (ParameterizedType) ( genericParameterTypes != null
-                                                                                   && genericParameterTypes.length >= 1
-                                                                                   && genericParameterTypes[0] instanceof ParameterizedType ? genericParameterTypes[0]
-                                                                                                                                           : null );
-              
-              //
-              Object[] additionalArguments = isSetterWithAdditionalArguments ? Arrays.copyOfRange( args, 1, args.length )
-                                                                            : new Object[0];
-              PropertyMetaInformation propertyMetaInformation = new PropertyMetaInformation(
-                                                                                             additionalArguments,
-                                                                                             genericParameterType,
-                                                                                             propertyAnnotationAutowiredContainer,
-                                                                                             classAnnotationAutowiredContainer );
-              
-              this.sourcePropertyAccessor.setValue( propertyName, value, parameterType, propertyMetaInformation );
-              
-              //
-              retval = Void.TYPE;
-            }
+            retval = Void.TYPE;
           }
         }
       }
@@ -35,7 +35,13 @@ import org.omnaest.utils.structure.element.converter.ElementConverter;
 public class SourcePropertyAccessorDecoratorPropertyNameTemplate extends SourcePropertyAccessorDecorator
 {
   /* ********************************************** Constants ********************************************** */
-  private static final long serialVersionUID = 6165218599151510835L;
+  private static final long    serialVersionUID       = 6165218599151510835L;
+  private static final String  TAG_PROPERTYNAME       = "\\{(?iu)propertyname(?-iu)\\}";
+  private static final String  TAG_PARAMETER          = "\\{(\\d)\\}";
+  private static final Pattern PATTERN_PROPERTYNAME   = Pattern.compile( TAG_PROPERTYNAME );
+  private static final Pattern PATTERN_PARAMETER      = Pattern.compile( TAG_PARAMETER );
+  private static final Pattern PATTERN_VALID_TEMPLATE = Pattern.compile( "(" + TAG_PROPERTYNAME + "|" + TAG_PARAMETER
+                                                                         + "|[^\\{\\}])+" );
   
   /* ********************************************** Methods ********************************************** */
   
@@ -121,17 +127,15 @@ public class SourcePropertyAccessorDecoratorPropertyNameTemplate extends SourceP
           if ( template != null )
           {
             //
-            final String TAG_PROPERTYNAME = "\\{(?iu)propertyname(?-iu)\\}";
-            final String TAG_PARAMETER = "\\{(\\d)\\}";
-            Assert.isTrue( Pattern.matches( "(" + TAG_PROPERTYNAME + "|" + TAG_PARAMETER + "|[^\\{\\}])+", template ),
-                           "PropertyNameTemplate of property " + propertyName + " has an invalid format." );
+            Assert.isTrue( PATTERN_VALID_TEMPLATE.matcher( template ).matches(), "PropertyNameTemplate of property " + propertyName
+                                                                                 + " has an invalid format." );
             
             //
-            String templateWithValues = template.replaceAll( TAG_PROPERTYNAME, propertyName );
+            String templateWithValues = PATTERN_PROPERTYNAME.matcher( template ).replaceAll( propertyName );
             
             //
             StringBuffer stringBuffer = new StringBuffer();
-            Matcher matcher = Pattern.compile( TAG_PARAMETER ).matcher( templateWithValues );
+            Matcher matcher = PATTERN_PARAMETER.matcher( templateWithValues );
             while ( matcher.find() )
             {
               //
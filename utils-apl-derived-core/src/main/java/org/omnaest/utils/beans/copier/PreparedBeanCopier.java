@@ -16,6 +16,7 @@
 package org.omnaest.utils.beans.copier;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +26,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.omnaest.utils.beans.BeanUtils;
 import org.omnaest.utils.beans.copier.PreparedBeanCopier.CopierFactory.Copier;
@@ -65,8 +67,14 @@ import com.google.common.collect.ImmutableMap;
  * <li>{@link Configuration#setHandlingSets(boolean)}</li>
  * <li>{@link Configuration#setHandlingMaps(boolean)}</li>
  * <li>{@link Configuration#setHandlingArbitraryObjects(boolean)}</li>
+ * <li>{@link Configuration#setUsingGeneratedCopier(boolean)}</li>
  * </ul>
  * <br>
+ * If {@link Configuration#setUsingGeneratedCopier(boolean)} is activated, all primitive, wrapper and {@link String} properties
+ * which have public getters and setters are copied by a generated {@link PropertyTransfer} class, which invokes the getters and
+ * setters directly. This reaches nearly the speed of hand written getter and setter transfer code. If the types are not
+ * accessible for generated classes the reflection based copy actions are used instead.<br>
+ * <br>
  * <br>
  * The {@link #deepCloneProperties(Object)} and {@link #deepCopyProperties(Object, Object)} instances are thread safe per default,
  * as long as any at {@link #setExceptionHandler(ExceptionHandler)} or at {@link Configuration#add(CopierFactory)} or
@@ -83,13 +91,18 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
   private static final PropertyAccessType       DEFAULT_PROPERTY_ACCESS_TYPE = PropertyAccessType.PROPERTY;
   /* ************************************** Variables / State (internal/hiding) ************************************* */
   private final List<PreparedCopier>            preparedCopierList;
+  private final List<PreparedCopier>            preparedCopierListGenerated;
+  private final List<PreparedCopier>            preparedCopierListRemaining;
   private ExceptionHandler                      exceptionHandler             = PreparedBeanCopier.DEFAULT_EXCEPTION_HANDLER;
   private final InstanceFactory                 instanceFactoryForRoot;
   private final Class<FROM>                     typeFrom;
+  private final Class<TO>                       typeTo;
   private PropertyAccessType                    propertyAccessTypeFrom       = PreparedBeanCopier.DEFAULT_PROPERTY_ACCESS_TYPE;
   private PropertyAccessType                    propertyAccessTypeTo         = PreparedBeanCopier.DEFAULT_PROPERTY_ACCESS_TYPE;
   private final Transformer                     transformer;
   private final List<String>                    nonMatchingPropertyNameList;
+  private transient volatile PropertyTransfer   propertyTransfer             = null;
+  private transient volatile boolean            isPropertyTransferResolved   = false;
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
@@ -113,6 +126,7 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
     private boolean                            isHandlingCollections           = true;
     private boolean                            isHandlingMaps                  = true;
     private boolean                            isHandlingArbitraryObjects      = true;
+    private boolean                            isUsingGeneratedCopier          = false;
     
     /* *************************************************** Methods **************************************************** */
     
@@ -354,6 +368,28 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
       return this;
     }
     
+    /**
+     * @return
+     */
+    public boolean isUsingGeneratedCopier()
+    {
+      return this.isUsingGeneratedCopier;
+    }
+    
+    /**
+     * If set to true, the primitive, wrapper and {@link String} properties are copied by a generated class invoking the getters and
+     * setters directly instead of using reflection. Default is false.
+     * 
+     * @see PropertyTransfer
+     * @param isUsingGeneratedCopier
+     * @return this
+     */
+    public Configuration setUsingGeneratedCopier( boolean isUsingGeneratedCopier )
+    {
+      this.isUsingGeneratedCopier = isUsingGeneratedCopier;
+      return this;
+    }
+    
   }
   
   private static class PreparedCopier implements Serializable
@@ -413,6 +449,49 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
       }
     }
     
+    /**
+     * Returns the getter and setter {@link Method}s if this {@link PreparedCopier} can be replaced by a direct getter and setter
+     * invocation within a generated {@link PropertyTransfer}, otherwise null
+     * 
+     * @param typeFrom
+     * @param typeTo
+     * @return
+     */
+    public Method[] getGeneratableGetterAndSetter( Class<?> typeFrom, Class<?> typeTo )
+    {
+      Method[] retval = null;
+      if ( this.instanceFactory instanceof InstanceFactoryCreatorForPrimitives )
+      {
+        final Method getter = this.beanPropertyAccessorFrom.getMethodGetter();
+        final Method setter = this.beanPropertyAccessorTo.getMethodSetter();
+        if ( PropertyTransferGenerator.isSupported( typeFrom, typeTo, getter, setter ) )
+        {
+          retval = new Method[] { getter, setter };
+        }
+      }
+      return retval;
+    }
+    
+  }
+  
+  /**
+   * A {@link PropertyTransfer} copies a fixed set of properties from one instance to another. Implementations are generated at
+   * runtime, if {@link Configuration#setUsingGeneratedCopier(boolean)} is activated.
+   * 
+   * @see Configuration#setUsingGeneratedCopier(boolean)
+   * @author Omnaest
+   */
+  public static interface PropertyTransfer
+  {
+    /**
+     * Copies the properties from the first to the second instance in their given order. If a getter or setter throws an
+     * {@link Exception} the copy stops at this property.
+     * 
+     * @param instanceFrom
+     * @param instanceTo
+     * @return -1 if all properties have been copied, otherwise the index of the property which failed
+     */
+    public int copy( Object instanceFrom, Object instanceTo );
   }
   
   public static interface InstanceFactoryCreator extends Serializable
@@ -947,6 +1026,7 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
     
     //
     this.typeFrom = (Class<FROM>) typeFrom;
+    this.typeTo = (Class<TO>) typeTo;
     
     //
     final List<String> nonMatchingPropertyNameList = new ArrayList<String>();
@@ -955,9 +1035,25 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
                                                                         nonMatchingPropertyNameList );
     this.instanceFactoryForRoot = PreparedBeanCopier.newInstanceFactory( typeFrom, configurationOrDefault );
     this.nonMatchingPropertyNameList = ImmutableList.<String> copyOf( nonMatchingPropertyNameList );
+    
+    //
+    final List<PreparedCopier> preparedCopierListGenerated = new ArrayList<PreparedCopier>();
+    final List<PreparedCopier> preparedCopierListRemaining = new ArrayList<PreparedCopier>();
+    for ( PreparedCopier preparedCopier : this.preparedCopierList )
+    {
+      final boolean isGeneratable = configurationOrDefault.isUsingGeneratedCopier()
+                                    && preparedCopier.getGeneratableGetterAndSetter( typeFrom, typeTo ) != null;
+      ( isGeneratable ? preparedCopierListGenerated : preparedCopierListRemaining ).add( preparedCopier );
+    }
+    this.preparedCopierListGenerated = ImmutableList.<PreparedCopier> copyOf( preparedCopierListGenerated );
+    this.preparedCopierListRemaining = ImmutableList.<PreparedCopier> copyOf( preparedCopierListRemaining );
+    
+    //
     this.transformer = new Transformer()
     {
-      private static final long serialVersionUID = -4846406160190255627L;
+      private static final long                             serialVersionUID = -4846406160190255627L;
+      private final Map<Class<?>, InstanceFactory>          typeToInstanceFactoryMap = new ConcurrentHashMap<Class<?>, InstanceFactory>();
+      private final Map<Tuple2<Class<?>, Class<?>>, Copier> typeFromAndTypeToToCopierMap = new ConcurrentHashMap<Tuple2<Class<?>, Class<?>>, Copier>();
       
       @Override
       public Object transform( Object instanceFrom )
@@ -966,7 +1062,15 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
         if ( instanceFrom != null )
         {
           Class<?> propertyTypeFrom = instanceFrom.getClass();
-          InstanceFactory instanceFactory = newInstanceFactory( propertyTypeFrom, configurationOrDefault );
+          InstanceFactory instanceFactory = this.typeToInstanceFactoryMap.get( propertyTypeFrom );
+          if ( instanceFactory == null )
+          {
+            instanceFactory = newInstanceFactory( propertyTypeFrom, configurationOrDefault );
+            if ( instanceFactory != null )
+            {
+              this.typeToInstanceFactoryMap.put( propertyTypeFrom, instanceFactory );
+            }
+          }
           if ( instanceFactory != null )
           {
             //
@@ -976,8 +1080,18 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
               if ( retval != InstanceFactory.IMMUTABLE_INSTANCE )
               {
                 final Class<?> propertyTypeTo = retval.getClass();
-                final MetaDataHandler metaDataHandler = newMetaDataHandler( PreparedBeanCopier.this.nonMatchingPropertyNameList );
-                Copier copier = newCopier( propertyTypeFrom, propertyTypeTo, configurationOrDefault, metaDataHandler );
+                final Tuple2<Class<?>, Class<?>> typeFromAndTypeTo = new Tuple2<Class<?>, Class<?>>( propertyTypeFrom,
+                                                                                                   propertyTypeTo );
+                Copier copier = this.typeFromAndTypeToToCopierMap.get( typeFromAndTypeTo );
+                if ( copier == null )
+                {
+                  final MetaDataHandler metaDataHandler = newMetaDataHandler( PreparedBeanCopier.this.nonMatchingPropertyNameList );
+                  copier = newCopier( propertyTypeFrom, propertyTypeTo, configurationOrDefault, metaDataHandler );
+                  if ( copier != null )
+                  {
+                    this.typeFromAndTypeToToCopierMap.put( typeFromAndTypeTo, copier );
+                  }
+                }
                 if ( copier != null )
                 {
                   copier.copy( instanceFrom, retval, this );
@@ -1188,7 +1302,85 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
   public PreparedBeanCopier<FROM, TO> deepCopyProperties( FROM instanceFrom, TO instanceTo )
   {
     //
-    for ( PreparedCopier preparedCopier : this.preparedCopierList )
+    final PropertyTransfer propertyTransfer = this.resolvePropertyTransfer();
+    if ( propertyTransfer != null )
+    {
+      //
+      final int failedIndex = propertyTransfer.copy( instanceFrom, instanceTo );
+      if ( failedIndex >= 0 )
+      {
+        // the properties before the failed one are already copied
+        final List<PreparedCopier> preparedCopierListGenerated = this.preparedCopierListGenerated;
+        this.deepCopyProperties( instanceFrom, instanceTo,
+                                 preparedCopierListGenerated.subList( failedIndex, preparedCopierListGenerated.size() ) );
+      }
+      
+      //
+      this.deepCopyProperties( instanceFrom, instanceTo, this.preparedCopierListRemaining );
+    }
+    else
+    {
+      this.deepCopyProperties( instanceFrom, instanceTo, this.preparedCopierList );
+    }
+    
+    //
+    return this;
+  }
+  
+  /**
+   * Returns the generated {@link PropertyTransfer} for the direct properties or null if there is none available for the current
+   * settings
+   * 
+   * @return
+   */
+  private PropertyTransfer resolvePropertyTransfer()
+  {
+    //
+    PropertyTransfer retval = null;
+    
+    //
+    if ( !this.preparedCopierListGenerated.isEmpty() && PropertyAccessType.PROPERTY.equals( this.propertyAccessTypeFrom )
+         && PropertyAccessType.PROPERTY.equals( this.propertyAccessTypeTo ) )
+    {
+      //
+      if ( !this.isPropertyTransferResolved )
+      {
+        synchronized ( this )
+        {
+          if ( !this.isPropertyTransferResolved )
+          {
+            try
+            {
+              //
+              final List<Method[]> getterAndSetterList = new ArrayList<Method[]>();
+              for ( PreparedCopier preparedCopier : this.preparedCopierListGenerated )
+              {
+                getterAndSetterList.add( preparedCopier.getGeneratableGetterAndSetter( this.typeFrom, this.typeTo ) );
+              }
+              this.propertyTransfer = PropertyTransferGenerator.newPropertyTransfer( this.typeFrom, this.typeTo,
+                                                                                     getterAndSetterList );
+            }
+            catch ( Throwable e )
+            {
+              this.exceptionHandler.handleException( e instanceof Exception ? (Exception) e : new IllegalStateException( e ) );
+            }
+            this.isPropertyTransferResolved = true;
+          }
+        }
+      }
+      
+      //
+      retval = this.propertyTransfer;
+    }
+    
+    //
+    return retval;
+  }
+  
+  private void deepCopyProperties( FROM instanceFrom, TO instanceTo, List<PreparedCopier> preparedCopierList )
+  {
+    //
+    for ( PreparedCopier preparedCopier : preparedCopierList )
     {
       //
       try
@@ -1217,9 +1409,6 @@ public class PreparedBeanCopier<FROM, TO> implements Serializable
         this.exceptionHandler.handleException( e );
       }
     }
-    
-    //
-    return this;
   }
   
   /**
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.copier;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.Block;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.Local;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+import org.omnaest.utils.beans.copier.PreparedBeanCopier.PropertyTransfer;
+import org.omnaest.utils.structure.element.ObjectUtils;
+
+/**
+ * Generates the bytecode of a {@link PropertyTransfer} which copies a fixed set of properties from one type to another by direct
+ * getter and setter invocations. Conversions between primitives and their wrapper types are inlined. An {@link Exception} of a
+ * getter or setter stops the transfer, which returns the index of the failed property.<br>
+ * <br>
+ * The generated classes are cached by cglib per {@link ClassLoader} and the given types and property methods.
+ * 
+ * @see #isSupported(Class, Class, Method, Method)
+ * @see #newPropertyTransfer(Class, Class, List)
+ * @author Omnaest
+ */
+final class PropertyTransferGenerator extends AbstractClassGenerator
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final Source                 SOURCE             = new Source( PropertyTransfer.class.getName() );
+  private static final Type                   PROPERTY_TRANSFER  = TypeUtils.parseType( PropertyTransfer.class.getName() );
+  private static final Signature              COPY               = new Signature( "copy", Type.INT_TYPE, new Type[] {
+      Constants.TYPE_OBJECT, Constants.TYPE_OBJECT } );
+  private static final Type                   EXCEPTION          = Type.getType( Exception.class );
+  /* ************************************** Variables / State (internal/hiding) ************************************* */
+  private final Class<?>                      typeFrom;
+  private final Class<?>                      typeTo;
+  private final List<Method[]>                getterAndSetterList;
+  
+  /* *************************************************** Methods **************************************************** */
+  
+  /**
+   * @see PropertyTransferGenerator
+   * @param typeFrom
+   * @param typeTo
+   * @param getterAndSetterList
+   */
+  private PropertyTransferGenerator( Class<?> typeFrom, Class<?> typeTo, List<Method[]> getterAndSetterList )
+  {
+    super( SOURCE );
+    this.typeFrom = typeFrom;
+    this.typeTo = typeTo;
+    this.getterAndSetterList = getterAndSetterList;
+    this.setNamePrefix( typeFrom.getName() );
+  }
+  
+  /**
+   * Returns a new {@link PropertyTransfer} instance for the given types which transfers the properties of the given pairs of
+   * getter and setter {@link Method}s. All getter and setter pairs have to be supported.
+   * 
+   * @see #isSupported(Class, Class, Method, Method)
+   * @param typeFrom
+   * @param typeTo
+   * @param getterAndSetterList
+   *          {@link List} of {@link Method} arrays with the getter at index 0 and the setter at index 1
+   * @return new {@link PropertyTransfer} instance
+   */
+  public static PropertyTransfer newPropertyTransfer( Class<?> typeFrom, Class<?> typeTo, List<Method[]> getterAndSetterList )
+  {
+    final PropertyTransferGenerator propertyTransferGenerator = new PropertyTransferGenerator( typeFrom, typeTo,
+                                                                                               getterAndSetterList );
+    return (PropertyTransfer) propertyTransferGenerator.create( propertyTransferGenerator.newKey() );
+  }
+  
+  /**
+   * Returns true if the given types are accessible for generated classes and the value returned by the given getter can be passed
+   * to the given setter without any other conversion than boxing or unboxing
+   * 
+   * @param typeFrom
+   * @param typeTo
+   * @param getter
+   * @param setter
+   * @return
+   */
+  public static boolean isSupported( Class<?> typeFrom, Class<?> typeTo, Method getter, Method setter )
+  {
+    boolean retval = false;
+    if ( typeFrom != null && typeTo != null && getter != null && setter != null && isPublic( typeFrom ) && isPublic( typeTo )
+         && isPublic( getter ) && isPublic( setter ) && getter.getParameterTypes().length == 0
+         && setter.getParameterTypes().length == 1 && getter.getDeclaringClass().isAssignableFrom( typeFrom )
+         && setter.getDeclaringClass().isAssignableFrom( typeTo ) )
+    {
+      final Class<?> returnType = getter.getReturnType();
+      final Class<?> parameterType = setter.getParameterTypes()[0];
+      retval = parameterType.isAssignableFrom( returnType ) || isBoxing( returnType, parameterType )
+               || isBoxing( parameterType, returnType );
+    }
+    return retval;
+  }
+  
+  private static boolean isBoxing( Class<?> primitiveType, Class<?> wrapperType )
+  {
+    return primitiveType.isPrimitive() && !Void.TYPE.equals( primitiveType )
+           && ObjectUtils.primitiveWrapperTypeFor( primitiveType ).equals( wrapperType );
+  }
+  
+  private static boolean isPublic( Class<?> type )
+  {
+    boolean retval = Modifier.isPublic( type.getModifiers() );
+    for ( Class<?> declaringClass = type.getDeclaringClass(); retval && declaringClass != null; declaringClass = declaringClass.getDeclaringClass() )
+    {
+      retval = Modifier.isPublic( declaringClass.getModifiers() );
+    }
+    return retval;
+  }
+  
+  private static boolean isPublic( Method method )
+  {
+    return Modifier.isPublic( method.getModifiers() ) && isPublic( method.getDeclaringClass() );
+  }
+  
+  private String newKey()
+  {
+    final StringBuilder retval = new StringBuilder();
+    retval.append( this.typeFrom.getName() ).append( ">" ).append( this.typeTo.getName() );
+    for ( Method[] getterAndSetter : this.getterAndSetterList )
+    {
+      retval.append( ";" ).append( getterAndSetter[0] ).append( ">" ).append( getterAndSetter[1] );
+    }
+    return retval.toString();
+  }
+  
+  @Override
+  public void generateClass( ClassVisitor classVisitor ) throws Exception
+  {
+    //
+    final Type sourceType = Type.getType( this.typeFrom );
+    final Type targetType = Type.getType( this.typeTo );
+    
+    //
+    final ClassEmitter classEmitter = new ClassEmitter( classVisitor );
+    classEmitter.begin_class( Constants.V1_2, Constants.ACC_PUBLIC, this.getClassName(), Constants.TYPE_OBJECT,
+                              new Type[] { PROPERTY_TRANSFER }, Constants.SOURCE_FILE );
+    EmitUtils.null_constructor( classEmitter );
+    
+    //
+    final CodeEmitter codeEmitter = classEmitter.begin_method( Constants.ACC_PUBLIC, COPY, null );
+    final Local sourceLocal = codeEmitter.make_local();
+    final Local targetLocal = codeEmitter.make_local();
+    codeEmitter.load_arg( 0 );
+    codeEmitter.checkcast( sourceType );
+    codeEmitter.store_local( sourceLocal );
+    codeEmitter.load_arg( 1 );
+    codeEmitter.checkcast( targetType );
+    codeEmitter.store_local( targetLocal );
+    
+    //
+    for ( int ii = 0; ii < this.getterAndSetterList.size(); ii++ )
+    {
+      //
+      final Method[] getterAndSetter = this.getterAndSetterList.get( ii );
+      final Method getter = getterAndSetter[0];
+      final Method setter = getterAndSetter[1];
+      final Class<?> returnType = getter.getReturnType();
+      final Class<?> parameterType = setter.getParameterTypes()[0];
+      
+      //
+      final Block block = codeEmitter.begin_block();
+      codeEmitter.load_local( targetLocal );
+      codeEmitter.load_local( sourceLocal );
+      codeEmitter.invoke( ReflectUtils.getMethodInfo( getter ) );
+      if ( !parameterType.isAssignableFrom( returnType ) )
+      {
+        if ( returnType.isPrimitive() )
+        {
+          codeEmitter.box( Type.getType( returnType ) );
+        }
+        else
+        {
+          codeEmitter.unbox( Type.getType( parameterType ) );
+        }
+      }
+      codeEmitter.invoke( ReflectUtils.getMethodInfo( setter ) );
+      if ( !Void.TYPE.equals( setter.getReturnType() ) )
+      {
+        codeEmitter.pop();
+      }
+      block.end();
+      
+      // on any exception return the index of the failed property
+      final Label next = codeEmitter.make_label();
+      codeEmitter.goTo( next );
+      codeEmitter.catch_exception( block, EXCEPTION );
+      codeEmitter.pop();
+      codeEmitter.push( ii );
+      codeEmitter.return_value();
+      codeEmitter.mark( next );
+    }
+    codeEmitter.push( -1 );
+    codeEmitter.return_value();
+    codeEmitter.end_method();
+    
+    //
+    classEmitter.end_class();
+  }
+  
+  @Override
+  protected ClassLoader getDefaultClassLoader()
+  {
+    return this.typeFrom.getClassLoader();
+  }
+  
+  @Override
+  protected Object firstInstance( @SuppressWarnings("rawtypes") Class type ) throws Exception
+  {
+    return ReflectUtils.newInstance( type );
+  }
+  
+  @Override
+  protected Object nextInstance( Object instance ) throws Exception
+  {
+    return instance;
+  }
+}
@@ -17,9 +17,16 @@ package org.omnaest.utils.beans.mapconverter;
 
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.omnaest.utils.beans.mapconverter.internal.BeanBuildingVisitor;
+import org.omnaest.utils.beans.mapconverter.internal.BeanPropertyAccessorResolver;
 import org.omnaest.utils.beans.mapconverter.internal.BeanToNestedMapMarshaller;
 import org.omnaest.utils.beans.mapconverter.internal.BeanToNestedMapUnMarshaller;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.events.exception.ExceptionHandler;
 
 /**
  * A {@link BeanToNestedMapConverter} marshalls a given JavaBean into a {@link Map} or unmarshalls a given {@link Map} into a
@@ -28,7 +35,11 @@ import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
  * With {@link #newBeanPropertyAccessorWithPropertyAccessType(PropertyAccessType)} it can be declared in which way the {@link BeanToNestedMapConverter}
  * should access given JavaBeans. With the default value of {@link PropertyAccessType#PROPERTY} the
  * {@link BeanToNestedMapConverter} will only use getters and setters whereby with {@link PropertyAccessType#FIELD} the fields of
- * the JavaBeans are accessed directly ignoring any getters or setters.
+ * the JavaBeans are accessed directly ignoring any getters or setters.<br>
+ * <br>
+ * Internally the object graph is walked as a stream of events which is reported to a {@link NestedBeanVisitor}. The nested
+ * {@link Map} is only one consumer of these events, {@link #visit(Object, NestedBeanVisitor)} allows to feed any other
+ * consumer, like a {@link NestedBeanXMLStreamWriter}, without building intermediate {@link Map}s.
  * 
  * @author Omnaest
  */
@@ -43,6 +54,9 @@ public class BeanToNestedMapConverter<B>
   private final BeanToNestedMapUnMarshaller<B>                    beanToNestedMapUnMarshaller;
   private final BeanConversionFilter                              beanConversionFilter;
   private final PropertyAccessType                                propertyAccessType;
+  private final Class<? extends B>                                beanClass;
+  private final Map<Class<?>, Class<?>>                           sourceTypeTodestinationTypeMap;
+  private final BeanPropertyAccessorResolver                      beanPropertyAccessorResolver   = new BeanPropertyAccessorResolver();
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
@@ -182,7 +196,9 @@ public class BeanToNestedMapConverter<B>
     super();
     this.beanConversionFilter = beanConversionFilter != null ? beanConversionFilter : DEFAULT_BEAN_CONVERSION_FILTER;
     this.propertyAccessType = propertyAccessType != null ? propertyAccessType : DEFAULT_PROPERTYACCESSTYPE;
-    this.beanToNestedMapMarshaller = new BeanToNestedMapMarshaller( this.beanConversionFilter );
+    this.beanClass = beanClass;
+    this.sourceTypeTodestinationTypeMap = sourceTypeTodestinationTypeMap;
+    this.beanToNestedMapMarshaller = new BeanToNestedMapMarshaller( this.beanConversionFilter, this.beanPropertyAccessorResolver );
     this.beanToNestedMapUnMarshaller = new BeanToNestedMapUnMarshaller<B>( beanClass, sourceTypeTodestinationTypeMap );
   }
   
@@ -209,14 +225,132 @@ public class BeanToNestedMapConverter<B>
   }
   
   /**
-   * Clones a given bean by using {@link #marshal(Object)} and using {@link #unmarshal(Map)} again.
+   * Walks over the given JavaBean and reports the object graph as events to the given {@link NestedBeanVisitor}. The same
+   * {@link BeanConversionFilter} and {@link PropertyAccessType} are used as for {@link #marshal(Object)}.
+   * 
+   * @param bean
+   * @param nestedBeanVisitor
+   *          {@link NestedBeanVisitor}
+   */
+  public void visit( B bean, NestedBeanVisitor nestedBeanVisitor )
+  {
+    this.beanToNestedMapMarshaller.visit( bean, this.propertyAccessType, nestedBeanVisitor );
+  }
+  
+  /**
+   * Returns a new {@link BeanBuildingVisitor} which builds a JavaBean from the events it receives. Every instance should be used
+   * for only one object graph.
+   * 
+   * @return
+   */
+  public BeanBuildingVisitor<B> newBeanBuildingVisitor()
+  {
+    return new BeanBuildingVisitor<B>( this.beanClass, this.sourceTypeTodestinationTypeMap, this.propertyAccessType,
+                                       this.beanPropertyAccessorResolver );
+  }
+  
+  /**
+   * Marshalls a given JavaBean directly into the given {@link XMLStreamWriter}
+   * 
+   * @see NestedBeanXMLStreamWriter
+   * @param bean
+   * @param xmlStreamWriter
+   *          {@link XMLStreamWriter}
+   */
+  public void marshal( B bean, XMLStreamWriter xmlStreamWriter )
+  {
+    final ExceptionHandler exceptionHandler = null;
+    this.marshal( bean, xmlStreamWriter, exceptionHandler );
+  }
+  
+  /**
+   * Marshalls a given JavaBean directly into the given {@link XMLStreamWriter}
+   * 
+   * @see NestedBeanXMLStreamWriter
+   * @param bean
+   * @param xmlStreamWriter
+   *          {@link XMLStreamWriter}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}, can be null
+   */
+  public void marshal( B bean, XMLStreamWriter xmlStreamWriter, ExceptionHandler exceptionHandler )
+  {
+    //
+    if ( xmlStreamWriter != null )
+    {
+      //
+      this.visit( bean, new NestedBeanXMLStreamWriter( xmlStreamWriter, exceptionHandler ) );
+      
+      //
+      try
+      {
+        xmlStreamWriter.flush();
+      }
+      catch ( XMLStreamException e )
+      {
+        if ( exceptionHandler != null )
+        {
+          exceptionHandler.handleException( e );
+        }
+      }
+    }
+  }
+  
+  /**
+   * Unmarshalls a JavaBean directly from the given {@link XMLStreamReader}
+   * 
+   * @see NestedBeanXMLStreamReader
+   * @param xmlStreamReader
+   *          {@link XMLStreamReader}
+   * @return
+   */
+  public B unmarshal( XMLStreamReader xmlStreamReader )
+  {
+    final ExceptionHandler exceptionHandler = null;
+    return this.unmarshal( xmlStreamReader, exceptionHandler );
+  }
+  
+  /**
+   * Unmarshalls a JavaBean directly from the given {@link XMLStreamReader}
+   * 
+   * @see NestedBeanXMLStreamReader
+   * @param xmlStreamReader
+   *          {@link XMLStreamReader}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}, can be null
+   * @return
+   */
+  public B unmarshal( XMLStreamReader xmlStreamReader, ExceptionHandler exceptionHandler )
+  {
+    //
+    B retval = null;
+    
+    //
+    if ( xmlStreamReader != null )
+    {
+      //
+      final BeanBuildingVisitor<B> beanBuildingVisitor = this.newBeanBuildingVisitor();
+      new NestedBeanXMLStreamReader( xmlStreamReader, exceptionHandler ).read( beanBuildingVisitor );
+      retval = beanBuildingVisitor.getBean();
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Clones a given bean by streaming the events of {@link #visit(Object, NestedBeanVisitor)} directly into a
+   * {@link BeanBuildingVisitor}. The result is the same as using {@link #marshal(Object)} and {@link #unmarshal(Map)} again, but
+   * no intermediate {@link Map}s are created.
    * 
    * @param bean
    * @return
    */
   public B clone( B bean )
   {
-    return this.unmarshal( this.marshal( bean ) );
+    final BeanBuildingVisitor<B> beanBuildingVisitor = this.newBeanBuildingVisitor();
+    this.visit( bean, beanBuildingVisitor );
+    return beanBuildingVisitor.getBean();
   }
   
 }
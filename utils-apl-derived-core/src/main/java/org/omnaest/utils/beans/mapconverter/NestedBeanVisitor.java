@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.mapconverter;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Event based visitor of a JavaBean object graph. A walk over a JavaBean produces the following sequence of events:<br>
+ * 
+ * <pre>
+ * startObject( bean, className )
+ *   property( propertyName )
+ *   value( value ) | startObject( ... ) ... endObject()
+ *   property( propertyName )
+ *   ...
+ * endObject()
+ * </pre>
+ * 
+ * {@link Collection} elements are reported as properties named "0", "1", ... and {@link Map} entries as the property pairs
+ * "0key", "0value", "1key", "1value", .... <br>
+ * <br>
+ * If {@link #startObject(Object, String)} returns false, the properties and the {@link #endObject()} event of this object are
+ * skipped. This allows to reference objects which have already been visited.
+ * 
+ * @see BeanToNestedMapConverter#visit(Object, NestedBeanVisitor)
+ * @author Omnaest
+ */
+public interface NestedBeanVisitor
+{
+  /**
+   * Is called for every object which is converted instead of being reported as plain {@link #value(Object)}
+   * 
+   * @param object
+   *          : the source object or any token which identifies the object within the current walk
+   * @param className
+   *          : the name of the {@link Class} of the object or null, if not known
+   * @return true, if the properties of the object should be visited, false otherwise
+   */
+  public boolean startObject( Object object, String className );
+  
+  /**
+   * Is called before the value or nested object of the property with the given name is reported
+   * 
+   * @param propertyName
+   */
+  public void property( String propertyName );
+  
+  /**
+   * Is called for a value which is not converted
+   * 
+   * @param value
+   */
+  public void value( Object value );
+  
+  /**
+   * Is called after all properties of the current object have been reported
+   */
+  public void endObject();
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.mapconverter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.structure.element.ObjectUtils;
+
+/**
+ * Reads the format written by the {@link NestedBeanXMLStreamWriter} from a {@link XMLStreamReader} and reports it as events to a
+ * {@link NestedBeanVisitor}. Values are converted back into their written type using {@link ObjectUtils#castTo(Class, Object)}.
+ * Referenced objects are reported with the same object token as their first occurrence.
+ * 
+ * @see NestedBeanXMLStreamWriter
+ * @see BeanToNestedMapConverter#unmarshal(XMLStreamReader)
+ * @author Omnaest
+ */
+public class NestedBeanXMLStreamReader
+{
+  /* ********************************************** Variables ********************************************** */
+  private final XMLStreamReader       xmlStreamReader;
+  private final ExceptionHandler      exceptionHandler;
+  private final Map<String, Object>   idToObjectTokenMap = new HashMap<String, Object>();
+  private final Map<String, Class<?>> typeNameToTypeMap  = new HashMap<String, Class<?>>();
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see NestedBeanXMLStreamReader
+   * @param xmlStreamReader
+   *          {@link XMLStreamReader}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}, can be null
+   */
+  public NestedBeanXMLStreamReader( XMLStreamReader xmlStreamReader, ExceptionHandler exceptionHandler )
+  {
+    super();
+    this.xmlStreamReader = xmlStreamReader;
+    this.exceptionHandler = exceptionHandler;
+  }
+  
+  /**
+   * Reads the next object element from the {@link XMLStreamReader} and reports it to the given {@link NestedBeanVisitor}.
+   * Afterwards the {@link XMLStreamReader} is positioned at the end element of the read object.
+   * 
+   * @param nestedBeanVisitor
+   *          {@link NestedBeanVisitor}
+   */
+  public void read( NestedBeanVisitor nestedBeanVisitor )
+  {
+    try
+    {
+      //
+      while ( !this.xmlStreamReader.isStartElement() && this.xmlStreamReader.hasNext() )
+      {
+        this.xmlStreamReader.next();
+      }
+      
+      //
+      if ( this.xmlStreamReader.isStartElement() )
+      {
+        this.readObject( nestedBeanVisitor );
+      }
+    }
+    catch ( XMLStreamException e )
+    {
+      this.handleException( e );
+    }
+  }
+  
+  /**
+   * Expects the {@link XMLStreamReader} to be positioned at the start element of an object
+   * 
+   * @param nestedBeanVisitor
+   * @throws XMLStreamException
+   */
+  private void readObject( NestedBeanVisitor nestedBeanVisitor ) throws XMLStreamException
+  {
+    //
+    final String reference = this.xmlStreamReader.getAttributeValue( null, NestedBeanXMLStreamWriter.ATTRIBUTE_REFERENCE );
+    if ( reference != null )
+    {
+      //
+      final Object objectToken = this.idToObjectTokenMap.get( reference );
+      if ( nestedBeanVisitor.startObject( objectToken, null ) )
+      {
+        nestedBeanVisitor.endObject();
+      }
+      this.skipElement();
+    }
+    else
+    {
+      //
+      final String className = this.xmlStreamReader.getAttributeValue( null, NestedBeanXMLStreamWriter.ATTRIBUTE_CLASS );
+      final String id = this.xmlStreamReader.getAttributeValue( null, NestedBeanXMLStreamWriter.ATTRIBUTE_ID );
+      
+      //
+      final Object objectToken = new Object();
+      if ( id != null )
+      {
+        this.idToObjectTokenMap.put( id, objectToken );
+      }
+      
+      //
+      if ( nestedBeanVisitor.startObject( objectToken, className ) )
+      {
+        //
+        while ( this.xmlStreamReader.nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+          this.readProperty( nestedBeanVisitor );
+        }
+        
+        //
+        nestedBeanVisitor.endObject();
+      }
+      else
+      {
+        this.skipElement();
+      }
+    }
+  }
+  
+  /**
+   * Expects the {@link XMLStreamReader} to be positioned at the start element of a property
+   * 
+   * @param nestedBeanVisitor
+   * @throws XMLStreamException
+   */
+  private void readProperty( NestedBeanVisitor nestedBeanVisitor ) throws XMLStreamException
+  {
+    //
+    final String propertyName = this.xmlStreamReader.getAttributeValue( null, NestedBeanXMLStreamWriter.ATTRIBUTE_NAME );
+    final String typeName = this.xmlStreamReader.getAttributeValue( null, NestedBeanXMLStreamWriter.ATTRIBUTE_TYPE );
+    nestedBeanVisitor.property( propertyName );
+    
+    //
+    final StringBuilder text = new StringBuilder();
+    boolean hasObject = false;
+    for ( int event = this.xmlStreamReader.next(); event != XMLStreamConstants.END_ELEMENT; event = this.xmlStreamReader.next() )
+    {
+      if ( event == XMLStreamConstants.START_ELEMENT )
+      {
+        this.readObject( nestedBeanVisitor );
+        hasObject = true;
+      }
+      else if ( event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE )
+      {
+        text.append( this.xmlStreamReader.getText() );
+      }
+    }
+    
+    //
+    if ( !hasObject )
+    {
+      nestedBeanVisitor.value( typeName != null ? this.convertValue( typeName, text.toString() ) : null );
+    }
+  }
+  
+  /**
+   * @param typeName
+   * @param text
+   * @return
+   */
+  private Object convertValue( String typeName, String text )
+  {
+    //
+    Object retval = text;
+    
+    //
+    Class<?> type = this.typeNameToTypeMap.get( typeName );
+    if ( type == null && !this.typeNameToTypeMap.containsKey( typeName ) )
+    {
+      //
+      try
+      {
+        type = Class.forName( typeName );
+      }
+      catch ( Exception e )
+      {
+        this.handleException( e );
+      }
+      this.typeNameToTypeMap.put( typeName, type );
+    }
+    
+    //
+    if ( type != null && !String.class.equals( type ) )
+    {
+      retval = ObjectUtils.castTo( type, text );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Skips all content until the end element of the current element
+   * 
+   * @throws XMLStreamException
+   */
+  private void skipElement() throws XMLStreamException
+  {
+    for ( int depth = 1; depth > 0; )
+    {
+      //
+      final int event = this.xmlStreamReader.next();
+      if ( event == XMLStreamConstants.START_ELEMENT )
+      {
+        depth++;
+      }
+      else if ( event == XMLStreamConstants.END_ELEMENT )
+      {
+        depth--;
+      }
+    }
+  }
+  
+  /**
+   * @param e
+   */
+  private void handleException( Exception e )
+  {
+    if ( this.exceptionHandler != null )
+    {
+      this.exceptionHandler.handleException( e );
+    }
+  }
+}
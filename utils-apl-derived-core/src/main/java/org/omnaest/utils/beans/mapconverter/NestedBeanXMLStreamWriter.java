@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.mapconverter;
+
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
+
+/**
+ * {@link NestedBeanVisitor} which writes the received events directly to a {@link XMLStreamWriter}. The written fragment has
+ * the following structure:<br>
+ * 
+ * <pre>
+ * &lt;object class="org.example.Bean" id="0"&gt;
+ *   &lt;property name="valueString" type="java.lang.String"&gt;value&lt;/property&gt;
+ *   &lt;property name="valueNull"/&gt;
+ *   &lt;property name="subBean"&gt;&lt;object class="org.example.Bean" id="1"&gt;...&lt;/object&gt;&lt;/property&gt;
+ *   &lt;property name="subBeanCopy"&gt;&lt;object ref="1"/&gt;&lt;/property&gt;
+ * &lt;/object&gt;
+ * </pre>
+ * 
+ * Values are written using {@link String#valueOf(Object)} together with their type, so they can be converted back by the
+ * {@link NestedBeanXMLStreamReader}. Objects which occur more than once are written only once and referenced afterwards. The
+ * start and end of the document have to be written by the caller.
+ * 
+ * @see NestedBeanXMLStreamReader
+ * @see BeanToNestedMapConverter#marshal(Object, XMLStreamWriter)
+ * @author Omnaest
+ */
+public class NestedBeanXMLStreamWriter implements NestedBeanVisitor
+{
+  /* ********************************************** Constants ********************************************** */
+  public static final String         ELEMENT_OBJECT      = "object";
+  public static final String         ELEMENT_PROPERTY    = "property";
+  public static final String         ATTRIBUTE_CLASS     = "class";
+  public static final String         ATTRIBUTE_ID        = "id";
+  public static final String         ATTRIBUTE_REFERENCE = "ref";
+  public static final String         ATTRIBUTE_NAME      = "name";
+  public static final String         ATTRIBUTE_TYPE      = "type";
+  
+  /* ********************************************** Variables ********************************************** */
+  private final XMLStreamWriter      xmlStreamWriter;
+  private final ExceptionHandler     exceptionHandler;
+  private final Map<Object, Integer> objectToIdMap       = new IdentityOpenAddressingHashMap<Object, Integer>();
+  private int                        depth               = 0;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see NestedBeanXMLStreamWriter
+   * @param xmlStreamWriter
+   *          {@link XMLStreamWriter}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}, can be null
+   */
+  public NestedBeanXMLStreamWriter( XMLStreamWriter xmlStreamWriter, ExceptionHandler exceptionHandler )
+  {
+    super();
+    this.xmlStreamWriter = xmlStreamWriter;
+    this.exceptionHandler = exceptionHandler;
+  }
+  
+  @Override
+  public boolean startObject( Object object, String className )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    try
+    {
+      //
+      Integer id = this.objectToIdMap.get( object );
+      if ( id != null )
+      {
+        //
+        this.xmlStreamWriter.writeEmptyElement( ELEMENT_OBJECT );
+        this.xmlStreamWriter.writeAttribute( ATTRIBUTE_REFERENCE, String.valueOf( id ) );
+        this.writeEndOfPropertyIfNested();
+      }
+      else
+      {
+        //
+        id = this.objectToIdMap.size();
+        this.objectToIdMap.put( object, id );
+        
+        //
+        this.xmlStreamWriter.writeStartElement( ELEMENT_OBJECT );
+        if ( className != null )
+        {
+          this.xmlStreamWriter.writeAttribute( ATTRIBUTE_CLASS, className );
+        }
+        this.xmlStreamWriter.writeAttribute( ATTRIBUTE_ID, String.valueOf( id ) );
+        this.depth++;
+        retval = true;
+      }
+    }
+    catch ( XMLStreamException e )
+    {
+      this.handleException( e );
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void property( String propertyName )
+  {
+    try
+    {
+      this.xmlStreamWriter.writeStartElement( ELEMENT_PROPERTY );
+      this.xmlStreamWriter.writeAttribute( ATTRIBUTE_NAME, propertyName );
+    }
+    catch ( XMLStreamException e )
+    {
+      this.handleException( e );
+    }
+  }
+  
+  @Override
+  public void value( Object value )
+  {
+    try
+    {
+      //
+      if ( value != null )
+      {
+        this.xmlStreamWriter.writeAttribute( ATTRIBUTE_TYPE, value.getClass().getName() );
+        this.xmlStreamWriter.writeCharacters( String.valueOf( value ) );
+      }
+      
+      //
+      this.xmlStreamWriter.writeEndElement();
+    }
+    catch ( XMLStreamException e )
+    {
+      this.handleException( e );
+    }
+  }
+  
+  @Override
+  public void endObject()
+  {
+    try
+    {
+      //
+      this.xmlStreamWriter.writeEndElement();
+      this.depth--;
+      
+      //
+      this.writeEndOfPropertyIfNested();
+    }
+    catch ( XMLStreamException e )
+    {
+      this.handleException( e );
+    }
+  }
+  
+  /**
+   * Closes the property element which encloses the current object, if there is any
+   * 
+   * @throws XMLStreamException
+   */
+  private void writeEndOfPropertyIfNested() throws XMLStreamException
+  {
+    if ( this.depth > 0 )
+    {
+      this.xmlStreamWriter.writeEndElement();
+    }
+  }
+  
+  /**
+   * @param e
+   */
+  private void handleException( Exception e )
+  {
+    if ( this.exceptionHandler != null )
+    {
+      this.exceptionHandler.handleException( e );
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.mapconverter.internal;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+
+import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter;
+import org.omnaest.utils.beans.mapconverter.NestedBeanVisitor;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.reflection.ReflectionUtils;
+import org.omnaest.utils.structure.element.ObjectUtils;
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
+
+/**
+ * {@link NestedBeanVisitor} which builds a new JavaBean object graph from the received events. This allows to create beans
+ * directly from a streaming source or to copy a bean graph without building intermediate {@link Map}s.<br>
+ * <br>
+ * Objects reported with the same object instance to {@link #startObject(Object, String)} are only created once and shared
+ * within the resulting object graph. Values which do not match the declared type of a property are converted using
+ * {@link ObjectUtils#castTo(Class, Object)}.
+ * 
+ * @see BeanToNestedMapConverter#newBeanBuildingVisitor()
+ * @author Omnaest
+ * @param <B>
+ */
+public class BeanBuildingVisitor<B> implements NestedBeanVisitor
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Class<? extends B>           beanClass;
+  private final Map<Class<?>, Class<?>>      sourceTypeTodestinationTypeMap;
+  private final PropertyAccessType           propertyAccessType;
+  private final BeanPropertyAccessorResolver beanPropertyAccessorResolver;
+  private final Map<Object, Object>          objectToInstanceMap = new IdentityOpenAddressingHashMap<Object, Object>();
+  private final Deque<InstanceFrame>         instanceFrameStack  = new ArrayDeque<InstanceFrame>();
+  private B                                  bean                = null;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * State of a single object instance which is currently built
+   * 
+   * @author Omnaest
+   */
+  private class InstanceFrame
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Object                                    instance;
+    private final Map<String, BeanPropertyAccessor<Object>> propertyNameToBeanPropertyAccessorMap;
+    private String                                          propertyName = null;
+    private Object                                          mapKey       = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param instance
+     */
+    public InstanceFrame( Object instance )
+    {
+      super();
+      this.instance = instance;
+      this.propertyNameToBeanPropertyAccessorMap = BeanBuildingVisitor.isBean( instance ) ? BeanBuildingVisitor.this.beanPropertyAccessorResolver.resolvePropertyNameToBeanPropertyAccessorMap( instance.getClass(),
+                                                                                                                                                                                          BeanBuildingVisitor.this.propertyAccessType )
+                                                                                        : null;
+    }
+    
+    /**
+     * Assigns the given value to the current property of the instance
+     * 
+     * @param value
+     */
+    @SuppressWarnings("unchecked")
+    public void assign( Object value )
+    {
+      //
+      if ( this.instance instanceof Collection )
+      {
+        ( (Collection<Object>) this.instance ).add( value );
+      }
+      else if ( this.instance instanceof Map )
+      {
+        //
+        if ( this.propertyName != null && this.propertyName.endsWith( BeanToNestedMapMarshaller.MAP_KEY_IDENTIFIER ) )
+        {
+          this.mapKey = value;
+        }
+        else
+        {
+          ( (Map<Object, Object>) this.instance ).put( this.mapKey, value );
+          this.mapKey = null;
+        }
+      }
+      else if ( this.propertyNameToBeanPropertyAccessorMap != null )
+      {
+        //
+        final BeanPropertyAccessor<Object> beanPropertyAccessor = this.propertyNameToBeanPropertyAccessorMap.get( this.propertyName );
+        if ( beanPropertyAccessor != null && beanPropertyAccessor.isWritable() )
+        {
+          //
+          Object propertyValue = value;
+          
+          //
+          final Class<?> propertyType = ObjectUtils.objectTypeFor( beanPropertyAccessor.getDeclaringPropertyType() );
+          if ( propertyValue != null && propertyType != null && !propertyType.isInstance( propertyValue ) )
+          {
+            propertyValue = ObjectUtils.castTo( propertyType, propertyValue );
+          }
+          
+          //
+          beanPropertyAccessor.setPropertyValue( this.instance, propertyValue );
+        }
+      }
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see BeanBuildingVisitor
+   * @param beanClass
+   *          : the type of the root bean, used if no class name is reported for it
+   * @param sourceTypeTodestinationTypeMap
+   * @param propertyAccessType
+   * @param beanPropertyAccessorResolver
+   */
+  public BeanBuildingVisitor( Class<? extends B> beanClass, Map<Class<?>, Class<?>> sourceTypeTodestinationTypeMap,
+                              PropertyAccessType propertyAccessType, BeanPropertyAccessorResolver beanPropertyAccessorResolver )
+  {
+    super();
+    this.beanClass = beanClass;
+    this.sourceTypeTodestinationTypeMap = sourceTypeTodestinationTypeMap;
+    this.propertyAccessType = propertyAccessType != null ? propertyAccessType : PropertyAccessType.PROPERTY;
+    this.beanPropertyAccessorResolver = beanPropertyAccessorResolver;
+  }
+  
+  @Override
+  public boolean startObject( Object object, String className )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    if ( object != null && this.objectToInstanceMap.containsKey( object ) )
+    {
+      this.assignToParentOrSetAsRoot( this.objectToInstanceMap.get( object ) );
+    }
+    else
+    {
+      //
+      final Object instance = this.newInstance( className );
+      if ( object != null )
+      {
+        this.objectToInstanceMap.put( object, instance );
+      }
+      
+      //
+      this.instanceFrameStack.push( new InstanceFrame( instance ) );
+      retval = true;
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void property( String propertyName )
+  {
+    this.instanceFrameStack.peek().propertyName = propertyName;
+  }
+  
+  @Override
+  public void value( Object value )
+  {
+    this.instanceFrameStack.peek().assign( value );
+  }
+  
+  @Override
+  public void endObject()
+  {
+    this.assignToParentOrSetAsRoot( this.instanceFrameStack.pop().instance );
+  }
+  
+  /**
+   * @param instance
+   */
+  @SuppressWarnings("unchecked")
+  private void assignToParentOrSetAsRoot( Object instance )
+  {
+    if ( this.instanceFrameStack.isEmpty() )
+    {
+      this.bean = (B) instance;
+    }
+    else
+    {
+      this.value( instance );
+    }
+  }
+  
+  /**
+   * @param className
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  private Object newInstance( String className )
+  {
+    //
+    Class<Object> objectClass = BeanToNestedMapUnMarshaller.determineObjectClass( className );
+    if ( objectClass == null && this.instanceFrameStack.isEmpty() )
+    {
+      objectClass = (Class<Object>) this.beanClass;
+    }
+    
+    //
+    if ( this.sourceTypeTodestinationTypeMap != null && this.sourceTypeTodestinationTypeMap.containsKey( objectClass ) )
+    {
+      objectClass = (Class<Object>) this.sourceTypeTodestinationTypeMap.get( objectClass );
+    }
+    
+    //
+    return objectClass != null ? ReflectionUtils.newInstanceOf( objectClass ) : null;
+  }
+  
+  /**
+   * @param instance
+   * @return true, if the given instance is neither null, a {@link Collection} nor a {@link Map}
+   */
+  private static boolean isBean( Object instance )
+  {
+    return instance != null && !( instance instanceof Collection ) && !( instance instanceof Map );
+  }
+  
+  /**
+   * Returns the root bean which has been built so far or null if no root object has been reported yet
+   * 
+   * @return
+   */
+  public B getBean()
+  {
+    return this.bean;
+  }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.mapconverter.internal;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.omnaest.utils.beans.BeanUtils;
+import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+
+/**
+ * Resolves the {@link BeanPropertyAccessor}s of a bean type with the {@link PropertyAccessType} already applied. The result is
+ * cached per type and {@link PropertyAccessType}, so the reflection based analysis of a type happens only once per
+ * {@link BeanPropertyAccessorResolver} instance.
+ * 
+ * @see BeanToNestedMapConverter
+ * @author Omnaest
+ */
+public class BeanPropertyAccessorResolver
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Map<PropertyAccessType, ConcurrentMap<Class<?>, Map<String, BeanPropertyAccessor<Object>>>> propertyAccessTypeToTypeToAccessorMapMap = new EnumMap<PropertyAccessType, ConcurrentMap<Class<?>, Map<String, BeanPropertyAccessor<Object>>>>(
+                                                                                                                                                         PropertyAccessType.class );
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see BeanPropertyAccessorResolver
+   */
+  public BeanPropertyAccessorResolver()
+  {
+    super();
+    for ( PropertyAccessType propertyAccessType : PropertyAccessType.values() )
+    {
+      this.propertyAccessTypeToTypeToAccessorMapMap.put( propertyAccessType,
+                                                        new ConcurrentHashMap<Class<?>, Map<String, BeanPropertyAccessor<Object>>>() );
+    }
+  }
+  
+  /**
+   * Returns an unmodifiable {@link Map} of all {@link BeanPropertyAccessor}s of the given type using the given
+   * {@link PropertyAccessType}
+   * 
+   * @param type
+   * @param propertyAccessType
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, BeanPropertyAccessor<Object>> resolvePropertyNameToBeanPropertyAccessorMap( Class<?> type,
+                                                                                                PropertyAccessType propertyAccessType )
+  {
+    //
+    final ConcurrentMap<Class<?>, Map<String, BeanPropertyAccessor<Object>>> typeToAccessorMap = this.propertyAccessTypeToTypeToAccessorMapMap.get( propertyAccessType );
+    Map<String, BeanPropertyAccessor<Object>> retmap = typeToAccessorMap.get( type );
+    if ( retmap == null )
+    {
+      //
+      final Map<String, BeanPropertyAccessor<Object>> propertyNameToBeanPropertyAccessorMap = new LinkedHashMap<String, BeanPropertyAccessor<Object>>();
+      for ( Entry<String, BeanPropertyAccessor<Object>> entry : BeanUtils.propertyNameToBeanPropertyAccessorMap( (Class<Object>) type )
+                                                                         .entrySet() )
+      {
+        propertyNameToBeanPropertyAccessorMap.put( entry.getKey(),
+                                                   entry.getValue().newBeanPropertyAccessorWithPropertyAccessType( propertyAccessType ) );
+      }
+      retmap = Collections.unmodifiableMap( propertyNameToBeanPropertyAccessorMap );
+      
+      //
+      final Map<String, BeanPropertyAccessor<Object>> retmapPrevious = typeToAccessorMap.putIfAbsent( type, retmap );
+      if ( retmapPrevious != null )
+      {
+        retmap = retmapPrevious;
+      }
+    }
+    
+    //
+    return retmap;
+  }
+}
@@ -15,19 +15,24 @@
  ******************************************************************************/
 package org.omnaest.utils.beans.mapconverter.internal;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.omnaest.utils.beans.BeanUtils;
 import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter;
 import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter.BeanConversionFilter;
+import org.omnaest.utils.beans.mapconverter.NestedBeanVisitor;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
 
 /**
+ * Walks over a JavaBean object graph and reports it as events to a {@link NestedBeanVisitor}. The nested {@link Map}
+ * representation returned by {@link #marshal(Object, PropertyAccessType)} is built by one such {@link NestedBeanVisitor}.
+ * 
  * @see BeanToNestedMapConverter
  * @author Omnaest
  * @param <B>
@@ -35,13 +40,122 @@ import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
 public class BeanToNestedMapMarshaller
 {
   /* ********************************************** Constants ********************************************** */
-  public final static String               CLASS_IDENTIFIER     = "clazz";
-  public final static String               MAP_KEY_IDENTIFIER   = "key";
-  public final static String               MAP_VALUE_IDENTIFIER = "value";
+  public final static String                 CLASS_IDENTIFIER     = "clazz";
+  public final static String                 MAP_KEY_IDENTIFIER   = "key";
+  public final static String                 MAP_VALUE_IDENTIFIER = "value";
   
   /* ********************************************** Variables ********************************************** */
-  private BeanConversionFilter             beanConversionFilter = null;
-  private Map<Object, Map<String, Object>> objectToMapMap       = new IdentityHashMap<Object, Map<String, Object>>();
+  private BeanConversionFilter               beanConversionFilter = null;
+  private final BeanPropertyAccessorResolver beanPropertyAccessorResolver;
+  private Map<Object, Map<String, Object>>   objectToMapMap       = new IdentityOpenAddressingHashMap<Object, Map<String, Object>>();
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link NestedBeanVisitor} which builds the nested {@link Map}s. Objects which have already been converted to a {@link Map}
+   * before are not visited again, instead the existing {@link Map} is referenced.
+   * 
+   * @author Omnaest
+   */
+  private class NestedMapBuildingVisitor implements NestedBeanVisitor
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Deque<NestedMapFrame> nestedMapFrameStack = new ArrayDeque<NestedMapFrame>();
+    private Map<String, Object>         map                 = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    @Override
+    public boolean startObject( Object object, String className )
+    {
+      //
+      boolean retval = false;
+      
+      //
+      if ( BeanToNestedMapMarshaller.this.objectToMapMap.containsKey( object ) )
+      {
+        this.putToParentOrSetAsRoot( BeanToNestedMapMarshaller.this.objectToMapMap.get( object ) );
+      }
+      else
+      {
+        this.nestedMapFrameStack.push( new NestedMapFrame( object, className ) );
+        retval = true;
+      }
+      
+      //
+      return retval;
+    }
+    
+    @Override
+    public void property( String propertyName )
+    {
+      this.nestedMapFrameStack.peek().propertyName = propertyName;
+    }
+    
+    @Override
+    public void value( Object value )
+    {
+      final NestedMapFrame nestedMapFrame = this.nestedMapFrameStack.peek();
+      nestedMapFrame.map.put( nestedMapFrame.propertyName, value );
+    }
+    
+    @Override
+    public void endObject()
+    {
+      //
+      final NestedMapFrame nestedMapFrame = this.nestedMapFrameStack.pop();
+      nestedMapFrame.map.put( CLASS_IDENTIFIER, nestedMapFrame.className );
+      
+      //
+      if ( !this.nestedMapFrameStack.isEmpty() )
+      {
+        BeanToNestedMapMarshaller.this.objectToMapMap.put( nestedMapFrame.object, nestedMapFrame.map );
+      }
+      this.putToParentOrSetAsRoot( nestedMapFrame.map );
+    }
+    
+    /**
+     * @param map
+     */
+    private void putToParentOrSetAsRoot( Map<String, Object> map )
+    {
+      if ( this.nestedMapFrameStack.isEmpty() )
+      {
+        this.map = map;
+      }
+      else
+      {
+        this.value( map );
+      }
+    }
+  }
+  
+  /**
+   * State of a single object within the {@link NestedMapBuildingVisitor}
+   * 
+   * @author Omnaest
+   */
+  private static class NestedMapFrame
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Object              object;
+    private final String              className;
+    private final Map<String, Object> map          = new HashMap<String, Object>();
+    private String                    propertyName = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param object
+     * @param className
+     */
+    public NestedMapFrame( Object object, String className )
+    {
+      super();
+      this.object = object;
+      this.className = className;
+    }
+  }
   
   /* ********************************************** Methods ********************************************** */
   
@@ -49,9 +163,20 @@ public class BeanToNestedMapMarshaller
    * @param beanConversionFilter
    */
   public BeanToNestedMapMarshaller( BeanConversionFilter beanConversionFilter )
+  {
+    this( beanConversionFilter, new BeanPropertyAccessorResolver() );
+  }
+  
+  /**
+   * @param beanConversionFilter
+   * @param beanPropertyAccessorResolver
+   */
+  public BeanToNestedMapMarshaller( BeanConversionFilter beanConversionFilter,
+                                    BeanPropertyAccessorResolver beanPropertyAccessorResolver )
   {
     super();
     this.beanConversionFilter = beanConversionFilter;
+    this.beanPropertyAccessorResolver = beanPropertyAccessorResolver;
   }
   
   /**
@@ -62,76 +187,58 @@ public class BeanToNestedMapMarshaller
   public Map<String, Object> marshal( Object bean, PropertyAccessType propertyAccessType )
   {
     //
-    final Map<String, Object> retmap = new HashMap<String, Object>();
+    final NestedMapBuildingVisitor nestedMapBuildingVisitor = new NestedMapBuildingVisitor();
+    this.visit( bean, propertyAccessType, nestedMapBuildingVisitor );
     
     //
-    final PropertyAccessType propertyAccessTypeFinal = propertyAccessType != null ? propertyAccessType
-                                                                                 : PropertyAccessType.PROPERTY;
-    
+    return nestedMapBuildingVisitor.map != null ? nestedMapBuildingVisitor.map : new HashMap<String, Object>();
+  }
+  
+  /**
+   * Walks over the given bean and reports all events to the given {@link NestedBeanVisitor}. Property values which are not
+   * converted, as well as null values, are reported by {@link NestedBeanVisitor#value(Object)}.
+   * 
+   * @param bean
+   * @param propertyAccessType
+   * @param nestedBeanVisitor
+   *          {@link NestedBeanVisitor}
+   */
+  public void visit( Object bean, PropertyAccessType propertyAccessType, NestedBeanVisitor nestedBeanVisitor )
+  {
     //
-    final class Helper
+    if ( bean != null && nestedBeanVisitor != null )
     {
-      /**
-       * @param declaringPropertyType
-       * @param object
-       * @param propertyName
-       */
-      public void convertIfNecessaryAndPutToRetmap( Class<?> declaringPropertyType, Object object, String propertyName )
-      {
-        //
-        boolean hasToConvertBean = hasToConvertBean( declaringPropertyType, object );
-        if ( hasToConvertBean )
-        {
-          //
-          Map<String, Object> map = marshal( object, propertyAccessTypeFinal );
-          BeanToNestedMapMarshaller.this.objectToMapMap.put( object, map );
-          
-          //
-          retmap.put( propertyName, map );
-        }
-        else
-        {
-          //
-          retmap.put( propertyName, object );
-        }
-      }
-      
-      /**
-       * @param declaringType
-       * @param bean
-       * @return
-       */
-      private boolean hasToConvertBean( Class<?> declaringType, Object bean )
-      {
-        return BeanToNestedMapMarshaller.this.beanConversionFilter != null
-               && BeanToNestedMapMarshaller.this.beanConversionFilter.hasBeanToBeConverted( declaringType, bean );
-      }
+      //
+      final PropertyAccessType propertyAccessTypeFinal = propertyAccessType != null ? propertyAccessType
+                                                                                   : PropertyAccessType.PROPERTY;
+      this.visitObject( bean, propertyAccessTypeFinal, nestedBeanVisitor );
     }
-    Helper helper = new Helper();
-    
+  }
+  
+  /**
+   * @param bean
+   * @param propertyAccessType
+   * @param nestedBeanVisitor
+   */
+  private void visitObject( Object bean, PropertyAccessType propertyAccessType, NestedBeanVisitor nestedBeanVisitor )
+  {
     //
-    if ( bean != null )
+    final Class<?> beanType = bean.getClass();
+    if ( nestedBeanVisitor.startObject( bean, beanType.getName() ) )
     {
       //
-      if ( this.objectToMapMap.containsKey( bean ) )
-      {
-        return this.objectToMapMap.get( bean );
-      }
-      else if ( bean instanceof Collection )
+      if ( bean instanceof Collection )
       {
         int counter = 0;
         for ( Object object : (Collection<?>) bean )
         {
           //
           Class<?> declaringPropertyType = object != null ? object.getClass() : null;
-          String propertyName = "" + counter++;
+          nestedBeanVisitor.property( "" + counter++ );
           
           //
-          helper.convertIfNecessaryAndPutToRetmap( declaringPropertyType, object, propertyName );
+          this.visitValue( declaringPropertyType, object, propertyAccessType, nestedBeanVisitor );
         }
-        
-        //
-        retmap.put( CLASS_IDENTIFIER, bean.getClass().getName() );
       }
       else if ( bean instanceof Map )
       {
@@ -145,8 +252,8 @@ public class BeanToNestedMapMarshaller
             
             //
             Class<?> declaringPropertyType = key != null ? key.getClass() : null;
-            String propertyName = counter + MAP_KEY_IDENTIFIER;
-            helper.convertIfNecessaryAndPutToRetmap( declaringPropertyType, key, propertyName );
+            nestedBeanVisitor.property( counter + MAP_KEY_IDENTIFIER );
+            this.visitValue( declaringPropertyType, key, propertyAccessType, nestedBeanVisitor );
           }
           {
             //
@@ -154,44 +261,69 @@ public class BeanToNestedMapMarshaller
             
             //
             Class<?> declaringPropertyType = value != null ? value.getClass() : null;
-            String propertyName = counter + MAP_VALUE_IDENTIFIER;
-            helper.convertIfNecessaryAndPutToRetmap( declaringPropertyType, value, propertyName );
+            nestedBeanVisitor.property( counter + MAP_VALUE_IDENTIFIER );
+            this.visitValue( declaringPropertyType, value, propertyAccessType, nestedBeanVisitor );
           }
           
           //
           counter++;
         }
-        
-        //
-        retmap.put( CLASS_IDENTIFIER, bean.getClass().getName() );
       }
       else
       {
         //
-        @SuppressWarnings("unchecked")
-        Map<String, BeanPropertyAccessor<Object>> propertyNameToBeanPropertyAccessorMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( (Class<Object>) bean.getClass() );
-        for ( String propertyName : propertyNameToBeanPropertyAccessorMap.keySet() )
+        final Map<String, BeanPropertyAccessor<Object>> propertyNameToBeanPropertyAccessorMap = this.beanPropertyAccessorResolver.resolvePropertyNameToBeanPropertyAccessorMap( beanType,
+                                                                                                                                                                              propertyAccessType );
+        for ( Entry<String, BeanPropertyAccessor<Object>> entry : propertyNameToBeanPropertyAccessorMap.entrySet() )
         {
           //
-          BeanPropertyAccessor<Object> beanPropertyAccessor = propertyNameToBeanPropertyAccessorMap.get( propertyName )
-                                                                                                   .newBeanPropertyAccessorWithPropertyAccessType( propertyAccessType );
+          BeanPropertyAccessor<Object> beanPropertyAccessor = entry.getValue();
           if ( beanPropertyAccessor.isReadable() )
           {
             //
             Object object = beanPropertyAccessor.getPropertyValue( bean );
             Class<?> declaringPropertyType = beanPropertyAccessor.getDeclaringPropertyType();
+            nestedBeanVisitor.property( entry.getKey() );
             
             //
-            helper.convertIfNecessaryAndPutToRetmap( declaringPropertyType, object, propertyName );
+            this.visitValue( declaringPropertyType, object, propertyAccessType, nestedBeanVisitor );
           }
         }
-        
-        //
-        retmap.put( CLASS_IDENTIFIER, bean.getClass().getName() );
       }
+      
+      //
+      nestedBeanVisitor.endObject();
     }
-    
-    //
-    return retmap;
+  }
+  
+  /**
+   * @param declaringPropertyType
+   * @param object
+   * @param propertyAccessType
+   * @param nestedBeanVisitor
+   */
+  private void visitValue( Class<?> declaringPropertyType,
+                           Object object,
+                           PropertyAccessType propertyAccessType,
+                           NestedBeanVisitor nestedBeanVisitor )
+  {
+    if ( object != null && this.hasToConvertBean( declaringPropertyType, object ) )
+    {
+      this.visitObject( object, propertyAccessType, nestedBeanVisitor );
+    }
+    else
+    {
+      nestedBeanVisitor.value( object );
+    }
+  }
+  
+  /**
+   * @param declaringType
+   * @param bean
+   * @return
+   */
+  private boolean hasToConvertBean( Class<?> declaringType, Object bean )
+  {
+    return this.beanConversionFilter != null && this.beanConversionFilter.hasBeanToBeConverted( declaringType, bean );
   }
 }
@@ -16,7 +16,6 @@
 package org.omnaest.utils.beans.mapconverter.internal;
 
 import java.util.Collection;
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
@@ -28,6 +27,7 @@ import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
 import org.omnaest.utils.reflection.ReflectionUtils;
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
 import org.omnaest.utils.tuple.TupleTwo;
 
 /**
@@ -39,7 +39,7 @@ public class BeanToNestedMapUnMarshaller<B>
 {
   /* ********************************************** Variables ********************************************** */
   private Class<? extends B>               beanClass                      = null;
-  private Map<Map<String, Object>, Object> mapToObjectMap                 = new IdentityHashMap<Map<String, Object>, Object>();
+  private Map<Map<String, Object>, Object> mapToObjectMap                 = new IdentityOpenAddressingHashMap<Map<String, Object>, Object>();
   private Map<Class<?>, Class<?>>          sourceTypeTodestinationTypeMap = null;
   
   /* ********************************************** Methods ********************************************** */
@@ -241,7 +241,7 @@ public class BeanToNestedMapUnMarshaller<B>
    * @return
    */
   @SuppressWarnings("unchecked")
-  private static Class<Object> determineObjectClass( String className )
+  static Class<Object> determineObjectClass( String className )
   {
     //
     Class<Object> retval = null;
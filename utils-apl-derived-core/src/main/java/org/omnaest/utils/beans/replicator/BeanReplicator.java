@@ -15,19 +15,28 @@
  ******************************************************************************/
 package org.omnaest.utils.beans.replicator;
 
-import java.awt.List;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.beanutils.BeanUtils;
 import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.beans.copier.PreparedBeanCopier.NonMatchingPropertyException;
+import org.omnaest.utils.beans.replicator.ReplicationPlan.PropertyCopyStep;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
 import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerDelegate;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
@@ -152,17 +161,23 @@ import org.omnaest.utils.structure.element.factory.FactoryParameterized;
 public class BeanReplicator<FROM, TO> implements Serializable
 {
   /* ************************************************** Constants *************************************************** */
-  private static final long                      serialVersionUID = -5403362205184966835L;
+  private static final long                                        serialVersionUID       = -5403362205184966835L;
+  /** Contains a '.' and is therefore never equal to a segment of a declared path */
+  private static final String                                      PATH_SEGMENT_WILDCARD  = "*.*";
   /* ************************************** Variables / State (internal/hiding) ************************************* */
-  private final Class<FROM>                      sourceType;
-  private final Class<TO>                        targetType;
-  private final FactoryResolver                  factoryResolver;
-  private final InstanceAccessorResolver         instanceAccessorResolver;
-  private final PreservationAndIgnorationManager preservationAndIgnorationManager;
-  private final TypeToTypeMappingManager         typeToTypeMappingManager;
-  private final ConverterPipeManager             converterPipeManager;
-  private final ExceptionHandlerDelegate         exceptionHandler = new ExceptionHandlerDelegate( new ExceptionHandlerIgnoring() );
-  private final AtomicBoolean                    hasCopiedOnce    = new AtomicBoolean( false );
+  private final Class<FROM>                                        sourceType;
+  private final Class<TO>                                          targetType;
+  private final FactoryResolver                                    factoryResolver;
+  private final InstanceAccessorResolver                           instanceAccessorResolver;
+  private final PreservationAndIgnorationManager                   preservationAndIgnorationManager;
+  private final TypeToTypeMappingManager                           typeToTypeMappingManager;
+  private final ConverterPipeManager                               converterPipeManager;
+  private final ExceptionHandlerDelegate                           exceptionHandler       = new ExceptionHandlerDelegate(
+                                                                                                                          new ExceptionHandlerIgnoring() );
+  private final AtomicBoolean                                      hasCopiedOnce          = new AtomicBoolean( false );
+  private final AtomicInteger                                      instanceCacheSize      = new AtomicInteger();
+  private final Set<String>                                        declaredPathSegmentSet = new HashSet<String>();
+  private final ConcurrentMap<TypeAndTypeAndPath, ReplicationPlan> replicationPlanMap     = new ConcurrentHashMap<TypeAndTypeAndPath, ReplicationPlan>();
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
@@ -263,6 +278,7 @@ public class BeanReplicator<FROM, TO> implements Serializable
     
     this.typeToTypeMappingManager = new TypeToTypeMappingManagerImpl();
     this.typeToTypeMappingManager.addTypeMappingForPath( "", sourceType, targetType );
+    this.addDeclaredPath( "" );
     
     this.converterPipeManager = new ConverterPipeManagerImpl();
     initializeConverterPipeManager( this.converterPipeManager );
@@ -359,7 +375,10 @@ public class BeanReplicator<FROM, TO> implements Serializable
   }
   
   /**
-   * Copies from a given source instance to a given target instance
+   * Copies from a given source instance to a given target instance<br>
+   * <br>
+   * The cache of already replicated instances is pre-sized with the number of instances replicated by the former copy, so copies
+   * of similar large object graphs do not have to rehash it.
    * 
    * @see BeanReplicator#clone(Object)
    * @param source
@@ -367,15 +386,21 @@ public class BeanReplicator<FROM, TO> implements Serializable
    */
   public void copy( FROM source, TO target )
   {
-    final InstanceCache instanceCache = new InstanceCacheImpl();
+    final InstanceCache instanceCache = new InstanceCacheImpl( this.instanceCacheSize.get() );
     final Class<?> sourceType = this.sourceType;
     final Class<?> targetType = this.targetType;
     final Path path = new Path();
-    this.copy( source, target, instanceCache, sourceType, targetType, path );
+    final Path generalizedPath = path;
+    this.copy( source, target, instanceCache, sourceType, targetType, path, generalizedPath );
+    this.instanceCacheSize.set( instanceCache.size() );
   }
   
   /**
-   * Internal {@link #copy(Object, Object)} method which is able to be called recursively
+   * Internal {@link #copy(Object, Object)} method which is able to be called recursively. <br>
+   * <br>
+   * Bean to bean copies are done using a {@link ReplicationPlan} which is compiled on the first encounter of the source and target
+   * type at the generalized {@link Path}. Any other structure like {@link Map}s, {@link List}s or arrays is processed
+   * property by property.
    * 
    * @param source
    * @param target
@@ -383,13 +408,17 @@ public class BeanReplicator<FROM, TO> implements Serializable
    * @param sourceType
    * @param targetType
    * @param path
+   * @param generalizedPath
+   *          {@link Path} with all path segments replaced by the {@link #PATH_SEGMENT_WILDCARD} which are not part of any declared
+   *          path
    */
   private void copy( Object source,
                      Object target,
                      InstanceCache instanceCache,
                      Class<?> sourceType,
                      Class<?> targetType,
-                     Path path )
+                     Path path,
+                     Path generalizedPath )
   {
     try
     {
@@ -399,94 +428,35 @@ public class BeanReplicator<FROM, TO> implements Serializable
         
         final InstanceAccessor instanceAccessorSource = this.instanceAccessorResolver.resolveInstanceAccessor( sourceType );
         final InstanceAccessor instanceAccessorTarget = this.instanceAccessorResolver.resolveInstanceAccessor( targetType );
-        if ( instanceAccessorSource != null && instanceAccessorTarget != null )
+        if ( instanceAccessorSource instanceof InstanceAccessorArbitraryObject
+             && instanceAccessorTarget instanceof InstanceAccessorArbitraryObject )
+        {
+          final ReplicationPlan replicationPlan = this.resolveReplicationPlan( (InstanceAccessorArbitraryObject) instanceAccessorSource,
+                                                                               (InstanceAccessorArbitraryObject) instanceAccessorTarget,
+                                                                               generalizedPath );
+          this.copy( source, target, instanceCache, targetType, path, replicationPlan );
+        }
+        else if ( instanceAccessorSource != null && instanceAccessorTarget != null )
         {
           for ( String propertyName : instanceAccessorSource.getPropertyNameIterable( source ) )
           {
             try
             {
-              final Path subPath = new Path( path, propertyName );
-              if ( !this.preservationAndIgnorationManager.isIgnoredPath( subPath ) )
+              final PropertyAccessor propertySource = instanceAccessorSource.getPropertyAccessor( propertyName, source );
+              if ( propertySource != null )
               {
-                final PropertyAccessor propertySource = instanceAccessorSource.getPropertyAccessor( propertyName, source );
-                if ( propertySource != null )
+                final PropertyCopyStep propertyCopyStep = this.newPropertyCopyStep( propertyName, propertySource.getType(),
+                                                                                    null, instanceAccessorTarget, target,
+                                                                                    generalizedPath );
+                if ( propertyCopyStep != null )
                 {
-                  Object valueReplica = null;
-                  {
-                    final Class<?> propertySourceType = propertySource.getType();
-                    if ( propertySourceType != null && !this.preservationAndIgnorationManager.isIgnoredType( propertySourceType ) )
-                    {
-                      final PropertyNameAndType remapping = this.typeToTypeMappingManager.determineRemapping( propertyName,
-                                                                                                              propertySourceType,
-                                                                                                              path );
-                      final String propertyNameWithinTarget = determinePropertyNameWithinTarget( propertyName, remapping );
-                      final PropertyAccessor propertyTarget = instanceAccessorTarget.getPropertyAccessor( propertyNameWithinTarget,
-                                                                                                          target );
-                      final Class<?> propertyTargetType = determinePropertyTargetType( propertyTarget, propertySourceType,
-                                                                                       remapping );
-                      final Pipe<Object, Object> converterPipe = this.converterPipeManager.resolveConverterPipeFor( propertySourceType,
-                                                                                                                    propertyTargetType );
-                      
-                      if ( propertyTargetType == null && converterPipe == null )
-                      {
-                        final String canonicalPath = subPath.getCanonicalPath();
-                        final String propertyNameSource = propertyName;
-                        final String propertyNameTarget = propertyNameWithinTarget;
-                        throw new NoMatchingPropertiesException( canonicalPath, propertySourceType, propertyNameSource,
-                                                                 targetType, propertyNameTarget );
-                      }
-                      
-                      final Object value = propertySource.getValue();
-                      if ( converterPipe != null )
-                      {
-                        valueReplica = converterPipe.convert( value );
-                      }
-                      else if ( value != null )
-                      {
-                        final boolean isPrimitiveOrPrimitiveWrapperOrStringType = ObjectUtils.isPrimitiveOrPrimitiveWrapperType( propertySourceType )
-                                                                                  || String.class.equals( propertySourceType );
-                        final boolean isPreservedInstance = this.preservationAndIgnorationManager.isPreservedType( propertySourceType )
-                                                            || this.preservationAndIgnorationManager.isPreservedPath( subPath );
-                        if ( isPrimitiveOrPrimitiveWrapperOrStringType || isPreservedInstance )
-                        {
-                          if ( isPreservedInstance )
-                          {
-                            valueReplica = value;
-                          }
-                          else
-                          {
-                            if ( propertyTargetType != null && propertyTargetType.isAssignableFrom( propertySourceType ) )
-                            {
-                              valueReplica = value;
-                            }
-                            else
-                            {
-                              valueReplica = ObjectUtils.castTo( propertyTargetType, value );
-                            }
-                          }
-                        }
-                        else
-                        {
-                          valueReplica = instanceCache.getReplicaInstance( propertyTargetType, value );
-                          if ( valueReplica == null )
-                          {
-                            final FactoryParameterized<Object, Map<String, Object>> factory = this.factoryResolver.resolveFactory( propertyTargetType );
-                            if ( factory != null )
-                            {
-                              final Map<String, Object> factoryMetaInformation = determineFactoryMetaInformation( propertySourceType,
-                                                                                                                  value );
-                              valueReplica = factory.newInstance( factoryMetaInformation );
-                              {
-                                this.copy( value, valueReplica, instanceCache, propertySourceType, propertyTargetType, subPath );
-                              }
-                              instanceCache.addReplicaInstance( propertyTargetType, value, valueReplica );
-                            }
-                          }
-                        }
-                      }
-                      propertyTarget.setValue( valueReplica );
-                    }
-                  }
+                  this.assertIsMatching( propertyCopyStep, targetType, path );
+                  
+                  final Object value = propertySource.getValue();
+                  final Object valueReplica = this.replicateValue( propertyCopyStep, value, instanceCache, path );
+                  final PropertyAccessor propertyTarget = instanceAccessorTarget.getPropertyAccessor( propertyCopyStep.getPropertyNameTarget(),
+                                                                                                      target );
+                  propertyTarget.setValue( valueReplica );
                 }
               }
             }
@@ -510,6 +480,256 @@ public class BeanReplicator<FROM, TO> implements Serializable
     }
   }
   
+  /**
+   * Executes the given {@link ReplicationPlan}
+   * 
+   * @param source
+   * @param target
+   * @param instanceCache
+   * @param targetType
+   * @param path
+   * @param replicationPlan
+   */
+  private void copy( Object source,
+                     Object target,
+                     InstanceCache instanceCache,
+                     Class<?> targetType,
+                     Path path,
+                     ReplicationPlan replicationPlan )
+  {
+    for ( PropertyCopyStep propertyCopyStep : replicationPlan.getPropertyCopyStepList() )
+    {
+      try
+      {
+        this.assertIsMatching( propertyCopyStep, targetType, path );
+        
+        final Object value = propertyCopyStep.getBeanPropertyAccessorSource().getPropertyValue( source, PropertyAccessType.PROPERTY,
+                                                                                                 this.exceptionHandler );
+        final Object valueReplica = this.replicateValue( propertyCopyStep, value, instanceCache, path );
+        
+        final BeanPropertyAccessor<Object> beanPropertyAccessorTarget = propertyCopyStep.getBeanPropertyAccessorTarget();
+        Assert.isNotNull( beanPropertyAccessorTarget, "No target property " + propertyCopyStep.getPropertyNameTarget() );
+        final boolean setPropertyValue = beanPropertyAccessorTarget.setPropertyValue( target, valueReplica,
+                                                                                      PropertyAccessType.PROPERTY,
+                                                                                      this.exceptionHandler );
+        Assert.isTrue( setPropertyValue, "Property is not writable" );
+      }
+      catch ( CopyException e )
+      {
+        this.exceptionHandler.handleException( e );
+      }
+      catch ( Exception e )
+      {
+        final String canonicalPath = path.getCanonicalPath() + "." + propertyCopyStep.getPropertyName();
+        this.exceptionHandler.handleException( new CopyException( e, canonicalPath ) );
+      }
+    }
+  }
+  
+  /**
+   * Returns the cached {@link ReplicationPlan} for the given source and target type at the given generalized {@link Path} or
+   * compiles a new one
+   * 
+   * @param instanceAccessorSource
+   * @param instanceAccessorTarget
+   * @param generalizedPath
+   * @return
+   */
+  private ReplicationPlan resolveReplicationPlan( InstanceAccessorArbitraryObject instanceAccessorSource,
+                                                  InstanceAccessorArbitraryObject instanceAccessorTarget,
+                                                  Path generalizedPath )
+  {
+    final TypeAndTypeAndPath key = new TypeAndTypeAndPath( instanceAccessorSource.getType(), instanceAccessorTarget.getType(),
+                                                           generalizedPath );
+    ReplicationPlan retval = this.replicationPlanMap.get( key );
+    if ( retval == null )
+    {
+      final List<PropertyCopyStep> propertyCopyStepList = new ArrayList<PropertyCopyStep>();
+      for ( String propertyName : instanceAccessorSource.getPropertyNameIterable( null ) )
+      {
+        final BeanPropertyAccessor<Object> beanPropertyAccessorSource = instanceAccessorSource.getBeanPropertyAccessor( propertyName );
+        final Class<?> propertySourceType = beanPropertyAccessorSource.getDeclaringPropertyType();
+        final PropertyCopyStep propertyCopyStep = this.newPropertyCopyStep( propertyName, propertySourceType,
+                                                                            beanPropertyAccessorSource, instanceAccessorTarget,
+                                                                            null, generalizedPath );
+        if ( propertyCopyStep != null )
+        {
+          propertyCopyStepList.add( propertyCopyStep );
+        }
+      }
+      
+      final ReplicationPlan replicationPlan = new ReplicationPlan( propertyCopyStepList );
+      retval = ObjectUtils.defaultIfNull( this.replicationPlanMap.putIfAbsent( key, replicationPlan ), replicationPlan );
+    }
+    return retval;
+  }
+  
+  /**
+   * Resolves all decisions for the copy of a single property. Returns null if the property is ignored.
+   * 
+   * @param propertyName
+   * @param propertySourceType
+   * @param beanPropertyAccessorSource
+   *          the source {@link BeanPropertyAccessor} if a step of a {@link ReplicationPlan} should be created, otherwise null
+   * @param instanceAccessorTarget
+   * @param target
+   *          the target instance or null if the {@link InstanceAccessor} does not depend on it
+   * @param generalizedPath
+   * @return
+   */
+  private PropertyCopyStep newPropertyCopyStep( String propertyName,
+                                                Class<?> propertySourceType,
+                                                BeanPropertyAccessor<Object> beanPropertyAccessorSource,
+                                                InstanceAccessor instanceAccessorTarget,
+                                                Object target,
+                                                Path generalizedPath )
+  {
+    PropertyCopyStep retval = null;
+    
+    final Path generalizedSubPath = new Path( generalizedPath, this.generalizePathSegment( propertyName ) );
+    if ( !this.preservationAndIgnorationManager.isIgnoredPath( generalizedSubPath ) && propertySourceType != null
+         && !this.preservationAndIgnorationManager.isIgnoredType( propertySourceType ) )
+    {
+      final PropertyNameAndType remapping = this.typeToTypeMappingManager.determineRemapping( propertyName, propertySourceType,
+                                                                                              generalizedPath );
+      final String propertyNameTarget = determinePropertyNameWithinTarget( propertyName, remapping );
+      final PropertyAccessor propertyTarget = instanceAccessorTarget.getPropertyAccessor( propertyNameTarget, target );
+      final Class<?> propertyTargetType = determinePropertyTargetType( propertyTarget, propertySourceType, remapping );
+      final Pipe<Object, Object> converterPipe = this.converterPipeManager.resolveConverterPipeFor( propertySourceType,
+                                                                                                    propertyTargetType );
+      
+      final boolean primitiveOrPrimitiveWrapperOrStringType = ObjectUtils.isPrimitiveOrPrimitiveWrapperType( propertySourceType )
+                                                              || String.class.equals( propertySourceType );
+      final boolean preservedInstance = this.preservationAndIgnorationManager.isPreservedType( propertySourceType )
+                                        || this.preservationAndIgnorationManager.isPreservedPath( generalizedSubPath );
+      final boolean assignable = propertyTargetType != null && propertyTargetType.isAssignableFrom( propertySourceType );
+      
+      final boolean isReplicationPlanStep = beanPropertyAccessorSource != null;
+      
+      InstanceFactory factory = null;
+      if ( isReplicationPlanStep && converterPipe == null && propertyTargetType != null
+           && !primitiveOrPrimitiveWrapperOrStringType && !preservedInstance )
+      {
+        try
+        {
+          factory = this.factoryResolver.resolveFactory( propertyTargetType );
+        }
+        catch ( Exception e )
+        {
+          //the factory is resolved again during the copy which will report the exception then
+        }
+      }
+      
+      BeanPropertyAccessor<Object> beanPropertyAccessorTarget = null;
+      if ( isReplicationPlanStep )
+      {
+        beanPropertyAccessorTarget = ( (InstanceAccessorArbitraryObject) instanceAccessorTarget ).getBeanPropertyAccessor( propertyNameTarget );
+      }
+      
+      retval = new PropertyCopyStep( propertyName, propertyNameTarget, generalizedSubPath, propertySourceType, propertyTargetType,
+                                     converterPipe, primitiveOrPrimitiveWrapperOrStringType, preservedInstance, assignable,
+                                     factory, beanPropertyAccessorSource, beanPropertyAccessorTarget );
+    }
+    
+    return retval;
+  }
+  
+  /**
+   * Throws a {@link NoMatchingPropertiesException} if the given {@link PropertyCopyStep} has no matching target property
+   * 
+   * @param propertyCopyStep
+   * @param targetType
+   * @param path
+   * @throws NoMatchingPropertiesException
+   */
+  private void assertIsMatching( PropertyCopyStep propertyCopyStep, Class<?> targetType, Path path ) throws NoMatchingPropertiesException
+  {
+    if ( propertyCopyStep.isNotMatching() )
+    {
+      final String canonicalPath = new Path( path, propertyCopyStep.getPropertyName() ).getCanonicalPath();
+      final Class<?> propertySourceType = propertyCopyStep.getPropertySourceType();
+      final String propertyNameSource = propertyCopyStep.getPropertyName();
+      final String propertyNameTarget = propertyCopyStep.getPropertyNameTarget();
+      throw new NoMatchingPropertiesException( canonicalPath, propertySourceType, propertyNameSource, targetType, propertyNameTarget );
+    }
+  }
+  
+  /**
+   * Returns the replica of the given property value based on the decisions of the given {@link PropertyCopyStep}
+   * 
+   * @param propertyCopyStep
+   * @param value
+   * @param instanceCache
+   * @param path
+   * @return
+   */
+  private Object replicateValue( PropertyCopyStep propertyCopyStep, Object value, InstanceCache instanceCache, Path path )
+  {
+    Object retval = null;
+    
+    final Pipe<Object, Object> converterPipe = propertyCopyStep.getConverterPipe();
+    if ( converterPipe != null )
+    {
+      retval = converterPipe.convert( value );
+    }
+    else if ( value != null )
+    {
+      final Class<?> propertySourceType = propertyCopyStep.getPropertySourceType();
+      final Class<?> propertyTargetType = propertyCopyStep.getPropertyTargetType();
+      if ( propertyCopyStep.isPreservedInstance() )
+      {
+        retval = value;
+      }
+      else if ( propertyCopyStep.isPrimitiveOrPrimitiveWrapperOrStringType() )
+      {
+        retval = propertyCopyStep.isAssignable() ? value : ObjectUtils.castTo( propertyTargetType, value );
+      }
+      else
+      {
+        retval = instanceCache.getReplicaInstance( propertyTargetType, value );
+        if ( retval == null )
+        {
+          final FactoryParameterized<Object, Map<String, Object>> factory = propertyCopyStep.getFactory() != null ? propertyCopyStep.getFactory()
+                                                                                                                  : this.factoryResolver.resolveFactory( propertyTargetType );
+          if ( factory != null )
+          {
+            final Map<String, Object> factoryMetaInformation = determineFactoryMetaInformation( propertySourceType, value );
+            retval = factory.newInstance( factoryMetaInformation );
+            {
+              final Path subPath = new Path( path, propertyCopyStep.getPropertyName() );
+              final Path generalizedSubPath = propertyCopyStep.getGeneralizedSubPath();
+              this.copy( value, retval, instanceCache, propertySourceType, propertyTargetType, subPath, generalizedSubPath );
+            }
+            instanceCache.addReplicaInstance( propertyTargetType, value, retval );
+          }
+        }
+      }
+    }
+    
+    return retval;
+  }
+  
+  /**
+   * Returns the given path segment if it is part of any declared path, otherwise the {@link #PATH_SEGMENT_WILDCARD}. Since all
+   * path based declarations are matched by equality, this does not change any decision but allows to share
+   * {@link ReplicationPlan}s e.g. between the elements of a {@link List}.
+   * 
+   * @param pathSegment
+   * @return
+   */
+  private String generalizePathSegment( String pathSegment )
+  {
+    return this.declaredPathSegmentSet.contains( pathSegment ) ? pathSegment : PATH_SEGMENT_WILDCARD;
+  }
+  
+  private void addDeclaredPath( String path )
+  {
+    if ( path != null )
+    {
+      this.declaredPathSegmentSet.addAll( Arrays.asList( new Path( path ).getPath() ) );
+    }
+  }
+  
   private Map<String, Object> determineFactoryMetaInformation( final Class<?> propertySourceType, Object instance )
   {
     InstanceAccessor instanceAccessor = this.instanceAccessorResolver.resolveInstanceAccessor( propertySourceType );
@@ -592,6 +812,7 @@ public class BeanReplicator<FROM, TO> implements Serializable
         public void addPropertyNameMapping( String path, String propertyNameFrom, String propertyNameTo )
         {
           typeToTypeMappingManager.addPropertyNameMapping( path, propertyNameFrom, propertyNameTo );
+          BeanReplicator.this.addDeclaredPath( path );
         }
         
         @Override
@@ -602,12 +823,14 @@ public class BeanReplicator<FROM, TO> implements Serializable
                                                    String propertyNameTo )
         {
           typeToTypeMappingManager.addTypeAndPropertyNameMapping( path, typeFrom, propertyNameFrom, typeTo, propertyNameTo );
+          BeanReplicator.this.addDeclaredPath( path );
         }
         
         @Override
         public void addTypeMappingForPath( String path, Class<?> typeFrom, Class<?> typeTo )
         {
           typeToTypeMappingManager.addTypeMappingForPath( path, typeFrom, typeTo );
+          BeanReplicator.this.addDeclaredPath( path );
         }
         
         @Override
@@ -632,6 +855,7 @@ public class BeanReplicator<FROM, TO> implements Serializable
         public void addPreservedPath( String path )
         {
           BeanReplicator.this.preservationAndIgnorationManager.addPreservedPath( path );
+          BeanReplicator.this.addDeclaredPath( path );
         }
         
         @Override
@@ -662,6 +886,7 @@ public class BeanReplicator<FROM, TO> implements Serializable
         public void addIgnoredPath( String path )
         {
           BeanReplicator.this.preservationAndIgnorationManager.addIgnoredPath( path );
+          BeanReplicator.this.addDeclaredPath( path );
         }
         
       };
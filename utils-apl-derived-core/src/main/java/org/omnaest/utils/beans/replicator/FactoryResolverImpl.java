@@ -16,6 +16,7 @@
 package org.omnaest.utils.beans.replicator;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -32,6 +33,7 @@ import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.beans.adapter.PropertynameMapToTypeAdapter;
 import org.omnaest.utils.beans.adapter.PropertynameMapToTypeAdapter.Builder;
 import org.omnaest.utils.beans.adapter.PropertynameMapToTypeAdapter.Configuration;
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
 import org.omnaest.utils.reflection.ReflectionUtils;
 import org.omnaest.utils.structure.array.ArrayUtils;
 import org.omnaest.utils.structure.collection.list.ListUtils;
@@ -131,6 +133,49 @@ class FactoryResolverImpl implements FactoryResolver
     }
   }
   
+  /**
+   * Creates new instances using the default constructor of a type which is resolved only once
+   * 
+   * @author Omnaest
+   */
+  private static final class DefaultConstructorFactory implements InstanceFactory
+  {
+    private static final long        serialVersionUID = -5458144693782050218L;
+    
+    private final Class<?>           type;
+    private transient Constructor<?> constructor      = null;
+    
+    DefaultConstructorFactory( Class<?> type )
+    {
+      super();
+      this.type = type;
+    }
+    
+    @Override
+    public Object newInstance( Map<String, Object> parameterMap )
+    {
+      Object retval = null;
+      try
+      {
+        Constructor<?> constructor = this.constructor;
+        if ( constructor == null )
+        {
+          constructor = ClassMetadataRegistry.accessible( ReflectionUtils.constructorFor( this.type ) );
+          this.constructor = constructor;
+        }
+        retval = constructor.newInstance();
+      }
+      catch ( Exception e )
+      {
+      }
+      if ( retval == null )
+      {
+        Assert.fails( "Failed to create instance of type " + this.type );
+      }
+      return retval;
+    }
+  }
+  
   private static final class TreeSetFactory implements InstanceFactory
   {
     private static final long serialVersionUID = 4609633205635635614L;
@@ -248,18 +293,7 @@ class FactoryResolverImpl implements FactoryResolver
       }
       else
       {
-        factory = new InstanceFactory()
-        {
-          private static final long serialVersionUID = -5458144693782050218L;
-          
-          @Override
-          public Object newInstance( Map<String, Object> parameterMap )
-          {
-            final Object retval = ReflectionUtils.newInstanceOf( type );
-            Assert.isNotNull( retval, "Failed to create instance of type " + type );
-            return retval;
-          }
-        };
+        factory = new DefaultConstructorFactory( type );
       }
       
       this.typeToFactoryMap.put( type, factory );
@@ -124,6 +124,18 @@ class InstanceAccessorArbitraryObject implements InstanceAccessor
                                                                                  this.exceptionHandler );
   }
   
+  /**
+   * Returns the resolved {@link BeanPropertyAccessor} for the given property name which is independent of any instance
+   * 
+   * @param propertyName
+   * @return {@link BeanPropertyAccessor} or null if the type has no such property
+   */
+  @SuppressWarnings("unchecked")
+  BeanPropertyAccessor<Object> getBeanPropertyAccessor( String propertyName )
+  {
+    return (BeanPropertyAccessor<Object>) this.propertyNameToBeanPropertyAccessorMap.get( propertyName );
+  }
+  
   @Override
   public Iterable<String> getPropertyNameIterable( Object instance )
   {
@@ -40,4 +40,9 @@ interface InstanceCache extends Serializable
    */
   public Object getReplicaInstance( Class<?> targetType, Object value );
   
+  /**
+   * @return number of source instances which have a replica
+   */
+  public int size();
+  
 }
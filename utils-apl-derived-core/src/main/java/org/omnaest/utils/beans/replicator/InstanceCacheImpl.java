@@ -15,10 +15,16 @@
  ******************************************************************************/
 package org.omnaest.utils.beans.replicator;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.Serializable;
+
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
 
 /**
+ * {@link InstanceCache} based on an {@link IdentityOpenAddressingHashMap} from the source instance to its replica instances. Since
+ * an instance has nearly always only one replica the different target types of an instance are held in a simple linked list.<br>
+ * <br>
+ * This {@link InstanceCache} is not thread safe.
+ * 
  * @see InstanceCache
  * @author Omnaest
  */
@@ -26,96 +32,99 @@ import java.util.concurrent.ConcurrentHashMap;
 class InstanceCacheImpl implements InstanceCache
 {
   /* ************************************************** Constants *************************************************** */
-  private static final long                              serialVersionUID                    = 8839858336083004326L;
+  private static final long                                    serialVersionUID = 8839858336083004326L;
   /* ************************************** Variables / State (internal/hiding) ************************************* */
-  private Map<InstanceCacheImpl.TypeAndInstance, Object> typeAndInstanceToReplicaInstanceMap = new ConcurrentHashMap<InstanceCacheImpl.TypeAndInstance, Object>();
+  private final IdentityOpenAddressingHashMap<Object, Replica> instanceToReplicaMap;
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
   /**
+   * Replica instance for a target type
+   * 
    * @author Omnaest
    */
-  private static class TypeAndInstance
+  private static class Replica implements Serializable
   {
-    private final Class<?> type;
-    private final Object   instance;
+    private static final long serialVersionUID = -4469802412316002870L;
+    private final Class<?>    type;
+    private Object            replicaInstance;
+    private final Replica     next;
     
-    public TypeAndInstance( Class<?> type, Object instance )
+    public Replica( Class<?> type, Object replicaInstance, Replica next )
     {
       super();
       this.type = type;
-      this.instance = instance;
-    }
-    
-    @Override
-    public int hashCode()
-    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + ( ( this.instance == null ) ? 0 : this.instance.hashCode() );
-      result = prime * result + ( ( this.type == null ) ? 0 : this.type.hashCode() );
-      return result;
-    }
-    
-    @Override
-    public boolean equals( Object obj )
-    {
-      if ( this == obj )
-      {
-        return true;
-      }
-      if ( obj == null )
-      {
-        return false;
-      }
-      if ( !( obj instanceof InstanceCacheImpl.TypeAndInstance ) )
-      {
-        return false;
-      }
-      InstanceCacheImpl.TypeAndInstance other = (InstanceCacheImpl.TypeAndInstance) obj;
-      if ( this.instance == null )
-      {
-        if ( other.instance != null )
-        {
-          return false;
-        }
-      }
-      else if ( this.instance != other.instance )
-      {
-        return false;
-      }
-      if ( this.type == null )
-      {
-        if ( other.type != null )
-        {
-          return false;
-        }
-      }
-      else if ( !this.type.equals( other.type ) )
-      {
-        return false;
-      }
-      return true;
+      this.replicaInstance = replicaInstance;
+      this.next = next;
     }
   }
   
   /* *************************************************** Methods **************************************************** */
   
+  /**
+   * @see InstanceCacheImpl
+   */
+  public InstanceCacheImpl()
+  {
+    this( 0 );
+  }
+  
+  /**
+   * @see InstanceCacheImpl
+   * @param expectedSize
+   *          expected number of replicated instances
+   */
+  public InstanceCacheImpl( int expectedSize )
+  {
+    super();
+    this.instanceToReplicaMap = new IdentityOpenAddressingHashMap<Object, Replica>( expectedSize );
+  }
+  
   @Override
   public void addReplicaInstance( Class<?> type, Object instance, Object replicaInstance )
   {
     if ( replicaInstance != null )
     {
-      final InstanceCacheImpl.TypeAndInstance key = new TypeAndInstance( type, instance );
-      this.typeAndInstanceToReplicaInstanceMap.put( key, replicaInstance );
+      //
+      final Replica replicaFirst = this.instanceToReplicaMap.get( instance );
+      final Replica replica = resolveReplica( replicaFirst, type );
+      if ( replica != null )
+      {
+        replica.replicaInstance = replicaInstance;
+      }
+      else
+      {
+        this.instanceToReplicaMap.put( instance, new Replica( type, replicaInstance, replicaFirst ) );
+      }
     }
   }
   
   @Override
   public Object getReplicaInstance( Class<?> type, Object instance )
   {
-    final InstanceCacheImpl.TypeAndInstance key = new TypeAndInstance( type, instance );
-    return this.typeAndInstanceToReplicaInstanceMap.get( key );
+    final Replica replica = resolveReplica( this.instanceToReplicaMap.get( instance ), type );
+    return replica != null ? replica.replicaInstance : null;
+  }
+  
+  @Override
+  public int size()
+  {
+    return this.instanceToReplicaMap.size();
+  }
+  
+  private static Replica resolveReplica( Replica replicaFirst, Class<?> type )
+  {
+    //
+    for ( Replica replica = replicaFirst; replica != null; replica = replica.next )
+    {
+      if ( replica.type == type || ( replica.type != null && replica.type.equals( type ) ) )
+      {
+        return replica;
+      }
+    }
+    
+    //
+    return null;
   }
   
 }
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.replicator;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.omnaest.utils.beans.result.BeanPropertyAccessor;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A {@link ReplicationPlan} is the immutable result of all decisions the {@link BeanReplicator} has to make to copy the properties
+ * of a source type into a target type at a given {@link Path}. It is compiled once on the first encounter and afterwards only
+ * executed.
+ * 
+ * @see PropertyCopyStep
+ * @author Omnaest
+ */
+class ReplicationPlan implements Serializable
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long            serialVersionUID = -1590185209405693716L;
+  /* ************************************** Variables / State (internal/hiding) ************************************* */
+  private final List<PropertyCopyStep> propertyCopyStepList;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Resolved decisions for the copy of a single property. The {@link BeanPropertyAccessor}s are only available for steps of a
+   * {@link ReplicationPlan}, steps created for instance based structures like {@link List}s or {@link java.util.Map}s have no
+   * {@link BeanPropertyAccessor}s.
+   * 
+   * @author Omnaest
+   */
+  static final class PropertyCopyStep implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long                  serialVersionUID = -4733934549553366416L;
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final String                       propertyName;
+    private final String                       propertyNameTarget;
+    private final Path                         generalizedSubPath;
+    private final Class<?>                     propertySourceType;
+    private final Class<?>                     propertyTargetType;
+    private final Pipe<Object, Object>         converterPipe;
+    private final boolean                      primitiveOrPrimitiveWrapperOrStringType;
+    private final boolean                      preservedInstance;
+    private final boolean                      assignable;
+    private final InstanceFactory              factory;
+    private final BeanPropertyAccessor<Object> beanPropertyAccessorSource;
+    private final BeanPropertyAccessor<Object> beanPropertyAccessorTarget;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see PropertyCopyStep
+     * @param propertyName
+     * @param propertyNameTarget
+     * @param generalizedSubPath
+     * @param propertySourceType
+     * @param propertyTargetType
+     * @param converterPipe
+     * @param primitiveOrPrimitiveWrapperOrStringType
+     * @param preservedInstance
+     * @param assignable
+     * @param factory
+     * @param beanPropertyAccessorSource
+     * @param beanPropertyAccessorTarget
+     */
+    PropertyCopyStep( String propertyName, String propertyNameTarget, Path generalizedSubPath, Class<?> propertySourceType,
+                      Class<?> propertyTargetType, Pipe<Object, Object> converterPipe,
+                      boolean primitiveOrPrimitiveWrapperOrStringType, boolean preservedInstance, boolean assignable,
+                      InstanceFactory factory, BeanPropertyAccessor<Object> beanPropertyAccessorSource,
+                      BeanPropertyAccessor<Object> beanPropertyAccessorTarget )
+    {
+      super();
+      this.propertyName = propertyName;
+      this.propertyNameTarget = propertyNameTarget;
+      this.generalizedSubPath = generalizedSubPath;
+      this.propertySourceType = propertySourceType;
+      this.propertyTargetType = propertyTargetType;
+      this.converterPipe = converterPipe;
+      this.primitiveOrPrimitiveWrapperOrStringType = primitiveOrPrimitiveWrapperOrStringType;
+      this.preservedInstance = preservedInstance;
+      this.assignable = assignable;
+      this.factory = factory;
+      this.beanPropertyAccessorSource = beanPropertyAccessorSource;
+      this.beanPropertyAccessorTarget = beanPropertyAccessorTarget;
+    }
+    
+    /**
+     * Returns true if neither a target property type nor a converter {@link Pipe} could be resolved
+     * 
+     * @return
+     */
+    public boolean isNotMatching()
+    {
+      return this.propertyTargetType == null && this.converterPipe == null;
+    }
+    
+    public String getPropertyName()
+    {
+      return this.propertyName;
+    }
+    
+    public String getPropertyNameTarget()
+    {
+      return this.propertyNameTarget;
+    }
+    
+    public Path getGeneralizedSubPath()
+    {
+      return this.generalizedSubPath;
+    }
+    
+    public Class<?> getPropertySourceType()
+    {
+      return this.propertySourceType;
+    }
+    
+    public Class<?> getPropertyTargetType()
+    {
+      return this.propertyTargetType;
+    }
+    
+    public Pipe<Object, Object> getConverterPipe()
+    {
+      return this.converterPipe;
+    }
+    
+    public boolean isPrimitiveOrPrimitiveWrapperOrStringType()
+    {
+      return this.primitiveOrPrimitiveWrapperOrStringType;
+    }
+    
+    public boolean isPreservedInstance()
+    {
+      return this.preservedInstance;
+    }
+    
+    public boolean isAssignable()
+    {
+      return this.assignable;
+    }
+    
+    public InstanceFactory getFactory()
+    {
+      return this.factory;
+    }
+    
+    public BeanPropertyAccessor<Object> getBeanPropertyAccessorSource()
+    {
+      return this.beanPropertyAccessorSource;
+    }
+    
+    public BeanPropertyAccessor<Object> getBeanPropertyAccessorTarget()
+    {
+      return this.beanPropertyAccessorTarget;
+    }
+    
+    @Override
+    public String toString()
+    {
+      StringBuilder builder = new StringBuilder();
+      builder.append( "PropertyCopyStep [propertyName=" );
+      builder.append( this.propertyName );
+      builder.append( ", propertyNameTarget=" );
+      builder.append( this.propertyNameTarget );
+      builder.append( ", propertySourceType=" );
+      builder.append( this.propertySourceType );
+      builder.append( ", propertyTargetType=" );
+      builder.append( this.propertyTargetType );
+      builder.append( ", converterPipe=" );
+      builder.append( this.converterPipe );
+      builder.append( "]" );
+      return builder.toString();
+    }
+    
+  }
+  
+  /* *************************************************** Methods **************************************************** */
+  
+  /**
+   * @see ReplicationPlan
+   * @param propertyCopyStepList
+   */
+  ReplicationPlan( List<PropertyCopyStep> propertyCopyStepList )
+  {
+    super();
+    this.propertyCopyStepList = ImmutableList.copyOf( propertyCopyStepList );
+  }
+  
+  public List<PropertyCopyStep> getPropertyCopyStepList()
+  {
+    return this.propertyCopyStepList;
+  }
+  
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append( "ReplicationPlan [propertyCopyStepList=" );
+    builder.append( this.propertyCopyStepList );
+    builder.append( "]" );
+    return builder.toString();
+  }
+  
+}
@@ -18,15 +18,17 @@ package org.omnaest.utils.beans.result;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
 
+import net.sf.cglib.reflect.FastMethod;
+
 import org.apache.commons.lang3.StringUtils;
 import org.omnaest.utils.beans.BeanUtils;
 import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.proxy.BeanProperty;
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
 import org.omnaest.utils.reflection.ReflectionUtils;
 import org.omnaest.utils.structure.element.ObjectUtils;
 import org.omnaest.utils.tuple.Tuple2;
@@ -37,7 +39,10 @@ import org.omnaest.utils.tuple.Tuple2;
  * The {@link BeanPropertyAccessor} is {@link Serializable} and immutable. Changing the {@link PropertyAccessType} e.g. does
  * return a new instance. See {@link #newBeanPropertyAccessorWithPropertyAccessType(PropertyAccessType)}.<br>
  * <br>
- * The default {@link PropertyAccessType} is on property level.
+ * The default {@link PropertyAccessType} is on property level.<br>
+ * <br>
+ * Getter and setter invocations are dispatched using generated {@link FastMethod}s if available, otherwise reflection is used.
+ * See {@link FastMethodResolver}.
  * 
  * @see BeanUtils
  * @see BeanProperty
@@ -51,6 +56,7 @@ public class BeanPropertyAccessor<B> implements Serializable
   /* ************************************************** Constants *************************************************** */
   private static final long               serialVersionUID           = 7631705587737553708L;
   private static final PropertyAccessType DEFAULT_PROPERTYACCESSTYPE = PropertyAccessType.PROPERTY;
+  private static final Object[]           NO_ARGUMENTS               = new Object[0];
   
   /* ************************************** Variables / State (internal/hiding) ************************************* */
   protected String                        propertyName;
@@ -60,6 +66,13 @@ public class BeanPropertyAccessor<B> implements Serializable
   protected Class<B>                      beanType;
   protected PropertyAccessType            propertyAccessType;
   
+  private transient volatile boolean      fastMethodsResolved        = false;
+  private transient FastMethod            fastMethodGetter           = null;
+  private transient FastMethod            fastMethodSetter           = null;
+  private transient volatile Field        accessibleField            = null;
+  private transient volatile Method       accessibleMethodGetter     = null;
+  private transient volatile Method       accessibleMethodSetter     = null;
+  
   /* ********************************************** Classes/Interfaces ********************************************** */
   
   /**
@@ -142,7 +155,7 @@ public class BeanPropertyAccessor<B> implements Serializable
       try
       {
         //
-        this.methodSetter.invoke( beanDestination, this.methodGetter.invoke( beanSource, new Object[] {} ) );
+        this.invokeSetter( beanDestination, this.invokeGetter( beanSource ) );
         
         //
         retval = true;
@@ -405,32 +418,14 @@ public class BeanPropertyAccessor<B> implements Serializable
       try
       {
         //
-        AccessibleObject accessibleObject = null;
         if ( PropertyAccessType.FIELD.equals( propertyAccessType ) )
         {
-          accessibleObject = beanPropertyAccessor.field;
-        }
-        else if ( PropertyAccessType.PROPERTY.equals( propertyAccessType ) )
-        {
-          accessibleObject = beanPropertyAccessor.methodGetter;
-        }
-        
-        //
-        boolean accessible = accessibleObject.isAccessible();
-        if ( !accessible )
-        {
-          accessibleObject.setAccessible( true );
-        }
-        
-        //
-        if ( PropertyAccessType.FIELD.equals( propertyAccessType ) )
-        {
-          retval = beanPropertyAccessor.field.get( bean );
+          retval = beanPropertyAccessor.resolveAccessibleField().get( bean );
           success = true;
         }
         else if ( PropertyAccessType.PROPERTY.equals( propertyAccessType ) )
         {
-          retval = beanPropertyAccessor.methodGetter.invoke( bean, new Object[] {} );
+          retval = beanPropertyAccessor.invokeGetter( bean );
           success = true;
         }
       }
@@ -555,34 +550,16 @@ public class BeanPropertyAccessor<B> implements Serializable
     {
       try
       {
-        //
-        AccessibleObject accessibleObject = null;
-        if ( PropertyAccessType.FIELD.equals( propertyAccessType ) )
-        {
-          accessibleObject = beanPropertyAccessor.field;
-        }
-        else if ( PropertyAccessType.PROPERTY.equals( propertyAccessType ) )
-        {
-          accessibleObject = beanPropertyAccessor.methodSetter;
-        }
-        
-        //
-        boolean accessible = accessibleObject.isAccessible();
-        if ( !accessible )
-        {
-          accessibleObject.setAccessible( true );
-        }
-        
         //
         if ( PropertyAccessType.FIELD.equals( propertyAccessType ) )
         {
           //
-          beanPropertyAccessor.field.set( bean, value );
+          beanPropertyAccessor.resolveAccessibleField().set( bean, value );
         }
         else if ( PropertyAccessType.PROPERTY.equals( propertyAccessType ) )
         {
           //
-          beanPropertyAccessor.methodSetter.invoke( bean, value );
+          beanPropertyAccessor.invokeSetter( bean, value );
         }
         
         //
@@ -601,6 +578,106 @@ public class BeanPropertyAccessor<B> implements Serializable
     return retval;
   }
   
+  /**
+   * Invokes the getter using the generated {@link FastMethod} if available or reflection otherwise
+   * 
+   * @param bean
+   * @return property value
+   * @throws Exception
+   */
+  private Object invokeGetter( B bean ) throws Exception
+  {
+    //
+    this.resolveFastMethodsIfNecessary();
+    
+    //
+    final FastMethod fastMethodGetter = this.fastMethodGetter;
+    return fastMethodGetter != null ? fastMethodGetter.invoke( bean, NO_ARGUMENTS )
+                                   : this.resolveAccessibleMethodGetter().invoke( bean, NO_ARGUMENTS );
+  }
+  
+  /**
+   * Invokes the setter using the generated {@link FastMethod} if available or reflection otherwise
+   * 
+   * @param bean
+   * @param value
+   * @throws Exception
+   */
+  private void invokeSetter( B bean, Object value ) throws Exception
+  {
+    //
+    this.resolveFastMethodsIfNecessary();
+    
+    //
+    final FastMethod fastMethodSetter = this.fastMethodSetter;
+    if ( fastMethodSetter != null )
+    {
+      fastMethodSetter.invoke( bean, new Object[] { value } );
+    }
+    else
+    {
+      this.resolveAccessibleMethodSetter().invoke( bean, value );
+    }
+  }
+  
+  /**
+   * @see ClassMetadataRegistry#accessible(Field)
+   * @return accessible copy of the {@link Field}
+   */
+  private Field resolveAccessibleField()
+  {
+    Field retval = this.accessibleField;
+    if ( retval == null )
+    {
+      retval = ClassMetadataRegistry.accessible( this.field );
+      this.accessibleField = retval;
+    }
+    return retval;
+  }
+  
+  /**
+   * @see ClassMetadataRegistry#accessible(Method)
+   * @return accessible copy of the getter {@link Method}
+   */
+  private Method resolveAccessibleMethodGetter()
+  {
+    Method retval = this.accessibleMethodGetter;
+    if ( retval == null )
+    {
+      retval = ClassMetadataRegistry.accessible( this.methodGetter );
+      this.accessibleMethodGetter = retval;
+    }
+    return retval;
+  }
+  
+  /**
+   * @see ClassMetadataRegistry#accessible(Method)
+   * @return accessible copy of the setter {@link Method}
+   */
+  private Method resolveAccessibleMethodSetter()
+  {
+    Method retval = this.accessibleMethodSetter;
+    if ( retval == null )
+    {
+      retval = ClassMetadataRegistry.accessible( this.methodSetter );
+      this.accessibleMethodSetter = retval;
+    }
+    return retval;
+  }
+  
+  private void resolveFastMethodsIfNecessary()
+  {
+    if ( !this.fastMethodsResolved )
+    {
+      //
+      this.fastMethodGetter = FastMethodResolver.resolveFastMethod( this.methodGetter );
+      this.fastMethodSetter = FastMethodResolver.resolveFastMethod( this.methodSetter );
+      
+      // the volatile write publishes the fast methods to threads which read the flag afterwards
+      this.fastMethodsResolved = true;
+    }
+  }
+  
   /**
    * Returns true, if the underlying {@link Field} has at least a getter or a setter method or both available.
    * 
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.beans.result;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
+
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
+
+/**
+ * Resolves {@link FastMethod}s for given {@link Method}s. For each declaring type a {@link FastClass} is generated only once,
+ * which dispatches the invocations using a direct method call selected by the method index instead of using reflection. The
+ * {@link FastClass}es are held as derived metadata by the {@link ClassMetadataRegistry}, so they do not prevent their types
+ * from being unloaded. <br>
+ * <br>
+ * If no {@link FastClass} can be generated, e.g. because the declaring type or the {@link Method} is not public, null is
+ * returned and the caller has to fall back to {@link Method#invoke(Object, Object...)}.
+ * 
+ * @see BeanPropertyAccessor
+ * @author Omnaest
+ */
+public final class FastMethodResolver
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final DerivedMetadataFactory<FastClassMetadata> FAST_CLASS_METADATA_FACTORY = new DerivedMetadataFactory<FastClassMetadata>()
+                                                                                              {
+                                                                                                @Override
+                                                                                                public FastClassMetadata newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                                {
+                                                                                                  return new FastClassMetadata(
+                                                                                                                                classMetadata.getType() );
+                                                                                                }
+                                                                                              };
+  
+  /* ********************************************** Variables ********************************************** */
+  private static volatile boolean                                 enabled                     = true;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Holds the generated {@link FastClass} of a single type or null if it could not be generated
+   * 
+   * @author Omnaest
+   */
+  private static final class FastClassMetadata
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final FastClass fastClass;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see FastClassMetadata
+     * @param type
+     */
+    public FastClassMetadata( Class<?> type )
+    {
+      super();
+      
+      //
+      FastClass fastClass = null;
+      try
+      {
+        fastClass = FastClass.create( type );
+      }
+      catch ( Throwable e )
+      {
+        fastClass = null;
+      }
+      this.fastClass = fastClass;
+    }
+    
+    /**
+     * @return the {@link FastClass} or null
+     */
+    public FastClass getFastClass()
+    {
+      return this.fastClass;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  private FastMethodResolver()
+  {
+    super();
+  }
+  
+  /**
+   * Returns the {@link FastMethod} for the given {@link Method} or null if it is not available
+   * 
+   * @param method
+   * @return {@link FastMethod} or null
+   */
+  public static FastMethod resolveFastMethod( Method method )
+  {
+    //
+    FastMethod retval = null;
+    
+    //
+    if ( enabled && method != null && Modifier.isPublic( method.getModifiers() ) )
+    {
+      //
+      final FastClass fastClass = resolveFastClass( method.getDeclaringClass() );
+      if ( fastClass != null )
+      {
+        //
+        final int index = fastClass.getIndex( method.getName(), method.getParameterTypes() );
+        if ( index >= 0 )
+        {
+          retval = fastClass.getMethod( method );
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  private static FastClass resolveFastClass( Class<?> type )
+  {
+    return Modifier.isPublic( type.getModifiers() ) ? ClassMetadataRegistry.classMetadata( type )
+                                                                           .derivedMetadata( FAST_CLASS_METADATA_FACTORY )
+                                                                           .getFastClass() : null;
+  }
+  
+  /**
+   * Enables or disables the usage of generated {@link FastClass}es globally. If disabled {@link #resolveFastMethod(Method)}
+   * always returns null. Default is enabled.
+   * 
+   * @param enabled
+   */
+  public static void setEnabled( boolean enabled )
+  {
+    FastMethodResolver.enabled = enabled;
+  }
+  
+  /**
+   * @return true if {@link FastClass} generation is enabled
+   * @see #setEnabled(boolean)
+   */
+  public static boolean isEnabled()
+  {
+    return enabled;
+  }
+}
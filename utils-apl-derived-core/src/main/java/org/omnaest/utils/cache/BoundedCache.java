@@ -0,0 +1,1743 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.concrete.MetricRegistryNoOperation;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Weigher;
+
+/**
+ * A {@link BoundedCache} is a concurrent {@link Cache} with a maximum size or weight. If the maximum is exceeded, entries are
+ * evicted based on the W-TinyLFU policy:
+ * <ul>
+ * <li>new entries are put into a small admission window (1% of the maximum) which is ordered by the last access</li>
+ * <li>entries leaving the window compete with the least recently used entry of the main area, and only the one with the higher
+ * estimated access frequency is kept</li>
+ * <li>the main area is a segmented LRU with a probation and a protected (80% of the main area) segment</li>
+ * </ul>
+ * The access frequencies are estimated by a count-min sketch, so also the history of already evicted keys is taken into account.
+ * This keeps frequently used entries in the {@link Cache}, even if a large number of entries is accessed only once (scans). <br>
+ * <br>
+ * Additionally entries can expire after a given duration since their last write or access, and can be refreshed asynchronously
+ * after a given duration since their last write using a loader.<br>
+ * <br>
+ * Reads do not block: they are recorded into a lossy buffer which is applied to the eviction policy in batches. Writes are
+ * serialized by a single lock. {@link #getOrCreate(Object, Factory)} calls the {@link Factory} only once per key, even if many
+ * threads request the same missing key at the same time.<br>
+ * <br>
+ * Keys and values must not be null. The number of hits, misses, loads and evictions is counted, see {@link #getStatistics()}. If a
+ * metric name is given to the {@link Builder}, hits, misses and evictions are also reported as {@link Counter}s to the global
+ * {@link MetricRegistry}.
+ * 
+ * <pre>
+ * Cache&lt;String, Object&gt; cache = BoundedCache.&lt;String, Object&gt; builder()
+ *                                          .maximumSize( 1000 )
+ *                                          .expireAfterAccess( 10, TimeUnit.MINUTES )
+ *                                          .build();
+ * </pre>
+ * 
+ * @see Cache
+ * @see #builder()
+ * @author Omnaest
+ * @param <K>
+ * @param <V>
+ */
+public class BoundedCache<K, V> extends CacheAbstract<K, V>
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long                               serialVersionUID            = 2203556787421383236L;
+  private static final double                             WINDOW_PERCENTAGE           = 0.01;
+  private static final double                             PROTECTED_PERCENTAGE        = 0.80;
+  private static final int                                READ_BUFFER_SIZE            = 128;
+  private static final int                                READ_BUFFER_DRAIN_THRESHOLD = 32;
+  private static final int                                INITIAL_SKETCH_SIZE         = 1024;
+  private static final int                                QUEUE_WINDOW                = 0;
+  private static final int                                QUEUE_PROBATION             = 1;
+  private static final int                                QUEUE_PROTECTED             = 2;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final long                                      maximumWeight;
+  private final long                                      windowMaximumWeight;
+  private final long                                      protectedMaximumWeight;
+  private final long                                      expireAfterWriteNanos;
+  private final long                                      expireAfterAccessNanos;
+  private final long                                      refreshAfterWriteNanos;
+  private final transient Weigher<? super K, ? super V>   weigher;
+  private final transient ElementConverter<K, V>          loader;
+  private final transient Executor                        executor;
+  private final transient Ticker                          ticker;
+  private final transient ExceptionHandler                exceptionHandler;
+  private final String                                    metricName;
+  
+  private final transient ConcurrentMap<K, Node<K, V>>    keyToNodeMap;
+  private final transient ConcurrentMap<K, FutureTask<V>> keyToLoadingTaskMap         = new ConcurrentHashMap<K, FutureTask<V>>();
+  private final transient Set<K>                          refreshingKeySet            = Collections.newSetFromMap( new ConcurrentHashMap<K, Boolean>() );
+  private final transient ReentrantLock                   lock                        = new ReentrantLock();
+  private final transient ReadBuffer<K, V>                readBuffer                  = new ReadBuffer<K, V>();
+  private final transient FrequencySketch                 frequencySketch;
+  private final transient NodeDeque<K, V>                 windowDeque                 = new NodeDeque<K, V>( false );
+  private final transient NodeDeque<K, V>                 probationDeque              = new NodeDeque<K, V>( false );
+  private final transient NodeDeque<K, V>                 protectedDeque              = new NodeDeque<K, V>( false );
+  private final transient NodeDeque<K, V>                 writeOrderDeque             = new NodeDeque<K, V>( true );
+  private transient long                                  windowWeight                = 0;
+  private transient long                                  protectedWeight             = 0;
+  private transient long                                  totalWeight                 = 0;
+  
+  private final transient AtomicLong                      hitCounter                  = new AtomicLong();
+  private final transient AtomicLong                      missCounter                 = new AtomicLong();
+  private final transient AtomicLong                      loadSuccessCounter          = new AtomicLong();
+  private final transient AtomicLong                      loadFailureCounter          = new AtomicLong();
+  private final transient AtomicLong                      evictionCounter             = new AtomicLong();
+  private final transient Counter                         hitMetricCounter;
+  private final transient Counter                         missMetricCounter;
+  private final transient Counter                         evictionMetricCounter;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Builder for a {@link BoundedCache}
+   * 
+   * @see BoundedCache#builder()
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  public static class Builder<K, V> implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long             serialVersionUID       = -2946021398734523218L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private long                          maximumWeight          = -1;
+    private Weigher<? super K, ? super V> weigher                = null;
+    private long                          expireAfterWriteNanos  = 0;
+    private long                          expireAfterAccessNanos = 0;
+    private long                          refreshAfterWriteNanos = 0;
+    private ElementConverter<K, V>        loader                 = null;
+    private Executor                      executor               = null;
+    private Ticker                        ticker                 = null;
+    private ExceptionHandler              exceptionHandler       = null;
+    private String                        metricName             = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see Builder
+     */
+    Builder()
+    {
+      super();
+    }
+    
+    /**
+     * Limits the number of entries of the {@link BoundedCache}
+     * 
+     * @param maximumSize
+     * @return this
+     */
+    public Builder<K, V> maximumSize( long maximumSize )
+    {
+      Assert.isTrue( maximumSize >= 0, "maximumSize must not be negative" );
+      this.maximumWeight = maximumSize;
+      this.weigher = null;
+      return this;
+    }
+    
+    /**
+     * Limits the sum of all weights of the entries of the {@link BoundedCache}. The weight of an entry is determined once, when
+     * it is put into the {@link BoundedCache}.
+     * 
+     * @param maximumWeight
+     * @param weigher
+     *          {@link Weigher}
+     * @return this
+     */
+    public Builder<K, V> maximumWeight( long maximumWeight, Weigher<? super K, ? super V> weigher )
+    {
+      Assert.isTrue( maximumWeight >= 0, "maximumWeight must not be negative" );
+      Assert.isNotNull( weigher, "weigher must not be null" );
+      this.maximumWeight = maximumWeight;
+      this.weigher = weigher;
+      return this;
+    }
+    
+    /**
+     * Lets entries expire after the given duration since they have been put into the {@link BoundedCache}
+     * 
+     * @param duration
+     * @param timeUnit
+     *          {@link TimeUnit}
+     * @return this
+     */
+    public Builder<K, V> expireAfterWrite( long duration, TimeUnit timeUnit )
+    {
+      this.expireAfterWriteNanos = timeUnit.toNanos( duration );
+      return this;
+    }
+    
+    /**
+     * Lets entries expire after the given duration since they have been put into the {@link BoundedCache} or have been read the
+     * last time
+     * 
+     * @param duration
+     * @param timeUnit
+     *          {@link TimeUnit}
+     * @return this
+     */
+    public Builder<K, V> expireAfterAccess( long duration, TimeUnit timeUnit )
+    {
+      this.expireAfterAccessNanos = timeUnit.toNanos( duration );
+      return this;
+    }
+    
+    /**
+     * Reloads an entry using the {@link #loader(ElementConverter)} if it is read and has been put into the {@link BoundedCache}
+     * before the given duration. The old value is returned until the new value is available.
+     * 
+     * @see #executor(Executor)
+     * @param duration
+     * @param timeUnit
+     *          {@link TimeUnit}
+     * @return this
+     */
+    public Builder<K, V> refreshAfterWrite( long duration, TimeUnit timeUnit )
+    {
+      this.refreshAfterWriteNanos = timeUnit.toNanos( duration );
+      return this;
+    }
+    
+    /**
+     * Sets the loader which is used by {@link BoundedCache#getOrLoad(Object)} and to refresh entries
+     * 
+     * @param loader
+     *          {@link ElementConverter} which converts a key into its value
+     * @return this
+     */
+    public Builder<K, V> loader( ElementConverter<K, V> loader )
+    {
+      this.loader = loader;
+      return this;
+    }
+    
+    /**
+     * Sets the {@link Executor} which refreshes entries. If no {@link Executor} is set, entries are refreshed within the calling
+     * {@link Thread}.
+     * 
+     * @param executor
+     *          {@link Executor}
+     * @return this
+     */
+    public Builder<K, V> executor( Executor executor )
+    {
+      this.executor = executor;
+      return this;
+    }
+    
+    /**
+     * Sets the time source used for expiration and refresh. Defaults to {@link Ticker#systemTicker()}.
+     * 
+     * @param ticker
+     *          {@link Ticker}
+     * @return this
+     */
+    public Builder<K, V> ticker( Ticker ticker )
+    {
+      this.ticker = ticker;
+      return this;
+    }
+    
+    /**
+     * Sets the {@link ExceptionHandler} which handles {@link Exception}s of the loader during refreshs
+     * 
+     * @param exceptionHandler
+     *          {@link ExceptionHandler}
+     * @return this
+     */
+    public Builder<K, V> exceptionHandler( ExceptionHandler exceptionHandler )
+    {
+      this.exceptionHandler = exceptionHandler;
+      return this;
+    }
+    
+    /**
+     * Reports hits, misses and evictions as {@link Counter}s "&lt;metricName&gt;.hit", "&lt;metricName&gt;.miss" and
+     * "&lt;metricName&gt;.eviction" to the {@link MetricRegistry} which is returned by {@link MetricUtils#getMetricRegistry()} at
+     * the time the {@link BoundedCache} is built. By default nothing is reported.
+     * 
+     * @param metricName
+     * @return this
+     */
+    public Builder<K, V> metricName( String metricName )
+    {
+      this.metricName = metricName;
+      return this;
+    }
+    
+    /**
+     * Returns a new {@link BoundedCache} instance. Either {@link #maximumSize(long)} or
+     * {@link #maximumWeight(long, Weigher)} has to be set before.
+     * 
+     * @return
+     */
+    public BoundedCache<K, V> build()
+    {
+      Assert.isTrue( this.maximumWeight >= 0, "maximumSize or maximumWeight has to be set" );
+      return new BoundedCache<K, V>( this );
+    }
+    
+    /**
+     * Returns a copy of this {@link Builder} which only references the {@link Serializable} parts
+     * 
+     * @return
+     */
+    private Builder<K, V> serializableCopy()
+    {
+      //
+      final Builder<K, V> retval = new Builder<K, V>();
+      
+      //
+      retval.maximumWeight = this.maximumWeight;
+      retval.weigher = this.weigher instanceof Serializable ? this.weigher : null;
+      retval.expireAfterWriteNanos = this.expireAfterWriteNanos;
+      retval.expireAfterAccessNanos = this.expireAfterAccessNanos;
+      retval.refreshAfterWriteNanos = this.refreshAfterWriteNanos;
+      retval.loader = this.loader instanceof Serializable ? this.loader : null;
+      retval.exceptionHandler = this.exceptionHandler instanceof Serializable ? this.exceptionHandler : null;
+      retval.metricName = this.metricName;
+      
+      //
+      return retval;
+    }
+  }
+  
+  /**
+   * Statistics snapshot of a {@link BoundedCache}
+   * 
+   * @see BoundedCache#getStatistics()
+   * @author Omnaest
+   */
+  public static class CacheStatistics implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long serialVersionUID = 5233806134853458286L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final long        hitCount;
+    private final long        missCount;
+    private final long        loadSuccessCount;
+    private final long        loadFailureCount;
+    private final long        evictionCount;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see CacheStatistics
+     * @param hitCount
+     * @param missCount
+     * @param loadSuccessCount
+     * @param loadFailureCount
+     * @param evictionCount
+     */
+    CacheStatistics( long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long evictionCount )
+    {
+      super();
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.loadSuccessCount = loadSuccessCount;
+      this.loadFailureCount = loadFailureCount;
+      this.evictionCount = evictionCount;
+    }
+    
+    /**
+     * Returns the number of reads which returned a cached value
+     * 
+     * @return
+     */
+    public long getHitCount()
+    {
+      return this.hitCount;
+    }
+    
+    /**
+     * Returns the number of reads which did not find a cached value
+     * 
+     * @return
+     */
+    public long getMissCount()
+    {
+      return this.missCount;
+    }
+    
+    /**
+     * Returns the number of values which have been created or refreshed successfully
+     * 
+     * @return
+     */
+    public long getLoadSuccessCount()
+    {
+      return this.loadSuccessCount;
+    }
+    
+    /**
+     * Returns the number of failed attempts to create or refresh a value
+     * 
+     * @return
+     */
+    public long getLoadFailureCount()
+    {
+      return this.loadFailureCount;
+    }
+    
+    /**
+     * Returns the number of entries which have been evicted because of the maximum size or weight or because they have expired
+     * 
+     * @return
+     */
+    public long getEvictionCount()
+    {
+      return this.evictionCount;
+    }
+    
+    /**
+     * Returns the ratio of hits to all reads or 1.0 if there has been no read
+     * 
+     * @return
+     */
+    public double getHitRate()
+    {
+      final long requestCount = this.hitCount + this.missCount;
+      return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+    
+    @Override
+    public String toString()
+    {
+      StringBuilder builder = new StringBuilder();
+      builder.append( "CacheStatistics [hitCount=" );
+      builder.append( this.hitCount );
+      builder.append( ", missCount=" );
+      builder.append( this.missCount );
+      builder.append( ", loadSuccessCount=" );
+      builder.append( this.loadSuccessCount );
+      builder.append( ", loadFailureCount=" );
+      builder.append( this.loadFailureCount );
+      builder.append( ", evictionCount=" );
+      builder.append( this.evictionCount );
+      builder.append( ", hitRate=" );
+      builder.append( this.getHitRate() );
+      builder.append( "]" );
+      return builder.toString();
+    }
+  }
+  
+  /**
+   * Entry of the {@link BoundedCache}. The links are guarded by the lock of the {@link BoundedCache}.
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class Node<K, V>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final K          key;
+    private final int        hash;
+    private volatile V       value;
+    private volatile long    writeTime;
+    private volatile long    accessTime;
+    private volatile boolean alive         = true;
+    private int              weight;
+    private int              queue         = QUEUE_WINDOW;
+    private Node<K, V>       previous      = null;
+    private Node<K, V>       next          = null;
+    private Node<K, V>       writePrevious = null;
+    private Node<K, V>       writeNext     = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param key
+     * @param hash
+     * @param value
+     * @param weight
+     * @param time
+     */
+    Node( K key, int hash, V value, int weight, long time )
+    {
+      super();
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = time;
+      this.accessTime = time;
+    }
+  }
+  
+  /**
+   * Doubly linked list of {@link Node}s, either using the access order links or the write order links of the {@link Node}s
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class NodeDeque<K, V>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final boolean writeOrder;
+    private Node<K, V>    first = null;
+    private Node<K, V>    last  = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param writeOrder
+     *          : true, if the write order links of the {@link Node}s should be used
+     */
+    NodeDeque( boolean writeOrder )
+    {
+      super();
+      this.writeOrder = writeOrder;
+    }
+    
+    /**
+     * @return the least recently used {@link Node} or null
+     */
+    Node<K, V> peekFirst()
+    {
+      return this.first;
+    }
+    
+    /**
+     * @return the most recently used {@link Node} or null
+     */
+    Node<K, V> peekLast()
+    {
+      return this.last;
+    }
+    
+    /**
+     * @param node
+     */
+    void addLast( Node<K, V> node )
+    {
+      //
+      this.setPrevious( node, this.last );
+      this.setNext( node, null );
+      
+      //
+      if ( this.last == null )
+      {
+        this.first = node;
+      }
+      else
+      {
+        this.setNext( this.last, node );
+      }
+      this.last = node;
+    }
+    
+    /**
+     * @param node
+     */
+    void remove( Node<K, V> node )
+    {
+      //
+      final Node<K, V> previous = this.getPrevious( node );
+      final Node<K, V> next = this.getNext( node );
+      
+      //
+      if ( previous == null )
+      {
+        this.first = next;
+      }
+      else
+      {
+        this.setNext( previous, next );
+      }
+      
+      //
+      if ( next == null )
+      {
+        this.last = previous;
+      }
+      else
+      {
+        this.setPrevious( next, previous );
+      }
+      
+      //
+      this.setPrevious( node, null );
+      this.setNext( node, null );
+    }
+    
+    /**
+     * @param node
+     */
+    void moveToLast( Node<K, V> node )
+    {
+      if ( node != this.last )
+      {
+        this.remove( node );
+        this.addLast( node );
+      }
+    }
+    
+    /**
+     * Removes all {@link Node}s
+     */
+    void clear()
+    {
+      while ( this.first != null )
+      {
+        this.remove( this.first );
+      }
+    }
+    
+    private Node<K, V> getPrevious( Node<K, V> node )
+    {
+      return this.writeOrder ? node.writePrevious : node.previous;
+    }
+    
+    private Node<K, V> getNext( Node<K, V> node )
+    {
+      return this.writeOrder ? node.writeNext : node.next;
+    }
+    
+    private void setPrevious( Node<K, V> node, Node<K, V> previous )
+    {
+      if ( this.writeOrder )
+      {
+        node.writePrevious = previous;
+      }
+      else
+      {
+        node.previous = previous;
+      }
+    }
+    
+    private void setNext( Node<K, V> node, Node<K, V> next )
+    {
+      if ( this.writeOrder )
+      {
+        node.writeNext = next;
+      }
+      else
+      {
+        node.next = next;
+      }
+    }
+  }
+  
+  /**
+   * Lossy ring buffer which records reads of {@link Node}s without locking. If the buffer is full further reads are dropped.
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class ReadBuffer<K, V>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final AtomicReferenceArray<Node<K, V>> buffer       = new AtomicReferenceArray<Node<K, V>>( READ_BUFFER_SIZE );
+    private final AtomicLong                       writeCounter = new AtomicLong();
+    private volatile long                          readCounter  = 0;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * Records the read of the given {@link Node}
+     * 
+     * @param node
+     * @return true, if the buffer should be drained
+     */
+    boolean offer( Node<K, V> node )
+    {
+      //
+      boolean retval = true;
+      
+      //
+      final long writeCount = this.writeCounter.get();
+      final long pendingCount = writeCount - this.readCounter;
+      if ( pendingCount < READ_BUFFER_SIZE && this.writeCounter.compareAndSet( writeCount, writeCount + 1 ) )
+      {
+        this.buffer.lazySet( (int) ( writeCount & ( READ_BUFFER_SIZE - 1 ) ), node );
+        retval = pendingCount >= READ_BUFFER_DRAIN_THRESHOLD;
+      }
+      
+      //
+      return retval;
+    }
+    
+    /**
+     * Applies all recorded reads to the given {@link BoundedCache}. Has to be called with the lock held.
+     * 
+     * @param boundedCache
+     */
+    void drainTo( BoundedCache<K, V> boundedCache )
+    {
+      //
+      final long writeCount = this.writeCounter.get();
+      for ( long readCount = Math.max( this.readCounter, writeCount - READ_BUFFER_SIZE ); readCount < writeCount; readCount++ )
+      {
+        final Node<K, V> node = this.buffer.getAndSet( (int) ( readCount & ( READ_BUFFER_SIZE - 1 ) ), null );
+        if ( node != null && node.alive )
+        {
+          boundedCache.onAccess( node );
+        }
+      }
+      this.readCounter = writeCount;
+    }
+  }
+  
+  /**
+   * Replaces the {@link BoundedCache} during serialization
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class SerializationProxy<K, V> implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long   serialVersionUID = -4120389718232536620L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final Builder<K, V> builder;
+    private final HashMap<K, V> map;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param builder
+     * @param map
+     */
+    SerializationProxy( Builder<K, V> builder, HashMap<K, V> map )
+    {
+      super();
+      this.builder = builder;
+      this.map = map;
+    }
+    
+    private Object readResolve()
+    {
+      final BoundedCache<K, V> retval = this.builder.build();
+      retval.putAll( this.map );
+      return retval;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see BoundedCache
+   * @param builder
+   *          {@link Builder}
+   */
+  BoundedCache( Builder<K, V> builder )
+  {
+    //
+    super();
+    this.maximumWeight = builder.maximumWeight;
+    this.weigher = builder.weigher;
+    this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+    this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+    this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+    this.loader = builder.loader;
+    this.executor = builder.executor;
+    this.ticker = builder.ticker != null ? builder.ticker : Ticker.systemTicker();
+    this.exceptionHandler = builder.exceptionHandler;
+    this.metricName = builder.metricName;
+    
+    //
+    final MetricRegistry metricRegistry = this.metricName != null ? MetricUtils.getMetricRegistry()
+                                                                  : MetricRegistryNoOperation.getInstance();
+    this.hitMetricCounter = metricRegistry.getCounter( this.metricName + ".hit" );
+    this.missMetricCounter = metricRegistry.getCounter( this.metricName + ".miss" );
+    this.evictionMetricCounter = metricRegistry.getCounter( this.metricName + ".eviction" );
+    
+    //
+    final long windowMaximumWeight = this.maximumWeight - (long) ( this.maximumWeight * ( 1.0 - WINDOW_PERCENTAGE ) );
+    this.windowMaximumWeight = this.maximumWeight > 0 ? Math.max( 1, windowMaximumWeight ) : 0;
+    this.protectedMaximumWeight = (long) ( ( this.maximumWeight - this.windowMaximumWeight ) * PROTECTED_PERCENTAGE );
+    
+    //
+    final int initialCapacity = (int) Math.min( this.maximumWeight, INITIAL_SKETCH_SIZE );
+    this.keyToNodeMap = new ConcurrentHashMap<K, Node<K, V>>( initialCapacity );
+    this.frequencySketch = new FrequencySketch( initialCapacity );
+  }
+  
+  /**
+   * Returns a new {@link Builder} for a {@link BoundedCache}
+   * 
+   * @return
+   */
+  public static <K, V> Builder<K, V> builder()
+  {
+    return new Builder<K, V>();
+  }
+  
+  /**
+   * Returns the number of entries. This can include expired entries which have not been cleaned up yet.
+   */
+  @Override
+  public int size()
+  {
+    return this.keyToNodeMap.size();
+  }
+  
+  @Override
+  public boolean isEmpty()
+  {
+    return this.keyToNodeMap.isEmpty();
+  }
+  
+  @Override
+  public boolean containsKey( Object key )
+  {
+    final Node<K, V> node = this.keyToNodeMap.get( key );
+    return node != null && !this.isExpired( node, this.ticker.read() );
+  }
+  
+  @Override
+  public boolean containsValue( Object value )
+  {
+    return this.snapshot().containsValue( value );
+  }
+  
+  @Override
+  public V get( Object key )
+  {
+    //
+    V retval = null;
+    
+    //
+    final Node<K, V> node = this.keyToNodeMap.get( key );
+    if ( node != null )
+    {
+      //
+      final long time = this.ticker.read();
+      if ( this.isExpired( node, time ) )
+      {
+        this.expire( node );
+      }
+      else
+      {
+        //
+        if ( this.expireAfterAccessNanos > 0 )
+        {
+          node.accessTime = time;
+        }
+        retval = node.value;
+        
+        //
+        this.afterRead( node );
+        this.refreshIfNecessary( node, time );
+      }
+    }
+    
+    //
+    if ( retval != null )
+    {
+      this.hitCounter.incrementAndGet();
+      this.hitMetricCounter.increment();
+    }
+    else
+    {
+      this.missCounter.incrementAndGet();
+      this.missMetricCounter.increment();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public V put( K key, V value )
+  {
+    //
+    V retval = null;
+    
+    //
+    Assert.isNotNull( key, "key must not be null" );
+    Assert.isNotNull( value, "value must not be null" );
+    final int weight = this.weigher != null ? this.weigher.weigh( key, value ) : 1;
+    Assert.isTrue( weight >= 0, "weight must not be negative" );
+    
+    //
+    final long time = this.ticker.read();
+    this.lock.lock();
+    try
+    {
+      //
+      this.readBuffer.drainTo( this );
+      
+      //
+      Node<K, V> node = this.keyToNodeMap.get( key );
+      if ( node != null )
+      {
+        //
+        retval = this.isExpired( node, time ) ? null : node.value;
+        
+        //
+        node.value = value;
+        node.writeTime = time;
+        node.accessTime = time;
+        this.updateWeight( node, weight );
+        this.writeOrderDeque.moveToLast( node );
+        this.onAccess( node );
+      }
+      else
+      {
+        //
+        node = new Node<K, V>( key, spread( key.hashCode() ), value, weight, time );
+        this.keyToNodeMap.put( key, node );
+        this.windowDeque.addLast( node );
+        this.writeOrderDeque.addLast( node );
+        this.windowWeight += weight;
+        this.totalWeight += weight;
+        
+        //
+        this.frequencySketch.increment( node.hash );
+        if ( this.keyToNodeMap.size() > this.frequencySketch.capacity() )
+        {
+          this.frequencySketch.ensureCapacity( Math.min( this.keyToNodeMap.size() * 2L, this.maximumWeight ) );
+        }
+      }
+      
+      //
+      this.expireEntries( time );
+      this.evictEntries();
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public V remove( Object key )
+  {
+    //
+    V retval = null;
+    
+    //
+    this.lock.lock();
+    try
+    {
+      final Node<K, V> node = this.keyToNodeMap.remove( key );
+      if ( node != null )
+      {
+        retval = this.isExpired( node, this.ticker.read() ) ? null : node.value;
+        this.unlink( node );
+      }
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void putAll( Map<? extends K, ? extends V> map )
+  {
+    if ( map != null )
+    {
+      for ( Entry<? extends K, ? extends V> entry : map.entrySet() )
+      {
+        this.put( entry.getKey(), entry.getValue() );
+      }
+    }
+  }
+  
+  @Override
+  public void clear()
+  {
+    this.lock.lock();
+    try
+    {
+      //
+      for ( Node<K, V> node : this.keyToNodeMap.values() )
+      {
+        node.alive = false;
+      }
+      this.keyToNodeMap.clear();
+      
+      //
+      this.readBuffer.drainTo( this );
+      this.windowDeque.clear();
+      this.probationDeque.clear();
+      this.protectedDeque.clear();
+      this.writeOrderDeque.clear();
+      this.windowWeight = 0;
+      this.protectedWeight = 0;
+      this.totalWeight = 0;
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+  
+  @Override
+  public Set<K> keySet()
+  {
+    return Collections.unmodifiableSet( this.snapshot().keySet() );
+  }
+  
+  @Override
+  public Collection<V> values()
+  {
+    return Collections.unmodifiableCollection( this.snapshot().values() );
+  }
+  
+  @Override
+  public Set<Entry<K, V>> entrySet()
+  {
+    return Collections.unmodifiableMap( this.snapshot() ).entrySet();
+  }
+  
+  /**
+   * Gets a cached value or creates a new one using the given {@link Factory} and puts the new value into the cache. If multiple
+   * {@link Thread}s request the same missing key at the same time, the {@link Factory} is called only by one of them and all
+   * others wait for its result. {@link RuntimeException}s thrown by the {@link Factory} are rethrown to all waiting
+   * {@link Thread}s.
+   */
+  @Override
+  public V getOrCreate( final K key, final Factory<V> factory )
+  {
+    //
+    V retval = this.get( key );
+    
+    //
+    if ( retval == null && factory != null )
+    {
+      //
+      FutureTask<V> loadingTask = new FutureTask<V>( new Callable<V>()
+      {
+        @Override
+        public V call() throws Exception
+        {
+          //
+          Node<K, V> node = BoundedCache.this.keyToNodeMap.get( key );
+          if ( node != null && BoundedCache.this.isExpired( node, BoundedCache.this.ticker.read() ) )
+          {
+            node = null;
+          }
+          
+          //the value could have been loaded by another thread after the initial get and before this task was registered
+          final V value = node != null ? node.value : null;
+          return value != null ? value : BoundedCache.this.load( key, factory, node, value );
+        }
+      } );
+      
+      //
+      final FutureTask<V> loadingTaskExisting = this.keyToLoadingTaskMap.putIfAbsent( key, loadingTask );
+      if ( loadingTaskExisting == null )
+      {
+        try
+        {
+          loadingTask.run();
+        }
+        finally
+        {
+          this.keyToLoadingTaskMap.remove( key, loadingTask );
+        }
+      }
+      else
+      {
+        loadingTask = loadingTaskExisting;
+      }
+      
+      //
+      retval = BoundedCache.resultOf( loadingTask );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Same as {@link #getOrCreate(Object, Factory)} using the loader of the {@link Builder}. If no loader is configured this
+   * behaves like {@link #get(Object)}.
+   * 
+   * @see Builder#loader(ElementConverter)
+   * @param key
+   * @return
+   */
+  public V getOrLoad( final K key )
+  {
+    //
+    final ElementConverter<K, V> loader = this.loader;
+    final Factory<V> factory = loader == null ? null : new Factory<V>()
+    {
+      @Override
+      public V newInstance()
+      {
+        return loader.convert( key );
+      }
+    };
+    
+    //
+    return this.getOrCreate( key, factory );
+  }
+  
+  /**
+   * Reloads the value for the given key using the loader of the {@link Builder}. The reload is executed by the configured
+   * {@link Executor} or within the calling {@link Thread} if there is none. For each key only one refresh is executed at the
+   * same time. The reloaded value is discarded if the entry has been removed or overwritten in the meantime.
+   * 
+   * @see Builder#loader(ElementConverter)
+   * @see Builder#executor(Executor)
+   * @param key
+   */
+  public void refresh( final K key )
+  {
+    if ( this.loader != null && key != null && this.refreshingKeySet.add( key ) )
+    {
+      //
+      final Node<K, V> node = this.keyToNodeMap.get( key );
+      final V value = node != null ? node.value : null;
+      final Runnable runnable = new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            BoundedCache.this.load( key, BoundedCache.this.loader, node, value );
+          }
+          catch ( Exception e )
+          {
+            if ( BoundedCache.this.exceptionHandler != null )
+            {
+              BoundedCache.this.exceptionHandler.handleException( e );
+            }
+          }
+          finally
+          {
+            BoundedCache.this.refreshingKeySet.remove( key );
+          }
+        }
+      };
+      
+      //
+      if ( this.executor != null )
+      {
+        try
+        {
+          this.executor.execute( runnable );
+        }
+        catch ( RejectedExecutionException e )
+        {
+          this.refreshingKeySet.remove( key );
+          if ( this.exceptionHandler != null )
+          {
+            this.exceptionHandler.handleException( e );
+          }
+        }
+      }
+      else
+      {
+        runnable.run();
+      }
+    }
+  }
+  
+  /**
+   * Removes expired entries and applies all pending reads to the eviction policy. This is done automatically during writes and
+   * reads, so calling this is usually not necessary.
+   */
+  public void cleanUp()
+  {
+    this.lock.lock();
+    try
+    {
+      this.readBuffer.drainTo( this );
+      this.expireEntries( this.ticker.read() );
+      this.evictEntries();
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+  
+  /**
+   * Returns a snapshot of the hit, miss, load and eviction counters
+   * 
+   * @return {@link CacheStatistics}
+   */
+  public CacheStatistics getStatistics()
+  {
+    return new CacheStatistics( this.hitCounter.get(), this.missCounter.get(), this.loadSuccessCounter.get(),
+                                this.loadFailureCounter.get(), this.evictionCounter.get() );
+  }
+  
+  /**
+   * Returns the sum of the weights of all entries, which is the number of entries if no {@link Weigher} is used
+   * 
+   * @return
+   */
+  public long weightedSize()
+  {
+    this.lock.lock();
+    try
+    {
+      return this.totalWeight;
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+  
+  @Override
+  public boolean equals( Object object )
+  {
+    return object == this || ( object instanceof Map && this.snapshot().equals( object ) );
+  }
+  
+  @Override
+  public int hashCode()
+  {
+    return this.snapshot().hashCode();
+  }
+  
+  @Override
+  public String toString()
+  {
+    return this.snapshot().toString();
+  }
+  
+  private Object writeReplace()
+  {
+    //
+    final Builder<K, V> builder = new Builder<K, V>();
+    builder.maximumWeight = this.maximumWeight;
+    builder.weigher = this.weigher;
+    builder.expireAfterWriteNanos = this.expireAfterWriteNanos;
+    builder.expireAfterAccessNanos = this.expireAfterAccessNanos;
+    builder.refreshAfterWriteNanos = this.refreshAfterWriteNanos;
+    builder.loader = this.loader;
+    builder.exceptionHandler = this.exceptionHandler;
+    builder.metricName = this.metricName;
+    
+    //
+    return new SerializationProxy<K, V>( builder.serializableCopy(), this.snapshot() );
+  }
+  
+  /**
+   * Calls the given {@link Factory} and puts its result into the {@link BoundedCache}
+   * 
+   * @see #putLoadedValue(Object, Object, Node, Object)
+   * @param key
+   * @param factory
+   * @param expectedNode
+   * @param expectedValue
+   * @return
+   */
+  private V load( K key, Factory<V> factory, Node<K, V> expectedNode, V expectedValue )
+  {
+    //
+    V retval = null;
+    
+    //
+    try
+    {
+      retval = factory.newInstance();
+    }
+    catch ( RuntimeException e )
+    {
+      this.loadFailureCounter.incrementAndGet();
+      throw e;
+    }
+    
+    //
+    this.putLoadedValue( key, retval, expectedNode, expectedValue );
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Calls the given loader and puts its result into the {@link BoundedCache}
+   * 
+   * @see #putLoadedValue(Object, Object, Node, Object)
+   * @param key
+   * @param loader
+   * @param expectedNode
+   * @param expectedValue
+   * @return
+   */
+  private V load( K key, ElementConverter<K, V> loader, Node<K, V> expectedNode, V expectedValue )
+  {
+    //
+    V retval = null;
+    
+    //
+    try
+    {
+      retval = loader.convert( key );
+    }
+    catch ( RuntimeException e )
+    {
+      this.loadFailureCounter.incrementAndGet();
+      throw e;
+    }
+    
+    //
+    this.putLoadedValue( key, retval, expectedNode, expectedValue );
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Puts the loaded value only if the entry for the given key is still the one which existed before the load started. So a
+   * load does neither resurrect an entry which has been removed nor overwrite a value which has been put in the meantime.
+   * 
+   * @param key
+   * @param value
+   * @param expectedNode
+   *          {@link Node} before the load or null if there was none
+   * @param expectedValue
+   *          value of the expected {@link Node} before the load
+   */
+  private void putLoadedValue( K key, V value, Node<K, V> expectedNode, V expectedValue )
+  {
+    if ( value != null )
+    {
+      this.lock.lock();
+      try
+      {
+        //
+        final Node<K, V> node = this.keyToNodeMap.get( key );
+        final boolean unchanged = expectedNode != null ? node == expectedNode && node.alive && node.value == expectedValue
+                                                      : node == null || this.isExpired( node, this.ticker.read() );
+        if ( unchanged )
+        {
+          this.put( key, value );
+          this.loadSuccessCounter.incrementAndGet();
+        }
+      }
+      finally
+      {
+        this.lock.unlock();
+      }
+    }
+    else
+    {
+      this.loadFailureCounter.incrementAndGet();
+    }
+  }
+  
+  /**
+   * Returns the result of the given loading {@link FutureTask} and rethrows its {@link RuntimeException}s and {@link Error}s
+   * 
+   * @param loadingTask
+   * @return
+   */
+  private static <V> V resultOf( FutureTask<V> loadingTask )
+  {
+    //
+    V retval = null;
+    
+    //
+    boolean interrupted = false;
+    while ( true )
+    {
+      try
+      {
+        retval = loadingTask.get();
+        break;
+      }
+      catch ( InterruptedException e )
+      {
+        interrupted = true;
+      }
+      catch ( ExecutionException e )
+      {
+        //
+        final Throwable cause = e.getCause();
+        if ( cause instanceof RuntimeException )
+        {
+          throw (RuntimeException) cause;
+        }
+        else if ( cause instanceof Error )
+        {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException( cause );
+      }
+    }
+    
+    //
+    if ( interrupted )
+    {
+      Thread.currentThread().interrupt();
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Records the read of the given {@link Node} and drains the read buffer if necessary and the lock is free
+   * 
+   * @param node
+   */
+  private void afterRead( Node<K, V> node )
+  {
+    if ( this.readBuffer.offer( node ) && this.lock.tryLock() )
+    {
+      try
+      {
+        this.readBuffer.drainTo( this );
+      }
+      finally
+      {
+        this.lock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * @param node
+   * @param time
+   */
+  private void refreshIfNecessary( Node<K, V> node, long time )
+  {
+    if ( this.refreshAfterWriteNanos > 0 && time - node.writeTime >= this.refreshAfterWriteNanos )
+    {
+      this.refresh( node.key );
+    }
+  }
+  
+  /**
+   * Applies an access to the eviction policy. Has to be called with the lock held.
+   * 
+   * @param node
+   */
+  private void onAccess( Node<K, V> node )
+  {
+    //
+    this.frequencySketch.increment( node.hash );
+    
+    //
+    if ( node.queue == QUEUE_WINDOW )
+    {
+      this.windowDeque.moveToLast( node );
+    }
+    else if ( node.queue == QUEUE_PROBATION )
+    {
+      //
+      this.probationDeque.remove( node );
+      node.queue = QUEUE_PROTECTED;
+      this.protectedDeque.addLast( node );
+      this.protectedWeight += node.weight;
+      
+      //
+      while ( this.protectedWeight > this.protectedMaximumWeight )
+      {
+        final Node<K, V> demotedNode = this.protectedDeque.peekFirst();
+        this.protectedDeque.remove( demotedNode );
+        this.protectedWeight -= demotedNode.weight;
+        demotedNode.queue = QUEUE_PROBATION;
+        this.probationDeque.addLast( demotedNode );
+      }
+    }
+    else
+    {
+      this.protectedDeque.moveToLast( node );
+    }
+  }
+  
+  /**
+   * Changes the weight of the given {@link Node}. Has to be called with the lock held.
+   * 
+   * @param node
+   * @param weight
+   */
+  private void updateWeight( Node<K, V> node, int weight )
+  {
+    //
+    final int weightDelta = weight - node.weight;
+    node.weight = weight;
+    this.totalWeight += weightDelta;
+    
+    //
+    if ( node.queue == QUEUE_WINDOW )
+    {
+      this.windowWeight += weightDelta;
+    }
+    else if ( node.queue == QUEUE_PROTECTED )
+    {
+      this.protectedWeight += weightDelta;
+    }
+  }
+  
+  /**
+   * Evicts entries until the maximum weight is not exceeded anymore. Has to be called with the lock held.
+   */
+  private void evictEntries()
+  {
+    //
+    int candidateCount = 0;
+    while ( this.windowWeight > this.windowMaximumWeight )
+    {
+      //
+      final Node<K, V> node = this.windowDeque.peekFirst();
+      this.windowDeque.remove( node );
+      this.windowWeight -= node.weight;
+      
+      //
+      node.queue = QUEUE_PROBATION;
+      this.probationDeque.addLast( node );
+      candidateCount++;
+    }
+    
+    //
+    while ( this.totalWeight > this.maximumWeight )
+    {
+      //
+      final Node<K, V> victim = this.probationDeque.peekFirst();
+      final Node<K, V> candidate = candidateCount > 0 ? this.probationDeque.peekLast() : null;
+      if ( victim == null )
+      {
+        //
+        final Node<K, V> node = this.protectedDeque.peekFirst() != null ? this.protectedDeque.peekFirst()
+                                                                        : this.windowDeque.peekFirst();
+        if ( node == null )
+        {
+          break;
+        }
+        this.evict( node );
+      }
+      else if ( candidate == null )
+      {
+        this.evict( victim );
+      }
+      else if ( candidate == victim || candidate.weight > this.maximumWeight || !this.admit( candidate, victim ) )
+      {
+        this.evict( candidate );
+        candidateCount--;
+      }
+      else
+      {
+        this.evict( victim );
+      }
+    }
+  }
+  
+  /**
+   * Returns true, if the candidate is estimated to be accessed more frequently than the victim
+   * 
+   * @param candidate
+   * @param victim
+   * @return
+   */
+  private boolean admit( Node<K, V> candidate, Node<K, V> victim )
+  {
+    return this.frequencySketch.frequency( candidate.hash ) > this.frequencySketch.frequency( victim.hash );
+  }
+  
+  /**
+   * Removes expired entries. Has to be called with the lock held.
+   * 
+   * @param time
+   */
+  private void expireEntries( long time )
+  {
+    //
+    if ( this.expireAfterWriteNanos > 0 )
+    {
+      Node<K, V> node = this.writeOrderDeque.peekFirst();
+      while ( node != null && time - node.writeTime >= this.expireAfterWriteNanos )
+      {
+        this.evict( node );
+        node = this.writeOrderDeque.peekFirst();
+      }
+    }
+    
+    //
+    if ( this.expireAfterAccessNanos > 0 )
+    {
+      this.expireEntries( this.windowDeque, time );
+      this.expireEntries( this.probationDeque, time );
+      this.expireEntries( this.protectedDeque, time );
+    }
+  }
+  
+  /**
+   * Removes the entries of the given access ordered {@link NodeDeque} which have not been accessed for the expiration duration.
+   * Has to be called with the lock held.
+   * 
+   * @param nodeDeque
+   * @param time
+   */
+  private void expireEntries( NodeDeque<K, V> nodeDeque, long time )
+  {
+    Node<K, V> node = nodeDeque.peekFirst();
+    while ( node != null && time - node.accessTime >= this.expireAfterAccessNanos )
+    {
+      this.evict( node );
+      node = nodeDeque.peekFirst();
+    }
+  }
+  
+  /**
+   * Removes the given expired {@link Node}
+   * 
+   * @param node
+   */
+  private void expire( Node<K, V> node )
+  {
+    this.lock.lock();
+    try
+    {
+      if ( node.alive )
+      {
+        this.evict( node );
+      }
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+  
+  /**
+   * Removes the given {@link Node} and counts the eviction. Has to be called with the lock held.
+   * 
+   * @param node
+   */
+  private void evict( Node<K, V> node )
+  {
+    this.keyToNodeMap.remove( node.key, node );
+    this.unlink( node );
+    this.evictionCounter.incrementAndGet();
+    this.evictionMetricCounter.increment();
+  }
+  
+  /**
+   * Unlinks the given {@link Node} from all deques. Has to be called with the lock held.
+   * 
+   * @param node
+   */
+  private void unlink( Node<K, V> node )
+  {
+    //
+    if ( node.queue == QUEUE_WINDOW )
+    {
+      this.windowDeque.remove( node );
+      this.windowWeight -= node.weight;
+    }
+    else if ( node.queue == QUEUE_PROBATION )
+    {
+      this.probationDeque.remove( node );
+    }
+    else
+    {
+      this.protectedDeque.remove( node );
+      this.protectedWeight -= node.weight;
+    }
+    
+    //
+    this.writeOrderDeque.remove( node );
+    this.totalWeight -= node.weight;
+    node.alive = false;
+  }
+  
+  /**
+   * @param node
+   * @param time
+   * @return true, if the given {@link Node} has expired
+   */
+  private boolean isExpired( Node<K, V> node, long time )
+  {
+    return ( this.expireAfterWriteNanos > 0 && time - node.writeTime >= this.expireAfterWriteNanos )
+           || ( this.expireAfterAccessNanos > 0 && time - node.accessTime >= this.expireAfterAccessNanos );
+  }
+  
+  /**
+   * Returns a new {@link HashMap} with all entries which have not expired
+   * 
+   * @return
+   */
+  private HashMap<K, V> snapshot()
+  {
+    //
+    final HashMap<K, V> retmap = new HashMap<K, V>();
+    
+    //
+    final long time = this.ticker.read();
+    for ( Node<K, V> node : this.keyToNodeMap.values() )
+    {
+      if ( !this.isExpired( node, time ) )
+      {
+        retmap.put( node.key, node.value );
+      }
+    }
+    
+    //
+    return retmap;
+  }
+  
+  /**
+   * Spreads the bits of the given hash code
+   * 
+   * @param hashCode
+   * @return
+   */
+  private static int spread( int hashCode )
+  {
+    final int hash = hashCode * 0x9e3779b9;
+    return hash ^ ( hash >>> 16 );
+  }
+}
@@ -15,24 +15,32 @@
  ******************************************************************************/
 package org.omnaest.utils.cache;
 
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
-
-import org.omnaest.utils.operation.Operation;
-import org.omnaest.utils.structure.element.ElementHolder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A {@link ConcurrentWeakReferenceCache} holds a given number of separated {@link SynchronizedWeakReferenceCache} instances,
- * called segments. <br>
- * Based on the number of segments the retrieval operation will block less long for a multithreaded call to {@link #get(Object)},
- * {@link #containsKey(Object)}, {@link #containsValue(Object)}, {@link #size()} and {@link #isEmpty()}, but any additional
- * segment will increase the blocking time for any {@link #put(Object, Object)}, {@link #putAll(Map)}, {@link #remove(Object)} and
- * {@link #clear()} call, as well as it is increasing the memory footprint since every segment will hold all the information
- * within the {@link Cache}.
+ * A {@link ConcurrentWeakReferenceCache} is a concurrent hash table with weakly referenced keys, similar to a {@link java.util.WeakHashMap}.
+ * Stored elements can vanish at any time the underlying JVM decides to clear their keys.<br>
+ * <br>
+ * The entries are striped by the hash of their key into a given number of segments. Each segment is a hash table of its own
+ * which is guarded by a lock for writes, so writes to different segments do not block each other. Reads like
+ * {@link #get(Object)} and {@link #containsKey(Object)} do not block at all, since the chains of entries are never modified
+ * after they have been published. <br>
+ * <br>
+ * Entries whose keys have been cleared by the garbage collector are removed using a {@link ReferenceQueue} per segment. This
+ * cleanup is done during writes and from time to time during reads, so no background {@link Thread} is needed.<br>
+ * <br>
+ * {@link #keySet()}, {@link #values()} and {@link #entrySet()} return a snapshot, which is not necessarily consistent across
+ * segments if the {@link Cache} is modified concurrently.
  * 
  * @see Cache
  * @author Omnaest
@@ -42,219 +50,649 @@ import org.omnaest.utils.structure.element.ElementHolder;
 public class ConcurrentWeakReferenceCache<K, V> extends CacheAbstract<K, V>
 {
   /* ************************************************** Constants *************************************************** */
-  private static final long       serialVersionUID      = -3600058653640214269L;
+  private static final long               serialVersionUID         = -3600058653640214269L;
+  private static final Object             NULL_KEY                 = new Object();
+  private static final int                INITIAL_SEGMENT_CAPACITY = 16;
+  private static final float              LOAD_FACTOR              = 0.75f;
+  private static final int                READS_PER_CLEANUP        = 64;
+  private static final int                MAXIMUM_SEGMENTS         = 1 << 16;
+  
   /* ********************************************** Variables ********************************************** */
-  private final List<Cache<K, V>> cacheList;
-  private final int               numberOfSegments;
-  private final AtomicLong        currentSegmentCounter = new AtomicLong();
+  private final transient Segment<K, V>[] segments;
+  private final transient int             segmentShift;
+  private final transient int             segmentMask;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Entry with a weakly referenced key. Only the value is mutable, so a chain of {@link WeakEntry}s can be read without locking.
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class WeakEntry<K, V> extends WeakReference<Object>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final int             hash;
+    private final WeakEntry<K, V> next;
+    private volatile V            value;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param key
+     * @param hash
+     * @param value
+     * @param next
+     * @param referenceQueue
+     */
+    WeakEntry( Object key, int hash, V value, WeakEntry<K, V> next, ReferenceQueue<Object> referenceQueue )
+    {
+      super( key, referenceQueue );
+      this.hash = hash;
+      this.value = value;
+      this.next = next;
+    }
+    
+    /**
+     * @param key
+     * @param hash
+     * @return true, if this {@link WeakEntry} belongs to the given masked key
+     */
+    boolean matches( Object key, int hash )
+    {
+      //
+      boolean retval = false;
+      
+      //
+      if ( this.hash == hash )
+      {
+        final Object entryKey = this.get();
+        retval = entryKey == key || ( entryKey != null && entryKey.equals( key ) );
+      }
+      
+      //
+      return retval;
+    }
+  }
+  
+  /**
+   * Single hash table stripe of the {@link ConcurrentWeakReferenceCache}
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class Segment<K, V> extends ReentrantLock
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long                              serialVersionUID = 4624993484823302478L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final ReferenceQueue<Object>                   referenceQueue   = new ReferenceQueue<Object>();
+    private volatile AtomicReferenceArray<WeakEntry<K, V>> table            = new AtomicReferenceArray<WeakEntry<K, V>>( INITIAL_SEGMENT_CAPACITY );
+    private volatile int                                   count            = 0;
+    private int                                            readCounter      = 0;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param key
+     *          : masked key
+     * @param hash
+     * @return
+     */
+    WeakEntry<K, V> getEntry( Object key, int hash )
+    {
+      //
+      WeakEntry<K, V> retval = null;
+      
+      //
+      if ( this.count != 0 )
+      {
+        final AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+        for ( WeakEntry<K, V> entry = table.get( hash & ( table.length() - 1 ) ); entry != null && retval == null; entry = entry.next )
+        {
+          if ( entry.matches( key, hash ) )
+          {
+            retval = entry;
+          }
+        }
+      }
+      
+      //
+      if ( ( ++this.readCounter & ( READS_PER_CLEANUP - 1 ) ) == 0 )
+      {
+        this.tryRemoveStaleEntries();
+      }
+      
+      //
+      return retval;
+    }
+    
+    /**
+     * @param key
+     *          : masked key
+     * @param hash
+     * @param value
+     * @return the previous value
+     */
+    V put( Object key, int hash, V value )
+    {
+      //
+      V retval = null;
+      
+      //
+      this.lock();
+      try
+      {
+        //
+        this.removeStaleEntries();
+        
+        //
+        AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+        WeakEntry<K, V> entry = table.get( hash & ( table.length() - 1 ) );
+        while ( entry != null && !entry.matches( key, hash ) )
+        {
+          entry = entry.next;
+        }
+        
+        //
+        if ( entry != null )
+        {
+          retval = entry.value;
+          entry.value = value;
+        }
+        else
+        {
+          //
+          if ( this.count + 1 > table.length() * LOAD_FACTOR )
+          {
+            table = this.rehash();
+          }
+          
+          //
+          final int index = hash & ( table.length() - 1 );
+          table.set( index, new WeakEntry<K, V>( key, hash, value, table.get( index ), this.referenceQueue ) );
+          this.count++;
+        }
+      }
+      finally
+      {
+        this.unlock();
+      }
+      
+      //
+      return retval;
+    }
+    
+    /**
+     * @param key
+     *          : masked key
+     * @param hash
+     * @return the removed value
+     */
+    V remove( Object key, int hash )
+    {
+      //
+      V retval = null;
+      
+      //
+      this.lock();
+      try
+      {
+        //
+        this.removeStaleEntries();
+        
+        //
+        final AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+        final int index = hash & ( table.length() - 1 );
+        for ( WeakEntry<K, V> entry = table.get( index ); entry != null; entry = entry.next )
+        {
+          if ( entry.matches( key, hash ) )
+          {
+            retval = entry.value;
+            this.removeEntry( table, index, entry );
+            break;
+          }
+        }
+      }
+      finally
+      {
+        this.unlock();
+      }
+      
+      //
+      return retval;
+    }
+    
+    /**
+     * Removes all entries
+     */
+    void clear()
+    {
+      this.lock();
+      try
+      {
+        //
+        this.table = new AtomicReferenceArray<WeakEntry<K, V>>( INITIAL_SEGMENT_CAPACITY );
+        this.count = 0;
+        
+        //
+        while ( this.referenceQueue.poll() != null )
+        {
+        }
+      }
+      finally
+      {
+        this.unlock();
+      }
+    }
+    
+    /**
+     * Returns the number of entries after removing the entries with cleared keys
+     * 
+     * @return
+     */
+    int size()
+    {
+      this.tryRemoveStaleEntries();
+      return this.count;
+    }
+    
+    /**
+     * Puts all entries with a key which has not been cleared into the given {@link Map}
+     * 
+     * @param map
+     */
+    @SuppressWarnings("unchecked")
+    void copyTo( Map<K, V> map )
+    {
+      final AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+      for ( int ii = 0; ii < table.length(); ii++ )
+      {
+        for ( WeakEntry<K, V> entry = table.get( ii ); entry != null; entry = entry.next )
+        {
+          final Object key = entry.get();
+          if ( key != null )
+          {
+            map.put( (K) unmaskNull( key ), entry.value );
+          }
+        }
+      }
+    }
+    
+    /**
+     * Removes the entries with cleared keys if the lock is not held by any other {@link Thread}
+     */
+    private void tryRemoveStaleEntries()
+    {
+      if ( this.tryLock() )
+      {
+        try
+        {
+          this.removeStaleEntries();
+        }
+        finally
+        {
+          this.unlock();
+        }
+      }
+    }
+    
+    /**
+     * Removes all entries whose key has been cleared by the garbage collector. Has to be called with the lock held.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeStaleEntries()
+    {
+      for ( Reference<?> reference = this.referenceQueue.poll(); reference != null; reference = this.referenceQueue.poll() )
+      {
+        //
+        final WeakEntry<K, V> staleEntry = (WeakEntry<K, V>) reference;
+        final AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+        final int index = staleEntry.hash & ( table.length() - 1 );
+        for ( WeakEntry<K, V> entry = table.get( index ); entry != null; entry = entry.next )
+        {
+          if ( entry == staleEntry )
+          {
+            this.removeEntry( table, index, entry );
+            break;
+          }
+        }
+      }
+    }
+    
+    /**
+     * Removes the given {@link WeakEntry} by copying all preceding {@link WeakEntry}s of the chain, so concurrent readers still
+     * see a consistent chain. Has to be called with the lock held.
+     * 
+     * @param table
+     * @param index
+     * @param removedEntry
+     */
+    private void removeEntry( AtomicReferenceArray<WeakEntry<K, V>> table, int index, WeakEntry<K, V> removedEntry )
+    {
+      //
+      WeakEntry<K, V> first = removedEntry.next;
+      for ( WeakEntry<K, V> entry = table.get( index ); entry != removedEntry; entry = entry.next )
+      {
+        //
+        final Object key = entry.get();
+        if ( key != null )
+        {
+          first = new WeakEntry<K, V>( key, entry.hash, entry.value, first, this.referenceQueue );
+        }
+        else
+        {
+          this.count--;
+        }
+      }
+      
+      //
+      table.set( index, first );
+      this.count--;
+      removedEntry.clear();
+    }
+    
+    /**
+     * Doubles the size of the table. Has to be called with the lock held.
+     * 
+     * @return the new table
+     */
+    private AtomicReferenceArray<WeakEntry<K, V>> rehash()
+    {
+      //
+      final AtomicReferenceArray<WeakEntry<K, V>> table = this.table;
+      final AtomicReferenceArray<WeakEntry<K, V>> retval = new AtomicReferenceArray<WeakEntry<K, V>>( table.length() << 1 );
+      
+      //
+      int count = 0;
+      for ( int ii = 0; ii < table.length(); ii++ )
+      {
+        for ( WeakEntry<K, V> entry = table.get( ii ); entry != null; entry = entry.next )
+        {
+          final Object key = entry.get();
+          if ( key != null )
+          {
+            final int index = entry.hash & ( retval.length() - 1 );
+            retval.set( index, new WeakEntry<K, V>( key, entry.hash, entry.value, retval.get( index ), this.referenceQueue ) );
+            count++;
+          }
+        }
+      }
+      
+      //
+      this.table = retval;
+      this.count = count;
+      
+      //
+      return retval;
+    }
+  }
+  
+  /**
+   * Replaces the {@link ConcurrentWeakReferenceCache} during serialization
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class SerializationProxy<K, V> implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long         serialVersionUID = 7393530416223185424L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final int                 numberOfSegments;
+    private final LinkedHashMap<K, V> map;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param numberOfSegments
+     * @param map
+     */
+    SerializationProxy( int numberOfSegments, LinkedHashMap<K, V> map )
+    {
+      super();
+      this.numberOfSegments = numberOfSegments;
+      this.map = map;
+    }
+    
+    private Object readResolve()
+    {
+      final ConcurrentWeakReferenceCache<K, V> retval = new ConcurrentWeakReferenceCache<K, V>( this.numberOfSegments );
+      retval.putAll( this.map );
+      return retval;
+    }
+  }
   
   /* ********************************************** Methods ********************************************** */
   
   /**
-   * This does create a {@link ConcurrentWeakReferenceCache} which uses as many segments as the
+   * This does create a {@link ConcurrentWeakReferenceCache} which uses four times as many segments as the
    * {@link Runtime#availableProcessors()} returns
    * 
    * @see ConcurrentWeakReferenceCache
    */
   public ConcurrentWeakReferenceCache()
   {
-    this( Runtime.getRuntime().availableProcessors() );
+    this( Runtime.getRuntime().availableProcessors() * 4 );
   }
   
   /**
    * @see ConcurrentWeakReferenceCache
    * @param numberOfSegments
+   *          : is rounded up to the next power of two
    */
+  @SuppressWarnings("unchecked")
   public ConcurrentWeakReferenceCache( int numberOfSegments )
   {
     //
     super();
-    this.numberOfSegments = numberOfSegments;
     
     //
-    this.cacheList = newCacheList( numberOfSegments );
+    int segmentBits = 0;
+    while ( ( 1 << segmentBits ) < Math.min( Math.max( numberOfSegments, 1 ), MAXIMUM_SEGMENTS ) )
+    {
+      segmentBits++;
+    }
+    this.segmentShift = 32 - segmentBits;
+    this.segmentMask = ( 1 << segmentBits ) - 1;
+    
+    //
+    this.segments = new Segment[1 << segmentBits];
+    for ( int ii = 0; ii < this.segments.length; ii++ )
+    {
+      this.segments[ii] = new Segment<K, V>();
+    }
   }
   
-  /**
-   * @param numberOfSegments
-   * @return
-   */
-  private static <K, V> List<Cache<K, V>> newCacheList( int numberOfSegments )
+  @Override
+  public int size()
   {
     //
-    final List<Cache<K, V>> retlist = new CopyOnWriteArrayList<Cache<K, V>>();
+    int retval = 0;
     
     //
-    for ( int ii = 0; ii < numberOfSegments; ii++ )
+    for ( Segment<K, V> segment : this.segments )
     {
-      retlist.add( new SynchronizedWeakReferenceCache<K, V>() );
+      retval += segment.size();
     }
     
     //
-    return retlist;
-  }
-  
-  @Override
-  public int size()
-  {
-    return this.getCache().size();
+    return retval;
   }
   
   @Override
   public boolean isEmpty()
   {
-    return this.getCache().isEmpty();
+    return this.size() == 0;
   }
   
   @Override
   public boolean containsKey( Object key )
   {
-    return this.getCache().containsKey( key );
+    final Object maskedKey = maskNull( key );
+    final int hash = hash( maskedKey );
+    return this.segmentFor( hash ).getEntry( maskedKey, hash ) != null;
   }
   
   @Override
   public boolean containsValue( Object value )
   {
-    return this.getCache().containsValue( value );
+    return this.snapshot().containsValue( value );
   }
   
   @Override
   public V get( Object key )
   {
-    return this.getCache().get( key );
+    //
+    final Object maskedKey = maskNull( key );
+    final int hash = hash( maskedKey );
+    final WeakEntry<K, V> entry = this.segmentFor( hash ).getEntry( maskedKey, hash );
+    
+    //
+    return entry != null ? entry.value : null;
   }
   
   @Override
   public V put( final K key, final V value )
   {
-    //
-    final ElementHolder<V> retval = new ElementHolder<V>();
-    
-    //
-    final Operation<Void, Cache<K, V>> operation = new Operation<Void, Cache<K, V>>()
-    {
-      @Override
-      public Void execute( Cache<K, V> parameter )
-      {
-        retval.setElement( parameter.put( key, value ) );
-        return null;
-      }
-    };
-    this.executeOnAllCacheSegments( operation );
-    
-    //
-    return retval.getElement();
+    final Object maskedKey = maskNull( key );
+    final int hash = hash( maskedKey );
+    return this.segmentFor( hash ).put( maskedKey, hash, value );
   }
   
   @Override
   public V remove( final Object key )
   {
-    //
-    final ElementHolder<V> retval = new ElementHolder<V>();
-    
-    //
-    final Operation<Void, Cache<K, V>> operation = new Operation<Void, Cache<K, V>>()
-    {
-      @Override
-      public Void execute( Cache<K, V> parameter )
-      {
-        retval.setElement( parameter.remove( key ) );
-        return null;
-      }
-    };
-    this.executeOnAllCacheSegments( operation );
-    
-    //
-    return retval.getElement();
+    final Object maskedKey = maskNull( key );
+    final int hash = hash( maskedKey );
+    return this.segmentFor( hash ).remove( maskedKey, hash );
   }
   
   @Override
   public void putAll( final Map<? extends K, ? extends V> m )
   {
-    Operation<Void, Cache<K, V>> operation = new Operation<Void, Cache<K, V>>()
+    if ( m != null )
     {
-      @Override
-      public Void execute( Cache<K, V> parameter )
+      for ( Entry<? extends K, ? extends V> entry : m.entrySet() )
       {
-        parameter.putAll( m );
-        return null;
+        this.put( entry.getKey(), entry.getValue() );
       }
-    };
-    this.executeOnAllCacheSegments( operation );
+    }
   }
   
   @Override
   public void clear()
   {
-    Operation<Void, Cache<K, V>> operation = new Operation<Void, Cache<K, V>>()
+    for ( Segment<K, V> segment : this.segments )
     {
-      @Override
-      public Void execute( Cache<K, V> parameter )
-      {
-        parameter.clear();
-        return null;
-      }
-    };
-    this.executeOnAllCacheSegments( operation );
+      segment.clear();
+    }
   }
   
   @Override
   public Set<K> keySet()
   {
-    return this.getCache().keySet();
+    return Collections.unmodifiableSet( this.snapshot().keySet() );
   }
   
   @Override
   public Collection<V> values()
   {
-    return this.getCache().values();
+    return Collections.unmodifiableCollection( this.snapshot().values() );
   }
   
   @Override
   public Set<java.util.Map.Entry<K, V>> entrySet()
   {
-    return this.getCache().entrySet();
+    return Collections.unmodifiableMap( this.snapshot() ).entrySet();
   }
   
   @Override
   public boolean equals( Object o )
   {
-    return this.getCache().equals( o );
+    return o == this || ( o instanceof Map && this.snapshot().equals( o ) );
   }
   
   @Override
   public int hashCode()
   {
-    return this.getCache().hashCode();
+    return this.snapshot().hashCode();
+  }
+  
+  @Override
+  public String toString()
+  {
+    return this.snapshot().toString();
+  }
+  
+  private Object writeReplace()
+  {
+    return new SerializationProxy<K, V>( this.segments.length, this.snapshot() );
   }
   
   /**
-   * Executes the given {@link Operation} on all {@link Cache} segments
+   * Returns a new {@link LinkedHashMap} with all entries whose keys have not been cleared
    * 
-   * @param operation
+   * @return
    */
-  private void executeOnAllCacheSegments( Operation<Void, Cache<K, V>> operation )
+  private LinkedHashMap<K, V> snapshot()
   {
-    for ( Cache<K, V> cache : this.cacheList )
+    //
+    final LinkedHashMap<K, V> retmap = new LinkedHashMap<K, V>();
+    
+    //
+    for ( Segment<K, V> segment : this.segments )
     {
-      operation.execute( cache );
+      segment.copyTo( retmap );
     }
+    
+    //
+    return retmap;
+  }
+  
+  /**
+   * @param hash
+   * @return the {@link Segment} responsible for the given hash
+   */
+  private Segment<K, V> segmentFor( int hash )
+  {
+    return this.segments[( hash >>> this.segmentShift ) & this.segmentMask];
   }
   
   /**
-   * Returns every time a new one of the segment caches. This does move the internal pointer the opposite ways the
-   * {@link #executeOnAllCacheSegments(Operation)} will move through all the cache segments. This ensures only blocking once and
-   * not getting a race condition between the read and write iteraton.
+   * Spreads the bits of the hash code of the given masked key, so the upper bits select the segment and the lower bits the
+   * bucket
    * 
+   * @param maskedKey
    * @return
    */
-  private Cache<K, V> getCache()
+  private static int hash( Object maskedKey )
   {
-    //
-    final int numberOfSegments = this.numberOfSegments;
-    final int index = ( numberOfSegments - 1 )
-                      - ( Math.abs( (int) this.currentSegmentCounter.getAndIncrement() ) % numberOfSegments );
-    return this.cacheList.get( index );
+    final int hash = maskedKey.hashCode() * 0x9e3779b9;
+    return hash ^ ( hash >>> 16 );
+  }
+  
+  /**
+   * @param key
+   * @return the key or the {@link #NULL_KEY} if the key is null
+   */
+  private static Object maskNull( Object key )
+  {
+    return key != null ? key : NULL_KEY;
   }
   
+  /**
+   * @param maskedKey
+   * @return the key or null if the key is the {@link #NULL_KEY}
+   */
+  private static Object unmaskNull( Object maskedKey )
+  {
+    return maskedKey == NULL_KEY ? null : maskedKey;
+  }
 }
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+/**
+ * Probabilistic estimation of the access frequency of keys using a count-min sketch with 4-bit counters. To keep the estimation
+ * fresh all counters are halved after a number of increments proportional to the maximum number of entries of the cache
+ * ("aging").<br>
+ * <br>
+ * Instances are not thread safe and have to be guarded by the owning {@link BoundedCache}.
+ * 
+ * @see BoundedCache
+ * @author Omnaest
+ */
+class FrequencySketch
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long[] SEEDS          = new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L                   };
+  private static final long   RESET_MASK     = 0x7777777777777777L;
+  private static final int    MAXIMUM_COUNT  = 15;
+  private static final int    SAMPLE_FACTOR  = 10;
+  
+  /* ********************************************** Variables ********************************************** */
+  private long[]              table;
+  private int                 tableMask;
+  private int                 sampleSize;
+  private int                 additionCounter = 0;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @param maximumSize
+   *          : the expected maximum number of entries which should be tracked
+   */
+  FrequencySketch( long maximumSize )
+  {
+    super();
+    this.ensureCapacity( maximumSize );
+  }
+  
+  /**
+   * Enlarges the sketch, if it is too small for the given number of entries. If the sketch is enlarged, all previous frequencies
+   * are lost.
+   * 
+   * @param maximumSize
+   */
+  void ensureCapacity( long maximumSize )
+  {
+    //
+    final int size = (int) Math.min( Math.max( maximumSize, 16 ), 1 << 30 );
+    final int tableLength = Integer.highestOneBit( size - 1 ) << 1;
+    if ( this.table == null || this.table.length < tableLength )
+    {
+      this.table = new long[tableLength];
+      this.tableMask = tableLength - 1;
+      this.sampleSize = (int) Math.min( (long) size * SAMPLE_FACTOR, Integer.MAX_VALUE );
+      this.additionCounter = 0;
+    }
+  }
+  
+  /**
+   * Returns the length of the underlying table, which is the number of entries the sketch is optimized for
+   * 
+   * @return
+   */
+  int capacity()
+  {
+    return this.table.length;
+  }
+  
+  /**
+   * Returns the estimated number of occurrences of the given hash, which is at most 15
+   * 
+   * @param hash
+   * @return
+   */
+  int frequency( int hash )
+  {
+    //
+    int retval = MAXIMUM_COUNT;
+    
+    //
+    final int start = ( hash & 3 ) << 2;
+    for ( int ii = 0; ii < SEEDS.length; ii++ )
+    {
+      final int index = this.indexOf( hash, ii );
+      final int count = (int) ( ( this.table[index] >>> ( ( start + ii ) << 2 ) ) & 0xfL );
+      retval = Math.min( retval, count );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Increments the estimated frequency of the given hash
+   * 
+   * @param hash
+   */
+  void increment( int hash )
+  {
+    //
+    final int start = ( hash & 3 ) << 2;
+    boolean added = false;
+    for ( int ii = 0; ii < SEEDS.length; ii++ )
+    {
+      final int index = this.indexOf( hash, ii );
+      added |= this.incrementAt( index, start + ii );
+    }
+    
+    //
+    if ( added && ++this.additionCounter >= this.sampleSize )
+    {
+      this.reset();
+    }
+  }
+  
+  /**
+   * @param index
+   * @param counterIndex
+   * @return true, if the counter has been incremented
+   */
+  private boolean incrementAt( int index, int counterIndex )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    final int offset = counterIndex << 2;
+    final long mask = 0xfL << offset;
+    if ( ( this.table[index] & mask ) != mask )
+    {
+      this.table[index] += 1L << offset;
+      retval = true;
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Halves all counters
+   */
+  private void reset()
+  {
+    //
+    int oddCounter = 0;
+    for ( int ii = 0; ii < this.table.length; ii++ )
+    {
+      oddCounter += Long.bitCount( this.table[ii] & 0x1111111111111111L );
+      this.table[ii] = ( this.table[ii] >>> 1 ) & RESET_MASK;
+    }
+    
+    //
+    this.additionCounter = ( this.additionCounter >>> 1 ) - ( oddCounter >>> 2 );
+  }
+  
+  /**
+   * @param hash
+   * @param depth
+   * @return
+   */
+  private int indexOf( int hash, int depth )
+  {
+    long value = ( hash + SEEDS[depth] ) * SEEDS[depth];
+    value += value >>> 32;
+    return ( (int) value ) & this.tableMask;
+  }
+}
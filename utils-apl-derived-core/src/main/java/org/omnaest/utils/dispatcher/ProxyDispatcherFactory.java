@@ -16,29 +16,134 @@
 package org.omnaest.utils.dispatcher;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
 import org.omnaest.utils.proxy.StubCreator;
 import org.omnaest.utils.proxy.handler.MethodCallCapture;
 import org.omnaest.utils.proxy.handler.MethodInvocationHandler;
 import org.omnaest.utils.structure.element.ObjectUtils;
+import org.omnaest.utils.threads.submit.Reducer.ValuesHandler;
 
 /**
  * A {@link ProxyDispatcherFactory} generates a proxy which will dispatch to a given {@link List} of instances implementing the
- * same shared type
+ * same shared type<br>
+ * <br>
+ * The dispatch can be done in different {@link DispatchMode}s:
+ * <ul>
+ * <li>{@link #doDispatchSequential()}: one instance after another within the calling {@link Thread}, which is the default</li>
+ * <li>{@link #doDispatchParallel(ExecutorService, long, TimeUnit)}: all instances in parallel, the calling {@link Thread} waits
+ * for all of them until the given timeout</li>
+ * <li>{@link #doDispatchFireAndForget(ExecutorService, int)}: all instances in parallel without waiting, limited by a maximum
+ * number of pending invocations</li>
+ * </ul>
+ * The return values of the instances are discarded, unless a result reducer is given by
+ * {@link #setResultReducer(ValuesHandler)}.<br>
+ * <br>
+ * Any failing, timed out or rejected invocation of an instance is reported to the {@link ExceptionHandler} as
+ * {@link DispatchException}, which contains the instance and the latency of the invocation. Invocations which take longer than
+ * the threshold given by {@link #setLatencyThreshold(long, TimeUnit)} are reported as well.
  * 
  * @author Omnaest
  * @param <T>
  */
 public class ProxyDispatcherFactory<T>
 {
+  /* ************************************************** Constants *************************************************** */
+  private static final Object           NO_RESULT                     = new Object();
   /* ************************************** Variables / State (internal/hiding) ************************************* */
-  private final StubCreator<T> stubCreator;
+  private final StubCreator<T>          stubCreator;
+  private DispatchMode                  dispatchMode                  = DispatchMode.SEQUENTIAL;
+  private long                          timeoutInNanoseconds          = Long.MAX_VALUE;
+  private Semaphore                     pendingInvocationSemaphore    = null;
+  private long                          latencyThresholdInNanoseconds = -1;
   
   /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
-  private ExceptionHandler     exceptionHandler = new ExceptionHandlerIgnoring();
+  private ExceptionHandler              exceptionHandler              = new ExceptionHandlerIgnoring();
+  private ExecutorService               executorService               = null;
+  private ValuesHandler<Object, Object> resultReducer                 = null;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * @see ProxyDispatcherFactory
+   * @author Omnaest
+   */
+  public static enum DispatchMode
+  {
+    SEQUENTIAL,
+    PARALLEL,
+    FIRE_AND_FORGET
+  }
+  
+  /**
+   * Reports a failing, timed out, rejected or slow invocation of a single dispatch instance
+   * 
+   * @see ProxyDispatcherFactory
+   * @author Omnaest
+   */
+  public static class DispatchException extends Exception
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long serialVersionUID = -2338237545063462812L;
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final transient Object instance;
+    private final transient Method method;
+    private final long             durationInNanoseconds;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see DispatchException
+     * @param message
+     * @param instance
+     * @param method
+     * @param durationInNanoseconds
+     * @param cause
+     */
+    public DispatchException( String message, Object instance, Method method, long durationInNanoseconds, Throwable cause )
+    {
+      super( message + " (method=" + method + ", instance=" + instance + ", duration="
+             + TimeUnit.NANOSECONDS.toMillis( durationInNanoseconds ) + "ms)", cause );
+      this.instance = instance;
+      this.method = method;
+      this.durationInNanoseconds = durationInNanoseconds;
+    }
+    
+    /**
+     * @return the dispatch instance
+     */
+    public Object getInstance()
+    {
+      return this.instance;
+    }
+    
+    /**
+     * @return the dispatched {@link Method}
+     */
+    public Method getMethod()
+    {
+      return this.method;
+    }
+    
+    /**
+     * @return the latency of the invocation until it returned, failed or timed out
+     */
+    public long getDurationInNanoseconds()
+    {
+      return this.durationInNanoseconds;
+    }
+  }
   
   /* *************************************************** Methods **************************************************** */
   
@@ -56,25 +161,275 @@ public class ProxyDispatcherFactory<T>
       @Override
       public Object handle( MethodCallCapture methodCallCapture ) throws Throwable
       {
-        for ( T instance : instanceList )
+        //
+        final List<Object> resultList = new ArrayList<Object>();
+        
+        //
+        final DispatchMode dispatchMode = ProxyDispatcherFactory.this.dispatchMode;
+        if ( DispatchMode.PARALLEL.equals( dispatchMode ) )
         {
-          try
-          {
-            Method method = methodCallCapture.getMethod();
-            method.invoke( instance, methodCallCapture.getArguments() );
-          }
-          catch ( Exception e )
+          ProxyDispatcherFactory.this.dispatchParallel( instanceList, methodCallCapture, resultList );
+        }
+        else if ( DispatchMode.FIRE_AND_FORGET.equals( dispatchMode ) )
+        {
+          ProxyDispatcherFactory.this.dispatchFireAndForget( instanceList, methodCallCapture );
+        }
+        else
+        {
+          for ( T instance : instanceList )
           {
-            ProxyDispatcherFactory.this.exceptionHandler.handleException( e );
+            final Object result = ProxyDispatcherFactory.this.invoke( instance, methodCallCapture );
+            if ( result != NO_RESULT )
+            {
+              resultList.add( result );
+            }
           }
         }
-        return null;
+        
+        //
+        final ValuesHandler<Object, Object> resultReducer = ProxyDispatcherFactory.this.resultReducer;
+        return resultReducer != null ? resultReducer.reduce( resultList ) : null;
       }
     };
     
     return this.stubCreator.build( methodInvocationHandler );
   }
   
+  private void dispatchParallel( List<? extends T> instanceList, final MethodCallCapture methodCallCapture, List<Object> resultList )
+  {
+    //
+    final long start = System.nanoTime();
+    final List<Future<Object>> futureList = new ArrayList<Future<Object>>( instanceList.size() );
+    for ( final T instance : instanceList )
+    {
+      try
+      {
+        futureList.add( this.executorService.submit( new Callable<Object>()
+        {
+          @Override
+          public Object call() throws Exception
+          {
+            return ProxyDispatcherFactory.this.invoke( instance, methodCallCapture );
+          }
+        } ) );
+      }
+      catch ( RejectedExecutionException e )
+      {
+        futureList.add( null );
+        this.exceptionHandler.handleException( new DispatchException( "Dispatch rejected", instance,
+                                                                      methodCallCapture.getMethod(), 0, e ) );
+      }
+    }
+    
+    //
+    for ( int ii = 0; ii < futureList.size(); ii++ )
+    {
+      final Future<Object> future = futureList.get( ii );
+      if ( future != null )
+      {
+        try
+        {
+          final long timeoutRemaining = this.timeoutInNanoseconds == Long.MAX_VALUE ? Long.MAX_VALUE
+                                                                                    : this.timeoutInNanoseconds
+                                                                                      - ( System.nanoTime() - start );
+          final Object result = future.get( Math.max( 0, timeoutRemaining ), TimeUnit.NANOSECONDS );
+          if ( result != NO_RESULT )
+          {
+            resultList.add( result );
+          }
+        }
+        catch ( TimeoutException e )
+        {
+          future.cancel( true );
+          this.exceptionHandler.handleException( new DispatchException( "Dispatch timed out", instanceList.get( ii ),
+                                                                        methodCallCapture.getMethod(), System.nanoTime()
+                                                                                                       - start, e ) );
+        }
+        catch ( InterruptedException e )
+        {
+          future.cancel( true );
+          Thread.currentThread().interrupt();
+          this.exceptionHandler.handleException( e );
+        }
+        catch ( Exception e )
+        {
+          this.exceptionHandler.handleException( e );
+        }
+      }
+    }
+  }
+  
+  private void dispatchFireAndForget( List<? extends T> instanceList, final MethodCallCapture methodCallCapture )
+  {
+    final Semaphore pendingInvocationSemaphore = this.pendingInvocationSemaphore;
+    for ( final T instance : instanceList )
+    {
+      if ( pendingInvocationSemaphore.tryAcquire() )
+      {
+        try
+        {
+          this.executorService.execute( new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              try
+              {
+                ProxyDispatcherFactory.this.invoke( instance, methodCallCapture );
+              }
+              finally
+              {
+                pendingInvocationSemaphore.release();
+              }
+            }
+          } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+          pendingInvocationSemaphore.release();
+          this.exceptionHandler.handleException( new DispatchException( "Dispatch rejected", instance,
+                                                                        methodCallCapture.getMethod(), 0, e ) );
+        }
+      }
+      else
+      {
+        this.exceptionHandler.handleException( new DispatchException( "Dispatch rejected since the maximum number of pending invocations is reached",
+                                                                      instance, methodCallCapture.getMethod(), 0, null ) );
+      }
+    }
+  }
+  
+  /**
+   * Invokes the captured method on the given instance and reports any failure or exceeded latency threshold to the
+   * {@link ExceptionHandler}
+   * 
+   * @param instance
+   * @param methodCallCapture
+   * @return result or {@link #NO_RESULT} if the invocation failed
+   */
+  private Object invoke( T instance, MethodCallCapture methodCallCapture )
+  {
+    //
+    Object retval = NO_RESULT;
+    
+    //
+    final long start = System.nanoTime();
+    try
+    {
+      retval = methodCallCapture.invokeOn( instance );
+    }
+    catch ( Throwable e )
+    {
+      this.exceptionHandler.handleException( new DispatchException( "Dispatch failed", instance, methodCallCapture.getMethod(),
+                                                                    System.nanoTime() - start, e ) );
+    }
+    
+    //
+    final long latencyThresholdInNanoseconds = this.latencyThresholdInNanoseconds;
+    if ( retval != NO_RESULT && latencyThresholdInNanoseconds >= 0 )
+    {
+      final long duration = System.nanoTime() - start;
+      if ( duration > latencyThresholdInNanoseconds )
+      {
+        this.exceptionHandler.handleException( new DispatchException( "Dispatch exceeded the latency threshold", instance,
+                                                                      methodCallCapture.getMethod(), duration, null ) );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Dispatches all invocations one instance after another within the calling {@link Thread}. This is the default.
+   * 
+   * @return this
+   */
+  public ProxyDispatcherFactory<T> doDispatchSequential()
+  {
+    this.dispatchMode = DispatchMode.SEQUENTIAL;
+    return this;
+  }
+  
+  /**
+   * Dispatches all invocations in parallel using the given {@link ExecutorService}. The calling {@link Thread} waits for all
+   * instances until the given timeout is reached. Timed out invocations are cancelled and reported as {@link DispatchException}.
+   * 
+   * @param executorService
+   *          {@link ExecutorService}
+   * @param timeout
+   * @param timeUnit
+   *          {@link TimeUnit}
+   * @return this
+   */
+  public ProxyDispatcherFactory<T> doDispatchParallel( ExecutorService executorService, long timeout, TimeUnit timeUnit )
+  {
+    Assert.isNotNull( executorService, "executorService must not be null" );
+    Assert.isNotNull( timeUnit, "timeUnit must not be null" );
+    this.executorService = executorService;
+    this.timeoutInNanoseconds = timeUnit.toNanos( timeout );
+    this.dispatchMode = DispatchMode.PARALLEL;
+    return this;
+  }
+  
+  /**
+   * Dispatches all invocations using the given {@link ExecutorService} without waiting for them. If the number of pending
+   * invocations reaches the given maximum, further invocations are rejected and reported as {@link DispatchException}. The
+   * dispatcher returns the reduced empty result immediately.
+   * 
+   * @param executorService
+   *          {@link ExecutorService}
+   * @param maximumNumberOfPendingInvocations
+   * @return this
+   */
+  public ProxyDispatcherFactory<T> doDispatchFireAndForget( ExecutorService executorService, int maximumNumberOfPendingInvocations )
+  {
+    Assert.isNotNull( executorService, "executorService must not be null" );
+    Assert.isTrue( maximumNumberOfPendingInvocations > 0, "maximumNumberOfPendingInvocations must be positive" );
+    this.executorService = executorService;
+    this.pendingInvocationSemaphore = new Semaphore( maximumNumberOfPendingInvocations );
+    this.dispatchMode = DispatchMode.FIRE_AND_FORGET;
+    return this;
+  }
+  
+  /**
+   * Sets a result reducer which reduces the return values of all successful invocations to the return value of the dispatcher.
+   * The return values are given in the order of the instances. If no result reducer is set, the dispatcher returns null.
+   * 
+   * @param resultReducer
+   *          {@link ValuesHandler}
+   * @return this
+   */
+  @SuppressWarnings("unchecked")
+  public ProxyDispatcherFactory<T> setResultReducer( ValuesHandler<Object, ?> resultReducer )
+  {
+    this.resultReducer = (ValuesHandler<Object, Object>) resultReducer;
+    return this;
+  }
+  
+  /**
+   * Sets a latency threshold. Any invocation of an instance which takes longer is reported as {@link DispatchException} to the
+   * {@link ExceptionHandler}. A negative value disables the reporting, which is the default.
+   * 
+   * @param latencyThreshold
+   * @param timeUnit
+   *          {@link TimeUnit}
+   * @return this
+   */
+  public ProxyDispatcherFactory<T> setLatencyThreshold( long latencyThreshold, TimeUnit timeUnit )
+  {
+    this.latencyThresholdInNanoseconds = latencyThreshold >= 0 ? timeUnit.toNanos( latencyThreshold ) : -1;
+    return this;
+  }
+  
+  /**
+   * @return current {@link DispatchMode}
+   */
+  public DispatchMode getDispatchMode()
+  {
+    return this.dispatchMode;
+  }
+  
   /**
    * @param exceptionHandler
    *          {@link ExceptionHandler}
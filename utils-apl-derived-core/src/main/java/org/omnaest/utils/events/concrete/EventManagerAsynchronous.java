@@ -0,0 +1,1238 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.events.concrete;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.events.EventListener;
+import org.omnaest.utils.events.EventListenerRegistration;
+import org.omnaest.utils.events.EventManager;
+import org.omnaest.utils.events.EventManagerConnector;
+import org.omnaest.utils.events.event.EventResults;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+
+/**
+ * Asynchronous {@link EventManager} which decouples the event producing {@link Thread}s from the {@link EventListener}s using a
+ * preallocated ring buffer, similar to the LMAX Disruptor.<br>
+ * <br>
+ * {@link #fireEvent(Object)} only claims the next slot of the ring buffer, writes the event into it and returns immediately. Every
+ * registered {@link EventListener} has its own consumer running within the given {@link ExecutorService}, which follows the
+ * ring buffer in the order of the claimed sequences and processes all events which are available at once as a batch. So every
+ * {@link EventListener} receives the events in the order they have been fired, but a slow {@link EventListener} does neither
+ * block the producers nor any other {@link EventListener}, as long as the ring buffer has free slots.<br>
+ * <br>
+ * If the slowest {@link EventListener} falls behind for the whole capacity of the ring buffer, the {@link BackpressureStrategy}
+ * decides if the producer waits or if the event is dropped. How producers and consumers wait is determined by the
+ * {@link WaitStrategy}, see {@link BlockingWaitStrategy}, {@link SleepingWaitStrategy}, {@link YieldingWaitStrategy} and
+ * {@link BusySpinWaitStrategy}.<br>
+ * <br>
+ * The registered {@link EventListener}s are held in a copy on write array, and every event only references the array which was
+ * current at the time it has been fired, so no listener list is copied per event. An {@link EventListener} receives all events
+ * fired after its registration. If it is removed it still receives the events which have been fired before.<br>
+ * <br>
+ * Since {@link #fireEvent(Object)} returns before the {@link EventListener}s are invoked, it always returns empty
+ * {@link EventResults}. Use {@link #fireEventWithFuture(Object)} to get the {@link EventResults} of all {@link EventListener}s
+ * as {@link Future}.<br>
+ * <br>
+ * Exceptions and {@link Error}s thrown by an {@link EventListener} are passed to the {@link ExceptionHandler} and do not stop
+ * the delivery. If a consumer is interrupted, e.g. by {@link ExecutorService#shutdownNow()}, its {@link EventListener} is removed
+ * and the {@link Future}s of the events it has not processed yet fail with an {@link ExecutionException}. {@link #shutdown()}
+ * removes all {@link EventListener}s and shuts down the internal {@link ExecutorService}.<br>
+ * <br>
+ * Although {@link EventManager} is {@link Serializable}, an {@link EventManagerAsynchronous} can not be serialized, since its
+ * consumers are running {@link Thread}s. Serializing it throws a {@link NotSerializableException}.
+ * 
+ * @see EventManagerImpl
+ * @param <EVENT>
+ * @param <RESULT>
+ * @author Omnaest
+ */
+public class EventManagerAsynchronous<EVENT, RESULT> implements EventManager<EVENT, RESULT>
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long                          serialVersionUID          = -5302318016530954412L;
+  public final static int                            DEFAULT_CAPACITY          = 1024;
+  
+  @SuppressWarnings("rawtypes")
+  private final static EventResults                  EVENT_RESULTS_EMPTY       = new EventResults<Object>( Collections.emptyList() );
+  @SuppressWarnings("rawtypes")
+  private final static ListenerConsumer[]            LISTENER_CONSUMERS_EMPTY  = new ListenerConsumer[0];
+  
+  /* ********************************************** Variables ********************************************** */
+  private final Slot<EVENT, RESULT>[]                ringBuffer;
+  private final int                                  capacity;
+  private final int                                  indexMask;
+  private final AtomicLong                           cursor                    = new AtomicLong( -1 );
+  private volatile long                              gatingSequenceCache       = -1;
+  private final AtomicLong                           numberOfDroppedEvents     = new AtomicLong();
+  
+  private final Lock                                 registryLock              = new ReentrantLock();
+  private volatile ListenerConsumer<EVENT, RESULT>[] activeListenerConsumers;
+  private volatile ListenerConsumer<EVENT, RESULT>[] gatingListenerConsumers;
+  
+  private final WaitStrategy                         waitStrategy;
+  private final BackpressureStrategy                 backpressureStrategy;
+  private final ExecutorService                      executorService;
+  private final boolean                              executorServiceInternal;
+  private final ExceptionHandler                     exceptionHandler;
+  
+  protected EventListenerRegistration<EVENT, RESULT> eventListenerRegistration = new EventListenerRegistrationAsynchronous();
+  protected EventManagerConnector<EVENT, RESULT>     eventManagerConnector     = new EventManagerConnectorImpl<EVENT, RESULT>( this );
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Determines what {@link EventManagerAsynchronous#fireEvent(Object)} does if the ring buffer is full, since the slowest
+   * {@link EventListener} has not yet processed the event which has been fired one capacity before
+   * 
+   * @author Omnaest
+   */
+  public static enum BackpressureStrategy
+  {
+    /**
+     * The producing {@link Thread} waits using the {@link WaitStrategy} until a slot is free
+     */
+    BLOCK,
+    /**
+     * The event is dropped, see {@link EventManagerAsynchronous#getNumberOfDroppedEvents()}
+     */
+    DROP
+  }
+  
+  /**
+   * Condition a {@link WaitStrategy} waits for
+   * 
+   * @author Omnaest
+   */
+  public static interface Availability
+  {
+    /**
+     * @return true if the waiting {@link Thread} can continue
+     */
+    public boolean isAvailable();
+  }
+  
+  /**
+   * Strategy how consumers wait for new events and producers wait for free slots
+   * 
+   * @author Omnaest
+   */
+  public static interface WaitStrategy
+  {
+    /**
+     * Returns as soon as the given {@link Availability} is given
+     * 
+     * @param availability
+     * @throws InterruptedException
+     */
+    public void waitFor( Availability availability ) throws InterruptedException;
+    
+    /**
+     * Is invoked after an event has been published or processed, so that waiting {@link Thread}s can check their
+     * {@link Availability} again
+     */
+    public void signalAll();
+  }
+  
+  /**
+   * {@link WaitStrategy} which spins shortly and then parks the waiting {@link Thread}s on a {@link Condition} until they are
+   * signaled. It uses the least CPU and is the best choice if there are more {@link Thread}s than processors, at the cost of a
+   * lock acquisition per signal while any {@link Thread} is waiting.
+   * 
+   * @author Omnaest
+   */
+  public static class BlockingWaitStrategy implements WaitStrategy
+  {
+    /* ********************************************** Constants ********************************************** */
+    private final static int    SPIN_TRIES      = 100;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final Lock          lock            = new ReentrantLock();
+    private final Condition     condition       = this.lock.newCondition();
+    private final AtomicInteger numberOfWaiters = new AtomicInteger();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    @Override
+    public void waitFor( Availability availability ) throws InterruptedException
+    {
+      //
+      for ( int ii = 0; ii < SPIN_TRIES; ii++ )
+      {
+        if ( availability.isAvailable() )
+        {
+          return;
+        }
+      }
+      
+      //
+      this.lock.lock();
+      try
+      {
+        this.numberOfWaiters.incrementAndGet();
+        while ( !availability.isAvailable() )
+        {
+          this.condition.await();
+        }
+      }
+      finally
+      {
+        this.numberOfWaiters.decrementAndGet();
+        this.lock.unlock();
+      }
+    }
+    
+    @Override
+    public void signalAll()
+    {
+      if ( this.numberOfWaiters.get() > 0 )
+      {
+        this.lock.lock();
+        try
+        {
+          this.condition.signalAll();
+        }
+        finally
+        {
+          this.lock.unlock();
+        }
+      }
+    }
+  }
+  
+  /**
+   * {@link WaitStrategy} which spins, then yields and finally parks the waiting {@link Thread}s for a short time before it checks
+   * again. Signals are free, but idle {@link Thread}s wake up periodically.
+   * 
+   * @author Omnaest
+   */
+  public static class SleepingWaitStrategy implements WaitStrategy
+  {
+    /* ********************************************** Constants ********************************************** */
+    private final static int SPIN_TRIES  = 100;
+    private final static int YIELD_TRIES = 100;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final long       sleepTimeInNanos;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see SleepingWaitStrategy
+     */
+    public SleepingWaitStrategy()
+    {
+      this( 100, TimeUnit.MICROSECONDS );
+    }
+    
+    /**
+     * @see SleepingWaitStrategy
+     * @param sleepTime
+     * @param timeUnit
+     */
+    public SleepingWaitStrategy( long sleepTime, TimeUnit timeUnit )
+    {
+      super();
+      this.sleepTimeInNanos = timeUnit.toNanos( sleepTime );
+    }
+    
+    @Override
+    public void waitFor( Availability availability ) throws InterruptedException
+    {
+      for ( int ii = 0; !availability.isAvailable(); ii++ )
+      {
+        if ( ii >= SPIN_TRIES + YIELD_TRIES )
+        {
+          LockSupport.parkNanos( this.sleepTimeInNanos );
+          if ( Thread.interrupted() )
+          {
+            throw new InterruptedException();
+          }
+        }
+        else if ( ii >= SPIN_TRIES )
+        {
+          Thread.yield();
+        }
+      }
+    }
+    
+    @Override
+    public void signalAll()
+    {
+    }
+  }
+  
+  /**
+   * {@link WaitStrategy} which spins shortly and then yields the processor until the {@link Availability} is given. Offers a low
+   * latency as long as there are at least as many processors as busy {@link Thread}s.
+   * 
+   * @author Omnaest
+   */
+  public static class YieldingWaitStrategy implements WaitStrategy
+  {
+    /* ********************************************** Constants ********************************************** */
+    private final static int SPIN_TRIES = 100;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    @Override
+    public void waitFor( Availability availability ) throws InterruptedException
+    {
+      for ( int ii = 0; !availability.isAvailable(); ii++ )
+      {
+        if ( ii >= SPIN_TRIES )
+        {
+          Thread.yield();
+          if ( Thread.interrupted() )
+          {
+            throw new InterruptedException();
+          }
+        }
+      }
+    }
+    
+    @Override
+    public void signalAll()
+    {
+    }
+  }
+  
+  /**
+   * {@link WaitStrategy} which spins until the {@link Availability} is given. Offers the lowest latency but occupies a processor
+   * per waiting {@link Thread}, so it should only be used if there are more processors than {@link Thread}s.
+   * 
+   * @author Omnaest
+   */
+  public static class BusySpinWaitStrategy implements WaitStrategy
+  {
+    @Override
+    public void waitFor( Availability availability ) throws InterruptedException
+    {
+      while ( !availability.isAvailable() )
+      {
+        if ( Thread.interrupted() )
+        {
+          throw new InterruptedException();
+        }
+      }
+    }
+    
+    @Override
+    public void signalAll()
+    {
+    }
+  }
+  
+  /**
+   * Preallocated entry of the ring buffer. The fields are written before the volatile {@link #sequence} is set, which publishes
+   * them to the consumers.
+   * 
+   * @author Omnaest
+   * @param <EVENT>
+   * @param <RESULT>
+   */
+  private static class Slot<EVENT, RESULT>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private volatile long                     sequence = -1;
+    private EVENT                             event;
+    private ListenerConsumer<EVENT, RESULT>[] listenerConsumers;
+    private EventResultsFuture<RESULT>        eventResultsFuture;
+  }
+  
+  /**
+   * {@link Future} of the {@link EventResults} of a single event, which is completed by the last {@link EventListener} which
+   * processes the event. The results are ordered by the registration order of the {@link EventListener}s.
+   * 
+   * @author Omnaest
+   * @param <RESULT>
+   */
+  private static class EventResultsFuture<RESULT> implements Future<EventResults<RESULT>>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final List<RESULT>[]          resultLists;
+    private final AtomicInteger           numberOfPendingListeners;
+    private final CountDownLatch          countDownLatch = new CountDownLatch( 1 );
+    private volatile EventResults<RESULT> eventResults   = null;
+    private volatile Throwable            failure        = null;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see EventResultsFuture
+     * @param numberOfListeners
+     * @param numberOfPendingListeners
+     */
+    @SuppressWarnings("unchecked")
+    EventResultsFuture( int numberOfListeners, int numberOfPendingListeners )
+    {
+      super();
+      this.resultLists = new List[numberOfListeners];
+      this.numberOfPendingListeners = new AtomicInteger( numberOfPendingListeners );
+      if ( numberOfPendingListeners == 0 )
+      {
+        this.complete();
+      }
+    }
+    
+    /**
+     * Sets the result of the {@link EventListener} with the given index and completes this {@link Future} if it was the last
+     * pending one
+     * 
+     * @param index
+     * @param resultList
+     */
+    void setResultList( int index, List<RESULT> resultList )
+    {
+      this.resultLists[index] = resultList;
+      if ( this.numberOfPendingListeners.decrementAndGet() == 0 )
+      {
+        this.complete();
+      }
+    }
+    
+    /**
+     * Marks the {@link EventListener} with the given index as failed, so that {@link #get()} throws an
+     * {@link ExecutionException}
+     * 
+     * @param index
+     * @param cause
+     */
+    void setFailure( int index, Throwable cause )
+    {
+      if ( this.failure == null )
+      {
+        this.failure = cause;
+      }
+      this.setResultList( index, null );
+    }
+    
+    private void complete()
+    {
+      //
+      final List<RESULT> retlist = new ArrayList<RESULT>();
+      for ( List<RESULT> resultList : this.resultLists )
+      {
+        if ( resultList != null )
+        {
+          retlist.addAll( resultList );
+        }
+      }
+      
+      //
+      this.eventResults = new EventResults<RESULT>( retlist );
+      this.countDownLatch.countDown();
+    }
+    
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+      return false;
+    }
+    
+    @Override
+    public boolean isCancelled()
+    {
+      return false;
+    }
+    
+    @Override
+    public boolean isDone()
+    {
+      return this.eventResults != null;
+    }
+    
+    @Override
+    public EventResults<RESULT> get() throws InterruptedException, ExecutionException
+    {
+      this.countDownLatch.await();
+      return this.determineEventResults();
+    }
+    
+    @Override
+    public EventResults<RESULT> get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException,
+                                                                   TimeoutException
+    {
+      if ( !this.countDownLatch.await( timeout, unit ) )
+      {
+        throw new TimeoutException();
+      }
+      return this.determineEventResults();
+    }
+    
+    private EventResults<RESULT> determineEventResults() throws ExecutionException
+    {
+      //
+      final Throwable failure = this.failure;
+      if ( failure != null )
+      {
+        throw new ExecutionException( failure );
+      }
+      
+      //
+      return this.eventResults;
+    }
+  }
+  
+  /**
+   * Consumer of the ring buffer for a single {@link EventListener}
+   * 
+   * @author Omnaest
+   * @param <EVENT>
+   * @param <RESULT>
+   */
+  private static class ListenerConsumer<EVENT, RESULT> implements Runnable, Availability
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final EventManagerAsynchronous<EVENT, RESULT> eventManager;
+    private final EventListener<EVENT, RESULT>            eventListener;
+    private final AtomicLong                              sequence     = new AtomicLong();
+    private long                                          startSequence;
+    private volatile long                                 haltSequence = Long.MAX_VALUE;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see ListenerConsumer
+     * @param eventManager
+     * @param eventListener
+     */
+    ListenerConsumer( EventManagerAsynchronous<EVENT, RESULT> eventManager, EventListener<EVENT, RESULT> eventListener )
+    {
+      super();
+      this.eventManager = eventManager;
+      this.eventListener = eventListener;
+    }
+    
+    /**
+     * @param sequence
+     * @return true if the given event is delivered to this {@link ListenerConsumer}, which is the case for all events fired
+     *         after its registration
+     */
+    boolean isConsumerOf( long sequence )
+    {
+      return this.startSequence < sequence;
+    }
+    
+    @Override
+    public boolean isAvailable()
+    {
+      final long nextSequence = this.sequence.get() + 1;
+      return nextSequence > this.haltSequence || this.eventManager.isPublished( nextSequence );
+    }
+    
+    @Override
+    public void run()
+    {
+      //
+      final EventManagerAsynchronous<EVENT, RESULT> eventManager = this.eventManager;
+      Throwable cause = null;
+      try
+      {
+        long nextSequence = this.sequence.get() + 1;
+        while ( nextSequence <= this.haltSequence )
+        {
+          //
+          eventManager.waitStrategy.waitFor( this );
+          
+          //
+          final long lastSequence = Math.min( eventManager.determineHighestPublishedSequence( nextSequence ), this.haltSequence );
+          for ( long sequence = nextSequence; sequence <= lastSequence; sequence++ )
+          {
+            this.process( eventManager.ringBuffer[(int) ( sequence & eventManager.indexMask )], sequence );
+          }
+          
+          //
+          if ( lastSequence >= nextSequence )
+          {
+            this.sequence.set( lastSequence );
+            eventManager.waitStrategy.signalAll();
+            nextSequence = lastSequence + 1;
+          }
+        }
+      }
+      catch ( InterruptedException e )
+      {
+        Thread.currentThread().interrupt();
+        cause = e;
+      }
+      catch ( Throwable e )
+      {
+        cause = e;
+        eventManager.handleThrowable( e );
+      }
+      finally
+      {
+        if ( this.sequence.get() < this.haltSequence )
+        {
+          this.abandon( cause );
+        }
+        eventManager.removeGatingListenerConsumer( this );
+      }
+    }
+    
+    /**
+     * Removes this {@link ListenerConsumer} after it has stopped unexpectedly and fails the {@link Future}s of all events which
+     * have been fired to it but have not been processed
+     * 
+     * @param cause
+     */
+    private void abandon( Throwable cause )
+    {
+      //
+      final EventManagerAsynchronous<EVENT, RESULT> eventManager = this.eventManager;
+      eventManager.haltListenerConsumer( this );
+      
+      //
+      final Throwable failure = cause != null ? cause : new IllegalStateException( "The event listener consumer has stopped" );
+      for ( long sequence = this.sequence.get() + 1; sequence <= this.haltSequence; sequence++ )
+      {
+        //
+        while ( !eventManager.isPublished( sequence ) )
+        {
+          Thread.yield();
+        }
+        
+        //
+        final Slot<EVENT, RESULT> slot = eventManager.ringBuffer[(int) ( sequence & eventManager.indexMask )];
+        final ListenerConsumer<EVENT, RESULT>[] listenerConsumers = slot.listenerConsumers;
+        final EventResultsFuture<RESULT> eventResultsFuture = slot.eventResultsFuture;
+        for ( int ii = 0; ii < listenerConsumers.length && eventResultsFuture != null; ii++ )
+        {
+          if ( listenerConsumers[ii] == this )
+          {
+            eventResultsFuture.setFailure( ii, failure );
+            break;
+          }
+        }
+      }
+      this.sequence.set( this.haltSequence );
+    }
+    
+    /**
+     * Invokes the {@link EventListener} for the event within the given {@link Slot}, if the event has been fired to it
+     * 
+     * @param slot
+     * @param sequence
+     */
+    private void process( Slot<EVENT, RESULT> slot, long sequence )
+    {
+      //
+      final ListenerConsumer<EVENT, RESULT>[] listenerConsumers = slot.listenerConsumers;
+      for ( int ii = 0; ii < listenerConsumers.length; ii++ )
+      {
+        if ( listenerConsumers[ii] == this )
+        {
+          //
+          List<RESULT> resultList = null;
+          try
+          {
+            resultList = this.eventListener.handleEvent( slot.event );
+          }
+          catch ( Throwable e )
+          {
+            this.eventManager.handleThrowable( e );
+          }
+          
+          //
+          final EventResultsFuture<RESULT> eventResultsFuture = slot.eventResultsFuture;
+          if ( eventResultsFuture != null )
+          {
+            eventResultsFuture.setResultList( ii, resultList );
+          }
+          break;
+        }
+      }
+    }
+  }
+  
+  /**
+   * {@link EventListenerRegistration} which starts and halts the {@link ListenerConsumer}s
+   * 
+   * @author Omnaest
+   */
+  private class EventListenerRegistrationAsynchronous implements EventListenerRegistration<EVENT, RESULT>
+  {
+    @Override
+    public EventListenerRegistration<EVENT, RESULT> addEventListener( EventListener<EVENT, RESULT> listener )
+    {
+      //
+      if ( listener != null )
+      {
+        EventManagerAsynchronous.this.addListenerConsumer( listener );
+      }
+      
+      //
+      return this;
+    }
+    
+    @Override
+    public EventListenerRegistration<EVENT, RESULT> removeEventListener( EventListener<EVENT, RESULT> listener )
+    {
+      //
+      if ( listener != null )
+      {
+        EventManagerAsynchronous.this.removeListenerConsumer( listener );
+      }
+      
+      //
+      return this;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Creates an {@link EventManagerAsynchronous} with the {@link #DEFAULT_CAPACITY}, a {@link BlockingWaitStrategy} and
+   * {@link BackpressureStrategy#BLOCK}. The {@link EventListener}s are invoked within daemon {@link Thread}s.
+   * 
+   * @see EventManagerAsynchronous
+   */
+  public EventManagerAsynchronous()
+  {
+    this( DEFAULT_CAPACITY, new BlockingWaitStrategy(), BackpressureStrategy.BLOCK, null, null );
+  }
+  
+  /**
+   * @see EventManagerAsynchronous
+   * @param capacity
+   *          the capacity of the ring buffer, which is rounded up to the next power of two
+   * @param waitStrategy
+   *          {@link WaitStrategy}
+   * @param backpressureStrategy
+   *          {@link BackpressureStrategy}
+   * @param executorService
+   *          {@link ExecutorService} which runs one long living task per registered {@link EventListener}. If null, daemon
+   *          {@link Thread}s are used
+   * @param exceptionHandler
+   *          {@link ExceptionHandler} for exceptions thrown by the {@link EventListener}s, can be null
+   */
+  @SuppressWarnings("unchecked")
+  public EventManagerAsynchronous( int capacity,
+                                   WaitStrategy waitStrategy,
+                                   BackpressureStrategy backpressureStrategy,
+                                   ExecutorService executorService,
+                                   ExceptionHandler exceptionHandler )
+  {
+    //
+    super();
+    Assert.isTrue( capacity > 0, "The capacity has to be positive" );
+    Assert.isNotNull( waitStrategy, "The wait strategy must not be null" );
+    Assert.isNotNull( backpressureStrategy, "The backpressure strategy must not be null" );
+    
+    //
+    this.capacity = Integer.highestOneBit( capacity ) == capacity ? capacity : Integer.highestOneBit( capacity ) << 1;
+    this.indexMask = this.capacity - 1;
+    this.ringBuffer = new Slot[this.capacity];
+    for ( int ii = 0; ii < this.capacity; ii++ )
+    {
+      this.ringBuffer[ii] = new Slot<EVENT, RESULT>();
+    }
+    
+    //
+    this.activeListenerConsumers = LISTENER_CONSUMERS_EMPTY;
+    this.gatingListenerConsumers = LISTENER_CONSUMERS_EMPTY;
+    this.waitStrategy = waitStrategy;
+    this.backpressureStrategy = backpressureStrategy;
+    this.executorServiceInternal = executorService == null;
+    this.executorService = executorService != null ? executorService : Executors.newCachedThreadPool( new ThreadFactory()
+    {
+      private final AtomicInteger threadCounter = new AtomicInteger();
+      
+      @Override
+      public Thread newThread( Runnable runnable )
+      {
+        final Thread thread = new Thread( runnable, EventManagerAsynchronous.class.getSimpleName() + "-listener-"
+                                                    + this.threadCounter.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    this.exceptionHandler = exceptionHandler;
+  }
+  
+  /**
+   * Publishes the given event to all registered {@link EventListener}s and returns immediately. The returned {@link EventResults}
+   * are always empty, use {@link #fireEventWithFuture(Object)} to retrieve the results of the {@link EventListener}s.
+   * 
+   * @see #fireEventWithFuture(Object)
+   * @param event
+   * @return empty {@link EventResults}
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public EventResults<RESULT> fireEvent( EVENT event )
+  {
+    //
+    this.publish( event, false );
+    
+    //
+    return EVENT_RESULTS_EMPTY;
+  }
+  
+  /**
+   * Publishes the given event to all registered {@link EventListener}s and returns a {@link Future} of the {@link EventResults},
+   * which is done as soon as all {@link EventListener}s have processed the event.
+   * 
+   * @param event
+   * @return {@link Future} of the {@link EventResults} or null if the event has been dropped
+   */
+  public Future<EventResults<RESULT>> fireEventWithFuture( EVENT event )
+  {
+    return this.publish( event, true );
+  }
+  
+  /**
+   * @param event
+   * @param withFuture
+   * @return the {@link EventResultsFuture} if requested, otherwise null
+   */
+  private EventResultsFuture<RESULT> publish( EVENT event, boolean withFuture )
+  {
+    //
+    EventResultsFuture<RESULT> retval = null;
+    
+    //
+    final long sequence = this.claimNextSequence();
+    if ( sequence >= 0 )
+    {
+      //
+      final ListenerConsumer<EVENT, RESULT>[] listenerConsumers = this.activeListenerConsumers;
+      if ( withFuture )
+      {
+        int numberOfPendingListeners = 0;
+        for ( ListenerConsumer<EVENT, RESULT> listenerConsumer : listenerConsumers )
+        {
+          if ( listenerConsumer.isConsumerOf( sequence ) )
+          {
+            numberOfPendingListeners++;
+          }
+        }
+        retval = new EventResultsFuture<RESULT>( listenerConsumers.length, numberOfPendingListeners );
+      }
+      
+      //
+      final Slot<EVENT, RESULT> slot = this.ringBuffer[(int) ( sequence & this.indexMask )];
+      slot.event = event;
+      slot.listenerConsumers = listenerConsumers;
+      slot.eventResultsFuture = retval;
+      slot.sequence = sequence;
+      
+      //
+      this.waitStrategy.signalAll();
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Claims the next sequence of the ring buffer. If the ring buffer is full the {@link BackpressureStrategy} is applied.
+   * 
+   * @return the claimed sequence or -1 if the event has to be dropped
+   */
+  private long claimNextSequence()
+  {
+    //
+    long retval = -1;
+    
+    //
+    while ( true )
+    {
+      //
+      final long currentSequence = this.cursor.get();
+      final long nextSequence = currentSequence + 1;
+      final long wrapPoint = nextSequence - this.capacity;
+      
+      //
+      if ( wrapPoint > this.gatingSequenceCache )
+      {
+        //
+        final long minimumGatingSequence = this.determineMinimumGatingSequence( currentSequence );
+        if ( wrapPoint > minimumGatingSequence )
+        {
+          //
+          if ( this.backpressureStrategy == BackpressureStrategy.DROP )
+          {
+            this.numberOfDroppedEvents.incrementAndGet();
+            break;
+          }
+          
+          //
+          try
+          {
+            this.waitStrategy.waitFor( new Availability()
+            {
+              @Override
+              public boolean isAvailable()
+              {
+                return wrapPoint <= EventManagerAsynchronous.this.determineMinimumGatingSequence( currentSequence );
+              }
+            } );
+          }
+          catch ( InterruptedException e )
+          {
+            Thread.currentThread().interrupt();
+            if ( this.exceptionHandler != null )
+            {
+              this.exceptionHandler.handleException( e );
+            }
+            this.numberOfDroppedEvents.incrementAndGet();
+            break;
+          }
+        }
+        else
+        {
+          this.gatingSequenceCache = minimumGatingSequence;
+        }
+      }
+      else if ( this.cursor.compareAndSet( currentSequence, nextSequence ) )
+      {
+        retval = nextSequence;
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @param defaultSequence
+   * @return the lowest sequence processed by all {@link ListenerConsumer}s or the given default if there is none
+   */
+  private long determineMinimumGatingSequence( long defaultSequence )
+  {
+    //
+    long retval = defaultSequence;
+    
+    //
+    for ( ListenerConsumer<EVENT, RESULT> listenerConsumer : this.gatingListenerConsumers )
+    {
+      retval = Math.min( retval, listenerConsumer.sequence.get() );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @param sequence
+   * @return true if the event with the given sequence has been written to the ring buffer
+   */
+  private boolean isPublished( long sequence )
+  {
+    return this.ringBuffer[(int) ( sequence & this.indexMask )].sequence == sequence;
+  }
+  
+  /**
+   * Since multiple producers publish concurrently, the events are not necessarily published in the order of their sequences. So
+   * this returns the highest sequence up to which all events starting with the given one are published.
+   * 
+   * @param sequence
+   * @return
+   */
+  private long determineHighestPublishedSequence( long sequence )
+  {
+    //
+    long retval = sequence - 1;
+    
+    //
+    while ( this.isPublished( retval + 1 ) )
+    {
+      retval++;
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @param eventListener
+   */
+  @SuppressWarnings("unchecked")
+  private void addListenerConsumer( EventListener<EVENT, RESULT> eventListener )
+  {
+    this.registryLock.lock();
+    try
+    {
+      //
+      for ( ListenerConsumer<EVENT, RESULT> listenerConsumer : this.activeListenerConsumers )
+      {
+        if ( listenerConsumer.eventListener.equals( eventListener ) )
+        {
+          return;
+        }
+      }
+      
+      //
+      final ListenerConsumer<EVENT, RESULT> listenerConsumer = new ListenerConsumer<EVENT, RESULT>( this, eventListener );
+      listenerConsumer.sequence.set( this.cursor.get() );
+      this.gatingListenerConsumers = appendTo( this.gatingListenerConsumers, listenerConsumer );
+      
+      // producers which have checked the gating sequences before can claim at most the sequence following this one
+      listenerConsumer.startSequence = this.cursor.get();
+      listenerConsumer.sequence.set( listenerConsumer.startSequence );
+      this.activeListenerConsumers = appendTo( this.activeListenerConsumers, listenerConsumer );
+      
+      //
+      try
+      {
+        this.executorService.execute( listenerConsumer );
+      }
+      catch ( RejectedExecutionException e )
+      {
+        listenerConsumer.abandon( e );
+        this.removeGatingListenerConsumer( listenerConsumer );
+        throw e;
+      }
+    }
+    finally
+    {
+      this.registryLock.unlock();
+    }
+  }
+  
+  /**
+   * @param eventListener
+   */
+  @SuppressWarnings("unchecked")
+  private void removeListenerConsumer( EventListener<EVENT, RESULT> eventListener )
+  {
+    this.registryLock.lock();
+    try
+    {
+      //
+      for ( ListenerConsumer<EVENT, RESULT> listenerConsumer : this.activeListenerConsumers )
+      {
+        if ( eventListener == null || listenerConsumer.eventListener.equals( eventListener ) )
+        {
+          this.haltListenerConsumer( listenerConsumer );
+        }
+      }
+    }
+    finally
+    {
+      this.registryLock.unlock();
+    }
+    
+    //
+    this.waitStrategy.signalAll();
+  }
+  
+  /**
+   * Removes the given {@link ListenerConsumer} from the active ones, so it does not receive any further events, and lets it stop
+   * after the events which have been fired to it up to now
+   * 
+   * @param listenerConsumer
+   */
+  @SuppressWarnings("unchecked")
+  private void haltListenerConsumer( ListenerConsumer<EVENT, RESULT> listenerConsumer )
+  {
+    this.registryLock.lock();
+    try
+    {
+      //
+      final List<ListenerConsumer<EVENT, RESULT>> listenerConsumerList = new ArrayList<ListenerConsumer<EVENT, RESULT>>(
+                                                                                                                    Arrays.asList( this.activeListenerConsumers ) );
+      if ( listenerConsumerList.remove( listenerConsumer ) )
+      {
+        //
+        this.activeListenerConsumers = listenerConsumerList.toArray( new ListenerConsumer[listenerConsumerList.size()] );
+        
+        // all events which have been fired to the listener are claimed up to now
+        listenerConsumer.haltSequence = this.cursor.get();
+      }
+    }
+    finally
+    {
+      this.registryLock.unlock();
+    }
+  }
+  
+  /**
+   * Passes the given {@link Throwable} to the {@link ExceptionHandler}, {@link Error}s are wrapped into an
+   * {@link ExecutionException}
+   * 
+   * @param throwable
+   */
+  private void handleThrowable( Throwable throwable )
+  {
+    final ExceptionHandler exceptionHandler = this.exceptionHandler;
+    if ( exceptionHandler != null )
+    {
+      exceptionHandler.handleException( throwable instanceof Exception ? (Exception) throwable
+                                                                      : new ExecutionException( throwable ) );
+    }
+  }
+  
+  /**
+   * Is invoked by a halted {@link ListenerConsumer}, which does no longer block the producers then
+   * 
+   * @param listenerConsumer
+   */
+  @SuppressWarnings("unchecked")
+  private void removeGatingListenerConsumer( ListenerConsumer<EVENT, RESULT> listenerConsumer )
+  {
+    //
+    this.registryLock.lock();
+    try
+    {
+      final List<ListenerConsumer<EVENT, RESULT>> listenerConsumerList = new ArrayList<ListenerConsumer<EVENT, RESULT>>(
+                                                                                                                    Arrays.asList( this.gatingListenerConsumers ) );
+      listenerConsumerList.remove( listenerConsumer );
+      this.gatingListenerConsumers = listenerConsumerList.toArray( new ListenerConsumer[listenerConsumerList.size()] );
+    }
+    finally
+    {
+      this.registryLock.unlock();
+    }
+    
+    //
+    this.waitStrategy.signalAll();
+  }
+  
+  /**
+   * @param listenerConsumers
+   * @param listenerConsumer
+   * @return a new array containing the given {@link ListenerConsumer}s and the additional one
+   */
+  private static <EVENT, RESULT> ListenerConsumer<EVENT, RESULT>[] appendTo( ListenerConsumer<EVENT, RESULT>[] listenerConsumers,
+                                                                           ListenerConsumer<EVENT, RESULT> listenerConsumer )
+  {
+    //
+    final ListenerConsumer<EVENT, RESULT>[] retvals = Arrays.copyOf( listenerConsumers, listenerConsumers.length + 1 );
+    retvals[listenerConsumers.length] = listenerConsumer;
+    
+    //
+    return retvals;
+  }
+  
+  /**
+   * Removes all {@link EventListener}s. They still receive all events which have been fired before.
+   * 
+   * @return this
+   */
+  @Override
+  public EventManager<EVENT, RESULT> clearListeners()
+  {
+    //
+    this.removeListenerConsumer( null );
+    
+    //
+    return this;
+  }
+  
+  /**
+   * Removes all {@link EventListener}s and shuts down the internal {@link ExecutorService}, so no {@link EventListener}s can be
+   * added anymore. The {@link EventListener}s still receive all events which have been fired before. An {@link ExecutorService}
+   * given to the constructor is not shut down.
+   */
+  public void shutdown()
+  {
+    //
+    this.clearListeners();
+    
+    //
+    if ( this.executorServiceInternal )
+    {
+      this.executorService.shutdown();
+    }
+  }
+  
+  /**
+   * @return the number of events which have been dropped because of a full ring buffer
+   * @see BackpressureStrategy#DROP
+   */
+  public long getNumberOfDroppedEvents()
+  {
+    return this.numberOfDroppedEvents.get();
+  }
+  
+  /**
+   * @return the number of events which have been fired but not yet been processed by the slowest {@link EventListener}
+   */
+  public long getNumberOfPendingEvents()
+  {
+    final long currentSequence = this.cursor.get();
+    return currentSequence - this.determineMinimumGatingSequence( currentSequence );
+  }
+  
+  /**
+   * @return the capacity of the ring buffer
+   */
+  public int getCapacity()
+  {
+    return this.capacity;
+  }
+  
+  @Override
+  public EventListenerRegistration<EVENT, RESULT> getEventListenerRegistration()
+  {
+    return this.eventListenerRegistration;
+  }
+  
+  @Override
+  public EventManagerConnector<EVENT, RESULT> getEventManagerConnector()
+  {
+    return this.eventManagerConnector;
+  }
+  
+  /**
+   * @see EventManagerAsynchronous
+   * @param objectOutputStream
+   * @throws IOException
+   */
+  private void writeObject( ObjectOutputStream objectOutputStream ) throws IOException
+  {
+    throw new NotSerializableException( EventManagerAsynchronous.class.getName() );
+  }
+  
+  /**
+   * @see EventManagerAsynchronous
+   * @param objectInputStream
+   * @throws IOException
+   */
+  private void readObject( ObjectInputStream objectInputStream ) throws IOException
+  {
+    throw new NotSerializableException( EventManagerAsynchronous.class.getName() );
+  }
+  
+}
@@ -17,6 +17,7 @@ package org.omnaest.utils.events.concrete;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.omnaest.utils.events.EventListener;
 import org.omnaest.utils.events.EventListenerRegistration;
@@ -31,8 +32,12 @@ import org.omnaest.utils.events.event.EventResults;
  * <br>
  * To add new {@link EventListener} instances use the {@link EventListenerRegistrationImpl} instance which can be retrieved via
  * {@link #getEventListenerRegistration()}. Its best practice to make this method available to clients by a delegate method.
+ * <br>
+ * The {@link EventListener}s are held in a copy on write list, so firing an event does not copy the list of listeners.
+ * {@link EventManagerAsynchronous} does not invoke the {@link EventListener}s within the thread which fires the event.
  * 
  * @see EventProducer
+ * @see EventManagerAsynchronous
  * @param <EVENT>
  * @param <RESULT>
  * @author Omnaest
@@ -43,7 +48,7 @@ public class EventManagerImpl<EVENT, RESULT> implements EventProducer<EVENT, RES
   private static final long                          serialVersionUID          = 185487616795626165L;
   
   /* ********************************************** Variables ********************************************** */
-  protected List<EventListener<EVENT, RESULT>>       listenerList              = new ArrayList<EventListener<EVENT, RESULT>>();
+  protected List<EventListener<EVENT, RESULT>>       listenerList              = new CopyOnWriteArrayList<EventListener<EVENT, RESULT>>();
   protected EventListenerRegistration<EVENT, RESULT> eventListenerRegistration = new EventListenerRegistrationImpl<EVENT, RESULT>(
                                                                                                                                    this.listenerList );
   
@@ -89,7 +94,7 @@ public class EventManagerImpl<EVENT, RESULT> implements EventProducer<EVENT, RES
     List<RESULT> retlist = new ArrayList<RESULT>();
     
     //
-    for ( EventListener<EVENT, RESULT> listener : new ArrayList<EventListener<EVENT, RESULT>>( this.listenerList ) )
+    for ( EventListener<EVENT, RESULT> listener : this.listenerList )
     {
       if ( listener != null )
       {
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+/**
+ * A {@link Counter} sums up occurrences like processed elements or cache hits. Use {@link MetricRegistry#getCounter(String)} to
+ * get an instance.
+ * 
+ * @see MetricRegistry
+ * @author Omnaest
+ */
+public interface Counter
+{
+  /**
+   * Increments the {@link Counter} by one
+   */
+  public void increment();
+  
+  /**
+   * Increments the {@link Counter} by the given delta
+   * 
+   * @param delta
+   */
+  public void increment( long delta );
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+/**
+ * A {@link Gauge} is asked for its current value only when a {@link MetricSnapshot} is taken, so it does not cost anything at the
+ * measured code. Register it via {@link MetricRegistry#registerGauge(String, Gauge)}.
+ * 
+ * @see MetricRegistry
+ * @author Omnaest
+ */
+public interface Gauge
+{
+  /**
+   * Returns the current value
+   * 
+   * @return
+   */
+  public long getValue();
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * A {@link Histogram} records the distribution of arbitrary non negative values, like sizes of batches. The distribution is
+ * exported as {@link LatencyHistogram} within a {@link MetricSnapshot}.
+ * 
+ * @see MetricRegistry#getHistogram(String)
+ * @author Omnaest
+ */
+public interface Histogram
+{
+  /**
+   * Records the given value
+   * 
+   * @param value
+   */
+  public void record( long value );
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import org.omnaest.utils.metrics.concrete.MetricRegistryInMemory;
+import org.omnaest.utils.metrics.concrete.MetricRegistryNoOperation;
+
+/**
+ * A {@link MetricRegistry} provides named {@link Counter}s, {@link Timer}s, {@link Histogram}s and {@link Gauge}s. Instruments
+ * with the same name are the same instrument, so they should be resolved once and kept by the measured code, instead of
+ * resolving them for every measurement.<br>
+ * <br>
+ * The global {@link MetricRegistry} is available via {@link MetricUtils#getMetricRegistry()}.
+ * 
+ * @see MetricRegistryNoOperation
+ * @see MetricRegistryInMemory
+ * @see MetricUtils
+ * @author Omnaest
+ */
+public interface MetricRegistry
+{
+  /**
+   * Returns the {@link Counter} for the given name
+   * 
+   * @param name
+   * @return
+   */
+  public Counter getCounter( String name );
+  
+  /**
+   * Returns the {@link Timer} for the given name
+   * 
+   * @param name
+   * @return
+   */
+  public Timer getTimer( String name );
+  
+  /**
+   * Returns the {@link Histogram} for the given name
+   * 
+   * @param name
+   * @return
+   */
+  public Histogram getHistogram( String name );
+  
+  /**
+   * Registers a {@link Gauge} under the given name. A previously registered {@link Gauge} with the same name is replaced.
+   * 
+   * @param name
+   * @param gauge
+   *          {@link Gauge}
+   * @return this
+   */
+  public MetricRegistry registerGauge( String name, Gauge gauge );
+  
+  /**
+   * Returns false if the {@link MetricRegistry} discards all measurements. Measured code can use this to avoid even the creation
+   * of decorators.
+   * 
+   * @return
+   */
+  public boolean isEnabled();
+  
+  /**
+   * Returns a {@link MetricSnapshot} of the current values of all instruments
+   * 
+   * @return
+   */
+  public MetricSnapshot getSnapshot();
+}
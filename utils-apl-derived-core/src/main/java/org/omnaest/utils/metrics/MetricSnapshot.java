@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * Immutable snapshot of all instruments of a {@link MetricRegistry} at a given point in time. Timers are exported in
+ * nanoseconds.<br>
+ * <br>
+ * Throughput values like elements per second can be derived from two snapshots using
+ * {@link #getCounterRatePerSecond(MetricSnapshot, String)}. {@link #toString()} renders a human readable export with one line per
+ * instrument.
+ * 
+ * @see MetricRegistry#getSnapshot()
+ * @author Omnaest
+ */
+public class MetricSnapshot implements Serializable
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long                         serialVersionUID = -3870364453417716295L;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final long                                timestamp;
+  private final SortedMap<String, Long>             counterMap;
+  private final SortedMap<String, Long>             gaugeMap;
+  private final SortedMap<String, LatencyHistogram> timerMap;
+  private final SortedMap<String, LatencyHistogram> histogramMap;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see MetricSnapshot
+   * @param timestamp
+   *          in milliseconds
+   * @param counterMap
+   * @param gaugeMap
+   * @param timerMap
+   * @param histogramMap
+   */
+  public MetricSnapshot( long timestamp, SortedMap<String, Long> counterMap, SortedMap<String, Long> gaugeMap,
+                         SortedMap<String, LatencyHistogram> timerMap, SortedMap<String, LatencyHistogram> histogramMap )
+  {
+    super();
+    this.timestamp = timestamp;
+    this.counterMap = Collections.unmodifiableSortedMap( new TreeMap<String, Long>( counterMap ) );
+    this.gaugeMap = Collections.unmodifiableSortedMap( new TreeMap<String, Long>( gaugeMap ) );
+    this.timerMap = Collections.unmodifiableSortedMap( new TreeMap<String, LatencyHistogram>( timerMap ) );
+    this.histogramMap = Collections.unmodifiableSortedMap( new TreeMap<String, LatencyHistogram>( histogramMap ) );
+  }
+  
+  /**
+   * Returns the time the {@link MetricSnapshot} has been taken in milliseconds
+   * 
+   * @return
+   */
+  public long getTimestamp()
+  {
+    return this.timestamp;
+  }
+  
+  /**
+   * @return unmodifiable {@link SortedMap} of counter names to their values
+   */
+  public SortedMap<String, Long> getCounterMap()
+  {
+    return this.counterMap;
+  }
+  
+  /**
+   * @return unmodifiable {@link SortedMap} of gauge names to their values
+   */
+  public SortedMap<String, Long> getGaugeMap()
+  {
+    return this.gaugeMap;
+  }
+  
+  /**
+   * @return unmodifiable {@link SortedMap} of timer names to their {@link LatencyHistogram}s in nanoseconds
+   */
+  public SortedMap<String, LatencyHistogram> getTimerMap()
+  {
+    return this.timerMap;
+  }
+  
+  /**
+   * @return unmodifiable {@link SortedMap} of histogram names to their {@link LatencyHistogram}s
+   */
+  public SortedMap<String, LatencyHistogram> getHistogramMap()
+  {
+    return this.histogramMap;
+  }
+  
+  /**
+   * Returns the value of the counter with the given name or 0 if there is no such counter
+   * 
+   * @param name
+   * @return
+   */
+  public long getCounter( String name )
+  {
+    final Long value = this.counterMap.get( name );
+    return value != null ? value : 0;
+  }
+  
+  /**
+   * Returns the increase per second of the counter with the given name between the given previous {@link MetricSnapshot} and this
+   * one. Returns 0 if no time has passed between both snapshots.
+   * 
+   * @param previousSnapshot
+   *          {@link MetricSnapshot}
+   * @param name
+   * @return
+   */
+  public double getCounterRatePerSecond( MetricSnapshot previousSnapshot, String name )
+  {
+    //
+    double retval = 0.0;
+    
+    //
+    final long previousValue = previousSnapshot != null ? previousSnapshot.getCounter( name ) : 0;
+    final long previousTimestamp = previousSnapshot != null ? previousSnapshot.getTimestamp() : this.timestamp;
+    final long duration = this.timestamp - previousTimestamp;
+    if ( duration > 0 )
+    {
+      retval = ( this.getCounter( name ) - previousValue ) * 1000.0 / duration;
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public String toString()
+  {
+    //
+    final StringBuilder sb = new StringBuilder();
+    final String lineSeparator = System.getProperty( "line.separator" );
+    
+    //
+    for ( Entry<String, Long> entry : this.counterMap.entrySet() )
+    {
+      sb.append( String.format( "counter   %s=%d", entry.getKey(), entry.getValue() ) );
+      sb.append( lineSeparator );
+    }
+    for ( Entry<String, Long> entry : this.gaugeMap.entrySet() )
+    {
+      sb.append( String.format( "gauge     %s=%d", entry.getKey(), entry.getValue() ) );
+      sb.append( lineSeparator );
+    }
+    for ( Entry<String, LatencyHistogram> entry : this.timerMap.entrySet() )
+    {
+      //
+      final LatencyHistogram latencyHistogram = entry.getValue();
+      final long nanosPerMicro = TimeUnit.MICROSECONDS.toNanos( 1 );
+      
+      //
+      sb.append( String.format( "timer     %s n=%d p50=%dus p99=%dus p999=%dus max=%dus", entry.getKey(),
+                                latencyHistogram.getTotalCount(), latencyHistogram.getValueAtPercentile( 50.0 ) / nanosPerMicro,
+                                latencyHistogram.getValueAtPercentile( 99.0 ) / nanosPerMicro,
+                                latencyHistogram.getValueAtPercentile( 99.9 ) / nanosPerMicro,
+                                latencyHistogram.getMaximum() / nanosPerMicro ) );
+      sb.append( lineSeparator );
+    }
+    for ( Entry<String, LatencyHistogram> entry : this.histogramMap.entrySet() )
+    {
+      //
+      final LatencyHistogram latencyHistogram = entry.getValue();
+      
+      //
+      sb.append( String.format( "histogram %s n=%d p50=%d p99=%d p999=%d max=%d", entry.getKey(), latencyHistogram.getTotalCount(),
+                                latencyHistogram.getValueAtPercentile( 50.0 ), latencyHistogram.getValueAtPercentile( 99.0 ),
+                                latencyHistogram.getValueAtPercentile( 99.9 ), latencyHistogram.getMaximum() ) );
+      sb.append( lineSeparator );
+    }
+    
+    //
+    return sb.toString();
+  }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.omnaest.utils.metrics.concrete.MetricRegistryInMemory;
+import org.omnaest.utils.metrics.concrete.MetricRegistryNoOperation;
+import org.omnaest.utils.metrics.decorator.TimedLockDecorator;
+import org.omnaest.utils.metrics.decorator.TimedReadWriteLockDecorator;
+
+/**
+ * Helper for {@link MetricRegistry} instances which holds the global {@link MetricRegistry}.<br>
+ * <br>
+ * By default the global {@link MetricRegistry} is the {@link MetricRegistryNoOperation}, which discards all measurements at nearly
+ * no cost. To collect metrics set e.g. a {@link MetricRegistryInMemory} via {@link #setMetricRegistry(MetricRegistry)} at startup.
+ * Instrumented classes resolve their instruments from the global {@link MetricRegistry} when they are created, so instances
+ * created before the {@link MetricRegistry} has been set keep reporting to the previous one.
+ * 
+ * @see MetricRegistry
+ * @author Omnaest
+ */
+public class MetricUtils
+{
+  /* ********************************************** Variables ********************************************** */
+  private static volatile MetricRegistry metricRegistry = MetricRegistryNoOperation.getInstance();
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Returns the global {@link MetricRegistry}
+   * 
+   * @return
+   */
+  public static MetricRegistry getMetricRegistry()
+  {
+    return MetricUtils.metricRegistry;
+  }
+  
+  /**
+   * Sets the global {@link MetricRegistry}. If null is given the {@link MetricRegistryNoOperation} is restored.
+   * 
+   * @param metricRegistry
+   *          {@link MetricRegistry}
+   */
+  public static void setMetricRegistry( MetricRegistry metricRegistry )
+  {
+    MetricUtils.metricRegistry = metricRegistry != null ? metricRegistry : MetricRegistryNoOperation.getInstance();
+  }
+  
+  /**
+   * Returns a {@link ReadWriteLock} which records the time spent waiting for its read and write {@link Lock}s into the timers
+   * "&lt;name&gt;.read.wait" and "&lt;name&gt;.write.wait" of the global {@link MetricRegistry}. If the global
+   * {@link MetricRegistry} is not enabled, the given {@link ReadWriteLock} is returned as it is.
+   * 
+   * @see TimedReadWriteLockDecorator
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @param name
+   * @return
+   */
+  public static ReadWriteLock timed( ReadWriteLock readWriteLock, String name )
+  {
+    //
+    ReadWriteLock retval = readWriteLock;
+    
+    //
+    final MetricRegistry metricRegistry = MetricUtils.metricRegistry;
+    if ( readWriteLock != null && metricRegistry.isEnabled() )
+    {
+      retval = new TimedReadWriteLockDecorator( readWriteLock, name, metricRegistry );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Returns a {@link Lock} which records the time spent waiting for the given {@link Lock} into the timer "&lt;name&gt;.wait" of
+   * the global {@link MetricRegistry}. If the global {@link MetricRegistry} is not enabled, the given {@link Lock} is returned as
+   * it is.
+   * 
+   * @see TimedLockDecorator
+   * @param lock
+   *          {@link Lock}
+   * @param name
+   * @return
+   */
+  public static Lock timed( Lock lock, String name )
+  {
+    //
+    Lock retval = lock;
+    
+    //
+    final MetricRegistry metricRegistry = MetricUtils.metricRegistry;
+    if ( lock != null && metricRegistry.isEnabled() )
+    {
+      retval = new TimedLockDecorator( lock, metricRegistry.getTimer( name + ".wait" ) );
+    }
+    
+    //
+    return retval;
+  }
+}
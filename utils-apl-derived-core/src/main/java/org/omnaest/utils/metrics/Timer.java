@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * A {@link Timer} records durations in nanoseconds. The distribution is exported as {@link LatencyHistogram} within a
+ * {@link MetricSnapshot}.<br>
+ * <br>
+ * Example:
+ * 
+ * <pre>
+ * final long startTime = timer.start();
+ * try
+ * {
+ *   ...
+ * }
+ * finally
+ * {
+ *   timer.stop( startTime );
+ * }
+ * </pre>
+ * 
+ * The no operation {@link Timer} does not even read the system clock.
+ * 
+ * @see MetricRegistry#getTimer(String)
+ * @author Omnaest
+ */
+public interface Timer
+{
+  /**
+   * Returns the start time which has to be given to {@link #stop(long)}
+   * 
+   * @return
+   */
+  public long start();
+  
+  /**
+   * Records the duration since the given start time
+   * 
+   * @param startTime
+   *          as returned by {@link #start()}
+   */
+  public void stop( long startTime );
+  
+  /**
+   * Records the given duration
+   * 
+   * @param duration
+   * @param timeUnit
+   *          {@link TimeUnit}
+   */
+  public void record( long duration, TimeUnit timeUnit );
+}
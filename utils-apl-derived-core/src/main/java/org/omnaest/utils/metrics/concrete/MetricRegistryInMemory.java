@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics.concrete;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.Gauge;
+import org.omnaest.utils.metrics.Histogram;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricSnapshot;
+import org.omnaest.utils.metrics.Timer;
+import org.omnaest.utils.time.LatencyHistogram;
+import org.omnaest.utils.time.LatencyRecorder;
+
+/**
+ * {@link MetricRegistry} which keeps all instruments in memory. {@link Counter}s are based on {@link AtomicLong}s, {@link Timer}s
+ * and {@link Histogram}s on {@link LatencyRecorder}s, so recording values does neither lock nor allocate.<br>
+ * <br>
+ * The values can be exported using {@link #getSnapshot()} and set back to zero using {@link #reset()}.
+ * 
+ * @see MetricRegistryNoOperation
+ * @author Omnaest
+ */
+public class MetricRegistryInMemory implements MetricRegistry
+{
+  /* ********************************************** Variables ********************************************** */
+  private final ConcurrentMap<String, CounterImpl>   nameToCounterMap   = new ConcurrentHashMap<String, CounterImpl>();
+  private final ConcurrentMap<String, TimerImpl>     nameToTimerMap     = new ConcurrentHashMap<String, TimerImpl>();
+  private final ConcurrentMap<String, HistogramImpl> nameToHistogramMap = new ConcurrentHashMap<String, HistogramImpl>();
+  private final ConcurrentMap<String, Gauge>         nameToGaugeMap     = new ConcurrentHashMap<String, Gauge>();
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * @see Counter
+   * @author Omnaest
+   */
+  private static class CounterImpl implements Counter
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final AtomicLong count = new AtomicLong();
+    
+    /* ********************************************** Methods ********************************************** */
+    @Override
+    public void increment()
+    {
+      this.count.incrementAndGet();
+    }
+    
+    @Override
+    public void increment( long delta )
+    {
+      this.count.addAndGet( delta );
+    }
+  }
+  
+  /**
+   * @see Histogram
+   * @author Omnaest
+   */
+  private static class HistogramImpl implements Histogram
+  {
+    /* ********************************************** Variables ********************************************** */
+    protected final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    
+    /* ********************************************** Methods ********************************************** */
+    @Override
+    public void record( long value )
+    {
+      this.latencyRecorder.recordValue( value );
+    }
+  }
+  
+  /**
+   * @see Timer
+   * @author Omnaest
+   */
+  private static class TimerImpl extends HistogramImpl implements Timer
+  {
+    @Override
+    public long start()
+    {
+      return System.nanoTime();
+    }
+    
+    @Override
+    public void stop( long startTime )
+    {
+      this.latencyRecorder.recordValue( System.nanoTime() - startTime );
+    }
+    
+    @Override
+    public void record( long duration, TimeUnit timeUnit )
+    {
+      this.latencyRecorder.recordValue( timeUnit.toNanos( duration ) );
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see MetricRegistryInMemory
+   */
+  public MetricRegistryInMemory()
+  {
+    super();
+  }
+  
+  @Override
+  public Counter getCounter( String name )
+  {
+    //
+    Assert.isNotNull( name, "name must not be null" );
+    
+    //
+    CounterImpl retval = this.nameToCounterMap.get( name );
+    if ( retval == null )
+    {
+      final CounterImpl counter = new CounterImpl();
+      retval = this.nameToCounterMap.putIfAbsent( name, counter );
+      if ( retval == null )
+      {
+        retval = counter;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public Timer getTimer( String name )
+  {
+    //
+    Assert.isNotNull( name, "name must not be null" );
+    
+    //
+    TimerImpl retval = this.nameToTimerMap.get( name );
+    if ( retval == null )
+    {
+      final TimerImpl timer = new TimerImpl();
+      retval = this.nameToTimerMap.putIfAbsent( name, timer );
+      if ( retval == null )
+      {
+        retval = timer;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public Histogram getHistogram( String name )
+  {
+    //
+    Assert.isNotNull( name, "name must not be null" );
+    
+    //
+    HistogramImpl retval = this.nameToHistogramMap.get( name );
+    if ( retval == null )
+    {
+      final HistogramImpl histogram = new HistogramImpl();
+      retval = this.nameToHistogramMap.putIfAbsent( name, histogram );
+      if ( retval == null )
+      {
+        retval = histogram;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public MetricRegistry registerGauge( String name, Gauge gauge )
+  {
+    //
+    Assert.isNotNull( name, "name must not be null" );
+    
+    //
+    if ( gauge != null )
+    {
+      this.nameToGaugeMap.put( name, gauge );
+    }
+    else
+    {
+      this.nameToGaugeMap.remove( name );
+    }
+    
+    //
+    return this;
+  }
+  
+  @Override
+  public boolean isEnabled()
+  {
+    return true;
+  }
+  
+  @Override
+  public MetricSnapshot getSnapshot()
+  {
+    //
+    final SortedMap<String, Long> counterMap = new TreeMap<String, Long>();
+    for ( Entry<String, CounterImpl> entry : this.nameToCounterMap.entrySet() )
+    {
+      counterMap.put( entry.getKey(), entry.getValue().count.get() );
+    }
+    
+    //
+    final SortedMap<String, Long> gaugeMap = new TreeMap<String, Long>();
+    for ( Entry<String, Gauge> entry : this.nameToGaugeMap.entrySet() )
+    {
+      gaugeMap.put( entry.getKey(), entry.getValue().getValue() );
+    }
+    
+    //
+    final SortedMap<String, LatencyHistogram> timerMap = new TreeMap<String, LatencyHistogram>();
+    for ( Entry<String, TimerImpl> entry : this.nameToTimerMap.entrySet() )
+    {
+      timerMap.put( entry.getKey(), entry.getValue().latencyRecorder.getHistogram() );
+    }
+    
+    //
+    final SortedMap<String, LatencyHistogram> histogramMap = new TreeMap<String, LatencyHistogram>();
+    for ( Entry<String, HistogramImpl> entry : this.nameToHistogramMap.entrySet() )
+    {
+      histogramMap.put( entry.getKey(), entry.getValue().latencyRecorder.getHistogram() );
+    }
+    
+    //
+    return new MetricSnapshot( System.currentTimeMillis(), counterMap, gaugeMap, timerMap, histogramMap );
+  }
+  
+  /**
+   * Sets all {@link Counter}s, {@link Timer}s and {@link Histogram}s back to zero. The instruments stay registered, so instances
+   * already held by measured code keep working.
+   * 
+   * @return this
+   */
+  public MetricRegistryInMemory reset()
+  {
+    //
+    for ( CounterImpl counter : this.nameToCounterMap.values() )
+    {
+      counter.count.set( 0 );
+    }
+    for ( TimerImpl timer : this.nameToTimerMap.values() )
+    {
+      timer.latencyRecorder.reset();
+    }
+    for ( HistogramImpl histogram : this.nameToHistogramMap.values() )
+    {
+      histogram.latencyRecorder.reset();
+    }
+    
+    //
+    return this;
+  }
+}
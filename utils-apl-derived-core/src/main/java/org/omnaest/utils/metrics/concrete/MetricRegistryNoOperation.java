@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics.concrete;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.Gauge;
+import org.omnaest.utils.metrics.Histogram;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricSnapshot;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * {@link MetricRegistry} which discards all measurements. All instruments are shared stateless singletons with empty methods, so
+ * instrumented code costs nearly nothing if metrics are disabled. The {@link Timer} does not even read the system clock.<br>
+ * <br>
+ * This is the default of {@link MetricUtils#getMetricRegistry()}.
+ * 
+ * @see MetricRegistryInMemory
+ * @author Omnaest
+ */
+public final class MetricRegistryNoOperation implements MetricRegistry
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final MetricRegistryNoOperation INSTANCE  = new MetricRegistryNoOperation();
+  private static final Counter                   COUNTER   = new Counter()
+                                                           {
+                                                             @Override
+                                                             public void increment()
+                                                             {
+                                                             }
+                                                             
+                                                             @Override
+                                                             public void increment( long delta )
+                                                             {
+                                                             }
+                                                           };
+  private static final Timer                     TIMER     = new Timer()
+                                                           {
+                                                             @Override
+                                                             public long start()
+                                                             {
+                                                               return 0;
+                                                             }
+                                                             
+                                                             @Override
+                                                             public void stop( long startTime )
+                                                             {
+                                                             }
+                                                             
+                                                             @Override
+                                                             public void record( long duration, TimeUnit timeUnit )
+                                                             {
+                                                             }
+                                                           };
+  private static final Histogram                 HISTOGRAM = new Histogram()
+                                                           {
+                                                             @Override
+                                                             public void record( long value )
+                                                             {
+                                                             }
+                                                           };
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see MetricRegistryNoOperation
+   * @see #getInstance()
+   */
+  private MetricRegistryNoOperation()
+  {
+    super();
+  }
+  
+  /**
+   * Returns the singleton instance
+   * 
+   * @return
+   */
+  public static MetricRegistryNoOperation getInstance()
+  {
+    return INSTANCE;
+  }
+  
+  @Override
+  public Counter getCounter( String name )
+  {
+    return COUNTER;
+  }
+  
+  @Override
+  public Timer getTimer( String name )
+  {
+    return TIMER;
+  }
+  
+  @Override
+  public Histogram getHistogram( String name )
+  {
+    return HISTOGRAM;
+  }
+  
+  @Override
+  public MetricRegistry registerGauge( String name, Gauge gauge )
+  {
+    return this;
+  }
+  
+  @Override
+  public boolean isEnabled()
+  {
+    return false;
+  }
+  
+  /**
+   * Returns always an empty {@link MetricSnapshot}
+   */
+  @Override
+  public MetricSnapshot getSnapshot()
+  {
+    return new MetricSnapshot( System.currentTimeMillis(), new TreeMap<String, Long>(), new TreeMap<String, Long>(),
+                               new TreeMap<String, LatencyHistogram>(), new TreeMap<String, LatencyHistogram>() );
+  }
+}
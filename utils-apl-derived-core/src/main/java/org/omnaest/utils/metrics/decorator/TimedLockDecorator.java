@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics.decorator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
+
+/**
+ * Decorator for a {@link Lock} which records the time spent waiting within {@link #lock()} and {@link #lockInterruptibly()} into a
+ * {@link Timer}. {@link #tryLock()} does not wait and is not recorded.
+ * 
+ * @see MetricUtils#timed(Lock, String)
+ * @author Omnaest
+ */
+public class TimedLockDecorator implements Lock
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Lock  lock;
+  private final Timer timer;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see TimedLockDecorator
+   * @param lock
+   *          {@link Lock}
+   * @param timer
+   *          {@link Timer}
+   */
+  public TimedLockDecorator( Lock lock, Timer timer )
+  {
+    super();
+    this.lock = lock;
+    this.timer = timer;
+  }
+  
+  @Override
+  public void lock()
+  {
+    final long startTime = this.timer.start();
+    this.lock.lock();
+    this.timer.stop( startTime );
+  }
+  
+  @Override
+  public void lockInterruptibly() throws InterruptedException
+  {
+    final long startTime = this.timer.start();
+    this.lock.lockInterruptibly();
+    this.timer.stop( startTime );
+  }
+  
+  @Override
+  public boolean tryLock()
+  {
+    return this.lock.tryLock();
+  }
+  
+  @Override
+  public boolean tryLock( long time, TimeUnit unit ) throws InterruptedException
+  {
+    //
+    final long startTime = this.timer.start();
+    final boolean retval = this.lock.tryLock( time, unit );
+    this.timer.stop( startTime );
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void unlock()
+  {
+    this.lock.unlock();
+  }
+  
+  @Override
+  public Condition newCondition()
+  {
+    return this.lock.newCondition();
+  }
+  
+  @Override
+  public String toString()
+  {
+    return this.lock.toString();
+  }
+}
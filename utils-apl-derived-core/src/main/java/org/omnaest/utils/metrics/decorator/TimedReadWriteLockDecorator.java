@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics.decorator;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
+
+/**
+ * Decorator for a {@link ReadWriteLock} which records the time spent waiting for the read and the write {@link Lock} into the
+ * {@link Timer}s "&lt;name&gt;.read.wait" and "&lt;name&gt;.write.wait".<br>
+ * <br>
+ * The {@link TimedReadWriteLockDecorator} is {@link Serializable} if the decorated {@link ReadWriteLock} is. After
+ * deserialization the {@link Timer}s are resolved from the global {@link MetricRegistry} again.
+ * 
+ * @see TimedLockDecorator
+ * @see MetricUtils#timed(ReadWriteLock, String)
+ * @author Omnaest
+ */
+public class TimedReadWriteLockDecorator implements ReadWriteLock, Serializable
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long    serialVersionUID = 6404816399316484370L;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final ReadWriteLock  readWriteLock;
+  private final String         name;
+  private final transient Lock readLock;
+  private final transient Lock writeLock;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see TimedReadWriteLockDecorator
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @param name
+   * @param metricRegistry
+   *          {@link MetricRegistry}
+   */
+  public TimedReadWriteLockDecorator( ReadWriteLock readWriteLock, String name, MetricRegistry metricRegistry )
+  {
+    super();
+    this.readWriteLock = readWriteLock;
+    this.name = name;
+    this.readLock = new TimedLockDecorator( readWriteLock.readLock(), metricRegistry.getTimer( name + ".read.wait" ) );
+    this.writeLock = new TimedLockDecorator( readWriteLock.writeLock(), metricRegistry.getTimer( name + ".write.wait" ) );
+  }
+  
+  @Override
+  public Lock readLock()
+  {
+    return this.readLock;
+  }
+  
+  @Override
+  public Lock writeLock()
+  {
+    return this.writeLock;
+  }
+  
+  private Object readResolve() throws ObjectStreamException
+  {
+    return MetricUtils.timed( this.readWriteLock, this.name );
+  }
+  
+  @Override
+  public String toString()
+  {
+    return this.readWriteLock.toString();
+  }
+}
@@ -0,0 +1,549 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.battery;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.OperationFactory;
+
+/**
+ * This is an {@link OperationBattery} implementation which hands out every pooled {@link Operation} instance exclusively to a
+ * single invocation, without using any lock on the instances themselves.<br>
+ * <br>
+ * An invocation first tries the instance the current {@link Thread} used last, then scans all pooled instances and claims the
+ * first idle one using a compare and set. If no instance is idle a new one is created as long as the maximum capacity is not
+ * reached. Only if all instances are in use the invocation waits, and then for any instance which is returned instead of a
+ * specific one.<br>
+ * <br>
+ * Instances beyond the initial capacity which have been idle for longer than the idle timeout are removed again.<br>
+ * <br>
+ * Since the instances are never shared between concurrent invocations they do not have to be thread safe, so no lock
+ * decoration is applied by default.
+ * 
+ * @see #getStatistics()
+ * @see OperationBattery
+ * @author Omnaest
+ * @param <RESULT>
+ * @param <PARAMETER>
+ */
+public class OperationBatteryPooled<RESULT, PARAMETER> extends OperationBattery<RESULT, PARAMETER>
+{
+  /* ********************************************** Constants ********************************************** */
+  public final static long                                DEFAULT_IDLE_TIMEOUT_IN_MILLISECONDS = 60000;
+  
+  private final static int                                STATE_IDLE                           = 0;
+  private final static int                                STATE_IN_USE                         = 1;
+  private final static int                                STATE_REMOVED                        = 2;
+  
+  /* ********************************************** Variables ********************************************** */
+  // initialized by #initializeOperationBattery(int), which is invoked by the super constructor
+  private List<PooledOperation<RESULT, PARAMETER>>        pooledOperationList;
+  private ThreadLocal<PooledOperation<RESULT, PARAMETER>> lastUsedPooledOperation;
+  private AtomicInteger                                   size;
+  private AtomicInteger                                   numberOfOperationsInUse;
+  private AtomicInteger                                   peakSize;
+  private AtomicLong                                      numberOfExecutions;
+  private AtomicLong                                      numberOfWaits;
+  private AtomicLong                                      waitTimeInNanos;
+  private AtomicLong                                      numberOfCreatedOperations;
+  private AtomicLong                                      numberOfRemovedOperations;
+  private AtomicLong                                      lastShrinkTime;
+  private int                                             minimumBatteryCapacity;
+  
+  private final int                                       maximumBatteryCapacity;
+  private final long                                      idleTimeoutInNanos;
+  private final Semaphore                                 semaphore;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * A pooled {@link Operation} instance together with its state
+   * 
+   * @author Omnaest
+   * @param <RESULT>
+   * @param <PARAMETER>
+   */
+  private static class PooledOperation<RESULT, PARAMETER>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Operation<RESULT, PARAMETER> operation;
+    private final AtomicInteger                state        = new AtomicInteger( STATE_IDLE );
+    private volatile long                      lastUsedTime = System.nanoTime();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see PooledOperation
+     * @param operation
+     */
+    PooledOperation( Operation<RESULT, PARAMETER> operation )
+    {
+      super();
+      this.operation = operation;
+    }
+    
+    /**
+     * @return true if this instance has been claimed by the current invocation
+     */
+    boolean claim()
+    {
+      return this.state.get() == STATE_IDLE && this.state.compareAndSet( STATE_IDLE, STATE_IN_USE );
+    }
+    
+    /**
+     * Marks this instance as idle again
+     */
+    void release()
+    {
+      this.lastUsedTime = System.nanoTime();
+      this.state.set( STATE_IDLE );
+    }
+  }
+  
+  /**
+   * Snapshot of the utilization and wait time figures of an {@link OperationBatteryPooled}
+   * 
+   * @see OperationBatteryPooled#getStatistics()
+   * @author Omnaest
+   */
+  public static class Statistics implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long serialVersionUID = -3317434744390596166L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final int         size;
+    private final int         peakSize;
+    private final int         numberOfOperationsInUse;
+    private final long        numberOfExecutions;
+    private final long        numberOfWaits;
+    private final long        waitTimeInNanos;
+    private final long        numberOfCreatedOperations;
+    private final long        numberOfRemovedOperations;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see Statistics
+     * @param size
+     * @param peakSize
+     * @param numberOfOperationsInUse
+     * @param numberOfExecutions
+     * @param numberOfWaits
+     * @param waitTimeInNanos
+     * @param numberOfCreatedOperations
+     * @param numberOfRemovedOperations
+     */
+    Statistics( int size, int peakSize, int numberOfOperationsInUse, long numberOfExecutions, long numberOfWaits,
+                long waitTimeInNanos, long numberOfCreatedOperations, long numberOfRemovedOperations )
+    {
+      super();
+      this.size = size;
+      this.peakSize = peakSize;
+      this.numberOfOperationsInUse = numberOfOperationsInUse;
+      this.numberOfExecutions = numberOfExecutions;
+      this.numberOfWaits = numberOfWaits;
+      this.waitTimeInNanos = waitTimeInNanos;
+      this.numberOfCreatedOperations = numberOfCreatedOperations;
+      this.numberOfRemovedOperations = numberOfRemovedOperations;
+    }
+    
+    /**
+     * Returns the number of currently pooled {@link Operation} instances
+     * 
+     * @return
+     */
+    public int getSize()
+    {
+      return this.size;
+    }
+    
+    /**
+     * Returns the highest number of pooled {@link Operation} instances so far
+     * 
+     * @return
+     */
+    public int getPeakSize()
+    {
+      return this.peakSize;
+    }
+    
+    /**
+     * Returns the number of {@link Operation} instances currently executing an invocation
+     * 
+     * @return
+     */
+    public int getNumberOfOperationsInUse()
+    {
+      return this.numberOfOperationsInUse;
+    }
+    
+    /**
+     * Returns the ratio of the {@link Operation} instances in use to all pooled instances
+     * 
+     * @return value between 0.0 and 1.0
+     */
+    public double getUtilization()
+    {
+      return this.size == 0 ? 0.0 : Math.min( 1.0, this.numberOfOperationsInUse * 1.0 / this.size );
+    }
+    
+    /**
+     * Returns the number of invocations so far
+     * 
+     * @return
+     */
+    public long getNumberOfExecutions()
+    {
+      return this.numberOfExecutions;
+    }
+    
+    /**
+     * Returns the number of invocations which had to wait because all {@link Operation} instances were in use
+     * 
+     * @return
+     */
+    public long getNumberOfWaits()
+    {
+      return this.numberOfWaits;
+    }
+    
+    /**
+     * Returns the summed up time invocations had to wait for an {@link Operation} instance
+     * 
+     * @param timeUnit
+     *          {@link TimeUnit}
+     * @return
+     */
+    public long getWaitTime( TimeUnit timeUnit )
+    {
+      return timeUnit.convert( this.waitTimeInNanos, TimeUnit.NANOSECONDS );
+    }
+    
+    /**
+     * Returns the average time an invocation had to wait for an {@link Operation} instance, including the invocations which did
+     * not wait at all
+     * 
+     * @param timeUnit
+     *          {@link TimeUnit}
+     * @return
+     */
+    public double getAverageWaitTime( TimeUnit timeUnit )
+    {
+      return this.numberOfExecutions == 0 ? 0.0 : this.waitTimeInNanos * 1.0 / timeUnit.toNanos( 1 ) / this.numberOfExecutions;
+    }
+    
+    /**
+     * Returns the number of {@link Operation} instances created so far
+     * 
+     * @return
+     */
+    public long getNumberOfCreatedOperations()
+    {
+      return this.numberOfCreatedOperations;
+    }
+    
+    /**
+     * Returns the number of idle {@link Operation} instances removed so far
+     * 
+     * @return
+     */
+    public long getNumberOfRemovedOperations()
+    {
+      return this.numberOfRemovedOperations;
+    }
+    
+    @Override
+    public String toString()
+    {
+      StringBuilder builder = new StringBuilder();
+      builder.append( "Statistics [size=" );
+      builder.append( this.size );
+      builder.append( ", peakSize=" );
+      builder.append( this.peakSize );
+      builder.append( ", numberOfOperationsInUse=" );
+      builder.append( this.numberOfOperationsInUse );
+      builder.append( ", numberOfExecutions=" );
+      builder.append( this.numberOfExecutions );
+      builder.append( ", numberOfWaits=" );
+      builder.append( this.numberOfWaits );
+      builder.append( ", waitTimeInNanos=" );
+      builder.append( this.waitTimeInNanos );
+      builder.append( ", numberOfCreatedOperations=" );
+      builder.append( this.numberOfCreatedOperations );
+      builder.append( ", numberOfRemovedOperations=" );
+      builder.append( this.numberOfRemovedOperations );
+      builder.append( "]" );
+      return builder.toString();
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see OperationBatteryPooled
+   * @param operationFactory
+   * @param maximumBatteryCapacity
+   */
+  public OperationBatteryPooled( OperationFactory<RESULT, PARAMETER> operationFactory, int maximumBatteryCapacity )
+  {
+    this( operationFactory, 1, maximumBatteryCapacity, DEFAULT_IDLE_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS );
+  }
+  
+  /**
+   * @see OperationBatteryPooled
+   * @param operationFactory
+   * @param initialBatteryCapacity
+   *          number of {@link Operation} instances created initially, the battery never shrinks below this number
+   * @param maximumBatteryCapacity
+   *          maximum number of {@link Operation} instances
+   * @param idleTimeout
+   *          time after which an idle {@link Operation} instance beyond the initial capacity is removed
+   * @param timeUnit
+   *          {@link TimeUnit} of the idle timeout
+   */
+  public OperationBatteryPooled( OperationFactory<RESULT, PARAMETER> operationFactory, int initialBatteryCapacity,
+                                 int maximumBatteryCapacity, long idleTimeout, TimeUnit timeUnit )
+  {
+    super( operationFactory, false, initialBatteryCapacity );
+    Assert.isTrue( maximumBatteryCapacity > 0 && maximumBatteryCapacity >= initialBatteryCapacity,
+                   "The maximum battery capacity has to be positive and at least the initial battery capacity" );
+    this.maximumBatteryCapacity = maximumBatteryCapacity;
+    this.idleTimeoutInNanos = timeUnit.toNanos( idleTimeout );
+    this.semaphore = new Semaphore( maximumBatteryCapacity );
+  }
+  
+  @Override
+  protected void initializeOperationBattery( int initialBatteryCapacity )
+  {
+    //
+    this.pooledOperationList = new CopyOnWriteArrayList<PooledOperation<RESULT, PARAMETER>>();
+    this.lastUsedPooledOperation = new ThreadLocal<PooledOperation<RESULT, PARAMETER>>();
+    this.size = new AtomicInteger();
+    this.numberOfOperationsInUse = new AtomicInteger();
+    this.peakSize = new AtomicInteger();
+    this.numberOfExecutions = new AtomicLong();
+    this.numberOfWaits = new AtomicLong();
+    this.waitTimeInNanos = new AtomicLong();
+    this.numberOfCreatedOperations = new AtomicLong();
+    this.numberOfRemovedOperations = new AtomicLong();
+    this.lastShrinkTime = new AtomicLong( System.nanoTime() );
+    this.minimumBatteryCapacity = initialBatteryCapacity;
+    
+    //
+    for ( int ii = 0; ii < initialBatteryCapacity; ii++ )
+    {
+      this.size.incrementAndGet();
+      this.addNewPooledOperation();
+    }
+  }
+  
+  @Override
+  public RESULT execute( PARAMETER parameter )
+  {
+    //
+    this.acquirePermit();
+    try
+    {
+      //
+      final PooledOperation<RESULT, PARAMETER> pooledOperation = this.claimPooledOperation();
+      try
+      {
+        return pooledOperation.operation.execute( parameter );
+      }
+      finally
+      {
+        this.numberOfOperationsInUse.decrementAndGet();
+        pooledOperation.release();
+      }
+    }
+    finally
+    {
+      this.semaphore.release();
+      this.shrinkIfDue();
+    }
+  }
+  
+  /**
+   * Acquires one of the permits which bound the number of concurrent invocations to the maximum capacity and measures the wait
+   * time if no permit is available immediately
+   */
+  private void acquirePermit()
+  {
+    //
+    this.numberOfExecutions.incrementAndGet();
+    if ( !this.semaphore.tryAcquire() )
+    {
+      final long startTime = System.nanoTime();
+      this.semaphore.acquireUninterruptibly();
+      this.numberOfWaits.incrementAndGet();
+      this.waitTimeInNanos.addAndGet( System.nanoTime() - startTime );
+    }
+  }
+  
+  /**
+   * Claims an idle {@link PooledOperation} or creates a new one. Since the caller holds a permit, there is either an idle instance
+   * or the maximum capacity is not reached yet.
+   * 
+   * @return
+   */
+  private PooledOperation<RESULT, PARAMETER> claimPooledOperation()
+  {
+    //
+    PooledOperation<RESULT, PARAMETER> retval = this.lastUsedPooledOperation.get();
+    if ( retval == null || !retval.claim() )
+    {
+      retval = null;
+      while ( retval == null )
+      {
+        //
+        for ( PooledOperation<RESULT, PARAMETER> pooledOperation : this.pooledOperationList )
+        {
+          if ( pooledOperation.claim() )
+          {
+            retval = pooledOperation;
+            break;
+          }
+        }
+        
+        //
+        if ( retval == null )
+        {
+          final int size = this.size.get();
+          if ( size < this.maximumBatteryCapacity && this.size.compareAndSet( size, size + 1 ) )
+          {
+            retval = this.addNewPooledOperation();
+            retval.state.set( STATE_IN_USE );
+          }
+          else
+          {
+            Thread.yield();
+          }
+        }
+      }
+      this.lastUsedPooledOperation.set( retval );
+    }
+    
+    //
+    this.numberOfOperationsInUse.incrementAndGet();
+    return retval;
+  }
+  
+  /**
+   * Creates a new {@link PooledOperation} and adds it to the pool. The {@link #size} has to be incremented by the caller.
+   * 
+   * @return
+   */
+  private PooledOperation<RESULT, PARAMETER> addNewPooledOperation()
+  {
+    //
+    final PooledOperation<RESULT, PARAMETER> retval;
+    try
+    {
+      retval = new PooledOperation<RESULT, PARAMETER>( this.resolveNewOperationInstanceFromOperationFactory() );
+    }
+    catch ( RuntimeException e )
+    {
+      this.size.decrementAndGet();
+      throw e;
+    }
+    
+    //
+    this.pooledOperationList.add( retval );
+    this.numberOfCreatedOperations.incrementAndGet();
+    this.updatePeakSize( this.size.get() );
+    return retval;
+  }
+  
+  /**
+   * @param size
+   */
+  private void updatePeakSize( int size )
+  {
+    int peakSize = this.peakSize.get();
+    while ( size > peakSize && !this.peakSize.compareAndSet( peakSize, size ) )
+    {
+      peakSize = this.peakSize.get();
+    }
+  }
+  
+  /**
+   * Removes the {@link PooledOperation}s beyond the initial capacity which have been idle longer than the idle timeout. This is
+   * done at most once per idle timeout period by a single thread.
+   */
+  private void shrinkIfDue()
+  {
+    //
+    final long currentTime = System.nanoTime();
+    final long lastShrinkTime = this.lastShrinkTime.get();
+    if ( currentTime - lastShrinkTime >= this.idleTimeoutInNanos && this.size.get() > this.minimumBatteryCapacity
+         && this.lastShrinkTime.compareAndSet( lastShrinkTime, currentTime ) )
+    {
+      for ( PooledOperation<RESULT, PARAMETER> pooledOperation : this.pooledOperationList )
+      {
+        //
+        final int size = this.size.get();
+        if ( size <= this.minimumBatteryCapacity )
+        {
+          break;
+        }
+        
+        //
+        if ( currentTime - pooledOperation.lastUsedTime >= this.idleTimeoutInNanos
+             && pooledOperation.state.compareAndSet( STATE_IDLE, STATE_REMOVED ) )
+        {
+          if ( this.size.compareAndSet( size, size - 1 ) )
+          {
+            this.pooledOperationList.remove( pooledOperation );
+            this.numberOfRemovedOperations.incrementAndGet();
+          }
+          else
+          {
+            pooledOperation.state.set( STATE_IDLE );
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns a snapshot of the utilization and wait time figures
+   * 
+   * @return {@link Statistics}
+   */
+  public Statistics getStatistics()
+  {
+    return new Statistics( this.size.get(), this.peakSize.get(), this.numberOfOperationsInUse.get(),
+                           this.numberOfExecutions.get(), this.numberOfWaits.get(), this.waitTimeInNanos.get(),
+                           this.numberOfCreatedOperations.get(), this.numberOfRemovedOperations.get() );
+  }
+  
+  /**
+   * @return the maximum number of {@link Operation} instances
+   */
+  public int getMaximumBatteryCapacity()
+  {
+    return this.maximumBatteryCapacity;
+  }
+}
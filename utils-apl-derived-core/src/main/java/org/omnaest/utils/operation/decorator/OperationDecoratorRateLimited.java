@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.decorator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.threads.ratelimit.RateLimitExceededException;
+import org.omnaest.utils.threads.ratelimit.RateLimiter;
+import org.omnaest.utils.threads.ratelimit.RateLimiterPerKey;
+import org.omnaest.utils.threads.ratelimit.RateLimiterSlidingWindow;
+import org.omnaest.utils.threads.ratelimit.RateLimiterTokenBucket;
+
+/**
+ * An {@link OperationDecorator} which acquires a permit from a {@link RateLimiter} before every {@link Operation#execute(Object)}
+ * invocation. It is thread safe as long as the decorated {@link Operation} is.<br>
+ * <br>
+ * Depending on the {@link AcquireMode} the calling {@link Thread} waits for the permit, or a {@link RateLimitExceededException} is
+ * thrown if the permit is not available immediately or not within a given timeout. A {@link RateLimitExceededException} is also
+ * thrown if the {@link Thread} is interrupted while it waits, and the interrupted flag is set again.<br>
+ * <br>
+ * Using a {@link RateLimiterPerKey} the permits can be limited per key derived from the parameter, e.g. per remote host.
+ * 
+ * <pre>
+ * Operation&lt;Response, Request&gt; operation = new OperationDecoratorRateLimited&lt;Response, Request&gt;( operationRemoteCall,
+ *                                                                                             new RateLimiterTokenBucket( 100, 1, TimeUnit.SECONDS, 10 ) );
+ * </pre>
+ * 
+ * @see RateLimiterTokenBucket
+ * @see RateLimiterSlidingWindow
+ * @see RateLimiterPerKey
+ * @author Omnaest
+ * @param <RESULT>
+ * @param <PARAMETER>
+ */
+public class OperationDecoratorRateLimited<RESULT, PARAMETER> extends OperationDecorator<RESULT, PARAMETER>
+{
+  /* ********************************************** Variables ********************************************** */
+  protected final ElementConverter<PARAMETER, RateLimiter> parameterToRateLimiterConverter;
+  protected final AcquireMode                              acquireMode;
+  protected final long                                     timeoutInNanoseconds;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Modes of how an {@link OperationDecoratorRateLimited} acquires a permit
+   * 
+   * @author Omnaest
+   */
+  public static enum AcquireMode
+  {
+    /**
+     * Waits until a permit is available
+     * 
+     * @see RateLimiter#acquire()
+     */
+    BLOCKING,
+    /**
+     * Throws a {@link RateLimitExceededException} if no permit is available immediately
+     * 
+     * @see RateLimiter#tryAcquire()
+     */
+    TRY_ACQUIRE,
+    /**
+     * Waits for a permit if it is available within the timeout and otherwise throws a {@link RateLimitExceededException}
+     * 
+     * @see RateLimiter#tryAcquire(long, TimeUnit)
+     */
+    TIMED
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Uses {@link AcquireMode#BLOCKING}
+   * 
+   * @see OperationDecoratorRateLimited
+   * @param operation
+   * @param rateLimiter
+   *          {@link RateLimiter}
+   */
+  public OperationDecoratorRateLimited( Operation<RESULT, PARAMETER> operation, RateLimiter rateLimiter )
+  {
+    this( operation, rateLimiter, AcquireMode.BLOCKING, 0, TimeUnit.NANOSECONDS );
+  }
+  
+  /**
+   * @see OperationDecoratorRateLimited
+   * @param operation
+   * @param rateLimiter
+   *          {@link RateLimiter}
+   * @param acquireMode
+   *          {@link AcquireMode}
+   * @param timeout
+   *          only used for {@link AcquireMode#TIMED}
+   * @param timeUnit
+   *          {@link TimeUnit} of the timeout
+   */
+  public OperationDecoratorRateLimited( Operation<RESULT, PARAMETER> operation, final RateLimiter rateLimiter,
+                                        AcquireMode acquireMode, long timeout, TimeUnit timeUnit )
+  {
+    this( operation, new ElementConverter<PARAMETER, RateLimiter>()
+    {
+      @Override
+      public RateLimiter convert( PARAMETER parameter )
+      {
+        return rateLimiter;
+      }
+    }, acquireMode, timeout, timeUnit );
+  }
+  
+  /**
+   * Limits the invocations per key, which is derived from the parameter by the given {@link ElementConverter}
+   * 
+   * @see OperationDecoratorRateLimited
+   * @param operation
+   * @param rateLimiterPerKey
+   *          {@link RateLimiterPerKey}
+   * @param parameterToKeyConverter
+   *          {@link ElementConverter} which returns the key for a parameter
+   * @param acquireMode
+   *          {@link AcquireMode}
+   * @param timeout
+   *          only used for {@link AcquireMode#TIMED}
+   * @param timeUnit
+   *          {@link TimeUnit} of the timeout
+   */
+  public <KEY> OperationDecoratorRateLimited( Operation<RESULT, PARAMETER> operation,
+                                              final RateLimiterPerKey<KEY> rateLimiterPerKey,
+                                              final ElementConverter<PARAMETER, KEY> parameterToKeyConverter,
+                                              AcquireMode acquireMode, long timeout, TimeUnit timeUnit )
+  {
+    this( operation, new ElementConverter<PARAMETER, RateLimiter>()
+    {
+      @Override
+      public RateLimiter convert( PARAMETER parameter )
+      {
+        return rateLimiterPerKey.getRateLimiter( parameterToKeyConverter.convert( parameter ) );
+      }
+    }, acquireMode, timeout, timeUnit );
+  }
+  
+  /**
+   * @param operation
+   * @param parameterToRateLimiterConverter
+   * @param acquireMode
+   * @param timeout
+   * @param timeUnit
+   */
+  private OperationDecoratorRateLimited( Operation<RESULT, PARAMETER> operation,
+                                         ElementConverter<PARAMETER, RateLimiter> parameterToRateLimiterConverter,
+                                         AcquireMode acquireMode, long timeout, TimeUnit timeUnit )
+  {
+    super( operation );
+    this.parameterToRateLimiterConverter = parameterToRateLimiterConverter;
+    this.acquireMode = acquireMode != null ? acquireMode : AcquireMode.BLOCKING;
+    this.timeoutInNanoseconds = timeUnit.toNanos( timeout );
+  }
+  
+  @Override
+  public RESULT execute( PARAMETER parameter ) throws RateLimitExceededException
+  {
+    //
+    Assert.isNotNull( this.operation,
+                      "OperationDecoratorRateLimited cannot decorate an non existing operation. Provide an instance reference which is not null." );
+    
+    //
+    final RateLimiter rateLimiter = this.parameterToRateLimiterConverter.convert( parameter );
+    if ( rateLimiter != null )
+    {
+      try
+      {
+        //
+        final boolean acquired;
+        if ( this.acquireMode == AcquireMode.TRY_ACQUIRE )
+        {
+          acquired = rateLimiter.tryAcquire();
+        }
+        else if ( this.acquireMode == AcquireMode.TIMED )
+        {
+          acquired = rateLimiter.tryAcquire( this.timeoutInNanoseconds, TimeUnit.NANOSECONDS );
+        }
+        else
+        {
+          rateLimiter.acquire();
+          acquired = true;
+        }
+        
+        //
+        if ( !acquired )
+        {
+          throw new RateLimitExceededException( rateLimiter.getDurationToWaitInNanoseconds() );
+        }
+      }
+      catch ( InterruptedException e )
+      {
+        Thread.currentThread().interrupt();
+        throw new RateLimitExceededException( rateLimiter.getDurationToWaitInNanoseconds(), e );
+      }
+    }
+    
+    //
+    return this.operation.execute( parameter );
+  }
+  
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append( "OperationDecoratorRateLimited [acquireMode=" );
+    builder.append( this.acquireMode );
+    builder.append( ", timeoutInNanoseconds=" );
+    builder.append( this.timeoutInNanoseconds );
+    builder.append( ", operation=" );
+    builder.append( this.operation );
+    builder.append( "]" );
+    return builder.toString();
+  }
+}
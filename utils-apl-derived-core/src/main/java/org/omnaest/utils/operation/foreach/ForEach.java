@@ -31,8 +31,12 @@ import org.omnaest.utils.operation.Operation;
 
 /**
  * Wrapper of any {@link Iterable} which allows parallel processing using the well known {@link #map(Operation)} and
- * {@link IterationResult#reduce(Operation)} paradigm.
+ * {@link IterationResult#reduce(Operation)} paradigm.<br>
+ * <br>
+ * The {@link #map(Operation)} methods submit one task per element. For a large number of cheap elements use {@link #parallel()},
+ * which processes chunks of elements using work stealing and supports short circuiting operations.
  * 
+ * @see ParallelForEach
  * @author Omnaest
  * @param <E>
  */
@@ -162,4 +166,16 @@ public class ForEach<E>
     return retval;
   }
   
+  /**
+   * Returns a {@link ParallelForEach} for the same elements, which splits them into chunks and processes them using work
+   * stealing
+   * 
+   * @see ParallelForEach
+   * @return {@link ParallelForEach}
+   */
+  public ParallelForEach<E> parallel()
+  {
+    return new ParallelForEach<E>( this.iterable );
+  }
+  
 }
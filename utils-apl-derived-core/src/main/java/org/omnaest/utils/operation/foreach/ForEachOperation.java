@@ -21,9 +21,11 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
 import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.foreach.ForEach.IterationResult;
 import org.omnaest.utils.operation.foreach.ForEachOperation.Result;
 import org.omnaest.utils.strings.StringReplacer.ReplacementResult;
 import org.omnaest.utils.structure.collection.CollectionUtils;
@@ -51,6 +53,8 @@ public class ForEachOperation<E, V> implements Operation<Result<V>, Operation<V,
   private ExecutorService     executorServiceForParallelExecution = null;
   private ExecutorService     executorServiceForParallelIteration = null;
   private int                 numberOfThreadsForParallelIteration = 1;
+  private boolean             workStealing                        = false;
+  private ExecutorService     executorServiceForWorkStealing      = null;
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
@@ -213,7 +217,11 @@ public class ForEachOperation<E, V> implements Operation<Result<V>, Operation<V,
     Result<V> retval = null;
     
     //
-    if ( this.executorServiceForParallelExecution != null || this.executorServiceForParallelIteration != null )
+    if ( this.workStealing )
+    {
+      retval = this.executeWorkStealing( operations );
+    }
+    else if ( this.executorServiceForParallelExecution != null || this.executorServiceForParallelIteration != null )
     {
       retval = this.executeMultiThreaded( operations );
     }
@@ -354,6 +362,74 @@ public class ForEachOperation<E, V> implements Operation<Result<V>, Operation<V,
     return new Result<V>( org.apache.commons.collections.ListUtils.unmodifiableList( retlist ) );
   }
   
+  /**
+   * @see #execute(Operation...)
+   * @see ParallelForEach
+   * @param operations
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  private Result<V> executeWorkStealing( final Operation<V, E>... operations )
+  {
+    //
+    final List<V> retlist = new ArrayList<V>();
+    
+    //
+    final Operation<List<V>, E> operationForAllOperations = new Operation<List<V>, E>()
+    {
+      @Override
+      public List<V> execute( E element )
+      {
+        //
+        final List<V> valueList = new ArrayList<V>( operations.length );
+        for ( Operation<V, E> operation : operations )
+        {
+          if ( operation != null )
+          {
+            valueList.add( operation.execute( element ) );
+          }
+        }
+        
+        //
+        return valueList;
+      }
+    };
+    
+    //
+    for ( Iterable<E> iterable : this.iterables )
+    {
+      if ( iterable != null )
+      {
+        try
+        {
+          final IterationResult<List<V>> iterationResult = new ParallelForEach<E>( iterable ).doUseExecutorService( this.executorServiceForWorkStealing )
+                                                                                             .doPreserveEncounterOrder( true )
+                                                                                             .map( operationForAllOperations );
+          for ( List<V> valueList : iterationResult )
+          {
+            retlist.addAll( valueList );
+          }
+        }
+        catch ( ExecutionException e )
+        {
+          final Throwable cause = e.getCause();
+          if ( cause instanceof RuntimeException )
+          {
+            throw (RuntimeException) cause;
+          }
+          if ( cause instanceof Error )
+          {
+            throw (Error) cause;
+          }
+          throw new IllegalStateException( cause );
+        }
+      }
+    }
+    
+    //
+    return new Result<V>( org.apache.commons.collections.ListUtils.unmodifiableList( retlist ) );
+  }
+  
   /**
    * @param executorService
    *          the executorService to set
@@ -384,4 +460,31 @@ public class ForEachOperation<E, V> implements Operation<Result<V>, Operation<V,
     return this;
   }
   
+  /**
+   * Executes the {@link Operation}s using a {@link ParallelForEach} which splits the elements of each {@link Iterable} into
+   * chunks and processes them using work stealing on the default {@link ExecutorService} of the {@link ParallelForEach}. In
+   * contrast to the other parallel options the order of the {@link Result} is the same as for the single threaded execution.
+   * 
+   * @see #doExecuteInParallelUsingWorkStealing(ExecutorService)
+   * @return this
+   */
+  public ForEachOperation<E, V> doExecuteInParallelUsingWorkStealing()
+  {
+    return this.doExecuteInParallelUsingWorkStealing( null );
+  }
+  
+  /**
+   * Similar to {@link #doExecuteInParallelUsingWorkStealing()} but uses the given {@link ExecutorService} for the additional
+   * workers
+   * 
+   * @param executorService
+   * @return this
+   */
+  public ForEachOperation<E, V> doExecuteInParallelUsingWorkStealing( ExecutorService executorService )
+  {
+    this.workStealing = true;
+    this.executorServiceForWorkStealing = executorService;
+    return this;
+  }
+  
 }
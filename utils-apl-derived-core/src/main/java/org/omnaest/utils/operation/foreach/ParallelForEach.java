@@ -0,0 +1,791 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.foreach;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.foreach.ForEach.IterationResult;
+import org.omnaest.utils.operation.special.OperationBooleanResult;
+import org.omnaest.utils.operation.special.OperationVoid;
+
+/**
+ * Fork/join like parallel execution of {@link Operation}s on the elements of an {@link Iterable}.<br>
+ * <br>
+ * The elements are split into chunks of adjacent elements instead of submitting one task per element. Every worker
+ * {@link Thread} owns a deque of chunks: it splits a taken chunk in halves until the chunk is small enough, pushes the right
+ * halves onto its own deque and processes the remaining left part. Idle workers steal the largest chunks from the other end of
+ * the deques of the other workers, so the load is balanced even if the costs of the elements differ. The calling {@link Thread}
+ * takes part as a worker, so nested usage on the same {@link ExecutorService} can not starve.<br>
+ * <br>
+ * {@link List}s with {@link RandomAccess} and {@link Range}s with a positive step are split without copying, any other
+ * {@link Iterable} is copied into a {@link List} first.<br>
+ * <br>
+ * The {@link #findFirst(OperationBooleanResult)}, {@link #findAny(OperationBooleanResult)},
+ * {@link #anyMatch(OperationBooleanResult)} and {@link #allMatch(OperationBooleanResult)} operations stop as soon as their
+ * result is determined. If any {@link Operation} throws an exception, the remaining chunks are skipped and an
+ * {@link ExecutionException} is thrown.<br>
+ * <br>
+ * Example:
+ * 
+ * <pre>
+ * long sum = new ForEach&lt;Long&gt;( new Range( 1, 10000000 ) ).parallel().mapReduce( operation, sumReducer );
+ * </pre>
+ * 
+ * @see ForEach#parallel()
+ * @author Omnaest
+ * @param <E>
+ */
+public class ParallelForEach<E>
+{
+  /* ********************************************** Constants ********************************************** */
+  public static final int                DEFAULT_MINIMUM_CHUNK_SIZE = 1;
+  private static final int               CHUNKS_PER_WORKER          = 8;
+  private static final int               IDLE_SPINS_BEFORE_PARKING  = 64;
+  private static final long              IDLE_PARK_NANOS            = TimeUnit.MICROSECONDS.toNanos( 50 );
+  private static final ExecutorService   DEFAULT_EXECUTOR_SERVICE   = Executors.newCachedThreadPool( new ThreadFactory()
+                                                                    {
+                                                                      private final AtomicInteger threadCounter = new AtomicInteger();
+                                                                      
+                                                                      @Override
+                                                                      public Thread newThread( Runnable runnable )
+                                                                      {
+                                                                        final Thread thread = new Thread( runnable,
+                                                                                                          ParallelForEach.class.getSimpleName()
+                                                                                                              + "-worker-"
+                                                                                                              + this.threadCounter.incrementAndGet() );
+                                                                        thread.setDaemon( true );
+                                                                        return thread;
+                                                                      }
+                                                                    } );
+  
+  /* ********************************************** Variables ********************************************** */
+  private final Iterable<E>              iterable;
+  private ExecutorService                executorService            = DEFAULT_EXECUTOR_SERVICE;
+  private int                            parallelism                = Runtime.getRuntime().availableProcessors();
+  private int                            minimumChunkSize           = DEFAULT_MINIMUM_CHUNK_SIZE;
+  private boolean                        preserveEncounterOrder     = false;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Random access to the elements which allows to split them into chunks of indexes
+   * 
+   * @author Omnaest
+   * @param <E>
+   */
+  private static interface IndexedSource<E>
+  {
+    public long size();
+    
+    public E get( long index );
+  }
+  
+  /**
+   * {@link IndexedSource} for a {@link List} with {@link RandomAccess}
+   * 
+   * @author Omnaest
+   * @param <E>
+   */
+  private static class IndexedSourceList<E> implements IndexedSource<E>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final List<E> list;
+    
+    /* ********************************************** Methods ********************************************** */
+    public IndexedSourceList( List<E> list )
+    {
+      super();
+      this.list = list;
+    }
+    
+    @Override
+    public long size()
+    {
+      return this.list.size();
+    }
+    
+    @Override
+    public E get( long index )
+    {
+      return this.list.get( (int) index );
+    }
+  }
+  
+  /**
+   * {@link IndexedSource} for a {@link Range} with a positive step which computes the values instead of iterating them
+   * 
+   * @author Omnaest
+   */
+  private static class IndexedSourceRange implements IndexedSource<Long>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final long numberFrom;
+    private final long step;
+    private final long size;
+    
+    /* ********************************************** Methods ********************************************** */
+    public IndexedSourceRange( long numberFrom, long numberTo, long step )
+    {
+      super();
+      this.numberFrom = numberFrom;
+      this.step = step;
+      this.size = numberTo >= numberFrom ? ( numberTo - numberFrom ) / step + 1 : 0;
+    }
+    
+    @Override
+    public long size()
+    {
+      return this.size;
+    }
+    
+    @Override
+    public Long get( long index )
+    {
+      return this.numberFrom + index * this.step;
+    }
+  }
+  
+  /**
+   * Half open interval of indexes
+   * 
+   * @author Omnaest
+   */
+  private static final class Chunk
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final long from;
+    private final long to;
+    
+    /* ********************************************** Methods ********************************************** */
+    public Chunk( long from, long to )
+    {
+      super();
+      this.from = from;
+      this.to = to;
+    }
+  }
+  
+  /**
+   * Collects the results of the chunks either in encounter order or in completion order
+   * 
+   * @author Omnaest
+   * @param <R>
+   */
+  private static class ChunkResultCollector<R>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final ConcurrentSkipListMap<Long, List<R>> chunkStartToResultListMap;
+    private final Queue<List<R>>                       resultListQueue;
+    
+    /* ********************************************** Methods ********************************************** */
+    public ChunkResultCollector( boolean preserveEncounterOrder )
+    {
+      super();
+      this.chunkStartToResultListMap = preserveEncounterOrder ? new ConcurrentSkipListMap<Long, List<R>>() : null;
+      this.resultListQueue = preserveEncounterOrder ? null : new ConcurrentLinkedQueue<List<R>>();
+    }
+    
+    public void add( long chunkStart, List<R> resultList )
+    {
+      if ( this.chunkStartToResultListMap != null )
+      {
+        this.chunkStartToResultListMap.put( chunkStart, resultList );
+      }
+      else
+      {
+        this.resultListQueue.add( resultList );
+      }
+    }
+    
+    public List<R> toList()
+    {
+      //
+      final Collection<List<R>> resultLists = this.chunkStartToResultListMap != null ? this.chunkStartToResultListMap.values()
+                                                                                    : this.resultListQueue;
+      
+      //
+      int size = 0;
+      for ( List<R> resultList : resultLists )
+      {
+        size += resultList.size();
+      }
+      final List<R> retlist = new ArrayList<R>( size );
+      for ( List<R> resultList : resultLists )
+      {
+        retlist.addAll( resultList );
+      }
+      
+      //
+      return retlist;
+    }
+  }
+  
+  /**
+   * A single parallel execution over all chunks of an {@link IndexedSource}
+   * 
+   * @author Omnaest
+   */
+  private abstract class Execution
+  {
+    /* ********************************************** Variables ********************************************** */
+    protected final IndexedSource<E>          indexedSource;
+    private final BlockingDeque<Chunk>[]      deques;
+    private final long                        threshold;
+    private final AtomicLong                  remainingCounter;
+    private final AtomicReference<Throwable>  failure = new AtomicReference<Throwable>();
+    private volatile boolean                  stopped = false;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @param indexedSource
+     */
+    @SuppressWarnings("unchecked")
+    public Execution( IndexedSource<E> indexedSource )
+    {
+      //
+      super();
+      this.indexedSource = indexedSource;
+      
+      //
+      final int parallelism = ParallelForEach.this.parallelism;
+      final long size = indexedSource.size();
+      this.deques = new BlockingDeque[parallelism];
+      for ( int ii = 0; ii < parallelism; ii++ )
+      {
+        this.deques[ii] = new LinkedBlockingDeque<Chunk>();
+      }
+      this.threshold = Math.max( ParallelForEach.this.minimumChunkSize, size / ( parallelism * CHUNKS_PER_WORKER ) );
+      this.remainingCounter = new AtomicLong( size );
+    }
+    
+    /**
+     * Processes the elements of the given half open interval of indexes. Is called concurrently for different chunks.
+     * 
+     * @param from
+     * @param to
+     */
+    protected abstract void processChunk( long from, long to );
+    
+    /**
+     * Skips all chunks which have not been started yet
+     */
+    protected void stop()
+    {
+      this.stopped = true;
+    }
+    
+    /**
+     * @return true if {@link #stop()} has been called or any {@link Operation} has failed
+     */
+    protected boolean isStopped()
+    {
+      return this.stopped;
+    }
+    
+    /**
+     * Processes all chunks using the workers of the {@link ExecutorService} and the current {@link Thread} and returns when all
+     * chunks are done
+     * 
+     * @throws ExecutionException
+     *           if any chunk has thrown an exception
+     */
+    public void execute() throws ExecutionException
+    {
+      //
+      final long size = this.indexedSource.size();
+      if ( size > 0 )
+      {
+        //
+        this.deques[0].addLast( new Chunk( 0, size ) );
+        for ( int ii = 1; ii < this.deques.length && ii < size; ii++ )
+        {
+          final int workerIndex = ii;
+          try
+          {
+            ParallelForEach.this.executorService.execute( new Runnable()
+            {
+              @Override
+              public void run()
+              {
+                Execution.this.work( workerIndex );
+              }
+            } );
+          }
+          catch ( RejectedExecutionException e )
+          {
+            break;
+          }
+        }
+        
+        //
+        this.work( 0 );
+      }
+      
+      //
+      final Throwable throwable = this.failure.get();
+      if ( throwable != null )
+      {
+        throw new ExecutionException( throwable );
+      }
+    }
+    
+    /**
+     * Takes chunks from the own deque or steals them from the other workers until all chunks are done
+     * 
+     * @param workerIndex
+     */
+    private void work( int workerIndex )
+    {
+      //
+      final BlockingDeque<Chunk> deque = this.deques[workerIndex];
+      int idleCounter = 0;
+      while ( this.remainingCounter.get() > 0 )
+      {
+        //
+        Chunk chunk = deque.pollLast();
+        if ( chunk == null )
+        {
+          chunk = this.steal( workerIndex );
+        }
+        
+        //
+        if ( chunk == null )
+        {
+          if ( ++idleCounter < IDLE_SPINS_BEFORE_PARKING )
+          {
+            Thread.yield();
+          }
+          else
+          {
+            LockSupport.parkNanos( IDLE_PARK_NANOS );
+          }
+        }
+        else
+        {
+          //
+          idleCounter = 0;
+          final long from = chunk.from;
+          long to = chunk.to;
+          while ( to - from > this.threshold && !this.stopped )
+          {
+            final long middle = from + ( to - from ) / 2;
+            deque.addLast( new Chunk( middle, to ) );
+            to = middle;
+          }
+          
+          //
+          try
+          {
+            if ( !this.stopped )
+            {
+              this.processChunk( from, to );
+            }
+          }
+          catch ( Throwable e )
+          {
+            this.failure.compareAndSet( null, e );
+            this.stopped = true;
+          }
+          finally
+          {
+            this.remainingCounter.addAndGet( from - to );
+          }
+        }
+      }
+    }
+    
+    /**
+     * Returns the oldest and therefore largest {@link Chunk} of any other worker or null if there is none
+     * 
+     * @param workerIndex
+     * @return
+     */
+    private Chunk steal( int workerIndex )
+    {
+      //
+      Chunk retval = null;
+      
+      //
+      for ( int ii = 1; ii < this.deques.length && retval == null; ii++ )
+      {
+        retval = this.deques[( workerIndex + ii ) % this.deques.length].pollFirst();
+      }
+      
+      //
+      return retval;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see ParallelForEach
+   * @param iterable
+   */
+  public ParallelForEach( Iterable<E> iterable )
+  {
+    super();
+    this.iterable = iterable;
+  }
+  
+  /**
+   * @see ParallelForEach
+   * @param elements
+   */
+  public ParallelForEach( E... elements )
+  {
+    this( Arrays.asList( elements ) );
+  }
+  
+  /**
+   * Sets the {@link ExecutorService} which runs the additional workers. If null is given a shared cached thread pool with daemon
+   * {@link Thread}s is used, which is also the default.
+   * 
+   * @param executorService
+   *          {@link ExecutorService}
+   * @return this
+   */
+  public ParallelForEach<E> doUseExecutorService( ExecutorService executorService )
+  {
+    this.executorService = executorService != null ? executorService : DEFAULT_EXECUTOR_SERVICE;
+    return this;
+  }
+  
+  /**
+   * Sets the number of workers including the calling {@link Thread}. Defaults to {@link Runtime#availableProcessors()}.
+   * 
+   * @param parallelism
+   * @return this
+   */
+  public ParallelForEach<E> doUseParallelism( int parallelism )
+  {
+    Assert.isTrue( parallelism >= 1, "parallelism must be at least 1" );
+    this.parallelism = parallelism;
+    return this;
+  }
+  
+  /**
+   * Sets the number of elements below which a chunk is not split further. Defaults to {@value #DEFAULT_MINIMUM_CHUNK_SIZE}, since
+   * chunks are not split below 1/{@value #CHUNKS_PER_WORKER} of the share of each worker anyhow.
+   * 
+   * @param minimumChunkSize
+   * @return this
+   */
+  public ParallelForEach<E> doUseMinimumChunkSize( int minimumChunkSize )
+  {
+    Assert.isTrue( minimumChunkSize >= 1, "minimumChunkSize must be at least 1" );
+    this.minimumChunkSize = minimumChunkSize;
+    return this;
+  }
+  
+  /**
+   * If set to true {@link #map(Operation)} returns the results in the order of the elements and
+   * {@link #mapReduce(Operation, Operation)} reduces the results of the chunks in the order of the elements. Otherwise the
+   * results are combined in the order the chunks complete. Defaults to false.
+   * 
+   * @param preserveEncounterOrder
+   * @return this
+   */
+  public ParallelForEach<E> doPreserveEncounterOrder( boolean preserveEncounterOrder )
+  {
+    this.preserveEncounterOrder = preserveEncounterOrder;
+    return this;
+  }
+  
+  /**
+   * Executes the given {@link OperationVoid} for every element
+   * 
+   * @param operation
+   *          {@link OperationVoid}
+   * @throws ExecutionException
+   */
+  public void forEach( final OperationVoid<E> operation ) throws ExecutionException
+  {
+    new Execution( this.newIndexedSource() )
+    {
+      @Override
+      protected void processChunk( long from, long to )
+      {
+        for ( long ii = from; ii < to; ii++ )
+        {
+          operation.execute( this.indexedSource.get( ii ) );
+        }
+      }
+    }.execute();
+  }
+  
+  /**
+   * Maps every element to a result
+   * 
+   * @see #doPreserveEncounterOrder(boolean)
+   * @param operation
+   *          {@link Operation}
+   * @return {@link IterationResult}
+   * @throws ExecutionException
+   */
+  public <R> IterationResult<R> map( final Operation<R, E> operation ) throws ExecutionException
+  {
+    //
+    final ChunkResultCollector<R> chunkResultCollector = new ChunkResultCollector<R>( this.preserveEncounterOrder );
+    new Execution( this.newIndexedSource() )
+    {
+      @Override
+      protected void processChunk( long from, long to )
+      {
+        final List<R> resultList = new ArrayList<R>( (int) ( to - from ) );
+        for ( long ii = from; ii < to; ii++ )
+        {
+          resultList.add( operation.execute( this.indexedSource.get( ii ) ) );
+        }
+        chunkResultCollector.add( from, resultList );
+      }
+    }.execute();
+    
+    //
+    return new IterationResult<R>( chunkResultCollector.toList() );
+  }
+  
+  /**
+   * Maps every element to a result and reduces the results to a single value. The reducer is called for the results of every
+   * chunk and finally for the reduced values of all chunks, so it has to be associative. If the encounter order is not preserved
+   * it has to be commutative, too.
+   * 
+   * @see #doPreserveEncounterOrder(boolean)
+   * @param operation
+   *          {@link Operation}
+   * @param reducer
+   *          {@link Operation}
+   * @return
+   * @throws ExecutionException
+   */
+  public <R> R mapReduce( final Operation<R, E> operation, final Operation<R, Collection<R>> reducer ) throws ExecutionException
+  {
+    //
+    final ChunkResultCollector<R> chunkResultCollector = new ChunkResultCollector<R>( this.preserveEncounterOrder );
+    new Execution( this.newIndexedSource() )
+    {
+      @Override
+      protected void processChunk( long from, long to )
+      {
+        final List<R> resultList = new ArrayList<R>( (int) ( to - from ) );
+        for ( long ii = from; ii < to; ii++ )
+        {
+          resultList.add( operation.execute( this.indexedSource.get( ii ) ) );
+        }
+        chunkResultCollector.add( from, Collections.singletonList( reducer.execute( resultList ) ) );
+      }
+    }.execute();
+    
+    //
+    return reducer.execute( chunkResultCollector.toList() );
+  }
+  
+  /**
+   * Returns the first element in encounter order which matches the given predicate or null if no element matches. Chunks behind
+   * an already found element are skipped.
+   * 
+   * @param predicate
+   *          {@link OperationBooleanResult}
+   * @return
+   * @throws ExecutionException
+   */
+  public E findFirst( final OperationBooleanResult<E> predicate ) throws ExecutionException
+  {
+    //
+    final IndexedSource<E> indexedSource = this.newIndexedSource();
+    final AtomicLong firstIndex = new AtomicLong( Long.MAX_VALUE );
+    new Execution( indexedSource )
+    {
+      @Override
+      protected void processChunk( long from, long to )
+      {
+        for ( long ii = from; ii < to && ii < firstIndex.get(); ii++ )
+        {
+          if ( Boolean.TRUE.equals( predicate.execute( this.indexedSource.get( ii ) ) ) )
+          {
+            long index = firstIndex.get();
+            while ( ii < index && !firstIndex.compareAndSet( index, ii ) )
+            {
+              index = firstIndex.get();
+            }
+            break;
+          }
+        }
+      }
+    }.execute();
+    
+    //
+    final long index = firstIndex.get();
+    return index != Long.MAX_VALUE ? indexedSource.get( index ) : null;
+  }
+  
+  /**
+   * Returns any element which matches the given predicate or null if no element matches. Stops as soon as a matching element
+   * has been found.
+   * 
+   * @param predicate
+   *          {@link OperationBooleanResult}
+   * @return
+   * @throws ExecutionException
+   */
+  public E findAny( OperationBooleanResult<E> predicate ) throws ExecutionException
+  {
+    //
+    final IndexedSource<E> indexedSource = this.newIndexedSource();
+    final long index = this.findAnyIndex( indexedSource, predicate );
+    
+    //
+    return index >= 0 ? indexedSource.get( index ) : null;
+  }
+  
+  /**
+   * Returns true if any element matches the given predicate. Stops as soon as a matching element has been found.
+   * 
+   * @param predicate
+   *          {@link OperationBooleanResult}
+   * @return
+   * @throws ExecutionException
+   */
+  public boolean anyMatch( OperationBooleanResult<E> predicate ) throws ExecutionException
+  {
+    return this.findAnyIndex( this.newIndexedSource(), predicate ) >= 0;
+  }
+  
+  /**
+   * Returns true if all elements match the given predicate. Stops as soon as a not matching element has been found.
+   * 
+   * @param predicate
+   *          {@link OperationBooleanResult}
+   * @return
+   * @throws ExecutionException
+   */
+  public boolean allMatch( final OperationBooleanResult<E> predicate ) throws ExecutionException
+  {
+    return this.findAnyIndex( this.newIndexedSource(), new OperationBooleanResult<E>()
+    {
+      @Override
+      public Boolean execute( E element )
+      {
+        return !Boolean.TRUE.equals( predicate.execute( element ) );
+      }
+    } ) < 0;
+  }
+  
+  /**
+   * @param indexedSource
+   * @param predicate
+   * @return the index of any matching element or -1 if no element matches
+   * @throws ExecutionException
+   */
+  private long findAnyIndex( IndexedSource<E> indexedSource, final OperationBooleanResult<E> predicate ) throws ExecutionException
+  {
+    //
+    final AtomicLong anyIndex = new AtomicLong( -1 );
+    new Execution( indexedSource )
+    {
+      @Override
+      protected void processChunk( long from, long to )
+      {
+        for ( long ii = from; ii < to && !this.isStopped(); ii++ )
+        {
+          if ( Boolean.TRUE.equals( predicate.execute( this.indexedSource.get( ii ) ) ) )
+          {
+            anyIndex.compareAndSet( -1, ii );
+            this.stop();
+          }
+        }
+      }
+    }.execute();
+    
+    //
+    return anyIndex.get();
+  }
+  
+  /**
+   * Returns an {@link IndexedSource} for the {@link Iterable}, which copies the elements only if they can not be accessed by index
+   * 
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  private IndexedSource<E> newIndexedSource()
+  {
+    //
+    IndexedSource<E> retval = null;
+    
+    //
+    final Iterable<E> iterable = this.iterable;
+    if ( iterable instanceof Range && isSplittable( (Range) iterable ) )
+    {
+      final Range range = (Range) iterable;
+      retval = (IndexedSource<E>) new IndexedSourceRange( range.getNumberFrom(), range.getNumberTo(), range.getStep() );
+    }
+    else if ( iterable instanceof List && iterable instanceof RandomAccess )
+    {
+      retval = new IndexedSourceList<E>( (List<E>) iterable );
+    }
+    else if ( iterable instanceof Collection )
+    {
+      retval = new IndexedSourceList<E>( new ArrayList<E>( (Collection<E>) iterable ) );
+    }
+    else
+    {
+      final List<E> list = new ArrayList<E>();
+      if ( iterable != null )
+      {
+        for ( E element : iterable )
+        {
+          list.add( element );
+        }
+      }
+      retval = new IndexedSourceList<E>( list );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @param range
+   * @return true if the values of the given {@link Range} can be computed by index
+   */
+  private static boolean isSplittable( Range range )
+  {
+    return range.getNumberFrom() != null && range.getNumberTo() != null && range.getStep() != null && range.getStep() > 0;
+  }
+}
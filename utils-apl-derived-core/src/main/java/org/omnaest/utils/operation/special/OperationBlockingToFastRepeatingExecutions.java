@@ -16,16 +16,24 @@
 package org.omnaest.utils.operation.special;
 
 import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.decorator.OperationDecoratorRateLimited;
+import org.omnaest.utils.threads.ratelimit.RateLimiterSlidingWindow;
+import org.omnaest.utils.threads.ratelimit.RateLimiterTokenBucket;
 import org.omnaest.utils.time.DurationCapture;
 
 /**
  * {@link Operation} which will allow to execute the {@link #execute(Object)} method only once within a given period of time. All
- * faster reinvoked {@link #execute(Object)} calls will result in an {@link ToFastInvocationException}.
+ * faster reinvoked {@link #execute(Object)} calls will result in an {@link ToFastInvocationException}.<br>
+ * <br>
+ * This class is not thread safe.
  * 
+ * @deprecated use {@link OperationDecoratorRateLimited} with a {@link RateLimiterTokenBucket} or {@link RateLimiterSlidingWindow},
+ *             which is thread safe and can also wait for a permit instead of rejecting the invocation
  * @author Omnaest
  * @param <RESULT>
  * @param <PARAMETER>
  */
+@Deprecated
 public class OperationBlockingToFastRepeatingExecutions<RESULT, PARAMETER> implements Operation<RESULT, PARAMETER>
 {
   /* ********************************************** Variables ********************************************** */
@@ -17,8 +17,11 @@ package org.omnaest.utils.proxy;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
@@ -31,18 +34,45 @@ import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
 import org.omnaest.utils.proxy.handler.MethodCallCapture;
 import org.omnaest.utils.proxy.handler.MethodInvocationHandler;
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
 
 /**
  * Helper to create stubs easily based on CGLIB.<br>
  * <br>
  * There are several static creation methods but the {@link StubCreator} can be instantiated also. If instantiated it will cache a
  * prototype of a generated stub for the given type and its interfaces and creates any new instance based on this prototype
- * instance which is much more faster.
+ * instance which is much more faster.<br>
+ * <br>
+ * The static creation methods share a global cache of such prototypes per type and set of interfaces, so the generated proxy
+ * {@link Class} is resolved only once. The prototypes are held as derived metadata by the {@link ClassMetadataRegistry}. Since
+ * a prototype references its type, prototypes of types loaded by the {@link ClassLoader} of this library or its parents are
+ * only released on memory shortage, whereas prototypes of types of any other {@link ClassLoader} are held weakly and do not
+ * prevent the unloading of their {@link ClassLoader}.
  * 
  * @author Omnaest
  */
 public class StubCreator<E>
 {
+  /* ********************************************** Constants ********************************************** */
+  private static final MethodInterceptor                                             METHOD_INTERCEPTOR_PROTOTYPE        = new MethodInterceptor()
+                                                                                                                           {
+                                                                                                                             @Override
+                                                                                                                             public Object intercept( Object obj, Method method, Object[] args, MethodProxy proxy ) throws Throwable
+                                                                                                                             {
+                                                                                                                               return null;
+                                                                                                                             }
+                                                                                                                           };
+  private static final DerivedMetadataFactory<ConcurrentMap<Set<Class<?>>, Factory>> INTERFACE_SET_TO_FACTORY_MAP_FACTORY = new DerivedMetadataFactory<ConcurrentMap<Set<Class<?>>, Factory>>()
+                                                                                                                            {
+                                                                                                                              @Override
+                                                                                                                              public ConcurrentMap<Set<Class<?>>, Factory> newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                                                              {
+                                                                                                                                return new ConcurrentHashMap<Set<Class<?>>, Factory>();
+                                                                                                                              }
+                                                                                                                            };
+  
   /* ********************************************** Variables ********************************************** */
   private final Factory factory;
   
@@ -89,8 +119,7 @@ public class StubCreator<E>
     super();
     
     //    
-    MethodInvocationHandler methodInvocationHandler = null;
-    this.factory = (Factory) newStubInstance( type, interfaces, methodInvocationHandler, exceptionHandler );
+    this.factory = StubCreator.resolveFactory( type, interfaces, exceptionHandler );
     Assert.isNotNull( this.factory, "Failed to create a stub factory" );
   }
   
@@ -224,6 +253,44 @@ public class StubCreator<E>
     
     //
     if ( clazz != null && methodInterceptor != null )
+    {
+      final Factory factory = StubCreator.resolveFactory( clazz, interfaces, exceptionHandler );
+      if ( factory != null )
+      {
+        try
+        {
+          retval = (E) factory.newInstance( methodInterceptor );
+        }
+        catch ( Exception e )
+        {
+          if ( exceptionHandler != null )
+          {
+            exceptionHandler.handleException( e );
+          }
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Returns the cached prototype {@link Factory} for the given type and interfaces. If there is no prototype yet a new one is
+   * created. The prototype instance itself is never used as stub.
+   * 
+   * @param clazz
+   * @param interfaces
+   * @param exceptionHandler
+   * @return {@link Factory} or null if the stub could not be created
+   */
+  private static Factory resolveFactory( Class<?> clazz, Class<?>[] interfaces, ExceptionHandler exceptionHandler )
+  {
+    //
+    Factory retval = null;
+    
+    //
+    if ( clazz != null )
     {
       try
       {
@@ -240,22 +307,35 @@ public class StubCreator<E>
           }
         }
         
-        //      
-        final Enhancer enhancer = new Enhancer();
-        if ( interfaceSet.size() > 0 )
-        {
-          enhancer.setInterfaces( interfaceSet.toArray( new Class[0] ) );
-        }
-        if ( !clazz.isInterface() )
+        //
+        final ConcurrentMap<Set<Class<?>>, Factory> interfaceSetToFactoryMap = ClassMetadataRegistry.classMetadata( clazz )
+                                                                                                    .derivedMetadata( INTERFACE_SET_TO_FACTORY_MAP_FACTORY );
+        retval = interfaceSetToFactoryMap.get( interfaceSet );
+        if ( retval == null )
         {
-          enhancer.setSuperclass( clazz );
+          //      
+          final Enhancer enhancer = new Enhancer();
+          if ( interfaceSet.size() > 0 )
+          {
+            enhancer.setInterfaces( interfaceSet.toArray( new Class[0] ) );
+          }
+          if ( !clazz.isInterface() )
+          {
+            enhancer.setSuperclass( clazz );
+          }
+          
+          //
+          enhancer.setCallback( METHOD_INTERCEPTOR_PROTOTYPE );
+          retval = (Factory) enhancer.create();
+          
+          //
+          final Factory factoryPrevious = interfaceSetToFactoryMap.putIfAbsent( Collections.unmodifiableSet( interfaceSet ),
+                                                                                retval );
+          if ( factoryPrevious != null )
+          {
+            retval = factoryPrevious;
+          }
         }
-        
-        //
-        enhancer.setCallback( methodInterceptor );
-        
-        //
-        retval = (E) enhancer.create();
       }
       catch ( Exception e )
       {
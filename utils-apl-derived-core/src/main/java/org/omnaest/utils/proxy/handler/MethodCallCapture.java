@@ -15,6 +15,7 @@
  ******************************************************************************/
 package org.omnaest.utils.proxy.handler;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import net.sf.cglib.proxy.MethodProxy;
@@ -129,6 +130,44 @@ public class MethodCallCapture
     return this.proxy;
   }
   
+  /**
+   * Invokes the captured {@link Method} with the captured arguments on the given instance. If a {@link MethodProxy} is available
+   * the invocation is dispatched by the cglib generated fast class instead of {@link Method#invoke(Object, Object...)}. The
+   * given instance has to be an instance of the type the stub is based on.<br>
+   * <br>
+   * In contrast to {@link Method#invoke(Object, Object...)} any exception thrown by the invoked method is not wrapped into an
+   * {@link InvocationTargetException}.
+   * 
+   * @param instance
+   * @return result of the invocation
+   * @throws Throwable
+   */
+  public Object invokeOn( Object instance ) throws Throwable
+  {
+    //
+    Object retval = null;
+    
+    //
+    if ( this.proxy != null )
+    {
+      retval = this.proxy.invoke( instance, this.arguments );
+    }
+    else
+    {
+      try
+      {
+        retval = this.method.invoke( instance, this.arguments );
+      }
+      catch ( InvocationTargetException e )
+      {
+        throw e.getTargetException();
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
   /**
    * Returns the name of the called {@link Method}.
    * 
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.reflection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Read only view on the annotation index files written at compile time by the {@link AnnotationIndexProcessor}. All index files
+ * named {@value #RESOURCE_NAME} visible to a {@link ClassLoader} are read once and merged. Afterwards the annotated packages,
+ * types and methods can be looked up by the {@link Annotation} type in constant time, without scanning any {@link Package} or
+ * {@link Class}.<br>
+ * <br>
+ * If no index file is available, {@link #isAvailable()} returns false and all lookups return empty {@link Set}s, so callers
+ * should fall back to runtime scanning. Since an index file only covers the classes of its own class path root, e.g. a single
+ * jar, {@link #isIndexed(Package)} tells if a {@link Package} can be looked up or has to be scanned. For this every index file
+ * lists all packages compiled into its class path root, so the check is a simple {@link Set} lookup. The packages of index
+ * files written by a former version without this list are treated as not indexed. The remaining {@link Package}s which have to
+ * be scanned are determined by {@link #unindexedPackageSet()}.<br>
+ * <br>
+ * The {@link ClassLoader} is only weakly referenced, so the cached {@link AnnotationIndex} does not prevent it from being
+ * unloaded.
+ * 
+ * @see #valueOf(ClassLoader)
+ * @see AnnotationIndexProcessor
+ * @author Omnaest
+ */
+public final class AnnotationIndex
+{
+  /* ********************************************** Constants ********************************************** */
+  /** Name of the index resource within the class path */
+  public static final String                                      RESOURCE_NAME                     = "META-INF/annotation.index";
+  
+  static final String                                             KIND_PACKAGE                      = "P";
+  static final String                                             KIND_TYPE                         = "T";
+  static final String                                             KIND_METHOD                       = "M";
+  static final String                                             KIND_COMPILED_PACKAGE             = "C";
+  static final String                                             SEPARATOR                         = "\t";
+  static final String                                             METHOD_NAME_SEPARATOR             = "#";
+  
+  private static final CacheLoader<ClassLoader, AnnotationIndex>  ANNOTATION_INDEX_LOADER           = new CacheLoader<ClassLoader, AnnotationIndex>()
+                                                                                                      {
+                                                                                                        @Override
+                                                                                                        public AnnotationIndex load( ClassLoader classLoader )
+                                                                                                        {
+                                                                                                          return new AnnotationIndex( classLoader );
+                                                                                                        }
+                                                                                                      };
+  private static final LoadingCache<ClassLoader, AnnotationIndex> classLoaderToAnnotationIndexCache = CacheBuilder.newBuilder()
+                                                                                                                  .weakKeys()
+                                                                                                                  .build( ANNOTATION_INDEX_LOADER );
+  private static final ClassLoadingMXBean                         CLASS_LOADING_MX_BEAN             = ManagementFactory.getClassLoadingMXBean();
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Snapshot of the not indexed {@link Package}s together with the number of loaded classes at the time it was taken
+   * 
+   * @author Omnaest
+   */
+  private static final class UnindexedPackages
+  {
+    private final long         totalLoadedClassCount;
+    private final Set<Package> packageSet;
+    
+    private UnindexedPackages( long totalLoadedClassCount, Set<Package> packageSet )
+    {
+      super();
+      this.totalLoadedClassCount = totalLoadedClassCount;
+      this.packageSet = packageSet;
+    }
+  }
+  
+  /* ********************************************** Variables ********************************************** */
+  private final WeakReference<ClassLoader> classLoaderReference;
+  private final boolean                  isAvailable;
+  private final Set<String>              indexedPackageNameSet                 = new HashSet<String>();
+  private final Map<String, Set<String>> annotationTypeNameToPackageNameSetMap = new HashMap<String, Set<String>>();
+  private final Map<String, Set<String>> annotationTypeNameToTypeNameSetMap    = new HashMap<String, Set<String>>();
+  private final Map<String, Set<String>> annotationTypeNameToMethodNameSetMap  = new HashMap<String, Set<String>>();
+  private volatile UnindexedPackages     unindexedPackages                     = null;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see AnnotationIndex
+   * @param classLoader
+   */
+  private AnnotationIndex( ClassLoader classLoader )
+  {
+    super();
+    this.classLoaderReference = new WeakReference<ClassLoader>( classLoader );
+    this.isAvailable = this.readIndexResources( classLoader );
+  }
+  
+  /**
+   * Returns the {@link AnnotationIndex} for the given {@link ClassLoader}. The index files are read only once per
+   * {@link ClassLoader}.
+   * 
+   * @param classLoader
+   *          {@link ClassLoader} or null for the system {@link ClassLoader}
+   * @return {@link AnnotationIndex}
+   */
+  public static AnnotationIndex valueOf( ClassLoader classLoader )
+  {
+    return classLoaderToAnnotationIndexCache.getUnchecked( classLoader != null ? classLoader : ClassLoader.getSystemClassLoader() );
+  }
+  
+  /**
+   * Returns the {@link AnnotationIndex} for the context {@link ClassLoader} of the current {@link Thread}
+   * 
+   * @see #valueOf(ClassLoader)
+   * @return {@link AnnotationIndex}
+   */
+  public static AnnotationIndex valueOfContextClassLoader()
+  {
+    final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    return valueOf( contextClassLoader != null ? contextClassLoader : AnnotationIndex.class.getClassLoader() );
+  }
+  
+  private boolean readIndexResources( ClassLoader classLoader )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    try
+    {
+      final Enumeration<URL> resources = classLoader.getResources( RESOURCE_NAME );
+      while ( resources.hasMoreElements() )
+      {
+        //
+        this.readIndexResource( resources.nextElement() );
+        retval = true;
+      }
+    }
+    catch ( IOException e )
+    {
+      retval = false;
+    }
+    
+    //
+    return retval;
+  }
+  
+  private void readIndexResource( URL url ) throws IOException
+  {
+    final InputStream inputStream = url.openStream();
+    try
+    {
+      final BufferedReader bufferedReader = new BufferedReader( new InputStreamReader( inputStream, "UTF-8" ) );
+      for ( String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine() )
+      {
+        //
+        final String[] tokens = StringUtils.splitByWholeSeparatorPreserveAllTokens( line, SEPARATOR );
+        if ( tokens.length == 2 && KIND_COMPILED_PACKAGE.equals( tokens[0] ) )
+        {
+          this.indexedPackageNameSet.add( tokens[1] );
+        }
+        else if ( tokens.length == 3 )
+        {
+          //
+          final String kind = tokens[0];
+          final String elementName = tokens[1];
+          final String annotationTypeName = tokens[2];
+          
+          //
+          if ( KIND_PACKAGE.equals( kind ) )
+          {
+            addTo( this.annotationTypeNameToPackageNameSetMap, annotationTypeName, elementName );
+          }
+          else if ( KIND_TYPE.equals( kind ) )
+          {
+            addTo( this.annotationTypeNameToTypeNameSetMap, annotationTypeName, elementName );
+          }
+          else if ( KIND_METHOD.equals( kind ) )
+          {
+            addTo( this.annotationTypeNameToMethodNameSetMap, annotationTypeName, elementName );
+          }
+        }
+      }
+    }
+    finally
+    {
+      inputStream.close();
+    }
+  }
+  
+  private static void addTo( Map<String, Set<String>> map, String key, String value )
+  {
+    Set<String> set = map.get( key );
+    if ( set == null )
+    {
+      set = new LinkedHashSet<String>();
+      map.put( key, set );
+    }
+    set.add( value );
+  }
+  
+  private static Set<String> unmodifiableSet( Map<String, Set<String>> map, Class<? extends Annotation> annotationType )
+  {
+    final Set<String> set = annotationType != null ? map.get( annotationType.getName() ) : null;
+    return set != null ? Collections.unmodifiableSet( set ) : Collections.<String> emptySet();
+  }
+  
+  /**
+   * Returns true if at least one index file is available
+   * 
+   * @return
+   */
+  public boolean isAvailable()
+  {
+    return this.isAvailable;
+  }
+  
+  /**
+   * Returns true if the given {@link Package} has been compiled into a class path root which contains an index file. For such a
+   * {@link Package} the index is complete, all other {@link Package}s have to be scanned.
+   * 
+   * @param package_
+   * @return
+   */
+  public boolean isIndexed( Package package_ )
+  {
+    return package_ != null && this.indexedPackageNameSet.contains( package_.getName() );
+  }
+  
+  /**
+   * Returns all {@link Package}s known by {@link Package#getPackages()} which are not {@link #isIndexed(Package)} and therefore
+   * have to be scanned. Since {@link Package#getPackages()} is expensive, the result is reused as long as no further class has
+   * been loaded, because new {@link Package}s are only defined together with a class.<br>
+   * <br>
+   * The {@link Package}s are the ones of the {@link ClassLoader} of this library and its parents, so holding them does not
+   * prevent any other {@link ClassLoader} from being unloaded.
+   * 
+   * @return unmodifiable {@link Set} of {@link Package}s
+   */
+  public Set<Package> unindexedPackageSet()
+  {
+    //
+    final long totalLoadedClassCount = CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount();
+    UnindexedPackages retval = this.unindexedPackages;
+    if ( retval == null || retval.totalLoadedClassCount != totalLoadedClassCount )
+    {
+      //
+      final Set<Package> packageSet = new LinkedHashSet<Package>();
+      for ( Package package_ : Package.getPackages() )
+      {
+        if ( !this.isIndexed( package_ ) )
+        {
+          packageSet.add( package_ );
+        }
+      }
+      
+      //
+      retval = new UnindexedPackages( totalLoadedClassCount, Collections.unmodifiableSet( packageSet ) );
+      this.unindexedPackages = retval;
+    }
+    return retval.packageSet;
+  }
+  
+  /**
+   * Returns the names of all indexed packages annotated with the given {@link Annotation} type
+   * 
+   * @param annotationType
+   * @return unmodifiable {@link Set}
+   */
+  public Set<String> annotatedPackageNameSet( Class<? extends Annotation> annotationType )
+  {
+    return unmodifiableSet( this.annotationTypeNameToPackageNameSetMap, annotationType );
+  }
+  
+  /**
+   * Returns the binary names of all indexed types annotated with the given {@link Annotation} type
+   * 
+   * @see Class#forName(String)
+   * @param annotationType
+   * @return unmodifiable {@link Set}
+   */
+  public Set<String> annotatedTypeNameSet( Class<? extends Annotation> annotationType )
+  {
+    return unmodifiableSet( this.annotationTypeNameToTypeNameSetMap, annotationType );
+  }
+  
+  /**
+   * Returns the names of all indexed methods annotated with the given {@link Annotation} type. Each name consists of the binary
+   * name of the declaring type and the method name separated by {@value #METHOD_NAME_SEPARATOR}.
+   * 
+   * @param annotationType
+   * @return unmodifiable {@link Set}
+   */
+  public Set<String> annotatedMethodNameSet( Class<? extends Annotation> annotationType )
+  {
+    return unmodifiableSet( this.annotationTypeNameToMethodNameSetMap, annotationType );
+  }
+  
+  /**
+   * Returns the {@link Package}s of all indexed packages annotated with any of the given {@link Annotation} types. The packages
+   * are defined by loading their package-info class, if they have not been defined yet.
+   * 
+   * @param annotationTypes
+   * @return {@link Set} of {@link Package}s
+   */
+  public Set<Package> annotatedPackageSet( Class<? extends Annotation>... annotationTypes )
+  {
+    //
+    final Set<Package> retset = new LinkedHashSet<Package>();
+    final ClassLoader classLoader = this.classLoaderReference.get();
+    
+    //
+    if ( annotationTypes != null && classLoader != null )
+    {
+      for ( Class<? extends Annotation> annotationType : annotationTypes )
+      {
+        for ( String packageName : this.annotatedPackageNameSet( annotationType ) )
+        {
+          //
+          Package package_ = null;
+          try
+          {
+            package_ = Class.forName( packageName + ".package-info", false, classLoader ).getPackage();
+          }
+          catch ( ClassNotFoundException e )
+          {
+            package_ = Package.getPackage( packageName );
+          }
+          
+          //
+          if ( package_ != null )
+          {
+            retset.add( package_ );
+          }
+        }
+      }
+    }
+    
+    //
+    return retset;
+  }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.reflection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Annotation processor which writes an index of all packages, types and methods annotated with any annotation having
+ * {@link RetentionPolicy#RUNTIME} into the {@value AnnotationIndex#RESOURCE_NAME} resource of the compiled classes. The index
+ * additionally lists all compiled packages, annotated or not, so at runtime {@link AnnotationIndex} knows which packages it
+ * covers completely.<br>
+ * <br>
+ * The processor is not registered as service, so it has to be activated explicitly, e.g. by the javac option
+ * <code>-processor org.omnaest.utils.reflection.AnnotationIndexProcessor</code> or within the
+ * <code>annotationProcessors</code> configuration of the maven compiler plugin. It does not claim any annotation, so
+ * other processors are not affected.<br>
+ * <br>
+ * On incremental builds an existing index is merged: the entries of all elements compiled again are replaced and the entries of
+ * elements which do not exist anymore are removed. This requires the class output directory to be part of the class path, which
+ * is the case for the maven compiler plugin.
+ * 
+ * @see AnnotationIndex
+ * @author Omnaest
+ */
+@SupportedAnnotationTypes("*")
+public class AnnotationIndexProcessor extends AbstractProcessor
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Set<String> indexLineSet            = new TreeSet<String>();
+  private final Set<String> processedElementNameSet = new HashSet<String>();
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+  
+  @Override
+  public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment )
+  {
+    //
+    if ( roundEnvironment.processingOver() )
+    {
+      this.writeIndex();
+    }
+    else
+    {
+      final Elements elementUtils = this.processingEnv.getElementUtils();
+      for ( Element element : roundEnvironment.getRootElements() )
+      {
+        this.indexLineSet.add( AnnotationIndex.KIND_COMPILED_PACKAGE + AnnotationIndex.SEPARATOR
+                               + elementUtils.getPackageOf( element ).getQualifiedName() );
+        this.addToIndex( element );
+      }
+    }
+    
+    //
+    return false;
+  }
+  
+  private void addToIndex( Element element )
+  {
+    //
+    final ElementKind kind = element.getKind();
+    if ( ElementKind.PACKAGE.equals( kind ) )
+    {
+      final String packageName = ( (PackageElement) element ).getQualifiedName().toString();
+      this.processedElementNameSet.add( packageName );
+      this.addToIndex( AnnotationIndex.KIND_PACKAGE, packageName, element );
+    }
+    else if ( kind.isClass() || kind.isInterface() )
+    {
+      //
+      final String typeName = this.processingEnv.getElementUtils().getBinaryName( (TypeElement) element ).toString();
+      this.processedElementNameSet.add( typeName );
+      this.addToIndex( AnnotationIndex.KIND_TYPE, typeName, element );
+      
+      //
+      for ( Element enclosedElement : element.getEnclosedElements() )
+      {
+        final ElementKind enclosedKind = enclosedElement.getKind();
+        if ( ElementKind.METHOD.equals( enclosedKind ) )
+        {
+          this.addToIndex( AnnotationIndex.KIND_METHOD, typeName + AnnotationIndex.METHOD_NAME_SEPARATOR
+                                                        + enclosedElement.getSimpleName(), enclosedElement );
+        }
+        else if ( enclosedKind.isClass() || enclosedKind.isInterface() )
+        {
+          this.addToIndex( enclosedElement );
+        }
+      }
+    }
+  }
+  
+  private void addToIndex( String kind, String elementName, Element element )
+  {
+    for ( AnnotationMirror annotationMirror : element.getAnnotationMirrors() )
+    {
+      //
+      final TypeElement annotationTypeElement = (TypeElement) annotationMirror.getAnnotationType().asElement();
+      final Retention retention = annotationTypeElement.getAnnotation( Retention.class );
+      if ( retention != null && RetentionPolicy.RUNTIME.equals( retention.value() ) )
+      {
+        final String annotationTypeName = this.processingEnv.getElementUtils().getBinaryName( annotationTypeElement ).toString();
+        this.indexLineSet.add( kind + AnnotationIndex.SEPARATOR + elementName + AnnotationIndex.SEPARATOR + annotationTypeName );
+      }
+    }
+  }
+  
+  private void writeIndex()
+  {
+    //
+    final Set<String> indexLineSet = new TreeSet<String>( this.indexLineSet );
+    final boolean hasExistingIndex = this.readExistingIndex( indexLineSet );
+    
+    //
+    if ( !indexLineSet.isEmpty() || hasExistingIndex )
+    {
+      try
+      {
+        final FileObject fileObject = this.processingEnv.getFiler().createResource( StandardLocation.CLASS_OUTPUT, "",
+                                                                                    AnnotationIndex.RESOURCE_NAME );
+        final Writer writer = new OutputStreamWriter( fileObject.openOutputStream(), "UTF-8" );
+        try
+        {
+          for ( String indexLine : indexLineSet )
+          {
+            writer.write( indexLine );
+            writer.write( "\n" );
+          }
+        }
+        finally
+        {
+          writer.close();
+        }
+      }
+      catch ( IOException e )
+      {
+        this.processingEnv.getMessager().printMessage( Kind.ERROR, "Failed to write the annotation index: " + e.getMessage() );
+      }
+    }
+  }
+  
+  /**
+   * Adds the still valid lines of an index written by a former build to the given {@link Set}
+   * 
+   * @param indexLineSet
+   * @return true if an index has been written by a former build
+   */
+  private boolean readExistingIndex( Set<String> indexLineSet )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    try
+    {
+      final FileObject fileObject = this.processingEnv.getFiler().getResource( StandardLocation.CLASS_OUTPUT, "",
+                                                                               AnnotationIndex.RESOURCE_NAME );
+      final InputStream inputStream = fileObject.openInputStream();
+      try
+      {
+        //
+        retval = true;
+        
+        //
+        final BufferedReader bufferedReader = new BufferedReader( new InputStreamReader( inputStream, "UTF-8" ) );
+        for ( String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine() )
+        {
+          if ( this.isValidExistingIndexLine( line ) )
+          {
+            indexLineSet.add( line );
+          }
+        }
+      }
+      finally
+      {
+        inputStream.close();
+      }
+    }
+    catch ( IOException e )
+    {
+      // no index has been written before
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Returns true if the element of the given line of an existing index has not been compiled again and does still exist
+   * 
+   * @param line
+   * @return
+   */
+  private boolean isValidExistingIndexLine( String line )
+  {
+    //
+    final String[] tokens = StringUtils.splitByWholeSeparatorPreserveAllTokens( line, AnnotationIndex.SEPARATOR );
+    final String kind = tokens[0];
+    if ( tokens.length != ( AnnotationIndex.KIND_COMPILED_PACKAGE.equals( kind ) ? 2 : 3 ) )
+    {
+      return false;
+    }
+    
+    //
+    final String elementName = tokens[1];
+    final String ownerName = AnnotationIndex.KIND_METHOD.equals( kind ) ? StringUtils.substringBefore( elementName,
+                                                                                                        AnnotationIndex.METHOD_NAME_SEPARATOR )
+                                                                       : elementName;
+    if ( this.processedElementNameSet.contains( ownerName ) )
+    {
+      return false;
+    }
+    
+    //
+    final Elements elementUtils = this.processingEnv.getElementUtils();
+    final boolean isPackage = AnnotationIndex.KIND_PACKAGE.equals( kind ) || AnnotationIndex.KIND_COMPILED_PACKAGE.equals( kind );
+    return isPackage ? elementUtils.getPackageElement( ownerName ) != null
+                    : elementUtils.getTypeElement( ownerName.replace( '$', '.' ) ) != null;
+  }
+}
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.reflection;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Central registry of immutable per {@link Class} metadata. The reflective introspection of a {@link Class} like
+ * {@link Class#getMethods()} or {@link Class#getDeclaredFields()} is done only once and shared by {@link ReflectionUtils},
+ * {@link org.omnaest.utils.beans.BeanUtils} and other utilities.<br>
+ * <br>
+ * Utilities can attach their own metadata which is derived from the reflective information using a
+ * {@link DerivedMetadataFactory}. Such derived metadata is computed once per {@link Class} and has to be immutable.<br>
+ * <br>
+ * The {@link Method}s, {@link Field}s and {@link Constructor}s of a {@link ClassMetadata} are shared by all callers and therefore
+ * must not be modified using {@link AccessibleObject#setAccessible(boolean)}. Use {@link #accessible(Field)},
+ * {@link #accessible(Method)} or {@link #accessible(Constructor)} instead, which return an accessible copy that is created only
+ * once.<br>
+ * <br>
+ * The registry does not prevent the unloading of classes: the {@link Class} keys are only weakly referenced and since a
+ * {@link ClassMetadata} references its {@link Class}, it is only softly referenced. So the {@link ClassMetadata} is kept across
+ * garbage collections, but its {@link ClassLoader} can be unloaded as soon as the soft references are cleared, which the virtual
+ * machine does for unused values and at the latest before it runs out of memory.
+ * 
+ * @see #classMetadata(Class)
+ * @see #statistic()
+ * @author Omnaest
+ */
+public final class ClassMetadataRegistry
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final CacheLoader<Class<?>, ClassMetadata>  CLASS_METADATA_LOADER    = new CacheLoader<Class<?>, ClassMetadata>()
+                                                                                      {
+                                                                                        @Override
+                                                                                        public ClassMetadata load( Class<?> type )
+                                                                                        {
+                                                                                          return new ClassMetadata( type );
+                                                                                        }
+                                                                                      };
+  private static final LoadingCache<Class<?>, ClassMetadata> typeToClassMetadataCache = CacheBuilder.newBuilder()
+                                                                                                    .weakKeys()
+                                                                                                    .softValues()
+                                                                                                    .recordStats()
+                                                                                                    .build( CLASS_METADATA_LOADER );
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Factory for metadata which is derived from a {@link ClassMetadata}. The factory instance is used as key, so it should be a
+   * constant.
+   * 
+   * @see ClassMetadata#derivedMetadata(DerivedMetadataFactory)
+   * @author Omnaest
+   * @param <M>
+   */
+  public static interface DerivedMetadataFactory<M>
+  {
+    /**
+     * @param classMetadata
+     *          {@link ClassMetadata}
+     * @return new immutable metadata instance
+     */
+    public M newDerivedMetadata( ClassMetadata classMetadata );
+  }
+  
+  /**
+   * Immutable reflective metadata of a single {@link Class}
+   * 
+   * @author Omnaest
+   */
+  public static final class ClassMetadata
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Class<?>                                      type;
+    private final List<Method>                                  methodList;
+    private final List<Method>                                  declaredMethodList;
+    private final List<Field>                                   fieldList;
+    private final List<Field>                                   declaredFieldList;
+    private final List<Constructor<?>>                          constructorList;
+    private final ConcurrentMap<DerivedMetadataFactory<?>, Object> derivedMetadataMap = new ConcurrentHashMap<DerivedMetadataFactory<?>, Object>();
+    private final ConcurrentMap<AccessibleObject, AccessibleObject> accessibleObjectToAccessibleCopyMap = new ConcurrentHashMap<AccessibleObject, AccessibleObject>();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see ClassMetadata
+     * @param type
+     */
+    private ClassMetadata( Class<?> type )
+    {
+      super();
+      this.type = type;
+      this.methodList = Collections.unmodifiableList( Arrays.asList( type.getMethods() ) );
+      this.declaredMethodList = Collections.unmodifiableList( Arrays.asList( type.getDeclaredMethods() ) );
+      this.fieldList = Collections.unmodifiableList( Arrays.asList( type.getFields() ) );
+      this.declaredFieldList = Collections.unmodifiableList( Arrays.asList( type.getDeclaredFields() ) );
+      this.constructorList = Collections.unmodifiableList( Arrays.<Constructor<?>> asList( type.getConstructors() ) );
+    }
+    
+    /**
+     * Returns the metadata derived by the given {@link DerivedMetadataFactory}. The metadata is created only once.
+     * 
+     * @param derivedMetadataFactory
+     * @return derived metadata
+     */
+    @SuppressWarnings("unchecked")
+    public <M> M derivedMetadata( DerivedMetadataFactory<M> derivedMetadataFactory )
+    {
+      //
+      Object retval = this.derivedMetadataMap.get( derivedMetadataFactory );
+      if ( retval == null )
+      {
+        //
+        retval = derivedMetadataFactory.newDerivedMetadata( this );
+        final Object previous = this.derivedMetadataMap.putIfAbsent( derivedMetadataFactory, retval );
+        if ( previous != null )
+        {
+          retval = previous;
+        }
+      }
+      return (M) retval;
+    }
+    
+    /**
+     * Returns the accessible copy of the given {@link AccessibleObject} of the underlying {@link Class}, which is created only
+     * once
+     * 
+     * @param accessibleObject
+     * @return accessible copy
+     */
+    @SuppressWarnings("unchecked")
+    private <A extends AccessibleObject> A accessibleCopy( A accessibleObject )
+    {
+      //
+      AccessibleObject retval = this.accessibleObjectToAccessibleCopyMap.get( accessibleObject );
+      if ( retval == null )
+      {
+        //
+        try
+        {
+          if ( accessibleObject instanceof Field )
+          {
+            retval = this.type.getDeclaredField( ( (Field) accessibleObject ).getName() );
+          }
+          else if ( accessibleObject instanceof Method )
+          {
+            final Method method = (Method) accessibleObject;
+            retval = this.type.getDeclaredMethod( method.getName(), method.getParameterTypes() );
+          }
+          else
+          {
+            retval = this.type.getDeclaredConstructor( ( (Constructor<?>) accessibleObject ).getParameterTypes() );
+          }
+        }
+        catch ( NoSuchFieldException e )
+        {
+          throw new IllegalArgumentException( e );
+        }
+        catch ( NoSuchMethodException e )
+        {
+          throw new IllegalArgumentException( e );
+        }
+        retval.setAccessible( true );
+        
+        //
+        final AccessibleObject previous = this.accessibleObjectToAccessibleCopyMap.putIfAbsent( accessibleObject, retval );
+        if ( previous != null )
+        {
+          retval = previous;
+        }
+      }
+      return (A) retval;
+    }
+    
+    /**
+     * @return the underlying {@link Class}
+     */
+    public Class<?> getType()
+    {
+      return this.type;
+    }
+    
+    /**
+     * @return unmodifiable {@link List} of {@link Class#getMethods()}
+     */
+    public List<Method> getMethodList()
+    {
+      return this.methodList;
+    }
+    
+    /**
+     * @return unmodifiable {@link List} of {@link Class#getDeclaredMethods()}
+     */
+    public List<Method> getDeclaredMethodList()
+    {
+      return this.declaredMethodList;
+    }
+    
+    /**
+     * @return unmodifiable {@link List} of {@link Class#getFields()}
+     */
+    public List<Field> getFieldList()
+    {
+      return this.fieldList;
+    }
+    
+    /**
+     * @return unmodifiable {@link List} of {@link Class#getDeclaredFields()}
+     */
+    public List<Field> getDeclaredFieldList()
+    {
+      return this.declaredFieldList;
+    }
+    
+    /**
+     * @return unmodifiable {@link List} of {@link Class#getConstructors()}
+     */
+    public List<Constructor<?>> getConstructorList()
+    {
+      return this.constructorList;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  private ClassMetadataRegistry()
+  {
+    super();
+  }
+  
+  /**
+   * Returns the {@link ClassMetadata} for the given {@link Class}
+   * 
+   * @param type
+   *          must not be null
+   * @return {@link ClassMetadata}
+   */
+  public static ClassMetadata classMetadata( Class<?> type )
+  {
+    return typeToClassMetadataCache.getUnchecked( type );
+  }
+  
+  /**
+   * Returns an accessible copy of the given {@link Field}. The copy is created only once, the given {@link Field} is not
+   * modified.
+   * 
+   * @param field
+   *          must not be null
+   * @return accessible {@link Field}
+   */
+  public static Field accessible( Field field )
+  {
+    return field.isAccessible() ? field : classMetadata( field.getDeclaringClass() ).accessibleCopy( field );
+  }
+  
+  /**
+   * Returns an accessible copy of the given {@link Method}. The copy is created only once, the given {@link Method} is not
+   * modified.
+   * 
+   * @param method
+   *          must not be null
+   * @return accessible {@link Method}
+   */
+  public static Method accessible( Method method )
+  {
+    return method.isAccessible() ? method : classMetadata( method.getDeclaringClass() ).accessibleCopy( method );
+  }
+  
+  /**
+   * Returns an accessible copy of the given {@link Constructor}. The copy is created only once, the given {@link Constructor} is
+   * not modified.
+   * 
+   * @param constructor
+   *          must not be null
+   * @return accessible {@link Constructor}
+   */
+  public static <C> Constructor<C> accessible( Constructor<C> constructor )
+  {
+    return constructor.isAccessible() ? constructor : classMetadata( constructor.getDeclaringClass() ).accessibleCopy( constructor );
+  }
+  
+  /**
+   * Returns the {@link CacheStats} of the registry. The hit count is the number of {@link #classMetadata(Class)} calls which could
+   * be answered without introspection.
+   * 
+   * @return {@link CacheStats}
+   */
+  public static CacheStats statistic()
+  {
+    return typeToClassMetadataCache.stats();
+  }
+}
@@ -20,6 +20,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -28,8 +29,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
 import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.collection.set.SetUtils;
 import org.omnaest.utils.structure.element.converter.ElementConverter;
@@ -44,6 +46,24 @@ import org.omnaest.utils.structure.map.MapUtils;
  */
 public class ReflectionUtils
 {
+  /* ********************************************** Constants ********************************************** */
+  private static final DerivedMetadataFactory<Map<Method, Set<Annotation>>> METHOD_TO_ANNOTATION_SET_MAP_FACTORY          = new DerivedMetadataFactory<Map<Method, Set<Annotation>>>()
+                                                                                                                           {
+                                                                                                                             @Override
+                                                                                                                             public Map<Method, Set<Annotation>> newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                                                             {
+                                                                                                                               return unmodifiableMethodToAnnotationSetMap( classMetadata.getMethodList() );
+                                                                                                                             }
+                                                                                                                           };
+  private static final DerivedMetadataFactory<Map<Method, Set<Annotation>>> DECLARED_METHOD_TO_ANNOTATION_SET_MAP_FACTORY = new DerivedMetadataFactory<Map<Method, Set<Annotation>>>()
+                                                                                                                           {
+                                                                                                                             @Override
+                                                                                                                             public Map<Method, Set<Annotation>> newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                                                             {
+                                                                                                                               return unmodifiableMethodToAnnotationSetMap( classMetadata.getDeclaredMethodList() );
+                                                                                                                             }
+                                                                                                                           };
+  
   /* ********************************************** Classes/Interfaces ********************************************** */
   
   /**
@@ -96,11 +116,7 @@ public class ReflectionUtils
     if ( clazz != null && method != null )
     {
       //
-      Method[] declaredMethods = clazz.getDeclaredMethods();
-      if ( declaredMethods != null )
-      {
-        retval = ArrayUtils.indexOf( declaredMethods, method );
-      }
+      retval = ClassMetadataRegistry.classMetadata( clazz ).getDeclaredMethodList().indexOf( method );
     }
     
     //
@@ -123,11 +139,7 @@ public class ReflectionUtils
     if ( clazz != null && field != null )
     {
       //
-      Field[] declaredFields = clazz.getDeclaredFields();
-      if ( declaredFields != null )
-      {
-        retval = ArrayUtils.indexOf( declaredFields, field );
-      }
+      retval = ClassMetadataRegistry.classMetadata( clazz ).getDeclaredFieldList().indexOf( field );
     }
     
     //
@@ -159,11 +171,7 @@ public class ReflectionUtils
         if ( field != null )
         {
           //
-          Field[] declaredFields = clazz.getDeclaredFields();
-          if ( declaredFields != null )
-          {
-            retval = ArrayUtils.indexOf( declaredFields, field );
-          }
+          retval = ClassMetadataRegistry.classMetadata( clazz ).getDeclaredFieldList().indexOf( field );
         }
       }
       catch ( Exception e )
@@ -183,7 +191,7 @@ public class ReflectionUtils
    */
   public static int numberOfDeclaredFields( Class<?> clazz )
   {
-    return clazz != null ? clazz.getDeclaredFields().length : 0;
+    return clazz != null ? ClassMetadataRegistry.classMetadata( clazz ).getDeclaredFieldList().size() : 0;
   }
   
   /**
@@ -194,7 +202,7 @@ public class ReflectionUtils
    */
   public static int numberOfDeclaredMethods( Class<?> clazz )
   {
-    return clazz != null ? clazz.getDeclaredMethods().length : 0;
+    return clazz != null ? ClassMetadataRegistry.classMetadata( clazz ).getDeclaredMethodList().size() : 0;
   }
   
   /**
@@ -313,20 +321,16 @@ public class ReflectionUtils
     if ( type != null )
     {
       //
-      @SuppressWarnings("unchecked")
-      Constructor<C>[] constructors = (Constructor<C>[]) type.getConstructors();
-      if ( constructors != null )
+      for ( Constructor<?> constructor : ClassMetadataRegistry.classMetadata( type ).getConstructorList() )
       {
-        for ( Constructor<C> constructor : constructors )
+        Class<?>[] parameterTypesOfContstructor = constructor.getParameterTypes();
+        boolean areConstructorTypesAssignableFromParameterTypes = areAssignableFrom( parameterTypesOfContstructor, parameterTypes );
+        if ( areConstructorTypesAssignableFromParameterTypes )
         {
-          Class<?>[] parameterTypesOfContstructor = constructor.getParameterTypes();
-          boolean areConstructorTypesAssignableFromParameterTypes = areAssignableFrom( parameterTypesOfContstructor,
-                                                                                       parameterTypes );
-          if ( areConstructorTypesAssignableFromParameterTypes )
-          {
-            retval = constructor;
-            break;
-          }
+          @SuppressWarnings("unchecked")
+          final Constructor<C> constructorOfType = (Constructor<C>) constructor;
+          retval = constructorOfType;
+          break;
         }
       }
     }
@@ -394,8 +398,8 @@ public class ReflectionUtils
       try
       {
         //
-        Constructor<? extends B> constructor = constructorFor( type, arguments );
-        constructor.setAccessible( true );
+        final Constructor<? extends B> constructor = ClassMetadataRegistry.accessible( ReflectionUtils.<B> constructorFor( type,
+                                                                                                                          arguments ) );
         
         //
         retval = constructor.newInstance( arguments );
@@ -882,10 +886,10 @@ public class ReflectionUtils
     //
     if ( type != null && annotationTypes != null )
     {
-      final Method[] methods = type.getMethods();
-      if ( methods != null )
+      final List<Method> methodList = ClassMetadataRegistry.classMetadata( type ).getMethodList();
+      if ( methodList != null )
       {
-        for ( Method method : methods )
+        for ( Method method : methodList )
         {
           for ( Class<? extends Annotation> annotationType : annotationTypes )
           {
@@ -955,8 +959,10 @@ public class ReflectionUtils
    */
   public static Map<Method, Set<Annotation>> methodToAnnotationSetMap( Class<?> type )
   {
-    List<Method> methodList = methodList( type );
-    return methodToAnnotationSetMap( methodList );
+    return type != null ? new LinkedHashMap<Method, Set<Annotation>>(
+                                                                      ClassMetadataRegistry.classMetadata( type )
+                                                                                           .derivedMetadata( METHOD_TO_ANNOTATION_SET_MAP_FACTORY ) )
+                       : new LinkedHashMap<Method, Set<Annotation>>();
   }
   
   /**
@@ -970,8 +976,10 @@ public class ReflectionUtils
    */
   public static Map<Method, Set<Annotation>> declaredMethodToAnnotationSetMap( Class<?> type )
   {
-    List<Method> methodList = declaredMethodList( type );
-    return methodToAnnotationSetMap( methodList );
+    return type != null ? new LinkedHashMap<Method, Set<Annotation>>(
+                                                                      ClassMetadataRegistry.classMetadata( type )
+                                                                                           .derivedMetadata( DECLARED_METHOD_TO_ANNOTATION_SET_MAP_FACTORY ) )
+                       : new LinkedHashMap<Method, Set<Annotation>>();
   }
   
   /**
@@ -1007,6 +1015,17 @@ public class ReflectionUtils
     return retmap;
   }
   
+  private static Map<Method, Set<Annotation>> unmodifiableMethodToAnnotationSetMap( List<Method> methodList )
+  {
+    //
+    final Map<Method, Set<Annotation>> retmap = methodToAnnotationSetMap( methodList );
+    for ( Map.Entry<Method, Set<Annotation>> entry : retmap.entrySet() )
+    {
+      entry.setValue( Collections.unmodifiableSet( entry.getValue() ) );
+    }
+    return Collections.unmodifiableMap( retmap );
+  }
+  
   /**
    * Returns an ordered {@link List} of {@link MethodParameterMetaInformation} instances for each parameter the given
    * {@link Method} has.
@@ -1061,7 +1080,7 @@ public class ReflectionUtils
     if ( type != null )
     {
       //
-      retlist.addAll( Arrays.asList( type.getDeclaredMethods() ) );
+      retlist.addAll( ClassMetadataRegistry.classMetadata( type ).getDeclaredMethodList() );
     }
     
     //
@@ -1083,7 +1102,7 @@ public class ReflectionUtils
     if ( type != null )
     {
       //
-      retlist.addAll( Arrays.asList( type.getDeclaredFields() ) );
+      retlist.addAll( ClassMetadataRegistry.classMetadata( type ).getDeclaredFieldList() );
     }
     
     //
@@ -1105,7 +1124,7 @@ public class ReflectionUtils
     if ( type != null )
     {
       //
-      retlist.addAll( Arrays.asList( type.getFields() ) );
+      retlist.addAll( ClassMetadataRegistry.classMetadata( type ).getFieldList() );
     }
     
     //
@@ -1123,7 +1142,7 @@ public class ReflectionUtils
     final List<Method> retlist = new ArrayList<Method>();
     if ( type != null )
     {
-      retlist.addAll( Arrays.asList( type.getMethods() ) );
+      retlist.addAll( ClassMetadataRegistry.classMetadata( type ).getMethodList() );
     }
     return retlist;
   }
@@ -1385,15 +1404,25 @@ public class ReflectionUtils
    * Returns a {@link Map} of all {@link Package}s annotated with at least one of the given package level {@link Annotation}s
    * including the {@link Annotation} instances related to each {@link Package}. <br>
    * <br>
-   * If no {@link Annotation} is specified an empty {@link Map} is returned.
+   * If no {@link Annotation} is specified an empty {@link Map} is returned.<br>
+   * <br>
+   * The {@link Package}s covered by the {@link AnnotationIndex} of the context {@link ClassLoader} are looked up within the index.
+   * Only the other {@link Package}s currently known by {@link Package#getPackages()}, which come from class path roots without
+   * an index file, are scanned, see {@link AnnotationIndex#unindexedPackageSet()}.
    * 
    * @see #annotatedPackageSet(Class...)
+   * @see AnnotationIndexProcessor
    * @param packageAnnotationTypes
    * @return
    */
   public static <A extends Annotation> Map<Package, Set<A>> annotatedPackageToAnnotationSetMap( Class<? extends A>... packageAnnotationTypes )
   {
-    final Set<Package> scannedPackageSet = SetUtils.valueOf( Package.getPackages() );
+    //
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOfContextClassLoader();
+    final Set<Package> scannedPackageSet = annotationIndex.annotatedPackageSet( packageAnnotationTypes );
+    scannedPackageSet.addAll( annotationIndex.unindexedPackageSet() );
+    
+    //
     return annotatedPackageToAnnotationSetMap( scannedPackageSet, packageAnnotationTypes );
   }
   
@@ -1498,7 +1527,7 @@ public class ReflectionUtils
         }
         catch ( Exception e )
         {
-          for ( Method method : type.getDeclaredMethods() )
+          for ( Method method : ClassMetadataRegistry.classMetadata( type ).getDeclaredMethodList() )
           {
             //            
             final String name = method.getName();
@@ -23,7 +23,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.StringUtils;
 import org.omnaest.utils.structure.collection.adapter.CollectionToCollectionAdapter;
@@ -637,6 +639,34 @@ public class CollectionUtils
     return new LockingCollectionDecorator<E>( collection, lock );
   }
   
+  /**
+   * Returns a view of the given {@link Collection} which uses the read lock of the given {@link ReadWriteLock} for all methods which do
+   * not modify the {@link Collection} and the write lock for all other methods
+   * 
+   * @see #lockedByReentrantReadWriteLock(Collection)
+   * @param collection
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @return
+   */
+  public static <E> Collection<E> locked( Collection<E> collection, ReadWriteLock readWriteLock )
+  {
+    return new LockingCollectionDecorator<E>( collection, readWriteLock );
+  }
+  
+  /**
+   * Returns a view of the given {@link Collection} which uses a new {@link ReentrantReadWriteLock} instance, so that concurrent reads
+   * do not block each other
+   * 
+   * @see #locked(Collection, ReadWriteLock)
+   * @param collection
+   * @return
+   */
+  public static <E> Collection<E> lockedByReentrantReadWriteLock( Collection<E> collection )
+  {
+    return locked( collection, new ReentrantReadWriteLock() );
+  }
+  
   /**
    * Drains the elements of the given {@link Iterable} to the given {@link Collection}
    * 
@@ -18,16 +18,22 @@ package org.omnaest.utils.structure.collection.decorator;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.omnaest.utils.structure.collection.CollectionUtils;
 import org.omnaest.utils.structure.iterator.IteratorUtils;
+import org.omnaest.utils.structure.iterator.SnapshotIterator;
 
 /**
- * A {@link CollectionDecorator} which uses a {@link Lock} instance to synchronize all methods of an underlying {@link Collection}
+ * A {@link CollectionDecorator} which uses a {@link Lock} instance to synchronize all methods of an underlying {@link Collection}<br>
+ * <br>
+ * If constructed with a {@link ReadWriteLock} all methods which do not modify the {@link Collection} only acquire the read lock
+ * and the {@link #iterator()} iterates over a snapshot, so long iterations do not hold any lock.
  * 
  * @see CollectionUtils#lockedByReentrantLock(Collection)
  * @see CollectionUtils#locked(Collection, Lock)
+ * @see CollectionUtils#locked(Collection, ReadWriteLock)
  * @see CollectionDecorator
  * @author Omnaest
  * @param <E>
@@ -39,6 +45,7 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
   
   /* ********************************************** Variables ********************************************** */
   protected final Lock      lock;
+  protected final Lock      readLock;
   
   /* ********************************************** Methods ********************************************** */
   
@@ -51,6 +58,7 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
   {
     super( collection );
     this.lock = lock;
+    this.readLock = lock;
   }
   
   /**
@@ -63,6 +71,40 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
   {
     super( collection );
     this.lock = new ReentrantLock();
+    this.readLock = this.lock;
+  }
+  
+  /**
+   * Uses the {@link ReadWriteLock#readLock()} for all methods which do not modify the underlying {@link Collection} and the
+   * {@link ReadWriteLock#writeLock()} for all other methods. The {@link #iterator()} iterates over a snapshot of the
+   * elements.
+   * 
+   * @see LockingCollectionDecorator
+   * @param collection
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   */
+  public LockingCollectionDecorator( Collection<E> collection, ReadWriteLock readWriteLock )
+  {
+    this( collection, readWriteLock.readLock(), readWriteLock.writeLock() );
+  }
+  
+  /**
+   * Uses the given read {@link Lock} for all methods which do not modify the underlying {@link Collection} and the write {@link Lock}
+   * for all other methods
+   * 
+   * @see LockingCollectionDecorator
+   * @param collection
+   * @param readLock
+   *          {@link Lock}
+   * @param writeLock
+   *          {@link Lock}
+   */
+  public LockingCollectionDecorator( Collection<E> collection, Lock readLock, Lock writeLock )
+  {
+    super( collection );
+    this.lock = writeLock;
+    this.readLock = readLock;
   }
   
   /* (non-Javadoc)
@@ -75,14 +117,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.size();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -99,14 +141,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.isEmpty();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -123,14 +165,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.contains( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -143,7 +185,8 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
   @Override
   public Iterator<E> iterator()
   {
-    return IteratorUtils.lockedIterator( super.iterator(), this.lock );
+    return this.readLock != this.lock ? new SnapshotIterator<E>( this ) : IteratorUtils.lockedIterator( super.iterator(),
+                                                                                                         this.lock );
   }
   
   /* (non-Javadoc)
@@ -156,14 +199,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     Object[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -180,14 +223,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     T[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray( a );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -252,14 +295,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.containsAll( c );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -366,14 +409,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.equals( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -390,14 +433,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.hashCode();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -414,14 +457,14 @@ public class LockingCollectionDecorator<E> extends CollectionDecorator<E>
     String retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toString();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
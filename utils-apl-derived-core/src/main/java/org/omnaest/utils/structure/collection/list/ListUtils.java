@@ -29,7 +29,9 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.structure.array.ArrayUtils;
@@ -1158,6 +1160,34 @@ public class ListUtils
     return locked( list, lock );
   }
   
+  /**
+   * Returns a view of the given {@link List} which uses the read lock of the given {@link ReadWriteLock} for all methods which do
+   * not modify the {@link List} and the write lock for all other methods
+   * 
+   * @see #lockedByReentrantReadWriteLock(List)
+   * @param list
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @return
+   */
+  public static <E> List<E> locked( List<E> list, ReadWriteLock readWriteLock )
+  {
+    return new LockingListDecorator<E>( list, readWriteLock );
+  }
+  
+  /**
+   * Returns a view of the given {@link List} which uses a new {@link ReentrantReadWriteLock} instance, so that concurrent reads
+   * do not block each other
+   * 
+   * @see #locked(List, ReadWriteLock)
+   * @param list
+   * @return
+   */
+  public static <E> List<E> lockedByReentrantReadWriteLock( List<E> list )
+  {
+    return locked( list, new ReentrantReadWriteLock() );
+  }
+  
   /**
    * Returns a view on the given {@link ListIterator} which uses a {@link Lock} to synchronize all its methods.
    * 
@@ -15,11 +15,14 @@
  ******************************************************************************/
 package org.omnaest.utils.structure.collection.list.decorator;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.omnaest.utils.structure.collection.list.ListUtils;
@@ -28,8 +31,12 @@ import org.omnaest.utils.structure.iterator.IteratorUtils;
 /**
  * A {@link ListDecorator} which uses a given {@link Lock} instance to synchronize all of its methods. The {@link #iterator()} and
  * {@link #listIterator()} will return a locked {@link Iterator} which uses the same {@link Lock} instance. The
- * {@link #subList(int, int)} will return a new locked {@link List} with the given {@link Lock}, too.
+ * {@link #subList(int, int)} will return a new locked {@link List} with the given {@link Lock}, too.<br>
+ * <br>
+ * If constructed with a {@link ReadWriteLock} all methods which do not modify the {@link List} only acquire the read lock. The
+ * iterators then iterate over an unmodifiable snapshot, so long iterations do not hold any lock.
  * 
+ * @see ListUtils#locked(List, ReadWriteLock)
  * @author Omnaest
  * @param <E>
  */
@@ -40,6 +47,7 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   
   /* ********************************************** Variables ********************************************** */
   protected final Lock      lock;
+  protected final Lock      readLock;
   
   /* ********************************************** Methods ********************************************** */
   /**
@@ -51,6 +59,7 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   {
     super( list );
     this.lock = lock;
+    this.readLock = lock;
   }
   
   /**
@@ -63,7 +72,40 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   {
     super( list );
     this.lock = new ReentrantLock();
-    
+    this.readLock = this.lock;
+  }
+  
+  /**
+   * Uses the {@link ReadWriteLock#readLock()} for all methods which do not modify the underlying {@link List} and the
+   * {@link ReadWriteLock#writeLock()} for all other methods. The iterators are read only snapshots of
+   * the {@link List}.
+   * 
+   * @see LockingListDecorator
+   * @param list
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   */
+  public LockingListDecorator( List<E> list, ReadWriteLock readWriteLock )
+  {
+    this( list, readWriteLock.readLock(), readWriteLock.writeLock() );
+  }
+  
+  /**
+   * Uses the given read {@link Lock} for all methods which do not modify the underlying {@link List} and the write {@link Lock}
+   * for all other methods
+   * 
+   * @see LockingListDecorator
+   * @param list
+   * @param readLock
+   *          {@link Lock}
+   * @param writeLock
+   *          {@link Lock}
+   */
+  public LockingListDecorator( List<E> list, Lock readLock, Lock writeLock )
+  {
+    super( list );
+    this.lock = writeLock;
+    this.readLock = readLock;
   }
   
   /* (non-Javadoc)
@@ -76,14 +118,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.size();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -100,14 +142,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.isEmpty();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -124,14 +166,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.contains( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -144,7 +186,7 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   @Override
   public Iterator<E> iterator()
   {
-    return IteratorUtils.lockedIterator( super.iterator(), this.lock );
+    return this.readLock != this.lock ? this.snapshot().iterator() : IteratorUtils.lockedIterator( super.iterator(), this.lock );
   }
   
   /* (non-Javadoc)
@@ -157,14 +199,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     Object[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -181,14 +223,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     T[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray( a );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -253,14 +295,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.containsAll( c );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -367,14 +409,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.equals( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -391,14 +433,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.hashCode();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -415,14 +457,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     String retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toString();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -463,14 +505,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     E retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.get( index );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -553,14 +595,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.indexOf( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -577,14 +619,14 @@ public class LockingListDecorator<E> extends ListDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.lastIndexOf( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -597,7 +639,7 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   @Override
   public ListIterator<E> listIterator()
   {
-    return ListUtils.locked( super.listIterator(), this.lock );
+    return this.readLock != this.lock ? this.snapshot().listIterator() : ListUtils.locked( super.listIterator(), this.lock );
   }
   
   /* (non-Javadoc)
@@ -606,7 +648,8 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   @Override
   public ListIterator<E> listIterator( int index )
   {
-    return ListUtils.locked( super.listIterator( index ), this.lock );
+    return this.readLock != this.lock ? this.snapshot().listIterator( index ) : ListUtils.locked( super.listIterator( index ),
+                                                                                                   this.lock );
   }
   
   /* (non-Javadoc)
@@ -615,7 +658,18 @@ public class LockingListDecorator<E> extends ListDecorator<E>
   @Override
   public List<E> subList( int fromIndex, int toIndex )
   {
-    return ListUtils.locked( super.subList( fromIndex, toIndex ), this.lock );
+    return new LockingListDecorator<E>( super.subList( fromIndex, toIndex ), this.readLock, this.lock );
+  }
+  
+  /**
+   * Returns an unmodifiable copy of the current elements
+   * 
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  private List<E> snapshot()
+  {
+    return Collections.unmodifiableList( (List<E>) Arrays.asList( this.toArray() ) );
   }
   
 }
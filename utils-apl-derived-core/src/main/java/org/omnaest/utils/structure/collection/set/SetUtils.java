@@ -23,7 +23,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.omnaest.utils.structure.collection.CollectionUtils;
 import org.omnaest.utils.structure.collection.list.ListUtils;
@@ -454,6 +456,34 @@ public class SetUtils
     return locked( set, lock );
   }
   
+  /**
+   * Returns a view of the given {@link Set} which uses the read lock of the given {@link ReadWriteLock} for all methods which do
+   * not modify the {@link Set} and the write lock for all other methods
+   * 
+   * @see #lockedByReentrantReadWriteLock(Set)
+   * @param set
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @return
+   */
+  public static <E> Set<E> locked( Set<E> set, ReadWriteLock readWriteLock )
+  {
+    return new LockingSetDecorator<E>( set, readWriteLock );
+  }
+  
+  /**
+   * Returns a view of the given {@link Set} which uses a new {@link ReentrantReadWriteLock} instance, so that concurrent reads
+   * do not block each other
+   * 
+   * @see #locked(Set, ReadWriteLock)
+   * @param set
+   * @return
+   */
+  public static <E> Set<E> lockedByReentrantReadWriteLock( Set<E> set )
+  {
+    return locked( set, new ReentrantReadWriteLock() );
+  }
+  
   /**
    * Transforms elements to a {@link Set} of instances of another type using a given {@link ElementConverter}.
    * 
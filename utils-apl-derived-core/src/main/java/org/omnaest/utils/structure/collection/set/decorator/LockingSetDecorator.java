@@ -19,16 +19,22 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.omnaest.utils.structure.collection.set.SetUtils;
 import org.omnaest.utils.structure.iterator.IteratorUtils;
+import org.omnaest.utils.structure.iterator.SnapshotIterator;
 
 /**
  * {@link SetDecorator} which uses a {@link Lock} to synchronize all of its methods. The {@link #iterator()} method will return a
- * locked {@link Iterator} which uses the same {@link Lock} instance.
+ * locked {@link Iterator} which uses the same {@link Lock} instance.<br>
+ * <br>
+ * If constructed with a {@link ReadWriteLock} all methods which do not modify the {@link Set} only acquire the read lock and the
+ * {@link #iterator()} iterates over a snapshot, so long iterations do not hold any lock.
  * 
  * @see SetUtils#locked(Set, Lock)
+ * @see SetUtils#locked(Set, ReadWriteLock)
  * @see SetUtils#lockedByReentrantLock(Set)
  * @author Omnaest
  * @param <E>
@@ -40,6 +46,7 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
   
   /* ********************************************** Variables ********************************************** */
   protected final Lock      lock;
+  protected final Lock      readLock;
   
   /* ********************************************** Methods ********************************************** */
   
@@ -52,6 +59,7 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
   {
     super( set );
     this.lock = lock;
+    this.readLock = lock;
   }
   
   /**
@@ -64,6 +72,40 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
   {
     super( set );
     this.lock = new ReentrantLock();
+    this.readLock = this.lock;
+  }
+  
+  /**
+   * Uses the {@link ReadWriteLock#readLock()} for all methods which do not modify the underlying {@link Set} and the
+   * {@link ReadWriteLock#writeLock()} for all other methods. The {@link #iterator()} iterates over a snapshot of the
+   * elements.
+   * 
+   * @see LockingSetDecorator
+   * @param set
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   */
+  public LockingSetDecorator( Set<E> set, ReadWriteLock readWriteLock )
+  {
+    this( set, readWriteLock.readLock(), readWriteLock.writeLock() );
+  }
+  
+  /**
+   * Uses the given read {@link Lock} for all methods which do not modify the underlying {@link Set} and the write {@link Lock}
+   * for all other methods
+   * 
+   * @see LockingSetDecorator
+   * @param set
+   * @param readLock
+   *          {@link Lock}
+   * @param writeLock
+   *          {@link Lock}
+   */
+  public LockingSetDecorator( Set<E> set, Lock readLock, Lock writeLock )
+  {
+    super( set );
+    this.lock = writeLock;
+    this.readLock = readLock;
   }
   
   /* (non-Javadoc)
@@ -76,14 +118,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.size();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -100,14 +142,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.isEmpty();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -124,14 +166,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.contains( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -144,7 +186,8 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
   @Override
   public Iterator<E> iterator()
   {
-    return IteratorUtils.lockedIterator( super.iterator(), this.lock );
+    return this.readLock != this.lock ? new SnapshotIterator<E>( this ) : IteratorUtils.lockedIterator( super.iterator(),
+                                                                                                         this.lock );
   }
   
   /* (non-Javadoc)
@@ -157,14 +200,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     Object[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -181,14 +224,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     T[] retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toArray( a );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -253,14 +296,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.containsAll( c );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -367,14 +410,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.equals( o );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -391,14 +434,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.hashCode();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -415,14 +458,14 @@ public class LockingSetDecorator<E> extends SetDecorator<E>
     String retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toString();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
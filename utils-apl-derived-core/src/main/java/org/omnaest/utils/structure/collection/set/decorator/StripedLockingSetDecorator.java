@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.collection.set.decorator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.structure.collection.set.SetAbstract;
+import org.omnaest.utils.structure.element.factory.Factory;
+import org.omnaest.utils.structure.iterator.IteratorUtils;
+
+/**
+ * {@link Set} which distributes its elements by their hash code over a fixed number of stripes. Each stripe is an underlying
+ * {@link Set} created by the given {@link Factory} and guarded by its own {@link ReentrantReadWriteLock} using a
+ * {@link LockingSetDecorator}, so operations on elements of different stripes never block each other.<br>
+ * <br>
+ * {@link #size()} visits the stripes one after another, so it does not represent an atomic snapshot of the whole {@link Set}. The
+ * {@link #iterator()} iterates over snapshots of the stripes.
+ * 
+ * @see LockingSetDecorator
+ * @author Omnaest
+ * @param <E>
+ */
+public class StripedLockingSetDecorator<E> extends SetAbstract<E>
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long              serialVersionUID = -2659960947706127000L;
+  private static final int               MAXIMUM_STRIPES  = 1 << 16;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final LockingSetDecorator<E>[] stripes;
+  private final int                      stripeMask;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Uses four times the number of stripes as {@link Runtime#availableProcessors()} returns
+   * 
+   * @see StripedLockingSetDecorator
+   * @param setFactory
+   *          {@link Factory} for the underlying {@link Set} of each stripe
+   */
+  public StripedLockingSetDecorator( Factory<Set<E>> setFactory )
+  {
+    this( setFactory, Runtime.getRuntime().availableProcessors() * 4 );
+  }
+  
+  /**
+   * @see StripedLockingSetDecorator
+   * @param setFactory
+   *          {@link Factory} for the underlying {@link Set} of each stripe
+   * @param numberOfStripes
+   *          : is rounded up to the next power of two
+   */
+  @SuppressWarnings("unchecked")
+  public StripedLockingSetDecorator( Factory<Set<E>> setFactory, int numberOfStripes )
+  {
+    //
+    super();
+    Assert.isNotNull( setFactory, "The set factory must not be null" );
+    
+    //
+    int stripeBits = 0;
+    while ( ( 1 << stripeBits ) < Math.min( Math.max( numberOfStripes, 1 ), MAXIMUM_STRIPES ) )
+    {
+      stripeBits++;
+    }
+    
+    //
+    @SuppressWarnings("unchecked")
+    final LockingSetDecorator<E>[] stripes = (LockingSetDecorator<E>[]) new LockingSetDecorator<?>[1 << stripeBits];
+    this.stripes = stripes;
+    this.stripeMask = this.stripes.length - 1;
+    for ( int ii = 0; ii < this.stripes.length; ii++ )
+    {
+      this.stripes[ii] = new LockingSetDecorator<E>( setFactory.newInstance(), new ReentrantReadWriteLock() );
+    }
+  }
+  
+  /**
+   * Returns the stripe responsible for the given element
+   * 
+   * @param element
+   * @return
+   */
+  private Set<E> stripeFor( Object element )
+  {
+    //
+    int hash = element != null ? element.hashCode() : 0;
+    hash ^= ( hash >>> 20 ) ^ ( hash >>> 12 );
+    hash ^= ( hash >>> 7 ) ^ ( hash >>> 4 );
+    
+    //
+    return this.stripes[hash & this.stripeMask];
+  }
+  
+  @Override
+  public boolean add( E e )
+  {
+    return this.stripeFor( e ).add( e );
+  }
+  
+  @Override
+  public boolean remove( Object o )
+  {
+    return this.stripeFor( o ).remove( o );
+  }
+  
+  @Override
+  public boolean contains( Object o )
+  {
+    return this.stripeFor( o ).contains( o );
+  }
+  
+  @Override
+  public int size()
+  {
+    //
+    int retval = 0;
+    
+    //
+    for ( Set<E> stripe : this.stripes )
+    {
+      retval += stripe.size();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean isEmpty()
+  {
+    //
+    boolean retval = true;
+    
+    //
+    for ( Set<E> stripe : this.stripes )
+    {
+      if ( !stripe.isEmpty() )
+      {
+        retval = false;
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void clear()
+  {
+    for ( Set<E> stripe : this.stripes )
+    {
+      stripe.clear();
+    }
+  }
+  
+  @Override
+  public Iterator<E> iterator()
+  {
+    //
+    final List<Iterator<E>> iteratorList = new ArrayList<Iterator<E>>( this.stripes.length );
+    for ( Set<E> stripe : this.stripes )
+    {
+      iteratorList.add( stripe.iterator() );
+    }
+    
+    //
+    return IteratorUtils.chained( iteratorList );
+  }
+  
+  /**
+   * Returns the number of stripes
+   * 
+   * @return
+   */
+  public int getNumberOfStripes()
+  {
+    return this.stripes.length;
+  }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.iterator;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Iterator} over a snapshot of the elements of a {@link Collection}, which is taken by a single {@link Collection#toArray()}
+ * call at construction time. The iteration itself does not access the {@link Collection} anymore, so it neither holds any lock of
+ * a locking {@link Collection} nor throws a {@link ConcurrentModificationException}.<br>
+ * <br>
+ * {@link #remove()} removes the last returned element from the {@link Collection} using {@link Collection#remove(Object)}.
+ * 
+ * @author Omnaest
+ * @param <E>
+ */
+public class SnapshotIterator<E> implements Iterator<E>
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Collection<E> collection;
+  private final Object[]      elements;
+  private int                 index     = 0;
+  private boolean             removable = false;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see SnapshotIterator
+   * @param collection
+   */
+  public SnapshotIterator( Collection<E> collection )
+  {
+    super();
+    this.collection = collection;
+    this.elements = collection.toArray();
+  }
+  
+  @Override
+  public boolean hasNext()
+  {
+    return this.index < this.elements.length;
+  }
+  
+  @SuppressWarnings("unchecked")
+  @Override
+  public E next()
+  {
+    //
+    if ( !this.hasNext() )
+    {
+      throw new NoSuchElementException();
+    }
+    
+    //
+    this.removable = true;
+    return (E) this.elements[this.index++];
+  }
+  
+  @Override
+  public void remove()
+  {
+    //
+    if ( !this.removable )
+    {
+      throw new IllegalStateException();
+    }
+    
+    //
+    this.removable = false;
+    this.collection.remove( this.elements[this.index - 1] );
+  }
+  
+}
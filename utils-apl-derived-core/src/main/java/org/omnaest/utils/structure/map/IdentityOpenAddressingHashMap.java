@@ -0,0 +1,575 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link Map} implementation which uses the identity comparison "object == element" for the resolution of keys like the
+ * {@link IdentityHashMap}. It is specialized for the bookkeeping of already visited instances within large object graphs:<br>
+ * <ul>
+ * <li>It uses open addressing with linear probing and stores the identity hash codes within a primitive int array, so no entry
+ * objects are stored and no {@link Object#hashCode()} or {@link Object#equals(Object)} of any key is ever called. Only the
+ * {@link #entrySet()} view creates an entry object for every iterated key.</li>
+ * <li>It can be pre-sized with the expected number of entries by {@link #IdentityOpenAddressingHashMap(int)}, which avoids
+ * rehashing</li>
+ * <li>It can be reused with {@link #reset()}, which empties the {@link Map} in constant time</li>
+ * </ul>
+ * <br>
+ * The {@link #keySet()}, {@link #values()} and {@link #entrySet()} are read only views. This {@link Map} is not thread safe. Since
+ * the identity hash codes of the keys change, the entries are rehashed on deserialization.<br>
+ * <br>
+ * Like the {@link IdentityHashMap} the {@link #equals(Object)} and {@link #hashCode()} methods use reference equality for keys and
+ * values, so the general {@link Map} contract is only fulfilled in comparison with other identity based {@link Map}s.
+ * 
+ * @see IdentityHashMap
+ * @author Omnaest
+ * @param <K>
+ * @param <V>
+ */
+public class IdentityOpenAddressingHashMap<K, V> extends MapAbstract<K, V>
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long   serialVersionUID      = -2313532426357960424L;
+  private static final int    DEFAULT_EXPECTED_SIZE = 16;
+  private static final int    MAXIMUM_CAPACITY      = 1 << 30;
+  /** Stands for the null key, since null marks an empty slot */
+  private static final Object NULL_KEY              = new Object();
+  /** The generation an unused slot has */
+  private static final int    GENERATION_NONE       = 0;
+  
+  /* ************************************** Variables / State (internal/hiding) ************************************* */
+  private transient Object[]  keys;
+  private transient Object[]  values;
+  private transient int[]     hashes;
+  private transient int[]     generations;
+  private transient int       generation            = GENERATION_NONE + 1;
+  private transient int       size                  = 0;
+  private transient int       threshold;
+  
+  /* *************************************************** Methods **************************************************** */
+  
+  /**
+   * @see IdentityOpenAddressingHashMap
+   */
+  public IdentityOpenAddressingHashMap()
+  {
+    this( DEFAULT_EXPECTED_SIZE );
+  }
+  
+  /**
+   * Creates a new {@link IdentityOpenAddressingHashMap} which can hold the given expected number of entries without any rehashing
+   * 
+   * @see IdentityOpenAddressingHashMap
+   * @param expectedSize
+   */
+  public IdentityOpenAddressingHashMap( int expectedSize )
+  {
+    super();
+    this.allocate( capacityFor( expectedSize ) );
+  }
+  
+  /**
+   * Returns the capacity as power of two which keeps the load factor for the given number of entries at or below 0.5
+   * 
+   * @param expectedSize
+   * @return
+   */
+  private static int capacityFor( int expectedSize )
+  {
+    //
+    int retval = 4;
+    
+    //
+    final long minimumCapacity = Math.max( 0, expectedSize ) * 2L;
+    while ( retval < minimumCapacity && retval < MAXIMUM_CAPACITY )
+    {
+      retval <<= 1;
+    }
+    
+    //
+    return retval;
+  }
+  
+  private void allocate( int capacity )
+  {
+    this.keys = new Object[capacity];
+    this.values = new Object[capacity];
+    this.hashes = new int[capacity];
+    this.generations = new int[capacity];
+    this.threshold = capacity == MAXIMUM_CAPACITY ? Integer.MAX_VALUE : capacity / 2;
+  }
+  
+  private static Object maskNull( Object key )
+  {
+    return key != null ? key : NULL_KEY;
+  }
+  
+  @SuppressWarnings("unchecked")
+  private static <K> K unmaskNull( Object key )
+  {
+    return key != NULL_KEY ? (K) key : null;
+  }
+  
+  /**
+   * Spreads the bits of the identity hash code so that the low bits used for the slot index depend on all bits
+   * 
+   * @param key
+   * @return
+   */
+  private static int hash( Object key )
+  {
+    final int hash = System.identityHashCode( key ) * 0x9E3779B9;
+    return hash ^ ( hash >>> 16 );
+  }
+  
+  private boolean isUsed( int index )
+  {
+    return this.generations[index] == this.generation;
+  }
+  
+  /**
+   * Returns the slot index of the given masked key or -1 if it is not contained
+   * 
+   * @param maskedKey
+   * @param hash
+   * @return
+   */
+  private int indexOf( Object maskedKey, int hash )
+  {
+    //
+    final int mask = this.keys.length - 1;
+    for ( int index = hash & mask;; index = ( index + 1 ) & mask )
+    {
+      //
+      if ( !this.isUsed( index ) )
+      {
+        return -1;
+      }
+      if ( this.keys[index] == maskedKey )
+      {
+        return index;
+      }
+    }
+  }
+  
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get( Object key )
+  {
+    final Object maskedKey = maskNull( key );
+    final int index = this.indexOf( maskedKey, hash( maskedKey ) );
+    return index >= 0 ? (V) this.values[index] : null;
+  }
+  
+  @Override
+  public boolean containsKey( Object key )
+  {
+    final Object maskedKey = maskNull( key );
+    return this.indexOf( maskedKey, hash( maskedKey ) ) >= 0;
+  }
+  
+  @SuppressWarnings("unchecked")
+  @Override
+  public V put( K key, V value )
+  {
+    //
+    V retval = null;
+    
+    //
+    final Object maskedKey = maskNull( key );
+    final int hash = hash( maskedKey );
+    final int mask = this.keys.length - 1;
+    
+    int index = hash & mask;
+    while ( this.isUsed( index ) && this.keys[index] != maskedKey )
+    {
+      index = ( index + 1 ) & mask;
+    }
+    
+    //
+    if ( this.isUsed( index ) )
+    {
+      retval = (V) this.values[index];
+      this.values[index] = value;
+    }
+    else
+    {
+      //
+      this.keys[index] = maskedKey;
+      this.values[index] = value;
+      this.hashes[index] = hash;
+      this.generations[index] = this.generation;
+      
+      //
+      if ( ++this.size > this.threshold )
+      {
+        this.resize( this.keys.length << 1 );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Rehashes all entries of the current generation into new arrays with the given capacity
+   * 
+   * @param capacity
+   */
+  private void resize( int capacity )
+  {
+    //
+    if ( capacity <= MAXIMUM_CAPACITY )
+    {
+      //
+      final Object[] keys = this.keys;
+      final Object[] values = this.values;
+      final int[] hashes = this.hashes;
+      final int[] generations = this.generations;
+      final int generation = this.generation;
+      
+      //
+      this.allocate( capacity );
+      this.generation = GENERATION_NONE + 1;
+      
+      //
+      final int mask = capacity - 1;
+      for ( int ii = 0; ii < keys.length; ii++ )
+      {
+        if ( generations[ii] == generation )
+        {
+          //
+          int index = hashes[ii] & mask;
+          while ( this.isUsed( index ) )
+          {
+            index = ( index + 1 ) & mask;
+          }
+          
+          //
+          this.keys[index] = keys[ii];
+          this.values[index] = values[ii];
+          this.hashes[index] = hashes[ii];
+          this.generations[index] = this.generation;
+        }
+      }
+    }
+  }
+  
+  @SuppressWarnings("unchecked")
+  @Override
+  public V remove( Object key )
+  {
+    //
+    V retval = null;
+    
+    //
+    final Object maskedKey = maskNull( key );
+    int index = this.indexOf( maskedKey, hash( maskedKey ) );
+    if ( index >= 0 )
+    {
+      //
+      retval = (V) this.values[index];
+      this.size--;
+      
+      //shift the following entries of the same probe sequence backwards, so no tombstones are necessary
+      final int mask = this.keys.length - 1;
+      for ( int next = ( index + 1 ) & mask; this.isUsed( next ); next = ( next + 1 ) & mask )
+      {
+        //
+        final int home = this.hashes[next] & mask;
+        final boolean isHomeCyclicallyBetween = index <= next ? index < home && home <= next : index < home || home <= next;
+        if ( !isHomeCyclicallyBetween )
+        {
+          this.keys[index] = this.keys[next];
+          this.values[index] = this.values[next];
+          this.hashes[index] = this.hashes[next];
+          index = next;
+        }
+      }
+      
+      //
+      this.keys[index] = null;
+      this.values[index] = null;
+      this.generations[index] = GENERATION_NONE;
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public int size()
+  {
+    return this.size;
+  }
+  
+  /**
+   * Removes all entries and releases all references to the keys and values
+   * 
+   * @see #reset()
+   */
+  @Override
+  public void clear()
+  {
+    Arrays.fill( this.keys, null );
+    Arrays.fill( this.values, null );
+    Arrays.fill( this.generations, GENERATION_NONE );
+    this.generation = GENERATION_NONE + 1;
+    this.size = 0;
+  }
+  
+  /**
+   * Removes all entries in constant time, by starting a new generation of slots. In contrast to {@link #clear()} the references
+   * to the former keys and values are only released when their slots are reused or on the next {@link #clear()}.
+   * 
+   * @see #clear()
+   */
+  public void reset()
+  {
+    //
+    if ( this.generation == Integer.MAX_VALUE )
+    {
+      this.clear();
+    }
+    else
+    {
+      this.generation++;
+      this.size = 0;
+    }
+  }
+  
+  /**
+   * @return index of the next used slot starting with the given index or -1
+   */
+  private int nextUsedIndex( int index )
+  {
+    //
+    for ( int ii = index; ii < this.keys.length; ii++ )
+    {
+      if ( this.isUsed( ii ) )
+      {
+        return ii;
+      }
+    }
+    
+    //
+    return -1;
+  }
+  
+  /**
+   * {@link Iterator} over the used slots
+   * 
+   * @author Omnaest
+   * @param <E>
+   */
+  private abstract class SlotIterator<E> implements Iterator<E>
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private int index = IdentityOpenAddressingHashMap.this.nextUsedIndex( 0 );
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    @Override
+    public boolean hasNext()
+    {
+      return this.index >= 0;
+    }
+    
+    @Override
+    public E next()
+    {
+      //
+      if ( this.index < 0 )
+      {
+        throw new NoSuchElementException();
+      }
+      
+      //
+      final E retval = this.elementAt( this.index );
+      this.index = IdentityOpenAddressingHashMap.this.nextUsedIndex( this.index + 1 );
+      return retval;
+    }
+    
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+    
+    protected abstract E elementAt( int index );
+  }
+  
+  @Override
+  public Set<K> keySet()
+  {
+    return new AbstractSet<K>()
+    {
+      @Override
+      public Iterator<K> iterator()
+      {
+        return new SlotIterator<K>()
+        {
+          @Override
+          protected K elementAt( int index )
+          {
+            return IdentityOpenAddressingHashMap.<K> unmaskNull( IdentityOpenAddressingHashMap.this.keys[index] );
+          }
+        };
+      }
+      
+      @Override
+      public boolean contains( Object object )
+      {
+        return IdentityOpenAddressingHashMap.this.containsKey( object );
+      }
+      
+      @Override
+      public int size()
+      {
+        return IdentityOpenAddressingHashMap.this.size;
+      }
+    };
+  }
+  
+  @Override
+  public Collection<V> values()
+  {
+    return new AbstractCollection<V>()
+    {
+      @Override
+      public Iterator<V> iterator()
+      {
+        return new SlotIterator<V>()
+        {
+          @SuppressWarnings("unchecked")
+          @Override
+          protected V elementAt( int index )
+          {
+            return (V) IdentityOpenAddressingHashMap.this.values[index];
+          }
+        };
+      }
+      
+      @Override
+      public int size()
+      {
+        return IdentityOpenAddressingHashMap.this.size;
+      }
+    };
+  }
+  
+  /**
+   * Returns true if the given {@link Map} contains the same key value mappings. Keys and values are compared by reference. If
+   * the given {@link Map} is no {@link IdentityOpenAddressingHashMap} its keys are resolved by its own {@link Map#get(Object)}.
+   * 
+   * @see IdentityHashMap#equals(Object)
+   * @param object
+   * @return
+   */
+  @Override
+  public boolean equals( Object object )
+  {
+    //
+    if ( object == this )
+    {
+      return true;
+    }
+    if ( !( object instanceof Map ) )
+    {
+      return false;
+    }
+    
+    //
+    final Map<?, ?> map = (Map<?, ?>) object;
+    if ( map.size() != this.size )
+    {
+      return false;
+    }
+    for ( int index = this.nextUsedIndex( 0 ); index >= 0; index = this.nextUsedIndex( index + 1 ) )
+    {
+      //
+      final Object key = unmaskNull( this.keys[index] );
+      final Object value = this.values[index];
+      if ( map.get( key ) != value || ( value == null && !map.containsKey( key ) ) )
+      {
+        return false;
+      }
+    }
+    
+    //
+    return true;
+  }
+  
+  /**
+   * Returns the sum of {@link System#identityHashCode(Object)} of every key xor {@link System#identityHashCode(Object)} of its
+   * value
+   * 
+   * @see IdentityHashMap#hashCode()
+   * @return
+   */
+  @Override
+  public int hashCode()
+  {
+    //
+    int retval = 0;
+    for ( int index = this.nextUsedIndex( 0 ); index >= 0; index = this.nextUsedIndex( index + 1 ) )
+    {
+      retval += System.identityHashCode( unmaskNull( this.keys[index] ) ) ^ System.identityHashCode( this.values[index] );
+    }
+    return retval;
+  }
+  
+  private void writeObject( ObjectOutputStream objectOutputStream ) throws IOException
+  {
+    //
+    objectOutputStream.defaultWriteObject();
+    objectOutputStream.writeInt( this.size );
+    for ( int index = this.nextUsedIndex( 0 ); index >= 0; index = this.nextUsedIndex( index + 1 ) )
+    {
+      objectOutputStream.writeObject( unmaskNull( this.keys[index] ) );
+      objectOutputStream.writeObject( this.values[index] );
+    }
+  }
+  
+  @SuppressWarnings("unchecked")
+  private void readObject( ObjectInputStream objectInputStream ) throws IOException, ClassNotFoundException
+  {
+    //
+    objectInputStream.defaultReadObject();
+    final int size = objectInputStream.readInt();
+    this.allocate( capacityFor( size ) );
+    this.generation = GENERATION_NONE + 1;
+    for ( int ii = 0; ii < size; ii++ )
+    {
+      final K key = (K) objectInputStream.readObject();
+      final V value = (V) objectInputStream.readObject();
+      this.put( key, value );
+    }
+  }
+  
+}
@@ -35,7 +35,9 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -759,6 +761,34 @@ public class MapUtils
     return locked( map, lock );
   }
   
+  /**
+   * Returns a view of the given {@link Map} which uses the read lock of the given {@link ReadWriteLock} for all methods which do
+   * not modify the {@link Map} and the write lock for all other methods
+   * 
+   * @see #lockedByReentrantReadWriteLock(Map)
+   * @param map
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   * @return
+   */
+  public static <K, V> Map<K, V> locked( Map<K, V> map, ReadWriteLock readWriteLock )
+  {
+    return new LockingMapDecorator<K, V>( map, readWriteLock );
+  }
+  
+  /**
+   * Returns a view of the given {@link Map} which uses a new {@link ReentrantReadWriteLock} instance, so that concurrent reads
+   * do not block each other
+   * 
+   * @see #locked(Map, ReadWriteLock)
+   * @param map
+   * @return
+   */
+  public static <K, V> Map<K, V> lockedByReentrantReadWriteLock( Map<K, V> map )
+  {
+    return locked( map, new ReentrantReadWriteLock() );
+  }
+  
   /**
    * Returns the inverted {@link Map} for the given one.<br>
    * <br>
@@ -15,21 +15,36 @@
  ******************************************************************************/
 package org.omnaest.utils.structure.map.decorator;
 
+import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
-import org.omnaest.utils.structure.collection.CollectionUtils;
-import org.omnaest.utils.structure.collection.set.SetUtils;
+import org.omnaest.utils.structure.collection.decorator.LockingCollectionDecorator;
+import org.omnaest.utils.structure.collection.set.SetAbstract;
+import org.omnaest.utils.structure.collection.set.decorator.LockingSetDecorator;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.structure.iterator.IteratorUtils;
 
 /**
  * {@link MapDecorator} which uses a {@link Lock} instance to synchronize every method invocation. This allows to make not thread
  * safe {@link Map}s thread safe.<br>
  * <br>
  * Child {@link Collection}s like {@link #keySet()} as well as {@link #values()} and {@link #entrySet()} are using this
- * {@link Lock}, too.
+ * {@link Lock}, too.<br>
+ * <br>
+ * If constructed with a {@link ReadWriteLock} all methods which do not modify the {@link Map} only acquire the read lock, so that
+ * concurrent readers do not block each other. In that case the child {@link Collection}s iterate over snapshots, so long
+ * iterations do not hold any lock.<br>
+ * <br>
+ * Concurrent readers holding the read lock must not modify the underlying {@link Map}. So a {@link Map} which changes its
+ * internal structure on reads, like a {@link java.util.WeakHashMap} which expunges stale entries or an access ordered
+ * {@link java.util.LinkedHashMap} which moves the entry on {@link #get(Object)}, must only be used with an exclusive
+ * {@link Lock}.
  * 
  * @author Omnaest
  * @param <K>
@@ -39,6 +54,7 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
 {
   /* ********************************************** Variables ********************************************** */
   protected final Lock lock;
+  protected final Lock readLock;
   
   /* ********************************************** Methods ********************************************** */
   
@@ -51,6 +67,7 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
   {
     super( map );
     this.lock = lock;
+    this.readLock = lock;
   }
   
   /**
@@ -63,6 +80,44 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
   {
     super( map );
     this.lock = new ReentrantLock();
+    this.readLock = this.lock;
+  }
+  
+  /**
+   * Uses the {@link ReadWriteLock#readLock()} for all methods which do not modify the underlying {@link Map} and the
+   * {@link ReadWriteLock#writeLock()} for all other methods. The {@link #keySet()}, {@link #values()} and
+   * {@link #entrySet()} views iterate over snapshots.<br>
+   * <br>
+   * The given {@link Map} must not modify itself on reads, so e.g. a {@link java.util.WeakHashMap} or an access ordered
+   * {@link java.util.LinkedHashMap} requires {@link #LockingMapDecorator(Map, Lock)} with an exclusive {@link Lock}.
+   * 
+   * @see LockingMapDecorator
+   * @param map
+   * @param readWriteLock
+   *          {@link ReadWriteLock}
+   */
+  public LockingMapDecorator( Map<K, V> map, ReadWriteLock readWriteLock )
+  {
+    this( map, readWriteLock.readLock(), readWriteLock.writeLock() );
+  }
+  
+  /**
+   * Uses the given read {@link Lock} for all methods which do not modify the underlying {@link Map} and the write {@link Lock}
+   * for all other methods. The same restriction for {@link Map}s modifying themselves on reads applies as for
+   * {@link #LockingMapDecorator(Map, ReadWriteLock)}.
+   * 
+   * @see LockingMapDecorator
+   * @param map
+   * @param readLock
+   *          {@link Lock}
+   * @param writeLock
+   *          {@link Lock}
+   */
+  public LockingMapDecorator( Map<K, V> map, Lock readLock, Lock writeLock )
+  {
+    super( map );
+    this.lock = writeLock;
+    this.readLock = readLock;
   }
   
   /* (non-Javadoc)
@@ -75,14 +130,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.size();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -99,14 +154,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.isEmpty();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -123,14 +178,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.containsKey( key );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -147,14 +202,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.containsValue( value );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -171,14 +226,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     V retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.get( key );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -275,7 +330,7 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
   @Override
   public Set<K> keySet()
   {
-    return SetUtils.locked( super.keySet(), this.lock );
+    return new LockingSetDecorator<K>( super.keySet(), this.readLock, this.lock );
   }
   
   /* (non-Javadoc)
@@ -284,7 +339,7 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
   @Override
   public Collection<V> values()
   {
-    return CollectionUtils.locked( super.values(), this.lock );
+    return new LockingCollectionDecorator<V>( super.values(), this.readLock, this.lock );
   }
   
   /* (non-Javadoc)
@@ -293,7 +348,95 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
   @Override
   public Set<Map.Entry<K, V>> entrySet()
   {
-    return SetUtils.locked( super.entrySet(), this.lock );
+    //
+    if ( this.readLock == this.lock )
+    {
+      return new LockingSetDecorator<Map.Entry<K, V>>( super.entrySet(), this.lock );
+    }
+    
+    // the entries of the underlying map are not guarded by the lock, so detached entries are resolved from a snapshot of the keys
+    final ElementConverter<K, Map.Entry<K, V>> keyToEntryConverter = new ElementConverter<K, Map.Entry<K, V>>()
+    {
+      @Override
+      public Map.Entry<K, V> convert( final K key )
+      {
+        return new AbstractMap.SimpleEntry<K, V>( key, LockingMapDecorator.this.get( key ) )
+        {
+          private static final long serialVersionUID = 2390447446432767011L;
+          
+          @Override
+          public V setValue( V value )
+          {
+            LockingMapDecorator.this.put( key, value );
+            return super.setValue( value );
+          }
+        };
+      }
+    };
+    return new SetAbstract<Map.Entry<K, V>>()
+    {
+      private static final long serialVersionUID = -6006214003738447516L;
+      
+      @Override
+      public int size()
+      {
+        return LockingMapDecorator.this.size();
+      }
+      
+      @Override
+      public boolean contains( Object o )
+      {
+        //
+        boolean retval = false;
+        
+        //
+        LockingMapDecorator.this.readLock.lock();
+        try
+        {
+          retval = LockingMapDecorator.this.map.entrySet().contains( o );
+        }
+        finally
+        {
+          LockingMapDecorator.this.readLock.unlock();
+        }
+        
+        //
+        return retval;
+      }
+      
+      @Override
+      public boolean add( Map.Entry<K, V> e )
+      {
+        throw new UnsupportedOperationException();
+      }
+      
+      @Override
+      public boolean remove( Object o )
+      {
+        //
+        boolean retval = false;
+        
+        //
+        LockingMapDecorator.this.lock.lock();
+        try
+        {
+          retval = LockingMapDecorator.this.map.entrySet().remove( o );
+        }
+        finally
+        {
+          LockingMapDecorator.this.lock.unlock();
+        }
+        
+        //
+        return retval;
+      }
+      
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator()
+      {
+        return IteratorUtils.adapter( LockingMapDecorator.this.keySet().iterator(), keyToEntryConverter );
+      }
+    };
   }
   
   /* (non-Javadoc)
@@ -306,14 +449,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     boolean retval = false;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.equals( obj );
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -330,14 +473,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     int retval = 0;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.hashCode();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -354,14 +497,14 @@ public class LockingMapDecorator<K, V> extends MapDecorator<K, V>
     String retval = null;
     
     //
-    this.lock.lock();
+    this.readLock.lock();
     try
     {
       retval = super.toString();
     }
     finally
     {
-      this.lock.unlock();
+      this.readLock.unlock();
     }
     
     //
@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map.decorator;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link LockingMapDecorator} which reads optimistically without acquiring any lock from a copy on write snapshot of the
+ * underlying {@link Map}. Every write increments a sequence number when it acquires the write lock and again before it releases
+ * it. A snapshot is an immutable private copy tagged with the sequence number it was taken at, so it is only used as long as the
+ * sequence number is unchanged. Otherwise the read is done on the underlying {@link Map} holding the read lock of a
+ * {@link ReentrantReadWriteLock}.<br>
+ * <br>
+ * The underlying {@link Map} itself is never read without the lock, so any {@link Map} which supports concurrent reads is safe,
+ * like a {@link java.util.HashMap} or a {@link java.util.TreeMap}. {@link Map}s which modify themselves on reads, like an access
+ * ordered {@link LinkedHashMap} or a {@link WeakHashMap}, are not supported; use a {@link LockingMapDecorator} with an exclusive
+ * {@link Lock} for them.<br>
+ * <br>
+ * Optimistic reads are done for {@link #get(Object)}, {@link #containsKey(Object)}, {@link #containsValue(Object)},
+ * {@link #size()} and {@link #isEmpty()}. All other methods behave like a {@link LockingMapDecorator} using a
+ * {@link ReentrantReadWriteLock}.<br>
+ * <br>
+ * A write only discards the snapshot. A new snapshot is taken by a locked read as soon as there have been more locked reads than
+ * entries since the last write, so the costs of copying are spread over the reads and write heavy usage falls back to plain
+ * read write locking. The copy is a {@link TreeMap} with the same comparator for a {@link SortedMap}, an {@link IdentityHashMap}
+ * for an {@link IdentityHashMap} and a {@link HashMap} for all other {@link Map}s, which therefore have to compare their keys by
+ * {@link Object#equals(Object)}.
+ * 
+ * @see LockingMapDecorator
+ * @author Omnaest
+ * @param <K>
+ * @param <V>
+ */
+public class OptimisticReadLockingMapDecorator<K, V> extends LockingMapDecorator<K, V>
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long                     serialVersionUID    = -1846283930417569208L;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final AtomicLong                      sequence;
+  private final AtomicReference<Snapshot<K, V>> snapshotReference;
+  private final AtomicInteger                   numberOfLockedReads;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Immutable copy of the underlying {@link Map} together with the sequence number it was taken at
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static final class Snapshot<K, V> implements Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long serialVersionUID = 2395917270561287343L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final long        stamp;
+    private final Map<K, V>   map;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see Snapshot
+     * @param stamp
+     * @param map
+     */
+    Snapshot( long stamp, Map<K, V> map )
+    {
+      super();
+      this.stamp = stamp;
+      this.map = map;
+    }
+  }
+  
+  /**
+   * Write {@link Lock} which increments the sequence number after the outermost acquisition and before the outermost release, so
+   * the sequence number is odd while a write is in progress. The outermost acquisition also discards the current snapshot, so it
+   * does not keep removed keys and values reachable, and restarts counting the locked reads.
+   * 
+   * @author Omnaest
+   */
+  private static class SequenceWriteLock implements Lock, Serializable
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long                      serialVersionUID = 4917040271386409262L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final ReentrantReadWriteLock.WriteLock writeLock;
+    private final AtomicLong                       sequence;
+    private final AtomicReference<?>               snapshotReference;
+    private final AtomicInteger                    numberOfLockedReads;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see SequenceWriteLock
+     * @param writeLock
+     * @param sequence
+     * @param snapshotReference
+     * @param numberOfLockedReads
+     */
+    SequenceWriteLock( ReentrantReadWriteLock.WriteLock writeLock, AtomicLong sequence, AtomicReference<?> snapshotReference,
+                       AtomicInteger numberOfLockedReads )
+    {
+      super();
+      this.writeLock = writeLock;
+      this.sequence = sequence;
+      this.snapshotReference = snapshotReference;
+      this.numberOfLockedReads = numberOfLockedReads;
+    }
+    
+    @Override
+    public void lock()
+    {
+      this.writeLock.lock();
+      this.afterAcquire();
+    }
+    
+    @Override
+    public void lockInterruptibly() throws InterruptedException
+    {
+      this.writeLock.lockInterruptibly();
+      this.afterAcquire();
+    }
+    
+    @Override
+    public boolean tryLock()
+    {
+      final boolean retval = this.writeLock.tryLock();
+      if ( retval )
+      {
+        this.afterAcquire();
+      }
+      return retval;
+    }
+    
+    @Override
+    public boolean tryLock( long time, TimeUnit unit ) throws InterruptedException
+    {
+      final boolean retval = this.writeLock.tryLock( time, unit );
+      if ( retval )
+      {
+        this.afterAcquire();
+      }
+      return retval;
+    }
+    
+    @Override
+    public void unlock()
+    {
+      if ( this.writeLock.getHoldCount() == 1 )
+      {
+        this.sequence.incrementAndGet();
+      }
+      this.writeLock.unlock();
+    }
+    
+    /**
+     * A {@link Condition} would release the lock without completing the write, so it is not supported
+     */
+    @Override
+    public Condition newCondition()
+    {
+      throw new UnsupportedOperationException();
+    }
+    
+    private void afterAcquire()
+    {
+      if ( this.writeLock.getHoldCount() == 1 )
+      {
+        this.sequence.incrementAndGet();
+        this.snapshotReference.set( null );
+        this.numberOfLockedReads.set( 0 );
+      }
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see OptimisticReadLockingMapDecorator
+   * @param map
+   */
+  public OptimisticReadLockingMapDecorator( Map<K, V> map )
+  {
+    this( map, new ReentrantReadWriteLock(), new AtomicLong(), new AtomicReference<Snapshot<K, V>>(), new AtomicInteger() );
+  }
+  
+  /**
+   * @see OptimisticReadLockingMapDecorator
+   * @param map
+   * @param readWriteLock
+   * @param sequence
+   * @param snapshotReference
+   * @param numberOfLockedReads
+   */
+  private OptimisticReadLockingMapDecorator( Map<K, V> map, ReentrantReadWriteLock readWriteLock, AtomicLong sequence,
+                                             AtomicReference<Snapshot<K, V>> snapshotReference, AtomicInteger numberOfLockedReads )
+  {
+    super( map, readWriteLock.readLock(), new SequenceWriteLock( readWriteLock.writeLock(), sequence, snapshotReference,
+                                                                 numberOfLockedReads ) );
+    this.sequence = sequence;
+    this.snapshotReference = snapshotReference;
+    this.numberOfLockedReads = numberOfLockedReads;
+  }
+  
+  /**
+   * Returns the current snapshot if no write has started since it was taken, otherwise null
+   * 
+   * @return
+   */
+  private Snapshot<K, V> validSnapshot()
+  {
+    final Snapshot<K, V> snapshot = this.snapshotReference.get();
+    return snapshot != null && snapshot.stamp == this.sequence.get() ? snapshot : null;
+  }
+  
+  /**
+   * Takes a new snapshot if there have been more locked reads than entries since the last write or snapshot. Has to be called
+   * holding the read lock.
+   */
+  private void updateSnapshotIfWorthwhile()
+  {
+    //
+    final long stamp = this.sequence.get();
+    final boolean isWriteInProgress = ( stamp & 1 ) != 0;
+    if ( !isWriteInProgress && this.numberOfLockedReads.incrementAndGet() > this.map.size() )
+    {
+      this.numberOfLockedReads.set( 0 );
+      this.snapshotReference.set( new Snapshot<K, V>( stamp, copyOf( this.map ) ) );
+    }
+  }
+  
+  /**
+   * Returns a copy of the given {@link Map} which resolves keys the same way
+   * 
+   * @param map
+   * @return
+   */
+  private static <K, V> Map<K, V> copyOf( Map<K, V> map )
+  {
+    //
+    Map<K, V> retmap = null;
+    
+    //
+    if ( map instanceof SortedMap )
+    {
+      retmap = new TreeMap<K, V>( (SortedMap<K, V>) map );
+    }
+    else if ( map instanceof IdentityHashMap )
+    {
+      retmap = new IdentityHashMap<K, V>( map );
+    }
+    else
+    {
+      retmap = new HashMap<K, V>( map );
+    }
+    
+    //
+    return retmap;
+  }
+  
+  @Override
+  public V get( Object key )
+  {
+    //
+    V retval = null;
+    
+    //
+    final Snapshot<K, V> snapshot = this.validSnapshot();
+    if ( snapshot != null )
+    {
+      retval = snapshot.map.get( key );
+    }
+    else
+    {
+      this.readLock.lock();
+      try
+      {
+        this.updateSnapshotIfWorthwhile();
+        retval = this.map.get( key );
+      }
+      finally
+      {
+        this.readLock.unlock();
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean containsKey( Object key )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    final Snapshot<K, V> snapshot = this.validSnapshot();
+    if ( snapshot != null )
+    {
+      retval = snapshot.map.containsKey( key );
+    }
+    else
+    {
+      this.readLock.lock();
+      try
+      {
+        this.updateSnapshotIfWorthwhile();
+        retval = this.map.containsKey( key );
+      }
+      finally
+      {
+        this.readLock.unlock();
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean containsValue( Object value )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    final Snapshot<K, V> snapshot = this.validSnapshot();
+    if ( snapshot != null )
+    {
+      retval = snapshot.map.containsValue( value );
+    }
+    else
+    {
+      this.readLock.lock();
+      try
+      {
+        this.updateSnapshotIfWorthwhile();
+        retval = this.map.containsValue( value );
+      }
+      finally
+      {
+        this.readLock.unlock();
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public int size()
+  {
+    //
+    final Snapshot<K, V> snapshot = this.validSnapshot();
+    return snapshot != null ? snapshot.map.size() : super.size();
+  }
+  
+  @Override
+  public boolean isEmpty()
+  {
+    return this.size() == 0;
+  }
+  
+}
@@ -0,0 +1,424 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map.decorator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.structure.collection.CollectionAbstract;
+import org.omnaest.utils.structure.collection.set.SetAbstract;
+import org.omnaest.utils.structure.element.factory.Factory;
+import org.omnaest.utils.structure.iterator.IteratorUtils;
+import org.omnaest.utils.structure.map.MapAbstract;
+
+/**
+ * {@link Map} which distributes its entries by the hash code of their keys over a fixed number of stripes. Each stripe is an
+ * underlying {@link Map} created by the given {@link Factory} and guarded by its own {@link ReentrantReadWriteLock} using a
+ * {@link LockingMapDecorator}, so operations on keys of different stripes never block each other.<br>
+ * <br>
+ * Operations on single keys lock only a single stripe. {@link #size()}, {@link #containsValue(Object)} and the like visit the
+ * stripes one after another, so they do not represent an atomic snapshot of the whole {@link Map}. The {@link #keySet()},
+ * {@link #values()} and {@link #entrySet()} views iterate over snapshots of the stripes.
+ * 
+ * @see LockingMapDecorator
+ * @author Omnaest
+ * @param <K>
+ * @param <V>
+ */
+public class StripedLockingMapDecorator<K, V> extends MapAbstract<K, V>
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final long                 serialVersionUID = 6023717064574271095L;
+  private static final int                  MAXIMUM_STRIPES  = 1 << 16;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final LockingMapDecorator<K, V>[] stripes;
+  private final int                         stripeMask;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Uses four times the number of stripes as {@link Runtime#availableProcessors()} returns
+   * 
+   * @see StripedLockingMapDecorator
+   * @param mapFactory
+   *          {@link Factory} for the underlying {@link Map} of each stripe
+   */
+  public StripedLockingMapDecorator( Factory<Map<K, V>> mapFactory )
+  {
+    this( mapFactory, Runtime.getRuntime().availableProcessors() * 4 );
+  }
+  
+  /**
+   * @see StripedLockingMapDecorator
+   * @param mapFactory
+   *          {@link Factory} for the underlying {@link Map} of each stripe
+   * @param numberOfStripes
+   *          : is rounded up to the next power of two
+   */
+  @SuppressWarnings("unchecked")
+  public StripedLockingMapDecorator( Factory<Map<K, V>> mapFactory, int numberOfStripes )
+  {
+    //
+    super();
+    Assert.isNotNull( mapFactory, "The map factory must not be null" );
+    
+    //
+    int stripeBits = 0;
+    while ( ( 1 << stripeBits ) < Math.min( Math.max( numberOfStripes, 1 ), MAXIMUM_STRIPES ) )
+    {
+      stripeBits++;
+    }
+    
+    //
+    @SuppressWarnings("unchecked")
+    final LockingMapDecorator<K, V>[] stripes = (LockingMapDecorator<K, V>[]) new LockingMapDecorator<?, ?>[1 << stripeBits];
+    this.stripes = stripes;
+    this.stripeMask = this.stripes.length - 1;
+    for ( int ii = 0; ii < this.stripes.length; ii++ )
+    {
+      this.stripes[ii] = new LockingMapDecorator<K, V>( mapFactory.newInstance(), new ReentrantReadWriteLock() );
+    }
+  }
+  
+  /**
+   * Returns the stripe responsible for the given key
+   * 
+   * @param key
+   * @return
+   */
+  private Map<K, V> stripeFor( Object key )
+  {
+    //
+    int hash = key != null ? key.hashCode() : 0;
+    hash ^= ( hash >>> 20 ) ^ ( hash >>> 12 );
+    hash ^= ( hash >>> 7 ) ^ ( hash >>> 4 );
+    
+    //
+    return this.stripes[hash & this.stripeMask];
+  }
+  
+  @Override
+  public V get( Object key )
+  {
+    return this.stripeFor( key ).get( key );
+  }
+  
+  @Override
+  public boolean containsKey( Object key )
+  {
+    return this.stripeFor( key ).containsKey( key );
+  }
+  
+  @Override
+  public V put( K key, V value )
+  {
+    return this.stripeFor( key ).put( key, value );
+  }
+  
+  @Override
+  public V remove( Object key )
+  {
+    return this.stripeFor( key ).remove( key );
+  }
+  
+  @Override
+  public int size()
+  {
+    //
+    int retval = 0;
+    
+    //
+    for ( Map<K, V> stripe : this.stripes )
+    {
+      retval += stripe.size();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean isEmpty()
+  {
+    //
+    boolean retval = true;
+    
+    //
+    for ( Map<K, V> stripe : this.stripes )
+    {
+      if ( !stripe.isEmpty() )
+      {
+        retval = false;
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean containsValue( Object value )
+  {
+    //
+    boolean retval = false;
+    
+    //
+    for ( Map<K, V> stripe : this.stripes )
+    {
+      if ( stripe.containsValue( value ) )
+      {
+        retval = true;
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public void clear()
+  {
+    for ( Map<K, V> stripe : this.stripes )
+    {
+      stripe.clear();
+    }
+  }
+  
+  @Override
+  public Set<K> keySet()
+  {
+    return new SetAbstract<K>()
+    {
+      private static final long serialVersionUID = -4373436283426466541L;
+      
+      @Override
+      public int size()
+      {
+        return StripedLockingMapDecorator.this.size();
+      }
+      
+      @Override
+      public boolean contains( Object o )
+      {
+        return StripedLockingMapDecorator.this.containsKey( o );
+      }
+      
+      @Override
+      public boolean add( K e )
+      {
+        throw new UnsupportedOperationException();
+      }
+      
+      @Override
+      public boolean remove( Object o )
+      {
+        return StripedLockingMapDecorator.this.stripeFor( o ).keySet().remove( o );
+      }
+      
+      @Override
+      public Iterator<K> iterator()
+      {
+        //
+        final List<Iterator<K>> iteratorList = new ArrayList<Iterator<K>>( StripedLockingMapDecorator.this.stripes.length );
+        for ( Map<K, V> stripe : StripedLockingMapDecorator.this.stripes )
+        {
+          iteratorList.add( stripe.keySet().iterator() );
+        }
+        
+        //
+        return IteratorUtils.chained( iteratorList );
+      }
+    };
+  }
+  
+  @Override
+  public Collection<V> values()
+  {
+    return new CollectionAbstract<V>()
+    {
+      private static final long serialVersionUID = 3355880722829232286L;
+      
+      @Override
+      public int size()
+      {
+        return StripedLockingMapDecorator.this.size();
+      }
+      
+      @Override
+      public boolean contains( Object o )
+      {
+        return StripedLockingMapDecorator.this.containsValue( o );
+      }
+      
+      @Override
+      public boolean add( V e )
+      {
+        throw new UnsupportedOperationException();
+      }
+      
+      @Override
+      public boolean remove( Object o )
+      {
+        //
+        boolean retval = false;
+        
+        //
+        for ( Map<K, V> stripe : StripedLockingMapDecorator.this.stripes )
+        {
+          if ( stripe.values().remove( o ) )
+          {
+            retval = true;
+            break;
+          }
+        }
+        
+        //
+        return retval;
+      }
+      
+      @Override
+      public Iterator<V> iterator()
+      {
+        //
+        final List<Iterator<V>> iteratorList = new ArrayList<Iterator<V>>( StripedLockingMapDecorator.this.stripes.length );
+        for ( Map<K, V> stripe : StripedLockingMapDecorator.this.stripes )
+        {
+          iteratorList.add( stripe.values().iterator() );
+        }
+        
+        //
+        return IteratorUtils.chained( iteratorList );
+      }
+    };
+  }
+  
+  @Override
+  public Set<Map.Entry<K, V>> entrySet()
+  {
+    return new SetAbstract<Map.Entry<K, V>>()
+    {
+      private static final long serialVersionUID = 8290306596212405565L;
+      
+      @Override
+      public int size()
+      {
+        return StripedLockingMapDecorator.this.size();
+      }
+      
+      @Override
+      public boolean contains( Object o )
+      {
+        return o instanceof Map.Entry
+               && StripedLockingMapDecorator.this.stripeFor( ( (Map.Entry<?, ?>) o ).getKey() ).entrySet().contains( o );
+      }
+      
+      @Override
+      public boolean add( Map.Entry<K, V> e )
+      {
+        throw new UnsupportedOperationException();
+      }
+      
+      @Override
+      public boolean remove( Object o )
+      {
+        return o instanceof Map.Entry
+               && StripedLockingMapDecorator.this.stripeFor( ( (Map.Entry<?, ?>) o ).getKey() ).entrySet().remove( o );
+      }
+      
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator()
+      {
+        //
+        final List<Iterator<Map.Entry<K, V>>> iteratorList = new ArrayList<Iterator<Map.Entry<K, V>>>(
+                                                                                                        StripedLockingMapDecorator.this.stripes.length );
+        for ( Map<K, V> stripe : StripedLockingMapDecorator.this.stripes )
+        {
+          iteratorList.add( stripe.entrySet().iterator() );
+        }
+        
+        //
+        return IteratorUtils.chained( iteratorList );
+      }
+    };
+  }
+  
+  @Override
+  public int hashCode()
+  {
+    //
+    int retval = 0;
+    
+    //
+    for ( Map.Entry<K, V> entry : this.entrySet() )
+    {
+      retval += entry.hashCode();
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public boolean equals( Object object )
+  {
+    //
+    boolean retval = object == this;
+    
+    //
+    if ( !retval && object instanceof Map )
+    {
+      //
+      final Map<?, ?> map = (Map<?, ?>) object;
+      retval = map.size() == this.size();
+      for ( Map.Entry<?, ?> entry : map.entrySet() )
+      {
+        //
+        if ( !retval )
+        {
+          break;
+        }
+        
+        //
+        final Object key = entry.getKey();
+        final Object value = entry.getValue();
+        final Map<K, V> stripe = this.stripeFor( key );
+        retval = value == null ? stripe.get( key ) == null && stripe.containsKey( key ) : value.equals( stripe.get( key ) );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Returns the number of stripes
+   * 
+   * @return
+   */
+  public int getNumberOfStripes()
+  {
+    return this.stripes.length;
+  }
+}
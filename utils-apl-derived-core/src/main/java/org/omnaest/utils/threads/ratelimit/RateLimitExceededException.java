@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.operation.decorator.OperationDecoratorRateLimited;
+
+/**
+ * Thrown if a {@link RateLimiter} did not provide a permit
+ * 
+ * @see OperationDecoratorRateLimited
+ * @see #getDurationToWaitInMilliseconds()
+ * @author Omnaest
+ */
+public class RateLimitExceededException extends RuntimeException
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long serialVersionUID             = -2907813418460393528L;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final long        durationToWaitInMilliseconds;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @param durationToWaitInNanoseconds
+   */
+  public RateLimitExceededException( long durationToWaitInNanoseconds )
+  {
+    this( durationToWaitInNanoseconds, null );
+  }
+  
+  /**
+   * @param durationToWaitInNanoseconds
+   * @param cause
+   */
+  public RateLimitExceededException( long durationToWaitInNanoseconds, Throwable cause )
+  {
+    super( "The rate limit has been exceeded. Please wait for " + toMillisecondsRoundedUp( durationToWaitInNanoseconds ) + " ms",
+           cause );
+    this.durationToWaitInMilliseconds = toMillisecondsRoundedUp( durationToWaitInNanoseconds );
+  }
+  
+  /**
+   * @return the duration until a permit has been available at the time of the rejection, rounded up to milliseconds
+   */
+  public long getDurationToWaitInMilliseconds()
+  {
+    return this.durationToWaitInMilliseconds;
+  }
+  
+  private static long toMillisecondsRoundedUp( long durationInNanoseconds )
+  {
+    final long nanosecondsPerMillisecond = TimeUnit.MILLISECONDS.toNanos( 1 );
+    return ( Math.max( 0, durationInNanoseconds ) + nanosecondsPerMillisecond - 1 ) / nanosecondsPerMillisecond;
+  }
+}
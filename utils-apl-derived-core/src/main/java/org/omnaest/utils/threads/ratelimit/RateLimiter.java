@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.operation.decorator.OperationDecoratorRateLimited;
+
+/**
+ * A {@link RateLimiter} hands out permits with a limited rate. All methods are thread safe and do not block other callers.
+ * 
+ * @see RateLimiterTokenBucket
+ * @see RateLimiterSlidingWindow
+ * @see RateLimiterPerKey
+ * @see OperationDecoratorRateLimited
+ * @author Omnaest
+ */
+public interface RateLimiter
+{
+  /**
+   * Acquires a permit and waits until it is available
+   * 
+   * @throws InterruptedException
+   */
+  public void acquire() throws InterruptedException;
+  
+  /**
+   * Acquires a permit only if it is available immediately
+   * 
+   * @return true if the permit has been acquired
+   */
+  public boolean tryAcquire();
+  
+  /**
+   * Acquires a permit if it is available within the given timeout and waits for it. If the permit would be available only after
+   * the timeout this returns false immediately.
+   * 
+   * @param timeout
+   * @param timeUnit
+   *          {@link TimeUnit}
+   * @return true if the permit has been acquired
+   * @throws InterruptedException
+   */
+  public boolean tryAcquire( long timeout, TimeUnit timeUnit ) throws InterruptedException;
+  
+  /**
+   * Returns the duration until the next permit is available or 0 if a permit is available now
+   * 
+   * @return duration in nanoseconds
+   */
+  public long getDurationToWaitInNanoseconds();
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Abstract {@link RateLimiter} which implements the acquire methods based on a {@link #reserve(long)} method. A reservation
+ * assigns the permit to the caller immediately, the caller then waits until the reserved point in time. So callers which have
+ * to wait are served in the order of their reservations.
+ * 
+ * @author Omnaest
+ */
+public abstract class RateLimiterAbstract implements RateLimiter
+{
+  /* ********************************************** Constants ********************************************** */
+  protected static final long NOT_RESERVED = -1;
+  
+  /* ********************************************** Variables ********************************************** */
+  protected final Ticker      ticker;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see RateLimiterAbstract
+   * @param ticker
+   *          {@link Ticker}, if null {@link Ticker#systemTicker()} is used
+   */
+  protected RateLimiterAbstract( Ticker ticker )
+  {
+    super();
+    this.ticker = ticker != null ? ticker : Ticker.systemTicker();
+  }
+  
+  /**
+   * Reserves a permit if it is available within the given maximum duration to wait
+   * 
+   * @param maximumDurationToWaitInNanoseconds
+   * @return the duration the caller has to wait for the reserved permit in nanoseconds or {@link #NOT_RESERVED}
+   */
+  protected abstract long reserve( long maximumDurationToWaitInNanoseconds );
+  
+  @Override
+  public void acquire() throws InterruptedException
+  {
+    waitFor( this.reserve( Long.MAX_VALUE ) );
+  }
+  
+  @Override
+  public boolean tryAcquire()
+  {
+    return this.reserve( 0 ) != NOT_RESERVED;
+  }
+  
+  @Override
+  public boolean tryAcquire( long timeout, TimeUnit timeUnit ) throws InterruptedException
+  {
+    //
+    final long durationToWaitInNanoseconds = this.reserve( Math.max( 0, timeUnit.toNanos( timeout ) ) );
+    final boolean retval = durationToWaitInNanoseconds != NOT_RESERVED;
+    
+    //
+    if ( retval )
+    {
+      waitFor( durationToWaitInNanoseconds );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Parks the current {@link Thread} for the given duration. In contrast to {@link Thread#sleep(long, int)} this does not wake up
+   * before the duration has elapsed, which would let the permit be used too early.
+   * 
+   * @param durationInNanoseconds
+   * @throws InterruptedException
+   */
+  private static void waitFor( long durationInNanoseconds ) throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + durationInNanoseconds;
+    for ( long remaining = durationInNanoseconds; remaining > 0; remaining = deadline - System.nanoTime() )
+    {
+      LockSupport.parkNanos( remaining );
+      if ( Thread.interrupted() )
+      {
+        throw new InterruptedException();
+      }
+    }
+  }
+}
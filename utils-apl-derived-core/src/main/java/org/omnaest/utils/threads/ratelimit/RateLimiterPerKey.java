@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.cache.BoundedCache;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+/**
+ * Holds a separate {@link RateLimiter} per key, e.g. per remote host or per user. The {@link RateLimiter}s are created lazily by
+ * a given {@link Factory} and are kept in a {@link BoundedCache}, so the number of keys is bounded. If a key is evicted and
+ * requested again, it gets a new {@link RateLimiter}, so only rarely used keys should be evicted.<br>
+ * <br>
+ * Keys must not be null.
+ * 
+ * <pre>
+ * RateLimiterPerKey&lt;String&gt; rateLimiterPerKey = new RateLimiterPerKey&lt;String&gt;( new Factory&lt;RateLimiter&gt;()
+ * {
+ *   public RateLimiter newInstance()
+ *   {
+ *     return new RateLimiterTokenBucket( 10, 1, TimeUnit.SECONDS, 5 );
+ *   }
+ * }, 10000 );
+ * rateLimiterPerKey.getRateLimiter( host ).acquire();
+ * </pre>
+ * 
+ * @author Omnaest
+ * @param <K>
+ */
+public class RateLimiterPerKey<K>
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Factory<RateLimiter>         rateLimiterFactory;
+  private final BoundedCache<K, RateLimiter> keyToRateLimiterCache;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see RateLimiterPerKey
+   * @param rateLimiterFactory
+   *          {@link Factory} for the {@link RateLimiter} of a new key
+   * @param maximumNumberOfKeys
+   */
+  public RateLimiterPerKey( Factory<RateLimiter> rateLimiterFactory, long maximumNumberOfKeys )
+  {
+    //
+    super();
+    Assert.isNotNull( rateLimiterFactory, "rateLimiterFactory must not be null" );
+    
+    //
+    this.rateLimiterFactory = rateLimiterFactory;
+    this.keyToRateLimiterCache = BoundedCache.<K, RateLimiter> builder().maximumSize( maximumNumberOfKeys ).build();
+  }
+  
+  /**
+   * Returns the {@link RateLimiter} for the given key and creates it if there is none yet
+   * 
+   * @param key
+   * @return {@link RateLimiter}
+   */
+  public RateLimiter getRateLimiter( K key )
+  {
+    return this.keyToRateLimiterCache.getOrCreate( key, this.rateLimiterFactory );
+  }
+  
+  /**
+   * @return the number of keys which currently have a {@link RateLimiter}
+   */
+  public int size()
+  {
+    return this.keyToRateLimiterCache.size();
+  }
+}
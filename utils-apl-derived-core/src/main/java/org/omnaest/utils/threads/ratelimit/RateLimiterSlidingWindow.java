@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.omnaest.utils.assertion.Assert;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Lock free sliding window {@link RateLimiter}, which hands out at most a given number of permits within any window of the given
+ * duration. In contrast to the {@link RateLimiterTokenBucket} the whole number of permits is available as burst.<br>
+ * <br>
+ * The points in time of the last permits are kept in a ring with one slot per permit, so a new permit is available when the
+ * permit one ring length before is older than the window. Permits are numbered by an {@link AtomicLong} sequence which is
+ * claimed by compare and set. The point in time of a permit is published after its sequence has been claimed, and a caller
+ * which needs the slot before it is published spins until it is.
+ * 
+ * <pre>
+ * RateLimiter rateLimiter = new RateLimiterSlidingWindow( 100, 1, TimeUnit.SECONDS );
+ * </pre>
+ * 
+ * @see RateLimiterTokenBucket
+ * @author Omnaest
+ */
+public class RateLimiterSlidingWindow extends RateLimiterAbstract
+{
+  /* ********************************************** Variables ********************************************** */
+  private final int             permitsPerWindow;
+  private final long            windowInNanoseconds;
+  private final AtomicLong      sequence = new AtomicLong();
+  private final AtomicLongArray slotToPermitTime;
+  private final AtomicLongArray slotToPublishedSequence;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see RateLimiterSlidingWindow
+   * @param permitsPerWindow
+   * @param window
+   * @param timeUnit
+   *          {@link TimeUnit} of the window
+   */
+  public RateLimiterSlidingWindow( int permitsPerWindow, long window, TimeUnit timeUnit )
+  {
+    this( permitsPerWindow, window, timeUnit, null );
+  }
+  
+  /**
+   * @see RateLimiterSlidingWindow
+   * @param permitsPerWindow
+   * @param window
+   * @param timeUnit
+   *          {@link TimeUnit} of the window
+   * @param ticker
+   *          {@link Ticker}, if null {@link Ticker#systemTicker()} is used
+   */
+  public RateLimiterSlidingWindow( int permitsPerWindow, long window, TimeUnit timeUnit, Ticker ticker )
+  {
+    //
+    super( ticker );
+    Assert.isTrue( permitsPerWindow > 0 && window > 0, "permitsPerWindow and window must be positive" );
+    
+    //
+    this.permitsPerWindow = permitsPerWindow;
+    this.windowInNanoseconds = timeUnit.toNanos( window );
+    this.slotToPermitTime = new AtomicLongArray( permitsPerWindow );
+    this.slotToPublishedSequence = new AtomicLongArray( permitsPerWindow );
+  }
+  
+  @Override
+  protected long reserve( long maximumDurationToWaitInNanoseconds )
+  {
+    while ( true )
+    {
+      //
+      final long sequence = this.sequence.get();
+      final int slot = (int) ( sequence % this.permitsPerWindow );
+      final long now = this.ticker.read();
+      
+      //
+      long permitTime = now;
+      if ( sequence >= this.permitsPerWindow )
+      {
+        //
+        if ( this.slotToPublishedSequence.get( slot ) != sequence - this.permitsPerWindow + 1 )
+        {
+          Thread.yield();
+          continue;
+        }
+        
+        //
+        final long permitTimeAvailable = this.slotToPermitTime.get( slot ) + this.windowInNanoseconds;
+        if ( permitTimeAvailable - now > 0 )
+        {
+          permitTime = permitTimeAvailable;
+        }
+      }
+      
+      //
+      final long durationToWait = permitTime - now;
+      if ( durationToWait > maximumDurationToWaitInNanoseconds )
+      {
+        return NOT_RESERVED;
+      }
+      if ( this.sequence.compareAndSet( sequence, sequence + 1 ) )
+      {
+        //
+        final long nowAfterReservation = this.ticker.read();
+        this.slotToPermitTime.set( slot, permitTime - nowAfterReservation > 0 ? permitTime : nowAfterReservation );
+        this.slotToPublishedSequence.set( slot, sequence + 1 );
+        
+        //
+        return durationToWait;
+      }
+    }
+  }
+  
+  @Override
+  public long getDurationToWaitInNanoseconds()
+  {
+    //
+    long retval = 0;
+    
+    //
+    final long sequence = this.sequence.get();
+    if ( sequence >= this.permitsPerWindow )
+    {
+      final int slot = (int) ( sequence % this.permitsPerWindow );
+      retval = Math.max( 0, this.slotToPermitTime.get( slot ) + this.windowInNanoseconds - this.ticker.read() );
+    }
+    
+    //
+    return retval;
+  }
+  
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append( "RateLimiterSlidingWindow [permitsPerWindow=" );
+    builder.append( this.permitsPerWindow );
+    builder.append( ", windowInNanoseconds=" );
+    builder.append( this.windowInNanoseconds );
+    builder.append( "]" );
+    return builder.toString();
+  }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.omnaest.utils.assertion.Assert;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Lock free token bucket {@link RateLimiter}. The bucket is refilled with a given number of permits per period and holds at most
+ * a given burst of permits, which is also the initial content.<br>
+ * <br>
+ * Instead of counting tokens the bucket is represented by the theoretical arrival time of the next permit (generic cell rate
+ * algorithm): every permit moves this point in time forward by one emission interval and a permit is available as long as it is
+ * not more than burst intervals ahead of the current time. This is a single {@link AtomicLong} updated by compare and set, so
+ * the limit holds exactly for any number of concurrent callers.<br>
+ * <br>
+ * The emission interval is period divided by permits in whole nanoseconds.
+ * 
+ * <pre>
+ * RateLimiter rateLimiter = new RateLimiterTokenBucket( 100, 1, TimeUnit.SECONDS, 10 );
+ * </pre>
+ * 
+ * @see RateLimiterSlidingWindow
+ * @author Omnaest
+ */
+public class RateLimiterTokenBucket extends RateLimiterAbstract
+{
+  /* ********************************************** Variables ********************************************** */
+  private final long       emissionIntervalInNanoseconds;
+  private final long       burstToleranceInNanoseconds;
+  private final AtomicLong theoreticalArrivalTime;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see RateLimiterTokenBucket
+   * @param permitsPerPeriod
+   * @param period
+   * @param timeUnit
+   *          {@link TimeUnit} of the period
+   * @param burst
+   *          maximum number of permits which are available at once
+   */
+  public RateLimiterTokenBucket( long permitsPerPeriod, long period, TimeUnit timeUnit, long burst )
+  {
+    this( permitsPerPeriod, period, timeUnit, burst, null );
+  }
+  
+  /**
+   * @see RateLimiterTokenBucket
+   * @param permitsPerPeriod
+   * @param period
+   * @param timeUnit
+   *          {@link TimeUnit} of the period
+   * @param burst
+   *          maximum number of permits which are available at once
+   * @param ticker
+   *          {@link Ticker}, if null {@link Ticker#systemTicker()} is used
+   */
+  public RateLimiterTokenBucket( long permitsPerPeriod, long period, TimeUnit timeUnit, long burst, Ticker ticker )
+  {
+    //
+    super( ticker );
+    Assert.isTrue( permitsPerPeriod > 0 && period > 0 && burst > 0, "permitsPerPeriod, period and burst must be positive" );
+    
+    //
+    this.emissionIntervalInNanoseconds = Math.max( 1, timeUnit.toNanos( period ) / permitsPerPeriod );
+    this.burstToleranceInNanoseconds = this.emissionIntervalInNanoseconds * burst;
+    this.theoreticalArrivalTime = new AtomicLong( this.ticker.read() );
+  }
+  
+  @Override
+  protected long reserve( long maximumDurationToWaitInNanoseconds )
+  {
+    while ( true )
+    {
+      //
+      final long theoreticalArrivalTime = this.theoreticalArrivalTime.get();
+      final long now = this.ticker.read();
+      final long theoreticalArrivalTimeNext = ( theoreticalArrivalTime - now > 0 ? theoreticalArrivalTime : now )
+                                              + this.emissionIntervalInNanoseconds;
+      final long durationToWait = Math.max( 0, theoreticalArrivalTimeNext - now - this.burstToleranceInNanoseconds );
+      
+      //
+      if ( durationToWait > maximumDurationToWaitInNanoseconds )
+      {
+        return NOT_RESERVED;
+      }
+      if ( this.theoreticalArrivalTime.compareAndSet( theoreticalArrivalTime, theoreticalArrivalTimeNext ) )
+      {
+        return durationToWait;
+      }
+    }
+  }
+  
+  @Override
+  public long getDurationToWaitInNanoseconds()
+  {
+    final long theoreticalArrivalTime = this.theoreticalArrivalTime.get();
+    final long now = this.ticker.read();
+    return Math.max( 0, ( theoreticalArrivalTime - now > 0 ? theoreticalArrivalTime : now ) + this.emissionIntervalInNanoseconds
+                        - now - this.burstToleranceInNanoseconds );
+  }
+  
+  @Override
+  public String toString()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append( "RateLimiterTokenBucket [emissionIntervalInNanoseconds=" );
+    builder.append( this.emissionIntervalInNanoseconds );
+    builder.append( ", burstToleranceInNanoseconds=" );
+    builder.append( this.burstToleranceInNanoseconds );
+    builder.append( "]" );
+    return builder.toString();
+  }
+}
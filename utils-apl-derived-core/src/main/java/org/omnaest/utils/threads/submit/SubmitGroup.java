@@ -46,4 +46,13 @@ public interface SubmitGroup<T> extends Serializable
    */
   public Waiter<T> doWait();
   
+  /**
+   * Cancels all tasks which are not done yet. Cancelled tasks do not contribute any result.
+   * 
+   * @param mayInterruptIfRunning
+   *          true if the threads executing unfinished tasks should be interrupted
+   * @return this
+   */
+  public SubmitGroup<T> cancelUnfinishedTasks( boolean mayInterruptIfRunning );
+  
 }
@@ -18,9 +18,12 @@ package org.omnaest.utils.threads.submit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.omnaest.utils.events.exception.ExceptionHandler;
@@ -34,15 +37,55 @@ import org.omnaest.utils.structure.element.ObjectUtils;
 class SubmitGroupImpl<T> implements SubmitGroup<T>
 {
   /* ************************************************** Constants *************************************************** */
-  private static final long      serialVersionUID = 1369165651238494278L;
+  private static final long                  serialVersionUID    = 1369165651238494278L;
+  private static final long                  NO_TIMEOUT          = -1;
   
   /* ************************************** Variables / State (internal/hiding) ************************************* */
-  private List<Future<T>>        futureList       = new ArrayList<Future<T>>();
+  private final List<SubmitTask<T>>          submitTaskList      = new ArrayList<SubmitTask<T>>();
+  private final BlockingQueue<SubmitTask<T>> completionQueue     = new LinkedBlockingQueue<SubmitTask<T>>();
+  private int                                numberOfCompletions = 0;
+  private int                                numberOfResults     = 0;
   
   /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
-  private final ExecutorService  executorService;
-  private final ExceptionHandler exceptionHandler;
-  private final Collection<T>    resultCollection;
+  private final ExecutorService              executorService;
+  private final ExceptionHandler             exceptionHandler;
+  private final Collection<T>                resultCollection;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link FutureTask} which puts itself into the completion queue of its {@link SubmitGroup} as soon as it is done, which allows
+   * to consume the results in the order of their completion
+   * 
+   * @author Omnaest
+   * @param <T>
+   */
+  private static class SubmitTask<T> extends FutureTask<T>
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final BlockingQueue<SubmitTask<T>> completionQueue;
+    private boolean                            resolved = false;
+    private T                                  result   = null;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see SubmitTask
+     * @param callable
+     * @param completionQueue
+     */
+    SubmitTask( Callable<T> callable, BlockingQueue<SubmitTask<T>> completionQueue )
+    {
+      super( callable );
+      this.completionQueue = completionQueue;
+    }
+    
+    @Override
+    protected void done()
+    {
+      this.completionQueue.add( this );
+    }
+  }
   
   /* *************************************************** Methods **************************************************** */
   
@@ -68,8 +111,11 @@ class SubmitGroupImpl<T> implements SubmitGroup<T>
   @Override
   public SubmitGroup<T> submit( Callable<T> callable )
   {
-    final Future<T> future = this.executorService.submit( callable );
-    this.futureList.add( future );
+    final SubmitTask<T> submitTask = new SubmitTask<T>( callable, this.completionQueue );
+    this.executorService.execute( submitTask );
+    
+    //a rejected task would never complete, so it is only recorded after it has been accepted
+    this.submitTaskList.add( submitTask );
     return this;
   }
   
@@ -83,107 +129,177 @@ class SubmitGroupImpl<T> implements SubmitGroup<T>
     return this;
   }
   
+  @Override
+  public SubmitGroup<T> cancelUnfinishedTasks( boolean mayInterruptIfRunning )
+  {
+    for ( SubmitTask<T> submitTask : this.submitTaskList )
+    {
+      if ( !submitTask.isDone() )
+      {
+        submitTask.cancel( mayInterruptIfRunning );
+      }
+    }
+    return this;
+  }
+  
   @Override
   public Waiter<T> doWait()
   {
-    final ExceptionHandler exceptionHandler = this.exceptionHandler;
-    final List<Future<T>> futureList = this.futureList;
-    final Collection<T> resultCollection = this.resultCollection;
+    final SubmitGroupImpl<T> submitGroup = this;
     return new Waiter<T>()
     {
       private static final long serialVersionUID = -7431148600723570701L;
       
-      private final Reducer<T>  reducer          = new ReducerImpl<T>( resultCollection );
+      private final Reducer<T>  reducer          = new ReducerImpl<T>( submitGroup.resultCollection );
+      private ResultHandler<T>  resultHandler    = null;
       
       @Override
       public Reducer<T> untilAllTasksAreDone()
       {
-        resultCollection.clear();
-        for ( Future<T> future : futureList )
-        {
-          this.tryResolveValue( exceptionHandler, future, resultCollection );
-        }
+        submitGroup.awaitResults( Integer.MAX_VALUE, NO_TIMEOUT, this.resultHandler );
         return this.reducer;
       }
       
       @Override
       public Reducer<T> anAmountOfTime( int amount, TimeUnit timeUnit )
       {
-        try
-        {
-          Thread.sleep( TimeUnit.MILLISECONDS.convert( amount, timeUnit ) );
-        }
-        catch ( InterruptedException e )
-        {
-          exceptionHandler.handleException( e );
-        }
+        submitGroup.awaitResults( Integer.MAX_VALUE, timeUnit.toNanos( amount ), this.resultHandler );
         return this.reducer;
       }
       
       @Override
       public Reducer<T> untilThePercentageOfTasksAreDone( double ratio )
       {
-        final int resultSizeMax = futureList.size();
-        resultCollection.clear();
-        for ( Future<T> future : futureList )
-        {
-          //
-          this.tryResolveValue( exceptionHandler, future, resultCollection );
-          
-          //
-          final int resultSize = resultCollection.size();
-          double currentRatio = resultSize * 1.0 / resultSizeMax;
-          if ( currentRatio >= ratio )
-          {
-            break;
-          }
-        }
+        final int numberOfTasks = (int) Math.ceil( submitGroup.submitTaskList.size() * ratio );
+        submitGroup.awaitResults( numberOfTasks, NO_TIMEOUT, this.resultHandler );
         return this.reducer;
       }
       
       @Override
       public Reducer<T> untilTheNumberOfTasksAreDone( int numberOfTasks )
       {
-        resultCollection.clear();
-        for ( Future<T> future : futureList )
-        {
-          //
-          this.tryResolveValue( exceptionHandler, future, resultCollection );
-          
-          //
-          final int resultSize = resultCollection.size();
-          if ( resultSize >= numberOfTasks )
-          {
-            break;
-          }
-        }
+        submitGroup.awaitResults( numberOfTasks, NO_TIMEOUT, this.resultHandler );
+        return this.reducer;
+      }
+      
+      @Override
+      public Reducer<T> untilTheNumberOfTasksAreDone( int numberOfTasks, int amount, TimeUnit timeUnit )
+      {
+        submitGroup.awaitResults( numberOfTasks, timeUnit.toNanos( amount ), this.resultHandler );
         return this.reducer;
       }
       
-      private void tryResolveValue( ExceptionHandler exceptionHandler, Future<T> future, Collection<T> resultCollection )
+      @Override
+      public Waiter<T> withResultHandler( ResultHandler<T> resultHandler )
+      {
+        this.resultHandler = resultHandler;
+        return this;
+      }
+    };
+  }
+  
+  /**
+   * Consumes completed tasks in the order of their completion until the given number of results is available, all tasks are
+   * done or the timeout has elapsed. Afterwards the result {@link Collection} contains all results resolved so far in the order
+   * the tasks were submitted.
+   * 
+   * @param numberOfResults
+   * @param timeoutInNanos
+   *          {@value #NO_TIMEOUT} to wait without a deadline
+   * @param resultHandler
+   *          {@link Waiter.ResultHandler} or null
+   */
+  private void awaitResults( int numberOfResults, long timeoutInNanos, Waiter.ResultHandler<T> resultHandler )
+  {
+    //
+    final long deadline = System.nanoTime() + timeoutInNanos;
+    try
+    {
+      while ( this.numberOfResults < numberOfResults && this.numberOfCompletions < this.submitTaskList.size() )
       {
-        try
+        //
+        SubmitTask<T> submitTask = null;
+        if ( timeoutInNanos == NO_TIMEOUT )
         {
-          for ( boolean done = false; !done; )
+          submitTask = this.completionQueue.take();
+        }
+        else
+        {
+          final long remainingNanos = deadline - System.nanoTime();
+          if ( remainingNanos <= 0 )
           {
-            try
-            {
-              final T result = future.get();
-              resultCollection.add( result );
-              done = true;
-            }
-            catch ( InterruptedException e )
-            {
-              exceptionHandler.handleException( e );
-            }
+            break;
           }
+          submitTask = this.completionQueue.poll( remainingNanos, TimeUnit.NANOSECONDS );
         }
-        catch ( Exception e )
+        
+        //
+        if ( submitTask != null )
         {
-          exceptionHandler.handleException( e );
+          this.resolve( submitTask, resultHandler );
         }
       }
-      
-    };
+    }
+    catch ( InterruptedException e )
+    {
+      Thread.currentThread().interrupt();
+      this.handleException( e );
+    }
+    
+    //
+    this.resultCollection.clear();
+    for ( SubmitTask<T> submitTask : this.submitTaskList )
+    {
+      if ( submitTask.resolved )
+      {
+        this.resultCollection.add( submitTask.result );
+      }
+    }
+  }
+  
+  /**
+   * @param submitTask
+   * @param resultHandler
+   */
+  private void resolve( SubmitTask<T> submitTask, Waiter.ResultHandler<T> resultHandler )
+  {
+    //
+    this.numberOfCompletions++;
+    if ( !submitTask.isCancelled() )
+    {
+      try
+      {
+        //
+        submitTask.result = submitTask.get();
+        submitTask.resolved = true;
+        this.numberOfResults++;
+        
+        //
+        if ( resultHandler != null )
+        {
+          resultHandler.handleResult( submitTask.result );
+        }
+      }
+      catch ( InterruptedException e )
+      {
+        Thread.currentThread().interrupt();
+        this.handleException( e );
+      }
+      catch ( ExecutionException e )
+      {
+        this.handleException( e );
+      }
+    }
+  }
+  
+  /**
+   * @param e
+   */
+  private void handleException( Exception e )
+  {
+    if ( this.exceptionHandler != null )
+    {
+      this.exceptionHandler.handleException( e );
+    }
   }
 }
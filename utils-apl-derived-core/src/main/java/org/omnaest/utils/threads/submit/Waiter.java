@@ -26,7 +26,27 @@ import java.util.concurrent.TimeUnit;
  */
 public interface Waiter<T> extends Serializable
 {
+  /* ********************************************** Classes/Interfaces ********************************************** */
   /**
+   * Handler which is called for every result as soon as it arrives, which allows to reduce the results incrementally. The results
+   * are passed in the order of their completion and each result is passed only once per {@link SubmitGroup}.
+   * 
+   * @author Omnaest
+   * @param <T>
+   */
+  public static interface ResultHandler<T>
+  {
+    /**
+     * @param result
+     */
+    public void handleResult( T result );
+  }
+  
+  /* *************************************************** Methods **************************************************** */
+  
+  /**
+   * Waits until all tasks are done or the given amount of time has passed, whichever comes first
+   * 
    * @param amount
    * @param timeUnit
    *          {@link TimeUnit}
@@ -40,15 +60,40 @@ public interface Waiter<T> extends Serializable
   public Reducer<T> untilAllTasksAreDone();
   
   /**
+   * Waits until the given number of tasks have completed successfully, independent of the order they were submitted in
+   * 
    * @param numberOfTasks
    * @return this
    */
   public Reducer<T> untilTheNumberOfTasksAreDone( int numberOfTasks );
   
   /**
+   * Waits until the given number of tasks have completed successfully or the given amount of time has passed, whichever comes
+   * first
+   * 
+   * @param numberOfTasks
+   * @param amount
+   * @param timeUnit
+   *          {@link TimeUnit}
+   * @return this
+   */
+  public Reducer<T> untilTheNumberOfTasksAreDone( int numberOfTasks, int amount, TimeUnit timeUnit );
+  
+  /**
+   * Waits until the given ratio of tasks have completed successfully, independent of the order they were submitted in
+   * 
    * @param ratio
    * @return this
    */
   public Reducer<T> untilThePercentageOfTasksAreDone( double ratio );
   
+  /**
+   * Sets a {@link ResultHandler} which is called for each result as soon as it arrives
+   * 
+   * @param resultHandler
+   *          {@link ResultHandler}
+   * @return this
+   */
+  public Waiter<T> withResultHandler( ResultHandler<T> resultHandler );
+  
 }
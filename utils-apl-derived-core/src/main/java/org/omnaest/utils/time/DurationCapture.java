@@ -15,6 +15,9 @@
  ******************************************************************************/
 package org.omnaest.utils.time;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -34,7 +37,15 @@ import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.element.converter.ElementConverterObjectToString;
 
 /**
- * A {@link DurationCapture} will measure time intervals.
+ * A {@link DurationCapture} will measure time intervals.<br>
+ * <br>
+ * By default only the sum of the durations in milliseconds is kept per {@link Interval}. After
+ * {@link #enableLatencyHistogramRecording()} every single duration is recorded in nanoseconds into a {@link LatencyRecorder}
+ * per {@link Interval}, which allows to retrieve percentiles via {@link #getLatencyHistogram(Object)} and
+ * {@link #getIntervalLatencyHistogram(Object)}. The {@link LatencyRecorder}s use a constant amount of memory per recording
+ * {@link Thread} and can be used by multiple {@link Thread}s concurrently via {@link #recordDuration(Object, long, TimeUnit)}. The
+ * Java serialization keeps the recorded durations as {@link LatencyHistogram}, the XML serialization only keeps the durations
+ * captured without {@link LatencyRecorder}.
  * 
  * @see #newInstance()
  * @see DurationCaptureTypeFactory
@@ -45,13 +56,14 @@ import org.omnaest.utils.structure.element.converter.ElementConverterObjectToStr
 public class DurationCapture implements Serializable
 {
   /* ********************************************** Constants ********************************************** */
-  public static final Object            INTERVAL_DEFAULTKEY      = "DEFAULT";
+  public static final Object            INTERVAL_DEFAULTKEY       = "DEFAULT";
   
-  private static final long             serialVersionUID         = 6433066272269919387L;
-  private static final String           DEFAULT_LINESEPARATOR    = System.getProperty( "line.separator" );
+  private static final long             serialVersionUID          = 6433066272269919387L;
+  private static final String           DEFAULT_LINESEPARATOR     = System.getProperty( "line.separator" );
   
   /* ********************************************** Variables ********************************************** */
-  protected final Map<Object, Interval> intervalKeyToIntervalMap = new ConcurrentHashMap<Object, DurationCapture.Interval>();
+  protected final Map<Object, Interval> intervalKeyToIntervalMap  = new ConcurrentHashMap<Object, DurationCapture.Interval>();
+  protected volatile boolean            latencyHistogramRecording = false;
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   /**
@@ -63,13 +75,16 @@ public class DurationCapture implements Serializable
   public static class Interval implements Serializable
   {
     /* ************************************************** Constants *************************************************** */
-    private static final long serialVersionUID = -2883159459488305456L;
+    private static final long                    serialVersionUID = -2883159459488305456L;
     /* ********************************************** Variables ********************************************** */
-    protected Object          key              = null;
-    protected long            duration         = 0l;
+    protected Object                             key              = null;
+    protected long                               duration         = 0l;
     
-    protected long            startTime        = 0;
-    protected long            stopTime         = 0;
+    protected long                               startTime        = 0;
+    protected long                               stopTime         = 0;
+    protected long                               startTimeInNanos = 0;
+    
+    protected transient volatile LatencyRecorder latencyRecorder  = null;
     
     /* ********************************************** Methods ********************************************** */
     
@@ -88,6 +103,7 @@ public class DurationCapture implements Serializable
     {
       //
       this.startTime = System.currentTimeMillis();
+      this.startTimeInNanos = System.nanoTime();
     }
     
     /**
@@ -99,7 +115,35 @@ public class DurationCapture implements Serializable
       this.stopTime = System.currentTimeMillis();
       
       //
-      this.calculateDurationInMilliseconds();
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      if ( latencyRecorder != null )
+      {
+        latencyRecorder.recordValue( System.nanoTime() - this.startTimeInNanos );
+      }
+      else
+      {
+        this.calculateDurationInMilliseconds();
+      }
+    }
+    
+    /**
+     * Records a duration which has been measured outside of this {@link Interval}. Without a {@link LatencyRecorder} the
+     * duration is added with millisecond resolution.
+     * 
+     * @param durationInNanoseconds
+     */
+    public void recordDuration( long durationInNanoseconds )
+    {
+      //
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      if ( latencyRecorder != null )
+      {
+        latencyRecorder.recordValue( durationInNanoseconds );
+      }
+      else
+      {
+        this.duration += TimeUnit.NANOSECONDS.toMillis( durationInNanoseconds );
+      }
     }
     
     /**
@@ -107,7 +151,52 @@ public class DurationCapture implements Serializable
      */
     public void reset()
     {
+      //
       this.duration = 0;
+      
+      //
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      if ( latencyRecorder != null )
+      {
+        latencyRecorder.reset();
+      }
+    }
+    
+    /**
+     * Creates the {@link LatencyRecorder} of this {@link Interval} if it does not exist yet
+     */
+    protected void enableLatencyRecorder()
+    {
+      if ( this.latencyRecorder == null )
+      {
+        synchronized ( this )
+        {
+          if ( this.latencyRecorder == null )
+          {
+            this.latencyRecorder = new LatencyRecorder();
+          }
+        }
+      }
+    }
+    
+    /**
+     * @see LatencyRecorder#getHistogram()
+     * @return {@link LatencyHistogram} or null if no {@link LatencyRecorder} is enabled
+     */
+    public LatencyHistogram getLatencyHistogram()
+    {
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      return latencyRecorder != null ? latencyRecorder.getHistogram() : null;
+    }
+    
+    /**
+     * @see LatencyRecorder#getIntervalHistogram()
+     * @return {@link LatencyHistogram} or null if no {@link LatencyRecorder} is enabled
+     */
+    public LatencyHistogram getIntervalLatencyHistogram()
+    {
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      return latencyRecorder != null ? latencyRecorder.getIntervalHistogram() : null;
     }
     
     /**
@@ -133,7 +222,11 @@ public class DurationCapture implements Serializable
     
     public long getDurationInMilliseconds()
     {
-      return this.duration;
+      //
+      final LatencyRecorder latencyRecorder = this.latencyRecorder;
+      
+      //
+      return this.duration + ( latencyRecorder != null ? TimeUnit.NANOSECONDS.toMillis( latencyRecorder.getTotalValue() ) : 0 );
     }
     
     public Object getKey()
@@ -141,6 +234,41 @@ public class DurationCapture implements Serializable
       return this.key;
     }
     
+    /**
+     * Writes the durations of the {@link LatencyRecorder} as {@link LatencyHistogram} snapshot
+     * 
+     * @param objectOutputStream
+     * @throws IOException
+     */
+    private void writeObject( ObjectOutputStream objectOutputStream ) throws IOException
+    {
+      objectOutputStream.defaultWriteObject();
+      objectOutputStream.writeObject( this.getLatencyHistogram() );
+    }
+    
+    /**
+     * Recreates the {@link LatencyRecorder} from the {@link LatencyHistogram} snapshot
+     * 
+     * @see #writeObject(ObjectOutputStream)
+     * @param objectInputStream
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject( ObjectInputStream objectInputStream ) throws IOException, ClassNotFoundException
+    {
+      //
+      objectInputStream.defaultReadObject();
+      
+      //
+      final LatencyHistogram latencyHistogram = (LatencyHistogram) objectInputStream.readObject();
+      if ( latencyHistogram != null )
+      {
+        final LatencyRecorder latencyRecorder = new LatencyRecorder();
+        latencyRecorder.add( latencyHistogram );
+        this.latencyRecorder = latencyRecorder;
+      }
+    }
+    
   }
   
   /**
@@ -153,11 +281,12 @@ public class DurationCapture implements Serializable
   protected static class IntervalStatistic implements Serializable
   {
     /* ************************************************** Constants *************************************************** */
-    private static final long serialVersionUID       = -5081536693492826365L;
+    private static final long  serialVersionUID       = -5081536693492826365L;
     /* ********************************************** Variables ********************************************** */
-    protected Interval        interval               = null;
-    protected long            durationInMilliseconds = 0;
-    protected double          durationPercentage     = 0.0;
+    protected Interval         interval               = null;
+    protected long             durationInMilliseconds = 0;
+    protected double           durationPercentage     = 0.0;
+    protected LatencyHistogram latencyHistogram       = null;
     
     /* ********************************************** Methods ********************************************** */
     public Interval getInterval()
@@ -194,6 +323,16 @@ public class DurationCapture implements Serializable
     {
       this.durationInMilliseconds = durationInMilliseconds;
     }
+    
+    public LatencyHistogram getLatencyHistogram()
+    {
+      return this.latencyHistogram;
+    }
+    
+    public void setLatencyHistogram( LatencyHistogram latencyHistogram )
+    {
+      this.latencyHistogram = latencyHistogram;
+    }
   }
   
   /* ********************************************** Methods ********************************************** */
@@ -238,18 +377,102 @@ public class DurationCapture implements Serializable
     }
     
     //
-    if ( !this.intervalKeyToIntervalMap.containsKey( key ) )
+    retval = this.intervalKeyToIntervalMap.get( key );
+    if ( retval == null )
     {
-      this.intervalKeyToIntervalMap.put( key, new Interval().setKey( key ) );
+      synchronized ( this.intervalKeyToIntervalMap )
+      {
+        retval = this.intervalKeyToIntervalMap.get( key );
+        if ( retval == null )
+        {
+          retval = new Interval().setKey( key );
+          this.intervalKeyToIntervalMap.put( key, retval );
+        }
+      }
     }
     
     //
-    retval = this.intervalKeyToIntervalMap.get( key );
+    if ( this.latencyHistogramRecording )
+    {
+      retval.enableLatencyRecorder();
+    }
     
     //
     return retval;
   }
   
+  /**
+   * Records a duration which has been measured by the caller for the given interval key. This allows to measure the same interval
+   * key within multiple {@link Thread}s concurrently, if {@link #enableLatencyHistogramRecording()} has been invoked before.
+   * 
+   * @param intervalKey
+   * @param duration
+   * @param timeUnit
+   *          {@link TimeUnit}
+   * @return this
+   */
+  public DurationCapture recordDuration( Object intervalKey, long duration, TimeUnit timeUnit )
+  {
+    //
+    this.determineInterval( intervalKey ).recordDuration( timeUnit.toNanos( duration ) );
+    
+    //
+    return this;
+  }
+  
+  /**
+   * Switches to the recording of every single duration in nanoseconds into a {@link LatencyRecorder} per {@link Interval}
+   * 
+   * @see DurationCapture
+   * @return this
+   */
+  public DurationCapture enableLatencyHistogramRecording()
+  {
+    //
+    this.latencyHistogramRecording = true;
+    for ( Interval interval : this.intervalKeyToIntervalMap.values() )
+    {
+      interval.enableLatencyRecorder();
+    }
+    
+    //
+    return this;
+  }
+  
+  /**
+   * @see #enableLatencyHistogramRecording()
+   * @return
+   */
+  public boolean isLatencyHistogramRecording()
+  {
+    return this.latencyHistogramRecording;
+  }
+  
+  /**
+   * Returns a {@link LatencyHistogram} of all durations recorded for the given interval key since the last reset
+   * 
+   * @see #enableLatencyHistogramRecording()
+   * @param intervalKey
+   * @return {@link LatencyHistogram} in nanoseconds or null if {@link #enableLatencyHistogramRecording()} has not been invoked
+   */
+  public LatencyHistogram getLatencyHistogram( Object intervalKey )
+  {
+    return this.determineInterval( intervalKey ).getLatencyHistogram();
+  }
+  
+  /**
+   * Returns a {@link LatencyHistogram} of all durations recorded for the given interval key since the last invocation of this
+   * method or the last reset
+   * 
+   * @see #enableLatencyHistogramRecording()
+   * @param intervalKey
+   * @return {@link LatencyHistogram} in nanoseconds or null if {@link #enableLatencyHistogramRecording()} has not been invoked
+   */
+  public LatencyHistogram getIntervalLatencyHistogram( Object intervalKey )
+  {
+    return this.determineInterval( intervalKey ).getIntervalLatencyHistogram();
+  }
+  
   /**
    * Starts the measurement of time.
    * 
@@ -374,6 +597,7 @@ public class DurationCapture implements Serializable
         intervalStatistic.setDurationPercentage( durationPercentage );
         intervalStatistic.setInterval( interval );
         intervalStatistic.setDurationInMilliseconds( durationInMilliseconds );
+        intervalStatistic.setLatencyHistogram( interval.getLatencyHistogram() );
       }
       
       //
@@ -622,7 +846,7 @@ public class DurationCapture implements Serializable
     final int maximumWidth = Math.max( 20, StringUtils.maximumWidth( ListUtils.convert( intervalStatisticMap.keySet(),
                                                                                         new ElementConverterObjectToString() ) ) );
     final String lineSeparator = StringUtils.repeat( "-", maximumWidth + 35 ) + DEFAULT_LINESEPARATOR;
-    final String ROW_FORMAT_STRING = "%-" + maximumWidth + "s : %5d ms (%6.2f%%) %s %n";
+    final String ROW_FORMAT_STRING = "%-" + maximumWidth + "s : %5d ms (%6.2f%%) %s%s %n";
     
     //
     final StringBuffer sb = new StringBuffer();
@@ -636,10 +860,12 @@ public class DurationCapture implements Serializable
       long durationInMilliseconds = intervalStatistic.getDurationInMilliseconds();
       double durationPercentage = intervalStatistic.getDurationPercentage();
       String percentageBar = StringUtils.percentageBar( durationPercentage * 0.01, 12 );
+      String latencyPercentiles = formatLatencyPercentiles( intervalStatistic.getLatencyHistogram() );
       
       //
       sb.append( lineSeparator );
-      sb.append( String.format( ROW_FORMAT_STRING, intervalKeyAsString, durationInMilliseconds, durationPercentage, percentageBar ) );
+      sb.append( String.format( ROW_FORMAT_STRING, intervalKeyAsString, durationInMilliseconds, durationPercentage, percentageBar,
+                                latencyPercentiles ) );
       
       //
       intervalStatisticMap.remove( DurationCapture.INTERVAL_DEFAULTKEY );
@@ -659,10 +885,11 @@ public class DurationCapture implements Serializable
         long durationInMilliseconds = intervalStatistic.getDurationInMilliseconds();
         double durationPercentage = intervalStatistic.getDurationPercentage();
         String percentageBar = StringUtils.percentageBar( durationPercentage * 0.01, 12 );
+        String latencyPercentiles = formatLatencyPercentiles( intervalStatistic.getLatencyHistogram() );
         
         //
         sb.append( String.format( ROW_FORMAT_STRING, intervalKeyAsString, durationInMilliseconds, durationPercentage,
-                                  percentageBar ) );
+                                  percentageBar, latencyPercentiles ) );
         
         //
         intervalDurationTimeSum += intervalStatistic.getDurationInMilliseconds();
@@ -684,6 +911,29 @@ public class DurationCapture implements Serializable
     return retval;
   }
   
+  /**
+   * @param latencyHistogram
+   * @return the count and the 50, 99 and 99.9 percentiles and the maximum of the given {@link LatencyHistogram} in microseconds
+   *         or an empty {@link String} if it is null
+   */
+  private static String formatLatencyPercentiles( LatencyHistogram latencyHistogram )
+  {
+    //
+    String retval = "";
+    
+    //
+    if ( latencyHistogram != null )
+    {
+      retval = String.format( " n=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus", latencyHistogram.getTotalCount(),
+                              latencyHistogram.getValueAtPercentile( 50.0 ) / 1000.0,
+                              latencyHistogram.getValueAtPercentile( 99.0 ) / 1000.0,
+                              latencyHistogram.getValueAtPercentile( 99.9 ) / 1000.0, latencyHistogram.getMaximum() / 1000.0 );
+    }
+    
+    //
+    return retval;
+  }
+  
   /**
    * Returns all available {@link Interval} keys.
    * 
@@ -16,6 +16,7 @@
 package org.omnaest.utils.time;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link Callable} decorator which captures the duration of the {@link Callable#call()} method
@@ -26,7 +27,7 @@ import java.util.concurrent.Callable;
 public class DurationCaptureCallableDecorator<V> implements Callable<V>
 {
   /* ********************************************** Variables ********************************************** */
-  protected DurationCapture durationCapture = DurationCapture.newInstance();
+  protected DurationCapture durationCapture = DurationCapture.newInstance().enableLatencyHistogramRecording();
   protected Callable<V>     callable        = null;
   
   /* ********************************************** Methods ********************************************** */
@@ -44,7 +45,7 @@ public class DurationCaptureCallableDecorator<V> implements Callable<V>
     V retval = null;
     
     //
-    this.durationCapture.startTimeMeasurement();
+    final long startTime = System.nanoTime();
     
     //
     if ( this.callable != null )
@@ -53,7 +54,7 @@ public class DurationCaptureCallableDecorator<V> implements Callable<V>
     }
     
     //
-    this.durationCapture.stopTimeMeasurement();
+    this.durationCapture.recordDuration( DurationCapture.INTERVAL_DEFAULTKEY, System.nanoTime() - startTime, TimeUnit.NANOSECONDS );
     
     //
     return retval;
@@ -64,6 +65,15 @@ public class DurationCaptureCallableDecorator<V> implements Callable<V>
     return this.durationCapture.getDurationInMilliseconds();
   }
   
+  /**
+   * @see DurationCapture#getLatencyHistogram(Object)
+   * @return {@link LatencyHistogram} of the durations in nanoseconds
+   */
+  public LatencyHistogram getLatencyHistogram()
+  {
+    return this.durationCapture.getLatencyHistogram( DurationCapture.INTERVAL_DEFAULTKEY );
+  }
+  
   public DurationCapture getDurationCapture()
   {
     return this.durationCapture;
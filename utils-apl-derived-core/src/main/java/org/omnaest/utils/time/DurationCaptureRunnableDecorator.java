@@ -15,6 +15,8 @@
  ******************************************************************************/
 package org.omnaest.utils.time;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * {@link Runnable} decorator which captures the duration of the {@link Runnable#run()} method
  * 
@@ -24,7 +26,7 @@ package org.omnaest.utils.time;
 public class DurationCaptureRunnableDecorator implements Runnable
 {
   /* ********************************************** Variables ********************************************** */
-  protected DurationCapture durationCapture = DurationCapture.newInstance();
+  protected DurationCapture durationCapture = DurationCapture.newInstance().enableLatencyHistogramRecording();
   protected Runnable        runnable        = null;
   
   /* ********************************************** Methods ********************************************** */
@@ -39,7 +41,7 @@ public class DurationCaptureRunnableDecorator implements Runnable
   public void run()
   {
     //
-    this.durationCapture.startTimeMeasurement();
+    final long startTime = System.nanoTime();
     
     //
     if ( this.runnable != null )
@@ -48,7 +50,7 @@ public class DurationCaptureRunnableDecorator implements Runnable
     }
     
     //
-    this.durationCapture.stopTimeMeasurement();
+    this.durationCapture.recordDuration( DurationCapture.INTERVAL_DEFAULTKEY, System.nanoTime() - startTime, TimeUnit.NANOSECONDS );
   }
   
   public long getDurationInMilliseconds()
@@ -56,6 +58,15 @@ public class DurationCaptureRunnableDecorator implements Runnable
     return this.durationCapture.getDurationInMilliseconds();
   }
   
+  /**
+   * @see DurationCapture#getLatencyHistogram(Object)
+   * @return {@link LatencyHistogram} of the durations in nanoseconds
+   */
+  public LatencyHistogram getLatencyHistogram()
+  {
+    return this.durationCapture.getLatencyHistogram( DurationCapture.INTERVAL_DEFAULTKEY );
+  }
+  
   public DurationCapture getDurationCapture()
   {
     return this.durationCapture;
@@ -16,6 +16,7 @@
 package org.omnaest.utils.time;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
@@ -23,7 +24,10 @@ import net.sf.cglib.proxy.MethodProxy;
 import org.omnaest.utils.proxy.StubCreator;
 
 /**
- * Proxy creator the measure the time for methods calls of an arbitrary object.
+ * Proxy creator the measure the time for methods calls of an arbitrary object.<br>
+ * <br>
+ * The durations are recorded in nanoseconds into the latency histograms of the {@link DurationCapture}, so the stubs can be
+ * used by multiple threads concurrently.
  * 
  * @see #newStubInstance(Object)
  * @see DurationCapture
@@ -52,7 +56,7 @@ public class DurationCaptureTypeFactory
   protected static class MethodInterceptorDurationCapture implements MethodInterceptor
   {
     /* ********************************************** Variables ********************************************** */
-    protected DurationCapture durationCapture = DurationCapture.newInstance();
+    protected DurationCapture durationCapture = DurationCapture.newInstance().enableLatencyHistogramRecording();
     
     /* ********************************************** Methods ********************************************** */
 
@@ -74,13 +78,13 @@ public class DurationCaptureTypeFactory
       else
       {
         //
-        durationCapture.startTimeMeasurement( methodName );
+        final long startTime = System.nanoTime();
         
         //
         retval = proxy.invokeSuper( object, args );
         
         //
-        durationCapture.stopTimeMeasurement( methodName );
+        durationCapture.recordDuration( methodName, System.nanoTime() - startTime, TimeUnit.NANOSECONDS );
       }
       
       //
@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.time;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.omnaest.utils.assertion.Assert;
+
+/**
+ * Histogram of latency values, e.g. durations in nanoseconds, which uses a constant amount of memory independent of the number of
+ * recorded values.<br>
+ * <br>
+ * Like the HdrHistogram the value range is divided into buckets whose size doubles from one bucket to the next, and each bucket
+ * is divided linearly into the same number of sub buckets. So every recorded value is resolved with the given number of
+ * significant decimal digits, e.g. with two digits a value of 1234567 is counted as some value between 1228800 and 1236991.<br>
+ * <br>
+ * A {@link LatencyHistogram} is not thread safe. Use a {@link LatencyRecorder} to record values concurrently.
+ * 
+ * @see LatencyRecorder
+ * @see #getValueAtPercentile(double)
+ * @author Omnaest
+ */
+public class LatencyHistogram implements Serializable
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final long serialVersionUID = -4312285309126384757L;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final long        highestTrackableValue;
+  private final int         numberOfSignificantValueDigits;
+  private final int         subBucketHalfCountMagnitude;
+  private final int         subBucketHalfCount;
+  private final long        subBucketMask;
+  private final int         leadingZeroCountBase;
+  private final long[]      counts;
+  private long              totalCount       = 0;
+  private long              totalValue       = 0;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see LatencyHistogram
+   * @param highestTrackableValue
+   *          higher values are counted as this value
+   * @param numberOfSignificantValueDigits
+   *          between 1 and 5
+   */
+  public LatencyHistogram( long highestTrackableValue, int numberOfSignificantValueDigits )
+  {
+    //
+    super();
+    Assert.isTrue( highestTrackableValue >= 2, "The highest trackable value has to be at least 2" );
+    Assert.isTrue( numberOfSignificantValueDigits >= 1 && numberOfSignificantValueDigits <= 5,
+                   "The number of significant value digits has to be between 1 and 5" );
+    
+    //
+    this.highestTrackableValue = highestTrackableValue;
+    this.numberOfSignificantValueDigits = numberOfSignificantValueDigits;
+    
+    //
+    final long largestValueWithSingleUnitResolution = 2 * (long) Math.pow( 10, numberOfSignificantValueDigits );
+    final int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros( largestValueWithSingleUnitResolution - 1 );
+    this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+    this.subBucketHalfCount = 1 << this.subBucketHalfCountMagnitude;
+    this.subBucketMask = ( 1L << subBucketCountMagnitude ) - 1;
+    this.leadingZeroCountBase = 64 - this.subBucketHalfCountMagnitude - 1;
+    
+    //
+    int bucketCount = 1;
+    long smallestUntrackableValue = 1L << subBucketCountMagnitude;
+    while ( smallestUntrackableValue <= highestTrackableValue )
+    {
+      bucketCount++;
+      if ( smallestUntrackableValue > Long.MAX_VALUE / 2 )
+      {
+        break;
+      }
+      smallestUntrackableValue <<= 1;
+    }
+    this.counts = new long[( bucketCount + 1 ) * this.subBucketHalfCount];
+  }
+  
+  /**
+   * Creates a new empty {@link LatencyHistogram} with the same value range and resolution as the given one
+   * 
+   * @param latencyHistogram
+   */
+  public LatencyHistogram( LatencyHistogram latencyHistogram )
+  {
+    this( latencyHistogram.highestTrackableValue, latencyHistogram.numberOfSignificantValueDigits );
+  }
+  
+  /**
+   * Records the given value. Negative values are counted as zero, values above the highest trackable value as the highest
+   * trackable value.
+   * 
+   * @param value
+   * @return this
+   */
+  public LatencyHistogram recordValue( long value )
+  {
+    //
+    this.counts[this.determineCountsIndex( value )]++;
+    this.totalCount++;
+    this.totalValue += Math.max( 0, value );
+    
+    //
+    return this;
+  }
+  
+  /**
+   * Adds all values of the given {@link LatencyHistogram}, which has to have the same value range and resolution
+   * 
+   * @param latencyHistogram
+   * @return this
+   */
+  public LatencyHistogram add( LatencyHistogram latencyHistogram )
+  {
+    //
+    if ( latencyHistogram != null )
+    {
+      //
+      Assert.isTrue( this.counts.length == latencyHistogram.counts.length, "The histograms have a different layout" );
+      for ( int ii = 0; ii < this.counts.length; ii++ )
+      {
+        this.counts[ii] += latencyHistogram.counts[ii];
+      }
+      this.totalCount += latencyHistogram.totalCount;
+      this.totalValue += latencyHistogram.totalValue;
+    }
+    
+    //
+    return this;
+  }
+  
+  /**
+   * Removes all recorded values
+   * 
+   * @return this
+   */
+  public LatencyHistogram reset()
+  {
+    //
+    Arrays.fill( this.counts, 0 );
+    this.totalCount = 0;
+    this.totalValue = 0;
+    
+    //
+    return this;
+  }
+  
+  /**
+   * @param value
+   * @return the index of the counter for the given value
+   */
+  int determineCountsIndex( long value )
+  {
+    //
+    final long trackedValue = Math.min( Math.max( 0, value ), this.highestTrackableValue );
+    final int bucketIndex = this.leadingZeroCountBase - Long.numberOfLeadingZeros( trackedValue | this.subBucketMask );
+    final int subBucketIndex = (int) ( trackedValue >>> bucketIndex );
+    
+    //
+    return ( ( bucketIndex + 1 ) << this.subBucketHalfCountMagnitude ) + ( subBucketIndex - this.subBucketHalfCount );
+  }
+  
+  /**
+   * @return the number of counters
+   */
+  int getCountsLength()
+  {
+    return this.counts.length;
+  }
+  
+  /**
+   * @param index
+   * @return the number of values counted by the counter with the given index
+   */
+  long getCount( int index )
+  {
+    return this.counts[index];
+  }
+  
+  /**
+   * Adds the given number of values to the counter with the given index
+   * 
+   * @param index
+   * @param count
+   */
+  void addCount( int index, long count )
+  {
+    this.counts[index] += count;
+    this.totalCount += count;
+  }
+  
+  /**
+   * @param totalValue
+   */
+  void addTotalValue( long totalValue )
+  {
+    this.totalValue += totalValue;
+  }
+  
+  /**
+   * @param index
+   * @return the number of bits the lowest value of the counter with the given index has been shifted by
+   */
+  private int determineBucketIndex( int index )
+  {
+    return Math.max( 0, ( index >> this.subBucketHalfCountMagnitude ) - 1 );
+  }
+  
+  /**
+   * @param index
+   * @return the lowest value which is counted by the counter with the given index
+   */
+  private long determineLowestEquivalentValue( int index )
+  {
+    //
+    final int bucketIndex = ( index >> this.subBucketHalfCountMagnitude ) - 1;
+    final int subBucketIndex = ( index & ( this.subBucketHalfCount - 1 ) ) + this.subBucketHalfCount;
+    
+    //
+    return bucketIndex < 0 ? subBucketIndex - this.subBucketHalfCount : ( (long) subBucketIndex ) << bucketIndex;
+  }
+  
+  /**
+   * @param index
+   * @return the highest value which is counted by the counter with the given index
+   */
+  private long determineHighestEquivalentValue( int index )
+  {
+    return Math.min( this.determineLowestEquivalentValue( index ) + ( 1L << this.determineBucketIndex( index ) ) - 1,
+                     this.highestTrackableValue );
+  }
+  
+  /**
+   * Returns the value below or equal to which the given percentage of all recorded values are. E.g. the 99.9 percentile is the
+   * highest value of the 99.9% lowest values.
+   * 
+   * @param percentile
+   *          between 0.0 and 100.0
+   * @return the highest value equivalent to the value at the given percentile or 0 if there are no recorded values
+   */
+  public long getValueAtPercentile( double percentile )
+  {
+    //
+    long retval = 0;
+    
+    //
+    if ( this.totalCount > 0 )
+    {
+      //
+      final double percentileNormalized = Math.min( Math.max( 0.0, percentile ), 100.0 );
+      final long countAtPercentile = Math.max( 1, (long) Math.ceil( percentileNormalized / 100.0 * this.totalCount ) );
+      
+      //
+      long countSum = 0;
+      for ( int ii = 0; ii < this.counts.length; ii++ )
+      {
+        countSum += this.counts[ii];
+        if ( countSum >= countAtPercentile )
+        {
+          retval = this.determineHighestEquivalentValue( ii );
+          break;
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @return the lowest equivalent value of the lowest recorded value or 0 if there are no recorded values
+   */
+  public long getMinimum()
+  {
+    //
+    long retval = 0;
+    
+    //
+    for ( int ii = 0; ii < this.counts.length; ii++ )
+    {
+      if ( this.counts[ii] > 0 )
+      {
+        retval = this.determineLowestEquivalentValue( ii );
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @return the highest equivalent value of the highest recorded value or 0 if there are no recorded values
+   */
+  public long getMaximum()
+  {
+    //
+    long retval = 0;
+    
+    //
+    for ( int ii = this.counts.length - 1; ii >= 0; ii-- )
+    {
+      if ( this.counts[ii] > 0 )
+      {
+        retval = this.determineHighestEquivalentValue( ii );
+        break;
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @return the exact arithmetic mean of all recorded values or 0.0 if there are none
+   */
+  public double getMean()
+  {
+    return this.totalCount > 0 ? this.totalValue / (double) this.totalCount : 0.0;
+  }
+  
+  /**
+   * @return the number of recorded values
+   */
+  public long getTotalCount()
+  {
+    return this.totalCount;
+  }
+  
+  /**
+   * @return the exact sum of all recorded values
+   */
+  public long getTotalValue()
+  {
+    return this.totalValue;
+  }
+  
+  /**
+   * @return
+   */
+  public long getHighestTrackableValue()
+  {
+    return this.highestTrackableValue;
+  }
+  
+  /**
+   * @return
+   */
+  public int getNumberOfSignificantValueDigits()
+  {
+    return this.numberOfSignificantValueDigits;
+  }
+  
+  @Override
+  public String toString()
+  {
+    return String.format( "count=%d mean=%.1f p50=%d p99=%d p999=%d max=%d", this.totalCount, this.getMean(),
+                          this.getValueAtPercentile( 50.0 ), this.getValueAtPercentile( 99.0 ),
+                          this.getValueAtPercentile( 99.9 ), this.getMaximum() );
+  }
+}
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.time;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.omnaest.utils.assertion.Assert;
+
+/**
+ * Thread safe recorder of latency values which can be read as {@link LatencyHistogram}.<br>
+ * <br>
+ * Every recording {@link Thread} writes into its own array of counters, so recording neither locks nor allocates, apart from
+ * the creation of the counters on the first recording of a {@link Thread}. Since every array has only a single writer, the
+ * counters are incremented without compare and set. The arrays of all {@link Thread}s are merged when a {@link LatencyHistogram}
+ * is read.<br>
+ * <br>
+ * The counters of terminated {@link Thread}s are folded into a shared array whenever a new {@link Thread} records for the first
+ * time or a {@link LatencyHistogram} is read, so the memory is bounded by the number of live recording {@link Thread}s.<br>
+ * <br>
+ * {@link #reset()} and {@link #getIntervalHistogram()} do not modify the counters, but remember the merged counters as baseline
+ * which is subtracted from later reads.
+ * 
+ * @see LatencyHistogram
+ * @author Omnaest
+ */
+public class LatencyRecorder
+{
+  /* ********************************************** Constants ********************************************** */
+  public static final long                   DEFAULT_HIGHEST_TRACKABLE_VALUE_IN_NANOSECONDS = TimeUnit.HOURS.toNanos( 1 );
+  public static final int                    DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS     = 2;
+  
+  /* ********************************************** Variables ********************************************** */
+  private final LatencyHistogram             layout;
+  private final int                          totalValueIndex;
+  private final List<ThreadCounts>           threadCountsList                               = new CopyOnWriteArrayList<ThreadCounts>();
+  private final ThreadLocal<AtomicLongArray> threadLocalCounts                              = new ThreadLocalCounts();
+  private final long[]                       retiredCounts;
+  private long[]                             resetBaseline;
+  private long[]                             intervalBaseline;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * The counters of a single recording {@link Thread}
+   * 
+   * @author Omnaest
+   */
+  private static class ThreadCounts
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Thread          thread;
+    private final AtomicLongArray counts;
+    
+    /* ********************************************** Methods ********************************************** */
+    public ThreadCounts( Thread thread, AtomicLongArray counts )
+    {
+      super();
+      this.thread = thread;
+      this.counts = counts;
+    }
+  }
+  
+  /**
+   * Creates the counters of a {@link Thread} on its first recording and registers them for merging
+   * 
+   * @author Omnaest
+   */
+  private class ThreadLocalCounts extends ThreadLocal<AtomicLongArray>
+  {
+    @Override
+    protected AtomicLongArray initialValue()
+    {
+      //
+      final AtomicLongArray retval = new AtomicLongArray( LatencyRecorder.this.totalValueIndex + 1 );
+      LatencyRecorder.this.threadCountsList.add( new ThreadCounts( Thread.currentThread(), retval ) );
+      LatencyRecorder.this.retireCountsOfTerminatedThreads();
+      
+      //
+      return retval;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * Creates a {@link LatencyRecorder} for nanosecond values up to one hour with two significant digits
+   * 
+   * @see LatencyRecorder
+   */
+  public LatencyRecorder()
+  {
+    this( DEFAULT_HIGHEST_TRACKABLE_VALUE_IN_NANOSECONDS, DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS );
+  }
+  
+  /**
+   * @see LatencyRecorder
+   * @see LatencyHistogram#LatencyHistogram(long, int)
+   * @param highestTrackableValue
+   * @param numberOfSignificantValueDigits
+   */
+  public LatencyRecorder( long highestTrackableValue, int numberOfSignificantValueDigits )
+  {
+    super();
+    this.layout = new LatencyHistogram( highestTrackableValue, numberOfSignificantValueDigits );
+    this.totalValueIndex = this.layout.getCountsLength();
+    this.retiredCounts = new long[this.totalValueIndex + 1];
+    this.resetBaseline = new long[this.totalValueIndex + 1];
+    this.intervalBaseline = this.resetBaseline;
+  }
+  
+  /**
+   * Records the given value
+   * 
+   * @see LatencyHistogram#recordValue(long)
+   * @param value
+   */
+  public void recordValue( long value )
+  {
+    //
+    final AtomicLongArray counts = this.threadLocalCounts.get();
+    final int index = this.layout.determineCountsIndex( value );
+    
+    // the current thread is the only writer
+    counts.lazySet( index, counts.get( index ) + 1 );
+    counts.lazySet( this.totalValueIndex, counts.get( this.totalValueIndex ) + Math.max( 0, value ) );
+  }
+  
+  /**
+   * Adds all values of the given {@link LatencyHistogram}, which has to have the layout of this {@link LatencyRecorder}, e.g.
+   * because it has been read from it before
+   * 
+   * @param latencyHistogram
+   */
+  public synchronized void add( LatencyHistogram latencyHistogram )
+  {
+    if ( latencyHistogram != null )
+    {
+      //
+      Assert.isTrue( latencyHistogram.getCountsLength() == this.totalValueIndex, "The histogram has a different layout" );
+      
+      //
+      for ( int ii = 0; ii < this.totalValueIndex; ii++ )
+      {
+        this.retiredCounts[ii] += latencyHistogram.getCount( ii );
+      }
+      this.retiredCounts[this.totalValueIndex] += latencyHistogram.getTotalValue();
+    }
+  }
+  
+  /**
+   * Folds the counters of terminated {@link Thread}s into the shared counters and releases them. Since a terminated
+   * {@link Thread} does not write anymore, the sum of all counters does not change.
+   */
+  private synchronized void retireCountsOfTerminatedThreads()
+  {
+    for ( ThreadCounts threadCounts : this.threadCountsList )
+    {
+      if ( !threadCounts.thread.isAlive() )
+      {
+        //
+        for ( int ii = 0; ii < this.retiredCounts.length; ii++ )
+        {
+          this.retiredCounts[ii] += threadCounts.counts.get( ii );
+        }
+        
+        //
+        this.threadCountsList.remove( threadCounts );
+      }
+    }
+  }
+  
+  /**
+   * @return the number of {@link Thread}s which have their own counters
+   */
+  int getNumberOfThreadCounts()
+  {
+    return this.threadCountsList.size();
+  }
+  
+  /**
+   * @return the sum of the counters of all {@link Thread}s
+   */
+  private long[] mergeCounts()
+  {
+    //
+    this.retireCountsOfTerminatedThreads();
+    final long[] retvals = this.retiredCounts.clone();
+    
+    //
+    for ( ThreadCounts threadCounts : this.threadCountsList )
+    {
+      for ( int ii = 0; ii < retvals.length; ii++ )
+      {
+        retvals[ii] += threadCounts.counts.get( ii );
+      }
+    }
+    
+    //
+    return retvals;
+  }
+  
+  /**
+   * @param counts
+   * @param baseline
+   * @return a new {@link LatencyHistogram} with the difference of the given counters and the baseline
+   */
+  private LatencyHistogram newLatencyHistogram( long[] counts, long[] baseline )
+  {
+    //
+    final LatencyHistogram retval = new LatencyHistogram( this.layout );
+    
+    //
+    for ( int ii = 0; ii < this.totalValueIndex; ii++ )
+    {
+      final long count = counts[ii] - baseline[ii];
+      if ( count != 0 )
+      {
+        retval.addCount( ii, count );
+      }
+    }
+    retval.addTotalValue( counts[this.totalValueIndex] - baseline[this.totalValueIndex] );
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @return a new {@link LatencyHistogram} with all values recorded since the creation or the last {@link #reset()}
+   */
+  public synchronized LatencyHistogram getHistogram()
+  {
+    return this.newLatencyHistogram( this.mergeCounts(), this.resetBaseline );
+  }
+  
+  /**
+   * Returns a new {@link LatencyHistogram} with all values recorded since the last invocation of this method, the last
+   * {@link #reset()} or the creation, and starts a new interval.
+   * 
+   * @return
+   */
+  public synchronized LatencyHistogram getIntervalHistogram()
+  {
+    //
+    final long[] counts = this.mergeCounts();
+    final LatencyHistogram retval = this.newLatencyHistogram( counts, this.intervalBaseline );
+    this.intervalBaseline = counts;
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * @return the exact sum of all values recorded since the creation or the last {@link #reset()}
+   */
+  public synchronized long getTotalValue()
+  {
+    //
+    long retval = this.retiredCounts[this.totalValueIndex] - this.resetBaseline[this.totalValueIndex];
+    
+    //
+    for ( ThreadCounts threadCounts : this.threadCountsList )
+    {
+      retval += threadCounts.counts.get( this.totalValueIndex );
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Discards all values recorded so far
+   */
+  public synchronized void reset()
+  {
+    this.resetBaseline = this.mergeCounts();
+    this.intervalBaseline = this.resetBaseline;
+  }
+}
@@ -0,0 +1,791 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.xml;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlID;
+import javax.xml.bind.annotation.XmlIDREF;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapters;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.omnaest.utils.reflection.ClassMetadataRegistry;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
+import org.omnaest.utils.structure.map.IdentityOpenAddressingHashMap;
+import org.omnaest.utils.xml.exception.CloneFailedException;
+import org.w3c.dom.Node;
+
+/**
+ * The {@link JAXBObjectCloner} creates deep copies of JAXB annotated object graphs without the detour of marshalling them to xml
+ * text and unmarshalling them again. <br>
+ * <br>
+ * The properties of a type are determined once from its JAXB metadata using the same rules as JAXB does:
+ * <ul>
+ * <li>{@link XmlAccessorType} of the class, its package or {@link XmlAccessType#PUBLIC_MEMBER} as default</li>
+ * <li>fields and getter/setter pairs annotated with any JAXB annotation</li>
+ * <li>static, transient and {@link XmlTransient} members are ignored</li>
+ * <li>getter only properties of a {@link Collection} type are filled using the {@link Collection} returned by the getter</li>
+ * </ul>
+ * {@link Collection}s, {@link Map}s, arrays, {@link JAXBElement} wrappers and dom {@link Node}s are copied deeply. Immutable values
+ * like {@link String}s, wrappers of primitives and {@link Enum}s are shared. Multiple references to the same instance including
+ * cycles are preserved within the clone. <br>
+ * <br>
+ * Types whose xml representation depends on more than their properties, which are types using an {@link XmlJavaTypeAdapter}
+ * on class, package or property level or having {@link XmlID} or {@link XmlIDREF} properties, are not cloned but result in a
+ * {@link CloneFailedException}, so that {@link JAXBXMLHelper#cloneObject(Object, JAXBXMLHelper.CloneMode, JAXBXMLHelper.MarshallingConfiguration)}
+ * falls back to the xml round trip. <br>
+ * <br>
+ * Properties which are null within the source object keep the default value of the newly created instance, which is the same
+ * behavior as a xml round trip has.
+ * 
+ * @see JAXBXMLHelper#cloneObject(Object)
+ * @author Omnaest
+ */
+public class JAXBObjectCloner
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final Set<Class<?>>               IMMUTABLE_TYPE_SET    = new HashSet<Class<?>>(
+                                                                                       Arrays.<Class<?>> asList( String.class,
+                                                                                                                 Boolean.class,
+                                                                                                                 Character.class,
+                                                                                                                 Byte.class, Short.class,
+                                                                                                                 Integer.class,
+                                                                                                                 Long.class, Float.class,
+                                                                                                                 Double.class,
+                                                                                                                 BigInteger.class,
+                                                                                                                 BigDecimal.class,
+                                                                                                                 QName.class, Class.class,
+                                                                                                                 UUID.class, URI.class,
+                                                                                                                 URL.class, Locale.class ) );
+  private static final DerivedMetadataFactory<TypeMetadata> TYPE_METADATA_FACTORY = new DerivedMetadataFactory<TypeMetadata>()
+                                                                                  {
+                                                                                    @Override
+                                                                                    public TypeMetadata newDerivedMetadata( ClassMetadata classMetadata )
+                                                                                    {
+                                                                                      return analyzeTypeMetadata( classMetadata.getType() );
+                                                                                    }
+                                                                                  };
+  
+  /* ********************************************** Variables ********************************************** */
+  private final Map<Object, Object>                originalToCloneMap    = new IdentityOpenAddressingHashMap<Object, Object>();
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Accessor for a single property of a type
+   * 
+   * @author Omnaest
+   */
+  protected static interface PropertyAccessor
+  {
+    /**
+     * @param instance
+     * @return value of the property
+     * @throws Exception
+     */
+    public Object getValue( Object instance ) throws Exception;
+    
+    /**
+     * @param instance
+     * @param value
+     * @throws Exception
+     */
+    public void setValue( Object instance, Object value ) throws Exception;
+    
+    /**
+     * @return true if {@link #setValue(Object, Object)} is supported
+     */
+    public boolean isWritable();
+  }
+  
+  /**
+   * {@link PropertyAccessor} based on a {@link Field}
+   * 
+   * @author Omnaest
+   */
+  protected static class PropertyAccessorFieldBased implements PropertyAccessor
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Field field;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see PropertyAccessorFieldBased
+     * @param field
+     */
+    public PropertyAccessorFieldBased( Field field )
+    {
+      super();
+      this.field = field;
+    }
+    
+    @Override
+    public Object getValue( Object instance ) throws Exception
+    {
+      return this.field.get( instance );
+    }
+    
+    @Override
+    public void setValue( Object instance, Object value ) throws Exception
+    {
+      this.field.set( instance, value );
+    }
+    
+    @Override
+    public boolean isWritable()
+    {
+      return true;
+    }
+  }
+  
+  /**
+   * {@link PropertyAccessor} based on a getter and an optional setter {@link Method}
+   * 
+   * @author Omnaest
+   */
+  protected static class PropertyAccessorMethodBased implements PropertyAccessor
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Method getter;
+    private final Method setter;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see PropertyAccessorMethodBased
+     * @param getter
+     * @param setter
+     *          can be null
+     */
+    public PropertyAccessorMethodBased( Method getter, Method setter )
+    {
+      super();
+      this.getter = getter;
+      this.setter = setter;
+    }
+    
+    @Override
+    public Object getValue( Object instance ) throws Exception
+    {
+      return this.getter.invoke( instance );
+    }
+    
+    @Override
+    public void setValue( Object instance, Object value ) throws Exception
+    {
+      this.setter.invoke( instance, value );
+    }
+    
+    @Override
+    public boolean isWritable()
+    {
+      return this.setter != null;
+    }
+  }
+  
+  /**
+   * Metadata of a single type which is determined only once
+   * 
+   * @author Omnaest
+   */
+  protected static class TypeMetadata
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final Constructor<?>         constructor;
+    private final List<PropertyAccessor> propertyAccessorList;
+    private final boolean                xmlRoundtripRequired;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see TypeMetadata
+     * @param constructor
+     * @param propertyAccessorList
+     * @param xmlRoundtripRequired
+     */
+    public TypeMetadata( Constructor<?> constructor, List<PropertyAccessor> propertyAccessorList, boolean xmlRoundtripRequired )
+    {
+      super();
+      this.constructor = constructor;
+      this.propertyAccessorList = propertyAccessorList;
+      this.xmlRoundtripRequired = xmlRoundtripRequired;
+    }
+    
+    /**
+     * @return true if the type uses an {@link XmlJavaTypeAdapter}, {@link XmlID} or {@link XmlIDREF} and can only be cloned by
+     *         marshalling
+     */
+    public boolean isXmlRoundtripRequired()
+    {
+      return this.xmlRoundtripRequired;
+    }
+    
+    /**
+     * @return the no argument {@link Constructor} or null if there is none
+     */
+    public Constructor<?> getConstructor()
+    {
+      return this.constructor;
+    }
+    
+    /**
+     * @return the {@link PropertyAccessor}s of all properties of the type including those of its super types
+     */
+    public List<PropertyAccessor> getPropertyAccessorList()
+    {
+      return this.propertyAccessorList;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  /**
+   * @see JAXBObjectCloner
+   */
+  protected JAXBObjectCloner()
+  {
+    super();
+  }
+  
+  /**
+   * Returns a deep clone of the given object graph
+   * 
+   * @see JAXBObjectCloner
+   * @param object
+   * @return clone or null if the given object is null
+   * @throws CloneFailedException
+   *           if any part of the object graph could not be cloned
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> E cloneObject( E object )
+  {
+    return (E) new JAXBObjectCloner().cloneValue( object );
+  }
+  
+  /**
+   * Returns the {@link TypeMetadata} for the given type. The analysis is done only once for each type and is held by the
+   * {@link ClassMetadataRegistry}, so it does not prevent the type from being unloaded.
+   * 
+   * @param type
+   * @return {@link TypeMetadata}
+   */
+  protected static TypeMetadata determineTypeMetadata( Class<?> type )
+  {
+    return ClassMetadataRegistry.classMetadata( type ).derivedMetadata( TYPE_METADATA_FACTORY );
+  }
+  
+  private static TypeMetadata analyzeTypeMetadata( Class<?> type )
+  {
+    //
+    Constructor<?> constructor = null;
+    try
+    {
+      constructor = type.getDeclaredConstructor();
+      makeAccessible( constructor );
+    }
+    catch ( NoSuchMethodException e )
+    {
+      constructor = null;
+    }
+    
+    //
+    final List<PropertyAccessor> propertyAccessorList = new ArrayList<PropertyAccessor>();
+    final Set<String> methodPropertyNameSet = new HashSet<String>();
+    boolean xmlRoundtripRequired = false;
+    for ( Class<?> currentType = type; currentType != null && !Object.class.equals( currentType ); currentType = currentType.getSuperclass() )
+    {
+      //
+      final XmlAccessType xmlAccessType = determineXmlAccessType( currentType );
+      xmlRoundtripRequired |= hasXmlJavaTypeAdapter( currentType );
+      
+      //
+      for ( Field field : currentType.getDeclaredFields() )
+      {
+        //
+        final int modifiers = field.getModifiers();
+        if ( Modifier.isStatic( modifiers ) || Modifier.isTransient( modifiers ) || field.isSynthetic()
+             || field.isAnnotationPresent( XmlTransient.class ) )
+        {
+          continue;
+        }
+        
+        //
+        if ( hasJAXBAnnotation( field ) || XmlAccessType.FIELD.equals( xmlAccessType )
+             || ( XmlAccessType.PUBLIC_MEMBER.equals( xmlAccessType ) && Modifier.isPublic( modifiers ) ) )
+        {
+          makeAccessible( field );
+          propertyAccessorList.add( new PropertyAccessorFieldBased( field ) );
+          xmlRoundtripRequired |= requiresXmlRoundtrip( field ) || hasXmlJavaTypeAdapter( field.getType() );
+        }
+      }
+      
+      //
+      for ( Method getter : currentType.getDeclaredMethods() )
+      {
+        //
+        final String propertyName = determinePropertyNameOfGetter( getter );
+        if ( propertyName == null || methodPropertyNameSet.contains( propertyName ) )
+        {
+          continue;
+        }
+        
+        //
+        final Method setter = determineSetter( type, propertyName, getter.getReturnType() );
+        if ( getter.isAnnotationPresent( XmlTransient.class )
+             || ( setter != null && setter.isAnnotationPresent( XmlTransient.class ) ) )
+        {
+          continue;
+        }
+        
+        //
+        final boolean annotated = hasJAXBAnnotation( getter ) || ( setter != null && hasJAXBAnnotation( setter ) );
+        final boolean collectionGetterOnly = setter == null && Collection.class.isAssignableFrom( getter.getReturnType() );
+        final boolean publicMember = Modifier.isPublic( getter.getModifiers() )
+                                     && ( setter == null || Modifier.isPublic( setter.getModifiers() ) );
+        if ( ( setter != null || collectionGetterOnly )
+             && ( annotated || XmlAccessType.PROPERTY.equals( xmlAccessType ) || ( XmlAccessType.PUBLIC_MEMBER.equals( xmlAccessType ) && publicMember ) ) )
+        {
+          //
+          makeAccessible( getter );
+          makeAccessible( setter );
+          propertyAccessorList.add( new PropertyAccessorMethodBased( getter, setter ) );
+          methodPropertyNameSet.add( propertyName );
+          xmlRoundtripRequired |= requiresXmlRoundtrip( getter ) || ( setter != null && requiresXmlRoundtrip( setter ) )
+                                  || hasXmlJavaTypeAdapter( getter.getReturnType() );
+        }
+      }
+    }
+    
+    //
+    return new TypeMetadata( constructor, Collections.unmodifiableList( propertyAccessorList ), xmlRoundtripRequired );
+  }
+  
+  /**
+   * Returns true if the given property member is annotated with {@link XmlJavaTypeAdapter}, {@link XmlID} or {@link XmlIDREF}
+   * 
+   * @param accessibleObject
+   * @return
+   */
+  private static boolean requiresXmlRoundtrip( AccessibleObject accessibleObject )
+  {
+    return accessibleObject.isAnnotationPresent( XmlJavaTypeAdapter.class ) || accessibleObject.isAnnotationPresent( XmlID.class )
+           || accessibleObject.isAnnotationPresent( XmlIDREF.class );
+  }
+  
+  /**
+   * Returns true if the given type or its package is annotated with {@link XmlJavaTypeAdapter} or {@link XmlJavaTypeAdapters}
+   * 
+   * @param type
+   * @return
+   */
+  private static boolean hasXmlJavaTypeAdapter( Class<?> type )
+  {
+    //
+    final Package typePackage = type.getPackage();
+    return type.isAnnotationPresent( XmlJavaTypeAdapter.class )
+           || ( typePackage != null && ( typePackage.isAnnotationPresent( XmlJavaTypeAdapter.class ) || typePackage.isAnnotationPresent( XmlJavaTypeAdapters.class ) ) );
+  }
+  
+  private static XmlAccessType determineXmlAccessType( Class<?> type )
+  {
+    //
+    XmlAccessType retval = XmlAccessType.PUBLIC_MEMBER;
+    
+    //
+    XmlAccessorType xmlAccessorType = type.getAnnotation( XmlAccessorType.class );
+    if ( xmlAccessorType == null && type.getPackage() != null )
+    {
+      xmlAccessorType = type.getPackage().getAnnotation( XmlAccessorType.class );
+    }
+    if ( xmlAccessorType != null )
+    {
+      retval = xmlAccessorType.value();
+    }
+    
+    //
+    return retval;
+  }
+  
+  private static boolean hasJAXBAnnotation( AccessibleObject accessibleObject )
+  {
+    //
+    for ( Annotation annotation : accessibleObject.getAnnotations() )
+    {
+      if ( annotation.annotationType().getName().startsWith( "javax.xml.bind.annotation." ) )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private static String determinePropertyNameOfGetter( Method method )
+  {
+    //
+    String retval = null;
+    
+    //
+    if ( !Modifier.isStatic( method.getModifiers() ) && !method.isSynthetic() && !method.isBridge()
+         && method.getParameterTypes().length == 0 && !void.class.equals( method.getReturnType() ) )
+    {
+      //
+      final String methodName = method.getName();
+      if ( methodName.length() > 3 && methodName.startsWith( "get" ) )
+      {
+        retval = methodName.substring( 3 );
+      }
+      else if ( methodName.length() > 2 && methodName.startsWith( "is" )
+                && ( boolean.class.equals( method.getReturnType() ) || Boolean.class.equals( method.getReturnType() ) ) )
+      {
+        retval = methodName.substring( 2 );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  private static Method determineSetter( Class<?> type, String propertyName, Class<?> propertyType )
+  {
+    //
+    final String setterName = "set" + propertyName;
+    for ( Class<?> currentType = type; currentType != null; currentType = currentType.getSuperclass() )
+    {
+      try
+      {
+        final Method method = currentType.getDeclaredMethod( setterName, propertyType );
+        if ( !Modifier.isStatic( method.getModifiers() ) )
+        {
+          return method;
+        }
+      }
+      catch ( NoSuchMethodException e )
+      {
+      }
+    }
+    return null;
+  }
+  
+  private static void makeAccessible( AccessibleObject accessibleObject )
+  {
+    if ( accessibleObject != null && !accessibleObject.isAccessible() )
+    {
+      accessibleObject.setAccessible( true );
+    }
+  }
+  
+  /**
+   * Returns a deep clone of the given value. Clones of already visited instances are reused.
+   * 
+   * @param value
+   * @return clone
+   */
+  protected Object cloneValue( Object value )
+  {
+    //
+    Object retval = null;
+    
+    //
+    if ( value != null )
+    {
+      //
+      final Class<?> type = value.getClass();
+      if ( IMMUTABLE_TYPE_SET.contains( type ) || value instanceof Enum || value instanceof Duration )
+      {
+        retval = value;
+      }
+      else if ( this.originalToCloneMap.containsKey( value ) )
+      {
+        retval = this.originalToCloneMap.get( value );
+      }
+      else
+      {
+        try
+        {
+          retval = this.newClone( value, type );
+        }
+        catch ( CloneFailedException e )
+        {
+          throw e;
+        }
+        catch ( Exception e )
+        {
+          throw new CloneFailedException( "Unable to clone instance of " + type, e );
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @SuppressWarnings("unchecked")
+  private Object newClone( Object value, Class<?> type ) throws Exception
+  {
+    //
+    Object retval = null;
+    
+    //
+    if ( value instanceof Date )
+    {
+      retval = ( (Date) value ).clone();
+      this.originalToCloneMap.put( value, retval );
+    }
+    else if ( value instanceof Calendar )
+    {
+      retval = ( (Calendar) value ).clone();
+      this.originalToCloneMap.put( value, retval );
+    }
+    else if ( value instanceof XMLGregorianCalendar )
+    {
+      retval = ( (XMLGregorianCalendar) value ).clone();
+      this.originalToCloneMap.put( value, retval );
+    }
+    else if ( value instanceof Node )
+    {
+      retval = ( (Node) value ).cloneNode( true );
+      this.originalToCloneMap.put( value, retval );
+    }
+    else if ( type.isArray() )
+    {
+      retval = this.newArrayClone( value, type );
+    }
+    else if ( value instanceof JAXBElement )
+    {
+      //
+      final JAXBElement<Object> jaxbElement = (JAXBElement<Object>) value;
+      final JAXBElement<Object> jaxbElementClone = new JAXBElement<Object>( jaxbElement.getName(),
+                                                                            jaxbElement.getDeclaredType(),
+                                                                            jaxbElement.getScope(), null );
+      this.originalToCloneMap.put( value, jaxbElementClone );
+      jaxbElementClone.setValue( this.cloneValue( jaxbElement.getValue() ) );
+      jaxbElementClone.setNil( jaxbElement.isNil() );
+      retval = jaxbElementClone;
+    }
+    else if ( isJAXBAnnotatedType( type ) )
+    {
+      retval = this.newBeanClone( value, type );
+    }
+    else if ( value instanceof Collection )
+    {
+      retval = this.newCollectionClone( (Collection<Object>) value, type );
+    }
+    else if ( value instanceof Map )
+    {
+      retval = this.newMapClone( (Map<Object, Object>) value, type );
+    }
+    else
+    {
+      retval = this.newBeanClone( value, type );
+    }
+    
+    //
+    return retval;
+  }
+  
+  private static boolean isJAXBAnnotatedType( Class<?> type )
+  {
+    return type.isAnnotationPresent( XmlRootElement.class ) || type.isAnnotationPresent( XmlType.class )
+           || type.isAnnotationPresent( XmlAccessorType.class );
+  }
+  
+  private Object newArrayClone( Object value, Class<?> type )
+  {
+    //
+    final int length = Array.getLength( value );
+    final Class<?> componentType = type.getComponentType();
+    final Object retval = Array.newInstance( componentType, length );
+    this.originalToCloneMap.put( value, retval );
+    
+    //
+    if ( componentType.isPrimitive() )
+    {
+      System.arraycopy( value, 0, retval, 0, length );
+    }
+    else
+    {
+      //
+      final Object[] sourceArray = (Object[]) value;
+      final Object[] targetArray = (Object[]) retval;
+      for ( int ii = 0; ii < length; ii++ )
+      {
+        targetArray[ii] = this.cloneValue( sourceArray[ii] );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Collection<Object> newCollectionClone( Collection<Object> collection, Class<?> type ) throws Exception
+  {
+    //
+    Collection<Object> retval = null;
+    
+    //
+    final Constructor<?> constructor = determineTypeMetadata( type ).getConstructor();
+    if ( collection instanceof SortedSet )
+    {
+      retval = new TreeSet<Object>( ( (SortedSet) collection ).comparator() );
+    }
+    else if ( constructor != null )
+    {
+      retval = (Collection<Object>) constructor.newInstance();
+    }
+    else if ( collection instanceof Set )
+    {
+      retval = new LinkedHashSet<Object>( collection.size() );
+    }
+    else
+    {
+      retval = new ArrayList<Object>( collection.size() );
+    }
+    this.originalToCloneMap.put( collection, retval );
+    
+    //
+    for ( Object element : collection )
+    {
+      retval.add( this.cloneValue( element ) );
+    }
+    
+    //
+    return retval;
+  }
+  
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Map<Object, Object> newMapClone( Map<Object, Object> map, Class<?> type ) throws Exception
+  {
+    //
+    Map<Object, Object> retmap = null;
+    
+    //
+    final Constructor<?> constructor = determineTypeMetadata( type ).getConstructor();
+    if ( map instanceof SortedMap )
+    {
+      retmap = new TreeMap<Object, Object>( ( (SortedMap) map ).comparator() );
+    }
+    else if ( constructor != null )
+    {
+      retmap = (Map<Object, Object>) constructor.newInstance();
+    }
+    else
+    {
+      retmap = new LinkedHashMap<Object, Object>( map.size() );
+    }
+    this.originalToCloneMap.put( map, retmap );
+    
+    //
+    for ( Map.Entry<Object, Object> entry : map.entrySet() )
+    {
+      retmap.put( this.cloneValue( entry.getKey() ), this.cloneValue( entry.getValue() ) );
+    }
+    
+    //
+    return retmap;
+  }
+  
+  @SuppressWarnings("unchecked")
+  private Object newBeanClone( Object value, Class<?> type ) throws Exception
+  {
+    //
+    final TypeMetadata typeMetadata = determineTypeMetadata( type );
+    final Constructor<?> constructor = typeMetadata.getConstructor();
+    if ( constructor == null )
+    {
+      throw new CloneFailedException( "No default constructor available for " + type );
+    }
+    if ( typeMetadata.isXmlRoundtripRequired() )
+    {
+      throw new CloneFailedException( "Type adapters and xml ids of " + type + " require marshalling" );
+    }
+    
+    //
+    final Object retval = constructor.newInstance();
+    this.originalToCloneMap.put( value, retval );
+    
+    //
+    for ( PropertyAccessor propertyAccessor : typeMetadata.getPropertyAccessorList() )
+    {
+      //
+      final Object propertyValue = propertyAccessor.getValue( value );
+      if ( propertyValue != null )
+      {
+        //
+        if ( propertyAccessor.isWritable() )
+        {
+          propertyAccessor.setValue( retval, this.cloneValue( propertyValue ) );
+        }
+        else if ( propertyValue instanceof Collection )
+        {
+          //
+          final Collection<Object> targetCollection = (Collection<Object>) propertyAccessor.getValue( retval );
+          if ( targetCollection != null && targetCollection != propertyValue )
+          {
+            //
+            targetCollection.clear();
+            for ( Object element : (Collection<Object>) propertyValue )
+            {
+              targetCollection.add( this.cloneValue( element ) );
+            }
+          }
+        }
+      }
+    }
+    
+    //
+    return retval;
+  }
+}
@@ -40,6 +40,7 @@ import org.omnaest.utils.reflection.ReflectionUtils;
 import org.omnaest.utils.structure.container.ByteArrayContainer;
 import org.omnaest.utils.structure.element.ObjectUtils;
 import org.omnaest.utils.xml.JAXBXMLHelper.UnmarshallingConfiguration.Configurator;
+import org.omnaest.utils.xml.exception.CloneFailedException;
 import org.omnaest.utils.xml.exception.MissingXMLRootElementAnnotationException;
 import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
@@ -54,6 +55,7 @@ import org.xml.sax.XMLReader;
  * @see JAXBList
  * @see JAXBSet
  * @see JAXBCollection
+ * @see JAXBObjectCloner
  * @author Omnaest
  */
 public class JAXBXMLHelper
@@ -63,6 +65,32 @@ public class JAXBXMLHelper
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
+  /**
+   * Modes of {@link JAXBXMLHelper#cloneObject(Object, CloneMode, MarshallingConfiguration)}
+   * 
+   * @author Omnaest
+   */
+  public static enum CloneMode
+  {
+    /**
+     * Copies the object graph directly using the JAXB metadata of the types. Object graphs using type adapters or xml ids are
+     * cloned using {@link #XML_ROUNDTRIP}.
+     * 
+     * @see JAXBObjectCloner
+     */
+    METADATA_BASED,
+    /**
+     * Marshals the object to xml and unmarshals it again. This is the default.
+     */
+    XML_ROUNDTRIP,
+    /**
+     * Clones using {@link #METADATA_BASED} and verifies that the clone results in the same xml as the original object. If the
+     * xml differs an {@link IllegalStateException} is reported to the {@link ExceptionHandler} and the {@link #XML_ROUNDTRIP}
+     * result is returned instead.
+     */
+    METADATA_BASED_VERIFIED_BY_XML_ROUNDTRIP
+  }
+  
   /**
    * Configuration for the marshalling process
    * 
@@ -1137,8 +1165,9 @@ public class JAXBXMLHelper
   }
   
   /**
-   * Clones a given {@link Object} using {@link #storeObjectAsXML(Object)} and {@link #loadObjectFromXML(CharSequence, Class)}
+   * Clones a given {@link Object} using {@link CloneMode#XML_ROUNDTRIP}
    * 
+   * @see #cloneObject(Object, CloneMode, MarshallingConfiguration)
    * @param object
    * @return
    */
@@ -1155,8 +1184,26 @@ public class JAXBXMLHelper
    * @param object
    * @return
    */
-  @SuppressWarnings("unchecked")
   public static <E> E cloneObject( E object, MarshallingConfiguration marshallingConfiguration )
+  {
+    return cloneObject( object, CloneMode.XML_ROUNDTRIP, marshallingConfiguration );
+  }
+  
+  /**
+   * Clones a given {@link Object} using the given {@link CloneMode}. If {@link CloneMode#METADATA_BASED} fails, because the object
+   * graph contains an instance which cannot be created without xml or uses type adapters or xml ids, the
+   * {@link CloneMode#XML_ROUNDTRIP} is used as fallback.
+   * 
+   * @see CloneMode
+   * @see JAXBObjectCloner
+   * @param object
+   * @param cloneMode
+   *          {@link CloneMode}
+   * @param marshallingConfiguration
+   *          {@link MarshallingConfiguration}
+   * @return
+   */
+  public static <E> E cloneObject( E object, CloneMode cloneMode, MarshallingConfiguration marshallingConfiguration )
   {
     //
     E retval = null;
@@ -1169,26 +1216,39 @@ public class JAXBXMLHelper
     if ( object != null )
     {
       //
-      try
+      if ( CloneMode.XML_ROUNDTRIP.equals( cloneMode ) )
+      {
+        retval = cloneObjectUsingXMLRoundtrip( object, marshallingConfiguration );
+      }
+      else
       {
-        
-        //
-        final ByteArrayContainer byteArrayContainer = new ByteArrayContainer();
-        final OutputStream outputStream = byteArrayContainer.getOutputStream();
-        
         //
-        JAXBXMLHelper.storeObjectAsXML( object, outputStream, marshallingConfiguration );
-        outputStream.close();
+        try
+        {
+          retval = JAXBObjectCloner.cloneObject( object );
+        }
+        catch ( CloneFailedException e )
+        {
+          retval = cloneObjectUsingXMLRoundtrip( object, marshallingConfiguration );
+        }
         
         //
-        retval = (E) JAXBXMLHelper.loadObjectFromXML( byteArrayContainer.getInputStream(), object.getClass(),
-                                                      marshallingConfiguration.asUnmarshallingConfiguration() );
-      }
-      catch ( Exception e )
-      {
-        if ( exceptionHandler != null )
+        if ( CloneMode.METADATA_BASED_VERIFIED_BY_XML_ROUNDTRIP.equals( cloneMode ) )
         {
-          exceptionHandler.handleException( e );
+          //
+          final String xmlContentOfObject = storeObjectAsXML( object, marshallingConfiguration );
+          final String xmlContentOfClone = storeObjectAsXML( retval, marshallingConfiguration );
+          if ( !StringUtils.equals( xmlContentOfObject, xmlContentOfClone ) )
+          {
+            //
+            if ( exceptionHandler != null )
+            {
+              exceptionHandler.handleException( new IllegalStateException(
+                                                                           "Metadata based clone differs from xml roundtrip for type "
+                                                                               + object.getClass() ) );
+            }
+            retval = cloneObjectUsingXMLRoundtrip( object, marshallingConfiguration );
+          }
         }
       }
     }
@@ -1197,6 +1257,40 @@ public class JAXBXMLHelper
     return retval;
   }
   
+  @SuppressWarnings("unchecked")
+  private static <E> E cloneObjectUsingXMLRoundtrip( E object, MarshallingConfiguration marshallingConfiguration )
+  {
+    //
+    E retval = null;
+    
+    //
+    final ExceptionHandler exceptionHandler = marshallingConfiguration.getExceptionHandler();
+    try
+    {
+      //
+      final ByteArrayContainer byteArrayContainer = new ByteArrayContainer();
+      final OutputStream outputStream = byteArrayContainer.getOutputStream();
+      
+      //
+      JAXBXMLHelper.storeObjectAsXML( object, outputStream, marshallingConfiguration );
+      outputStream.close();
+      
+      //
+      retval = (E) JAXBXMLHelper.loadObjectFromXML( byteArrayContainer.getInputStream(), object.getClass(),
+                                                    marshallingConfiguration.asUnmarshallingConfiguration() );
+    }
+    catch ( Exception e )
+    {
+      if ( exceptionHandler != null )
+      {
+        exceptionHandler.handleException( e );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
   /**
    * Returns the {@link QName} defined by the {@link XmlRootElement} of the given {@link Class} type
    * 
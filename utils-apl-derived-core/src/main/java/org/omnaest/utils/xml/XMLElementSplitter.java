@@ -0,0 +1,1145 @@
+/*******************************************************************************
+ * Copyright 2012 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.omnaest.utils.assertion.Assert;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.structure.iterator.IteratorUtils;
+
+/**
+ * The {@link XMLElementSplitter} is a fast path alternative to the StAX based {@link XMLIteratorFactory#newIterator(QName)}. It
+ * scans the raw bytes of an UTF-8 or US-ASCII encoded xml stream for the start and end tags of a given element name and cuts out
+ * the xml content chunks without creating any xml events. The encoding is determined by the byte order mark or the encoding of
+ * the xml declaration. Documents with any other encoding are rejected with an {@link UnsupportedEncodingException} passed to the
+ * {@link ExceptionHandler}. <br>
+ * <br>
+ * Comments, CDATA sections, processing instructions, doctype declarations and quoted attribute values are skipped, nested
+ * elements of the same name are counted. If the given {@link QName} has a prefix, a tag name matches only if it is equal to the
+ * prefix and the local part. Otherwise it matches if it is equal to the local part, with or without any namespace prefix, like
+ * the {@link XMLIteratorFactory.XMLElementSelectorQNameBased} does for a {@link QName} without namespace. <br>
+ * <br>
+ * Compared to the StAX based {@link XMLIteratorFactory} the returned chunks are the raw slices of the original document without
+ * xml declaration. Namespaces which are declared on parental elements and are not declared again by the element itself are
+ * added to the start tag of the chunk, in which case the bytes of the chunk are copied. <br>
+ * <br>
+ * The returned chunks are counted like the ones of the {@link XMLIteratorFactory} within the {@link Counter}
+ * {@value XMLIteratorFactory#METRIC_NAME_ELEMENTS}. <br>
+ * <br>
+ * Example:
+ * 
+ * <pre>
+ * Iterator&lt;ByteBuffer&gt; iterator = new XMLElementSplitter( new QName( &quot;book&quot; ) ).newByteBufferIterator( file );
+ * </pre>
+ * 
+ * @see XMLIteratorFactory#doUseByteLevelSplitting(boolean)
+ * @author Omnaest
+ */
+public class XMLElementSplitter
+{
+  /* ************************************************** Constants *************************************************** */
+  private static final Charset   UTF8                = Charset.forName( "UTF-8" );
+  private static final int       DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final byte[]    COMMENT_START       = "<!--".getBytes( UTF8 );
+  private static final byte[]    COMMENT_END         = "-->".getBytes( UTF8 );
+  private static final byte[]    CDATA_START         = "<![CDATA[".getBytes( UTF8 );
+  private static final byte[]    CDATA_END           = "]]>".getBytes( UTF8 );
+  private static final byte[]    PROCESSING_END      = "?>".getBytes( UTF8 );
+  private static final byte[]    XMLNS               = "xmlns".getBytes( UTF8 );
+  static final int               PROLOG_LENGTH       = 256;
+  
+  /* ************************************** Variables / State (internal/hiding) ************************************* */
+  private final byte[]           tagName;
+  private final boolean          matchAnyPrefix;
+  
+  /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
+  private final ExceptionHandler exceptionHandler;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * Random access to the bytes of a source which allows to load further bytes on demand
+   * 
+   * @author Omnaest
+   */
+  private static abstract class ByteSource
+  {
+    /**
+     * Returns true if the given position is available. Loads further bytes from the underlying source if necessary.
+     * 
+     * @param position
+     * @return
+     * @throws IOException
+     */
+    public abstract boolean isAvailable( long position ) throws IOException;
+    
+    /**
+     * Returns the byte at the given position, which has to be ensured to be available by {@link #isAvailable(long)}
+     * 
+     * @param position
+     * @return
+     */
+    public abstract byte get( long position );
+    
+    /**
+     * Signals that no bytes before the given position will be accessed anymore
+     * 
+     * @param position
+     */
+    public void retainFrom( long position )
+    {
+    }
+  }
+  
+  /**
+   * {@link ByteSource} based on a {@link ByteBuffer}, which is accessed using absolute positions only
+   * 
+   * @author Omnaest
+   */
+  private static class ByteSourceByteBufferBased extends ByteSource
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final ByteBuffer byteBuffer;
+    private final int        offset;
+    private final int        limit;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see ByteSourceByteBufferBased
+     * @param byteBuffer
+     */
+    public ByteSourceByteBufferBased( ByteBuffer byteBuffer )
+    {
+      super();
+      this.byteBuffer = byteBuffer;
+      this.offset = byteBuffer.position();
+      this.limit = byteBuffer.limit();
+    }
+    
+    @Override
+    public boolean isAvailable( long position )
+    {
+      return this.offset + position < this.limit;
+    }
+    
+    @Override
+    public byte get( long position )
+    {
+      return this.byteBuffer.get( this.offset + (int) position );
+    }
+    
+    /**
+     * Returns a new {@link ByteBuffer} which shares the content of the underlying {@link ByteBuffer} between the given positions
+     * 
+     * @param start
+     * @param end
+     * @return
+     */
+    public ByteBuffer slice( long start, long end )
+    {
+      final ByteBuffer duplicate = this.byteBuffer.duplicate();
+      duplicate.limit( this.offset + (int) end );
+      duplicate.position( this.offset + (int) start );
+      return duplicate.slice();
+    }
+  }
+  
+  /**
+   * {@link ByteSource} based on an {@link InputStream}, which holds a growing buffer of all bytes from the retained position on
+   * 
+   * @author Omnaest
+   */
+  private static class ByteSourceInputStreamBased extends ByteSource
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final InputStream inputStream;
+    private byte[]            buffer       = new byte[DEFAULT_BUFFER_SIZE];
+    private long              bufferOffset = 0;
+    private int               bufferLength = 0;
+    private long              retainedFrom = 0;
+    private boolean           endOfStream  = false;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see ByteSourceInputStreamBased
+     * @param inputStream
+     */
+    public ByteSourceInputStreamBased( InputStream inputStream )
+    {
+      super();
+      this.inputStream = inputStream;
+    }
+    
+    @Override
+    public boolean isAvailable( long position ) throws IOException
+    {
+      //
+      while ( position >= this.bufferOffset + this.bufferLength && !this.endOfStream )
+      {
+        //
+        if ( this.bufferLength == this.buffer.length )
+        {
+          //
+          final int retained = (int) ( this.bufferOffset + this.bufferLength - this.retainedFrom );
+          if ( retained > this.buffer.length / 2 )
+          {
+            this.buffer = Arrays.copyOfRange( this.buffer, this.bufferLength - retained, this.bufferLength - retained
+                                                                                         + this.buffer.length * 2 );
+          }
+          else
+          {
+            System.arraycopy( this.buffer, this.bufferLength - retained, this.buffer, 0, retained );
+          }
+          this.bufferOffset = this.retainedFrom;
+          this.bufferLength = retained;
+        }
+        
+        //
+        final int read = this.inputStream.read( this.buffer, this.bufferLength, this.buffer.length - this.bufferLength );
+        if ( read < 0 )
+        {
+          this.endOfStream = true;
+        }
+        else
+        {
+          this.bufferLength += read;
+        }
+      }
+      
+      //
+      return position < this.bufferOffset + this.bufferLength;
+    }
+    
+    @Override
+    public byte get( long position )
+    {
+      return this.buffer[(int) ( position - this.bufferOffset )];
+    }
+    
+    @Override
+    public void retainFrom( long position )
+    {
+      this.retainedFrom = position;
+    }
+    
+    /**
+     * Returns a copy of the bytes between the given positions as {@link String}
+     * 
+     * @param start
+     * @param end
+     * @return
+     */
+    public String toString( long start, long end )
+    {
+      return new String( this.buffer, (int) ( start - this.bufferOffset ), (int) ( end - start ), UTF8 );
+    }
+  }
+  
+  /**
+   * Scanner which searches the next matching element within a {@link ByteSource}
+   * 
+   * @author Omnaest
+   */
+  private static class Scanner
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final ByteSource         byteSource;
+    private final byte[]             tagName;
+    private final boolean            matchAnyPrefix;
+    private final List<List<byte[]>> namespaceDeclarationsStack = new ArrayList<List<byte[]>>();
+    private long                     position                   = 0;
+    private long                     elementStart               = -1;
+    private long                     elementNameEnd             = -1;
+    private long                     elementEnd                 = -1;
+    private byte[]                   namespaceDeclarations      = null;
+    private boolean                  encodingVerified           = false;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see Scanner
+     * @param byteSource
+     * @param tagName
+     * @param matchAnyPrefix
+     */
+    public Scanner( ByteSource byteSource, byte[] tagName, boolean matchAnyPrefix )
+    {
+      super();
+      this.byteSource = byteSource;
+      this.tagName = tagName;
+      this.matchAnyPrefix = matchAnyPrefix;
+    }
+    
+    /**
+     * Throws an {@link UnsupportedEncodingException} if the {@link ByteSource} is not UTF-8 or US-ASCII encoded
+     * 
+     * @throws IOException
+     */
+    private void verifyEncoding() throws IOException
+    {
+      //
+      final byte[] prolog = new byte[PROLOG_LENGTH];
+      int length = 0;
+      while ( length < prolog.length && this.byteSource.isAvailable( length ) )
+      {
+        prolog[length] = this.byteSource.get( length );
+        length++;
+      }
+      
+      //
+      final String encoding = determineEncoding( prolog, length );
+      if ( !isSupportedEncoding( encoding ) )
+      {
+        throw new UnsupportedEncodingException( "Byte level splitting does not support the encoding " + encoding );
+      }
+    }
+    
+    /**
+     * Scans for the next matching element. Returns false if the end of the {@link ByteSource} is reached. If true is returned
+     * the element is located between {@link #getElementStart()} and {@link #getElementEnd()}
+     * 
+     * @return
+     * @throws IOException
+     */
+    public boolean scanNextElement() throws IOException
+    {
+      //
+      if ( !this.encodingVerified )
+      {
+        this.verifyEncoding();
+        this.encodingVerified = true;
+      }
+      
+      //
+      final ByteSource byteSource = this.byteSource;
+      int depth = 0;
+      
+      //
+      while ( true )
+      {
+        //
+        if ( depth == 0 )
+        {
+          byteSource.retainFrom( this.position );
+        }
+        while ( byteSource.isAvailable( this.position ) && byteSource.get( this.position ) != '<' )
+        {
+          this.position++;
+        }
+        if ( !byteSource.isAvailable( this.position + 1 ) )
+        {
+          return false;
+        }
+        
+        //
+        final long tagStart = this.position;
+        if ( depth == 0 )
+        {
+          byteSource.retainFrom( tagStart );
+        }
+        
+        //
+        final byte marker = byteSource.get( tagStart + 1 );
+        if ( marker == '!' )
+        {
+          if ( this.matches( tagStart, COMMENT_START ) )
+          {
+            this.position = this.indexOf( tagStart + COMMENT_START.length, COMMENT_END ) + COMMENT_END.length;
+          }
+          else if ( this.matches( tagStart, CDATA_START ) )
+          {
+            this.position = this.indexOf( tagStart + CDATA_START.length, CDATA_END ) + CDATA_END.length;
+          }
+          else
+          {
+            this.position = this.skipDeclaration( tagStart + 2 );
+          }
+        }
+        else if ( marker == '?' )
+        {
+          this.position = this.indexOf( tagStart + 2, PROCESSING_END ) + PROCESSING_END.length;
+        }
+        else
+        {
+          //
+          final boolean isEndTag = marker == '/';
+          final long nameStart = tagStart + ( isEndTag ? 2 : 1 );
+          long nameEnd = nameStart;
+          while ( byteSource.isAvailable( nameEnd ) && !isNameTerminator( byteSource.get( nameEnd ) ) )
+          {
+            nameEnd++;
+          }
+          
+          //
+          final long tagEnd = this.skipTag( nameEnd );
+          if ( tagEnd < 0 )
+          {
+            return false;
+          }
+          this.position = tagEnd + 1;
+          
+          //
+          final boolean isEmptyElement = !isEndTag && byteSource.get( tagEnd - 1 ) == '/';
+          if ( this.matchesTagName( nameStart, nameEnd ) )
+          {
+            if ( !isEndTag )
+            {
+              //
+              if ( depth == 0 )
+              {
+                this.elementStart = tagStart;
+                this.elementNameEnd = nameEnd;
+                this.namespaceDeclarations = this.determineInheritedNamespaceDeclarations( nameEnd, tagEnd );
+              }
+              
+              //
+              if ( !isEmptyElement )
+              {
+                depth++;
+              }
+              else if ( depth == 0 )
+              {
+                this.elementEnd = this.position;
+                return true;
+              }
+            }
+            else if ( depth > 0 && --depth == 0 )
+            {
+              this.elementEnd = this.position;
+              return true;
+            }
+          }
+          else if ( depth == 0 )
+          {
+            //
+            final List<List<byte[]>> namespaceDeclarationsStack = this.namespaceDeclarationsStack;
+            if ( isEndTag )
+            {
+              if ( !namespaceDeclarationsStack.isEmpty() )
+              {
+                namespaceDeclarationsStack.remove( namespaceDeclarationsStack.size() - 1 );
+              }
+            }
+            else if ( !isEmptyElement )
+            {
+              namespaceDeclarationsStack.add( this.parseNamespaceDeclarations( nameEnd, tagEnd ) );
+            }
+          }
+        }
+        
+        //
+        if ( this.position < 0 )
+        {
+          return false;
+        }
+      }
+    }
+    
+    private static boolean isNameTerminator( byte value )
+    {
+      return value == '>' || value == '/' || isWhitespace( value );
+    }
+    
+    private static boolean isWhitespace( byte value )
+    {
+      return value == ' ' || value == '\t' || value == '\n' || value == '\r';
+    }
+    
+    /**
+     * Returns the raw namespace declaration attributes like xmlns:ns="http://..." between the given positions of a tag or null if
+     * there are none
+     * 
+     * @param position
+     * @param tagEnd
+     * @return
+     */
+    private List<byte[]> parseNamespaceDeclarations( long position, long tagEnd )
+    {
+      //
+      List<byte[]> retlist = null;
+      final ByteSource byteSource = this.byteSource;
+      
+      //
+      long ii = position;
+      while ( ii < tagEnd )
+      {
+        //
+        final byte value = byteSource.get( ii );
+        if ( isWhitespace( value ) || value == '/' )
+        {
+          ii++;
+          continue;
+        }
+        
+        //
+        final long nameStart = ii;
+        while ( ii < tagEnd && byteSource.get( ii ) != '=' && !isWhitespace( byteSource.get( ii ) ) )
+        {
+          ii++;
+        }
+        final long nameEnd = ii;
+        while ( ii < tagEnd && byteSource.get( ii ) != '"' && byteSource.get( ii ) != '\'' )
+        {
+          ii++;
+        }
+        if ( ii >= tagEnd )
+        {
+          break;
+        }
+        final byte quote = byteSource.get( ii++ );
+        while ( ii < tagEnd && byteSource.get( ii ) != quote )
+        {
+          ii++;
+        }
+        final long attributeEnd = ++ii;
+        
+        //
+        if ( this.isNamespaceDeclaration( nameStart, nameEnd ) )
+        {
+          //
+          final byte[] namespaceDeclaration = new byte[(int) ( attributeEnd - nameStart )];
+          for ( int jj = 0; jj < namespaceDeclaration.length; jj++ )
+          {
+            namespaceDeclaration[jj] = byteSource.get( nameStart + jj );
+          }
+          
+          //
+          if ( retlist == null )
+          {
+            retlist = new ArrayList<byte[]>();
+          }
+          retlist.add( namespaceDeclaration );
+        }
+      }
+      
+      //
+      return retlist;
+    }
+    
+    private boolean isNamespaceDeclaration( long nameStart, long nameEnd )
+    {
+      //
+      final long length = nameEnd - nameStart;
+      if ( length < XMLNS.length || ( length > XMLNS.length && this.byteSource.get( nameStart + XMLNS.length ) != ':' ) )
+      {
+        return false;
+      }
+      
+      //
+      for ( int ii = 0; ii < XMLNS.length; ii++ )
+      {
+        if ( this.byteSource.get( nameStart + ii ) != XMLNS[ii] )
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+    
+    private static String namespaceDeclarationName( byte[] namespaceDeclaration )
+    {
+      int length = 0;
+      while ( length < namespaceDeclaration.length && namespaceDeclaration[length] != '='
+              && !isWhitespace( namespaceDeclaration[length] ) )
+      {
+        length++;
+      }
+      return new String( namespaceDeclaration, 0, length, UTF8 );
+    }
+    
+    /**
+     * Returns the namespace declarations of all parental elements, which are not declared again by the start tag between the given
+     * positions, as bytes to be inserted after the tag name or null if there are none
+     * 
+     * @param nameEnd
+     * @param tagEnd
+     * @return
+     */
+    private byte[] determineInheritedNamespaceDeclarations( long nameEnd, long tagEnd )
+    {
+      //
+      Map<String, byte[]> nameToNamespaceDeclarationMap = null;
+      for ( List<byte[]> namespaceDeclarationList : this.namespaceDeclarationsStack )
+      {
+        if ( namespaceDeclarationList != null )
+        {
+          for ( byte[] namespaceDeclaration : namespaceDeclarationList )
+          {
+            if ( nameToNamespaceDeclarationMap == null )
+            {
+              nameToNamespaceDeclarationMap = new LinkedHashMap<String, byte[]>();
+            }
+            nameToNamespaceDeclarationMap.put( namespaceDeclarationName( namespaceDeclaration ), namespaceDeclaration );
+          }
+        }
+      }
+      if ( nameToNamespaceDeclarationMap == null )
+      {
+        return null;
+      }
+      
+      //
+      final List<byte[]> ownNamespaceDeclarationList = this.parseNamespaceDeclarations( nameEnd, tagEnd );
+      if ( ownNamespaceDeclarationList != null )
+      {
+        for ( byte[] namespaceDeclaration : ownNamespaceDeclarationList )
+        {
+          nameToNamespaceDeclarationMap.remove( namespaceDeclarationName( namespaceDeclaration ) );
+        }
+      }
+      if ( nameToNamespaceDeclarationMap.isEmpty() )
+      {
+        return null;
+      }
+      
+      //
+      int length = 0;
+      for ( byte[] namespaceDeclaration : nameToNamespaceDeclarationMap.values() )
+      {
+        length += 1 + namespaceDeclaration.length;
+      }
+      final byte[] retval = new byte[length];
+      int position = 0;
+      for ( byte[] namespaceDeclaration : nameToNamespaceDeclarationMap.values() )
+      {
+        retval[position++] = ' ';
+        System.arraycopy( namespaceDeclaration, 0, retval, position, namespaceDeclaration.length );
+        position += namespaceDeclaration.length;
+      }
+      return retval;
+    }
+    
+    private boolean matches( long position, byte[] token ) throws IOException
+    {
+      //
+      for ( int ii = 0; ii < token.length; ii++ )
+      {
+        if ( !this.byteSource.isAvailable( position + ii ) || this.byteSource.get( position + ii ) != token[ii] )
+        {
+          return false;
+        }
+      }
+      
+      //
+      return true;
+    }
+    
+    /**
+     * Returns the position of the given token or a negative value if the token could not be found
+     * 
+     * @param position
+     * @param token
+     * @return
+     * @throws IOException
+     */
+    private long indexOf( long position, byte[] token ) throws IOException
+    {
+      //
+      for ( long ii = position; this.byteSource.isAvailable( ii ); ii++ )
+      {
+        if ( this.byteSource.get( ii ) == token[0] && this.matches( ii, token ) )
+        {
+          return ii;
+        }
+      }
+      
+      //
+      return Integer.MIN_VALUE;
+    }
+    
+    /**
+     * Returns the position of the closing '&gt;' of a tag, ignoring any quoted attribute value
+     * 
+     * @param position
+     * @return
+     * @throws IOException
+     */
+    private long skipTag( long position ) throws IOException
+    {
+      //
+      byte quote = 0;
+      for ( long ii = position; this.byteSource.isAvailable( ii ); ii++ )
+      {
+        //
+        final byte value = this.byteSource.get( ii );
+        if ( quote != 0 )
+        {
+          if ( value == quote )
+          {
+            quote = 0;
+          }
+        }
+        else if ( value == '"' || value == '\'' )
+        {
+          quote = value;
+        }
+        else if ( value == '>' )
+        {
+          return ii;
+        }
+      }
+      
+      //
+      return -1;
+    }
+    
+    /**
+     * Skips a declaration like &lt;!DOCTYPE ... &gt; including an internal subset in brackets
+     * 
+     * @param position
+     * @return
+     * @throws IOException
+     */
+    private long skipDeclaration( long position ) throws IOException
+    {
+      //
+      int bracketDepth = 0;
+      byte quote = 0;
+      for ( long ii = position; this.byteSource.isAvailable( ii ); ii++ )
+      {
+        //
+        final byte value = this.byteSource.get( ii );
+        if ( quote != 0 )
+        {
+          if ( value == quote )
+          {
+            quote = 0;
+          }
+        }
+        else if ( value == '"' || value == '\'' )
+        {
+          quote = value;
+        }
+        else if ( value == '[' )
+        {
+          bracketDepth++;
+        }
+        else if ( value == ']' )
+        {
+          bracketDepth--;
+        }
+        else if ( value == '>' && bracketDepth <= 0 )
+        {
+          return ii + 1;
+        }
+      }
+      
+      //
+      return -1;
+    }
+    
+    /**
+     * Returns true if the name between the given positions is equal to the tag name, with or without any namespace prefix if the
+     * tag name has no prefix itself
+     * 
+     * @param nameStart
+     * @param nameEnd
+     * @return
+     */
+    private boolean matchesTagName( long nameStart, long nameEnd )
+    {
+      //
+      final byte[] tagName = this.tagName;
+      final long length = nameEnd - nameStart;
+      final long localNameStart = nameEnd - tagName.length;
+      if ( length < tagName.length
+           || ( length > tagName.length && ( !this.matchAnyPrefix || this.byteSource.get( localNameStart - 1 ) != ':' ) ) )
+      {
+        return false;
+      }
+      
+      //
+      for ( int ii = 0; ii < tagName.length; ii++ )
+      {
+        if ( this.byteSource.get( localNameStart + ii ) != tagName[ii] )
+        {
+          return false;
+        }
+      }
+      
+      //
+      return true;
+    }
+    
+    /**
+     * @return the elementStart
+     */
+    public long getElementStart()
+    {
+      return this.elementStart;
+    }
+    
+    /**
+     * @return the position after the tag name of the start tag of the element
+     */
+    public long getElementNameEnd()
+    {
+      return this.elementNameEnd;
+    }
+    
+    /**
+     * @return the elementEnd
+     */
+    public long getElementEnd()
+    {
+      return this.elementEnd;
+    }
+    
+    /**
+     * @return the namespace declarations of the parental elements to be inserted at {@link #getElementNameEnd()} or null
+     */
+    public byte[] getNamespaceDeclarations()
+    {
+      return this.namespaceDeclarations;
+    }
+  }
+  
+  /**
+   * {@link Iterator} based on a {@link Scanner} which converts the found elements using an {@link ElementConverter}
+   * 
+   * @author Omnaest
+   * @param <E>
+   */
+  private static abstract class ScannerBasedIterator<E> implements Iterator<E>
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final Scanner          scanner;
+    private E                      next           = null;
+    private boolean                failed         = false;
+    private final Counter          elementCounter = MetricUtils.getMetricRegistry()
+                                                               .getCounter( XMLIteratorFactory.METRIC_NAME_ELEMENTS );
+    
+    /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
+    private final ExceptionHandler exceptionHandler;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see ScannerBasedIterator
+     * @param scanner
+     * @param exceptionHandler
+     */
+    public ScannerBasedIterator( Scanner scanner, ExceptionHandler exceptionHandler )
+    {
+      super();
+      this.scanner = scanner;
+      this.exceptionHandler = exceptionHandler;
+    }
+    
+    @Override
+    public synchronized boolean hasNext()
+    {
+      //
+      this.resolveNextElementIfUnresolved();
+      
+      //
+      return this.next != null;
+    }
+    
+    @Override
+    public synchronized E next()
+    {
+      //
+      this.resolveNextElementIfUnresolved();
+      
+      //
+      final E retval = this.next;
+      this.next = null;
+      
+      //
+      if ( retval == null )
+      {
+        throw new NoSuchElementException();
+      }
+      this.elementCounter.increment();
+      
+      //
+      return retval;
+    }
+    
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+    
+    private void resolveNextElementIfUnresolved()
+    {
+      //
+      if ( this.next == null )
+      {
+        try
+        {
+          if ( !this.failed && this.scanner.scanNextElement() )
+          {
+            final Scanner scanner = this.scanner;
+            this.next = this.newElement( scanner.getElementStart(), scanner.getElementEnd(), scanner.getElementNameEnd(),
+                                         scanner.getNamespaceDeclarations() );
+          }
+        }
+        catch ( Exception e )
+        {
+          this.failed = true;
+          this.exceptionHandler.handleException( e );
+        }
+      }
+    }
+    
+    /**
+     * Creates a new element for the range between the given positions
+     * 
+     * @param start
+     * @param end
+     * @param nameEnd
+     *          position after the tag name of the start tag
+     * @param namespaceDeclarations
+     *          bytes to be inserted at the nameEnd position or null
+     * @return
+     */
+    protected abstract E newElement( long start, long end, long nameEnd, byte[] namespaceDeclarations );
+  }
+  
+  /* *************************************************** Methods **************************************************** */
+  
+  /**
+   * @see XMLElementSplitter
+   * @param qName
+   *          {@link QName} whose local part and prefix is searched for
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}
+   */
+  public XMLElementSplitter( QName qName, ExceptionHandler exceptionHandler )
+  {
+    super();
+    Assert.isNotNull( qName, "qName must not be null" );
+    this.matchAnyPrefix = StringUtils.isEmpty( qName.getPrefix() );
+    this.tagName = ( this.matchAnyPrefix ? qName.getLocalPart() : qName.getPrefix() + ":" + qName.getLocalPart() ).getBytes( UTF8 );
+    this.exceptionHandler = ObjectUtils.defaultIfNull( exceptionHandler, new ExceptionHandlerIgnoring() );
+  }
+  
+  /**
+   * Similar to {@link #XMLElementSplitter(QName, ExceptionHandler)} using an {@link ExceptionHandlerIgnoring}
+   * 
+   * @see XMLElementSplitter
+   * @param qName
+   *          {@link QName}
+   */
+  public XMLElementSplitter( QName qName )
+  {
+    this( qName, new ExceptionHandlerIgnoring() );
+  }
+  
+  /**
+   * Returns a new {@link Iterator} over all matching elements within the remaining bytes of the given {@link ByteBuffer}. The
+   * returned {@link ByteBuffer}s share their content with the given {@link ByteBuffer}, no bytes are copied.
+   * 
+   * @param byteBuffer
+   *          {@link ByteBuffer}
+   * @return
+   */
+  public Iterator<ByteBuffer> newByteBufferIterator( ByteBuffer byteBuffer )
+  {
+    //
+    final ByteSourceByteBufferBased byteSource = new ByteSourceByteBufferBased( byteBuffer );
+    return new ScannerBasedIterator<ByteBuffer>( new Scanner( byteSource, this.tagName, this.matchAnyPrefix ), this.exceptionHandler )
+    {
+      @Override
+      protected ByteBuffer newElement( long start, long end, long nameEnd, byte[] namespaceDeclarations )
+      {
+        //
+        if ( namespaceDeclarations == null )
+        {
+          return byteSource.slice( start, end );
+        }
+        
+        //
+        final ByteBuffer retval = ByteBuffer.allocate( (int) ( end - start ) + namespaceDeclarations.length );
+        retval.put( byteSource.slice( start, nameEnd ) ).put( namespaceDeclarations ).put( byteSource.slice( nameEnd, end ) );
+        retval.flip();
+        return retval;
+      }
+    };
+  }
+  
+  /**
+   * Similar to {@link #newByteBufferIterator(ByteBuffer)} based on a memory mapped {@link File}. Files larger than
+   * {@link Integer#MAX_VALUE} bytes have to be processed using {@link #newIterator(InputStream)}.
+   * 
+   * @param file
+   *          {@link File}
+   * @return
+   * @throws IOException
+   */
+  public Iterator<ByteBuffer> newByteBufferIterator( File file ) throws IOException
+  {
+    //
+    final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+    try
+    {
+      //
+      final FileChannel fileChannel = randomAccessFile.getChannel();
+      Assert.isTrue( fileChannel.size() <= Integer.MAX_VALUE, "file must not be larger than " + Integer.MAX_VALUE + " bytes" );
+      return this.newByteBufferIterator( fileChannel.map( MapMode.READ_ONLY, 0, fileChannel.size() ) );
+    }
+    finally
+    {
+      randomAccessFile.close();
+    }
+  }
+  
+  /**
+   * Returns a new {@link Iterator} over all matching elements decoded as UTF-8 {@link String}s within the given memory mapped
+   * {@link File}
+   * 
+   * @see #newByteBufferIterator(File)
+   * @param file
+   *          {@link File}
+   * @return
+   * @throws IOException
+   */
+  public Iterator<String> newIterator( File file ) throws IOException
+  {
+    return IteratorUtils.adapter( this.newByteBufferIterator( file ), new ElementConverter<ByteBuffer, String>()
+    {
+      @Override
+      public String convert( ByteBuffer byteBuffer )
+      {
+        return UTF8.decode( byteBuffer ).toString();
+      }
+    } );
+  }
+  
+  /**
+   * Returns a new {@link Iterator} over all matching elements decoded as UTF-8 {@link String}s read from the given
+   * {@link InputStream}. The {@link InputStream} is read in blocks and only the bytes of the current element are kept in memory.
+   * The given {@link InputStream} is not closed.
+   * 
+   * @param inputStream
+   *          {@link InputStream}
+   * @return
+   */
+  public Iterator<String> newIterator( InputStream inputStream )
+  {
+    //
+    final ByteSourceInputStreamBased byteSource = new ByteSourceInputStreamBased( inputStream );
+    return new ScannerBasedIterator<String>( new Scanner( byteSource, this.tagName, this.matchAnyPrefix ), this.exceptionHandler )
+    {
+      @Override
+      protected String newElement( long start, long end, long nameEnd, byte[] namespaceDeclarations )
+      {
+        return namespaceDeclarations == null ? byteSource.toString( start, end )
+                                            : byteSource.toString( start, nameEnd ) + new String( namespaceDeclarations, UTF8 )
+                                              + byteSource.toString( nameEnd, end );
+      }
+    };
+  }
+  
+  /**
+   * Determines the encoding of a xml document from the byte order mark or the encoding attribute of the xml declaration within
+   * the given first bytes of the document. Returns UTF-8 if neither is present, as defined by the xml specification.
+   * 
+   * @param prolog
+   *          first bytes of the document
+   * @param length
+   *          number of valid bytes
+   * @return name of the encoding
+   */
+  static String determineEncoding( byte[] prolog, int length )
+  {
+    //
+    if ( length >= 3 && prolog[0] == (byte) 0xEF && prolog[1] == (byte) 0xBB && prolog[2] == (byte) 0xBF )
+    {
+      return "UTF-8";
+    }
+    if ( ( length >= 2 && ( ( prolog[0] == (byte) 0xFE && prolog[1] == (byte) 0xFF ) || ( prolog[0] == (byte) 0xFF && prolog[1] == (byte) 0xFE ) ) )
+         || ( length >= 1 && prolog[0] == 0 ) || ( length >= 2 && prolog[1] == 0 ) )
+    {
+      return "UTF-16";
+    }
+    
+    //
+    final String declaration = new String( prolog, 0, length, Charset.forName( "US-ASCII" ) );
+    if ( declaration.startsWith( "<?xml" ) )
+    {
+      //
+      final String attributes = StringUtils.substringBefore( declaration, "?>" );
+      final int encodingIndex = attributes.indexOf( "encoding" );
+      if ( encodingIndex >= 0 )
+      {
+        //
+        final String value = StringUtils.stripStart( StringUtils.stripStart( attributes.substring( encodingIndex
+                                                                                                   + "encoding".length() ),
+                                                                             null ).substring( 1 ), null );
+        if ( value.length() > 1 )
+        {
+          final String encoding = StringUtils.substringBefore( value.substring( 1 ), String.valueOf( value.charAt( 0 ) ) );
+          if ( StringUtils.isNotBlank( encoding ) )
+          {
+            return encoding;
+          }
+        }
+      }
+    }
+    
+    //
+    return "UTF-8";
+  }
+  
+  /**
+   * Returns true if the byte level splitting supports the given encoding, which is UTF-8 and US-ASCII
+   * 
+   * @param encoding
+   * @return
+   */
+  static boolean isSupportedEncoding( String encoding )
+  {
+    try
+    {
+      final Charset charset = Charset.forName( encoding );
+      return UTF8.equals( charset ) || Charset.forName( "US-ASCII" ).equals( charset );
+    }
+    catch ( Exception e )
+    {
+      return false;
+    }
+  }
+}
@@ -15,24 +15,35 @@
  ******************************************************************************/
 package org.omnaest.utils.xml;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.structure.container.ByteArrayContainer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
 /**
- * {@link XMLHelper} for {@link XPath} or {@link Document} based helper methods.
+ * {@link XMLHelper} for {@link XPath} or {@link Document} based helper methods.<br>
+ * <br>
+ * Compiled {@link XPathExpression}s and xslt {@link Templates} are cached with a bounded size, so repeated calls with the same
+ * expression or stylesheet do not compile again. See {@link #getCompilationStatistic()} for the number of compilations and
+ * cache hits.
  * 
  * @see JAXBXMLHelper
  * @see XMLIteratorFactory
@@ -41,7 +52,188 @@ import org.w3c.dom.Node;
  */
 public class XMLHelper
 {
+  /* ************************************************** Constants *************************************************** */
+  /** Maximum number of compiled {@link XPathExpression}s cached per {@link Thread} */
+  public static final int                            XPATH_EXPRESSION_CACHE_SIZE = 256;
+  /** Maximum number of compiled xslt {@link Templates} cached */
+  public static final int                            TEMPLATES_CACHE_SIZE        = 64;
+  
+  /* ************************************** Variables / State (internal/hiding) ************************************* */
+  private static final ThreadLocal<XPathCompiler>    xPathCompilerThreadLocal    = new ThreadLocal<XPathCompiler>()
+                                                                                 {
+                                                                                   @Override
+                                                                                   protected XPathCompiler initialValue()
+                                                                                   {
+                                                                                     return new XPathCompiler();
+                                                                                   }
+                                                                                 };
+  private static final Map<Object, Templates>        templatesCache              = new LeastRecentlyUsedMap<Object, Templates>(
+                                                                                                                               TEMPLATES_CACHE_SIZE );
+  private static final AtomicLong                    xPathCompilationCounter     = new AtomicLong();
+  private static final AtomicLong                    xPathCacheHitCounter        = new AtomicLong();
+  private static final AtomicLong                    templatesCompilationCounter = new AtomicLong();
+  private static final AtomicLong                    templatesCacheHitCounter    = new AtomicLong();
+  
   /* ********************************************** Classes/Interfaces ********************************************** */
+  /**
+   * Statistic about the compilations of {@link XPathExpression}s and {@link Templates} and the hits of their caches
+   * 
+   * @see XMLHelper#getCompilationStatistic()
+   * @author Omnaest
+   */
+  public static class CompilationStatistic
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final long xPathCompilations;
+    private final long xPathCacheHits;
+    private final long templatesCompilations;
+    private final long templatesCacheHits;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see CompilationStatistic
+     * @param xPathCompilations
+     * @param xPathCacheHits
+     * @param templatesCompilations
+     * @param templatesCacheHits
+     */
+    protected CompilationStatistic( long xPathCompilations, long xPathCacheHits, long templatesCompilations,
+                                    long templatesCacheHits )
+    {
+      super();
+      this.xPathCompilations = xPathCompilations;
+      this.xPathCacheHits = xPathCacheHits;
+      this.templatesCompilations = templatesCompilations;
+      this.templatesCacheHits = templatesCacheHits;
+    }
+    
+    /**
+     * @return number of compiled {@link XPathExpression}s
+     */
+    public long getXPathCompilations()
+    {
+      return this.xPathCompilations;
+    }
+    
+    /**
+     * @return number of {@link XPathExpression}s resolved from the cache
+     */
+    public long getXPathCacheHits()
+    {
+      return this.xPathCacheHits;
+    }
+    
+    /**
+     * @return number of compiled {@link Templates}
+     */
+    public long getTemplatesCompilations()
+    {
+      return this.templatesCompilations;
+    }
+    
+    /**
+     * @return number of {@link Templates} resolved from the cache
+     */
+    public long getTemplatesCacheHits()
+    {
+      return this.templatesCacheHits;
+    }
+    
+    @Override
+    public String toString()
+    {
+      StringBuilder builder = new StringBuilder();
+      builder.append( "CompilationStatistic [xPathCompilations=" );
+      builder.append( this.xPathCompilations );
+      builder.append( ", xPathCacheHits=" );
+      builder.append( this.xPathCacheHits );
+      builder.append( ", templatesCompilations=" );
+      builder.append( this.templatesCompilations );
+      builder.append( ", templatesCacheHits=" );
+      builder.append( this.templatesCacheHits );
+      builder.append( "]" );
+      return builder.toString();
+    }
+  }
+  
+  /**
+   * {@link LinkedHashMap} in access order which removes the least recently used entry if the maximum size is exceeded
+   * 
+   * @author Omnaest
+   * @param <K>
+   * @param <V>
+   */
+  private static class LeastRecentlyUsedMap<K, V> extends LinkedHashMap<K, V>
+  {
+    /* ************************************************** Constants *************************************************** */
+    private static final long serialVersionUID = -2454069829513412658L;
+    
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final int         maximumSize;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see LeastRecentlyUsedMap
+     * @param maximumSize
+     */
+    public LeastRecentlyUsedMap( int maximumSize )
+    {
+      super( 16, 0.75f, true );
+      this.maximumSize = maximumSize;
+    }
+    
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<K, V> eldest )
+    {
+      return this.size() > this.maximumSize;
+    }
+  }
+  
+  /**
+   * Holds a {@link XPath} instance and its compiled {@link XPathExpression}s, since both are not thread safe and have to be
+   * bound to a single {@link Thread}
+   * 
+   * @author Omnaest
+   */
+  private static class XPathCompiler
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final XPath                        xPath                = XPathFactory.newInstance().newXPath();
+    private final Map<String, XPathExpression> xPathExpressionCache = new LeastRecentlyUsedMap<String, XPathExpression>(
+                                                                                                                     XPATH_EXPRESSION_CACHE_SIZE );
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * Returns the compiled {@link XPathExpression} from the cache or compiles it
+     * 
+     * @param xPathExpression
+     * @return
+     * @throws XPathExpressionException
+     */
+    public XPathExpression compile( String xPathExpression ) throws XPathExpressionException
+    {
+      //
+      XPathExpression retval = this.xPathExpressionCache.get( xPathExpression );
+      if ( retval == null )
+      {
+        //
+        retval = this.xPath.compile( xPathExpression );
+        this.xPathExpressionCache.put( xPathExpression, retval );
+        xPathCompilationCounter.incrementAndGet();
+      }
+      else
+      {
+        xPathCacheHitCounter.incrementAndGet();
+      }
+      
+      //
+      return retval;
+    }
+  }
+  
   /**
    * Configuration for an {@link TransformerFactory}
    * 
@@ -139,10 +331,10 @@ public class XMLHelper
     Node retval = null;
     
     //
-    final XPath xPath = XPathFactory.newInstance().newXPath();
     try
     {
-      retval = (Node) xPath.evaluate( xPathExpression, node, XPathConstants.NODE );
+      final XPathExpression compiledXPathExpression = compileXPathExpression( xPathExpression );
+      retval = (Node) compiledXPathExpression.evaluate( node, XPathConstants.NODE );
     }
     catch ( XPathExpressionException e )
     {
@@ -156,6 +348,67 @@ public class XMLHelper
     return retval;
   }
   
+  /**
+   * Similar to {@link #select(String, Node, ExceptionHandler)} using an already compiled {@link XPathExpression}. Since an
+   * {@link XPathExpression} is not thread safe, it must not be used by multiple {@link Thread}s at the same time.
+   * 
+   * @see #compileXPathExpression(String)
+   * @param xPathExpression
+   *          {@link XPathExpression}
+   * @param node
+   *          {@link Node}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}
+   * @return
+   */
+  public static Node select( XPathExpression xPathExpression, Node node, ExceptionHandler exceptionHandler )
+  {
+    //
+    Node retval = null;
+    
+    //
+    try
+    {
+      retval = (Node) xPathExpression.evaluate( node, XPathConstants.NODE );
+    }
+    catch ( XPathExpressionException e )
+    {
+      if ( exceptionHandler != null )
+      {
+        exceptionHandler.handleException( e );
+      }
+    }
+    
+    //
+    return retval;
+  }
+  
+  /**
+   * Returns the compiled {@link XPathExpression} for the given expression {@link String}. The compiled {@link XPathExpression}s
+   * are cached for the current {@link Thread}, up to {@value #XPATH_EXPRESSION_CACHE_SIZE} expressions. The returned
+   * {@link XPathExpression} must only be used by the current {@link Thread}.
+   * 
+   * @param xPathExpression
+   * @return
+   * @throws XPathExpressionException
+   */
+  public static XPathExpression compileXPathExpression( String xPathExpression ) throws XPathExpressionException
+  {
+    return xPathCompilerThreadLocal.get().compile( xPathExpression );
+  }
+  
+  /**
+   * Returns the {@link CompilationStatistic} of all compiled {@link XPathExpression}s and {@link Templates} since the class has
+   * been loaded
+   * 
+   * @return new {@link CompilationStatistic}
+   */
+  public static CompilationStatistic getCompilationStatistic()
+  {
+    return new CompilationStatistic( xPathCompilationCounter.get(), xPathCacheHitCounter.get(),
+                                     templatesCompilationCounter.get(), templatesCacheHitCounter.get() );
+  }
+  
   /**
    * Facade for {@link XMLNestedMapConverter#newMapFromXML(CharSequence)}
    * 
@@ -169,7 +422,8 @@ public class XMLHelper
   
   /**
    * Uses the default {@link TransformerFactory} to transform the given xml {@link StreamSource} using the given xslt
-   * {@link StreamSource} into the {@link StreamResult}
+   * {@link StreamSource} into the {@link StreamResult}. The compiled {@link Templates} of the xslt are cached, see
+   * {@link #newTemplates(StreamSource, ExceptionHandler, XSLTransformerConfiguration)}.
    * 
    * @param xslt
    *          {@link StreamSource}
@@ -187,24 +441,41 @@ public class XMLHelper
                                 StreamResult result,
                                 ExceptionHandler exceptionHandler,
                                 XSLTransformerConfiguration xslTransformerConfiguration )
+  {
+    //
+    final Templates templates = newTemplates( xslt, exceptionHandler, xslTransformerConfiguration );
+    if ( templates != null )
+    {
+      transform( templates, xml, result, exceptionHandler, xslTransformerConfiguration );
+    }
+  }
+  
+  /**
+   * Similar to {@link #transform(StreamSource, StreamSource, StreamResult, ExceptionHandler, XSLTransformerConfiguration)} using
+   * already compiled {@link Templates}. Only the output properties and parameters of the {@link XSLTransformerConfiguration}
+   * are used.
+   * 
+   * @see #newTemplates(StreamSource, ExceptionHandler, XSLTransformerConfiguration)
+   * @param templates
+   *          {@link Templates}
+   * @param xml
+   *          {@link StreamSource}
+   * @param result
+   *          {@link StreamResult}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}
+   * @param xslTransformerConfiguration
+   *          {@link XSLTransformerConfiguration}
+   */
+  public static void transform( Templates templates,
+                                StreamSource xml,
+                                StreamResult result,
+                                ExceptionHandler exceptionHandler,
+                                XSLTransformerConfiguration xslTransformerConfiguration )
   {
     try
     {
-      final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-      if ( xslTransformerConfiguration != null )
-      {
-        final Map<String, Object> attributeMap = xslTransformerConfiguration.getAttributeMap();
-        if ( attributeMap != null )
-        {
-          for ( String name : attributeMap.keySet() )
-          {
-            final Object value = attributeMap.get( name );
-            transformerFactory.setAttribute( name, value );
-          }
-        }
-      }
-      
-      final Transformer transformer = transformerFactory.newTransformer( xslt );
+      final Transformer transformer = templates.newTransformer();
       if ( xslTransformerConfiguration != null )
       {
         final Map<String, String> outputPropertyMap = xslTransformerConfiguration.getOutputPropertyMap();
@@ -238,4 +509,106 @@ public class XMLHelper
       }
     }
   }
+  
+  /**
+   * Returns the compiled {@link Templates} for the given xslt {@link StreamSource}. {@link Templates} are thread safe and are
+   * cached for up to {@value #TEMPLATES_CACHE_SIZE} stylesheets. The cache key is the content of the given {@link StreamSource}
+   * , or its system id if it does not provide an {@link java.io.InputStream} or {@link java.io.Reader}, together with its system
+   * id and the attributes of the {@link XSLTransformerConfiguration}. The system id is always part of the key, since relative
+   * includes and imports of the stylesheet are resolved against it.
+   * 
+   * @param xslt
+   *          {@link StreamSource}
+   * @param exceptionHandler
+   *          {@link ExceptionHandler}
+   * @param xslTransformerConfiguration
+   *          {@link XSLTransformerConfiguration}
+   * @return {@link Templates} or null if the compilation fails
+   */
+  public static Templates newTemplates( StreamSource xslt,
+                                        ExceptionHandler exceptionHandler,
+                                        XSLTransformerConfiguration xslTransformerConfiguration )
+  {
+    //
+    Templates retval = null;
+    
+    //
+    try
+    {
+      //
+      final Map<String, Object> attributeMap = xslTransformerConfiguration != null ? xslTransformerConfiguration.getAttributeMap()
+                                                                                  : null;
+      
+      //
+      StreamSource source = xslt;
+      final String systemId = xslt.getSystemId();
+      Object content = systemId;
+      if ( xslt.getInputStream() != null )
+      {
+        final byte[] bytes = new ByteArrayContainer().copyFrom( xslt.getInputStream() ).getContent();
+        content = ByteBuffer.wrap( bytes );
+        source = new StreamSource( new ByteArrayContainer( bytes ).getInputStream(), systemId );
+      }
+      else if ( xslt.getReader() != null )
+      {
+        final String characters = new ByteArrayContainer().copyFrom( xslt.getReader() ).toString();
+        content = characters;
+        source = new StreamSource( new ByteArrayContainer( characters ).getReader(), systemId );
+      }
+      
+      //
+      final Object key = content != null ? Arrays.asList( content, systemId,
+                                                          attributeMap != null ? new HashMap<String, Object>( attributeMap ) : null )
+                                        : null;
+      if ( key != null )
+      {
+        synchronized ( templatesCache )
+        {
+          retval = templatesCache.get( key );
+        }
+      }
+      
+      //
+      if ( retval != null )
+      {
+        templatesCacheHitCounter.incrementAndGet();
+      }
+      else
+      {
+        //
+        final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+        if ( attributeMap != null )
+        {
+          for ( String name : attributeMap.keySet() )
+          {
+            final Object value = attributeMap.get( name );
+            transformerFactory.setAttribute( name, value );
+          }
+        }
+        
+        //
+        retval = transformerFactory.newTemplates( source );
+        templatesCompilationCounter.incrementAndGet();
+        
+        //
+        if ( key != null && retval != null )
+        {
+          synchronized ( templatesCache )
+          {
+            templatesCache.put( key, retval );
+          }
+        }
+      }
+    }
+    catch ( Exception e )
+    {
+      if ( exceptionHandler != null )
+      {
+        exceptionHandler.handleException( e );
+      }
+    }
+    
+    //
+    return retval;
+  }
 }
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package org.omnaest.utils.xml;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -24,6 +26,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
 import javax.sql.rowset.spi.XmlReader;
@@ -47,6 +63,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricSnapshot;
+import org.omnaest.utils.metrics.MetricUtils;
 import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.container.ByteArrayContainer;
 import org.omnaest.utils.structure.element.ElementHolder;
@@ -144,11 +164,18 @@ import org.omnaest.utils.xml.exception.MissingXMLRootElementAnnotationException;
  * </ul>
  * <br>
  * <br>
+ * The conversion of the xml content chunks can be done in parallel by setting a {@link ParallelConversionConfiguration} using
+ * {@link #setParallelConversionConfiguration(ParallelConversionConfiguration)}. <br>
+ * <br>
  * If the {@link XMLIteratorFactory} should only operate on a subset of xml tags within a larger stream the concept of sopes is
  * available, which can be instrumented by calling {@link #doAddXMLTagScope(QName)}.<br>
  * If no scope's start tag is passed no reading of events will occur and the reading into a single {@link Iterator} will stop
- * immediately when an end tag of a scope is matched.
+ * immediately when an end tag of a scope is matched.<br>
+ * <br>
+ * Every xml content chunk returned by an {@link Iterator} increments the {@link Counter} {@value #METRIC_NAME_ELEMENTS} of the
+ * global {@link MetricRegistry}, so the number of elements per second can be derived from {@link MetricSnapshot}s.
  * 
+ * @see MetricUtils#setMetricRegistry(MetricRegistry)
  * @author Omnaest
  */
 public class XMLIteratorFactory
@@ -156,6 +183,7 @@ public class XMLIteratorFactory
   
   /* ************************************************** Constants *************************************************** */
   public static final String                          DEFAULT_ENCODING                               = "UTF-8";
+  public static final String                          METRIC_NAME_ELEMENTS                           = "xml.iterator.elements";
   
   private final Factory<Accessor<String>>             SIMPLE_ACCESSOR_FACTORY                        = new Factory<Accessor<String>>()
                                                                                                      {
@@ -188,6 +216,7 @@ public class XMLIteratorFactory
                                                                                                      };
   /* ************************************** Variables / State (internal/hiding) ************************************* */
   private final CachedElement<XMLEventReader>         xmlEventReaderCache;
+  private final InputStream                           inputStream;
   private final TraversalContextControl               traversalContextControl;
   private final List<XMLEventTransformer>             xmlEventTransformerList;
   private final List<Scope>                           scopeList;
@@ -196,6 +225,8 @@ public class XMLIteratorFactory
   private Factory<Accessor<String>>                   accessorFactory                                = null;
   private String                                      encoding                                       = XMLIteratorFactory.DEFAULT_ENCODING;
   private JAXBTypeContentConverterFactory             jaxbTypeContentConverterFactory                = DEFAULT_JAXB_TYPE_CONTENT_CONVERTER_FACTORY;
+  private ParallelConversionConfiguration             parallelConversionConfiguration                = null;
+  private boolean                                     byteLevelSplitting                             = false;
   
   /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
   private final ExceptionHandler                      exceptionHandler;
@@ -258,6 +289,121 @@ public class XMLIteratorFactory
     }
   }
   
+  /**
+   * Configuration of the pipelined parallel conversion mode of the {@link XMLIteratorFactory}. If set using
+   * {@link XMLIteratorFactory#setParallelConversionConfiguration(ParallelConversionConfiguration)} one single {@link Thread} scans
+   * the xml stream and cuts out the xml content chunks, whereby the conversion of those chunks by the {@link ElementConverter} is
+   * done in parallel by multiple {@link Thread}s.<br>
+   * <br>
+   * If no {@link ExecutorService} is given an internal one with {@link #getNumberOfThreads()} daemon {@link Thread}s is created for
+   * each {@link Iterator} and shut down as soon as the xml stream is fully scanned.<br>
+   * <br>
+   * The returned {@link Iterator}s implement {@link Closeable}. An {@link Iterator} which is not iterated to its end should be
+   * closed, which stops the scanning {@link Thread} and cancels all pending conversions.
+   * 
+   * @see XMLIteratorFactory#setParallelConversionConfiguration(ParallelConversionConfiguration)
+   * @author Omnaest
+   */
+  public static class ParallelConversionConfiguration
+  {
+    /* ************************************************** Constants *************************************************** */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private ExecutorService executorService    = null;
+    private int             numberOfThreads    = Runtime.getRuntime().availableProcessors();
+    private int             queueSize          = DEFAULT_QUEUE_SIZE;
+    private boolean         preserveOrder      = true;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @return the executorService
+     */
+    public ExecutorService getExecutorService()
+    {
+      return this.executorService;
+    }
+    
+    /**
+     * Sets the {@link ExecutorService} used to convert the xml content chunks. If null an internal {@link ExecutorService} is
+     * created. A given {@link ExecutorService} is not shut down.
+     * 
+     * @param executorService
+     *          {@link ExecutorService}
+     * @return this
+     */
+    public ParallelConversionConfiguration setExecutorService( ExecutorService executorService )
+    {
+      this.executorService = executorService;
+      return this;
+    }
+    
+    /**
+     * @return the numberOfThreads
+     */
+    public int getNumberOfThreads()
+    {
+      return this.numberOfThreads;
+    }
+    
+    /**
+     * Sets the number of {@link Thread}s of the internal {@link ExecutorService}. Default is the number of available processors.
+     * Has no effect if an {@link ExecutorService} is given.
+     * 
+     * @param numberOfThreads
+     * @return this
+     */
+    public ParallelConversionConfiguration setNumberOfThreads( int numberOfThreads )
+    {
+      this.numberOfThreads = numberOfThreads;
+      return this;
+    }
+    
+    /**
+     * @return the queueSize
+     */
+    public int getQueueSize()
+    {
+      return this.queueSize;
+    }
+    
+    /**
+     * Sets the maximum number of xml content chunks which are in conversion or are converted but not yet pulled from the
+     * {@link Iterator}. If the limit is reached the scanning {@link Thread} blocks. Default is {@value #DEFAULT_QUEUE_SIZE}
+     * 
+     * @param queueSize
+     * @return this
+     */
+    public ParallelConversionConfiguration setQueueSize( int queueSize )
+    {
+      this.queueSize = queueSize;
+      return this;
+    }
+    
+    /**
+     * @return the preserveOrder
+     */
+    public boolean isPreserveOrder()
+    {
+      return this.preserveOrder;
+    }
+    
+    /**
+     * If set to false the converted elements are returned in the order their conversion finishes, which avoids that a slow
+     * conversion holds back the already converted elements. Default is true.
+     * 
+     * @param preserveOrder
+     * @return this
+     */
+    public ParallelConversionConfiguration setPreserveOrder( boolean preserveOrder )
+    {
+      this.preserveOrder = preserveOrder;
+      return this;
+    }
+    
+  }
+  
   /**
    * @see XMLIteratorFactory
    * @author Omnaest
@@ -268,6 +414,7 @@ public class XMLIteratorFactory
     /* ********************************************** Variables ********************************************** */
     private final Accessor<String>          nextElementAccessor;
     private final NamespaceStack            namespaceStack = new NamespaceStack();
+    private final Counter                   elementCounter = MetricUtils.getMetricRegistry().getCounter( METRIC_NAME_ELEMENTS );
     
     /* ********************************************** Beans / Services / References / Delegation ********************************************** */
     private final Accessor<String>          accessor;
@@ -347,6 +494,7 @@ public class XMLIteratorFactory
       {
         throw new NoSuchElementException();
       }
+      this.elementCounter.increment();
       
       //
       return retval;
@@ -546,6 +694,282 @@ public class XMLIteratorFactory
     }
   }
   
+  /**
+   * {@link Iterator} which pulls the xml content chunks of a given {@link Iterator} within a single scanning {@link Thread} and
+   * converts them in parallel using an {@link ExecutorService}. The converted elements are passed back through a bounded queue,
+   * which means the scanning {@link Thread} blocks if the consumer of this {@link Iterator} does not pull the elements fast
+   * enough. {@link #close()} stops the scanning {@link Thread} and cancels the pending conversions.
+   * 
+   * @see ParallelConversionConfiguration
+   * @author Omnaest
+   * @param <E>
+   */
+  protected static final class XMLParallelConversionIterator<E> implements Iterator<E>, Closeable
+  {
+    /* ************************************** Variables / State (internal/hiding) ************************************* */
+    private final Future<E>                  END_OF_STREAM        = new FutureTask<E>( new Callable<E>()
+                                                                  {
+                                                                    @Override
+                                                                    public E call() throws Exception
+                                                                    {
+                                                                      return null;
+                                                                    }
+                                                                  } );
+    private final BlockingQueue<Future<E>> futureQueue;
+    private final Semaphore                  inProgressSemaphore;
+    private final AtomicInteger              submittedCounter     = new AtomicInteger();
+    private int                              pulledCounter        = 0;
+    private boolean                          hasReachedEndOfStream = false;
+    private boolean                          hasResolvedNext      = false;
+    private E                                next                 = null;
+    private volatile boolean                 closed               = false;
+    private final Thread                     scannerThread;
+    
+    /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
+    private final ExceptionHandler           exceptionHandler;
+    private final boolean                    preserveOrder;
+    private final ExecutorService            executorService;
+    private final boolean                    isInternalExecutorService;
+    
+    /* *************************************************** Methods **************************************************** */
+    
+    /**
+     * @see XMLParallelConversionIterator
+     * @param iterator
+     * @param elementConverter
+     * @param parallelConversionConfiguration
+     * @param exceptionHandler
+     */
+    protected XMLParallelConversionIterator( final Iterator<String> iterator, final ElementConverter<String, E> elementConverter,
+                                             final ParallelConversionConfiguration parallelConversionConfiguration,
+                                             final ExceptionHandler exceptionHandler )
+    {
+      super();
+      this.exceptionHandler = exceptionHandler;
+      this.preserveOrder = parallelConversionConfiguration.isPreserveOrder();
+      
+      //
+      final int queueSize = Math.max( 1, parallelConversionConfiguration.getQueueSize() );
+      final boolean isInternalExecutorService = parallelConversionConfiguration.getExecutorService() == null;
+      final ExecutorService executorService = isInternalExecutorService ? Executors.newFixedThreadPool( Math.max( 1,
+                                                                                                                  parallelConversionConfiguration.getNumberOfThreads() ),
+                                                                                                        new ThreadFactory()
+                                                                                                        {
+                                                                                                          private final AtomicInteger threadCounter = new AtomicInteger();
+                                                                                                          
+                                                                                                          @Override
+                                                                                                          public Thread newThread( Runnable runnable )
+                                                                                                          {
+                                                                                                            final Thread thread = new Thread(
+                                                                                                                                              runnable,
+                                                                                                                                              XMLIteratorFactory.class.getSimpleName()
+                                                                                                                                                  + "-converter-"
+                                                                                                                                                  + this.threadCounter.incrementAndGet() );
+                                                                                                            thread.setDaemon( true );
+                                                                                                            return thread;
+                                                                                                          }
+                                                                                                        } )
+                                                                       : parallelConversionConfiguration.getExecutorService();
+      this.executorService = executorService;
+      this.isInternalExecutorService = isInternalExecutorService;
+      
+      //
+      this.futureQueue = this.preserveOrder ? new ArrayBlockingQueue<Future<E>>( queueSize )
+                                           : new LinkedBlockingQueue<Future<E>>();
+      this.inProgressSemaphore = this.preserveOrder ? null : new Semaphore( queueSize );
+      final CompletionService<E> completionService = this.preserveOrder ? null
+                                                                       : new ExecutorCompletionService<E>( executorService,
+                                                                                                           this.futureQueue );
+      
+      //
+      final Runnable scanner = new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            //
+            while ( iterator.hasNext() )
+            {
+              //
+              final String element = iterator.next();
+              final Callable<E> conversion = new Callable<E>()
+              {
+                @Override
+                public E call() throws Exception
+                {
+                  return elementConverter.convert( element );
+                }
+              };
+              
+              //
+              if ( XMLParallelConversionIterator.this.preserveOrder )
+              {
+                XMLParallelConversionIterator.this.futureQueue.put( executorService.submit( conversion ) );
+              }
+              else
+              {
+                XMLParallelConversionIterator.this.inProgressSemaphore.acquire();
+                completionService.submit( conversion );
+              }
+              XMLParallelConversionIterator.this.submittedCounter.incrementAndGet();
+            }
+          }
+          catch ( InterruptedException e )
+          {
+            Thread.currentThread().interrupt();
+          }
+          catch ( Exception e )
+          {
+            if ( !XMLParallelConversionIterator.this.closed )
+            {
+              XMLParallelConversionIterator.this.exceptionHandler.handleException( e );
+            }
+          }
+          finally
+          {
+            //
+            if ( isInternalExecutorService )
+            {
+              executorService.shutdown();
+            }
+            
+            //
+            if ( !XMLParallelConversionIterator.this.closed )
+            {
+              try
+              {
+                XMLParallelConversionIterator.this.futureQueue.put( XMLParallelConversionIterator.this.END_OF_STREAM );
+              }
+              catch ( InterruptedException e )
+              {
+                if ( !XMLParallelConversionIterator.this.closed )
+                {
+                  XMLParallelConversionIterator.this.exceptionHandler.handleException( e );
+                }
+              }
+            }
+          }
+        }
+      };
+      
+      //
+      this.scannerThread = new Thread( scanner, XMLIteratorFactory.class.getSimpleName() + "-scanner" );
+      this.scannerThread.setDaemon( true );
+      this.scannerThread.start();
+    }
+    
+    /**
+     * Stops the scanning {@link Thread}, cancels all pending conversions and shuts down the internal {@link ExecutorService}
+     * immediately. A given {@link ExecutorService} is not shut down. After closing no further elements are returned, except an
+     * element which has already been resolved by {@link #hasNext()}.
+     */
+    @Override
+    public void close()
+    {
+      //
+      this.closed = true;
+      this.scannerThread.interrupt();
+      if ( this.isInternalExecutorService )
+      {
+        this.executorService.shutdownNow();
+      }
+      
+      //
+      for ( Future<E> future = this.futureQueue.poll(); future != null; future = this.futureQueue.poll() )
+      {
+        future.cancel( true );
+      }
+      
+      // wakes up a consumer waiting for the next element
+      this.futureQueue.offer( this.END_OF_STREAM );
+    }
+    
+    @Override
+    public synchronized boolean hasNext()
+    {
+      //
+      this.resolveNextElementIfUnresolved();
+      
+      //
+      return this.hasResolvedNext;
+    }
+    
+    @Override
+    public synchronized E next()
+    {
+      //
+      this.resolveNextElementIfUnresolved();
+      
+      //
+      if ( !this.hasResolvedNext )
+      {
+        throw new NoSuchElementException();
+      }
+      
+      //
+      final E retval = this.next;
+      this.next = null;
+      this.hasResolvedNext = false;
+      return retval;
+    }
+    
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+    
+    private void resolveNextElementIfUnresolved()
+    {
+      //
+      while ( !this.closed && !this.hasResolvedNext
+              && !( this.hasReachedEndOfStream && ( this.preserveOrder || this.pulledCounter >= this.submittedCounter.get() ) ) )
+      {
+        try
+        {
+          //
+          final Future<E> future = this.futureQueue.take();
+          if ( this.closed )
+          {
+            future.cancel( true );
+          }
+          else if ( future == this.END_OF_STREAM )
+          {
+            this.hasReachedEndOfStream = true;
+          }
+          else
+          {
+            //
+            this.pulledCounter++;
+            if ( !this.preserveOrder )
+            {
+              this.inProgressSemaphore.release();
+            }
+            
+            //
+            try
+            {
+              this.next = future.get();
+              this.hasResolvedNext = true;
+            }
+            catch ( ExecutionException e )
+            {
+              this.exceptionHandler.handleException( e );
+            }
+          }
+        }
+        catch ( InterruptedException e )
+        {
+          Thread.currentThread().interrupt();
+          this.exceptionHandler.handleException( e );
+          break;
+        }
+      }
+    }
+  }
+  
   /**
    * @author Omnaest
    */
@@ -1346,7 +1770,8 @@ public class XMLIteratorFactory
     this.xmlEventTransformerList = new ArrayList<XMLEventTransformer>();
     this.exceptionHandler = ObjectUtils.defaultIfNull( exceptionHandler, new ExceptionHandlerIgnoring() );
     this.xmlInstanceContextFactory = XMLIteratorFactory.XML_INSTANCE_CONTEXT_FACTORY_JAVA_STAX_DEFAULT;
-    this.xmlEventReaderCache = this.newXmlEventReaderCache( inputStream, exceptionHandler );
+    this.inputStream = inputStream == null || inputStream.markSupported() ? inputStream : new BufferedInputStream( inputStream );
+    this.xmlEventReaderCache = this.newXmlEventReaderCache( this.inputStream, exceptionHandler );
     this.scopeList = new ArrayList<Scope>();
     this.touchBarrierList = new ArrayList<TouchBarrier>();
     this.traversalContextControl = new TraversalContextControl();
@@ -1400,22 +1825,27 @@ public class XMLIteratorFactory
   /**
    * @see XMLIteratorFactory
    * @param xmlEventReaderCache
+   * @param inputStream
    * @param xmlInstanceContextFactory
    * @param xmlTransformerList
    * @param exceptionHandler
    * @param scopeList
    * @param touchBarrierList
    * @param jaxbTypeContentConverterFactory
+   * @param parallelConversionConfiguration
+   * @param byteLevelSplitting
    * @param traversalControl
    */
-  private XMLIteratorFactory( CachedElement<XMLEventReader> xmlEventReaderCache,
+  private XMLIteratorFactory( CachedElement<XMLEventReader> xmlEventReaderCache, InputStream inputStream,
                               XMLInstanceContextFactory xmlInstanceContextFactory, List<XMLEventTransformer> xmlTransformerList,
                               ExceptionHandler exceptionHandler, List<Scope> scopeList, List<TouchBarrier> touchBarrierList,
                               TraversalContextControl traversalContextControl,
-                              JAXBTypeContentConverterFactory jaxbTypeContentConverterFactory )
+                              JAXBTypeContentConverterFactory jaxbTypeContentConverterFactory,
+                              ParallelConversionConfiguration parallelConversionConfiguration, boolean byteLevelSplitting )
   {
     super();
     this.xmlEventReaderCache = xmlEventReaderCache;
+    this.inputStream = inputStream;
     this.xmlEventTransformerList = xmlTransformerList;
     this.exceptionHandler = exceptionHandler;
     this.scopeList = scopeList;
@@ -1423,6 +1853,8 @@ public class XMLIteratorFactory
     this.traversalContextControl = traversalContextControl;
     this.xmlInstanceContextFactory = xmlInstanceContextFactory;
     this.jaxbTypeContentConverterFactory = jaxbTypeContentConverterFactory;
+    this.parallelConversionConfiguration = parallelConversionConfiguration;
+    this.byteLevelSplitting = byteLevelSplitting;
   }
   
   /**
@@ -1479,10 +1911,11 @@ public class XMLIteratorFactory
     //
     if ( xmlEventTransformer != null )
     {
-      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.xmlInstanceContextFactory,
+      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.inputStream, this.xmlInstanceContextFactory,
                                        ListUtils.addToNewList( this.xmlEventTransformerList, xmlEventTransformer ),
                                        this.exceptionHandler, this.scopeList, this.touchBarrierList,
-                                       this.traversalContextControl, this.jaxbTypeContentConverterFactory );
+                                       this.traversalContextControl, this.jaxbTypeContentConverterFactory,
+                                       this.parallelConversionConfiguration, this.byteLevelSplitting );
     }
     
     //
@@ -1515,9 +1948,10 @@ public class XMLIteratorFactory
     {
       //
       final Scope scope = new Scope( tagName );
-      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.xmlInstanceContextFactory, this.xmlEventTransformerList,
+      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.inputStream, this.xmlInstanceContextFactory, this.xmlEventTransformerList,
                                        this.exceptionHandler, ListUtils.addToNewList( this.scopeList, scope ),
-                                       this.touchBarrierList, this.traversalContextControl, this.jaxbTypeContentConverterFactory );
+                                       this.touchBarrierList, this.traversalContextControl, this.jaxbTypeContentConverterFactory,
+                                       this.parallelConversionConfiguration, this.byteLevelSplitting );
     }
     
     //
@@ -1546,10 +1980,11 @@ public class XMLIteratorFactory
     {
       //
       final TouchBarrier touchBarrier = new TouchBarrier( tagName );
-      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.xmlInstanceContextFactory, this.xmlEventTransformerList,
+      retval = new XMLIteratorFactory( this.xmlEventReaderCache, this.inputStream, this.xmlInstanceContextFactory, this.xmlEventTransformerList,
                                        this.exceptionHandler, this.scopeList, ListUtils.addToNewList( this.touchBarrierList,
                                                                                                       touchBarrier ),
-                                       this.traversalContextControl, this.jaxbTypeContentConverterFactory );
+                                       this.traversalContextControl, this.jaxbTypeContentConverterFactory,
+                                       this.parallelConversionConfiguration, this.byteLevelSplitting );
     }
     
     //
@@ -1585,11 +2020,34 @@ public class XMLIteratorFactory
     return this;
   }
   
+  /**
+   * If given true as parameter all {@link Iterator}s selecting elements by a {@link QName}, like {@link #newIterator(QName)},
+   * {@link #newIteratorMapBased(QName)} or {@link #newIterator(QName, ElementConverter)}, will use the {@link XMLElementSplitter}
+   * which scans the raw bytes of the stream instead of using StAX, as long as the {@link QName} has no namespace and no prefix,
+   * the document is UTF-8 or US-ASCII encoded and no {@link XMLEventTransformer}s, scopes or touch barriers are configured.
+   * Otherwise the StAX based traversal is used.<br>
+   * <br>
+   * The {@link XMLElementSplitter} returns the raw xml content chunks without xml declaration, but with the namespace
+   * declarations of parental elements added. It reads the stream until its end, so only one {@link Iterator} can be created from
+   * the stream.
+   * 
+   * @see XMLElementSplitter
+   * @param byteLevelSplitting
+   * @return this
+   */
+  public XMLIteratorFactory doUseByteLevelSplitting( boolean byteLevelSplitting )
+  {
+    this.byteLevelSplitting = byteLevelSplitting;
+    return this;
+  }
+  
   /**
    * New {@link Iterator} which returns xml content chunks for all xml tags matching the given {@link QName} <br>
    * <br>
-   * Performance is fast with about <b>10000 elements per second</b> beeing processed
+   * Performance is fast with about <b>10000 elements per second</b> beeing processed. Using {@link #doUseByteLevelSplitting(boolean)}
+   * this can be improved for simple element selections.
    * 
+   * @see #doUseByteLevelSplitting(boolean)
    * @see #newIterator(QName, ElementConverter)
    * @param qName
    *          {@link QName}
@@ -1648,11 +2106,81 @@ public class XMLIteratorFactory
    */
   public <E> Iterator<E> newIterator( final QName qName, ElementConverter<String, E> elementConverter )
   {
+    //
+    if ( this.isByteLevelSplittingApplicable( qName ) )
+    {
+      final Iterator<String> iterator = new XMLElementSplitter( qName, this.exceptionHandler ).newIterator( this.inputStream );
+      return this.newConvertingIterator( iterator, elementConverter );
+    }
+    
     //    
     final XMLElementSelector xmlElementSelector = new XMLElementSelectorQNameBased( qName );
     return newIterator( xmlElementSelector, elementConverter );
   }
   
+  /**
+   * Returns true if the {@link XMLElementSplitter} can be used instead of the StAX based traversal. This requires that
+   * {@link #doUseByteLevelSplitting(boolean)} is activated, the given {@link QName} has no namespace and no prefix, no
+   * {@link XMLEventTransformer}s, scopes or touch barriers are configured, no other {@link Iterator} has already read from the
+   * underlying stream and the document has an encoding supported by the {@link XMLElementSplitter}.
+   * 
+   * @param qName
+   * @return
+   */
+  private boolean isByteLevelSplittingApplicable( QName qName )
+  {
+    return this.byteLevelSplitting && this.inputStream != null && qName != null
+           && StringUtils.isBlank( qName.getNamespaceURI() ) && StringUtils.isBlank( qName.getPrefix() )
+           && this.xmlEventTransformerList.isEmpty() && this.scopeList.isEmpty() && this.touchBarrierList.isEmpty()
+           && !this.xmlEventReaderCache.hasValueResolved() && this.hasByteLevelSplittingSupportedEncoding();
+  }
+  
+  /**
+   * Returns true if the encoding of the underlying stream, determined by peeking at its first bytes, is supported by the
+   * {@link XMLElementSplitter}
+   * 
+   * @return
+   */
+  private boolean hasByteLevelSplittingSupportedEncoding()
+  {
+    //
+    boolean retval = false;
+    
+    //
+    try
+    {
+      //
+      final InputStream inputStream = this.inputStream;
+      final byte[] prolog = new byte[XMLElementSplitter.PROLOG_LENGTH];
+      int length = 0;
+      
+      //
+      inputStream.mark( prolog.length );
+      try
+      {
+        int read = 0;
+        while ( length < prolog.length && ( read = inputStream.read( prolog, length, prolog.length - length ) ) >= 0 )
+        {
+          length += read;
+        }
+      }
+      finally
+      {
+        inputStream.reset();
+      }
+      
+      //
+      retval = XMLElementSplitter.isSupportedEncoding( XMLElementSplitter.determineEncoding( prolog, length ) );
+    }
+    catch ( Exception e )
+    {
+      this.exceptionHandler.handleException( e );
+    }
+    
+    //
+    return retval;
+  }
+  
   /**
    * Selects xml parts based on {@link Class}es annotated with JAXB compliant annotations and uses JAXB to create instances of the
    * given type based on the data of the extracted xml chunks. <br>
@@ -1691,8 +2219,12 @@ public class XMLIteratorFactory
   
   /**
    * Similar to {@link #newIterator(QName, ElementConverter)} but allows to specify a more general {@link XMLElementSelector}
-   * instead of a {@link QName}
+   * instead of a {@link QName}<br>
+   * <br>
+   * If a {@link ParallelConversionConfiguration} is set, the given {@link ElementConverter} is invoked by multiple {@link Thread}s
+   * in parallel and has to be thread safe.
    * 
+   * @see #setParallelConversionConfiguration(ParallelConversionConfiguration)
    * @param xmlElementSelector
    *          {@link XMLElementSelector}
    * @param elementConverter
@@ -1704,6 +2236,26 @@ public class XMLIteratorFactory
   {
     //
     final Iterator<String> iterator = newIterator( xmlElementSelector );
+    return this.newConvertingIterator( iterator, elementConverter );
+  }
+  
+  /**
+   * Returns an {@link Iterator} which converts the xml content chunks of the given {@link Iterator} using the given
+   * {@link ElementConverter}, in parallel if a {@link ParallelConversionConfiguration} is set
+   * 
+   * @param iterator
+   * @param elementConverter
+   * @return
+   */
+  private <E> Iterator<E> newConvertingIterator( final Iterator<String> iterator, final ElementConverter<String, E> elementConverter )
+  {
+    //
+    if ( this.parallelConversionConfiguration != null && iterator != null
+         && !( elementConverter instanceof ElementConverterIdentitiyCast ) )
+    {
+      return new XMLParallelConversionIterator<E>( iterator, elementConverter, this.parallelConversionConfiguration,
+                                                   this.exceptionHandler );
+    }
     return IteratorUtils.adapter( iterator, elementConverter );
   }
   
@@ -1845,4 +2397,28 @@ public class XMLIteratorFactory
     return this;
   }
   
+  /**
+   * Enables the pipelined parallel conversion for all {@link Iterator}s which convert the xml content chunks, like
+   * {@link #newIterator(Class)}, {@link #newIteratorMapBased(QName)} or {@link #newIterator(QName, ElementConverter)}. One
+   * {@link Thread} scans the xml stream, whereby the conversion is done in parallel. Set to null to disable the parallel
+   * conversion again.<br>
+   * <br>
+   * Example:
+   * 
+   * <pre>
+   * Iterator&lt;Book&gt; iterator = new XMLIteratorFactory( inputStream ).setParallelConversionConfiguration( new ParallelConversionConfiguration().setNumberOfThreads( 4 ) )
+   *                                                              .newIterator( Book.class );
+   * </pre>
+   * 
+   * @see ParallelConversionConfiguration
+   * @param parallelConversionConfiguration
+   *          {@link ParallelConversionConfiguration}
+   * @return this
+   */
+  public XMLIteratorFactory setParallelConversionConfiguration( ParallelConversionConfiguration parallelConversionConfiguration )
+  {
+    this.parallelConversionConfiguration = parallelConversionConfiguration;
+    return this;
+  }
+  
 }
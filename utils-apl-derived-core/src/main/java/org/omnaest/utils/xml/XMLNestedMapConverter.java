@@ -15,14 +15,18 @@
  ******************************************************************************/
 package org.omnaest.utils.xml;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventFactory;
@@ -38,6 +42,7 @@ import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CharSequenceReader;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -47,7 +52,6 @@ import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.container.ByteArrayContainer;
 import org.omnaest.utils.structure.element.converter.ElementConverter;
 import org.omnaest.utils.structure.element.converter.ElementConverterIdentitiyCast;
-import org.omnaest.utils.structure.iterator.IterableUtils;
 import org.omnaest.utils.structure.iterator.IteratorUtils;
 import org.omnaest.utils.tuple.TupleTwo;
 import org.omnaest.utils.xml.context.XMLInstanceContextFactory;
@@ -104,6 +108,8 @@ import org.omnaest.utils.xml.context.XMLInstanceContextFactoryJavaStaxDefaultImp
  * 
  * @see #newMapFromXML(CharSequence)
  * @see #newNamespaceAwareMapFromXML(CharSequence)
+ * @see #newMapIteratorFromXML(InputStream, QName)
+ * @see #toXML(Map, OutputStream)
  * @see #setExceptionHandler(ExceptionHandler)
  * @author Omnaest
  */
@@ -117,6 +123,299 @@ public class XMLNestedMapConverter
   private String                                encoding                                       = XMLNestedMapConverter.DEFAULT_ENCODING;
   private XMLInstanceContextFactory             xmlInstanceContextFactory                      = XML_INSTANCE_CONTEXT_FACTORY_JAVA_STAX_DEFAULT;
   
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link ElementConverter} which reduces a {@link QName} to its local part
+   * 
+   * @author Omnaest
+   */
+  private static class ElementConverterQNameToLocalPart implements ElementConverter<QName, String>
+  {
+    @Override
+    public String convert( QName element )
+    {
+      return element.getLocalPart();
+    }
+  }
+  
+  /**
+   * Builds the nested {@link Map} of a single tag node including all its sub nodes from a {@link XMLEventReader}.<br>
+   * <br>
+   * The converted keys are cached per {@link QName}, so all equal tag and attribute names share a single key instance, even
+   * across multiple calls of {@link #manifest(XMLEventReader)}.
+   * 
+   * @author Omnaest
+   * @param <K>
+   */
+  private static class NestedMapBuilder<K>
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final QName                  QNAME_TEXT    = new QName( "" );
+    
+    /* ********************************************** Variables ********************************************** */
+    private final ElementConverter<QName, K>    keyElementConverter;
+    private final Map<QName, K>                 qNameToKeyMap = new HashMap<QName, K>();
+    private final List<TupleTwo<QName, Object>> stackList     = new ArrayList<TupleTwo<QName, Object>>();
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see NestedMapBuilder
+     * @param keyElementConverter
+     */
+    public NestedMapBuilder( ElementConverter<QName, K> keyElementConverter )
+    {
+      super();
+      this.keyElementConverter = keyElementConverter;
+    }
+    
+    /**
+     * Manifests the next tag node of the given {@link XMLEventReader} recursively. The {@link XMLEventReader} is read until the
+     * end tag of this node.
+     * 
+     * @param xmlEventReader
+     * @return new {@link Map} with the tag name as single key or null if there is no further tag node
+     * @throws XMLStreamException
+     */
+    @SuppressWarnings("unchecked")
+    public Map<K, Object> manifest( XMLEventReader xmlEventReader ) throws XMLStreamException
+    {
+      //
+      Map<K, Object> retmap = null;
+      
+      //
+      this.stackList.clear();
+      while ( retmap == null && xmlEventReader.hasNext() )
+      {
+        //
+        final XMLEvent xmlEvent = xmlEventReader.nextEvent();
+        
+        //
+        if ( xmlEvent.isStartElement() )
+        {
+          //
+          final StartElement startElement = xmlEvent.asStartElement();
+          final TupleTwo<QName, Object> stackElement = new TupleTwo<QName, Object>( startElement.getName(), null );
+          this.stackList.add( stackElement );
+          
+          //
+          final Iterator<Attribute> attributeIterator = startElement.getAttributes();
+          while ( attributeIterator.hasNext() )
+          {
+            //
+            final Attribute attribute = attributeIterator.next();
+            this.putIntoCurrentStackValue( attribute.getName(), attribute.getValue() );
+          }
+        }
+        else if ( xmlEvent.isEndElement() )
+        {
+          //
+          final TupleTwo<QName, Object> stackElement = ListUtils.removeLast( this.stackList );
+          if ( stackElement != null )
+          {
+            //
+            final QName tagname = stackElement.getValueFirst();
+            final Object manifestation = stackElement.getValueSecond();
+            
+            //
+            if ( this.stackList.isEmpty() )
+            {
+              retmap = new LinkedHashMap<K, Object>();
+              retmap.put( this.toKey( tagname ), manifestation );
+            }
+            else
+            {
+              this.putIntoCurrentStackValue( tagname, manifestation );
+            }
+          }
+        }
+        else if ( xmlEvent.isCharacters() )
+        {
+          //
+          final Characters characters = xmlEvent.asCharacters();
+          final TupleTwo<QName, Object> currentStackValue = ListUtils.lastElement( this.stackList );
+          if ( currentStackValue != null && !characters.isWhiteSpace() )
+          {
+            currentStackValue.setValueSecond( ObjectUtils.defaultIfNull( currentStackValue.getValueSecond(), "" )
+                                              + characters.getData() );
+          }
+        }
+      }
+      
+      //
+      return retmap;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void putIntoCurrentStackValue( QName name, Object manifestation )
+    {
+      //
+      final TupleTwo<QName, Object> currentStackValue = ListUtils.lastElement( this.stackList );
+      
+      //
+      Map<K, Object> map = null;
+      {
+        //
+        final Object valueSecond = currentStackValue.getValueSecond();
+        if ( valueSecond instanceof Map )
+        {
+          map = (Map<K, Object>) valueSecond;
+        }
+        else
+        {
+          //
+          map = new LinkedHashMap<K, Object>();
+          if ( valueSecond instanceof String )
+          {
+            map.put( this.toKey( QNAME_TEXT ), valueSecond );
+          }
+          currentStackValue.setValueSecond( map );
+        }
+      }
+      
+      //
+      final K key = this.toKey( name );
+      final Object object = map.get( key );
+      if ( object == null && !map.containsKey( key ) )
+      {
+        map.put( key, manifestation );
+      }
+      else if ( object instanceof List )
+      {
+        //
+        final List<Object> list = (List<Object>) object;
+        list.add( manifestation );
+      }
+      else
+      {
+        //
+        final List<Object> list = new ArrayList<Object>();
+        list.add( object );
+        list.add( manifestation );
+        map.put( key, list );
+      }
+    }
+    
+    private K toKey( QName name )
+    {
+      //
+      K retval = this.qNameToKeyMap.get( name );
+      if ( retval == null )
+      {
+        //
+        retval = this.keyElementConverter.convert( name );
+        this.qNameToKeyMap.put( name, retval );
+      }
+      return retval;
+    }
+  }
+  
+  /**
+   * {@link Iterator} which returns a nested {@link Map} for each tag of a {@link XMLEventReader} matching a given {@link QName}
+   * 
+   * @author Omnaest
+   * @param <K>
+   */
+  private class NestedMapIterator<K> implements Iterator<Map<K, Object>>
+  {
+    /* ********************************************** Variables ********************************************** */
+    private final XMLEventReader      xmlEventReader;
+    private final QName               qName;
+    private final NestedMapBuilder<K> nestedMapBuilder;
+    
+    private Map<K, Object>            nextMap = null;
+    private boolean                   closed  = false;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    /**
+     * @see NestedMapIterator
+     * @param xmlEventReader
+     * @param qName
+     * @param nestedMapBuilder
+     */
+    public NestedMapIterator( XMLEventReader xmlEventReader, QName qName, NestedMapBuilder<K> nestedMapBuilder )
+    {
+      super();
+      this.xmlEventReader = xmlEventReader;
+      this.qName = qName;
+      this.nestedMapBuilder = nestedMapBuilder;
+    }
+    
+    @Override
+    public boolean hasNext()
+    {
+      this.resolveNextMapIfNecessary();
+      return this.nextMap != null;
+    }
+    
+    @Override
+    public Map<K, Object> next()
+    {
+      //
+      if ( !this.hasNext() )
+      {
+        throw new NoSuchElementException();
+      }
+      
+      //
+      final Map<K, Object> retmap = this.nextMap;
+      this.nextMap = null;
+      return retmap;
+    }
+    
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+    
+    private void resolveNextMapIfNecessary()
+    {
+      if ( this.nextMap == null && !this.closed )
+      {
+        //
+        try
+        {
+          while ( this.nextMap == null && this.xmlEventReader.hasNext() )
+          {
+            //
+            final XMLEvent xmlEvent = this.xmlEventReader.peek();
+            if ( xmlEvent.isStartElement() && this.matches( xmlEvent.asStartElement().getName() ) )
+            {
+              this.nextMap = this.nestedMapBuilder.manifest( this.xmlEventReader );
+            }
+            else
+            {
+              this.xmlEventReader.nextEvent();
+            }
+          }
+        }
+        catch ( Exception e )
+        {
+          XMLNestedMapConverter.this.handleException( e );
+        }
+        
+        //
+        if ( this.nextMap == null )
+        {
+          this.closed = true;
+          XMLNestedMapConverter.this.close( this.xmlEventReader );
+        }
+      }
+    }
+    
+    private boolean matches( QName name )
+    {
+      //
+      final String namespaceURI = this.qName.getNamespaceURI();
+      return StringUtils.equals( this.qName.getLocalPart(), name.getLocalPart() )
+             && ( StringUtils.isBlank( namespaceURI ) || StringUtils.equals( namespaceURI, name.getNamespaceURI() ) );
+    }
+  }
+  
+  
   /* ********************************************** Methods ********************************************** */
   
   /**
@@ -140,6 +439,38 @@ public class XMLNestedMapConverter
     return this.newMapFromXML( xmlContent, keyElementConverter );
   }
   
+  /**
+   * Similar to {@link #newNamespaceAwareMapFromXML(CharSequence)} but reads the xml content from a given {@link Reader}. The
+   * {@link Reader} will not be closed by this method call.
+   * 
+   * @see #newNamespaceAwareMapFromXML(CharSequence)
+   * @param reader
+   *          {@link Reader}
+   * @return new (nested) {@link Map} instance
+   */
+  public Map<QName, Object> newNamespaceAwareMapFromXML( Reader reader )
+  {
+    //
+    final ElementConverter<QName, QName> keyElementConverter = new ElementConverterIdentitiyCast<QName, QName>();
+    return this.newMapFromXML( this.newXMLEventReader( reader ), keyElementConverter );
+  }
+  
+  /**
+   * Similar to {@link #newNamespaceAwareMapFromXML(CharSequence)} but reads the xml content from a given {@link InputStream}. The
+   * encoding is determined from the xml declaration. The {@link InputStream} will not be closed by this method call.
+   * 
+   * @see #newNamespaceAwareMapFromXML(CharSequence)
+   * @param inputStream
+   *          {@link InputStream}
+   * @return new (nested) {@link Map} instance
+   */
+  public Map<QName, Object> newNamespaceAwareMapFromXML( InputStream inputStream )
+  {
+    //
+    final ElementConverter<QName, QName> keyElementConverter = new ElementConverterIdentitiyCast<QName, QName>();
+    return this.newMapFromXML( this.newXMLEventReader( inputStream ), keyElementConverter );
+  }
+  
   /**
    * Similar to {@link #newNamespaceAwareMapFromXML(CharSequence)} but with non {@link Namespace} aware {@link String} values as
    * keys. Those keys will only contain the tag name without any {@link Namespace} information.
@@ -151,18 +482,119 @@ public class XMLNestedMapConverter
   public Map<String, Object> newMapFromXML( CharSequence xmlContent )
   {
     //
-    final ElementConverter<QName, String> keyElementConverter = new ElementConverter<QName, String>()
-    {
-      @Override
-      public String convert( QName element )
-      {
-        // 
-        return element.getLocalPart();
-      }
-    };
+    final ElementConverter<QName, String> keyElementConverter = new ElementConverterQNameToLocalPart();
     return this.newMapFromXML( xmlContent, keyElementConverter );
   }
   
+  /**
+   * Similar to {@link #newMapFromXML(CharSequence)} but reads the xml content from a given {@link Reader}. The {@link Reader} will
+   * not be closed by this method call.
+   * 
+   * @see #newMapFromXML(CharSequence)
+   * @param reader
+   *          {@link Reader}
+   * @return new (nested) {@link Map} instance
+   */
+  public Map<String, Object> newMapFromXML( Reader reader )
+  {
+    //
+    final ElementConverter<QName, String> keyElementConverter = new ElementConverterQNameToLocalPart();
+    return this.newMapFromXML( this.newXMLEventReader( reader ), keyElementConverter );
+  }
+  
+  /**
+   * Similar to {@link #newMapFromXML(CharSequence)} but reads the xml content from a given {@link InputStream}. The encoding is
+   * determined from the xml declaration. The {@link InputStream} will not be closed by this method call.
+   * 
+   * @see #newMapFromXML(CharSequence)
+   * @param inputStream
+   *          {@link InputStream}
+   * @return new (nested) {@link Map} instance
+   */
+  public Map<String, Object> newMapFromXML( InputStream inputStream )
+  {
+    //
+    final ElementConverter<QName, String> keyElementConverter = new ElementConverterQNameToLocalPart();
+    return this.newMapFromXML( this.newXMLEventReader( inputStream ), keyElementConverter );
+  }
+  
+  /**
+   * Returns an {@link Iterator} which parses the given {@link InputStream} lazily and returns a nested {@link Map} for each tag
+   * matching the given {@link QName}. Only the currently selected subtree is held in memory, so documents much larger than the
+   * available heap can be processed. Each returned {@link Map} has the same structure as if the selected subtree would have been
+   * converted using {@link #newMapFromXML(CharSequence)}.<br>
+   * <br>
+   * If the given {@link QName} has no namespace, tags with any namespace but a matching local part are selected. Nested matching
+   * tags are part of the subtree of the outer matching tag and are not returned separately. <br>
+   * <br>
+   * The {@link InputStream} will not be closed by the {@link Iterator}.
+   * 
+   * @see #newNamespaceAwareMapIteratorFromXML(InputStream, QName)
+   * @param inputStream
+   *          {@link InputStream}
+   * @param qName
+   *          {@link QName}
+   * @return new {@link Iterator} instance
+   */
+  public Iterator<Map<String, Object>> newMapIteratorFromXML( InputStream inputStream, QName qName )
+  {
+    //
+    final ElementConverter<QName, String> keyElementConverter = new ElementConverterQNameToLocalPart();
+    return this.newMapIteratorFromXML( this.newXMLEventReader( inputStream ), qName, keyElementConverter );
+  }
+  
+  /**
+   * Similar to {@link #newMapIteratorFromXML(InputStream, QName)} but reads from a {@link Reader}
+   * 
+   * @see #newMapIteratorFromXML(InputStream, QName)
+   * @param reader
+   *          {@link Reader}
+   * @param qName
+   *          {@link QName}
+   * @return new {@link Iterator} instance
+   */
+  public Iterator<Map<String, Object>> newMapIteratorFromXML( Reader reader, QName qName )
+  {
+    //
+    final ElementConverter<QName, String> keyElementConverter = new ElementConverterQNameToLocalPart();
+    return this.newMapIteratorFromXML( this.newXMLEventReader( reader ), qName, keyElementConverter );
+  }
+  
+  /**
+   * Similar to {@link #newMapIteratorFromXML(InputStream, QName)} but returns {@link Map}s having {@link QName}s as key type
+   * 
+   * @see #newMapIteratorFromXML(InputStream, QName)
+   * @see #newNamespaceAwareMapFromXML(CharSequence)
+   * @param inputStream
+   *          {@link InputStream}
+   * @param qName
+   *          {@link QName}
+   * @return new {@link Iterator} instance
+   */
+  public Iterator<Map<QName, Object>> newNamespaceAwareMapIteratorFromXML( InputStream inputStream, QName qName )
+  {
+    //
+    final ElementConverter<QName, QName> keyElementConverter = new ElementConverterIdentitiyCast<QName, QName>();
+    return this.newMapIteratorFromXML( this.newXMLEventReader( inputStream ), qName, keyElementConverter );
+  }
+  
+  /**
+   * Similar to {@link #newNamespaceAwareMapIteratorFromXML(InputStream, QName)} but reads from a {@link Reader}
+   * 
+   * @see #newNamespaceAwareMapIteratorFromXML(InputStream, QName)
+   * @param reader
+   *          {@link Reader}
+   * @param qName
+   *          {@link QName}
+   * @return new {@link Iterator} instance
+   */
+  public Iterator<Map<QName, Object>> newNamespaceAwareMapIteratorFromXML( Reader reader, QName qName )
+  {
+    //
+    final ElementConverter<QName, QName> keyElementConverter = new ElementConverterIdentitiyCast<QName, QName>();
+    return this.newMapIteratorFromXML( this.newXMLEventReader( reader ), qName, keyElementConverter );
+  }
+  
   /**
    * Template method for {@link #newNamespaceAwareMapFromXML(CharSequence)} and {@link #newMapFromXML(CharSequence)} which allows
    * to convert the {@link QName} based key values to other representations.
@@ -173,238 +605,172 @@ public class XMLNestedMapConverter
   protected <K> Map<K, Object> newMapFromXML( CharSequence xmlContent, final ElementConverter<QName, K> keyElementConverter )
   {
     //
-    final Map<K, Object> retmap = new LinkedHashMap<K, Object>();
+    Map<K, Object> retmap = null;
     
     //
-    Assert.isNotNull( keyElementConverter, "keyElementConverter must not be null" );
+    final Reader reader = new CharSequenceReader( xmlContent );
+    try
+    {
+      retmap = this.newMapFromXML( this.newXMLEventReader( reader ), keyElementConverter );
+    }
+    finally
+    {
+      IOUtils.closeQuietly( reader );
+    }
+    
+    //
+    return retmap;
+  }
+  
+  /**
+   * Template method for {@link #newMapFromXML(CharSequence, ElementConverter)} which reads from a given {@link XMLEventReader}.
+   * The {@link XMLEventReader} is closed afterwards.
+   * 
+   * @param xmlEventReader
+   *          {@link XMLEventReader}
+   * @param keyElementConverter
+   *          {@link ElementConverter}
+   * @return new (nested) {@link Map} instance
+   */
+  protected <K> Map<K, Object> newMapFromXML( XMLEventReader xmlEventReader, final ElementConverter<QName, K> keyElementConverter )
+  {
+    //
+    Map<K, Object> retmap = new LinkedHashMap<K, Object>();
     
     //
-    final ExceptionHandler exceptionHandler = this.exceptionHandler;
+    Assert.isNotNull( keyElementConverter, "keyElementConverter must not be null" );
     
-    //    
-    try
+    //
+    if ( xmlEventReader != null )
     {
       //
-      final XMLInputFactory xmlInputFactory = this.xmlInstanceContextFactory.newXmlInputFactory();
-      Assert.isNotNull( xmlInputFactory, "xmlInputFactory must not be null" );
-      
-      //
-      final Reader reader = new CharSequenceReader( xmlContent );
-      final XMLEventReader xmlEventReader = xmlInputFactory.createXMLEventReader( reader );
-      
-      //
-      final class Helper
+      try
       {
-        /* ********************************************** Variables ********************************************** */
-        private List<TupleTwo<QName, Object>> stackList = new ArrayList<TupleTwo<QName, Object>>();
-        
-        /* ********************************************** Methods ********************************************** */
-        
-        /**
-         * Manifests a single tag node recursively
-         * 
-         * @return
-         * @throws XMLStreamException
-         */
-        @SuppressWarnings("unchecked")
-        public TupleTwo<QName, Object> manifest() throws XMLStreamException
-        {
-          //
-          TupleTwo<QName, Object> retval = null;
-          
-          //          
-          while ( xmlEventReader.hasNext() )
-          {
-            //
-            final XMLEvent xmlEvent = xmlEventReader.nextEvent();
-            
-            //
-            if ( xmlEvent.isStartElement() )
-            {
-              //
-              final StartElement startElement = xmlEvent.asStartElement();
-              final QName name = startElement.getName();
-              
-              //
-              this.addNewStackElement().setValueFirst( name );
-              
-              //
-              final Iterator<Attribute> attributeIterator = startElement.getAttributes();
-              if ( attributeIterator.hasNext() )
-              {
-                //
-                final Map<QName, Object> map = new LinkedHashMap<QName, Object>();
-                for ( Attribute attribute : IterableUtils.valueOf( attributeIterator ) )
-                {
-                  map.put( attribute.getName(), attribute.getValue() );
-                }
-                
-                //
-                this.updateCurrentStackValue( map );
-              }
-            }
-            else if ( xmlEvent.isEndElement() )
-            {
-              //
-              retval = this.removeStackElement();
-              
-              //
-              final Object manifestation = retval.getValueSecond();
-              final QName tagname = retval.getValueFirst();
-              
-              //
-              updateCurrentStackValue( manifestation, tagname );
-            }
-            else if ( xmlEvent.isCharacters() )
-            {
-              //
-              final Characters characters = xmlEvent.asCharacters();
-              if ( !characters.isWhiteSpace() )
-              {
-                //
-                final TupleTwo<QName, Object> currentStackValue = this.getCurrentStackValue();
-                currentStackValue.setValueSecond( ObjectUtils.defaultIfNull( currentStackValue.getValueSecond(), "" )
-                                                  + characters.getData() );
-                
-              }
-            }
-            
-          }
-          
-          //
-          return retval;
-        }
-        
-        /**
-         * Updates the current stack value
-         * 
-         * @param manifestation
-         * @param tagname
-         */
-        private void updateCurrentStackValue( Object manifestation, QName tagname )
-        {
-          //
-          final Map<QName, Object> tagNameToManifestationMap = new LinkedHashMap<QName, Object>();
-          tagNameToManifestationMap.put( tagname, manifestation );
-          this.updateCurrentStackValue( tagNameToManifestationMap );
-        }
-        
-        @SuppressWarnings("unchecked")
-        private void updateCurrentStackValue( Map<QName, Object> tagNameToManifestationMap )
-        {
-          //
-          final TupleTwo<QName, Object> currentStackValue = this.getCurrentStackValue();
-          
-          //
-          if ( currentStackValue != null )
-          {
-            //
-            Map<K, Object> map = null;
-            {
-              //
-              final Object valueSecond = currentStackValue.getValueSecond();
-              if ( valueSecond instanceof Map )
-              {
-                map = (Map<K, Object>) valueSecond;
-              }
-              else
-              {
-                //
-                map = new LinkedHashMap<K, Object>();
-                if ( valueSecond instanceof String )
-                {
-                  map.put( keyElementConverter.convert( new QName( "" ) ), valueSecond );
-                }
-              }
-            }
-            
-            //
-            for ( Entry<QName, Object> tagNameToManifestationEntry : tagNameToManifestationMap.entrySet() )
-            {
-              //
-              final K tagname = keyElementConverter.convert( tagNameToManifestationEntry.getKey() );
-              final Object manifestation = tagNameToManifestationEntry.getValue();
-              
-              //
-              if ( !map.containsKey( tagname ) )
-              {
-                map.put( tagname, manifestation );
-              }
-              else
-              {
-                //
-                final Object object = map.get( tagname );
-                if ( object instanceof List )
-                {
-                  //
-                  final List<Object> list = (List<Object>) object;
-                  list.add( manifestation );
-                }
-                else
-                {
-                  //
-                  final List<Object> list = new ArrayList<Object>();
-                  list.add( object );
-                  list.add( manifestation );
-                  map.put( tagname, list );
-                }
-              }
-            }
-            
-            //
-            currentStackValue.setValueSecond( map );
-          }
-        }
-        
-        private TupleTwo<QName, Object> getCurrentStackValue()
-        {
-          return ListUtils.firstElement( this.stackList );
-        }
-        
-        private TupleTwo<QName, Object> removeStackElement()
-        {
-          return ListUtils.removeFirst( this.stackList );
-        }
-        
-        private TupleTwo<QName, Object> addNewStackElement()
+        //
+        final Map<K, Object> map = new NestedMapBuilder<K>( keyElementConverter ).manifest( xmlEventReader );
+        if ( map != null )
         {
-          //
-          final TupleTwo<QName, Object> retval = new TupleTwo<QName, Object>();
-          this.stackList.add( 0, retval );
-          return retval;
+          retmap = map;
         }
       }
-      
-      //  
-      try
+      catch ( Exception e )
       {
-        final Helper helper = new Helper();
-        final TupleTwo<QName, Object> result = helper.manifest();
-        retmap.put( keyElementConverter.convert( result.getValueFirst() ), result.getValueSecond() );
+        this.handleException( e );
       }
-      catch ( Exception e )
+      finally
       {
-        if ( exceptionHandler != null )
-        {
-          exceptionHandler.handleException( e );
-        }
+        this.close( xmlEventReader );
       }
-      
-      //
-      xmlEventReader.close();
-      reader.close();
-      
+    }
+    
+    //
+    return retmap;
+  }
+  
+  /**
+   * Template method for {@link #newMapIteratorFromXML(InputStream, QName)} and
+   * {@link #newNamespaceAwareMapIteratorFromXML(InputStream, QName)}. The {@link XMLEventReader} is closed as soon as the
+   * {@link Iterator} is exhausted.
+   * 
+   * @param xmlEventReader
+   *          {@link XMLEventReader}
+   * @param qName
+   *          {@link QName}
+   * @param keyElementConverter
+   *          {@link ElementConverter}
+   * @return new {@link Iterator} instance
+   */
+  protected <K> Iterator<Map<K, Object>> newMapIteratorFromXML( XMLEventReader xmlEventReader,
+                                                              QName qName,
+                                                              ElementConverter<QName, K> keyElementConverter )
+  {
+    //
+    Assert.isNotNull( qName, "qName must not be null" );
+    Assert.isNotNull( keyElementConverter, "keyElementConverter must not be null" );
+    
+    //
+    if ( xmlEventReader == null )
+    {
+      final List<Map<K, Object>> emptyList = Collections.emptyList();
+      return emptyList.iterator();
+    }
+    return new NestedMapIterator<K>( xmlEventReader, qName, new NestedMapBuilder<K>( keyElementConverter ) );
+  }
+  
+  /**
+   * @param reader
+   *          {@link Reader}
+   * @return new {@link XMLEventReader} or null if an error occurred
+   */
+  private XMLEventReader newXMLEventReader( Reader reader )
+  {
+    //
+    XMLEventReader retval = null;
+    
+    //
+    try
+    {
+      retval = this.newXmlInputFactory().createXMLEventReader( reader );
     }
     catch ( Exception e )
     {
-      if ( exceptionHandler != null )
-      {
-        exceptionHandler.handleException( e );
-      }
+      this.handleException( e );
     }
     
     //
-    return retmap;
+    return retval;
+  }
+  
+  /**
+   * @param inputStream
+   *          {@link InputStream}
+   * @return new {@link XMLEventReader} or null if an error occurred
+   */
+  private XMLEventReader newXMLEventReader( InputStream inputStream )
+  {
+    //
+    XMLEventReader retval = null;
+    
+    //
+    try
+    {
+      retval = this.newXmlInputFactory().createXMLEventReader( inputStream );
+    }
+    catch ( Exception e )
+    {
+      this.handleException( e );
+    }
+    
+    //
+    return retval;
+  }
+  
+  private XMLInputFactory newXmlInputFactory()
+  {
+    //
+    final XMLInputFactory xmlInputFactory = this.xmlInstanceContextFactory.newXmlInputFactory();
+    Assert.isNotNull( xmlInputFactory, "xmlInputFactory must not be null" );
+    return xmlInputFactory;
+  }
+  
+  private void close( XMLEventReader xmlEventReader )
+  {
+    try
+    {
+      xmlEventReader.close();
+    }
+    catch ( Exception e )
+    {
+      this.handleException( e );
+    }
+  }
+  
+  private void handleException( Exception e )
+  {
+    if ( this.exceptionHandler != null )
+    {
+      this.exceptionHandler.handleException( e );
+    }
   }
   
   /**
@@ -587,6 +953,9 @@ public class XMLNestedMapConverter
    * Similar to {@link #toXML(Map)} but writes the result to a given {@link OutputStream} directly instead of creating a
    * {@link String}. <br>
    * <br>
+   * The nested {@link Map} is traversed lazily while writing. Besides {@link List}s any {@link Iterable} or {@link Iterator} value
+   * is written out as repeated tags, which allows to stream generated content without holding it completely in memory.<br>
+   * <br>
    * The {@link OutputStream} will not be closed by this method call.
    * 
    * @see #toNamespaceAwareXML(Map, OutputStream)
@@ -711,11 +1080,11 @@ public class XMLNestedMapConverter
             {
               if ( map != null )
               {
-                for ( K key : map.keySet() )
+                for ( Entry<K, Object> entry : map.entrySet() )
                 {
                   //
-                  final QName tagName = keyElementConverter.convert( key );
-                  final Object value = map.get( key );
+                  final QName tagName = keyElementConverter.convert( entry.getKey() );
+                  final Object value = entry.getValue();
                   
                   //
                   if ( value instanceof String )
@@ -742,11 +1111,17 @@ public class XMLNestedMapConverter
                     //
                     this.writeEndTag( tagName );
                   }
-                  else if ( value instanceof List )
+                  else if ( value instanceof Iterable )
+                  {
+                    //
+                    final Iterable<Object> valueIterable = (Iterable<Object>) value;
+                    this.write( tagName, valueIterable.iterator() );
+                  }
+                  else if ( value instanceof Iterator )
                   {
                     //
-                    final List<Object> valueList = (List<Object>) value;
-                    this.write( tagName, valueList );
+                    final Iterator<Object> valueIterator = (Iterator<Object>) value;
+                    this.write( tagName, valueIterator );
                   }
                 }
               }
@@ -822,15 +1197,18 @@ public class XMLNestedMapConverter
             
             /**
              * @param tagName
-             * @param valueList
+             * @param valueIterator
              */
             @SuppressWarnings("unchecked")
-            private void write( QName tagName, List<Object> valueList )
+            private void write( QName tagName, Iterator<Object> valueIterator )
             {
-              if ( valueList != null )
+              if ( valueIterator != null )
               {
-                for ( Object value : valueList )
+                while ( valueIterator.hasNext() )
                 {
+                  //
+                  final Object value = valueIterator.next();
+                  
                   //
                   if ( value != null )
                   {
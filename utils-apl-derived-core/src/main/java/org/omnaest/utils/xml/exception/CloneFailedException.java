@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.xml.exception;
+
+/**
+ * Thrown if an object graph could not be cloned
+ * 
+ * @see org.omnaest.utils.xml.JAXBObjectCloner
+ * @author Omnaest
+ */
+public class CloneFailedException extends RuntimeException
+{
+  private static final long serialVersionUID = 3164978517365062815L;
+  
+  public CloneFailedException( String message )
+  {
+    super( message );
+  }
+  
+  public CloneFailedException( String message, Throwable cause )
+  {
+    super( message, cause );
+  }
+}
@@ -396,4 +396,41 @@ public class PropertynameMapToTypeAdapterTest
     
   }
   
+  @SuppressWarnings("unused")
+  @Test
+  @PerfTest(invocations = 10)
+  @Required(average = 1000)
+  @Ignore("Long running performance test")
+  public void testPerformanceReadWriteWithAllDecorators()
+  {
+    //
+    final Map<String, Object> map = new HashMap<String, Object>();
+    final PropertyAccessOption propertyAccessOption = PropertyAccessOption.PROPERTY_LOWERCASE;
+    final boolean underlyingMapAware = true;
+    final boolean simulatingToString = true;
+    final boolean isRegardingPropertyNameTemplateAnnotation = true;
+    final boolean isRegardingAdapterAnnotation = true;
+    final boolean isRegardingDefaultValueAnnotation = true;
+    final Builder<TestTypeWithAdapter> builder = PropertynameMapToTypeAdapter.builder( TestTypeWithAdapter.class,
+                                                                                       new Configuration(
+                                                                                                          propertyAccessOption,
+                                                                                                          isRegardingAdapterAnnotation,
+                                                                                                          isRegardingPropertyNameTemplateAnnotation,
+                                                                                                          isRegardingDefaultValueAnnotation,
+                                                                                                          underlyingMapAware,
+                                                                                                          simulatingToString ) );
+    final TestTypeWithAdapter testTypeWithAdapter = builder.newTypeAdapter( map );
+    
+    for ( long ii : new Range( 1, 100000 ) )
+    {
+      //
+      testTypeWithAdapter.setFieldString( "123" );
+      String fieldString = testTypeWithAdapter.getFieldString();
+      
+      //
+      assertEquals( "123", fieldString );
+    }
+    
+  }
+  
 }
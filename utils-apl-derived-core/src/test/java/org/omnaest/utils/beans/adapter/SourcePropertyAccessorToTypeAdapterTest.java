@@ -18,13 +18,17 @@ package org.omnaest.utils.beans.adapter;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.annotation.Annotation;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -37,6 +41,7 @@ import org.omnaest.utils.beans.adapter.source.DefaultValue;
 import org.omnaest.utils.beans.adapter.source.PropertyNameTemplate;
 import org.omnaest.utils.beans.adapter.source.SourcePropertyAccessor;
 import org.omnaest.utils.beans.adapter.source.SourcePropertyAccessor.PropertyMetaInformation;
+import org.omnaest.utils.beans.autowired.AutowiredContainer;
 import org.omnaest.utils.structure.element.ElementHolder;
 import org.omnaest.utils.structure.element.converter.Converter;
 import org.omnaest.utils.structure.element.converter.ElementConverterIdentitiyCast;
@@ -396,6 +401,28 @@ public class SourcePropertyAccessorToTypeAdapterTest
     
   }
   
+  @Test
+  public void testSerializationOfAnnotationAutowiredContainerAfterLookups()
+  {
+    //
+    this.testType.setFieldString( "value" );
+    ArgumentCaptor<PropertyMetaInformation> argumentCaptureForPropertyMetaInformation = ArgumentCaptor.forClass( PropertyMetaInformation.class );
+    Mockito.verify( this.propertyAccessor ).setValue( Matchers.eq( "fieldString" ), Matchers.eq( "value" ),
+                                                      (Class<?>) Matchers.anyObject(),
+                                                      argumentCaptureForPropertyMetaInformation.capture() );
+    final AutowiredContainer<Annotation> classAnnotationAutowiredContainer = argumentCaptureForPropertyMetaInformation.getValue()
+                                                                                                                      .getClassAnnotationAutowiredContainer();
+    
+    //
+    assertNull( classAnnotationAutowiredContainer.getValue( XmlRootElement.class ) );
+    assertTrue( classAnnotationAutowiredContainer.getValue( XmlType.class ) != null );
+    
+    //
+    final AutowiredContainer<Annotation> clone = SerializationUtils.clone( classAnnotationAutowiredContainer );
+    assertNull( clone.getValue( XmlRootElement.class ) );
+    assertTrue( clone.getValue( XmlType.class ) != null );
+  }
+  
   @Test
   public void testAdditionalArgumentsConverter()
   {
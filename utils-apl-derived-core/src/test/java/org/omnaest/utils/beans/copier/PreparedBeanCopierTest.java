@@ -17,6 +17,7 @@ package org.omnaest.utils.beans.copier;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -368,6 +369,176 @@ public class PreparedBeanCopierTest
     
   }
   
+  /**
+   * @see PreparedBeanCopierTest#testDeepClonePropertiesUsingGeneratedCopier()
+   * @author Omnaest
+   */
+  public static class TestFlatBeanFrom
+  {
+    private int          fieldInt;
+    private Integer      fieldInteger;
+    private long         fieldLong;
+    private double       fieldDouble;
+    private boolean      fieldBoolean;
+    private String       fieldString;
+    private List<String> list;
+    
+    public int getFieldInt()
+    {
+      return this.fieldInt;
+    }
+    
+    public void setFieldInt( int fieldInt )
+    {
+      this.fieldInt = fieldInt;
+    }
+    
+    public Integer getFieldInteger()
+    {
+      return this.fieldInteger;
+    }
+    
+    public void setFieldInteger( Integer fieldInteger )
+    {
+      this.fieldInteger = fieldInteger;
+    }
+    
+    public long getFieldLong()
+    {
+      return this.fieldLong;
+    }
+    
+    public void setFieldLong( long fieldLong )
+    {
+      this.fieldLong = fieldLong;
+    }
+    
+    public double getFieldDouble()
+    {
+      return this.fieldDouble;
+    }
+    
+    public void setFieldDouble( double fieldDouble )
+    {
+      this.fieldDouble = fieldDouble;
+    }
+    
+    public boolean isFieldBoolean()
+    {
+      return this.fieldBoolean;
+    }
+    
+    public void setFieldBoolean( boolean fieldBoolean )
+    {
+      this.fieldBoolean = fieldBoolean;
+    }
+    
+    public String getFieldString()
+    {
+      return this.fieldString;
+    }
+    
+    public void setFieldString( String fieldString )
+    {
+      this.fieldString = fieldString;
+    }
+    
+    public List<String> getList()
+    {
+      return this.list;
+    }
+    
+    public void setList( List<String> list )
+    {
+      this.list = list;
+    }
+  }
+  
+  /**
+   * @see PreparedBeanCopierTest#testDeepClonePropertiesUsingGeneratedCopier()
+   * @author Omnaest
+   */
+  public static class TestFlatBeanTo
+  {
+    private Integer      fieldInt;
+    private int          fieldInteger;
+    private long         fieldLong;
+    private double       fieldDouble;
+    private boolean      fieldBoolean;
+    private String       fieldString;
+    private List<String> list;
+    
+    public Integer getFieldInt()
+    {
+      return this.fieldInt;
+    }
+    
+    public void setFieldInt( Integer fieldInt )
+    {
+      this.fieldInt = fieldInt;
+    }
+    
+    public int getFieldInteger()
+    {
+      return this.fieldInteger;
+    }
+    
+    public void setFieldInteger( int fieldInteger )
+    {
+      this.fieldInteger = fieldInteger;
+    }
+    
+    public long getFieldLong()
+    {
+      return this.fieldLong;
+    }
+    
+    public void setFieldLong( long fieldLong )
+    {
+      this.fieldLong = fieldLong;
+    }
+    
+    public double getFieldDouble()
+    {
+      return this.fieldDouble;
+    }
+    
+    public void setFieldDouble( double fieldDouble )
+    {
+      this.fieldDouble = fieldDouble;
+    }
+    
+    public boolean isFieldBoolean()
+    {
+      return this.fieldBoolean;
+    }
+    
+    public void setFieldBoolean( boolean fieldBoolean )
+    {
+      this.fieldBoolean = fieldBoolean;
+    }
+    
+    public String getFieldString()
+    {
+      return this.fieldString;
+    }
+    
+    public void setFieldString( String fieldString )
+    {
+      this.fieldString = fieldString;
+    }
+    
+    public List<String> getList()
+    {
+      return this.list;
+    }
+    
+    public void setList( List<String> list )
+    {
+      this.list = list;
+    }
+  }
+  
   /* *************************************************** Methods **************************************************** */
   
   @Before
@@ -460,6 +631,159 @@ public class PreparedBeanCopierTest
     assertNull( ( (TestBeanTo) clone ).getFieldLongIgnored() );
   }
   
+  @Test
+  public void testDeepClonePropertiesUsingGeneratedCopier()
+  {
+    //
+    final PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo> preparedBeanCopier = new PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo>(
+                                                                                                                                               TestFlatBeanFrom.class,
+                                                                                                                                               TestFlatBeanTo.class,
+                                                                                                                                               new Configuration().setUsingGeneratedCopier( true ) );
+    final TestFlatBeanFrom testFlatBeanFrom = newTestFlatBeanFrom();
+    
+    //
+    {
+      final TestFlatBeanTo testFlatBeanTo = new TestFlatBeanTo();
+      preparedBeanCopier.deepCopyProperties( testFlatBeanFrom, testFlatBeanTo );
+      assertEquals( Integer.valueOf( 1 ), testFlatBeanTo.getFieldInt() );
+      assertEquals( 2, testFlatBeanTo.getFieldInteger() );
+      assertEquals( 3l, testFlatBeanTo.getFieldLong() );
+      assertEquals( 4.5, testFlatBeanTo.getFieldDouble(), 0.0 );
+      assertTrue( testFlatBeanTo.isFieldBoolean() );
+      assertEquals( "value", testFlatBeanTo.getFieldString() );
+      assertEquals( testFlatBeanFrom.getList(), testFlatBeanTo.getList() );
+      assertNotSame( testFlatBeanFrom.getList(), testFlatBeanTo.getList() );
+    }
+    
+    //
+    {
+      testFlatBeanFrom.setFieldInteger( null );
+      final TestFlatBeanTo testFlatBeanTo = new TestFlatBeanTo();
+      preparedBeanCopier.deepCopyProperties( testFlatBeanFrom, testFlatBeanTo );
+      assertEquals( Integer.valueOf( 1 ), testFlatBeanTo.getFieldInt() );
+      assertEquals( 0, testFlatBeanTo.getFieldInteger() );
+      assertEquals( "value", testFlatBeanTo.getFieldString() );
+      assertEquals( testFlatBeanFrom.getList(), testFlatBeanTo.getList() );
+    }
+    
+    //
+    {
+      final ByteArrayContainer byteArrayContainer = new ByteArrayContainer();
+      SerializationUtils.serialize( preparedBeanCopier, byteArrayContainer.getOutputStream() );
+      @SuppressWarnings("unchecked")
+      final PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo> preparedBeanCopierClone = (PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo>) SerializationUtils.deserialize( byteArrayContainer.getInputStream() );
+      final TestFlatBeanTo testFlatBeanTo = new TestFlatBeanTo();
+      preparedBeanCopierClone.deepCopyProperties( newTestFlatBeanFrom(), testFlatBeanTo );
+      assertEquals( 2, testFlatBeanTo.getFieldInteger() );
+      assertEquals( "value", testFlatBeanTo.getFieldString() );
+    }
+  }
+  
+  /**
+   * @see PreparedBeanCopierTest#testDeepCopyPropertiesUsingGeneratedCopierWithFailingProperty()
+   * @author Omnaest
+   */
+  public static class TestFlatBeanToCounting extends TestFlatBeanTo
+  {
+    private int numberOfSetFieldIntCalls = 0;
+    
+    @Override
+    public void setFieldInt( Integer fieldInt )
+    {
+      this.numberOfSetFieldIntCalls++;
+      super.setFieldInt( fieldInt );
+    }
+  }
+  
+  @Test
+  public void testDeepCopyPropertiesUsingGeneratedCopierWithFailingProperty()
+  {
+    //
+    final PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanToCounting> preparedBeanCopier = new PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanToCounting>(
+                                                                                                                                                               TestFlatBeanFrom.class,
+                                                                                                                                                               TestFlatBeanToCounting.class,
+                                                                                                                                                               new Configuration().setUsingGeneratedCopier( true ) );
+    final TestFlatBeanFrom testFlatBeanFrom = newTestFlatBeanFrom();
+    testFlatBeanFrom.setFieldInteger( null );
+    
+    //
+    final TestFlatBeanToCounting testFlatBeanTo = new TestFlatBeanToCounting();
+    preparedBeanCopier.deepCopyProperties( testFlatBeanFrom, testFlatBeanTo );
+    assertEquals( 1, testFlatBeanTo.numberOfSetFieldIntCalls );
+    assertEquals( Integer.valueOf( 1 ), testFlatBeanTo.getFieldInt() );
+    assertEquals( 0, testFlatBeanTo.getFieldInteger() );
+    assertEquals( 3l, testFlatBeanTo.getFieldLong() );
+    assertEquals( "value", testFlatBeanTo.getFieldString() );
+  }
+  
+  private static TestFlatBeanFrom newTestFlatBeanFrom()
+  {
+    final TestFlatBeanFrom retval = new TestFlatBeanFrom();
+    retval.setFieldInt( 1 );
+    retval.setFieldInteger( 2 );
+    retval.setFieldLong( 3l );
+    retval.setFieldDouble( 4.5 );
+    retval.setFieldBoolean( true );
+    retval.setFieldString( "value" );
+    retval.setList( Arrays.asList( "a", "b" ) );
+    return retval;
+  }
+  
+  @Test
+  @Ignore("Long running performance test")
+  public void testPerformanceGeneratedCopier()
+  {
+    //
+    final TestFlatBeanFrom testFlatBeanFrom = newTestFlatBeanFrom();
+    testFlatBeanFrom.setList( null );
+    final PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo> preparedBeanCopierReflection = new PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo>(
+                                                                                                                                                         TestFlatBeanFrom.class,
+                                                                                                                                                         TestFlatBeanTo.class );
+    final PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo> preparedBeanCopierGenerated = new PreparedBeanCopier<TestFlatBeanFrom, TestFlatBeanTo>(
+                                                                                                                                                        TestFlatBeanFrom.class,
+                                                                                                                                                        TestFlatBeanTo.class,
+                                                                                                                                                        new Configuration().setUsingGeneratedCopier( true ) );
+    
+    //
+    for ( int jj = 0; jj < 3; jj++ )
+    {
+      //
+      long start = System.currentTimeMillis();
+      for ( int ii = 0; ii < PreparedBeanCopierTest.COPY_TEST_ITERATIONS; ii++ )
+      {
+        preparedBeanCopierReflection.deepCopyProperties( testFlatBeanFrom, new TestFlatBeanTo() );
+      }
+      final long durationReflection = System.currentTimeMillis() - start;
+      
+      //
+      start = System.currentTimeMillis();
+      for ( int ii = 0; ii < PreparedBeanCopierTest.COPY_TEST_ITERATIONS; ii++ )
+      {
+        preparedBeanCopierGenerated.deepCopyProperties( testFlatBeanFrom, new TestFlatBeanTo() );
+      }
+      final long durationGenerated = System.currentTimeMillis() - start;
+      
+      //
+      start = System.currentTimeMillis();
+      for ( int ii = 0; ii < PreparedBeanCopierTest.COPY_TEST_ITERATIONS; ii++ )
+      {
+        final TestFlatBeanTo testFlatBeanTo = new TestFlatBeanTo();
+        testFlatBeanTo.setFieldInt( testFlatBeanFrom.getFieldInt() );
+        testFlatBeanTo.setFieldInteger( testFlatBeanFrom.getFieldInteger() );
+        testFlatBeanTo.setFieldLong( testFlatBeanFrom.getFieldLong() );
+        testFlatBeanTo.setFieldDouble( testFlatBeanFrom.getFieldDouble() );
+        testFlatBeanTo.setFieldBoolean( testFlatBeanFrom.isFieldBoolean() );
+        testFlatBeanTo.setFieldString( testFlatBeanFrom.getFieldString() );
+        testFlatBeanTo.setList( testFlatBeanFrom.getList() );
+      }
+      final long durationDirect = System.currentTimeMillis() - start;
+      
+      //
+      System.out.println( "Reflection: " + durationReflection + "ms, generated: " + durationGenerated + "ms, direct: "
+                          + durationDirect + "ms" );
+    }
+  }
+  
   @Test
   @Ignore("Long running performance test")
   public void testPerformancePreparedBeanCopier()
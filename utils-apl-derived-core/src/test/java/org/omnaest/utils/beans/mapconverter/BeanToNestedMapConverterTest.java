@@ -17,9 +17,13 @@ package org.omnaest.utils.beans.mapconverter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -28,12 +32,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter.BeanConversionFilter;
+import org.omnaest.utils.beans.mapconverter.BeanToNestedMapConverter.BeanConversionFilterExcludingPrimitiveAndString;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.events.exception.basic.ExceptionHandlerRethrowingAsRuntimeException;
 import org.omnaest.utils.structure.element.FutureSimple;
 
 /**
@@ -62,6 +75,7 @@ public class BeanToNestedMapConverterTest
   public BeanToNestedMapConverterTest( PropertyAccessType propertyAccessType )
   {
     super();
+    this.propertyAccessType = propertyAccessType;
     BeanConversionFilter beanConversionFilter = null;
     this.beanToNestedMapConverter = new BeanToNestedMapConverter<BeanToNestedMapConverterTest.TestClass>( beanConversionFilter,
                                                                                                           TestClass.class,
@@ -70,6 +84,7 @@ public class BeanToNestedMapConverterTest
   }
   
   /* ********************************************** Variables ********************************************** */
+  private final PropertyAccessType                  propertyAccessType;
   private final BeanToNestedMapConverter<TestClass> beanToNestedMapConverter;
   private TestClass                                 testClass = new TestClass(
                                                                                "value1",
@@ -311,6 +326,116 @@ public class BeanToNestedMapConverterTest
     assertEquals( this.testClass, testClassResult );
   }
   
+  @Test
+  public void testVisit()
+  {
+    //
+    final List<String> eventList = new ArrayList<String>();
+    this.beanToNestedMapConverter.visit( this.testClass, new NestedBeanVisitor()
+    {
+      @Override
+      public boolean startObject( Object object, String className )
+      {
+        eventList.add( "startObject:" + className );
+        return true;
+      }
+      
+      @Override
+      public void property( String propertyName )
+      {
+        eventList.add( "property:" + propertyName );
+      }
+      
+      @Override
+      public void value( Object value )
+      {
+        eventList.add( "value:" + value );
+      }
+      
+      @Override
+      public void endObject()
+      {
+        eventList.add( "endObject" );
+      }
+    } );
+    
+    //
+    assertEquals( "startObject:" + TestClass.class.getName(), eventList.get( 0 ) );
+    assertEquals( "endObject", eventList.get( eventList.size() - 1 ) );
+    assertEquals( "value:value1", eventList.get( eventList.indexOf( "property:valueString" ) + 1 ) );
+    assertEquals( "value:1.234", eventList.get( eventList.indexOf( "property:valueDouble" ) + 1 ) );
+    assertEquals( "startObject:" + TestClass.class.getName(), eventList.get( eventList.indexOf( "property:testClass" ) + 1 ) );
+    
+    //
+    int depth = 0;
+    for ( String event : eventList )
+    {
+      if ( event.startsWith( "startObject:" ) )
+      {
+        depth++;
+      }
+      else if ( event.equals( "endObject" ) )
+      {
+        depth--;
+      }
+      assertTrue( depth >= 0 );
+    }
+    assertEquals( 0, depth );
+  }
+  
+  @Test
+  public void testClone()
+  {
+    //
+    TestClass testClassResult = this.beanToNestedMapConverter.clone( this.testClass );
+    
+    //
+    assertEquals( this.testClass, testClassResult );
+    assertNotSame( this.testClass, testClassResult );
+    assertNotSame( this.testClass.getTestClass(), testClassResult.getTestClass() );
+    assertSame( testClassResult.getTestClass(), testClassResult.getTestClassCopy() );
+  }
+  
+  @Test
+  public void testMarshalAndUnmarshalUsingXMLStream() throws XMLStreamException
+  {
+    //
+    final BeanToNestedMapConverter<TestClass> beanToNestedMapConverter = new BeanToNestedMapConverter<TestClass>(
+                                                                                                                  new BeanConversionFilterExcludingPrimitiveAndString(),
+                                                                                                                  TestClass.class,
+                                                                                                                  this.propertyAccessType );
+    final TestClass testClassSub = new TestClass( "subvalue", 5.678, null, createStringToDoubleMap(), null,
+                                                  new ArrayList<String>( Arrays.asList( "d", "e", "f" ) ) );
+    final TestClass testClass = new TestClass( "value1", 1.234, testClassSub, createStringToDoubleMap(), null,
+                                               new ArrayList<String>( Arrays.asList( "a", "b", "c" ) ) );
+    final ExceptionHandler exceptionHandler = new ExceptionHandlerRethrowingAsRuntimeException();
+    
+    //
+    final StringWriter stringWriter = new StringWriter();
+    {
+      final XMLStreamWriter xmlStreamWriter = XMLOutputFactory.newInstance().createXMLStreamWriter( stringWriter );
+      xmlStreamWriter.writeStartDocument();
+      beanToNestedMapConverter.marshal( testClass, xmlStreamWriter, exceptionHandler );
+      xmlStreamWriter.writeEndDocument();
+      xmlStreamWriter.close();
+    }
+    
+    //
+    final String xml = stringWriter.toString();
+    assertTrue( xml.contains( "<property name=\"valueString\" type=\"java.lang.String\">value1</property>" ) );
+    
+    //
+    final XMLStreamReader xmlStreamReader = XMLInputFactory.newInstance().createXMLStreamReader( new StringReader( xml ) );
+    final TestClass testClassResult = beanToNestedMapConverter.unmarshal( xmlStreamReader, exceptionHandler );
+    
+    //
+    assertEquals( testClass, testClassResult );
+    assertEquals( testClass.getStringToDoubleMap(), testClassResult.getStringToDoubleMap() );
+    assertEquals( testClassSub.getStringToDoubleMap(), testClassResult.getTestClass().getStringToDoubleMap() );
+    assertSame( testClassResult.getTestClass(), testClassResult.getTestClassCopy() );
+    assertNull( testClassResult.getFuture() );
+  }
+  
   /**
    * @return
    */
@@ -20,7 +20,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +31,10 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.apache.commons.collections.ComparatorUtils;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.omnaest.utils.beans.replicator.BeanReplicator.Declaration;
+import org.omnaest.utils.beans.replicator.BeanReplicator.DeclarationSupport;
 import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.collection.set.SetUtils;
 import org.omnaest.utils.structure.map.MapUtils;
@@ -295,4 +300,95 @@ public class BeanReplicatorWithCollectionsTest
     assertNotSame( testSimpleBean.getArray(), clone.getArray() );
   }
   
+  @Test
+  public void testIndexBasedPathDeclaration()
+  {
+    TestSimpleBean testSimpleBean = new TestSimpleBean();
+    testSimpleBean.setList( ListUtils.valueOf( new SubBean( "a", "b" ), new SubBean( "c", "d" ), new SubBean( "e", "f" ) ) );
+    
+    BeanCopier<TestSimpleBean> beanCopier = new BeanCopier<TestSimpleBean>( TestSimpleBean.class ).declare( new Declaration()
+    {
+      private static final long serialVersionUID = -2287390011736463620L;
+      
+      @Override
+      public void declare( DeclarationSupport support )
+      {
+        support.addIgnoredPath( "list.1.first" );
+      }
+    } );
+    
+    for ( int ii = 0; ii < 2; ii++ )
+    {
+      TestSimpleBean clone = beanCopier.clone( testSimpleBean );
+      assertNotNull( clone );
+      assertEquals( ListUtils.valueOf( new SubBean( "a", "b" ), new SubBean( null, "d" ), new SubBean( "e", "f" ) ),
+                    clone.getList() );
+    }
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceOfDeepStructureWithCollections()
+  {
+    final int numberOfElements = 10000;
+    final TestSimpleBean testSimpleBean = new TestSimpleBean();
+    {
+      final List<SubBean> list = new ArrayList<SubBean>();
+      final Map<String, Object> map = new LinkedHashMap<String, Object>();
+      for ( int ii = 0; ii < numberOfElements; ii++ )
+      {
+        list.add( new SubBean( "first" + ii, "second" + ii ) );
+        map.put( "key" + ii, "value" + ii );
+      }
+      testSimpleBean.setList( list );
+      testSimpleBean.setMap( map );
+    }
+    
+    final BeanCopier<TestSimpleBean> beanCopier = new BeanCopier<TestSimpleBean>( TestSimpleBean.class );
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      final int numberOfClones = 20;
+      final long start = System.currentTimeMillis();
+      for ( int jj = 0; jj < numberOfClones; jj++ )
+      {
+        final TestSimpleBean clone = beanCopier.clone( testSimpleBean );
+        assertEquals( numberOfElements, clone.getList().size() );
+      }
+      final long duration = System.currentTimeMillis() - start;
+      System.out.println( "Cloned " + numberOfClones + " instances with " + numberOfElements + " list and map elements in "
+                          + duration + "ms" );
+    }
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceOfLargeGraph()
+  {
+    final int numberOfElements = 100000;
+    final TestSimpleBean testSimpleBean = new TestSimpleBean();
+    {
+      final List<SubBean> list = new ArrayList<SubBean>();
+      for ( int ii = 0; ii < numberOfElements; ii++ )
+      {
+        list.add( new SubBean( "first" + ii, "second" + ii ) );
+      }
+      testSimpleBean.setList( list );
+    }
+    
+    final BeanCopier<TestSimpleBean> beanCopier = new BeanCopier<TestSimpleBean>( TestSimpleBean.class );
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      final int numberOfClones = 10;
+      final long start = System.currentTimeMillis();
+      for ( int jj = 0; jj < numberOfClones; jj++ )
+      {
+        final TestSimpleBean clone = beanCopier.clone( testSimpleBean );
+        assertEquals( numberOfElements, clone.getList().size() );
+      }
+      final long duration = System.currentTimeMillis() - start;
+      System.out.println( "Cloned " + numberOfClones + " instances with " + numberOfElements + " list elements in " + duration
+                          + "ms" );
+    }
+  }
+  
 }
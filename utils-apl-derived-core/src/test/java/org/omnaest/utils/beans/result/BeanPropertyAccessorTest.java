@@ -16,13 +16,26 @@
 package org.omnaest.utils.beans.result;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
+
 import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.omnaest.utils.beans.BeanUtils;
 import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.reflection.ClassMetadataRegistryTest;
 
 /**
  * @see BeanPropertyAccessor
@@ -68,6 +81,39 @@ public class BeanPropertyAccessorTest
     
   }
   
+  /**
+   * @author Omnaest
+   */
+  public static class PublicTestBean
+  {
+    /* ********************************************** Variables ********************************************** */
+    private String value  = "value";
+    private int    number = 1;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    public String getValue()
+    {
+      return this.value;
+    }
+    
+    public void setValue( String value )
+    {
+      this.value = value;
+    }
+    
+    public int getNumber()
+    {
+      return this.number;
+    }
+    
+    public void setNumber( int number )
+    {
+      this.number = number;
+    }
+    
+  }
+  
   /* ********************************************** Methods ********************************************** */
   @Test
   public void testGetPropertyValueBObjectPropertyAccessType()
@@ -104,4 +150,107 @@ public class BeanPropertyAccessorTest
     assertNotNull( clone.getMethodGetter() );
     assertNotNull( clone.getMethodSetter() );
   }
+  
+  @Test
+  public void testGeneratedAccessors()
+  {
+    //
+    final BeanPropertyAccessor<PublicTestBean> beanPropertyAccessorValue = BeanUtils.beanPropertyAccessor( PublicTestBean.class,
+                                                                                                           "value" );
+    final BeanPropertyAccessor<PublicTestBean> beanPropertyAccessorNumber = BeanUtils.beanPropertyAccessor( PublicTestBean.class,
+                                                                                                            "number" );
+    assertNotNull( FastMethodResolver.resolveFastMethod( beanPropertyAccessorValue.getMethodGetter() ) );
+    assertNotNull( FastMethodResolver.resolveFastMethod( beanPropertyAccessorNumber.getMethodSetter() ) );
+    assertNull( FastMethodResolver.resolveFastMethod( this.beanPropertyAccessorValue1.getMethodGetter() ) );
+    
+    //
+    final PublicTestBean testBean = new PublicTestBean();
+    assertEquals( "value", beanPropertyAccessorValue.getPropertyValue( testBean ) );
+    assertTrue( beanPropertyAccessorValue.setPropertyValue( testBean, "other value" ) );
+    assertEquals( "other value", testBean.getValue() );
+    assertTrue( beanPropertyAccessorNumber.setPropertyValue( testBean, 2 ) );
+    assertEquals( 2, beanPropertyAccessorNumber.getPropertyValue( testBean ) );
+    assertFalse( beanPropertyAccessorNumber.setPropertyValue( testBean, "no number" ) );
+    
+    //
+    final PublicTestBean testBeanOther = new PublicTestBean();
+    assertTrue( beanPropertyAccessorValue.copyPropertyValue( testBean, testBeanOther ) );
+    assertEquals( "other value", testBeanOther.getValue() );
+  }
+  
+  @Test
+  public void testGeneratedAccessorsOfForeignClassLoaderAreNotPinned() throws Exception
+  {
+    //
+    final URL url = BeanPropertyAccessorTest.class.getProtectionDomain().getCodeSource().getLocation();
+    final String typeName = PublicTestBean.class.getName();
+    ClassLoader classLoader = new URLClassLoader( new URL[] { url }, FastClass.class.getClassLoader() )
+    {
+      @Override
+      protected synchronized Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException
+      {
+        //
+        if ( typeName.equals( name ) )
+        {
+          Class<?> type = this.findLoadedClass( name );
+          return type != null ? type : this.findClass( name );
+        }
+        return super.loadClass( name, resolve );
+      }
+    };
+    Class<?> type = classLoader.loadClass( typeName );
+    assertNotSame( PublicTestBean.class, type );
+    
+    //
+    Method method = type.getMethod( "getValue" );
+    FastMethod fastMethod = FastMethodResolver.resolveFastMethod( method );
+    assertNotNull( fastMethod );
+    assertEquals( "value", fastMethod.invoke( type.newInstance(), new Object[0] ) );
+    
+    //
+    final WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>( classLoader );
+    classLoader = null;
+    type = null;
+    method = null;
+    fastMethod = null;
+    ClassMetadataRegistryTest.collectGarbage( classLoaderReference );
+    assertNull( classLoaderReference.get() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testGeneratedAccessorsPerformance()
+  {
+    //
+    final int numberOfOperations = 10000000;
+    final PublicTestBean testBean = new PublicTestBean();
+    for ( boolean enabled : new boolean[] { false, true, false, true } )
+    {
+      //
+      FastMethodResolver.setEnabled( enabled );
+      final BeanPropertyAccessor<PublicTestBean> beanPropertyAccessor = BeanUtils.beanPropertyAccessor( PublicTestBean.class,
+                                                                                                        "number" );
+      
+      //
+      long start = System.nanoTime();
+      for ( int ii = 0; ii < numberOfOperations; ii++ )
+      {
+        beanPropertyAccessor.getPropertyValue( testBean );
+      }
+      final long durationRead = System.nanoTime() - start;
+      
+      //
+      start = System.nanoTime();
+      for ( int ii = 0; ii < numberOfOperations; ii++ )
+      {
+        beanPropertyAccessor.setPropertyValue( testBean, ii );
+      }
+      final long durationWrite = System.nanoTime() - start;
+      
+      //
+      System.out.println( ( enabled ? "generated" : "reflection" ) + ": read " + durationRead / numberOfOperations
+                          + "ns/property, write " + durationWrite / numberOfOperations + "ns/property" );
+    }
+    FastMethodResolver.setEnabled( true );
+  }
 }
@@ -0,0 +1,792 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.cache.BoundedCache.CacheStatistics;
+import org.omnaest.utils.metrics.MetricSnapshot;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.concrete.MetricRegistryInMemory;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Weigher;
+
+/**
+ * @see BoundedCache
+ * @author Omnaest
+ */
+public class BoundedCacheTest
+{
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link Ticker} which is moved forward manually
+   * 
+   * @author Omnaest
+   */
+  private static class ManualTicker extends Ticker
+  {
+    private final AtomicLong nanos = new AtomicLong();
+    
+    @Override
+    public long read()
+    {
+      return this.nanos.get();
+    }
+    
+    public void advance( long duration, TimeUnit timeUnit )
+    {
+      this.nanos.addAndGet( timeUnit.toNanos( duration ) );
+    }
+  }
+  
+  /**
+   * Key which blocks a given {@link Thread} within the given number of its {@link #hashCode()} call until it is released
+   * 
+   * @author Omnaest
+   */
+  private static class BlockingKey
+  {
+    private final int            blockingCall;
+    private final CountDownLatch blockedLatch  = new CountDownLatch( 1 );
+    private final CountDownLatch releaseLatch  = new CountDownLatch( 1 );
+    private volatile Thread      blockedThread = null;
+    private int                  calls         = 0;
+    
+    public BlockingKey( int blockingCall )
+    {
+      super();
+      this.blockingCall = blockingCall;
+    }
+    
+    public void blockCurrentThread()
+    {
+      this.blockedThread = Thread.currentThread();
+    }
+    
+    @Override
+    public int hashCode()
+    {
+      if ( Thread.currentThread() == this.blockedThread && ++this.calls == this.blockingCall )
+      {
+        this.blockedLatch.countDown();
+        try
+        {
+          this.releaseLatch.await();
+        }
+        catch ( InterruptedException e )
+        {
+        }
+      }
+      return 1;
+    }
+  }
+  
+  /**
+   * Generates keys following a Zipf distribution
+   * 
+   * @author Omnaest
+   */
+  private static class ZipfGenerator
+  {
+    private final double[] cumulativeProbabilities;
+    private final Random   random;
+    
+    public ZipfGenerator( int numberOfKeys, double exponent, long seed )
+    {
+      //
+      this.random = new Random( seed );
+      this.cumulativeProbabilities = new double[numberOfKeys];
+      
+      //
+      double sum = 0.0;
+      for ( int ii = 0; ii < numberOfKeys; ii++ )
+      {
+        sum += 1.0 / Math.pow( ii + 1, exponent );
+        this.cumulativeProbabilities[ii] = sum;
+      }
+      for ( int ii = 0; ii < numberOfKeys; ii++ )
+      {
+        this.cumulativeProbabilities[ii] /= sum;
+      }
+    }
+    
+    public int next()
+    {
+      //
+      final double value = this.random.nextDouble();
+      int low = 0;
+      int high = this.cumulativeProbabilities.length - 1;
+      while ( low < high )
+      {
+        final int middle = ( low + high ) >>> 1;
+        if ( this.cumulativeProbabilities[middle] < value )
+        {
+          low = middle + 1;
+        }
+        else
+        {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testPutAndGet()
+  {
+    //
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder().maximumSize( 10 ).build();
+    assertTrue( cache.isEmpty() );
+    
+    //
+    assertNull( cache.put( "key1", "value1" ) );
+    assertEquals( "value1", cache.put( "key1", "value2" ) );
+    cache.put( "key2", "value3" );
+    
+    //
+    assertEquals( "value2", cache.get( "key1" ) );
+    assertEquals( "value3", cache.get( "key2" ) );
+    assertNull( cache.get( "key3" ) );
+    assertEquals( 2, cache.size() );
+    assertTrue( cache.containsKey( "key1" ) );
+    assertTrue( cache.containsValue( "value3" ) );
+    assertEquals( 2, cache.keySet().size() );
+    
+    //
+    assertEquals( "value2", cache.remove( "key1" ) );
+    assertFalse( cache.containsKey( "key1" ) );
+    cache.clear();
+    assertTrue( cache.isEmpty() );
+    assertEquals( 0, cache.weightedSize() );
+  }
+  
+  @Test
+  public void testMaximumSize()
+  {
+    //
+    final BoundedCache<Integer, String> cache = BoundedCache.<Integer, String> builder().maximumSize( 100 ).build();
+    for ( int ii = 0; ii < 1000; ii++ )
+    {
+      cache.put( ii, "value" + ii );
+      assertTrue( cache.size() <= 100 );
+    }
+    
+    //
+    assertEquals( 100, cache.size() );
+    assertEquals( 100, cache.weightedSize() );
+    assertEquals( 900, cache.getStatistics().getEvictionCount() );
+  }
+  
+  @Test
+  public void testMaximumWeight()
+  {
+    //
+    final Weigher<String, String> weigher = new Weigher<String, String>()
+    {
+      @Override
+      public int weigh( String key, String value )
+      {
+        return value.length();
+      }
+    };
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder().maximumWeight( 100, weigher ).build();
+    
+    //
+    for ( int ii = 0; ii < 100; ii++ )
+    {
+      cache.put( "key" + ii, "0123456789" );
+    }
+    assertEquals( 10, cache.size() );
+    assertEquals( 100, cache.weightedSize() );
+    
+    //
+    final StringBuilder stringBuilder = new StringBuilder();
+    for ( int ii = 0; ii < 101; ii++ )
+    {
+      stringBuilder.append( "x" );
+    }
+    cache.put( "tooLarge", stringBuilder.toString() );
+    assertFalse( cache.containsKey( "tooLarge" ) );
+    assertTrue( cache.weightedSize() <= 100 );
+  }
+  
+  @Test
+  public void testFrequentEntriesSurviveScan()
+  {
+    //
+    final BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer> builder().maximumSize( 100 ).build();
+    
+    //
+    final int numberOfFrequentKeys = 50;
+    for ( int ii = 0; ii < numberOfFrequentKeys; ii++ )
+    {
+      cache.put( ii, ii );
+    }
+    for ( int jj = 0; jj < 10; jj++ )
+    {
+      for ( int ii = 0; ii < numberOfFrequentKeys; ii++ )
+      {
+        cache.get( ii );
+      }
+      cache.cleanUp();
+    }
+    
+    //
+    for ( int jj = 0; jj < 10; jj++ )
+    {
+      //
+      for ( int ii = 0; ii < numberOfFrequentKeys; ii++ )
+      {
+        assertEquals( Integer.valueOf( ii ), cache.get( ii ) );
+      }
+      cache.cleanUp();
+      
+      //
+      for ( int ii = 0; ii < 1000; ii++ )
+      {
+        final int key = 1000 + jj * 1000 + ii;
+        cache.put( key, key );
+      }
+    }
+    
+    //
+    int numberOfRemainingFrequentKeys = 0;
+    for ( int ii = 0; ii < numberOfFrequentKeys; ii++ )
+    {
+      if ( cache.containsKey( ii ) )
+      {
+        numberOfRemainingFrequentKeys++;
+      }
+    }
+    assertEquals( numberOfFrequentKeys, numberOfRemainingFrequentKeys );
+  }
+  
+  @Test
+  public void testExpireAfterWrite()
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                           .maximumSize( 10 )
+                                                           .expireAfterWrite( 10, TimeUnit.SECONDS )
+                                                           .ticker( ticker )
+                                                           .build();
+    
+    //
+    cache.put( "key1", "value1" );
+    ticker.advance( 5, TimeUnit.SECONDS );
+    cache.put( "key2", "value2" );
+    assertEquals( "value1", cache.get( "key1" ) );
+    
+    //
+    ticker.advance( 5, TimeUnit.SECONDS );
+    assertNull( cache.get( "key1" ) );
+    assertEquals( "value2", cache.get( "key2" ) );
+    
+    //
+    ticker.advance( 5, TimeUnit.SECONDS );
+    cache.cleanUp();
+    assertTrue( cache.isEmpty() );
+    assertEquals( 2, cache.getStatistics().getEvictionCount() );
+  }
+  
+  @Test
+  public void testExpireAfterAccess()
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                           .maximumSize( 10 )
+                                                           .expireAfterAccess( 10, TimeUnit.SECONDS )
+                                                           .ticker( ticker )
+                                                           .build();
+    
+    //
+    cache.put( "key1", "value1" );
+    cache.put( "key2", "value2" );
+    for ( int ii = 0; ii < 3; ii++ )
+    {
+      ticker.advance( 6, TimeUnit.SECONDS );
+      assertEquals( "value1", cache.get( "key1" ) );
+    }
+    
+    //
+    cache.cleanUp();
+    assertFalse( cache.containsKey( "key2" ) );
+    assertEquals( 1, cache.size() );
+  }
+  
+  @Test
+  public void testGetOrCreateCallsFactoryOnlyOnce() throws Exception
+  {
+    //
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder().maximumSize( 10 ).build();
+    final AtomicInteger counter = new AtomicInteger();
+    final Factory<String> factory = new Factory<String>()
+    {
+      @Override
+      public String newInstance()
+      {
+        counter.incrementAndGet();
+        try
+        {
+          Thread.sleep( 50 );
+        }
+        catch ( InterruptedException e )
+        {
+        }
+        return "value";
+      }
+    };
+    
+    //
+    final int numberOfThreads = 8;
+    final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+    final CountDownLatch countDownLatch = new CountDownLatch( 1 );
+    final List<Future<String>> futureList = new ArrayList<Future<String>>();
+    for ( int ii = 0; ii < numberOfThreads; ii++ )
+    {
+      futureList.add( executorService.submit( new Callable<String>()
+      {
+        @Override
+        public String call() throws Exception
+        {
+          countDownLatch.await();
+          return cache.getOrCreate( "key", factory );
+        }
+      } ) );
+    }
+    countDownLatch.countDown();
+    
+    //
+    for ( Future<String> future : futureList )
+    {
+      assertEquals( "value", future.get() );
+    }
+    executorService.shutdown();
+    
+    //
+    assertEquals( 1, counter.get() );
+    assertEquals( 1, cache.getStatistics().getLoadSuccessCount() );
+  }
+  
+  @Test
+  public void testGetOrCreateDoesNotReloadValueLoadedByAnotherThread() throws Exception
+  {
+    //
+    final BoundedCache<BlockingKey, String> cache = BoundedCache.<BlockingKey, String> builder().maximumSize( 10 ).build();
+    final AtomicInteger counter = new AtomicInteger();
+    final Factory<String> factory = new Factory<String>()
+    {
+      @Override
+      public String newInstance()
+      {
+        return "value" + counter.incrementAndGet();
+      }
+    };
+    
+    //the second hash code call is done after the missing get and before the loading task is registered
+    final BlockingKey key = new BlockingKey( 2 );
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try
+    {
+      //
+      final Future<String> future = executorService.submit( new Callable<String>()
+      {
+        @Override
+        public String call() throws Exception
+        {
+          key.blockCurrentThread();
+          return cache.getOrCreate( key, factory );
+        }
+      } );
+      assertTrue( key.blockedLatch.await( 10, TimeUnit.SECONDS ) );
+      
+      //
+      assertEquals( "value1", cache.getOrCreate( key, factory ) );
+      key.releaseLatch.countDown();
+      assertEquals( "value1", future.get( 10, TimeUnit.SECONDS ) );
+    }
+    finally
+    {
+      key.releaseLatch.countDown();
+      executorService.shutdownNow();
+    }
+    
+    //
+    assertEquals( 1, counter.get() );
+    assertEquals( "value1", cache.get( key ) );
+  }
+  
+  @Test
+  public void testGetOrCreateRethrowsException()
+  {
+    //
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder().maximumSize( 10 ).build();
+    try
+    {
+      cache.getOrCreate( "key", new Factory<String>()
+      {
+        @Override
+        public String newInstance()
+        {
+          throw new IllegalStateException( "test" );
+        }
+      } );
+      fail();
+    }
+    catch ( IllegalStateException e )
+    {
+      assertEquals( "test", e.getMessage() );
+    }
+    
+    //
+    assertEquals( 1, cache.getStatistics().getLoadFailureCount() );
+    assertFalse( cache.containsKey( "key" ) );
+    assertEquals( "value", cache.getOrCreate( "key", new Factory<String>()
+    {
+      @Override
+      public String newInstance()
+      {
+        return "value";
+      }
+    } ) );
+  }
+  
+  @Test
+  public void testRefreshAfterWrite()
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final AtomicInteger counter = new AtomicInteger();
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                           .maximumSize( 10 )
+                                                           .refreshAfterWrite( 10, TimeUnit.SECONDS )
+                                                           .loader( new ElementConverter<String, String>()
+                                                           {
+                                                             @Override
+                                                             public String convert( String key )
+                                                             {
+                                                               return key + counter.incrementAndGet();
+                                                             }
+                                                           } )
+                                                           .ticker( ticker )
+                                                           .build();
+    
+    //
+    assertEquals( "key1", cache.getOrLoad( "key" ) );
+    assertEquals( "key1", cache.get( "key" ) );
+    
+    //
+    ticker.advance( 10, TimeUnit.SECONDS );
+    assertEquals( "key1", cache.get( "key" ) );
+    assertEquals( "key2", cache.get( "key" ) );
+    assertEquals( 2, cache.getStatistics().getLoadSuccessCount() );
+  }
+  
+  @Test
+  public void testRefreshDoesNotResurrectOrOverwrite()
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final AtomicInteger counter = new AtomicInteger();
+    final List<Runnable> runnableList = new ArrayList<Runnable>();
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                           .maximumSize( 10 )
+                                                           .refreshAfterWrite( 10, TimeUnit.SECONDS )
+                                                           .loader( new ElementConverter<String, String>()
+                                                           {
+                                                             @Override
+                                                             public String convert( String key )
+                                                             {
+                                                               return key + counter.incrementAndGet();
+                                                             }
+                                                           } )
+                                                           .executor( new Executor()
+                                                           {
+                                                             @Override
+                                                             public void execute( Runnable runnable )
+                                                             {
+                                                               runnableList.add( runnable );
+                                                             }
+                                                           } )
+                                                           .ticker( ticker )
+                                                           .build();
+    
+    //
+    assertEquals( "key1", cache.getOrLoad( "key" ) );
+    ticker.advance( 10, TimeUnit.SECONDS );
+    assertEquals( "key1", cache.get( "key" ) );
+    assertEquals( 1, runnableList.size() );
+    cache.remove( "key" );
+    runnableList.remove( 0 ).run();
+    assertNull( cache.get( "key" ) );
+    
+    //
+    assertEquals( "key3", cache.getOrLoad( "key" ) );
+    ticker.advance( 10, TimeUnit.SECONDS );
+    assertEquals( "key3", cache.get( "key" ) );
+    assertEquals( 1, runnableList.size() );
+    cache.put( "key", "other" );
+    runnableList.remove( 0 ).run();
+    assertEquals( "other", cache.get( "key" ) );
+    
+    //
+    ticker.advance( 10, TimeUnit.SECONDS );
+    assertEquals( "other", cache.get( "key" ) );
+    runnableList.remove( 0 ).run();
+    assertEquals( "key5", cache.get( "key" ) );
+  }
+  
+  @Test
+  public void testStatistics()
+  {
+    //
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder().maximumSize( 10 ).build();
+    cache.put( "key", "value" );
+    cache.get( "key" );
+    cache.get( "key" );
+    cache.get( "other" );
+    
+    //
+    final CacheStatistics cacheStatistics = cache.getStatistics();
+    assertEquals( 2, cacheStatistics.getHitCount() );
+    assertEquals( 1, cacheStatistics.getMissCount() );
+    assertEquals( 2.0 / 3.0, cacheStatistics.getHitRate(), 0.0001 );
+  }
+  
+  @Test
+  public void testMetrics()
+  {
+    //
+    final MetricRegistryInMemory metricRegistry = new MetricRegistryInMemory();
+    MetricUtils.setMetricRegistry( metricRegistry );
+    try
+    {
+      //
+      final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                             .maximumSize( 1 )
+                                                             .metricName( "cache" )
+                                                             .build();
+      cache.put( "key", "value" );
+      cache.get( "key" );
+      cache.get( "other" );
+      cache.put( "other", "value" );
+      cache.cleanUp();
+      
+      //
+      final MetricSnapshot metricSnapshot = metricRegistry.getSnapshot();
+      assertEquals( 1, metricSnapshot.getCounter( "cache.hit" ) );
+      assertEquals( 1, metricSnapshot.getCounter( "cache.miss" ) );
+      assertEquals( 1, metricSnapshot.getCounter( "cache.eviction" ) );
+    }
+    finally
+    {
+      MetricUtils.setMetricRegistry( null );
+    }
+  }
+  
+  @Test
+  public void testSerialization()
+  {
+    //
+    final BoundedCache<String, String> cache = BoundedCache.<String, String> builder()
+                                                           .maximumSize( 10 )
+                                                           .expireAfterWrite( 1, TimeUnit.HOURS )
+                                                           .build();
+    cache.put( "key1", "value1" );
+    cache.put( "key2", "value2" );
+    
+    //
+    final BoundedCache<String, String> cacheClone = SerializationUtils.clone( cache );
+    assertEquals( cache, cacheClone );
+    assertEquals( "value1", cacheClone.get( "key1" ) );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceHitRate()
+  {
+    //
+    final int maximumSize = 1000;
+    final int numberOfRequests = 1000000;
+    
+    //
+    {
+      final ZipfGenerator zipfGenerator = new ZipfGenerator( 100000, 0.99, 0 );
+      final int[] keys = new int[numberOfRequests];
+      for ( int ii = 0; ii < numberOfRequests; ii++ )
+      {
+        keys[ii] = zipfGenerator.next();
+      }
+      this.printHitRates( "Zipf", maximumSize, keys );
+    }
+    
+    //
+    {
+      final ZipfGenerator zipfGenerator = new ZipfGenerator( 10000, 0.99, 0 );
+      final int[] keys = new int[numberOfRequests];
+      for ( int ii = 0; ii < numberOfRequests; ii++ )
+      {
+        keys[ii] = ii % 10 == 0 ? 1000000 + ii : zipfGenerator.next();
+      }
+      this.printHitRates( "Zipf with 10% scan", maximumSize, keys );
+    }
+  }
+  
+  /**
+   * @param workload
+   * @param maximumSize
+   * @param keys
+   */
+  private void printHitRates( String workload, final int maximumSize, int[] keys )
+  {
+    //
+    final BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer> builder().maximumSize( maximumSize ).build();
+    final Factory<Integer> factory = new Factory<Integer>()
+    {
+      @Override
+      public Integer newInstance()
+      {
+        return 0;
+      }
+    };
+    for ( int key : keys )
+    {
+      cache.getOrCreate( key, factory );
+    }
+    
+    //
+    final Map<Integer, Integer> lruMap = new LinkedHashMap<Integer, Integer>( maximumSize, 0.75f, true )
+    {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry( Entry<Integer, Integer> eldest )
+      {
+        return this.size() > maximumSize;
+      }
+    };
+    int lruHits = 0;
+    for ( int key : keys )
+    {
+      if ( lruMap.get( key ) != null )
+      {
+        lruHits++;
+      }
+      else
+      {
+        lruMap.put( key, 0 );
+      }
+    }
+    
+    //
+    System.out.println( workload + ": hit rate W-TinyLFU=" + cache.getStatistics().getHitRate() + " LRU="
+                        + ( (double) lruHits / keys.length ) );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceMultithreaded() throws Exception
+  {
+    //
+    final int numberOfKeys = 100000;
+    final int numberOfRequestsPerThread = 2000000;
+    final ZipfGenerator zipfGenerator = new ZipfGenerator( numberOfKeys, 0.99, 0 );
+    final int[] keys = new int[1 << 20];
+    for ( int ii = 0; ii < keys.length; ii++ )
+    {
+      keys[ii] = zipfGenerator.next();
+    }
+    
+    //
+    for ( int numberOfThreads = 1; numberOfThreads <= 8; numberOfThreads *= 2 )
+    {
+      //
+      final BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer> builder().maximumSize( 10000 ).build();
+      final Factory<Integer> factory = new Factory<Integer>()
+      {
+        @Override
+        public Integer newInstance()
+        {
+          return 0;
+        }
+      };
+      
+      //
+      final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+      final List<Future<Void>> futureList = new ArrayList<Future<Void>>();
+      final long start = System.currentTimeMillis();
+      for ( int ii = 0; ii < numberOfThreads; ii++ )
+      {
+        final int offset = ii * 7919;
+        futureList.add( executorService.submit( new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for ( int jj = 0; jj < numberOfRequestsPerThread; jj++ )
+            {
+              cache.getOrCreate( keys[( offset + jj ) & ( keys.length - 1 )], factory );
+            }
+            return null;
+          }
+        } ) );
+      }
+      for ( Future<Void> future : futureList )
+      {
+        future.get();
+      }
+      final long duration = System.currentTimeMillis() - start;
+      executorService.shutdown();
+      
+      //
+      System.out.println( numberOfThreads + " threads: "
+                          + ( (long) numberOfThreads * numberOfRequestsPerThread * 1000 / Math.max( 1, duration ) )
+                          + " operations/s, hit rate " + cache.getStatistics().getHitRate() );
+    }
+  }
+}
@@ -16,10 +16,22 @@
 package org.omnaest.utils.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.SerializationUtils;
 import org.databene.contiperf.PerfTest;
 import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -68,4 +80,195 @@ public class ConcurrentWeakReferenceCacheTest
     }
     assertTrue( cacheHits > 0 );
   }
+  
+  /**
+   * The former design of the {@link ConcurrentWeakReferenceCache} which replicates all entries into every segment. Only used as
+   * reference for the performance test.
+   * 
+   * @author Omnaest
+   */
+  private static class ReplicatedWeakReferenceCache<K, V>
+  {
+    private final List<Cache<K, V>> cacheList             = new ArrayList<Cache<K, V>>();
+    private final AtomicLong        currentSegmentCounter = new AtomicLong();
+    
+    public ReplicatedWeakReferenceCache( int numberOfSegments )
+    {
+      for ( int ii = 0; ii < numberOfSegments; ii++ )
+      {
+        this.cacheList.add( new SynchronizedWeakReferenceCache<K, V>() );
+      }
+    }
+    
+    public V get( Object key )
+    {
+      final int numberOfSegments = this.cacheList.size();
+      final int index = ( numberOfSegments - 1 )
+                        - ( Math.abs( (int) this.currentSegmentCounter.getAndIncrement() ) % numberOfSegments );
+      return this.cacheList.get( index ).get( key );
+    }
+    
+    public void put( K key, V value )
+    {
+      for ( Cache<K, V> cache : this.cacheList )
+      {
+        cache.put( key, value );
+      }
+    }
+  }
+  
+  @Test
+  public void testPutGetAndRemove()
+  {
+    //
+    final ConcurrentWeakReferenceCache<String, String> cache = new ConcurrentWeakReferenceCache<String, String>( 4 );
+    assertTrue( cache.isEmpty() );
+    
+    //
+    for ( int ii = 0; ii < 1000; ii++ )
+    {
+      assertNull( cache.put( "key" + ii, "value" + ii ) );
+    }
+    assertEquals( "value1", cache.put( "key1", "other" ) );
+    assertEquals( 1000, cache.size() );
+    assertEquals( 1000, cache.keySet().size() );
+    assertEquals( "other", cache.get( "key1" ) );
+    assertEquals( "value999", cache.get( "key999" ) );
+    assertTrue( cache.containsValue( "value500" ) );
+    
+    //
+    assertNull( cache.put( null, "nullValue" ) );
+    assertEquals( "nullValue", cache.get( null ) );
+    assertTrue( cache.containsKey( null ) );
+    
+    //
+    for ( int ii = 0; ii < 1000; ii += 2 )
+    {
+      assertEquals( ii == 1 ? "other" : "value" + ii, cache.remove( "key" + ii ) );
+    }
+    assertEquals( 501, cache.size() );
+    assertFalse( cache.containsKey( "key0" ) );
+    assertEquals( "value3", cache.get( "key3" ) );
+    
+    //
+    final ConcurrentWeakReferenceCache<String, String> cacheClone = SerializationUtils.clone( cache );
+    assertEquals( cache, cacheClone );
+    
+    //
+    cache.clear();
+    assertTrue( cache.isEmpty() );
+    assertNull( cache.get( "key3" ) );
+  }
+  
+  @Test
+  public void testWeakKeysAreRemoved() throws InterruptedException
+  {
+    //
+    final ConcurrentWeakReferenceCache<Object, String> cache = new ConcurrentWeakReferenceCache<Object, String>( 4 );
+    final Object strongKey = new Object();
+    cache.put( strongKey, "strong" );
+    for ( int ii = 0; ii < 1000; ii++ )
+    {
+      cache.put( new Object(), "weak" + ii );
+    }
+    
+    //
+    for ( int ii = 0; ii < 50 && cache.size() > 1; ii++ )
+    {
+      System.gc();
+      Thread.sleep( 10 );
+    }
+    
+    //
+    assertEquals( 1, cache.size() );
+    assertEquals( "strong", cache.get( strongKey ) );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceContention() throws Exception
+  {
+    //
+    final int numberOfKeys = 10000;
+    final int numberOfOperationsPerThread = 1000000;
+    final String[] keys = new String[numberOfKeys];
+    for ( int ii = 0; ii < numberOfKeys; ii++ )
+    {
+      keys[ii] = "key" + ii;
+    }
+    
+    //
+    for ( final int numberOfThreads : new int[] { 1, 8, 32 } )
+    {
+      for ( int run = 0; run < 2; run++ )
+      {
+        //
+        final ConcurrentWeakReferenceCache<String, Object> cache = new ConcurrentWeakReferenceCache<String, Object>();
+        final ReplicatedWeakReferenceCache<String, Object> replicatedCache = new ReplicatedWeakReferenceCache<String, Object>(
+                                                                                                                               Runtime.getRuntime()
+                                                                                                                                      .availableProcessors() );
+        for ( boolean striped : new boolean[] { true, false } )
+        {
+          //
+          final boolean useStripedCache = striped;
+          final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+          final List<Future<Void>> futureList = new ArrayList<Future<Void>>();
+          final long start = System.currentTimeMillis();
+          for ( int ii = 0; ii < numberOfThreads; ii++ )
+          {
+            final int offset = ii * 7919;
+            futureList.add( executorService.submit( new Callable<Void>()
+            {
+              @Override
+              public Void call() throws Exception
+              {
+                for ( int jj = 0; jj < numberOfOperationsPerThread; jj++ )
+                {
+                  //
+                  final String key = keys[( offset + jj ) % numberOfKeys];
+                  final boolean isWrite = jj % 10 == 0;
+                  
+                  //
+                  if ( useStripedCache )
+                  {
+                    if ( isWrite )
+                    {
+                      cache.put( key, key );
+                    }
+                    else
+                    {
+                      cache.get( key );
+                    }
+                  }
+                  else
+                  {
+                    if ( isWrite )
+                    {
+                      replicatedCache.put( key, key );
+                    }
+                    else
+                    {
+                      replicatedCache.get( key );
+                    }
+                  }
+                }
+                return null;
+              }
+            } ) );
+          }
+          for ( Future<Void> future : futureList )
+          {
+            future.get();
+          }
+          final long duration = System.currentTimeMillis() - start;
+          executorService.shutdown();
+          
+          //
+          System.out.println( ( striped ? "striped" : "replicated" ) + " " + numberOfThreads + " threads: "
+                              + ( (long) numberOfThreads * numberOfOperationsPerThread * 1000 / Math.max( 1, duration ) )
+                              + " operations/s (90% reads)" );
+        }
+      }
+    }
+  }
 }
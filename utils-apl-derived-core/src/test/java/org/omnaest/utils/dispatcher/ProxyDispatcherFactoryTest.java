@@ -16,14 +16,25 @@
 package org.omnaest.utils.dispatcher;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.databene.contiperf.PerfTest;
 import org.databene.contiperf.junit.ContiPerfRule;
 import org.junit.Rule;
 import org.junit.Test;
+import org.omnaest.utils.dispatcher.ProxyDispatcherFactory.DispatchException;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.threads.submit.Reducer.ValuesHandler;
 
 /**
  * @see ProxyDispatcherFactory
@@ -79,6 +90,90 @@ public class ProxyDispatcherFactoryTest
     }
   }
   
+  private static interface TestListener
+  {
+    public int invalidate( String key );
+  }
+  
+  private static class TestListenerImpl implements TestListener
+  {
+    private final int            result;
+    private final long           durationInMilliseconds;
+    private final CountDownLatch countDownLatch;
+    
+    public TestListenerImpl( int result, long durationInMilliseconds, CountDownLatch countDownLatch )
+    {
+      super();
+      this.result = result;
+      this.durationInMilliseconds = durationInMilliseconds;
+      this.countDownLatch = countDownLatch;
+    }
+    
+    @Override
+    public int invalidate( String key )
+    {
+      //
+      if ( this.durationInMilliseconds > 0 )
+      {
+        try
+        {
+          Thread.sleep( this.durationInMilliseconds );
+        }
+        catch ( InterruptedException e )
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+      
+      //
+      if ( this.result < -1 )
+      {
+        throw new AssertionError( key );
+      }
+      if ( this.result < 0 )
+      {
+        throw new IllegalStateException( key );
+      }
+      
+      //
+      if ( this.countDownLatch != null )
+      {
+        this.countDownLatch.countDown();
+      }
+      return this.result;
+    }
+  }
+  
+  private static class ExceptionHandlerCollecting implements ExceptionHandler
+  {
+    private final List<Exception> exceptionList = new CopyOnWriteArrayList<Exception>();
+    
+    @Override
+    public void handleException( Exception e )
+    {
+      this.exceptionList.add( e );
+    }
+    
+    public List<Exception> getExceptionList()
+    {
+      return this.exceptionList;
+    }
+  }
+  
+  private static final ValuesHandler<Object, Integer> SUM = new ValuesHandler<Object, Integer>()
+                                                          {
+                                                            @Override
+                                                            public Integer reduce( Iterable<Object> values )
+                                                            {
+                                                              int retval = 0;
+                                                              for ( Object value : values )
+                                                              {
+                                                                retval += (Integer) value;
+                                                              }
+                                                              return retval;
+                                                            }
+                                                          };
+  
   /* *************************************************** Methods **************************************************** */
   
   @Test
@@ -96,6 +191,126 @@ public class ProxyDispatcherFactoryTest
     assertEquals( 3, instanceList.get( 1 ).getNumberOfCalls() );
   }
   
+  @Test
+  public void testSequentialDispatchWithResultReducer()
+  {
+    //
+    final ExceptionHandlerCollecting exceptionHandler = new ExceptionHandlerCollecting();
+    final List<TestListenerImpl> listenerList = Arrays.asList( new TestListenerImpl( 1, 0, null ), new TestListenerImpl( -1, 0, null ),
+                                                               new TestListenerImpl( 2, 0, null ) );
+    final TestListener dispatcher = new ProxyDispatcherFactory<TestListener>( TestListener.class ).setResultReducer( SUM )
+                                                                                                  .setExceptionHandler( exceptionHandler )
+                                                                                                  .newDispatcher( listenerList );
+    assertEquals( 3, dispatcher.invalidate( "key" ) );
+    assertEquals( 1, exceptionHandler.getExceptionList().size() );
+    final DispatchException dispatchException = (DispatchException) exceptionHandler.getExceptionList().get( 0 );
+    assertTrue( dispatchException.getCause() instanceof IllegalStateException );
+    assertEquals( "invalidate", dispatchException.getMethod().getName() );
+  }
+  
+  @Test
+  public void testSequentialDispatchWithError()
+  {
+    //
+    final ExceptionHandlerCollecting exceptionHandler = new ExceptionHandlerCollecting();
+    final List<TestListenerImpl> listenerList = Arrays.asList( new TestListenerImpl( 1, 0, null ), new TestListenerImpl( -2, 0, null ),
+                                                               new TestListenerImpl( 2, 0, null ) );
+    final TestListener dispatcher = new ProxyDispatcherFactory<TestListener>( TestListener.class ).setResultReducer( SUM )
+                                                                                                  .setExceptionHandler( exceptionHandler )
+                                                                                                  .newDispatcher( listenerList );
+    assertEquals( 3, dispatcher.invalidate( "key" ) );
+    assertEquals( 1, exceptionHandler.getExceptionList().size() );
+    assertTrue( exceptionHandler.getExceptionList().get( 0 ).getCause() instanceof AssertionError );
+  }
+  
+  @Test
+  public void testParallelDispatch()
+  {
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+    try
+    {
+      //
+      final ExceptionHandlerCollecting exceptionHandler = new ExceptionHandlerCollecting();
+      final List<TestListenerImpl> listenerList = Arrays.asList( new TestListenerImpl( 1, 100, null ),
+                                                                 new TestListenerImpl( 2, 100, null ),
+                                                                 new TestListenerImpl( 3, 100, null ),
+                                                                 new TestListenerImpl( 4, 2000, null ) );
+      final TestListener dispatcher = new ProxyDispatcherFactory<TestListener>( TestListener.class ).doDispatchParallel( executorService,
+                                                                                                                        1,
+                                                                                                                        TimeUnit.SECONDS )
+                                                                                                    .setResultReducer( SUM )
+                                                                                                    .setLatencyThreshold( 50,
+                                                                                                                          TimeUnit.MILLISECONDS )
+                                                                                                    .setExceptionHandler( exceptionHandler )
+                                                                                                    .newDispatcher( listenerList );
+      
+      //
+      final long start = System.currentTimeMillis();
+      assertEquals( 6, dispatcher.invalidate( "key" ) );
+      assertTrue( System.currentTimeMillis() - start < 1900 );
+      
+      //
+      int numberOfTimeouts = 0;
+      int numberOfLatencyReports = 0;
+      for ( Exception exception : exceptionHandler.getExceptionList() )
+      {
+        final DispatchException dispatchException = (DispatchException) exception;
+        if ( dispatchException.getCause() instanceof TimeoutException )
+        {
+          numberOfTimeouts++;
+          assertSame( listenerList.get( 3 ), dispatchException.getInstance() );
+        }
+        else if ( dispatchException.getInstance() != listenerList.get( 3 ) )
+        {
+          numberOfLatencyReports++;
+          assertTrue( dispatchException.getDurationInNanoseconds() >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+        }
+      }
+      assertEquals( 1, numberOfTimeouts );
+      assertEquals( 3, numberOfLatencyReports );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+  }
+  
+  @Test
+  public void testFireAndForgetDispatch() throws InterruptedException
+  {
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+    try
+    {
+      //
+      final ExceptionHandlerCollecting exceptionHandler = new ExceptionHandlerCollecting();
+      final CountDownLatch countDownLatch = new CountDownLatch( 2 );
+      final List<TestListenerImpl> listenerList = Arrays.asList( new TestListenerImpl( 1, 200, countDownLatch ),
+                                                                 new TestListenerImpl( 2, 200, countDownLatch ),
+                                                                 new TestListenerImpl( 3, 200, countDownLatch ) );
+      final TestListener dispatcher = new ProxyDispatcherFactory<TestListener>( TestListener.class ).doDispatchFireAndForget( executorService,
+                                                                                                                             2 )
+                                                                                                    .setResultReducer( SUM )
+                                                                                                    .setExceptionHandler( exceptionHandler )
+                                                                                                    .newDispatcher( listenerList );
+      
+      //
+      final long start = System.currentTimeMillis();
+      assertEquals( 0, dispatcher.invalidate( "key" ) );
+      assertTrue( System.currentTimeMillis() - start < 200 );
+      assertEquals( 1, exceptionHandler.getExceptionList().size() );
+      assertSame( listenerList.get( 2 ), ( (DispatchException) exceptionHandler.getExceptionList().get( 0 ) ).getInstance() );
+      
+      //
+      assertTrue( countDownLatch.await( 5, TimeUnit.SECONDS ) );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+  }
+  
   @Test
   // @PerfTest(invocations = numberOfInvocations)
   public void testNewDispatcherPerformance()
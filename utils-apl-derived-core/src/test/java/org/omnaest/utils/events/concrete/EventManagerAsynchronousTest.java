@@ -0,0 +1,559 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.events.concrete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.events.EventListener;
+import org.omnaest.utils.events.EventManager;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.BackpressureStrategy;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.BlockingWaitStrategy;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.BusySpinWaitStrategy;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.SleepingWaitStrategy;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.WaitStrategy;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.Availability;
+import org.omnaest.utils.events.concrete.EventManagerAsynchronous.YieldingWaitStrategy;
+import org.omnaest.utils.events.event.EventResults;
+import org.omnaest.utils.events.exception.basic.ExceptionHandlerBooleanState;
+
+/**
+ * @see EventManagerAsynchronous
+ * @author Omnaest
+ */
+public class EventManagerAsynchronousTest
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final int NUMBER_OF_PRODUCERS = 4;
+  
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link EventListener} which records all events and returns the event multiplied with a factor
+   */
+  private static class RecordingEventListener implements EventListener<Integer, Integer>
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final long     serialVersionUID = 2386744013424212297L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final int             factor;
+    private final long            delayInNanos;
+    protected final List<Integer> eventList        = Collections.synchronizedList( new ArrayList<Integer>() );
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    RecordingEventListener( int factor, long delayInNanos )
+    {
+      super();
+      this.factor = factor;
+      this.delayInNanos = delayInNanos;
+    }
+    
+    @Override
+    public List<Integer> handleEvent( Integer event )
+    {
+      //
+      this.eventList.add( event );
+      
+      //
+      if ( this.delayInNanos > 0 )
+      {
+        final long endTime = System.nanoTime() + this.delayInNanos;
+        while ( System.nanoTime() < endTime )
+        {
+          Thread.yield();
+        }
+      }
+      
+      //
+      return Arrays.asList( event * this.factor );
+    }
+  }
+  
+  /**
+   * {@link EventListener} which blocks until the given {@link CountDownLatch} is released
+   */
+  private static class BlockingEventListener extends RecordingEventListener
+  {
+    /* ********************************************** Constants ********************************************** */
+    private static final long    serialVersionUID = -2052457627383524386L;
+    
+    /* ********************************************** Variables ********************************************** */
+    private final CountDownLatch countDownLatch;
+    
+    /* ********************************************** Methods ********************************************** */
+    
+    BlockingEventListener( CountDownLatch countDownLatch )
+    {
+      super( 1, 0 );
+      this.countDownLatch = countDownLatch;
+    }
+    
+    @Override
+    public List<Integer> handleEvent( Integer event )
+    {
+      try
+      {
+        this.countDownLatch.await();
+      }
+      catch ( InterruptedException e )
+      {
+        Thread.currentThread().interrupt();
+      }
+      return super.handleEvent( event );
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testFireEventWithFuture() throws Exception
+  {
+    //
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>();
+    final RecordingEventListener eventListenerA = new RecordingEventListener( 10, 0 );
+    final RecordingEventListener eventListenerB = new RecordingEventListener( 100, TimeUnit.MILLISECONDS.toNanos( 10 ) );
+    eventManager.getEventListenerRegistration().addEventListener( eventListenerA ).addEventListener( eventListenerB );
+    
+    //
+    final EventResults<Integer> eventResults = eventManager.fireEvent( 1 );
+    assertTrue( eventResults.isEmpty() );
+    
+    //
+    final Future<EventResults<Integer>> future = eventManager.fireEventWithFuture( 2 );
+    assertEquals( Arrays.asList( 20, 200 ), future.get( 10, TimeUnit.SECONDS ).getResultList() );
+    assertEquals( Arrays.asList( 1, 2 ), eventListenerA.eventList );
+    assertEquals( Arrays.asList( 1, 2 ), eventListenerB.eventList );
+    
+    //
+    eventManager.clearListeners();
+    assertTrue( eventManager.fireEventWithFuture( 3 ).get( 10, TimeUnit.SECONDS ).isEmpty() );
+  }
+  
+  @Test
+  public void testOrderedDeliveryWithAllWaitStrategies() throws Exception
+  {
+    //
+    final List<WaitStrategy> waitStrategyList = new ArrayList<WaitStrategy>( Arrays.asList( new BlockingWaitStrategy(),
+                                                                                            new SleepingWaitStrategy(),
+                                                                                            new YieldingWaitStrategy() ) );
+    if ( Runtime.getRuntime().availableProcessors() > NUMBER_OF_PRODUCERS + 2 )
+    {
+      waitStrategyList.add( new BusySpinWaitStrategy() );
+    }
+    
+    //
+    for ( WaitStrategy waitStrategy : waitStrategyList )
+    {
+      this.assertOrderedDelivery( waitStrategy );
+    }
+  }
+  
+  private void assertOrderedDelivery( WaitStrategy waitStrategy ) throws Exception
+  {
+    //
+    final int capacity = 16;
+    final int numberOfEventsPerProducer = 1000;
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  capacity,
+                                                                                                                  waitStrategy,
+                                                                                                                  BackpressureStrategy.BLOCK,
+                                                                                                                  null,
+                                                                                                                  null );
+    final RecordingEventListener eventListenerFast = new RecordingEventListener( 1, 0 );
+    final RecordingEventListener eventListenerSlow = new RecordingEventListener( 1, 1000 );
+    eventManager.getEventListenerRegistration().addEventListener( eventListenerFast ).addEventListener( eventListenerSlow );
+    
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( NUMBER_OF_PRODUCERS );
+    final List<Future<?>> futureList = new ArrayList<Future<?>>();
+    for ( int producer = 0; producer < NUMBER_OF_PRODUCERS; producer++ )
+    {
+      final int offset = producer * numberOfEventsPerProducer;
+      futureList.add( executorService.submit( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for ( int ii = 0; ii < numberOfEventsPerProducer; ii++ )
+          {
+            eventManager.fireEvent( offset + ii );
+          }
+        }
+      } ) );
+    }
+    for ( Future<?> future : futureList )
+    {
+      future.get( 60, TimeUnit.SECONDS );
+    }
+    executorService.shutdown();
+    eventManager.fireEventWithFuture( -1 ).get( 60, TimeUnit.SECONDS );
+    
+    //
+    for ( RecordingEventListener eventListener : Arrays.asList( eventListenerFast, eventListenerSlow ) )
+    {
+      //
+      assertEquals( NUMBER_OF_PRODUCERS * numberOfEventsPerProducer + 1, eventListener.eventList.size() );
+      
+      //
+      final int[] lastEventPerProducer = new int[NUMBER_OF_PRODUCERS];
+      Arrays.fill( lastEventPerProducer, -1 );
+      for ( Integer event : eventListener.eventList.subList( 0, eventListener.eventList.size() - 1 ) )
+      {
+        final int producer = event / numberOfEventsPerProducer;
+        assertTrue( event > lastEventPerProducer[producer] );
+        lastEventPerProducer[producer] = event;
+      }
+    }
+    assertEquals( eventListenerFast.eventList, eventListenerSlow.eventList );
+    assertEquals( 0, eventManager.getNumberOfDroppedEvents() );
+    
+    //
+    eventManager.clearListeners();
+  }
+  
+  @Test
+  public void testBackpressureDrop() throws Exception
+  {
+    //
+    final CountDownLatch countDownLatch = new CountDownLatch( 1 );
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  3,
+                                                                                                                  new BlockingWaitStrategy(),
+                                                                                                                  BackpressureStrategy.DROP,
+                                                                                                                  null,
+                                                                                                                  null );
+    assertEquals( 4, eventManager.getCapacity() );
+    final BlockingEventListener eventListener = new BlockingEventListener( countDownLatch );
+    eventManager.getEventListenerRegistration().addEventListener( eventListener );
+    
+    //
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      eventManager.fireEvent( ii );
+    }
+    assertNull( eventManager.fireEventWithFuture( 10 ) );
+    assertEquals( 7, eventManager.getNumberOfDroppedEvents() );
+    assertEquals( 4, eventManager.getNumberOfPendingEvents() );
+    
+    //
+    countDownLatch.countDown();
+    eventManager.clearListeners();
+    final long endTime = System.currentTimeMillis() + 10000;
+    while ( eventManager.getNumberOfPendingEvents() > 0 && System.currentTimeMillis() < endTime )
+    {
+      Thread.sleep( 10 );
+    }
+    assertEquals( Arrays.asList( 0, 1, 2, 3 ), eventListener.eventList );
+  }
+  
+  @Test
+  public void testBackpressureBlock() throws Exception
+  {
+    //
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  2,
+                                                                                                                  new BlockingWaitStrategy(),
+                                                                                                                  BackpressureStrategy.BLOCK,
+                                                                                                                  null,
+                                                                                                                  null );
+    final RecordingEventListener eventListener = new RecordingEventListener( 1, TimeUnit.MILLISECONDS.toNanos( 1 ) );
+    eventManager.getEventListenerRegistration().addEventListener( eventListener );
+    
+    //
+    final List<Integer> expectedEventList = new ArrayList<Integer>();
+    for ( int ii = 0; ii < 50; ii++ )
+    {
+      eventManager.fireEvent( ii );
+      expectedEventList.add( ii );
+      assertTrue( eventManager.getNumberOfPendingEvents() <= 2 );
+    }
+    eventManager.fireEventWithFuture( 50 ).get( 10, TimeUnit.SECONDS );
+    expectedEventList.add( 50 );
+    
+    //
+    assertEquals( expectedEventList, eventListener.eventList );
+    assertEquals( 0, eventManager.getNumberOfDroppedEvents() );
+  }
+  
+  @Test
+  public void testRemoveEventListener() throws Exception
+  {
+    //
+    final CountDownLatch countDownLatch = new CountDownLatch( 1 );
+    final ExceptionHandlerBooleanState exceptionHandler = new ExceptionHandlerBooleanState();
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  8,
+                                                                                                                  new BlockingWaitStrategy(),
+                                                                                                                  BackpressureStrategy.BLOCK,
+                                                                                                                  null,
+                                                                                                                  exceptionHandler );
+    final BlockingEventListener eventListenerRemoved = new BlockingEventListener( countDownLatch );
+    final RecordingEventListener eventListenerFailing = new RecordingEventListener( 1, 0 )
+    {
+      private static final long serialVersionUID = 2920556727001566893L;
+      
+      @Override
+      public List<Integer> handleEvent( Integer event )
+      {
+        throw new IllegalStateException();
+      }
+    };
+    eventManager.getEventListenerRegistration()
+                .addEventListener( eventListenerRemoved )
+                .addEventListener( eventListenerRemoved )
+                .addEventListener( eventListenerFailing );
+    
+    //
+    final Future<EventResults<Integer>> future = eventManager.fireEventWithFuture( 1 );
+    eventManager.getEventListenerRegistration().removeEventListener( eventListenerRemoved );
+    final Future<EventResults<Integer>> futureAfterRemoval = eventManager.fireEventWithFuture( 2 );
+    
+    //
+    assertTrue( futureAfterRemoval.get( 10, TimeUnit.SECONDS ).isEmpty() );
+    assertFalse( future.isDone() );
+    countDownLatch.countDown();
+    assertEquals( Arrays.asList( 1 ), future.get( 10, TimeUnit.SECONDS ).getResultList() );
+    assertEquals( Arrays.asList( 1 ), eventListenerRemoved.eventList );
+    assertFalse( exceptionHandler.hasNoErrors() );
+  }
+  
+  @Test
+  public void testEventListenerThrowingError() throws Exception
+  {
+    //
+    final ExceptionHandlerBooleanState exceptionHandler = new ExceptionHandlerBooleanState();
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  8,
+                                                                                                                  new BlockingWaitStrategy(),
+                                                                                                                  BackpressureStrategy.BLOCK,
+                                                                                                                  null,
+                                                                                                                  exceptionHandler );
+    final RecordingEventListener eventListener = new RecordingEventListener( 1, 0 )
+    {
+      private static final long serialVersionUID = -4590123318807717364L;
+      
+      @Override
+      public List<Integer> handleEvent( Integer event )
+      {
+        if ( event == 1 )
+        {
+          throw new AssertionError();
+        }
+        return super.handleEvent( event );
+      }
+    };
+    eventManager.getEventListenerRegistration().addEventListener( eventListener );
+    
+    //
+    final Future<EventResults<Integer>> future = eventManager.fireEventWithFuture( 1 );
+    final Future<EventResults<Integer>> futureAfterError = eventManager.fireEventWithFuture( 2 );
+    assertTrue( future.get( 10, TimeUnit.SECONDS ).isEmpty() );
+    assertEquals( Arrays.asList( 2 ), futureAfterError.get( 10, TimeUnit.SECONDS ).getResultList() );
+    assertFalse( exceptionHandler.hasNoErrors() );
+    eventManager.shutdown();
+  }
+  
+  @Test
+  public void testInterruptedConsumer() throws Exception
+  {
+    //
+    final WaitStrategy waitStrategy = new WaitStrategy()
+    {
+      private final WaitStrategy waitStrategy = new BlockingWaitStrategy();
+      
+      @Override
+      public void waitFor( Availability availability ) throws InterruptedException
+      {
+        if ( Thread.interrupted() )
+        {
+          throw new InterruptedException();
+        }
+        this.waitStrategy.waitFor( availability );
+      }
+      
+      @Override
+      public void signalAll()
+      {
+        this.waitStrategy.signalAll();
+      }
+    };
+    final ExecutorService executorService = Executors.newCachedThreadPool();
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                  8,
+                                                                                                                  waitStrategy,
+                                                                                                                  BackpressureStrategy.BLOCK,
+                                                                                                                  executorService,
+                                                                                                                  null );
+    final CountDownLatch countDownLatchStarted = new CountDownLatch( 1 );
+    final CountDownLatch countDownLatch = new CountDownLatch( 1 );
+    final BlockingEventListener eventListener = new BlockingEventListener( countDownLatch )
+    {
+      private static final long serialVersionUID = 6520318457043380531L;
+      
+      @Override
+      public List<Integer> handleEvent( Integer event )
+      {
+        countDownLatchStarted.countDown();
+        return super.handleEvent( event );
+      }
+    };
+    eventManager.getEventListenerRegistration().addEventListener( eventListener );
+    
+    //
+    final Future<EventResults<Integer>> future = eventManager.fireEventWithFuture( 1 );
+    assertTrue( countDownLatchStarted.await( 10, TimeUnit.SECONDS ) );
+    final Future<EventResults<Integer>> futurePending = eventManager.fireEventWithFuture( 2 );
+    executorService.shutdownNow();
+    
+    //
+    assertEquals( Arrays.asList( 1 ), future.get( 10, TimeUnit.SECONDS ).getResultList() );
+    try
+    {
+      futurePending.get( 10, TimeUnit.SECONDS );
+      fail();
+    }
+    catch ( ExecutionException e )
+    {
+      assertTrue( e.getCause() instanceof InterruptedException );
+    }
+    
+    //
+    assertTrue( eventManager.fireEventWithFuture( 3 ).get( 10, TimeUnit.SECONDS ).isEmpty() );
+    assertEquals( Arrays.asList( 1 ), eventListener.eventList );
+    
+    //
+    try
+    {
+      eventManager.getEventListenerRegistration().addEventListener( new RecordingEventListener( 1, 0 ) );
+      fail();
+    }
+    catch ( RejectedExecutionException e )
+    {
+    }
+    assertTrue( eventManager.fireEventWithFuture( 4 ).get( 10, TimeUnit.SECONDS ).isEmpty() );
+  }
+  
+  @Test
+  public void testShutdown() throws Exception
+  {
+    //
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>();
+    final RecordingEventListener eventListener = new RecordingEventListener( 1, TimeUnit.MILLISECONDS.toNanos( 10 ) );
+    eventManager.getEventListenerRegistration().addEventListener( eventListener );
+    
+    //
+    eventManager.fireEvent( 1 );
+    final Future<EventResults<Integer>> future = eventManager.fireEventWithFuture( 2 );
+    eventManager.shutdown();
+    
+    //
+    assertEquals( Arrays.asList( 2 ), future.get( 10, TimeUnit.SECONDS ).getResultList() );
+    assertTrue( eventManager.fireEventWithFuture( 3 ).get( 10, TimeUnit.SECONDS ).isEmpty() );
+    try
+    {
+      eventManager.getEventListenerRegistration().addEventListener( eventListener );
+      fail();
+    }
+    catch ( RejectedExecutionException e )
+    {
+    }
+    assertEquals( Arrays.asList( 1, 2 ), eventListener.eventList );
+  }
+  
+  @Test
+  public void testSerializationIsRejected()
+  {
+    final EventManagerAsynchronous<Integer, Integer> eventManager = new EventManagerAsynchronous<Integer, Integer>();
+    try
+    {
+      SerializationUtils.serialize( eventManager );
+      fail();
+    }
+    catch ( SerializationException e )
+    {
+      assertTrue( e.getCause() instanceof NotSerializableException );
+    }
+    finally
+    {
+      eventManager.shutdown();
+    }
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceWithSlowListener() throws Exception
+  {
+    //
+    final int numberOfEvents = 20000;
+    final long delayInNanos = 20000;
+    
+    //
+    final EventManager<Integer, Integer> eventManagerSynchronous = new EventManagerImpl<Integer, Integer>();
+    final EventManagerAsynchronous<Integer, Integer> eventManagerAsynchronous = new EventManagerAsynchronous<Integer, Integer>(
+                                                                                                                              numberOfEvents,
+                                                                                                                              new BlockingWaitStrategy(),
+                                                                                                                              BackpressureStrategy.BLOCK,
+                                                                                                                              null,
+                                                                                                                              null );
+    for ( EventManager<Integer, Integer> eventManager : Arrays.asList( eventManagerSynchronous, eventManagerAsynchronous ) )
+    {
+      //
+      eventManager.getEventListenerRegistration().addEventListener( new RecordingEventListener( 1, 0 ) );
+      eventManager.getEventListenerRegistration().addEventListener( new RecordingEventListener( 1, delayInNanos ) );
+      
+      //
+      final long startTime = System.nanoTime();
+      for ( int ii = 0; ii < numberOfEvents; ii++ )
+      {
+        eventManager.fireEvent( ii );
+      }
+      final long producerDuration = System.nanoTime() - startTime;
+      if ( eventManager == eventManagerAsynchronous )
+      {
+        eventManagerAsynchronous.fireEventWithFuture( -1 ).get();
+      }
+      final long totalDuration = System.nanoTime() - startTime;
+      
+      //
+      System.out.println( eventManager.getClass().getSimpleName() + ": producer "
+                          + TimeUnit.NANOSECONDS.toMillis( producerDuration ) + " ms, total "
+                          + TimeUnit.NANOSECONDS.toMillis( totalDuration ) + " ms" );
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.cache.BoundedCache;
+import org.omnaest.utils.metrics.concrete.MetricRegistryInMemory;
+import org.omnaest.utils.metrics.concrete.MetricRegistryNoOperation;
+import org.omnaest.utils.metrics.decorator.TimedReadWriteLockDecorator;
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * @see MetricUtils
+ * @author Omnaest
+ */
+public class MetricUtilsTest
+{
+  @After
+  public void tearDown()
+  {
+    MetricUtils.setMetricRegistry( null );
+  }
+  
+  @Test
+  public void testSetMetricRegistry()
+  {
+    //
+    assertSame( MetricRegistryNoOperation.getInstance(), MetricUtils.getMetricRegistry() );
+    
+    //
+    final MetricRegistryInMemory metricRegistry = new MetricRegistryInMemory();
+    MetricUtils.setMetricRegistry( metricRegistry );
+    assertSame( metricRegistry, MetricUtils.getMetricRegistry() );
+    
+    //
+    MetricUtils.setMetricRegistry( null );
+    assertSame( MetricRegistryNoOperation.getInstance(), MetricUtils.getMetricRegistry() );
+  }
+  
+  @Test
+  public void testTimedIsIdentityIfDisabled()
+  {
+    final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    assertSame( readWriteLock, MetricUtils.timed( readWriteLock, "lock" ) );
+    
+    final Lock lock = new ReentrantLock();
+    assertSame( lock, MetricUtils.timed( lock, "lock" ) );
+  }
+  
+  @Test
+  public void testTimedReadWriteLock() throws Exception
+  {
+    //
+    final MetricRegistryInMemory metricRegistry = new MetricRegistryInMemory();
+    MetricUtils.setMetricRegistry( metricRegistry );
+    
+    //
+    final ReadWriteLock readWriteLock = MetricUtils.timed( new ReentrantReadWriteLock(), "lock" );
+    assertTrue( readWriteLock instanceof TimedReadWriteLockDecorator );
+    
+    //
+    readWriteLock.readLock().lock();
+    readWriteLock.readLock().unlock();
+    
+    //
+    final long waitDuration = TimeUnit.MILLISECONDS.toNanos( 50 );
+    final CountDownLatch lockedLatch = new CountDownLatch( 1 );
+    final Thread thread = new Thread( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        readWriteLock.readLock().lock();
+        try
+        {
+          lockedLatch.countDown();
+          Thread.sleep( TimeUnit.NANOSECONDS.toMillis( waitDuration ) );
+        }
+        catch ( InterruptedException e )
+        {
+        }
+        finally
+        {
+          readWriteLock.readLock().unlock();
+        }
+      }
+    } );
+    thread.start();
+    lockedLatch.await();
+    readWriteLock.writeLock().lock();
+    readWriteLock.writeLock().unlock();
+    thread.join();
+    
+    //
+    final MetricSnapshot metricSnapshot = metricRegistry.getSnapshot();
+    assertEquals( 2, metricSnapshot.getTimerMap().get( "lock.read.wait" ).getTotalCount() );
+    final LatencyHistogram writeWaitHistogram = metricSnapshot.getTimerMap().get( "lock.write.wait" );
+    assertEquals( 1, writeWaitHistogram.getTotalCount() );
+    assertTrue( writeWaitHistogram.toString(), writeWaitHistogram.getMaximum() >= waitDuration / 2 );
+    
+    //
+    final ReadWriteLock readWriteLockClone = SerializationUtils.clone( (TimedReadWriteLockDecorator) readWriteLock );
+    assertNotSame( readWriteLock, readWriteLockClone );
+    readWriteLockClone.writeLock().lock();
+    readWriteLockClone.writeLock().unlock();
+    assertEquals( 2, metricRegistry.getSnapshot().getTimerMap().get( "lock.write.wait" ).getTotalCount() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceDisabledAndEnabled()
+  {
+    //
+    final int numberOfOperations = 10000000;
+    final MetricRegistryInMemory metricRegistryInMemory = new MetricRegistryInMemory();
+    
+    //
+    for ( final boolean enabled : new boolean[] { false, true, false, true, false, true } )
+    {
+      //
+      MetricUtils.setMetricRegistry( enabled ? metricRegistryInMemory : null );
+      final ReadWriteLock readWriteLock = MetricUtils.timed( new ReentrantReadWriteLock(), "lock" );
+      final BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer> builder()
+                                                               .maximumSize( 1000 )
+                                                               .metricName( "cache" )
+                                                               .build();
+      final Counter counter = MetricUtils.getMetricRegistry().getCounter( "elements" );
+      for ( int ii = 0; ii < 1000; ii++ )
+      {
+        cache.put( ii, ii );
+      }
+      
+      //
+      long sum = 0;
+      final long startTime = System.nanoTime();
+      for ( int ii = 0; ii < numberOfOperations; ii++ )
+      {
+        final Lock readLock = readWriteLock.readLock();
+        readLock.lock();
+        try
+        {
+          final Integer value = cache.get( ii & 1023 );
+          sum += value != null ? value : 0;
+          counter.increment();
+        }
+        finally
+        {
+          readLock.unlock();
+        }
+      }
+      final long duration = System.nanoTime() - startTime;
+      
+      //
+      System.out.println( ( enabled ? "enabled " : "disabled" ) + ": " + TimeUnit.NANOSECONDS.toMillis( duration ) + " ms ("
+                          + duration / numberOfOperations + " ns per operation, checksum " + sum + ")" );
+    }
+    System.out.println( metricRegistryInMemory.getSnapshot() );
+  }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.metrics.concrete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+import org.omnaest.utils.metrics.Counter;
+import org.omnaest.utils.metrics.Gauge;
+import org.omnaest.utils.metrics.Histogram;
+import org.omnaest.utils.metrics.MetricSnapshot;
+import org.omnaest.utils.metrics.Timer;
+import org.omnaest.utils.time.LatencyHistogram;
+
+/**
+ * @see MetricRegistryInMemory
+ * @author Omnaest
+ */
+public class MetricRegistryInMemoryTest
+{
+  private final MetricRegistryInMemory metricRegistry = new MetricRegistryInMemory();
+  
+  @Test
+  public void testCounter()
+  {
+    //
+    final Counter counter = this.metricRegistry.getCounter( "counter" );
+    assertSame( counter, this.metricRegistry.getCounter( "counter" ) );
+    
+    //
+    counter.increment();
+    counter.increment( 5 );
+    this.metricRegistry.getCounter( "counter" ).increment();
+    
+    //
+    final MetricSnapshot metricSnapshot = this.metricRegistry.getSnapshot();
+    assertEquals( 7, metricSnapshot.getCounter( "counter" ) );
+    assertEquals( 0, metricSnapshot.getCounter( "unknown" ) );
+  }
+  
+  @Test
+  public void testTimerAndHistogram()
+  {
+    //
+    final Timer timer = this.metricRegistry.getTimer( "timer" );
+    timer.record( 1, TimeUnit.MILLISECONDS );
+    timer.record( 3, TimeUnit.MILLISECONDS );
+    timer.stop( timer.start() );
+    
+    //
+    final Histogram histogram = this.metricRegistry.getHistogram( "histogram" );
+    for ( int ii = 1; ii <= 100; ii++ )
+    {
+      histogram.record( ii );
+    }
+    
+    //
+    final MetricSnapshot metricSnapshot = this.metricRegistry.getSnapshot();
+    final LatencyHistogram timerHistogram = metricSnapshot.getTimerMap().get( "timer" );
+    assertEquals( 3, timerHistogram.getTotalCount() );
+    assertEquals( TimeUnit.MILLISECONDS.toNanos( 3 ), timerHistogram.getMaximum(), TimeUnit.MICROSECONDS.toNanos( 50 ) );
+    
+    final LatencyHistogram histogramHistogram = metricSnapshot.getHistogramMap().get( "histogram" );
+    assertEquals( 100, histogramHistogram.getTotalCount() );
+    assertEquals( 5050, histogramHistogram.getTotalValue() );
+    assertEquals( 50, histogramHistogram.getValueAtPercentile( 50.0 ) );
+    
+    //
+    final String export = metricSnapshot.toString();
+    assertTrue( export, export.contains( "timer     timer n=3" ) );
+    assertTrue( export, export.contains( "histogram histogram n=100" ) );
+  }
+  
+  @Test
+  public void testGauge()
+  {
+    //
+    final long[] value = new long[] { 1 };
+    this.metricRegistry.registerGauge( "gauge", new Gauge()
+    {
+      @Override
+      public long getValue()
+      {
+        return value[0];
+      }
+    } );
+    
+    //
+    assertEquals( Long.valueOf( 1 ), this.metricRegistry.getSnapshot().getGaugeMap().get( "gauge" ) );
+    value[0] = 2;
+    assertEquals( Long.valueOf( 2 ), this.metricRegistry.getSnapshot().getGaugeMap().get( "gauge" ) );
+    
+    //
+    this.metricRegistry.registerGauge( "gauge", null );
+    assertFalse( this.metricRegistry.getSnapshot().getGaugeMap().containsKey( "gauge" ) );
+  }
+  
+  @Test
+  public void testResetAndRate() throws InterruptedException
+  {
+    //
+    final Counter counter = this.metricRegistry.getCounter( "elements" );
+    final Timer timer = this.metricRegistry.getTimer( "timer" );
+    counter.increment( 1000 );
+    timer.record( 1, TimeUnit.MILLISECONDS );
+    
+    //
+    final MetricSnapshot previousSnapshot = this.metricRegistry.getSnapshot();
+    Thread.sleep( 50 );
+    counter.increment( 1000 );
+    final MetricSnapshot metricSnapshot = this.metricRegistry.getSnapshot();
+    final double rate = metricSnapshot.getCounterRatePerSecond( previousSnapshot, "elements" );
+    assertTrue( String.valueOf( rate ), rate > 0 && rate <= 1000.0 * 1000 / 50 );
+    
+    //
+    this.metricRegistry.reset();
+    counter.increment();
+    final MetricSnapshot snapshotAfterReset = this.metricRegistry.getSnapshot();
+    assertEquals( 1, snapshotAfterReset.getCounter( "elements" ) );
+    assertEquals( 0, snapshotAfterReset.getTimerMap().get( "timer" ).getTotalCount() );
+    
+    //
+    final MetricSnapshot clone = SerializationUtils.clone( snapshotAfterReset );
+    assertEquals( snapshotAfterReset.getCounterMap(), clone.getCounterMap() );
+  }
+  
+  @Test
+  public void testNoOperation()
+  {
+    //
+    final MetricRegistryNoOperation metricRegistryNoOperation = MetricRegistryNoOperation.getInstance();
+    assertFalse( metricRegistryNoOperation.isEnabled() );
+    
+    //
+    metricRegistryNoOperation.getCounter( "counter" ).increment();
+    final Timer timer = metricRegistryNoOperation.getTimer( "timer" );
+    timer.stop( timer.start() );
+    metricRegistryNoOperation.getHistogram( "histogram" ).record( 1 );
+    
+    //
+    final MetricSnapshot metricSnapshot = metricRegistryNoOperation.getSnapshot();
+    assertTrue( metricSnapshot.getCounterMap().isEmpty() );
+    assertTrue( metricSnapshot.getTimerMap().isEmpty() );
+    assertTrue( metricSnapshot.getHistogramMap().isEmpty() );
+  }
+}
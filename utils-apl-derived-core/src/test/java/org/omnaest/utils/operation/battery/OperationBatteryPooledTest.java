@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.battery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.Required;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.OperationFactory;
+import org.omnaest.utils.operation.battery.OperationBatteryPooled.Statistics;
+
+/**
+ * @see OperationBatteryPooled
+ * @author Omnaest
+ */
+public class OperationBatteryPooledTest
+{
+  @Rule
+  public ContiPerfRule                                 contiPerfRule                     = new ContiPerfRule();
+  
+  /* ********************************************** Variables ********************************************** */
+  private final AtomicBoolean                          concurrentUse                     = new AtomicBoolean();
+  private OperationFactory<String, String>             operationFactory                  = new OperationFactory<String, String>()
+                                                                                         {
+                                                                                           @Override
+                                                                                           public Operation<String, String> newOperation()
+                                                                                           {
+                                                                                             return new Operation<String, String>()
+                                                                                             {
+                                                                                               private final AtomicBoolean inUse = new AtomicBoolean();
+                                                                                               
+                                                                                               @Override
+                                                                                               public String execute( String parameter )
+                                                                                               {
+                                                                                                 if ( !this.inUse.compareAndSet( false,
+                                                                                                                                 true ) )
+                                                                                                 {
+                                                                                                   OperationBatteryPooledTest.this.concurrentUse.set( true );
+                                                                                                 }
+                                                                                                 try
+                                                                                                 {
+                                                                                                   Thread.sleep( parameter.endsWith( "0" ) ? 50
+                                                                                                                                          : 1 );
+                                                                                                 }
+                                                                                                 catch ( InterruptedException e )
+                                                                                                 {
+                                                                                                 }
+                                                                                                 this.inUse.set( false );
+                                                                                                 return parameter;
+                                                                                               }
+                                                                                             };
+                                                                                           }
+                                                                                         };
+  private OperationBatteryPooled<String, String>       operationBattery                  = new OperationBatteryPooled<String, String>(
+                                                                                                                                       this.operationFactory,
+                                                                                                                                       64 );
+  private final OperationBattery<String, String>       operationBatteryPooledSmall       = new OperationBatteryPooled<String, String>(
+                                                                                                                                       this.operationFactory,
+                                                                                                                                       8 );
+  private final OperationBattery<String, String>       operationBatteryRoundRobinSmall   = new OperationBatteryRoundRobin<String, String>(
+                                                                                                                                          this.operationFactory,
+                                                                                                                                          true,
+                                                                                                                                          8 );
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  @PerfTest(invocations = 100, threads = 64)
+  @Required(average = 800)
+  public void testExecute()
+  {
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      //
+      String parameter = "test" + ii;
+      String result = this.operationBattery.execute( parameter );
+      assertEquals( parameter, result );
+    }
+  }
+  
+  @Test
+  public void testExclusiveUseAndBoundedGrowth() throws Exception
+  {
+    //
+    final int maximumBatteryCapacity = 4;
+    final OperationBatteryPooled<String, String> operationBattery = new OperationBatteryPooled<String, String>(
+                                                                                                                this.operationFactory,
+                                                                                                                maximumBatteryCapacity );
+    assertEquals( 1, operationBattery.getStatistics().getSize() );
+    
+    //
+    final int numberOfThreads = 16;
+    final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+    try
+    {
+      //
+      final AtomicInteger counter = new AtomicInteger();
+      final Callable<Boolean> callable = new Callable<Boolean>()
+      {
+        @Override
+        public Boolean call() throws Exception
+        {
+          for ( int ii = 0; ii < 20; ii++ )
+          {
+            final String parameter = "test" + counter.incrementAndGet();
+            if ( !parameter.equals( operationBattery.execute( parameter ) ) )
+            {
+              return false;
+            }
+          }
+          return true;
+        }
+      };
+      
+      //
+      final Future<?>[] futures = new Future<?>[numberOfThreads];
+      for ( int ii = 0; ii < numberOfThreads; ii++ )
+      {
+        futures[ii] = executorService.submit( callable );
+      }
+      for ( Future<?> future : futures )
+      {
+        assertEquals( true, future.get() );
+      }
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    
+    //
+    assertFalse( this.concurrentUse.get() );
+    final Statistics statistics = operationBattery.getStatistics();
+    assertEquals( maximumBatteryCapacity, statistics.getPeakSize() );
+    assertEquals( maximumBatteryCapacity, statistics.getNumberOfCreatedOperations() );
+    assertEquals( 0, statistics.getNumberOfOperationsInUse() );
+    assertEquals( numberOfThreads * 20, statistics.getNumberOfExecutions() );
+    assertTrue( statistics.getNumberOfWaits() > 0 );
+    assertTrue( statistics.getWaitTime( TimeUnit.NANOSECONDS ) > 0 );
+  }
+  
+  @Test
+  public void testShrinkWhenIdle() throws Exception
+  {
+    //
+    final OperationBatteryPooled<String, String> operationBattery = new OperationBatteryPooled<String, String>(
+                                                                                                                this.operationFactory,
+                                                                                                                1, 4, 20,
+                                                                                                                TimeUnit.MILLISECONDS );
+    final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+    try
+    {
+      final Callable<String> callable = new Callable<String>()
+      {
+        @Override
+        public String call() throws Exception
+        {
+          return operationBattery.execute( "test0" );
+        }
+      };
+      for ( int ii = 0; ii < 4; ii++ )
+      {
+        executorService.submit( callable );
+      }
+      executorService.shutdown();
+      executorService.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    assertTrue( operationBattery.getStatistics().getPeakSize() > 1 );
+    
+    //
+    Thread.sleep( 50 );
+    assertEquals( "test1", operationBattery.execute( "test1" ) );
+    
+    //
+    final Statistics statistics = operationBattery.getStatistics();
+    assertEquals( 1, statistics.getSize() );
+    assertEquals( statistics.getNumberOfCreatedOperations() - 1, statistics.getNumberOfRemovedOperations() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  @PerfTest(invocations = 320, threads = 32)
+  public void testPerformanceSkewedPooled()
+  {
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      this.operationBatteryPooledSmall.execute( "test" + ii );
+    }
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  @PerfTest(invocations = 320, threads = 32)
+  public void testPerformanceSkewedRoundRobin()
+  {
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      this.operationBatteryRoundRobinSmall.execute( "test" + ii );
+    }
+  }
+  
+}
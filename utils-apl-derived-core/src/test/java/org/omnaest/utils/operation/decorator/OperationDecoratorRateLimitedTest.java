@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.decorator.OperationDecoratorRateLimited.AcquireMode;
+import org.omnaest.utils.structure.element.converter.ElementConverter;
+import org.omnaest.utils.structure.element.factory.Factory;
+import org.omnaest.utils.threads.ratelimit.RateLimitExceededException;
+import org.omnaest.utils.threads.ratelimit.RateLimiter;
+import org.omnaest.utils.threads.ratelimit.RateLimiterPerKey;
+import org.omnaest.utils.threads.ratelimit.RateLimiterSlidingWindow;
+import org.omnaest.utils.threads.ratelimit.RateLimiterTokenBucket;
+
+/**
+ * @see OperationDecoratorRateLimited
+ * @author Omnaest
+ */
+public class OperationDecoratorRateLimitedTest
+{
+  /* ********************************************** Variables ********************************************** */
+  private final AtomicInteger             executionCounter = new AtomicInteger();
+  private final Operation<String, String> operation        = new Operation<String, String>()
+                                                           {
+                                                             @Override
+                                                             public String execute( String parameter )
+                                                             {
+                                                               OperationDecoratorRateLimitedTest.this.executionCounter.incrementAndGet();
+                                                               return parameter;
+                                                             }
+                                                           };
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testTryAcquire()
+  {
+    //
+    final Operation<String, String> operationRateLimited = new OperationDecoratorRateLimited<String, String>(
+                                                                                                              this.operation,
+                                                                                                              new RateLimiterTokenBucket(
+                                                                                                                                          1,
+                                                                                                                                          1,
+                                                                                                                                          TimeUnit.HOURS,
+                                                                                                                                          2 ),
+                                                                                                              AcquireMode.TRY_ACQUIRE,
+                                                                                                              0,
+                                                                                                              TimeUnit.MILLISECONDS );
+    assertEquals( "a", operationRateLimited.execute( "a" ) );
+    assertEquals( "b", operationRateLimited.execute( "b" ) );
+    try
+    {
+      operationRateLimited.execute( "c" );
+      fail();
+    }
+    catch ( RateLimitExceededException e )
+    {
+      assertTrue( e.getDurationToWaitInMilliseconds() > TimeUnit.MINUTES.toMillis( 59 ) );
+    }
+    
+    //
+    assertEquals( 2, this.executionCounter.get() );
+  }
+  
+  @Test
+  public void testBlocking()
+  {
+    //
+    final Operation<String, String> operationRateLimited = new OperationDecoratorRateLimited<String, String>(
+                                                                                                              this.operation,
+                                                                                                              new RateLimiterTokenBucket(
+                                                                                                                                          100,
+                                                                                                                                          1,
+                                                                                                                                          TimeUnit.SECONDS,
+                                                                                                                                          1 ) );
+    final long startTime = System.nanoTime();
+    for ( int ii = 0; ii < 5; ii++ )
+    {
+      operationRateLimited.execute( "a" );
+    }
+    
+    //
+    assertEquals( 5, this.executionCounter.get() );
+    assertTrue( System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos( 30 ) );
+  }
+  
+  @Test
+  public void testTimed()
+  {
+    //
+    final Operation<String, String> operationRateLimited = new OperationDecoratorRateLimited<String, String>(
+                                                                                                              this.operation,
+                                                                                                              new RateLimiterSlidingWindow(
+                                                                                                                                            1,
+                                                                                                                                            1,
+                                                                                                                                            TimeUnit.HOURS ),
+                                                                                                              AcquireMode.TIMED,
+                                                                                                              10,
+                                                                                                              TimeUnit.MILLISECONDS );
+    operationRateLimited.execute( "a" );
+    try
+    {
+      operationRateLimited.execute( "a" );
+      fail();
+    }
+    catch ( RateLimitExceededException e )
+    {
+    }
+    
+    //
+    assertEquals( 1, this.executionCounter.get() );
+  }
+  
+  @Test
+  public void testInterrupted()
+  {
+    //
+    final Operation<String, String> operationRateLimited = new OperationDecoratorRateLimited<String, String>(
+                                                                                                              this.operation,
+                                                                                                              new RateLimiterTokenBucket(
+                                                                                                                                          1,
+                                                                                                                                          1,
+                                                                                                                                          TimeUnit.HOURS,
+                                                                                                                                          1 ) );
+    operationRateLimited.execute( "a" );
+    Thread.currentThread().interrupt();
+    try
+    {
+      operationRateLimited.execute( "a" );
+      fail();
+    }
+    catch ( RateLimitExceededException e )
+    {
+      assertTrue( Thread.interrupted() );
+    }
+  }
+  
+  @Test
+  public void testPerKey()
+  {
+    //
+    final RateLimiterPerKey<Character> rateLimiterPerKey = new RateLimiterPerKey<Character>( new Factory<RateLimiter>()
+    {
+      @Override
+      public RateLimiter newInstance()
+      {
+        return new RateLimiterTokenBucket( 1, 1, TimeUnit.HOURS, 1 );
+      }
+    }, 10 );
+    final Operation<String, String> operationRateLimited = new OperationDecoratorRateLimited<String, String>(
+                                                                                                              this.operation,
+                                                                                                              rateLimiterPerKey,
+                                                                                                              new ElementConverter<String, Character>()
+                                                                                                              {
+                                                                                                                @Override
+                                                                                                                public Character convert( String parameter )
+                                                                                                                {
+                                                                                                                  return parameter.charAt( 0 );
+                                                                                                                }
+                                                                                                              },
+                                                                                                              AcquireMode.TRY_ACQUIRE,
+                                                                                                              0,
+                                                                                                              TimeUnit.MILLISECONDS );
+    
+    //
+    operationRateLimited.execute( "a1" );
+    operationRateLimited.execute( "b1" );
+    try
+    {
+      operationRateLimited.execute( "a2" );
+      fail();
+    }
+    catch ( RateLimitExceededException e )
+    {
+    }
+    
+    //
+    assertEquals( 2, this.executionCounter.get() );
+  }
+  
+  /**
+   * 64 {@link Thread}s invoke a rate limited {@link Operation} as often as possible for a given duration. The achieved rate must
+   * not exceed the configured rate plus the initial burst.
+   * 
+   * @throws Exception
+   */
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceAccuracyWithConcurrentCallers() throws Exception
+  {
+    //
+    final int numberOfThreads = 64;
+    final long durationInMilliseconds = 3000;
+    final int permitsPerSecond = 2000;
+    
+    //
+    for ( final AcquireMode acquireMode : new AcquireMode[] { AcquireMode.BLOCKING, AcquireMode.TRY_ACQUIRE } )
+    {
+      //
+      final Map<String, RateLimiter> variantToRateLimiter = new LinkedHashMap<String, RateLimiter>();
+      variantToRateLimiter.put( "TokenBucket", new RateLimiterTokenBucket( permitsPerSecond, 1, TimeUnit.SECONDS, 100 ) );
+      variantToRateLimiter.put( "SlidingWindow", new RateLimiterSlidingWindow( permitsPerSecond / 20, 50, TimeUnit.MILLISECONDS ) );
+      
+      //
+      for ( Entry<String, RateLimiter> variantAndRateLimiter : variantToRateLimiter.entrySet() )
+      {
+        //
+        final AtomicInteger executionCounter = new AtomicInteger();
+        final AtomicInteger rejectionCounter = new AtomicInteger();
+        final Operation<Object, Object> operationRateLimited = new OperationDecoratorRateLimited<Object, Object>(
+                                                                                                                  new Operation<Object, Object>()
+                                                                                                                  {
+                                                                                                                    @Override
+                                                                                                                    public Object execute( Object parameter )
+                                                                                                                    {
+                                                                                                                      executionCounter.incrementAndGet();
+                                                                                                                      return parameter;
+                                                                                                                    }
+                                                                                                                  },
+                                                                                                                  variantAndRateLimiter.getValue(),
+                                                                                                                  acquireMode,
+                                                                                                                  0,
+                                                                                                                  TimeUnit.MILLISECONDS );
+        
+        //
+        final CountDownLatch startLatch = new CountDownLatch( 1 );
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( durationInMilliseconds );
+        final List<Thread> threadList = new ArrayList<Thread>();
+        for ( int ii = 0; ii < numberOfThreads; ii++ )
+        {
+          final Thread thread = new Thread( new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              try
+              {
+                startLatch.await();
+                while ( System.nanoTime() < deadline )
+                {
+                  try
+                  {
+                    operationRateLimited.execute( null );
+                  }
+                  catch ( RateLimitExceededException e )
+                  {
+                    rejectionCounter.incrementAndGet();
+                  }
+                }
+              }
+              catch ( InterruptedException e )
+              {
+              }
+            }
+          } );
+          thread.start();
+          threadList.add( thread );
+        }
+        
+        //
+        final long startTime = System.nanoTime();
+        startLatch.countDown();
+        for ( Thread thread : threadList )
+        {
+          thread.join();
+        }
+        final long duration = System.nanoTime() - startTime;
+        
+        //
+        final double expectedMaximum = 100 + permitsPerSecond * ( duration / 1000000000.0 );
+        final int executions = executionCounter.get();
+        System.out.println( acquireMode + " " + variantAndRateLimiter.getKey() + ": " + executions + " executions, "
+                            + rejectionCounter.get() + " rejections in " + TimeUnit.NANOSECONDS.toMillis( duration )
+                            + "ms, " + Math.round( executions / ( duration / 1000000000.0 ) ) + " per second, allowed "
+                            + Math.round( expectedMaximum ) );
+        assertTrue( executions <= expectedMaximum );
+        assertTrue( executions >= expectedMaximum * 0.9 );
+      }
+    }
+  }
+}
@@ -175,4 +175,33 @@ public class ForEachOperationTest
     }
   }
   
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testExecuteInParallelUsingWorkStealing()
+  {
+    //
+    final Operation<String, String> operationUpperCase = new Operation<String, String>()
+    {
+      @Override
+      public String execute( String parameter )
+      {
+        return parameter.toUpperCase();
+      }
+    };
+    final Operation<String, String> operationDoubled = new Operation<String, String>()
+    {
+      @Override
+      public String execute( String parameter )
+      {
+        return parameter + parameter;
+      }
+    };
+    
+    //
+    final Result<String> result = new ForEachOperation<String, String>( this.iterables ).doExecuteInParallelUsingWorkStealing()
+                                                                                         .execute( operationUpperCase,
+                                                                                                   operationDoubled );
+    assertEquals( Arrays.asList( "A", "aa", "B", "bb", "C", "cc", "D", "dd" ), result );
+  }
+  
 }
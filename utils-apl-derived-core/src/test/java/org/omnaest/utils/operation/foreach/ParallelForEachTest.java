@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.operation.foreach;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.operation.Operation;
+import org.omnaest.utils.operation.foreach.ForEach.IterationResult;
+import org.omnaest.utils.operation.special.OperationBooleanResult;
+import org.omnaest.utils.operation.special.OperationVoid;
+import org.omnaest.utils.structure.collection.list.ListUtils;
+
+/**
+ * @see ParallelForEach
+ * @author Omnaest
+ */
+public class ParallelForEachTest
+{
+  /* ********************************************** Constants ********************************************** */
+  private static final Operation<Long, Long>             SQUARE_OPERATION = new Operation<Long, Long>()
+                                                                          {
+                                                                            @Override
+                                                                            public Long execute( Long value )
+                                                                            {
+                                                                              return value * value;
+                                                                            }
+                                                                          };
+  private static final Operation<Long, Collection<Long>> SUM_REDUCER      = new Operation<Long, Collection<Long>>()
+                                                                          {
+                                                                            @Override
+                                                                            public Long execute( Collection<Long> values )
+                                                                            {
+                                                                              long sum = 0;
+                                                                              for ( Long value : values )
+                                                                              {
+                                                                                sum += value;
+                                                                              }
+                                                                              return sum;
+                                                                            }
+                                                                          };
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testMapPreservesEncounterOrder() throws ExecutionException
+  {
+    //
+    final List<Long> valueList = newValueList( 10000 );
+    final IterationResult<Long> iterationResult = new ParallelForEach<Long>( valueList ).doUseParallelism( 4 )
+                                                                                        .doPreserveEncounterOrder( true )
+                                                                                        .map( SQUARE_OPERATION );
+    
+    //
+    final List<Long> resultList = ListUtils.valueOf( iterationResult );
+    assertEquals( valueList.size(), resultList.size() );
+    for ( int ii = 0; ii < resultList.size(); ii++ )
+    {
+      assertEquals( ii * (long) ii, resultList.get( ii ).longValue() );
+    }
+  }
+  
+  @Test
+  public void testMapUnordered() throws ExecutionException
+  {
+    //
+    final List<Long> valueList = newValueList( 10000 );
+    final List<Long> resultList = ListUtils.valueOf( new ParallelForEach<Long>( valueList ).doUseParallelism( 4 )
+                                                                                           .map( new Operation<Long, Long>()
+                                                                                           {
+                                                                                             @Override
+                                                                                             public Long execute( Long value )
+                                                                                             {
+                                                                                               return value;
+                                                                                             }
+                                                                                           } ) );
+    
+    //
+    Collections.sort( resultList );
+    assertEquals( valueList, resultList );
+  }
+  
+  @Test
+  public void testMapReduceRange() throws ExecutionException
+  {
+    //
+    final Operation<Long, Long> identity = new Operation<Long, Long>()
+    {
+      @Override
+      public Long execute( Long value )
+      {
+        return value;
+      }
+    };
+    
+    //
+    assertEquals( 100000L * 100001L / 2,
+                  new ParallelForEach<Long>( new Range( 1, 100000 ) ).doUseParallelism( 4 ).mapReduce( identity, SUM_REDUCER )
+                                                                     .longValue() );
+    assertEquals( 1L + 4 + 7 + 10, new ParallelForEach<Long>( new Range( 1L, 11L, 3L ) ).doUseParallelism( 4 )
+                                                                                     .mapReduce( identity, SUM_REDUCER )
+                                                                                     .longValue() );
+    assertEquals( 0L, new ParallelForEach<Long>( new Range( 5, 1 ) ).mapReduce( identity, SUM_REDUCER ).longValue() );
+  }
+  
+  @Test
+  public void testMapReduceEncounterOrder() throws ExecutionException
+  {
+    //
+    final Operation<String, Collection<String>> concatenation = new Operation<String, Collection<String>>()
+    {
+      @Override
+      public String execute( Collection<String> values )
+      {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for ( String value : values )
+        {
+          stringBuilder.append( value );
+        }
+        return stringBuilder.toString();
+      }
+    };
+    
+    //
+    final String result = new ParallelForEach<Long>( new Range( 0, 999 ) ).doUseParallelism( 4 )
+                                                                           .doPreserveEncounterOrder( true )
+                                                                           .mapReduce( new Operation<String, Long>()
+                                                                           {
+                                                                             @Override
+                                                                             public String execute( Long value )
+                                                                             {
+                                                                               return value + ",";
+                                                                             }
+                                                                           }, concatenation );
+    
+    //
+    final StringBuilder expected = new StringBuilder();
+    for ( int ii = 0; ii <= 999; ii++ )
+    {
+      expected.append( ii ).append( "," );
+    }
+    assertEquals( expected.toString(), result );
+  }
+  
+  @Test
+  public void testFindFirst() throws ExecutionException
+  {
+    //
+    final ParallelForEach<Long> parallelForEach = new ParallelForEach<Long>( newValueList( 10000 ) ).doUseParallelism( 4 );
+    assertEquals( 500L, parallelForEach.findFirst( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        return value >= 500 && value % 250 == 0;
+      }
+    } ).longValue() );
+    assertNull( parallelForEach.findFirst( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        return value < 0;
+      }
+    } ) );
+  }
+  
+  @Test
+  public void testAnyAndAllMatch() throws ExecutionException
+  {
+    //
+    final AtomicLong counter = new AtomicLong();
+    final ParallelForEach<Long> parallelForEach = new ParallelForEach<Long>( new Range( 0, 10000000 ) ).doUseParallelism( 4 );
+    assertTrue( parallelForEach.anyMatch( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        counter.incrementAndGet();
+        return value == 10;
+      }
+    } ) );
+    assertTrue( counter.get() < 10000000 );
+    
+    //
+    assertEquals( 10L, parallelForEach.findAny( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        return value == 10;
+      }
+    } ).longValue() );
+    
+    //
+    assertTrue( parallelForEach.allMatch( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        return value >= 0;
+      }
+    } ) );
+    assertFalse( parallelForEach.allMatch( new OperationBooleanResult<Long>()
+    {
+      @Override
+      public Boolean execute( Long value )
+      {
+        return value < 1000;
+      }
+    } ) );
+  }
+  
+  @Test
+  public void testForEachNotRandomAccess() throws ExecutionException
+  {
+    //
+    final AtomicLong sum = new AtomicLong();
+    new ParallelForEach<Long>( new LinkedList<Long>( newValueList( 1000 ) ) ).doUseParallelism( 3 )
+                                                                             .forEach( new OperationVoid<Long>()
+                                                                             {
+                                                                               @Override
+                                                                               public void execute( Long value )
+                                                                               {
+                                                                                 sum.addAndGet( value );
+                                                                               }
+                                                                             } );
+    
+    //
+    assertEquals( 999L * 1000L / 2, sum.get() );
+  }
+  
+  @Test
+  public void testNestedExecutionDoesNotStarve() throws ExecutionException
+  {
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( 1 );
+    try
+    {
+      final long sum = new ParallelForEach<Long>( new Range( 1, 100 ) ).doUseExecutorService( executorService )
+                                                                       .doUseParallelism( 4 )
+                                                                       .mapReduce( new Operation<Long, Long>()
+                                                                       {
+                                                                         @Override
+                                                                         public Long execute( Long value )
+                                                                         {
+                                                                           try
+                                                                           {
+                                                                             return new ParallelForEach<Long>( new Range( 1, value ) ).doUseExecutorService( executorService )
+                                                                                                                                      .doUseParallelism( 4 )
+                                                                                                                                      .mapReduce( SQUARE_OPERATION,
+                                                                                                                                                  SUM_REDUCER );
+                                                                           }
+                                                                           catch ( ExecutionException e )
+                                                                           {
+                                                                             throw new IllegalStateException( e );
+                                                                           }
+                                                                         }
+                                                                       }, SUM_REDUCER );
+      
+      //
+      long expected = 0;
+      for ( long ii = 1; ii <= 100; ii++ )
+      {
+        expected += ii * ( ii + 1 ) * ( 2 * ii + 1 ) / 6;
+      }
+      assertEquals( expected, sum );
+    }
+    finally
+    {
+      executorService.shutdown();
+    }
+  }
+  
+  @Test
+  public void testExceptionHandling()
+  {
+    try
+    {
+      new ParallelForEach<Long>( newValueList( 1000 ) ).doUseParallelism( 4 ).map( new Operation<Long, Long>()
+      {
+        @Override
+        public Long execute( Long value )
+        {
+          if ( value == 500 )
+          {
+            throw new IllegalArgumentException();
+          }
+          return value;
+        }
+      } );
+      fail();
+    }
+    catch ( ExecutionException e )
+    {
+      assertTrue( e.getCause() instanceof IllegalArgumentException );
+    }
+  }
+  
+  /**
+   * Compares the chunked work stealing execution with a plain loop and the one task per element execution of
+   * {@link ForEach#map(Operation, ExecutorService)} for a cheap {@link Operation}
+   * 
+   * @throws Exception
+   */
+  @Test
+  @Ignore("Performance test")
+  public void testPerformance() throws Exception
+  {
+    //
+    final int numberOfElements = 10000000;
+    final int numberOfElementsPerElementTask = 1000000;
+    final List<Long> valueList = newValueList( numberOfElements );
+    final Range range = new Range( 0, numberOfElements - 1 );
+    
+    //
+    for ( int repetition = 0; repetition < 3; repetition++ )
+    {
+      //
+      long startTime = System.nanoTime();
+      long sum = 0;
+      for ( Long value : valueList )
+      {
+        sum += SQUARE_OPERATION.execute( value );
+      }
+      print( "loop", numberOfElements, startTime, sum );
+      
+      //
+      startTime = System.nanoTime();
+      sum = new ParallelForEach<Long>( valueList ).mapReduce( SQUARE_OPERATION, SUM_REDUCER );
+      print( "parallel mapReduce list", numberOfElements, startTime, sum );
+      
+      //
+      startTime = System.nanoTime();
+      sum = new ParallelForEach<Long>( range ).mapReduce( SQUARE_OPERATION, SUM_REDUCER );
+      print( "parallel mapReduce range", numberOfElements, startTime, sum );
+      
+      //
+      startTime = System.nanoTime();
+      sum = new ParallelForEach<Long>( valueList ).doPreserveEncounterOrder( true ).map( SQUARE_OPERATION ).reduce( SUM_REDUCER );
+      print( "parallel ordered map list", numberOfElements, startTime, sum );
+      
+      //
+      startTime = System.nanoTime();
+      final Long found = new ParallelForEach<Long>( range ).findFirst( new OperationBooleanResult<Long>()
+      {
+        @Override
+        public Boolean execute( Long value )
+        {
+          return value == 1000;
+        }
+      } );
+      print( "parallel findFirst range", numberOfElements, startTime, found );
+      
+      //
+      final ExecutorService executorService = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+      try
+      {
+        startTime = System.nanoTime();
+        sum = new ForEach<Long>( valueList.subList( 0, numberOfElementsPerElementTask ) ).map( SQUARE_OPERATION, executorService )
+                                                                                         .reduce( SUM_REDUCER );
+        print( "task per element map list", numberOfElementsPerElementTask, startTime, sum );
+      }
+      finally
+      {
+        executorService.shutdown();
+      }
+    }
+  }
+  
+  private static void print( String variant, int numberOfElements, long startTime, Object result )
+  {
+    final long duration = System.nanoTime() - startTime;
+    System.out.println( variant + ": " + duration / 1000000 + "ms " + ( duration / numberOfElements ) + "ns/element (" + result
+                        + ")" );
+  }
+  
+  private static List<Long> newValueList( int size )
+  {
+    final List<Long> retlist = new ArrayList<Long>( size );
+    for ( long ii = 0; ii < size; ii++ )
+    {
+      retlist.add( ii );
+    }
+    return retlist;
+  }
+}
@@ -16,11 +16,23 @@
 package org.omnaest.utils.proxy;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import net.sf.cglib.proxy.Enhancer;
 
 import org.junit.Ignore;
 import org.junit.Test;
 import org.omnaest.utils.proxy.handler.MethodCallCapture;
 import org.omnaest.utils.proxy.handler.MethodInvocationHandler;
+import org.omnaest.utils.reflection.ClassMetadataRegistryTest;
 
 /**
  * @see StubCreator
@@ -45,6 +57,19 @@ public class StubCreatorTest
     public String echoValue( String value );
   }
   
+  protected static interface TestInterfaceOther
+  {
+  }
+  
+  protected static class TestClass implements TestInterface
+  {
+    @Override
+    public String echoValue( String value )
+    {
+      return value + value;
+    }
+  }
+  
   /* ********************************************** Methods ********************************************** */
   @Test
   public void testNewInstance()
@@ -63,17 +88,143 @@ public class StubCreatorTest
     assertEquals( "test", testInterface.echoValue( "test" ) );
   }
   
+  @Test
+  public void testNewInstanceUsesCachedProxyClass()
+  {
+    //
+    final TestInterface testInterface1 = StubCreator.newStubInstance( TestInterface.class, this.methodInvocationHandler );
+    final TestInterface testInterface2 = StubCreator.newStubInstance( TestInterface.class, this.methodInvocationHandler );
+    final TestInterface testInterface3 = StubCreator.newStubInstance( TestInterface.class,
+                                                                      new Class<?>[] { TestInterfaceOther.class },
+                                                                      this.methodInvocationHandler );
+    assertNotSame( testInterface1, testInterface2 );
+    assertSame( testInterface1.getClass(), testInterface2.getClass() );
+    assertNotSame( testInterface1.getClass(), testInterface3.getClass() );
+    assertTrue( testInterface3 instanceof TestInterfaceOther );
+    assertEquals( "test", testInterface3.echoValue( "test" ) );
+    
+    //
+    final TestInterface testInterface4 = new StubCreator<TestInterface>( TestInterface.class ).build( this.methodInvocationHandler );
+    assertSame( testInterface1.getClass(), testInterface4.getClass() );
+  }
+  
+  @Test
+  public void testStubOfForeignClassLoaderIsNotPinned() throws Exception
+  {
+    //
+    final URL url = StubCreatorTest.class.getProtectionDomain().getCodeSource().getLocation();
+    final String namePrefix = StubCreatorTest.class.getName() + "$";
+    ClassLoader classLoader = new URLClassLoader( new URL[] { url }, Enhancer.class.getClassLoader() )
+    {
+      @Override
+      protected synchronized Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException
+      {
+        //
+        if ( name.startsWith( namePrefix ) )
+        {
+          Class<?> type = this.findLoadedClass( name );
+          return type != null ? type : this.findClass( name );
+        }
+        return super.loadClass( name, resolve );
+      }
+    };
+    Class<?> type = classLoader.loadClass( TestClass.class.getName() );
+    assertNotSame( TestClass.class, type );
+    
+    //
+    Object stub = StubCreator.newStubInstance( type, this.methodInvocationHandler );
+    assertNotNull( stub );
+    
+    //
+    final WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>( classLoader );
+    classLoader = null;
+    type = null;
+    stub = null;
+    ClassMetadataRegistryTest.collectGarbage( classLoaderReference );
+    assertNull( classLoaderReference.get() );
+  }
+  
+  @Test
+  public void testInvokeOn()
+  {
+    //
+    final TestClass testClass = new TestClass();
+    final MethodInvocationHandler methodInvocationHandler = new MethodInvocationHandler()
+    {
+      @Override
+      public Object handle( MethodCallCapture methodCallCapture ) throws Throwable
+      {
+        return methodCallCapture.invokeOn( testClass );
+      }
+    };
+    
+    //
+    assertEquals( "testtest", StubCreator.newStubInstance( TestInterface.class, methodInvocationHandler ).echoValue( "test" ) );
+    assertEquals( "testtest", StubCreator.newStubInstance( TestClass.class, methodInvocationHandler ).echoValue( "test" ) );
+  }
+  
+  @Test
+  @Ignore("Performancetest")
+  public void testInvocationPerformance()
+  {
+    //
+    final TestClass testClass = new TestClass();
+    final TestInterface testInterfaceForwarding = StubCreator.newStubInstance( TestInterface.class, new MethodInvocationHandler()
+    {
+      @Override
+      public Object handle( MethodCallCapture methodCallCapture ) throws Throwable
+      {
+        return methodCallCapture.invokeOn( testClass );
+      }
+    } );
+    final TestInterface testInterfaceReflection = StubCreator.newStubInstance( TestInterface.class, new MethodInvocationHandler()
+    {
+      @Override
+      public Object handle( MethodCallCapture methodCallCapture ) throws Throwable
+      {
+        return methodCallCapture.getMethod().invoke( testClass, methodCallCapture.getArguments() );
+      }
+    } );
+    
+    //
+    final int numberOfInvocations = 10000000;
+    for ( int jj = 0; jj < 3; jj++ )
+    {
+      //
+      long start = System.currentTimeMillis();
+      for ( int ii = 0; ii < numberOfInvocations; ii++ )
+      {
+        testInterfaceForwarding.echoValue( "test" );
+      }
+      final long durationForwarding = System.currentTimeMillis() - start;
+      
+      //
+      start = System.currentTimeMillis();
+      for ( int ii = 0; ii < numberOfInvocations; ii++ )
+      {
+        testInterfaceReflection.echoValue( "test" );
+      }
+      final long durationReflection = System.currentTimeMillis() - start;
+      
+      //
+      System.out.println( "Invocations: " + numberOfInvocations + " invokeOn: " + durationForwarding + "ms reflection: "
+                          + durationReflection + "ms" );
+    }
+  }
+  
   @Test
   @Ignore("Performancetest")
   public void testNewInstancePerformance()
   {
     //
     final int numberOfInvocations = 1000000;
+    final long start = System.currentTimeMillis();
     for ( int ii = 0; ii < numberOfInvocations; ii++ )
     {
       final TestInterface testInterface = StubCreator.newStubInstance( TestInterface.class, this.methodInvocationHandler );
       assertEquals( "test", testInterface.echoValue( "test" ) );
     }
+    System.out.println( "Created " + numberOfInvocations + " stubs in " + ( System.currentTimeMillis() - start ) + "ms" );
   }
   
   @Test
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.structure.collection.list.ListUtils;
+
+/**
+ * @see AnnotationIndex
+ * @see AnnotationIndexProcessor
+ * @author Omnaest
+ */
+public class AnnotationIndexTest
+{
+  /* ********************************************** Variables ********************************************** */
+  private File           directory   = null;
+  private URLClassLoader classLoader = null;
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Before
+  public void setUp() throws IOException
+  {
+    //
+    final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+    Assume.assumeTrue( javaCompiler != null );
+    
+    //
+    this.directory = File.createTempFile( "AnnotationIndexTest", "" );
+    this.directory.delete();
+    this.directory.mkdirs();
+    
+    //
+    final File sourceDirectory = new File( this.directory, "testindex" );
+    FileUtils.writeStringToFile( new File( sourceDirectory, "Marker.java" ),
+                                 "package testindex;\n"
+                                     + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                                     + "public @interface Marker {}\n" );
+    FileUtils.writeStringToFile( new File( sourceDirectory, "package-info.java" ), "@Marker\npackage testindex;\n" );
+    FileUtils.writeStringToFile( new File( sourceDirectory, "Annotated.java" ), "package testindex;\n" + "@Marker\n"
+                                                                               + "public class Annotated {\n"
+                                                                               + "  @Marker public void run() {}\n"
+                                                                               + "  @SuppressWarnings(\"all\") public void other() {}\n"
+                                                                               + "  @Marker public static class Inner {}\n" + "}\n" );
+    
+    //
+    this.compile( sourceDirectory.listFiles() );
+    
+    //
+    this.classLoader = new URLClassLoader( new URL[] { this.directory.toURI().toURL() }, this.getClass().getClassLoader() );
+  }
+  
+  /**
+   * Compiles the given source files into the test directory using the {@link AnnotationIndexProcessor}
+   * 
+   * @param sourceFiles
+   * @throws IOException
+   */
+  private void compile( File... sourceFiles ) throws IOException
+  {
+    final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+    final StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager( null, null, null );
+    try
+    {
+      final Iterable<? extends JavaFileObject> javaFileObjects = fileManager.getJavaFileObjects( sourceFiles );
+      final CompilationTask compilationTask = javaCompiler.getTask( null, fileManager, null,
+                                                                    Arrays.asList( "-d", this.directory.getAbsolutePath(),
+                                                                                   "-classpath", this.directory.getAbsolutePath() ),
+                                                                    null, javaFileObjects );
+      compilationTask.setProcessors( Arrays.asList( new AnnotationIndexProcessor() ) );
+      assertTrue( compilationTask.call() );
+    }
+    finally
+    {
+      fileManager.close();
+    }
+  }
+  
+  @After
+  public void tearDown() throws IOException
+  {
+    if ( this.directory != null )
+    {
+      FileUtils.deleteDirectory( this.directory );
+    }
+  }
+  
+  @Test
+  public void testAnnotationIndex() throws Exception
+  {
+    //
+    @SuppressWarnings("unchecked")
+    final Class<? extends Annotation> markerType = (Class<? extends Annotation>) this.classLoader.loadClass( "testindex.Marker" );
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOf( this.classLoader );
+    assertTrue( annotationIndex.isAvailable() );
+    
+    //
+    assertEquals( Arrays.asList( "testindex" ), ListUtils.valueOf( annotationIndex.annotatedPackageNameSet( markerType ) ) );
+    assertEquals( Arrays.asList( "testindex.Annotated", "testindex.Annotated$Inner" ),
+                  ListUtils.valueOf( annotationIndex.annotatedTypeNameSet( markerType ) ) );
+    assertEquals( Arrays.asList( "testindex.Annotated#run" ), ListUtils.valueOf( annotationIndex.annotatedMethodNameSet( markerType ) ) );
+    assertTrue( annotationIndex.annotatedMethodNameSet( SuppressWarnings.class ).isEmpty() );
+    
+    //
+    final Set<Package> annotatedPackageSet = annotationIndex.annotatedPackageSet( markerType );
+    assertEquals( 1, annotatedPackageSet.size() );
+    assertEquals( "testindex", annotatedPackageSet.iterator().next().getName() );
+  }
+  
+  @Test
+  public void testAnnotatedPackageToAnnotationSetMapUsingIndex() throws Exception
+  {
+    //
+    @SuppressWarnings("unchecked")
+    final Class<? extends Annotation> markerType = (Class<? extends Annotation>) this.classLoader.loadClass( "testindex.Marker" );
+    
+    //
+    final Thread thread = Thread.currentThread();
+    final ClassLoader contextClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader( this.classLoader );
+    try
+    {
+      final Map<Package, Set<Annotation>> annotatedPackageToAnnotationSetMap = ReflectionUtils.annotatedPackageToAnnotationSetMap( markerType );
+      assertEquals( 1, annotatedPackageToAnnotationSetMap.size() );
+      final Package package_ = annotatedPackageToAnnotationSetMap.keySet().iterator().next();
+      assertEquals( "testindex", package_.getName() );
+      assertEquals( markerType, annotatedPackageToAnnotationSetMap.get( package_ ).iterator().next().annotationType() );
+    }
+    finally
+    {
+      thread.setContextClassLoader( contextClassLoader );
+    }
+  }
+  
+  @Test
+  public void testIsIndexed() throws Exception
+  {
+    //
+    final File sourceFilePlain = new File( this.directory, "testindex/plain/Plain.java" );
+    FileUtils.writeStringToFile( sourceFilePlain, "package testindex.plain;\n" + "public class Plain {}\n" );
+    this.compile( sourceFilePlain );
+    
+    //
+    final URLClassLoader classLoader = new URLClassLoader( new URL[] { this.directory.toURI().toURL() },
+                                                           this.getClass().getClassLoader() );
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOf( classLoader );
+    assertTrue( annotationIndex.isIndexed( classLoader.loadClass( "testindex.Annotated" ).getPackage() ) );
+    assertTrue( annotationIndex.isIndexed( classLoader.loadClass( "testindex.plain.Plain" ).getPackage() ) );
+    assertFalse( annotationIndex.isIndexed( AnnotationIndexTest.class.getPackage() ) );
+    assertFalse( annotationIndex.isIndexed( String.class.getPackage() ) );
+  }
+  
+  @Test
+  public void testUnindexedPackageSet() throws Exception
+  {
+    //
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOf( this.classLoader );
+    final Set<Package> unindexedPackageSet = annotationIndex.unindexedPackageSet();
+    assertTrue( unindexedPackageSet.contains( AnnotationIndexTest.class.getPackage() ) );
+    
+    //a package defined afterwards is contained as well
+    final Package package_ = Class.forName( "org.apache.commons.io.filefilter.TrueFileFilter" ).getPackage();
+    assertTrue( annotationIndex.unindexedPackageSet().contains( package_ ) );
+  }
+  
+  @Test
+  public void testIncrementalBuildMergesIndex() throws Exception
+  {
+    //
+    final File sourceDirectory = new File( this.directory, "testindex" );
+    final File sourceFileAnnotated = new File( sourceDirectory, "Annotated.java" );
+    FileUtils.writeStringToFile( sourceFileAnnotated, "package testindex;\n" + "@Marker\n" + "public class Annotated {\n"
+                                                      + "  public void run() {}\n" + "}\n" );
+    final File sourceFileOther = new File( sourceDirectory, "Other.java" );
+    FileUtils.writeStringToFile( sourceFileOther, "package testindex;\n" + "@Marker\n" + "public class Other {}\n" );
+    new File( this.directory, "testindex/Annotated$Inner.class" ).delete();
+    this.compile( sourceFileAnnotated, sourceFileOther );
+    
+    //
+    final URLClassLoader classLoader = new URLClassLoader( new URL[] { this.directory.toURI().toURL() },
+                                                           this.getClass().getClassLoader() );
+    @SuppressWarnings("unchecked")
+    final Class<? extends Annotation> markerType = (Class<? extends Annotation>) classLoader.loadClass( "testindex.Marker" );
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOf( classLoader );
+    assertEquals( Arrays.asList( "testindex" ), ListUtils.valueOf( annotationIndex.annotatedPackageNameSet( markerType ) ) );
+    assertEquals( Arrays.asList( "testindex.Annotated", "testindex.Other" ),
+                  ListUtils.valueOf( annotationIndex.annotatedTypeNameSet( markerType ) ) );
+    assertTrue( annotationIndex.annotatedMethodNameSet( markerType ).isEmpty() );
+  }
+  
+  @Test
+  public void testClassLoaderIsNotPinned() throws Exception
+  {
+    //
+    URLClassLoader classLoader = new URLClassLoader( new URL[] { this.directory.toURI().toURL() }, null );
+    assertTrue( AnnotationIndex.valueOf( classLoader ).isAvailable() );
+    
+    //
+    final WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>( classLoader );
+    classLoader = null;
+    for ( int ii = 0; ii < 20 && classLoaderReference.get() != null; ii++ )
+    {
+      System.gc();
+      Thread.sleep( 10 );
+    }
+    assertNull( classLoaderReference.get() );
+  }
+  
+  @Test
+  public void testAnnotationIndexNotAvailable()
+  {
+    final AnnotationIndex annotationIndex = AnnotationIndex.valueOf( new URLClassLoader( new URL[0], null ) );
+    assertFalse( annotationIndex.isAvailable() );
+    assertTrue( annotationIndex.annotatedTypeNameSet( Deprecated.class ).isEmpty() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testStartupPerformance() throws Exception
+  {
+    //
+    @SuppressWarnings("unchecked")
+    final Class<? extends Annotation> markerType = (Class<? extends Annotation>) this.classLoader.loadClass( "testindex.Marker" );
+    
+    //
+    final Thread thread = Thread.currentThread();
+    final ClassLoader contextClassLoader = thread.getContextClassLoader();
+    try
+    {
+      for ( ClassLoader classLoader : Arrays.asList( (ClassLoader) this.classLoader,
+                                                     new URLClassLoader( new URL[] { this.directory.toURI().toURL() },
+                                                                         this.getClass().getClassLoader() ),
+                                                     contextClassLoader ) )
+      {
+        //
+        thread.setContextClassLoader( classLoader );
+        final boolean isIndexAvailable = AnnotationIndex.valueOf( classLoader ).isAvailable();
+        
+        //
+        final long start = System.nanoTime();
+        final int numberOfInvocations = 10000;
+        for ( int ii = 0; ii < numberOfInvocations; ii++ )
+        {
+          ReflectionUtils.annotatedPackageToAnnotationSetMap( markerType, Deprecated.class );
+        }
+        final long duration = System.nanoTime() - start;
+        System.out.println( "Index available: " + isIndexAvailable + ", scanned packages: " + Package.getPackages().length
+                            + ", duration per lookup: " + duration / numberOfInvocations / 1000 + "us" );
+      }
+    }
+    finally
+    {
+      thread.setContextClassLoader( contextClassLoader );
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.omnaest.utils.beans.BeanUtils;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor;
+import org.omnaest.utils.beans.result.BeanPropertyAccessor.PropertyAccessType;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.ClassMetadata;
+import org.omnaest.utils.reflection.ClassMetadataRegistry.DerivedMetadataFactory;
+
+/**
+ * @see ClassMetadataRegistry
+ * @author Omnaest
+ */
+public class ClassMetadataRegistryTest
+{
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  protected static class TestBean
+  {
+    private String fieldString = null;
+    private int    fieldInt    = 0;
+    
+    public String getFieldString()
+    {
+      return this.fieldString;
+    }
+    
+    public void setFieldString( String fieldString )
+    {
+      this.fieldString = fieldString;
+    }
+    
+    public int getFieldInt()
+    {
+      return this.fieldInt;
+    }
+    
+    public void setFieldInt( int fieldInt )
+    {
+      this.fieldInt = fieldInt;
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testClassMetadata()
+  {
+    //
+    final ClassMetadata classMetadata = ClassMetadataRegistry.classMetadata( TestBean.class );
+    assertSame( classMetadata, ClassMetadataRegistry.classMetadata( TestBean.class ) );
+    assertSame( TestBean.class, classMetadata.getType() );
+    assertEquals( 2, classMetadata.getDeclaredFieldList().size() );
+    assertEquals( TestBean.class.getMethods().length, classMetadata.getMethodList().size() );
+    
+    //
+    final DerivedMetadataFactory<String> derivedMetadataFactory = new DerivedMetadataFactory<String>()
+    {
+      @Override
+      public String newDerivedMetadata( ClassMetadata classMetadata )
+      {
+        return new String( classMetadata.getType().getSimpleName() );
+      }
+    };
+    final String derivedMetadata = classMetadata.derivedMetadata( derivedMetadataFactory );
+    assertEquals( "TestBean", derivedMetadata );
+    assertSame( derivedMetadata, classMetadata.derivedMetadata( derivedMetadataFactory ) );
+  }
+  
+  @Test
+  public void testStatisticForRepeatedUtilityCalls()
+  {
+    //
+    ReflectionUtils.declaredFieldList( TestBean.class );
+    BeanUtils.propertyNameToBeanPropertyAccessorMap( TestBean.class );
+    
+    //
+    final long hitCount = ClassMetadataRegistry.statistic().hitCount();
+    
+    //
+    final Map<String, BeanPropertyAccessor<TestBean>> propertyNameToBeanPropertyAccessorMap = BeanUtils.propertyNameToBeanPropertyAccessorMap( TestBean.class );
+    assertEquals( 2, propertyNameToBeanPropertyAccessorMap.size() );
+    assertEquals( 2, ReflectionUtils.declaredFieldList( TestBean.class ).size() );
+    assertTrue( ClassMetadataRegistry.statistic().hitCount() >= hitCount + 2 );
+    
+    //
+    propertyNameToBeanPropertyAccessorMap.clear();
+    assertEquals( 2, BeanUtils.propertyNameToBeanPropertyAccessorMap( TestBean.class ).size() );
+  }
+  
+  @Test
+  public void testAccessible()
+  {
+    //
+    final Field field = ClassMetadataRegistry.classMetadata( TestBean.class ).getDeclaredFieldList().get( 0 );
+    final Field accessibleField = ClassMetadataRegistry.accessible( field );
+    assertNotSame( field, accessibleField );
+    assertEquals( field, accessibleField );
+    assertTrue( accessibleField.isAccessible() );
+    assertSame( accessibleField, ClassMetadataRegistry.accessible( field ) );
+    
+    //
+    final TestBean testBean = new TestBean();
+    testBean.setFieldString( "value" );
+    final BeanPropertyAccessor<TestBean> beanPropertyAccessor = BeanUtils.beanPropertyAccessor( TestBean.class, "fieldString" );
+    assertEquals( "value", beanPropertyAccessor.getPropertyValue( testBean, PropertyAccessType.FIELD ) );
+    for ( Field declaredField : ClassMetadataRegistry.classMetadata( TestBean.class ).getDeclaredFieldList() )
+    {
+      assertFalse( declaredField.isAccessible() );
+    }
+  }
+  
+  @Test
+  public void testClassOfForeignClassLoaderIsNotPinned() throws Exception
+  {
+    //
+    final URL url = ClassMetadataRegistryTest.class.getProtectionDomain().getCodeSource().getLocation();
+    ClassLoader classLoader = new URLClassLoader( new URL[] { url }, null );
+    Class<?> type = classLoader.loadClass( TestBean.class.getName() );
+    assertNotSame( TestBean.class, type );
+    assertEquals( 2, ClassMetadataRegistry.classMetadata( type ).getDeclaredFieldList().size() );
+    
+    //
+    final WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>( classLoader );
+    classLoader = null;
+    type = null;
+    collectGarbage( classLoaderReference );
+    assertNull( classLoaderReference.get() );
+  }
+  
+  /**
+   * Runs the garbage collection until the given {@link Reference} is cleared. Since the {@link ClassMetadataRegistry} keeps its
+   * {@link ClassMetadata} softly referenced, the soft references are cleared by allocating memory until an
+   * {@link OutOfMemoryError} occurs, if the {@link Reference} is not cleared by the garbage collection alone.
+   * 
+   * @param reference
+   * @throws InterruptedException
+   */
+  public static void collectGarbage( Reference<?> reference ) throws InterruptedException
+  {
+    //
+    for ( int ii = 0; ii < 20 && reference.get() != null; ii++ )
+    {
+      System.gc();
+      Thread.sleep( 10 );
+    }
+    
+    //
+    if ( reference.get() != null )
+    {
+      final List<long[]> memoryList = new ArrayList<long[]>();
+      try
+      {
+        while ( true )
+        {
+          memoryList.add( new long[1024 * 1024] );
+        }
+      }
+      catch ( OutOfMemoryError e )
+      {
+        memoryList.clear();
+      }
+      
+      //
+      for ( int ii = 0; ii < 20 && reference.get() != null; ii++ )
+      {
+        System.gc();
+        Thread.sleep( 10 );
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.collection.set.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+/**
+ * @see StripedLockingSetDecorator
+ * @author Omnaest
+ */
+public class StripedLockingSetDecoratorTest
+{
+  
+  @Test
+  public void testSetOperations()
+  {
+    //
+    final Set<String> set = new StripedLockingSetDecorator<String>( new Factory<Set<String>>()
+    {
+      @Override
+      public Set<String> newInstance()
+      {
+        return new HashSet<String>();
+      }
+    }, 4 );
+    
+    //
+    final Set<String> expectedSet = new HashSet<String>();
+    for ( int ii = 0; ii < 50; ii++ )
+    {
+      assertTrue( set.add( "element" + ii ) );
+      expectedSet.add( "element" + ii );
+    }
+    assertFalse( set.add( "element0" ) );
+    
+    //
+    assertEquals( 50, set.size() );
+    assertTrue( set.contains( "element49" ) );
+    assertFalse( set.contains( "element50" ) );
+    assertEquals( expectedSet, set );
+    assertEquals( expectedSet, new HashSet<String>( set ) );
+    
+    //
+    for ( Iterator<String> iterator = set.iterator(); iterator.hasNext(); )
+    {
+      final String element = iterator.next();
+      if ( element.endsWith( "1" ) )
+      {
+        iterator.remove();
+        set.add( element + "x" );
+      }
+    }
+    assertFalse( set.contains( "element1" ) );
+    assertTrue( set.contains( "element1x" ) );
+    assertTrue( set.remove( "element2" ) );
+    assertEquals( 49, set.size() );
+    
+    //
+    set.clear();
+    assertTrue( set.isEmpty() );
+  }
+}
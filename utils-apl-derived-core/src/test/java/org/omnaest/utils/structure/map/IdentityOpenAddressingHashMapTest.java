@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.structure.collection.list.IdentityArrayList;
+
+/**
+ * @see IdentityOpenAddressingHashMap
+ * @author Omnaest
+ */
+public class IdentityOpenAddressingHashMapTest
+{
+  
+  @Test
+  public void testMapContract()
+  {
+    //
+    Map<String, String> testDataMap = new LinkedHashMap<String, String>();
+    testDataMap.put( "abc", "value1" );
+    
+    AssertContract.assertMapContract( new IdentityOpenAddressingHashMap<String, String>(), testDataMap );
+  }
+  
+  @Test
+  public void testIdentity()
+  {
+    //
+    final Map<String, String> map = new IdentityOpenAddressingHashMap<String, String>();
+    final String key1 = new String( "key" );
+    final String key2 = new String( "key" );
+    map.put( key1, "value1" );
+    map.put( key2, "value2" );
+    
+    //
+    assertEquals( 2, map.size() );
+    assertEquals( "value1", map.get( key1 ) );
+    assertEquals( "value2", map.get( key2 ) );
+    assertNull( map.get( "key" ) );
+  }
+  
+  @Test
+  public void testNullKeyAndValue()
+  {
+    //
+    final Map<Object, Object> map = new IdentityOpenAddressingHashMap<Object, Object>();
+    map.put( null, "value" );
+    map.put( "key", null );
+    
+    //
+    assertEquals( 2, map.size() );
+    assertEquals( "value", map.get( null ) );
+    assertTrue( map.containsKey( null ) );
+    assertTrue( map.containsKey( "key" ) );
+    assertTrue( map.keySet().contains( null ) );
+    
+    //
+    assertEquals( "value", map.remove( null ) );
+    assertFalse( map.containsKey( null ) );
+    assertEquals( 1, map.size() );
+  }
+  
+  @Test
+  public void testManyEntriesWithRemoval()
+  {
+    //
+    final int numberOfKeys = 10000;
+    final List<Object> keyList = new ArrayList<Object>();
+    final Map<Object, Integer> map = new IdentityOpenAddressingHashMap<Object, Integer>( 10 );
+    for ( int ii = 0; ii < numberOfKeys; ii++ )
+    {
+      final Object key = new Object();
+      keyList.add( key );
+      assertNull( map.put( key, ii ) );
+    }
+    assertEquals( numberOfKeys, map.size() );
+    
+    //
+    for ( int ii = 0; ii < numberOfKeys; ii += 2 )
+    {
+      assertEquals( Integer.valueOf( ii ), map.remove( keyList.get( ii ) ) );
+    }
+    assertEquals( numberOfKeys / 2, map.size() );
+    
+    //
+    for ( int ii = 0; ii < numberOfKeys; ii++ )
+    {
+      final Object key = keyList.get( ii );
+      if ( ii % 2 == 0 )
+      {
+        assertFalse( map.containsKey( key ) );
+      }
+      else
+      {
+        assertEquals( Integer.valueOf( ii ), map.get( key ) );
+      }
+    }
+    
+    //
+    assertEquals( numberOfKeys / 2, map.keySet().size() );
+    assertEquals( numberOfKeys / 2, new IdentityArrayList<Object>( map.keySet() ).size() );
+    assertEquals( numberOfKeys / 2, new ArrayList<Integer>( map.values() ).size() );
+  }
+  
+  @Test
+  public void testReset()
+  {
+    //
+    final IdentityOpenAddressingHashMap<Object, Object> map = new IdentityOpenAddressingHashMap<Object, Object>( 100 );
+    final Object key1 = new Object();
+    final Object key2 = new Object();
+    map.put( key1, "value1" );
+    
+    //
+    map.reset();
+    assertTrue( map.isEmpty() );
+    assertFalse( map.containsKey( key1 ) );
+    assertFalse( map.keySet().iterator().hasNext() );
+    
+    //
+    map.put( key2, "value2" );
+    assertEquals( 1, map.size() );
+    assertSame( "value2", map.get( key2 ) );
+    assertNull( map.get( key1 ) );
+  }
+  
+  @Test
+  public void testEqualsAndHashCode()
+  {
+    //
+    final String key = new String( "key" );
+    final String value = new String( "value" );
+    final Map<Object, Object> map = new IdentityOpenAddressingHashMap<Object, Object>();
+    map.put( key, value );
+    map.put( null, "nullKey" );
+    map.put( "nullValue", null );
+    
+    //
+    final Map<Object, Object> identityHashMap = new IdentityHashMap<Object, Object>( map );
+    assertTrue( map.equals( identityHashMap ) );
+    assertTrue( identityHashMap.equals( map ) );
+    assertEquals( identityHashMap.hashCode(), map.hashCode() );
+    
+    //
+    final Map<Object, Object> otherMap = new IdentityOpenAddressingHashMap<Object, Object>( 100 );
+    otherMap.putAll( map );
+    assertTrue( map.equals( otherMap ) );
+    assertEquals( otherMap.hashCode(), map.hashCode() );
+    
+    //
+    otherMap.put( key, new String( "value" ) );
+    assertFalse( map.equals( otherMap ) );
+    otherMap.put( key, value );
+    otherMap.remove( "nullValue" );
+    otherMap.put( "otherKey", null );
+    assertFalse( map.equals( otherMap ) );
+    assertFalse( map.equals( new LinkedHashMap<Object, Object>() ) );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformance()
+  {
+    //
+    final int numberOfKeys = 100000;
+    final Object[] keys = new Object[numberOfKeys];
+    for ( int ii = 0; ii < numberOfKeys; ii++ )
+    {
+      keys[ii] = new Object();
+    }
+    
+    //
+    final IdentityOpenAddressingHashMap<Object, Object> identityOpenAddressingHashMap = new IdentityOpenAddressingHashMap<Object, Object>(
+                                                                                                                                            numberOfKeys );
+    for ( int ii = 0; ii < 20; ii++ )
+    {
+      {
+        final long start = System.currentTimeMillis();
+        for ( int jj = 0; jj < 10; jj++ )
+        {
+          final Map<Object, Object> map = new IdentityHashMap<Object, Object>();
+          putAndGet( map, keys );
+        }
+        System.out.println( "IdentityHashMap: " + ( System.currentTimeMillis() - start ) + "ms" );
+      }
+      {
+        final long start = System.currentTimeMillis();
+        for ( int jj = 0; jj < 10; jj++ )
+        {
+          final Map<Object, Object> map = new IdentityOpenAddressingHashMap<Object, Object>();
+          putAndGet( map, keys );
+        }
+        System.out.println( "IdentityOpenAddressingHashMap: " + ( System.currentTimeMillis() - start ) + "ms" );
+      }
+      {
+        final long start = System.currentTimeMillis();
+        for ( int jj = 0; jj < 10; jj++ )
+        {
+          identityOpenAddressingHashMap.reset();
+          putAndGet( identityOpenAddressingHashMap, keys );
+        }
+        System.out.println( "IdentityOpenAddressingHashMap pre-sized and reset: " + ( System.currentTimeMillis() - start ) + "ms" );
+      }
+    }
+  }
+  
+  private static void putAndGet( Map<Object, Object> map, Object[] keys )
+  {
+    for ( Object key : keys )
+    {
+      if ( map.get( key ) == null )
+      {
+        map.put( key, key );
+      }
+    }
+    for ( Object key : keys )
+    {
+      assertSame( key, map.get( key ) );
+    }
+  }
+}
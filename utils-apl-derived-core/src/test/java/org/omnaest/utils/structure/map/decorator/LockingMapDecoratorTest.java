@@ -15,10 +15,28 @@
  ******************************************************************************/
 package org.omnaest.utils.structure.map.decorator;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.junit.Ignore;
 import org.junit.Test;
+import org.omnaest.utils.structure.element.factory.Factory;
 import org.omnaest.utils.structure.map.AssertContract;
 
 /**
@@ -45,4 +63,154 @@ public class LockingMapDecoratorTest
     AssertContract.assertMapContract( this.mapDecorator, testDataMap );
   }
   
+  @Test
+  public void testMapContractUsingReadWriteLock()
+  {
+    //
+    Map<String, String> testDataMap = new LinkedHashMap<String, String>();
+    testDataMap.put( "abc", "value1" );
+    testDataMap.put( "def", "value2" );
+    testDataMap.put( "ghi", "value2" );
+    
+    final Map<String, String> mapDecorator = new LockingMapDecorator<String, String>( new LinkedHashMap<String, String>(),
+                                                                                      new ReentrantReadWriteLock() );
+    AssertContract.assertMapContract( mapDecorator, testDataMap );
+  }
+  
+  @Test
+  public void testSnapshotIterationUsingReadWriteLock()
+  {
+    //
+    final Map<String, String> mapDecorator = new LockingMapDecorator<String, String>( new LinkedHashMap<String, String>(),
+                                                                                      new ReentrantReadWriteLock() );
+    mapDecorator.put( "a", "1" );
+    mapDecorator.put( "b", "2" );
+    mapDecorator.put( "c", "3" );
+    
+    //
+    final List<String> keyList = new ArrayList<String>();
+    for ( Iterator<String> iterator = mapDecorator.keySet().iterator(); iterator.hasNext(); )
+    {
+      final String key = iterator.next();
+      keyList.add( key );
+      mapDecorator.put( key + key, "new" );
+      if ( key.equals( "b" ) )
+      {
+        iterator.remove();
+      }
+    }
+    assertEquals( 3, keyList.size() );
+    assertFalse( mapDecorator.containsKey( "b" ) );
+    assertEquals( 5, mapDecorator.size() );
+    
+    //
+    for ( Entry<String, String> entry : mapDecorator.entrySet() )
+    {
+      if ( entry.getKey().equals( "a" ) )
+      {
+        assertEquals( "1", entry.getValue() );
+        entry.setValue( "changed" );
+      }
+    }
+    assertEquals( "changed", mapDecorator.get( "a" ) );
+    assertTrue( mapDecorator.values().contains( "changed" ) );
+  }
+  
+  /**
+   * Measures the throughput of the locking {@link Map} variants for different ratios of reads to writes and numbers of threads
+   * 
+   * @throws Exception
+   */
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceMatrix() throws Exception
+  {
+    //
+    final int numberOfKeys = 1024;
+    final int numberOfOperationsPerThread = 200000;
+    final Factory<Map<Integer, Integer>> mapFactory = new Factory<Map<Integer, Integer>>()
+    {
+      @Override
+      public Map<Integer, Integer> newInstance()
+      {
+        return new HashMap<Integer, Integer>();
+      }
+    };
+    
+    //
+    for ( final int readPercentage : new int[] { 50, 90, 99, 100 } )
+    {
+      for ( final int numberOfThreads : new int[] { 1, 4, 16 } )
+      {
+        //
+        final Map<String, Map<Integer, Integer>> variantToMap = new LinkedHashMap<String, Map<Integer, Integer>>();
+        variantToMap.put( "ReentrantLock", new LockingMapDecorator<Integer, Integer>( mapFactory.newInstance() ) );
+        variantToMap.put( "ReadWriteLock",
+                          new LockingMapDecorator<Integer, Integer>( mapFactory.newInstance(), new ReentrantReadWriteLock() ) );
+        variantToMap.put( "OptimisticRead", new OptimisticReadLockingMapDecorator<Integer, Integer>( mapFactory.newInstance() ) );
+        variantToMap.put( "Striped", new StripedLockingMapDecorator<Integer, Integer>( mapFactory, 16 ) );
+        
+        //
+        final StringBuilder stringBuilder = new StringBuilder( "reads " + readPercentage + "% threads " + numberOfThreads + ":" );
+        for ( Entry<String, Map<Integer, Integer>> variantAndMap : variantToMap.entrySet() )
+        {
+          //
+          final Map<Integer, Integer> map = variantAndMap.getValue();
+          for ( int ii = 0; ii < numberOfKeys; ii++ )
+          {
+            map.put( ii, ii );
+          }
+          
+          //
+          final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+          try
+          {
+            final List<Future<Integer>> futureList = new ArrayList<Future<Integer>>();
+            final long startTime = System.nanoTime();
+            for ( int thread = 0; thread < numberOfThreads; thread++ )
+            {
+              final int seed = thread;
+              futureList.add( executorService.submit( new Callable<Integer>()
+              {
+                @Override
+                public Integer call() throws Exception
+                {
+                  final Random random = new Random( seed );
+                  int sum = 0;
+                  for ( int ii = 0; ii < numberOfOperationsPerThread; ii++ )
+                  {
+                    final int key = random.nextInt( numberOfKeys );
+                    if ( random.nextInt( 100 ) < readPercentage )
+                    {
+                      final Integer value = map.get( key );
+                      sum += value != null ? value : 0;
+                    }
+                    else
+                    {
+                      map.put( key, ii );
+                    }
+                  }
+                  return sum;
+                }
+              } ) );
+            }
+            for ( Future<Integer> future : futureList )
+            {
+              future.get();
+            }
+            final long duration = System.nanoTime() - startTime;
+            stringBuilder.append( " " + variantAndMap.getKey() + "="
+                                  + ( numberOfOperationsPerThread * numberOfThreads / Math.max( 1, TimeUnit.NANOSECONDS.toMillis( duration ) ) )
+                                  + " ops/ms" );
+          }
+          finally
+          {
+            executorService.shutdownNow();
+          }
+        }
+        System.out.println( stringBuilder );
+      }
+    }
+  }
+  
 }
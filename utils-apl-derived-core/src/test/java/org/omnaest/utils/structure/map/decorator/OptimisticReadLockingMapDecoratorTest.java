@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.omnaest.utils.structure.map.AssertContract;
+
+/**
+ * @see OptimisticReadLockingMapDecorator
+ * @author Omnaest
+ */
+public class OptimisticReadLockingMapDecoratorTest
+{
+  
+  @Test
+  public void testMapContract()
+  {
+    //
+    Map<String, String> testDataMap = new LinkedHashMap<String, String>();
+    testDataMap.put( "abc", "value1" );
+    testDataMap.put( "def", "value2" );
+    testDataMap.put( "ghi", "value2" );
+    
+    AssertContract.assertMapContract( new OptimisticReadLockingMapDecorator<String, String>( new LinkedHashMap<String, String>() ),
+                                      testDataMap );
+  }
+  
+  @Test
+  public void testSnapshotReflectsWrites()
+  {
+    //
+    final Map<String, String> map = new OptimisticReadLockingMapDecorator<String, String>( new HashMap<String, String>() );
+    map.put( "a", "1" );
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      assertEquals( "1", map.get( "a" ) );
+    }
+    
+    //
+    map.put( "a", "2" );
+    map.put( "b", "3" );
+    assertEquals( "2", map.get( "a" ) );
+    assertEquals( 2, map.size() );
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      assertEquals( "3", map.get( "b" ) );
+    }
+    
+    //
+    map.remove( "a" );
+    assertFalse( map.containsKey( "a" ) );
+    assertFalse( map.containsValue( "2" ) );
+    assertEquals( 1, map.size() );
+  }
+  
+  @Test
+  public void testSnapshotOfSortedMapUsesComparator()
+  {
+    //
+    final Map<String, String> map = new OptimisticReadLockingMapDecorator<String, String>(
+                                                                                         new TreeMap<String, String>(
+                                                                                                                      String.CASE_INSENSITIVE_ORDER ) );
+    map.put( "key", "value" );
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      assertEquals( "value", map.get( "KEY" ) );
+      assertTrue( map.containsKey( "Key" ) );
+    }
+  }
+  
+  @Test
+  public void testConcurrentReadsAndWritesUsingHashMap() throws Exception
+  {
+    assertConcurrentReadsAndWrites( new OptimisticReadLockingMapDecorator<Integer, Integer>( new HashMap<Integer, Integer>() ) );
+  }
+  
+  @Test
+  public void testConcurrentReadsAndWritesUsingTreeMap() throws Exception
+  {
+    assertConcurrentReadsAndWrites( new OptimisticReadLockingMapDecorator<Integer, Integer>( new TreeMap<Integer, Integer>() ) );
+  }
+  
+  private static void assertConcurrentReadsAndWrites( final Map<Integer, Integer> map ) throws Exception
+  {
+    //
+    final int numberOfKeys = 10000;
+    
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+    try
+    {
+      //
+      final Future<Boolean> writer = executorService.submit( new Callable<Boolean>()
+      {
+        @Override
+        public Boolean call() throws Exception
+        {
+          for ( int ii = 0; ii < numberOfKeys; ii++ )
+          {
+            map.put( ii, ii );
+            if ( ii % 3 == 0 )
+            {
+              map.remove( ii / 2 );
+            }
+          }
+          return true;
+        }
+      } );
+      
+      //
+      final Callable<Boolean> reader = new Callable<Boolean>()
+      {
+        @Override
+        public Boolean call() throws Exception
+        {
+          boolean retval = true;
+          for ( int ii = 0; ii < numberOfKeys * 3; ii++ )
+          {
+            final int key = ii % numberOfKeys;
+            final Integer value = map.get( key );
+            retval &= value == null || value.intValue() == key;
+            retval &= map.size() >= 0;
+          }
+          return retval;
+        }
+      };
+      final Future<Boolean> reader1 = executorService.submit( reader );
+      final Future<Boolean> reader2 = executorService.submit( reader );
+      
+      //
+      assertTrue( writer.get() );
+      assertTrue( reader1.get() );
+      assertTrue( reader2.get() );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    
+    //
+    int size = 0;
+    for ( int ii = 0; ii < numberOfKeys; ii++ )
+    {
+      if ( map.containsKey( ii ) )
+      {
+        assertEquals( Integer.valueOf( ii ), map.get( ii ) );
+        size++;
+      }
+    }
+    assertEquals( size, map.size() );
+  }
+  
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.structure.map.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+/**
+ * @see StripedLockingMapDecorator
+ * @author Omnaest
+ */
+public class StripedLockingMapDecoratorTest
+{
+  /* ********************************************** Variables ********************************************** */
+  private final Factory<Map<String, Integer>> mapFactory = new Factory<Map<String, Integer>>()
+                                                         {
+                                                           @Override
+                                                           public Map<String, Integer> newInstance()
+                                                           {
+                                                             return new HashMap<String, Integer>();
+                                                           }
+                                                         };
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testMapOperations()
+  {
+    //
+    final StripedLockingMapDecorator<String, Integer> map = new StripedLockingMapDecorator<String, Integer>( this.mapFactory, 5 );
+    assertEquals( 8, map.getNumberOfStripes() );
+    assertTrue( map.isEmpty() );
+    
+    //
+    final Map<String, Integer> expectedMap = new HashMap<String, Integer>();
+    for ( int ii = 0; ii < 100; ii++ )
+    {
+      assertNull( map.put( "key" + ii, ii ) );
+      expectedMap.put( "key" + ii, ii );
+    }
+    map.put( null, -1 );
+    expectedMap.put( null, -1 );
+    
+    //
+    assertEquals( 101, map.size() );
+    assertEquals( Integer.valueOf( 42 ), map.get( "key42" ) );
+    assertEquals( Integer.valueOf( -1 ), map.get( null ) );
+    assertTrue( map.containsKey( "key99" ) );
+    assertTrue( map.containsValue( 99 ) );
+    assertFalse( map.containsValue( 100 ) );
+    assertEquals( expectedMap, map );
+    assertEquals( map, expectedMap );
+    assertEquals( expectedMap.hashCode(), map.hashCode() );
+    assertEquals( expectedMap.keySet(), new HashSet<String>( map.keySet() ) );
+    assertEquals( expectedMap.entrySet(), new HashSet<Entry<String, Integer>>( map.entrySet() ) );
+    assertEquals( new HashSet<Integer>( expectedMap.values() ), new HashSet<Integer>( map.values() ) );
+    assertTrue( map.entrySet().contains( new SimpleEntry<String, Integer>( "key7", 7 ) ) );
+    assertFalse( map.entrySet().contains( new SimpleEntry<String, Integer>( "key7", 8 ) ) );
+    assertFalse( map.entrySet().remove( new SimpleEntry<String, Integer>( "key7", 8 ) ) );
+    
+    //
+    for ( Iterator<String> iterator = map.keySet().iterator(); iterator.hasNext(); )
+    {
+      final String key = iterator.next();
+      if ( key != null && key.endsWith( "0" ) )
+      {
+        iterator.remove();
+        map.put( key + "x", 0 );
+      }
+    }
+    assertFalse( map.containsKey( "key10" ) );
+    assertTrue( map.containsKey( "key10x" ) );
+    assertEquals( Integer.valueOf( 1 ), map.remove( "key1" ) );
+    assertEquals( 100, map.size() );
+    
+    //
+    map.clear();
+    assertTrue( map.isEmpty() );
+  }
+  
+  @Test
+  public void testConcurrentPuts() throws Exception
+  {
+    //
+    final StripedLockingMapDecorator<String, Integer> map = new StripedLockingMapDecorator<String, Integer>( this.mapFactory );
+    final int numberOfThreads = 8;
+    final int numberOfKeysPerThread = 1000;
+    
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+    try
+    {
+      final Future<?>[] futures = new Future<?>[numberOfThreads];
+      for ( int thread = 0; thread < numberOfThreads; thread++ )
+      {
+        final int offset = thread * numberOfKeysPerThread;
+        futures[thread] = executorService.submit( new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for ( int ii = 0; ii < numberOfKeysPerThread; ii++ )
+            {
+              map.put( "key" + ( offset + ii ), ii );
+            }
+            return null;
+          }
+        } );
+      }
+      for ( Future<?> future : futures )
+      {
+        future.get();
+      }
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+    
+    //
+    assertEquals( numberOfThreads * numberOfKeysPerThread, map.size() );
+  }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.omnaest.utils.structure.element.factory.Factory;
+
+/**
+ * @see RateLimiterPerKey
+ * @author Omnaest
+ */
+public class RateLimiterPerKeyTest
+{
+  private final Factory<RateLimiter> rateLimiterFactory = new Factory<RateLimiter>()
+                                                        {
+                                                          @Override
+                                                          public RateLimiter newInstance()
+                                                          {
+                                                            return new RateLimiterTokenBucket( 1, 1, TimeUnit.HOURS, 1 );
+                                                          }
+                                                        };
+  
+  @Test
+  public void testGetRateLimiter()
+  {
+    //
+    final RateLimiterPerKey<String> rateLimiterPerKey = new RateLimiterPerKey<String>( this.rateLimiterFactory, 100 );
+    final RateLimiter rateLimiterA = rateLimiterPerKey.getRateLimiter( "a" );
+    final RateLimiter rateLimiterB = rateLimiterPerKey.getRateLimiter( "b" );
+    assertSame( rateLimiterA, rateLimiterPerKey.getRateLimiter( "a" ) );
+    assertNotSame( rateLimiterA, rateLimiterB );
+    
+    //
+    assertTrue( rateLimiterA.tryAcquire() );
+    assertFalse( rateLimiterA.tryAcquire() );
+    assertTrue( rateLimiterB.tryAcquire() );
+  }
+  
+  @Test
+  public void testBoundedNumberOfKeys()
+  {
+    //
+    final RateLimiterPerKey<Integer> rateLimiterPerKey = new RateLimiterPerKey<Integer>( this.rateLimiterFactory, 100 );
+    for ( int ii = 0; ii < 10000; ii++ )
+    {
+      rateLimiterPerKey.getRateLimiter( ii );
+    }
+    
+    //
+    assertTrue( rateLimiterPerKey.size() <= 100 );
+  }
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.threads.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+/**
+ * @see RateLimiterTokenBucket
+ * @author Omnaest
+ */
+public class RateLimiterTokenBucketTest
+{
+  /* ********************************************** Classes/Interfaces ********************************************** */
+  
+  /**
+   * {@link Ticker} which is moved forward manually
+   * 
+   * @author Omnaest
+   */
+  private static class ManualTicker extends Ticker
+  {
+    private final AtomicLong nanos = new AtomicLong();
+    
+    @Override
+    public long read()
+    {
+      return this.nanos.get();
+    }
+    
+    public void advance( long duration, TimeUnit timeUnit )
+    {
+      this.nanos.addAndGet( timeUnit.toNanos( duration ) );
+    }
+  }
+  
+  /* ********************************************** Methods ********************************************** */
+  
+  @Test
+  public void testTryAcquire()
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final RateLimiter rateLimiter = new RateLimiterTokenBucket( 10, 1, TimeUnit.SECONDS, 5, ticker );
+    
+    //
+    for ( int ii = 0; ii < 5; ii++ )
+    {
+      assertTrue( rateLimiter.tryAcquire() );
+    }
+    assertFalse( rateLimiter.tryAcquire() );
+    assertEquals( TimeUnit.MILLISECONDS.toNanos( 100 ), rateLimiter.getDurationToWaitInNanoseconds() );
+    
+    //
+    ticker.advance( 100, TimeUnit.MILLISECONDS );
+    assertTrue( rateLimiter.tryAcquire() );
+    assertFalse( rateLimiter.tryAcquire() );
+    
+    //
+    ticker.advance( 250, TimeUnit.MILLISECONDS );
+    assertTrue( rateLimiter.tryAcquire() );
+    assertTrue( rateLimiter.tryAcquire() );
+    assertFalse( rateLimiter.tryAcquire() );
+    
+    //
+    ticker.advance( 10, TimeUnit.SECONDS );
+    for ( int ii = 0; ii < 5; ii++ )
+    {
+      assertTrue( rateLimiter.tryAcquire() );
+    }
+    assertFalse( rateLimiter.tryAcquire() );
+  }
+  
+  @Test
+  public void testTryAcquireWithTimeout() throws InterruptedException
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final RateLimiter rateLimiter = new RateLimiterTokenBucket( 10, 1, TimeUnit.SECONDS, 5, ticker );
+    while ( rateLimiter.tryAcquire() )
+    {
+    }
+    
+    //
+    final long durationToWait = rateLimiter.getDurationToWaitInNanoseconds();
+    assertFalse( rateLimiter.tryAcquire( durationToWait - 1, TimeUnit.NANOSECONDS ) );
+    ticker.advance( durationToWait, TimeUnit.NANOSECONDS );
+    assertTrue( rateLimiter.tryAcquire( 0, TimeUnit.NANOSECONDS ) );
+  }
+  
+  /**
+   * 10 permits per second with a burst of 5: 64 {@link Thread}s compete for the permits while the time does not move, so exactly the initially available
+   * permits have to be granted
+   * 
+   * @throws InterruptedException
+   */
+  @Test
+  public void testConcurrentTryAcquire() throws InterruptedException
+  {
+    //
+    final ManualTicker ticker = new ManualTicker();
+    final RateLimiter rateLimiter = new RateLimiterTokenBucket( 10, 1, TimeUnit.SECONDS, 5, ticker );
+    final AtomicInteger acquiredCounter = new AtomicInteger();
+    final CountDownLatch startLatch = new CountDownLatch( 1 );
+    
+    //
+    final List<Thread> threadList = new ArrayList<Thread>();
+    for ( int ii = 0; ii < 64; ii++ )
+    {
+      final Thread thread = new Thread( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            startLatch.await();
+            for ( int jj = 0; jj < 100; jj++ )
+            {
+              if ( rateLimiter.tryAcquire() )
+              {
+                acquiredCounter.incrementAndGet();
+              }
+            }
+          }
+          catch ( InterruptedException e )
+          {
+          }
+        }
+      } );
+      thread.start();
+      threadList.add( thread );
+    }
+    startLatch.countDown();
+    for ( Thread thread : threadList )
+    {
+      thread.join();
+    }
+    
+    //
+    assertEquals( 5, acquiredCounter.get() );
+  }
+}
@@ -16,14 +16,21 @@
 package org.omnaest.utils.threads.submit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.collection.set.SetUtils;
@@ -111,4 +118,173 @@ public class SubmitGroupFactoryTest
     }
   }
   
+  @Test
+  public void testUntilTheNumberOfTasksAreDoneDoesNotWaitForStragglers() throws Exception
+  {
+    final ExecutorService executorService = Executors.newFixedThreadPool( 10 );
+    try
+    {
+      final SubmitGroupFactory submitGroupFactory = new SubmitGroupFactory( executorService );
+      final SubmitGroup<Integer> submitGroup = submitGroupFactory.newSubmitGroup( Integer.class );
+      
+      //
+      final CountDownLatch straggler = new CountDownLatch( 1 );
+      submitGroup.submit( new Callable<Integer>()
+      {
+        @Override
+        public Integer call() throws Exception
+        {
+          straggler.await();
+          return -1;
+        }
+      } );
+      for ( int ii = 0; ii < 9; ii++ )
+      {
+        final int value = ii;
+        submitGroup.submit( new Callable<Integer>()
+        {
+          @Override
+          public Integer call() throws Exception
+          {
+            return value;
+          }
+        } );
+      }
+      
+      //
+      final AtomicInteger sum = new AtomicInteger();
+      final List<Integer> resultList = submitGroup.doWait().withResultHandler( new Waiter.ResultHandler<Integer>()
+      {
+        @Override
+        public void handleResult( Integer result )
+        {
+          sum.addAndGet( result );
+        }
+      } ).untilThePercentageOfTasksAreDone( 0.9 ).reduceToList();
+      assertEquals( ListUtils.valueOf( 0, 1, 2, 3, 4, 5, 6, 7, 8 ), resultList );
+      assertEquals( 36, sum.get() );
+      
+      //
+      assertEquals( 9, submitGroup.doWait().untilTheNumberOfTasksAreDone( 10, 10, TimeUnit.MILLISECONDS ).reduceToList().size() );
+      
+      //
+      submitGroup.cancelUnfinishedTasks( true );
+      assertEquals( 9, submitGroup.doWait().untilAllTasksAreDone().reduceToList().size() );
+      assertFalse( submitGroup.doWait().untilAllTasksAreDone().reduceToList().contains( -1 ) );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+  }
+  
+  @Test(timeout = 30000)
+  public void testRejectedTaskIsNotAwaited() throws Exception
+  {
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+    final SubmitGroup<String> submitGroup = new SubmitGroupFactory( executorService ).newSubmitGroup( String.class );
+    final Callable<String> callable = new Callable<String>()
+    {
+      @Override
+      public String call() throws Exception
+      {
+        return "value";
+      }
+    };
+    submitGroup.submit( callable );
+    
+    //
+    executorService.shutdown();
+    try
+    {
+      submitGroup.submit( callable );
+      fail();
+    }
+    catch ( RejectedExecutionException e )
+    {
+    }
+    
+    //
+    assertEquals( ListUtils.valueOf( "value" ), submitGroup.doWait().untilAllTasksAreDone().reduceToList() );
+  }
+  
+  @Test
+  public void testAnAmountOfTimeReturnsWhenAllTasksAreDone() throws Exception
+  {
+    final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+    try
+    {
+      final SubmitGroup<String> submitGroup = new SubmitGroupFactory( executorService ).newSubmitGroup( String.class );
+      submitGroup.submit( new Callable<String>()
+      {
+        @Override
+        public String call() throws Exception
+        {
+          return "value";
+        }
+      }, 3 );
+      
+      final long startTime = System.currentTimeMillis();
+      final List<String> resultList = submitGroup.doWait().anAmountOfTime( 1, TimeUnit.MINUTES ).reduceToList();
+      assertTrue( System.currentTimeMillis() - startTime < 30000 );
+      assertEquals( ListUtils.valueOf( "value", "value", "value" ), resultList );
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformanceSkewedTaskDurations() throws Exception
+  {
+    final int numberOfTasks = 100;
+    final int numberOfThreads = 10;
+    final int numberOfRepetitions = 5;
+    final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+    try
+    {
+      final SubmitGroupFactory submitGroupFactory = new SubmitGroupFactory( executorService );
+      for ( double ratio : new double[] { 0.5, 0.9, 1.0 } )
+      {
+        long duration = 0;
+        for ( int repetition = 0; repetition < numberOfRepetitions; repetition++ )
+        {
+          //
+          final SubmitGroup<Integer> submitGroup = submitGroupFactory.newSubmitGroup( Integer.class );
+          for ( int ii = 0; ii < numberOfTasks; ii++ )
+          {
+            //
+            final long sleepTime = ii % numberOfThreads == 0 ? 500 : 5;
+            final int value = ii;
+            submitGroup.submit( new Callable<Integer>()
+            {
+              @Override
+              public Integer call() throws Exception
+              {
+                Thread.sleep( sleepTime );
+                return value;
+              }
+            } );
+          }
+          
+          //
+          final long startTime = System.nanoTime();
+          submitGroup.doWait().untilThePercentageOfTasksAreDone( ratio );
+          duration += System.nanoTime() - startTime;
+          
+          //
+          submitGroup.cancelUnfinishedTasks( true ).doWait().untilAllTasksAreDone();
+        }
+        System.out.println( "ratio " + ratio + ": " + TimeUnit.NANOSECONDS.toMillis( duration / numberOfRepetitions ) + " ms" );
+      }
+    }
+    finally
+    {
+      executorService.shutdownNow();
+    }
+  }
+  
 }
@@ -16,6 +16,7 @@
 package org.omnaest.utils.time;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.omnaest.utils.events.exception.basic.ExceptionHandlerRethrowingAsRuntimeException;
 import org.omnaest.utils.xml.JAXBXMLHelper;
 
 public class DurationCaptureTest
@@ -57,6 +59,43 @@ public class DurationCaptureTest
     assertTrue( durationInMilliseconds > 0 );
   }
   
+  @Test
+  public void testXMLMarshallingRoundTrip()
+  {
+    //
+    final DurationCapture durationCapture = DurationCapture.newInstance();
+    durationCapture.recordDuration( "Interval1", 12, TimeUnit.MILLISECONDS );
+    
+    //
+    final String xml = JAXBXMLHelper.storeObjectAsXML( durationCapture, new ExceptionHandlerRethrowingAsRuntimeException() );
+    assertTrue( xml.contains( "Interval1" ) );
+    
+    //
+    final DurationCapture durationCaptureLoaded = JAXBXMLHelper.loadObjectFromXML( xml, DurationCapture.class,
+                                                                                   new ExceptionHandlerRethrowingAsRuntimeException() );
+    assertEquals( 12, durationCaptureLoaded.getDurationInMilliseconds( "Interval1" ) );
+  }
+  
+  @Test
+  public void testObjectSerializationWithLatencyHistogram()
+  {
+    //
+    final DurationCapture durationCapture = DurationCapture.newInstance().enableLatencyHistogramRecording();
+    for ( int ii = 1; ii <= 3; ii++ )
+    {
+      durationCapture.recordDuration( "Interval1", ii * 2, TimeUnit.MILLISECONDS );
+    }
+    
+    //
+    final DurationCapture cloneObject = SerializationUtils.clone( durationCapture );
+    assertEquals( 12, cloneObject.getDurationInMilliseconds( "Interval1" ) );
+    assertEquals( 3, cloneObject.getLatencyHistogram( "Interval1" ).getTotalCount() );
+    
+    //
+    cloneObject.recordDuration( "Interval1", 1, TimeUnit.MILLISECONDS );
+    assertEquals( 4, cloneObject.getLatencyHistogram( "Interval1" ).getTotalCount() );
+  }
+  
   @Test
   public void testTimeMeasurement()
   {
@@ -102,4 +141,43 @@ public class DurationCaptureTest
     //System.out.println( durationCapture.calculateIntervalStatisticLogMessage() );
   }
   
+  @Test
+  public void testLatencyHistogramRecording() throws InterruptedException
+  {
+    //
+    DurationCapture durationCapture = DurationCapture.newInstance();
+    durationCapture.startTimeMeasurement( "Interval0" ).stopTimeMeasurement( "Interval0" );
+    assertNull( durationCapture.getLatencyHistogram( "Interval0" ) );
+    
+    //
+    durationCapture.enableLatencyHistogramRecording();
+    for ( int ii = 1; ii <= 100; ii++ )
+    {
+      durationCapture.recordDuration( "Interval1", ii, TimeUnit.MICROSECONDS );
+    }
+    durationCapture.startTimeMeasurement( "Interval2" );
+    Thread.sleep( 10 );
+    durationCapture.stopTimeMeasurement( "Interval2" );
+    
+    //
+    LatencyHistogram latencyHistogram = durationCapture.getLatencyHistogram( "Interval1" );
+    assertEquals( 100, latencyHistogram.getTotalCount() );
+    assertEquals( 50000, latencyHistogram.getValueAtPercentile( 50.0 ), 500 );
+    assertEquals( 99000, latencyHistogram.getValueAtPercentile( 99.0 ), 1000 );
+    assertEquals( 5, durationCapture.getDurationInMilliseconds( "Interval1" ) );
+    assertTrue( durationCapture.getDurationInMilliseconds( "Interval2" ) >= 10 );
+    assertTrue( durationCapture.calculateIntervalStatisticLogMessage().contains( "n=100 p50=" ) );
+    
+    //
+    assertEquals( 100, durationCapture.getIntervalLatencyHistogram( "Interval1" ).getTotalCount() );
+    durationCapture.recordDuration( "Interval1", 1, TimeUnit.MILLISECONDS );
+    assertEquals( 1, durationCapture.getIntervalLatencyHistogram( "Interval1" ).getTotalCount() );
+    assertEquals( 101, durationCapture.getLatencyHistogram( "Interval1" ).getTotalCount() );
+    
+    //
+    durationCapture.resetTimers();
+    assertEquals( 0, durationCapture.getLatencyHistogram( "Interval1" ).getTotalCount() );
+    assertEquals( 0, durationCapture.getDurationInMilliseconds( "Interval1" ) );
+  }
+  
 }
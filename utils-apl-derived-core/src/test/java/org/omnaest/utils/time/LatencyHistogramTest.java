@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.time;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+
+/**
+ * @see LatencyHistogram
+ * @author Omnaest
+ */
+public class LatencyHistogramTest
+{
+  
+  @Test
+  public void testRecordValue()
+  {
+    //
+    final LatencyHistogram latencyHistogram = new LatencyHistogram( TimeUnit.HOURS.toNanos( 1 ), 2 );
+    assertEquals( 0, latencyHistogram.getValueAtPercentile( 50.0 ) );
+    assertEquals( 0, latencyHistogram.getMaximum() );
+    
+    //
+    for ( int ii = 1; ii <= 100; ii++ )
+    {
+      latencyHistogram.recordValue( ii );
+    }
+    
+    //
+    assertEquals( 100, latencyHistogram.getTotalCount() );
+    assertEquals( 5050, latencyHistogram.getTotalValue() );
+    assertEquals( 50.5, latencyHistogram.getMean(), 0.0 );
+    assertEquals( 1, latencyHistogram.getMinimum() );
+    assertEquals( 50, latencyHistogram.getValueAtPercentile( 50.0 ) );
+    assertEquals( 99, latencyHistogram.getValueAtPercentile( 99.0 ) );
+    assertEquals( 100, latencyHistogram.getValueAtPercentile( 100.0 ) );
+    assertEquals( 100, latencyHistogram.getMaximum() );
+    
+    //
+    latencyHistogram.recordValue( -1 ).recordValue( Long.MAX_VALUE );
+    assertEquals( 0, latencyHistogram.getMinimum() );
+    assertEquals( TimeUnit.HOURS.toNanos( 1 ), latencyHistogram.getMaximum() );
+    
+    //
+    latencyHistogram.reset();
+    assertEquals( 0, latencyHistogram.getTotalCount() );
+    assertEquals( 0, latencyHistogram.getMaximum() );
+  }
+  
+  @Test
+  public void testResolution()
+  {
+    for ( int numberOfSignificantValueDigits = 1; numberOfSignificantValueDigits <= 3; numberOfSignificantValueDigits++ )
+    {
+      //
+      final double maximumRelativeError = Math.pow( 10, -numberOfSignificantValueDigits );
+      final Random random = new Random( numberOfSignificantValueDigits );
+      final long[] values = new long[10000];
+      final LatencyHistogram latencyHistogram = new LatencyHistogram( TimeUnit.MINUTES.toNanos( 1 ),
+                                                                      numberOfSignificantValueDigits );
+      for ( int ii = 0; ii < values.length; ii++ )
+      {
+        values[ii] = (long) Math.exp( random.nextDouble() * Math.log( TimeUnit.MINUTES.toNanos( 1 ) ) );
+        latencyHistogram.recordValue( values[ii] );
+      }
+      Arrays.sort( values );
+      
+      //
+      for ( double percentile : new double[] { 10.0, 50.0, 90.0, 99.0, 99.9, 100.0 } )
+      {
+        final long expectedValue = values[(int) Math.ceil( percentile / 100.0 * values.length ) - 1];
+        final long value = latencyHistogram.getValueAtPercentile( percentile );
+        assertTrue( value >= expectedValue );
+        assertTrue( value - expectedValue <= Math.max( 1, expectedValue * maximumRelativeError ) );
+      }
+    }
+  }
+  
+  @Test
+  public void testAddAndSerialization()
+  {
+    //
+    final LatencyHistogram latencyHistogram = new LatencyHistogram( 1000000, 3 ).recordValue( 10 ).recordValue( 1000 );
+    final LatencyHistogram latencyHistogramOther = new LatencyHistogram( latencyHistogram ).recordValue( 100000 );
+    
+    //
+    final LatencyHistogram latencyHistogramClone = SerializationUtils.clone( latencyHistogram.add( latencyHistogramOther ) );
+    assertEquals( 3, latencyHistogramClone.getTotalCount() );
+    assertEquals( 10, latencyHistogramClone.getMinimum() );
+    assertEquals( 1000, latencyHistogramClone.getValueAtPercentile( 50.0 ) );
+    assertEquals( 100000, latencyHistogramClone.getMaximum(), 100 );
+  }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.time;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * @see LatencyRecorder
+ * @author Omnaest
+ */
+public class LatencyRecorderTest
+{
+  
+  @Test
+  public void testConcurrentRecording() throws Exception
+  {
+    //
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    final int numberOfThreads = 4;
+    final int numberOfValuesPerThread = 10000;
+    
+    //
+    final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+    final List<Future<?>> futureList = new ArrayList<Future<?>>();
+    for ( int thread = 0; thread < numberOfThreads; thread++ )
+    {
+      futureList.add( executorService.submit( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for ( int ii = 1; ii <= numberOfValuesPerThread; ii++ )
+          {
+            latencyRecorder.recordValue( ii );
+          }
+        }
+      } ) );
+    }
+    for ( Future<?> future : futureList )
+    {
+      future.get();
+    }
+    executorService.shutdown();
+    
+    //
+    final LatencyHistogram latencyHistogram = latencyRecorder.getHistogram();
+    assertEquals( numberOfThreads * numberOfValuesPerThread, latencyHistogram.getTotalCount() );
+    assertEquals( numberOfThreads * ( numberOfValuesPerThread * ( numberOfValuesPerThread + 1L ) / 2 ),
+                  latencyHistogram.getTotalValue() );
+    assertEquals( latencyHistogram.getTotalValue(), latencyRecorder.getTotalValue() );
+    assertEquals( numberOfValuesPerThread / 2, latencyHistogram.getValueAtPercentile( 50.0 ), numberOfValuesPerThread / 100 );
+  }
+  
+  @Test
+  public void testIntervalHistogramAndReset()
+  {
+    //
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    latencyRecorder.recordValue( 1000 );
+    latencyRecorder.recordValue( 2000 );
+    
+    //
+    assertEquals( 2, latencyRecorder.getIntervalHistogram().getTotalCount() );
+    latencyRecorder.recordValue( 3000 );
+    final LatencyHistogram intervalHistogram = latencyRecorder.getIntervalHistogram();
+    assertEquals( 1, intervalHistogram.getTotalCount() );
+    assertEquals( 3000, intervalHistogram.getTotalValue() );
+    assertEquals( 0, latencyRecorder.getIntervalHistogram().getTotalCount() );
+    assertEquals( 3, latencyRecorder.getHistogram().getTotalCount() );
+    
+    //
+    latencyRecorder.reset();
+    assertEquals( 0, latencyRecorder.getHistogram().getTotalCount() );
+    assertEquals( 0, latencyRecorder.getTotalValue() );
+    latencyRecorder.recordValue( 4000 );
+    assertEquals( 1, latencyRecorder.getHistogram().getTotalCount() );
+    assertEquals( 1, latencyRecorder.getIntervalHistogram().getTotalCount() );
+  }
+  
+  @Test
+  public void testCountsOfTerminatedThreadsAreRetired() throws InterruptedException
+  {
+    //
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    for ( int thread = 0; thread < 20; thread++ )
+    {
+      final Thread recordingThread = new Thread( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for ( int ii = 1; ii <= 100; ii++ )
+          {
+            latencyRecorder.recordValue( ii );
+          }
+        }
+      } );
+      recordingThread.start();
+      recordingThread.join();
+    }
+    
+    //
+    assertTrue( latencyRecorder.getNumberOfThreadCounts() <= 1 );
+    assertEquals( 2000, latencyRecorder.getHistogram().getTotalCount() );
+    assertEquals( 20 * 5050, latencyRecorder.getTotalValue() );
+    assertEquals( 0, latencyRecorder.getNumberOfThreadCounts() );
+  }
+  
+  @Test
+  public void testAdd()
+  {
+    //
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    latencyRecorder.recordValue( 1000 );
+    latencyRecorder.recordValue( 2000 );
+    
+    //
+    final LatencyRecorder latencyRecorderOther = new LatencyRecorder();
+    latencyRecorderOther.add( latencyRecorder.getHistogram() );
+    latencyRecorderOther.recordValue( 3000 );
+    assertEquals( 3, latencyRecorderOther.getHistogram().getTotalCount() );
+    assertEquals( 6000, latencyRecorderOther.getTotalValue() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testPerformance() throws Exception
+  {
+    //
+    final int numberOfThreads = 4;
+    final int numberOfValuesPerThread = 10000000;
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    final AtomicLong synchronizedSum = new AtomicLong();
+    final Object lock = new Object();
+    
+    //
+    for ( final boolean recorder : new boolean[] { true, false, true, false } )
+    {
+      //
+      final ExecutorService executorService = Executors.newFixedThreadPool( numberOfThreads );
+      final List<Future<?>> futureList = new ArrayList<Future<?>>();
+      final long startTime = System.nanoTime();
+      for ( int thread = 0; thread < numberOfThreads; thread++ )
+      {
+        futureList.add( executorService.submit( new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            for ( int ii = 0; ii < numberOfValuesPerThread; ii++ )
+            {
+              if ( recorder )
+              {
+                latencyRecorder.recordValue( ii & 0xFFFF );
+              }
+              else
+              {
+                synchronized ( lock )
+                {
+                  synchronizedSum.lazySet( synchronizedSum.get() + ( ii & 0xFFFF ) );
+                }
+              }
+            }
+          }
+        } ) );
+      }
+      for ( Future<?> future : futureList )
+      {
+        future.get();
+      }
+      executorService.shutdown();
+      
+      //
+      System.out.println( ( recorder ? "recorder" : "synchronized sum" ) + ": "
+                          + TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startTime ) + " ms" );
+    }
+  }
+}
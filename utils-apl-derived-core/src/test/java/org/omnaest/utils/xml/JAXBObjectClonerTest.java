@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright 2011 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlID;
+import javax.xml.bind.annotation.XmlIDREF;
+import javax.xml.bind.annotation.XmlRegistry;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.namespace.QName;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.xml.JAXBXMLHelper.CloneMode;
+import org.omnaest.utils.xml.JAXBXMLHelper.MarshallingConfiguration;
+import org.omnaest.utils.xml.exception.CloneFailedException;
+
+/**
+ * @see JAXBObjectCloner
+ * @author Omnaest
+ */
+public class JAXBObjectClonerTest
+{
+  
+  @XmlRootElement
+  @XmlAccessorType(XmlAccessType.FIELD)
+  protected static class Book
+  {
+    private String                    title;
+    private Date                      date;
+    private List<Chapter>             chapterList  = new ArrayList<Chapter>();
+    private Map<String, String>       metaInfoMap  = new LinkedHashMap<String, String>();
+    @XmlElementRef(name = "note")
+    private JAXBElement<String>       note;
+    @XmlTransient
+    private String                    cachedValue;
+    private transient String          transientValue;
+  }
+  
+  @XmlAccessorType(XmlAccessType.FIELD)
+  protected static class Chapter
+  {
+    private String  name;
+    @XmlTransient
+    private Book    book;
+    private Chapter previous;
+  }
+  
+  @XmlRootElement
+  protected static class Author
+  {
+    private String       name;
+    private List<String> aliasList;
+    private String       notMapped;
+    
+    public String getName()
+    {
+      return this.name;
+    }
+    
+    public void setName( String name )
+    {
+      this.name = name;
+    }
+    
+    public List<String> getAliasList()
+    {
+      if ( this.aliasList == null )
+      {
+        this.aliasList = new ArrayList<String>();
+      }
+      return this.aliasList;
+    }
+    
+    @XmlTransient
+    public String getNotMapped()
+    {
+      return this.notMapped;
+    }
+    
+    public void setNotMapped( String notMapped )
+    {
+      this.notMapped = notMapped;
+    }
+  }
+  
+  public static class UpperCaseAdapter extends XmlAdapter<String, String>
+  {
+    @Override
+    public String unmarshal( String value ) throws Exception
+    {
+      return value.toUpperCase();
+    }
+    
+    @Override
+    public String marshal( String value ) throws Exception
+    {
+      return value;
+    }
+  }
+  
+  @XmlRootElement
+  @XmlAccessorType(XmlAccessType.FIELD)
+  protected static class Library
+  {
+    @XmlJavaTypeAdapter(UpperCaseAdapter.class)
+    private String name;
+  }
+  
+  @XmlRootElement
+  @XmlAccessorType(XmlAccessType.FIELD)
+  protected static class Person
+  {
+    @XmlID
+    private String id;
+    @XmlIDREF
+    private Person friend;
+  }
+  
+  @XmlRegistry
+  protected static class ObjectFactory
+  {
+    @javax.xml.bind.annotation.XmlElementDecl(name = "note")
+    public JAXBElement<String> createNote( String value )
+    {
+      return new JAXBElement<String>( new QName( "note" ), String.class, value );
+    }
+  }
+  
+  private static Book newBook()
+  {
+    //
+    final Book book = new Book();
+    book.title = "title";
+    book.date = new Date( 1000 );
+    book.note = new JAXBElement<String>( new QName( "note" ), String.class, "a note" );
+    book.cachedValue = "cached";
+    book.transientValue = "transient";
+    book.metaInfoMap.put( "key", "value" );
+    
+    //
+    Chapter previous = null;
+    for ( int ii = 0; ii < 3; ii++ )
+    {
+      final Chapter chapter = new Chapter();
+      chapter.name = "chapter" + ii;
+      chapter.book = book;
+      chapter.previous = previous;
+      book.chapterList.add( chapter );
+      previous = chapter;
+    }
+    
+    //
+    return book;
+  }
+  
+  @Test
+  public void testCloneObjectFieldBased()
+  {
+    //
+    final Book book = newBook();
+    final Book clone = JAXBObjectCloner.cloneObject( book );
+    
+    //
+    assertNotNull( clone );
+    assertNotSame( book, clone );
+    assertEquals( "title", clone.title );
+    assertEquals( book.date, clone.date );
+    assertNotSame( book.date, clone.date );
+    assertEquals( book.metaInfoMap, clone.metaInfoMap );
+    assertNotSame( book.metaInfoMap, clone.metaInfoMap );
+    assertNotSame( book.note, clone.note );
+    assertEquals( book.note.getName(), clone.note.getName() );
+    assertEquals( "a note", clone.note.getValue() );
+    assertNull( clone.cachedValue );
+    assertNull( clone.transientValue );
+    
+    //
+    assertEquals( 3, clone.chapterList.size() );
+    assertNotSame( book.chapterList.get( 2 ), clone.chapterList.get( 2 ) );
+    assertEquals( "chapter2", clone.chapterList.get( 2 ).name );
+    assertSame( clone.chapterList.get( 1 ), clone.chapterList.get( 2 ).previous );
+    assertNull( clone.chapterList.get( 0 ).book );
+  }
+  
+  @Test
+  public void testCloneObjectWithCycle()
+  {
+    //
+    final Chapter first = new Chapter();
+    final Chapter second = new Chapter();
+    first.previous = second;
+    second.previous = first;
+    
+    //
+    final Chapter clone = JAXBObjectCloner.cloneObject( first );
+    assertNotSame( first, clone );
+    assertNotSame( second, clone.previous );
+    assertSame( clone, clone.previous.previous );
+  }
+  
+  @Test
+  public void testCloneObjectPropertyBased()
+  {
+    //
+    final Author author = new Author();
+    author.setName( "name" );
+    author.setNotMapped( "not mapped" );
+    author.getAliasList().add( "alias1" );
+    author.getAliasList().add( "alias2" );
+    
+    //
+    final Author clone = JAXBObjectCloner.cloneObject( author );
+    assertEquals( "name", clone.getName() );
+    assertEquals( author.getAliasList(), clone.getAliasList() );
+    assertNotSame( author.getAliasList(), clone.getAliasList() );
+    assertNull( clone.getNotMapped() );
+  }
+  
+  @Test
+  public void testCloneObjectVerifiedByXMLRoundtrip()
+  {
+    //
+    final List<Exception> exceptionList = new ArrayList<Exception>();
+    final MarshallingConfiguration marshallingConfiguration = new MarshallingConfiguration();
+    marshallingConfiguration.setExceptionHandler( new ExceptionHandler()
+    {
+      @Override
+      public void handleException( Exception e )
+      {
+        exceptionList.add( e );
+      }
+    } );
+    marshallingConfiguration.setKnownTypes( ObjectFactory.class );
+    
+    //
+    final Book book = newBook();
+    final Book clone = JAXBXMLHelper.cloneObject( book, CloneMode.METADATA_BASED_VERIFIED_BY_XML_ROUNDTRIP,
+                                                  marshallingConfiguration );
+    assertEquals( "[]", exceptionList.toString() );
+    assertEquals( JAXBXMLHelper.storeObjectAsXML( book, marshallingConfiguration ),
+                  JAXBXMLHelper.storeObjectAsXML( clone, marshallingConfiguration ) );
+  }
+  
+  @Test
+  public void testCloneObjectWithTypeAdapterUsesXMLRoundtrip()
+  {
+    //
+    final Library library = new Library();
+    library.name = "name";
+    try
+    {
+      JAXBObjectCloner.cloneObject( library );
+      fail();
+    }
+    catch ( CloneFailedException e )
+    {
+    }
+    
+    //
+    final Library clone = JAXBXMLHelper.cloneObject( library, CloneMode.METADATA_BASED, null );
+    assertNotSame( library, clone );
+    assertEquals( "NAME", clone.name );
+  }
+  
+  @Test
+  public void testCloneObjectWithXmlIdUsesXMLRoundtrip()
+  {
+    //
+    final Person person = new Person();
+    person.id = "p1";
+    person.friend = new Person();
+    person.friend.id = "p2";
+    try
+    {
+      JAXBObjectCloner.cloneObject( person );
+      fail();
+    }
+    catch ( CloneFailedException e )
+    {
+    }
+    
+    //
+    final Person clone = JAXBXMLHelper.cloneObject( person, CloneMode.METADATA_BASED, null );
+    assertEquals( "p1", clone.id );
+    assertNull( clone.friend );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testCloneObjectPerformance()
+  {
+    //
+    final Book book = newBook();
+    for ( int ii = 0; ii < 100; ii++ )
+    {
+      book.metaInfoMap.put( "key" + ii, "value" + ii );
+    }
+    final MarshallingConfiguration marshallingConfiguration = new MarshallingConfiguration().setKnownTypes( ObjectFactory.class );
+    
+    //
+    final int numberOfClones = 20000;
+    for ( CloneMode cloneMode : new CloneMode[] { CloneMode.XML_ROUNDTRIP, CloneMode.METADATA_BASED, CloneMode.XML_ROUNDTRIP,
+        CloneMode.METADATA_BASED } )
+    {
+      //
+      final long start = System.currentTimeMillis();
+      for ( int ii = 0; ii < numberOfClones; ii++ )
+      {
+        JAXBXMLHelper.cloneObject( book, cloneMode, marshallingConfiguration );
+      }
+      final long duration = Math.max( 1, System.currentTimeMillis() - start );
+      System.out.println( cloneMode + ": " + numberOfClones + " clones in " + duration + "ms ("
+                          + ( numberOfClones * 1000l / duration ) + " clones/s)" );
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2012 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.omnaest.utils.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.structure.collection.list.ListUtils;
+import org.omnaest.utils.structure.container.ByteArrayContainer;
+
+/**
+ * @see XMLElementSplitter
+ * @author Omnaest
+ */
+public class XMLElementSplitterTest
+{
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                    + "<!DOCTYPE books [<!ELEMENT books ANY>]>"
+                                    + "<books>"
+                                    + "<!-- <book>commented</book> -->"
+                                    + "<book id=\"1\" note=\"a > b\"><title>First</title></book>"
+                                    + "<ns:book xmlns:ns=\"http://www.example.org\"><title><![CDATA[</book>]]></title></ns:book>"
+                                    + "<book><book>nested</book></book>"
+                                    + "<book/>"
+                                    + "<bookshelf><title>Other</title></bookshelf>"
+                                    + "</books>";
+  
+  @Test
+  public void testNewIteratorInputStream()
+  {
+    //
+    final Iterator<String> iterator = new XMLElementSplitter( new QName( "book" ) ).newIterator( new ByteArrayContainer( XML ).getInputStream() );
+    final List<String> elementList = ListUtils.valueOf( iterator );
+    
+    //
+    assertEquals( 4, elementList.size() );
+    assertEquals( "<book id=\"1\" note=\"a > b\"><title>First</title></book>", elementList.get( 0 ) );
+    assertEquals( "<ns:book xmlns:ns=\"http://www.example.org\"><title><![CDATA[</book>]]></title></ns:book>",
+                  elementList.get( 1 ) );
+    assertEquals( "<book><book>nested</book></book>", elementList.get( 2 ) );
+    assertEquals( "<book/>", elementList.get( 3 ) );
+  }
+  
+  @Test
+  public void testNewByteBufferIterator()
+  {
+    //
+    final ByteBuffer byteBuffer = ByteBuffer.wrap( new ByteArrayContainer( XML ).getContent() );
+    final Iterator<ByteBuffer> iterator = new XMLElementSplitter( new QName( "title" ) ).newByteBufferIterator( byteBuffer );
+    final List<ByteBuffer> elementList = ListUtils.valueOf( iterator );
+    
+    //
+    assertEquals( 3, elementList.size() );
+    assertEquals( "<title>First</title>", new String( toByteArray( elementList.get( 0 ) ) ) );
+    assertEquals( "<title>Other</title>", new String( toByteArray( elementList.get( 2 ) ) ) );
+  }
+  
+  @Test
+  public void testNewIteratorInputStreamLargerThanBuffer()
+  {
+    //
+    final int numberOfElements = 5000;
+    final StringBuilder stringBuilder = new StringBuilder( "<books>" );
+    for ( int ii = 0; ii < numberOfElements; ii++ )
+    {
+      stringBuilder.append( "<book><title>Title " + ii + "</title><author>Author " + ii + "</author></book>" );
+    }
+    stringBuilder.append( "</books>" );
+    
+    //
+    final Iterator<String> iterator = new XMLElementSplitter( new QName( "book" ) ).newIterator( new ByteArrayContainer(
+                                                                                                                        stringBuilder ).getInputStream() );
+    final List<String> elementList = ListUtils.valueOf( iterator );
+    assertEquals( numberOfElements, elementList.size() );
+    for ( int ii = 0; ii < numberOfElements; ii++ )
+    {
+      assertEquals( "<book><title>Title " + ii + "</title><author>Author " + ii + "</author></book>", elementList.get( ii ) );
+    }
+  }
+  
+  @Test
+  public void testXMLIteratorFactoryUsingByteLevelSplitting()
+  {
+    //
+    final ByteArrayContainer byteArrayContainer = new ByteArrayContainer( XML );
+    final Iterator<Map<String, Object>> iterator = new XMLIteratorFactory( byteArrayContainer.getInputStream() ).doUseByteLevelSplitting( true )
+                                                                                                               .newIteratorMapBased( new QName(
+                                                                                                                                                "title" ) );
+    final List<Map<String, Object>> elementList = ListUtils.valueOf( iterator );
+    assertEquals( 3, elementList.size() );
+  }
+  
+  @Test
+  public void testNewIteratorWithPrefix()
+  {
+    //
+    final Iterator<String> iterator = new XMLElementSplitter( new QName( "", "book", "ns" ) ).newIterator( new ByteArrayContainer( XML ).getInputStream() );
+    final List<String> elementList = ListUtils.valueOf( iterator );
+    
+    //
+    assertEquals( 1, elementList.size() );
+    assertEquals( "<ns:book xmlns:ns=\"http://www.example.org\"><title><![CDATA[</book>]]></title></ns:book>",
+                  elementList.get( 0 ) );
+  }
+  
+  @Test
+  public void testNewIteratorRedeclaresParentalNamespaces()
+  {
+    //
+    final String xml = "<books xmlns=\"http://www.example.org\" xmlns:a=\"http://a\" xmlns:b=\"http://b\" id=\"1\">"
+                       + "<shelf xmlns:a=\"http://a2\"><book xmlns:b=\"http://b2\"><a:title/></book></shelf>"
+                       + "<book/>" + "</books>";
+    
+    //
+    {
+      final Iterator<String> iterator = new XMLElementSplitter( new QName( "book" ) ).newIterator( new ByteArrayContainer( xml ).getInputStream() );
+      final List<String> elementList = ListUtils.valueOf( iterator );
+      assertEquals( 2, elementList.size() );
+      assertEquals( "<book xmlns=\"http://www.example.org\" xmlns:a=\"http://a2\" xmlns:b=\"http://b2\"><a:title/></book>",
+                    elementList.get( 0 ) );
+      assertEquals( "<book xmlns=\"http://www.example.org\" xmlns:a=\"http://a\" xmlns:b=\"http://b\"/>", elementList.get( 1 ) );
+    }
+    
+    //
+    {
+      final ByteBuffer byteBuffer = ByteBuffer.wrap( new ByteArrayContainer( xml ).getContent() );
+      final List<ByteBuffer> elementList = ListUtils.valueOf( new XMLElementSplitter( new QName( "book" ) ).newByteBufferIterator( byteBuffer ) );
+      assertEquals( 2, elementList.size() );
+      assertEquals( "<book xmlns=\"http://www.example.org\" xmlns:a=\"http://a\" xmlns:b=\"http://b\"/>",
+                    new String( toByteArray( elementList.get( 1 ) ) ) );
+    }
+  }
+  
+  @Test
+  public void testUnsupportedEncoding()
+  {
+    //
+    final String xml = "<?xml version='1.0' encoding='ISO-8859-1'?><books><book>B\u00fccher</book></books>";
+    final byte[] content = xml.getBytes( Charset.forName( "ISO-8859-1" ) );
+    
+    //
+    final List<Exception> exceptionList = new ArrayList<Exception>();
+    final ExceptionHandler exceptionHandler = new ExceptionHandler()
+    {
+      @Override
+      public void handleException( Exception e )
+      {
+        exceptionList.add( e );
+      }
+    };
+    final Iterator<String> iterator = new XMLElementSplitter( new QName( "book" ), exceptionHandler ).newIterator( new ByteArrayContainer(
+                                                                                                                                          content ).getInputStream() );
+    assertEquals( 0, ListUtils.valueOf( iterator ).size() );
+    assertEquals( 1, exceptionList.size() );
+    assertTrue( exceptionList.get( 0 ) instanceof UnsupportedEncodingException );
+    
+    //
+    final Iterator<String> iteratorFactoryIterator = new XMLIteratorFactory( new ByteArrayContainer( content ).getInputStream() ).doUseByteLevelSplitting( true )
+                                                                                                                                 .newIterator( new QName(
+                                                                                                                                                          "book" ) );
+    final List<String> elementList = ListUtils.valueOf( iteratorFactoryIterator );
+    assertEquals( 1, elementList.size() );
+    assertTrue( elementList.get( 0 ).contains( "B\u00fccher" ) );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testNewByteBufferIteratorPerformance()
+  {
+    //
+    final int numberOfElements = 1000000;
+    final StringBuilder stringBuilder = new StringBuilder( "<books>" );
+    for ( int ii = 0; ii < numberOfElements; ii++ )
+    {
+      stringBuilder.append( "<book id=\"" + ii + "\"><title>Title " + ii + "</title><author>Author " + ii
+                            + "</author><!-- comment --></book>" );
+    }
+    stringBuilder.append( "</books>" );
+    final byte[] content = new ByteArrayContainer( stringBuilder ).getContent();
+    
+    //
+    for ( int ii = 0; ii < 5; ii++ )
+    {
+      //
+      final long start = System.nanoTime();
+      final Iterator<ByteBuffer> iterator = new XMLElementSplitter( new QName( "book" ) ).newByteBufferIterator( ByteBuffer.wrap( content ) );
+      int counter = 0;
+      while ( iterator.hasNext() )
+      {
+        iterator.next();
+        counter++;
+      }
+      final long duration = Math.max( 1, System.nanoTime() - start );
+      assertEquals( numberOfElements, counter );
+      
+      //
+      System.out.println( "Splitted " + content.length / ( 1024 * 1024 ) + "MB in " + duration / 1000000 + "ms ("
+                          + ( content.length * 1000l / duration ) + " MB/s)" );
+    }
+  }
+  
+  private static byte[] toByteArray( ByteBuffer byteBuffer )
+  {
+    final byte[] retval = new byte[byteBuffer.remaining()];
+    byteBuffer.duplicate().get( retval );
+    return retval;
+  }
+}
@@ -19,6 +19,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Map;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -26,8 +29,18 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.xpath.XPathExpression;
 
 import org.junit.Test;
+import org.omnaest.utils.events.exception.basic.ExceptionHandlerRethrowingAsRuntimeException;
+import org.omnaest.utils.structure.container.ByteArrayContainer;
+import org.omnaest.utils.xml.XMLHelper.CompilationStatistic;
+import org.omnaest.utils.xml.XMLHelper.XSLTransformerConfiguration;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 
 /**
  * @see XMLHelper
@@ -211,6 +224,98 @@ public class XMLHelperTest
     //MapUtils.printMapHierarchical( System.out, map );
   }
   
+  @Test
+  public void testSelect() throws Exception
+  {
+    //
+    final Document document = DocumentBuilderFactory.newInstance()
+                                                    .newDocumentBuilder()
+                                                    .parse( new ByteArrayContainer( "<books><book><title>Title</title></book></books>" ).getInputStream() );
+    
+    //
+    final String xPathExpression = "/books/book/title";
+    final CompilationStatistic compilationStatisticBefore = XMLHelper.getCompilationStatistic();
+    for ( int ii = 0; ii < 10; ii++ )
+    {
+      final Node node = XMLHelper.select( xPathExpression, document );
+      assertEquals( "Title", node.getTextContent() );
+    }
+    
+    //
+    final CompilationStatistic compilationStatisticAfter = XMLHelper.getCompilationStatistic();
+    assertTrue( compilationStatisticAfter.getXPathCompilations() - compilationStatisticBefore.getXPathCompilations() <= 1 );
+    assertTrue( compilationStatisticAfter.getXPathCacheHits() - compilationStatisticBefore.getXPathCacheHits() >= 9 );
+    
+    //
+    final XPathExpression compiledXPathExpression = XMLHelper.compileXPathExpression( xPathExpression );
+    assertEquals( "Title", XMLHelper.select( compiledXPathExpression, document, null ).getTextContent() );
+  }
+  
+  @Test
+  public void testTransform()
+  {
+    //
+    final String xslt = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                        + "<xsl:output method=\"text\"/><xsl:param name=\"prefix\"/>"
+                        + "<xsl:template match=\"/\"><xsl:value-of select=\"$prefix\"/><xsl:value-of select=\"/books/book/title\"/></xsl:template>"
+                        + "</xsl:stylesheet>";
+    final String xml = "<books><book><title>Title</title></book></books>";
+    final XSLTransformerConfiguration xslTransformerConfiguration = new XSLTransformerConfiguration().addParameter( "prefix", ">" );
+    
+    //
+    final CompilationStatistic compilationStatisticBefore = XMLHelper.getCompilationStatistic();
+    for ( int ii = 0; ii < 3; ii++ )
+    {
+      //
+      final StringWriter stringWriter = new StringWriter();
+      XMLHelper.transform( new StreamSource( new StringReader( xslt ) ), new StreamSource( new StringReader( xml ) ),
+                           new StreamResult( stringWriter ), new ExceptionHandlerRethrowingAsRuntimeException(),
+                           xslTransformerConfiguration );
+      assertEquals( ">Title", stringWriter.toString() );
+    }
+    
+    //
+    final CompilationStatistic compilationStatisticAfter = XMLHelper.getCompilationStatistic();
+    assertEquals( 1, compilationStatisticAfter.getTemplatesCompilations() - compilationStatisticBefore.getTemplatesCompilations() );
+    assertEquals( 2, compilationStatisticAfter.getTemplatesCacheHits() - compilationStatisticBefore.getTemplatesCacheHits() );
+  }
+  
+  @Test
+  public void testTransformWithRelativeIncludeResolvedAgainstSystemId() throws Exception
+  {
+    //
+    final String xslt = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                        + "<xsl:include href=\"included.xsl\"/><xsl:output method=\"text\"/></xsl:stylesheet>";
+    final String xml = "<books/>";
+    
+    //
+    for ( String text : new String[] { "first", "second" } )
+    {
+      //
+      final File directory = File.createTempFile( "xslt", "" );
+      assertTrue( directory.delete() && directory.mkdir() );
+      final File includedFile = new File( directory, "included.xsl" );
+      try
+      {
+        //
+        new ByteArrayContainer( "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                                + "<xsl:template match=\"/\">" + text + "</xsl:template></xsl:stylesheet>" ).writeTo( includedFile );
+        
+        //
+        final String systemId = new File( directory, "main.xsl" ).toURI().toString();
+        final StringWriter stringWriter = new StringWriter();
+        XMLHelper.transform( new StreamSource( new StringReader( xslt ), systemId ), new StreamSource( new StringReader( xml ) ),
+                             new StreamResult( stringWriter ), new ExceptionHandlerRethrowingAsRuntimeException(), null );
+        assertEquals( text, stringWriter.toString() );
+      }
+      finally
+      {
+        includedFile.delete();
+        directory.delete();
+      }
+    }
+  }
+  
   /**
    * @param level
    * @return
@@ -16,15 +16,20 @@
 package org.omnaest.utils.xml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -51,6 +56,7 @@ import org.omnaest.utils.structure.iterator.IterableUtils;
 import org.omnaest.utils.threads.submit.SubmitGroup;
 import org.omnaest.utils.threads.submit.SubmitGroupFactory;
 import org.omnaest.utils.xml.XMLIteratorFactory.JAXBTypeContentConverterFactory;
+import org.omnaest.utils.xml.XMLIteratorFactory.ParallelConversionConfiguration;
 import org.omnaest.utils.xml.context.XMLInstanceContextFactory;
 import org.omnaest.utils.xml.context.XMLInstanceContextFactoryStAXONImpl;
 import org.w3c.dom.Element;
@@ -512,6 +518,150 @@ public class XMLIteratorFactoryTest
     }
   }
   
+  @Test
+  public void testNewIteratorWithParallelConversion()
+  {
+    //    
+    final int numberOfObjects = 500;
+    final ByteArrayContainer byteArrayContainer = generateTestObjects( numberOfObjects );
+    
+    //
+    final InputStream inputStream = byteArrayContainer.getInputStream();
+    final ParallelConversionConfiguration parallelConversionConfiguration = new ParallelConversionConfiguration().setNumberOfThreads( 4 )
+                                                                                                                 .setQueueSize( 10 );
+    Iterator<Book> iterator = new XMLIteratorFactory( inputStream ).setParallelConversionConfiguration( parallelConversionConfiguration )
+                                                                   .doLowerCaseXMLTagAndAttributeNames()
+                                                                   .newIterator( Book.class );
+    
+    //
+    final List<Book> bookList = ListUtils.valueOf( iterator );
+    assertEquals( numberOfObjects, bookList.size() );
+    
+    //
+    int counter = 1;
+    for ( Book book : bookList )
+    {
+      assertEquals( "author" + counter, book.getAuthor() );
+      assertEquals( "title" + counter, book.getTitle() );
+      counter++;
+    }
+    
+    //
+    try
+    {
+      iterator.next();
+      fail();
+    }
+    catch ( NoSuchElementException e )
+    {
+    }
+  }
+  
+  @Test
+  public void testParallelConversionIteratorClose() throws Exception
+  {
+    //    
+    final int numberOfObjects = 500;
+    final ByteArrayContainer byteArrayContainer = generateTestObjects( numberOfObjects );
+    
+    //
+    final InputStream inputStream = byteArrayContainer.getInputStream();
+    final ParallelConversionConfiguration parallelConversionConfiguration = new ParallelConversionConfiguration().setNumberOfThreads( 2 )
+                                                                                                                 .setQueueSize( 2 );
+    Iterator<Book> iterator = new XMLIteratorFactory( inputStream ).setParallelConversionConfiguration( parallelConversionConfiguration )
+                                                                   .doLowerCaseXMLTagAndAttributeNames()
+                                                                   .newIterator( Book.class );
+    
+    //
+    assertEquals( "title1", iterator.next().getTitle() );
+    assertTrue( iterator instanceof Closeable );
+    ( (Closeable) iterator ).close();
+    assertFalse( iterator.hasNext() );
+    
+    //
+    final long endTime = System.currentTimeMillis() + 10000;
+    while ( hasAliveThreadWithNamePrefix( XMLIteratorFactory.class.getSimpleName() ) )
+    {
+      assertTrue( System.currentTimeMillis() < endTime );
+      Thread.sleep( 10 );
+    }
+  }
+  
+  private static boolean hasAliveThreadWithNamePrefix( String prefix )
+  {
+    for ( Thread thread : Thread.getAllStackTraces().keySet() )
+    {
+      if ( thread.isAlive() && thread.getName().startsWith( prefix ) )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  @Test
+  public void testNewIteratorMapBasedWithUnorderedParallelConversion()
+  {
+    //    
+    final int numberOfObjects = 500;
+    final ByteArrayContainer byteArrayContainer = generateTestObjects( numberOfObjects );
+    
+    //
+    final InputStream inputStream = byteArrayContainer.getInputStream();
+    final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+    final ParallelConversionConfiguration parallelConversionConfiguration = new ParallelConversionConfiguration().setExecutorService( executorService )
+                                                                                                                 .setQueueSize( 10 )
+                                                                                                                 .setPreserveOrder( false );
+    Iterator<Map<String, Object>> iterator = new XMLIteratorFactory( inputStream ).setParallelConversionConfiguration( parallelConversionConfiguration )
+                                                                                  .doLowerCaseXMLTagAndAttributeNames()
+                                                                                  .newIteratorMapBased( new QName(
+                                                                                                                   "http://www.example.org",
+                                                                                                                   "book" ) );
+    
+    //
+    final List<Map<String, Object>> bookList = ListUtils.valueOf( iterator );
+    executorService.shutdown();
+    assertEquals( numberOfObjects, bookList.size() );
+    
+    //
+    final Set<Object> authorSet = new HashSet<Object>();
+    for ( Map<String, Object> book : bookList )
+    {
+      //      
+      assertNotNull( book.get( "title" ) );
+      authorSet.add( book.get( "author" ) );
+    }
+    assertEquals( numberOfObjects, authorSet.size() );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testNewIteratorWithParallelConversionPerformance()
+  {
+    //    
+    final int numberOfObjects = 100000;
+    final ByteArrayContainer byteArrayContainer = generateTestObjects( numberOfObjects );
+    
+    //
+    for ( int numberOfThreads : new int[] { 0, 1, 2, 4, 8 } )
+    {
+      //
+      final ParallelConversionConfiguration parallelConversionConfiguration = numberOfThreads > 0 ? new ParallelConversionConfiguration().setNumberOfThreads( numberOfThreads )
+                                                                                                 : null;
+      final long start = System.currentTimeMillis();
+      final Iterator<Book> iterator = new XMLIteratorFactory( byteArrayContainer.getInputStream() ).setParallelConversionConfiguration( parallelConversionConfiguration )
+                                                                                                   .doLowerCaseXMLTagAndAttributeNames()
+                                                                                                   .newIterator( Book.class );
+      final List<Book> bookList = ListUtils.valueOf( iterator );
+      final long duration = System.currentTimeMillis() - start;
+      assertEquals( numberOfObjects, bookList.size() );
+      
+      //
+      System.out.println( "Threads: " + numberOfThreads + " -> " + duration + "ms ("
+                          + ( numberOfObjects * 1000l / Math.max( 1, duration ) ) + " elements per second)" );
+    }
+  }
+  
   @Test
   @PerfTest(invocations = 1)
   @Ignore("Performance test")
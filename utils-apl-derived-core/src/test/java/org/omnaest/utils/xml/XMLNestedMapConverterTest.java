@@ -16,15 +16,29 @@
 package org.omnaest.utils.xml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
 
+import org.junit.Ignore;
 import org.junit.Test;
+import org.omnaest.utils.structure.collection.list.ListUtils;
 import org.omnaest.utils.structure.container.ByteArrayContainer;
 
 /**
@@ -118,4 +132,162 @@ public class XMLNestedMapConverterTest
     
   }
   
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testNewMapFromXMLInputStream()
+  {
+    //
+    final XMLNestedMapConverter xmlNestedMapConverter = new XMLNestedMapConverter();
+    final ByteArrayContainer byteArrayContainer = new ByteArrayContainer().copyFrom( this.getClass()
+                                                                                         .getResourceAsStream( "books.xml" ) );
+    final Map<String, Object> map = xmlNestedMapConverter.newMapFromXML( byteArrayContainer.getInputStream() );
+    
+    //
+    assertEquals( xmlNestedMapConverter.newMapFromXML( byteArrayContainer.toString() ), map );
+    
+    //
+    final Map<String, Object> books = (Map<String, Object>) map.get( "Books" );
+    final List<Map<String, Object>> bookList = (List<Map<String, Object>>) books.get( "Book" );
+    final String firstTitleKey = bookList.get( 0 ).keySet().iterator().next();
+    final String secondTitleKey = bookList.get( 1 ).keySet().iterator().next();
+    assertSame( firstTitleKey, secondTitleKey );
+  }
+  
+  @Test
+  public void testNewMapIteratorFromXML()
+  {
+    //
+    final ByteArrayContainer byteArrayContainer = new ByteArrayContainer().copyFrom( this.getClass()
+                                                                                         .getResourceAsStream( "books.xml" ) );
+    final XMLNestedMapConverter xmlNestedMapConverter = new XMLNestedMapConverter();
+    
+    //
+    {
+      final Iterator<Map<String, Object>> iterator = xmlNestedMapConverter.newMapIteratorFromXML( byteArrayContainer.getInputStream(),
+                                                                                                  new QName( "Book" ) );
+      final List<Map<String, Object>> bookList = ListUtils.valueOf( iterator );
+      assertEquals( 2, bookList.size() );
+      assertEquals( "{Book={Title=Simple title, author=\n            an author\n        }}", bookList.get( 0 ).toString() );
+      assertEquals( "{Book={Title=Second simple\n            title\n        , Author=Second author}}", bookList.get( 1 )
+                                                                                                         .toString() );
+      assertFalse( iterator.hasNext() );
+    }
+    {
+      final Iterator<Map<QName, Object>> iterator = xmlNestedMapConverter.newNamespaceAwareMapIteratorFromXML( byteArrayContainer.getInputStream(),
+                                                                                                               new QName(
+                                                                                                                          "http://www.other.example.org",
+                                                                                                                          "Author" ) );
+      final List<Map<QName, Object>> authorList = ListUtils.valueOf( iterator );
+      assertEquals( 1, authorList.size() );
+      assertEquals( "Second author", authorList.get( 0 ).get( new QName( "http://www.other.example.org", "Author" ) ) );
+    }
+  }
+  
+  @Test
+  public void testToXMLUsingIteratorValues()
+  {
+    //
+    final Map<String, Object> firstBook = new LinkedHashMap<String, Object>();
+    firstBook.put( "Title", "First" );
+    final Map<String, Object> secondBook = new LinkedHashMap<String, Object>();
+    secondBook.put( "Title", "Second" );
+    
+    //
+    final Map<String, Object> books = new LinkedHashMap<String, Object>();
+    books.put( "Book", Arrays.asList( firstBook, secondBook ).iterator() );
+    books.put( "Tag", new ArrayList<String>( Arrays.asList( "a", "b" ) ) );
+    final Map<String, Object> nestedMap = new LinkedHashMap<String, Object>();
+    nestedMap.put( "Books", books );
+    
+    //
+    final String xml = new XMLNestedMapConverter().toXML( nestedMap );
+    assertEquals( "<Books><Book><Title>First</Title></Book><Book><Title>Second</Title></Book><Tag>a</Tag><Tag>b</Tag></Books>",
+                  xml );
+  }
+  
+  @Test
+  @Ignore("Performance test")
+  public void testStreamingPerformance() throws Exception
+  {
+    //
+    final int numberOfElements = 7500000;
+    final File file = File.createTempFile( "XMLNestedMapConverterTest", ".xml" );
+    file.deleteOnExit();
+    
+    //
+    final XMLNestedMapConverter xmlNestedMapConverter = new XMLNestedMapConverter();
+    {
+      //
+      final Iterator<Map<String, Object>> bookIterator = new Iterator<Map<String, Object>>()
+      {
+        private int counter = 0;
+        
+        @Override
+        public boolean hasNext()
+        {
+          return this.counter < numberOfElements;
+        }
+        
+        @Override
+        public Map<String, Object> next()
+        {
+          final Map<String, Object> retmap = new LinkedHashMap<String, Object>();
+          retmap.put( "Title", "Title " + this.counter );
+          retmap.put( "Author", "Author " + this.counter++ );
+          return retmap;
+        }
+        
+        @Override
+        public void remove()
+        {
+          throw new UnsupportedOperationException();
+        }
+      };
+      
+      //
+      final Map<String, Object> books = new LinkedHashMap<String, Object>();
+      books.put( "Book", bookIterator );
+      final Map<String, Object> nestedMap = new LinkedHashMap<String, Object>();
+      nestedMap.put( "Books", books );
+      
+      //
+      final long start = System.currentTimeMillis();
+      final OutputStream outputStream = new BufferedOutputStream( new FileOutputStream( file ) );
+      xmlNestedMapConverter.toXMLDocument( nestedMap, outputStream );
+      outputStream.close();
+      final long duration = Math.max( 1, System.currentTimeMillis() - start );
+      System.out.println( "Written " + file.length() / ( 1024 * 1024 ) + "MB in " + duration + "ms ("
+                          + ( file.length() / 1024 / duration ) + " MB/s)" );
+    }
+    
+    //
+    {
+      //
+      final Runtime runtime = Runtime.getRuntime();
+      long maximumUsedHeap = 0;
+      int counter = 0;
+      
+      //
+      final long start = System.currentTimeMillis();
+      final InputStream inputStream = new BufferedInputStream( new FileInputStream( file ) );
+      final Iterator<Map<String, Object>> iterator = xmlNestedMapConverter.newMapIteratorFromXML( inputStream, new QName( "Book" ) );
+      while ( iterator.hasNext() )
+      {
+        iterator.next();
+        if ( ++counter % 100000 == 0 )
+        {
+          maximumUsedHeap = Math.max( maximumUsedHeap, runtime.totalMemory() - runtime.freeMemory() );
+        }
+      }
+      inputStream.close();
+      final long duration = Math.max( 1, System.currentTimeMillis() - start );
+      assertEquals( numberOfElements, counter );
+      
+      //
+      System.out.println( "Read " + file.length() / ( 1024 * 1024 ) + "MB in " + duration + "ms ("
+                          + ( file.length() / 1024 / duration ) + " MB/s), maximum used heap "
+                          + maximumUsedHeap / ( 1024 * 1024 ) + "MB" );
+    }
+  }
+  
 }
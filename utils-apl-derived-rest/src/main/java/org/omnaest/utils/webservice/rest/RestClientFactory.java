@@ -53,6 +53,9 @@ import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.cache.CacheUtils;
 import org.omnaest.utils.download.URIHelper;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
 import org.omnaest.utils.proxy.StubCreator;
 import org.omnaest.utils.proxy.handler.MethodCallCapture;
 import org.omnaest.utils.proxy.handler.MethodInvocationHandler;
@@ -76,7 +79,9 @@ import org.omnaest.utils.tuple.Tuple2;
  * </ul>
  * <br>
  * Any subclass can use or override the {@link #newRestClient(Class)}, {@link #newRestClient(Class, URI)} and in rare cases
- * {@link #newRestClient(Class, URI, RestInterfaceMethodInvocationHandler)}
+ * {@link #newRestClient(Class, URI, RestInterfaceMethodInvocationHandler)}<br>
+ * <br>
+ * The duration of every REST call is recorded into the timer {@value #METRIC_NAME_REST_CALL} of the global {@link MetricRegistry}.
  * 
  * @see RestClientFactoryJersey
  * @author Omnaest
@@ -84,6 +89,9 @@ import org.omnaest.utils.tuple.Tuple2;
 @SuppressWarnings("javadoc")
 public abstract class RestClientFactory
 {
+  /* ********************************************** Constants ********************************************** */
+  public static final String                                                         METRIC_NAME_REST_CALL                           = "rest.client.call";
+  
   /* ********************************************** Variables ********************************************** */
   private URI                                                                        baseAddress                                     = null;
   private RestInterfaceMethodInvocationHandler                                       restInterfaceMethodInvocationHandler            = null;
@@ -555,6 +563,8 @@ public abstract class RestClientFactory
     protected final URI                                  baseAddress;
     @SuppressWarnings("hiding")
     protected final RestInterfaceMethodInvocationHandler restInterfaceMethodInvocationHandler;
+    protected final Timer                                restCallTimer = MetricUtils.getMetricRegistry()
+                                                                                    .getTimer( METRIC_NAME_REST_CALL );
     
     /* ********************************************** Methods ********************************************** */
     
@@ -615,9 +625,17 @@ public abstract class RestClientFactory
                                                                                 restInterfaceMetaInformationForMethod );
           if ( relativePath != null && httpMethod != null && parameterList != null )
           {
-            retval = restInterfaceMethodInvocationHandler.handleMethodInvocation( baseAddress, relativePath, httpMethod,
-                                                                                  parameterList, returnType, consumesMediaTypes,
-                                                                                  producesMediaTypes );
+            final long startTime = this.restCallTimer.start();
+            try
+            {
+              retval = restInterfaceMethodInvocationHandler.handleMethodInvocation( baseAddress, relativePath, httpMethod,
+                                                                                    parameterList, returnType, consumesMediaTypes,
+                                                                                    producesMediaTypes );
+            }
+            finally
+            {
+              this.restCallTimer.stop( startTime );
+            }
           }
         }
       }
@@ -27,6 +27,8 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.omnaest.utils.events.exception.ExceptionHandler;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
 import org.omnaest.utils.operation.OperationUtils;
 import org.omnaest.utils.operation.special.OperationIntrinsic;
 import org.omnaest.utils.operation.special.OperationWithResult;
@@ -34,7 +36,10 @@ import org.omnaest.utils.structure.array.ArrayUtils;
 import org.omnaest.utils.table.TableEventHandler;
 
 /**
- * Internal data core facade used by the {@link ArrayTable}
+ * Internal data core facade used by the {@link ArrayTable}<br>
+ * <br>
+ * If the global {@link MetricRegistry} is enabled at creation time, the time spent waiting for the table lock is recorded into the
+ * timers "{@value #METRIC_NAME_TABLE_LOCK}.read.wait" and "{@value #METRIC_NAME_TABLE_LOCK}.write.wait".
  * 
  * @author Omnaest
  * @param <E>
@@ -71,14 +76,16 @@ class TableDataAccessor<E> implements Serializable
   }
   
   /* ************************************************** Constants *************************************************** */
-  private static final long             serialVersionUID    = -9123078800733926152L;
+  private static final long             serialVersionUID       = -9123078800733926152L;
+  public static final String            METRIC_NAME_TABLE_LOCK = "table.lock";
   /* ************************************** Variables / State (internal/hiding) ************************************* */
-  private final AtomicLong              modificationCounter = new AtomicLong();
+  private final AtomicLong              modificationCounter    = new AtomicLong();
   
   /* ***************************** Beans / Services / References / Delegates (external) ***************************** */
   private final TableDataCore<E>        tableDataCore;
   private final TableEventDispatcher<E> tableEventDispatcher;
-  private final ReadWriteLock           tableLock           = new ReentrantReadWriteLock( true );
+  private final ReadWriteLock           tableLock              = MetricUtils.timed( new ReentrantReadWriteLock( true ),
+                                                                                    METRIC_NAME_TABLE_LOCK );
   
   /* ********************************************** Classes/Interfaces ********************************************** */
   
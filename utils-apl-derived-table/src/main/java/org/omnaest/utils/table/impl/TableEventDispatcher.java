@@ -25,22 +25,30 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.omnaest.utils.events.exception.ExceptionHandler;
 import org.omnaest.utils.events.exception.basic.ExceptionHandlerIgnoring;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
 import org.omnaest.utils.operation.special.OperationVoid;
 import org.omnaest.utils.structure.element.ObjectUtils;
 import org.omnaest.utils.table.TableEventHandler;
 
 /**
+ * Dispatches the events of a table to all registered {@link TableEventHandler}s. The time the table indexes need to handle an
+ * event is recorded into the timer {@value #METRIC_NAME_INDEX_MAINTENANCE} of the global {@link MetricRegistry}.
+ * 
  * @author Omnaest
  * @param <E>
  */
 class TableEventDispatcher<E> implements TableEventHandler<E>, Serializable
 {
   /* ************************************************** Constants *************************************************** */
-  private static final long                                         serialVersionUID = -8336460926560156773L;
+  private static final long                                         serialVersionUID              = -8336460926560156773L;
+  public static final String                                        METRIC_NAME_INDEX_MAINTENANCE = "table.index.maintenance";
   
   /* ************************************** Variables / State (internal/hiding) ************************************* */
   private final transient List<WeakReference<TableEventHandler<E>>> tableEventHandlerReferenceList;
-  private ExceptionHandler                                          exceptionHandler = new ExceptionHandlerIgnoring();
+  private ExceptionHandler                                          exceptionHandler              = new ExceptionHandlerIgnoring();
+  private final transient Timer                                     indexMaintenanceTimer;
   
   /* *************************************************** Methods **************************************************** */
   
@@ -52,6 +60,7 @@ class TableEventDispatcher<E> implements TableEventHandler<E>, Serializable
     super();
     
     this.tableEventHandlerReferenceList = new CopyOnWriteArrayList<WeakReference<TableEventHandler<E>>>();
+    this.indexMaintenanceTimer = MetricUtils.getMetricRegistry().getTimer( METRIC_NAME_INDEX_MAINTENANCE );
   }
   
   /**
@@ -106,7 +115,23 @@ class TableEventDispatcher<E> implements TableEventHandler<E>, Serializable
           {
             try
             {
-              operation.execute( tableEventHandler );
+              if ( tableEventHandler instanceof TableIndexColumnBasedImpl
+                   || tableEventHandler instanceof TableIndexArbitraryImpl )
+              {
+                final long startTime = this.indexMaintenanceTimer.start();
+                try
+                {
+                  operation.execute( tableEventHandler );
+                }
+                finally
+                {
+                  this.indexMaintenanceTimer.stop( startTime );
+                }
+              }
+              else
+              {
+                operation.execute( tableEventHandler );
+              }
             }
             catch ( Exception e )
             {
@@ -16,6 +16,8 @@
 package org.omnaest.utils.table.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -25,6 +27,9 @@ import java.util.concurrent.locks.ReadWriteLock;
 
 import org.omnaest.utils.assertion.Assert;
 import org.omnaest.utils.events.exception.ExceptionHandlerSerializable;
+import org.omnaest.utils.metrics.MetricRegistry;
+import org.omnaest.utils.metrics.MetricUtils;
+import org.omnaest.utils.metrics.Timer;
 import org.omnaest.utils.operation.special.OperationVoid;
 import org.omnaest.utils.structure.array.ArrayUtils;
 import org.omnaest.utils.table.ImmutableRow;
@@ -39,19 +44,24 @@ import org.omnaest.utils.table.impl.persistence.SimpleFileBasedTablePersistence;
 import org.omnaest.utils.tuple.KeyValue;
 
 /**
- * {@link TablePersistenceRegistration} implementation
+ * {@link TablePersistenceRegistration} implementation<br>
+ * <br>
+ * The duration of every write to a {@link TablePersistence} is recorded into the timer {@value #METRIC_NAME_PERSISTENCE} of
+ * the global {@link MetricRegistry}. The timer is resolved once per instance.
  * 
  * @author Omnaest
  * @param <E>
  */
 final class TablePersistenceRegistrationImpl<E> implements TablePersistenceRegistration<E>, TableEventHandler<E>
 {
-  private static final long              serialVersionUID    = -8588863418066581642L;
+  private static final long              serialVersionUID        = -8588863418066581642L;
+  public static final String             METRIC_NAME_PERSISTENCE = "table.persistence";
   
   private final Table<E>                 table;
   private final ReadWriteLock            tableLock;
-  private final Set<TablePersistence<E>> tablePersistenceSet = new LinkedHashSet<TablePersistence<E>>();
+  private final Set<TablePersistence<E>> tablePersistenceSet     = new LinkedHashSet<TablePersistence<E>>();
   private ExceptionHandlerSerializable   exceptionHandler;
+  private transient Timer                persistenceTimer;
   
   /**
    * @see TablePersistenceRegistrationImpl
@@ -64,6 +74,20 @@ final class TablePersistenceRegistrationImpl<E> implements TablePersistenceRegis
     this.table = table;
     this.tableLock = tableLock;
     this.exceptionHandler = exceptionHandler;
+    this.persistenceTimer = MetricUtils.getMetricRegistry().getTimer( METRIC_NAME_PERSISTENCE );
+  }
+  
+  /**
+   * Resolves the persistence {@link Timer} again, since it is not serialized
+   * 
+   * @param objectInputStream
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  private void readObject( ObjectInputStream objectInputStream ) throws IOException, ClassNotFoundException
+  {
+    objectInputStream.defaultReadObject();
+    this.persistenceTimer = MetricUtils.getMetricRegistry().getTimer( METRIC_NAME_PERSISTENCE );
   }
   
   @Override
@@ -105,9 +129,18 @@ final class TablePersistenceRegistrationImpl<E> implements TablePersistenceRegis
   
   private void executeOnAllTablePersistenceInstances( OperationVoid<TablePersistence<E>> operation )
   {
+    final Timer persistenceTimer = this.persistenceTimer;
     for ( TablePersistence<E> tablePersistence : this.tablePersistenceSet )
     {
-      operation.execute( tablePersistence );
+      final long startTime = persistenceTimer.start();
+      try
+      {
+        operation.execute( tablePersistence );
+      }
+      finally
+      {
+        persistenceTimer.stop( startTime );
+      }
     }
   }
   